@@ -7,6 +7,9 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class ProjectApplication {
 
     public static void main(String[] args) {
+        // EjecutorHttpSandbox conecta a la IP ya validada y envía el Host original (debe fijarse antes del primer HttpClient;
+        // sin main, p. ej. en tests o en un WAR, lo fija el inicializador estático de EjecutorHttpSandbox)
+        System.setProperty("jdk.httpclient.allowRestrictedHeaders", "host");
         SpringApplication.run(ProjectApplication.class, args);
     }
 
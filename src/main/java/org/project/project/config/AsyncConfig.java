@@ -1,20 +1,45 @@
 package org.project.project.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Configuración para procesamiento asíncrono de operaciones de archivos
  * Usado para jobs pesados como comprimir, descargar múltiples archivos, etc.
+ * También habilita los jobs @Scheduled (rollup de métricas, recolección de contenido, latidos de jobs,
+ * volcado de cuotas...) sobre un scheduler con varios hilos
  */
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AsyncConfig {
 
+    /**
+     * Scheduler de los jobs @Scheduled
+     * El de Spring Boot tiene un solo hilo: una recolección o un volcado lento retrasaría a todos los demás,
+     * incluidos el latido y la recuperación de jobs. Se lee la misma propiedad que el autoconfigurado,
+     * así el valor por defecto aplica aunque application.properties no la defina
+     */
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${spring.task.scheduling.pool.size:4}") int hilos) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+        scheduler.setPoolSize(hilos);
+        scheduler.setThreadNamePrefix("Scheduled-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+
+        scheduler.initialize();
+        return scheduler;
+    }
+
     /**
      * Executor para operaciones de archivos pesadas
      * Pool de threads dedicado para no bloquear requests HTTP
@@ -43,6 +68,122 @@ public class AsyncConfig {
         return executor;
     }
 
+    /**
+     * Executor para prefetch de blobs en descargas ZIP en streaming
+     * Abre los ReadChannel de los siguientes archivos mientras se escribe el actual
+     * Si la cola se llena, el propio hilo de la descarga hace la lectura (sin rechazos)
+     */
+    @Bean(name = "zipPrefetchExecutor")
+    public Executor zipPrefetchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("ZipPrefetch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor de las respuestas asíncronas de Spring MVC (StreamingResponseBody: ZIPs de carpetas,
+     * descargas con Range, vista previa, blobs locales y adjuntos de reportes)
+     * Cada descarga ocupa un hilo mientras escribe; si se satura, la descarga se rechaza
+     * en lugar de encolarse detrás de otras descargas largas (503 con Retry-After, ver GlobalExceptionHandler)
+     */
+    @Bean(name = "mvcStreamingExecutor")
+    public ThreadPoolTaskExecutor mvcStreamingExecutor(@Value("${descargas.streaming.workers:32}") int workers,
+                                                       @Value("${descargas.streaming.cola:64}") int cola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(cola);
+        executor.setThreadNamePrefix("MvcStreaming-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor para operaciones masivas en GCS (mover subárboles completos)
+     * Acota cuántas copias se hacen en paralelo; si se satura, copia el hilo que llama
+     */
+    @Bean(name = "gcsBulkExecutor")
+    public Executor gcsBulkExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("GcsBulk-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor del cliente HTTP del sandbox (callbacks y envíos asíncronos del HttpClient del JDK)
+     * Si se satura, la petición se rechaza en lugar de encolar pruebas indefinidamente
+     */
+    @Bean(name = "sandboxHttpExecutor")
+    public Executor sandboxHttpExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("SandboxHttp-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor para refrescar snapshots de estadísticas (dashboard) en segundo plano
+     * Si la cola se llena, el refresco se rechaza y se sigue sirviendo el snapshot anterior
+     */
+    @Bean(name = "statsRefreshExecutor")
+    public Executor statsRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("StatsRefresh-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor para renderizar PDFs de reportes fuera del hilo de la petición
+     * Pool y cola acotados: si la cola se llena la solicitud se rechaza y el cliente reintenta más tarde
+     */
+    @Bean(name = "pdfRenderExecutor")
+    public Executor pdfRenderExecutor(@Value("${reports.pdf.workers:2}") int workers,
+                                      @Value("${reports.pdf.cola:50}") int cola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(cola);
+        executor.setThreadNamePrefix("PdfRender-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+
+        executor.initialize();
+        return executor;
+    }
+
     /**
      * Executor para sincronización con GitHub
      * Pool separado para no competir con operaciones de archivos locales
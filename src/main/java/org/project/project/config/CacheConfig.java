@@ -0,0 +1,75 @@
+package org.project.project.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuración de caché (Caffeine) con tamaño y TTL propios por caché
+ *
+ * CACHÉS CONFIGURADOS (valores por defecto, sobreescribibles con
+ * cache.<nombre>.max-size y cache.<nombre>.ttl-min):
+ * 1. usuarios: Resumen inmutable del usuario por username, ver UsuarioCacheService (1000, 10 min)
+ * 2. permisos: Permisos de usuario en repositorios/proyectos (5000, 10 min)
+ * 3. nodosRaiz: Nodos raíz por contenedor (1000, 5 min)
+ * 4. nodosHijos: Nodos hijos por carpeta (5000, 5 min)
+ * 5. jerarquiasNodos: Estructura de carpetas (500, 5 min)
+ * 6. statsNodos: Estadísticas de nodos (count, size) (1000, 5 min)
+ *
+ * Solo existen los cachés declarados aquí: un @Cacheable con otro nombre falla al arrancar
+ * (ver CacheSelfCheck). Todos registran estadísticas, que Actuator publica como métricas
+ * cache.gets / cache.puts / cache.evictions con la etiqueta cache=<nombre>.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    /**
+     * Cachés declarados con su configuración por defecto: {maximumSize, expireAfterWrite en minutos}
+     */
+    static final Map<String, long[]> CACHES = new LinkedHashMap<>();
+    static {
+        CACHES.put("usuarios", new long[]{1000, 10});
+        CACHES.put("permisos", new long[]{5000, 10});
+        CACHES.put("nodosRaiz", new long[]{1000, 5});
+        CACHES.put("nodosHijos", new long[]{5000, 5});
+        CACHES.put("jerarquiasNodos", new long[]{500, 5});
+        CACHES.put("statsNodos", new long[]{1000, 5});
+    }
+
+    /**
+     * Único gestor de caché de la aplicación
+     * setCacheNames desactiva la creación dinámica: un nombre no declarado devuelve null
+     */
+    @Bean
+    public CacheManager cacheManager(Environment environment) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheNames(CACHES.keySet());
+
+        CACHES.forEach((nombre, defecto) -> {
+            long maxSize = environment.getProperty("cache." + nombre + ".max-size", Long.class, defecto[0]);
+            long ttlMin = environment.getProperty("cache." + nombre + ".ttl-min", Long.class, defecto[1]);
+
+            cacheManager.registerCustomCache(nombre, Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttlMin, TimeUnit.MINUTES)
+                    .recordStats()
+                    .build());
+            logger.info("🗄️ [CACHE] '{}' -> maxSize={}, ttl={} min", nombre, maxSize, ttlMin);
+        });
+
+        return cacheManager;
+    }
+}
@@ -0,0 +1,120 @@
+package org.project.project.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.interceptor.CacheOperation;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Verificación de arranque del subsistema de caché
+ * - Cada caché declarado en CacheConfig debe existir en el CacheManager y registrar estadísticas
+ * - Cada nombre usado en @Cacheable / @CacheEvict / @CachePut de la aplicación debe estar declarado
+ * Si algo falla, el contexto no arranca (mejor que descubrir en producción que el caché no hace nada)
+ * Las métricas de Actuator solo se comprueban con un aviso: el registro es opcional
+ */
+@Component
+public class CacheSelfCheck implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheSelfCheck.class);
+    private static final String PAQUETE_APLICACION = "org.project.project";
+
+    private final ApplicationContext applicationContext;
+    private final CacheManager cacheManager;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public CacheSelfCheck(ApplicationContext applicationContext, CacheManager cacheManager,
+                          ObjectProvider<MeterRegistry> meterRegistry) {
+        this.applicationContext = applicationContext;
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<String> errores = new ArrayList<>();
+
+        // 1. Cachés declarados: existen y registran estadísticas
+        for (String nombre : CacheConfig.CACHES.keySet()) {
+            Cache cache = cacheManager.getCache(nombre);
+            if (!(cache instanceof CaffeineCache caffeineCache)) {
+                errores.add("Caché '" + nombre + "' no está registrado en el CacheManager");
+            } else if (!caffeineCache.getNativeCache().policy().isRecordingStats()) {
+                errores.add("Caché '" + nombre + "' no registra estadísticas");
+            }
+        }
+
+        // 2. Nombres usados en anotaciones de la aplicación
+        Map<String, String> usados = buscarCachesUsados();
+        usados.forEach((nombre, origen) -> {
+            if (cacheManager.getCache(nombre) == null) {
+                errores.add("Caché '" + nombre + "' usado en " + origen + " no está declarado en CacheConfig");
+            }
+        });
+
+        if (!errores.isEmpty()) {
+            errores.forEach(error -> logger.error("❌ [CACHE] {}", error));
+            throw new IllegalStateException("Configuración de caché inválida: " + String.join("; ", errores));
+        }
+
+        // 3. Métricas en Actuator (solo aviso)
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            for (String nombre : CacheConfig.CACHES.keySet()) {
+                if (registry.find("cache.gets").tag("cache", nombre).meter() == null) {
+                    logger.warn("⚠️ [CACHE] Caché '{}' sin métricas en Actuator", nombre);
+                }
+            }
+        }
+
+        logger.info("✅ [CACHE] {} caché(s) activos, {} usados en anotaciones: {}",
+                CacheConfig.CACHES.size(), usados.size(), new TreeSet<>(usados.keySet()));
+    }
+
+    /**
+     * Recorre los beans de la aplicación y devuelve nombre de caché -> primer método que lo usa
+     */
+    private Map<String, String> buscarCachesUsados() {
+        AnnotationCacheOperationSource fuente = new AnnotationCacheOperationSource();
+        Map<String, String> usados = new TreeMap<>();
+
+        for (String beanName : applicationContext.getBeanDefinitionNames()) {
+            Class<?> tipo = applicationContext.getType(beanName, false);
+            if (tipo == null) {
+                continue;
+            }
+            Class<?> clase = ClassUtils.getUserClass(tipo);
+            if (!clase.getName().startsWith(PAQUETE_APLICACION)) {
+                continue;
+            }
+            ReflectionUtils.doWithMethods(clase, metodo -> {
+                Collection<CacheOperation> operaciones = fuente.getCacheOperations(metodo, clase);
+                if (operaciones == null) {
+                    return;
+                }
+                for (CacheOperation operacion : operaciones) {
+                    for (String nombre : operacion.getCacheNames()) {
+                        usados.putIfAbsent(nombre, clase.getSimpleName() + "." + metodo.getName());
+                    }
+                }
+            }, ReflectionUtils.USER_DECLARED_METHODS);
+        }
+        return usados;
+    }
+}
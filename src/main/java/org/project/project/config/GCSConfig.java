@@ -3,17 +3,25 @@ package org.project.project.config;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
+import org.project.project.service.storage.BlobStore;
+import org.project.project.service.storage.GcsBlobStore;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
 
 /**
  * Configuración de Google Cloud Storage (GCS) para el file system
+ * Activa con storage.backend=gcs (por defecto); con storage.backend=local ver {@link LocalStorageConfig}
  */
 @Configuration
+@ConditionalOnProperty(name = "storage.backend", havingValue = "gcs", matchIfMissing = true)
 public class GCSConfig {
 
     @Value("${gcp.project-id}")
@@ -25,6 +33,9 @@ public class GCSConfig {
     @Value("${gcs.filesystem.bucket-name}")
     private String bucketName;
 
+    @Value("${devportal.storage.bucket-name}")
+    private String devportalBucketName;
+
     /**
      * Bean de Storage de GCS
      * Se usa para todas las operaciones de archivos en Google Cloud Storage
@@ -48,6 +59,33 @@ public class GCSConfig {
                 .getService();
     }
 
+    /**
+     * BlobStore del file system de proyectos y repositorios
+     */
+    @Bean
+    public BlobStore archivosBlobStore(Storage storage) {
+        return new GcsBlobStore(storage, bucketName);
+    }
+
+    /**
+     * BlobStore del bucket de DevPortal (adjuntos de reportes, contratos y recursos de APIs)
+     * Usa su propia cuenta de servicio (devportal-storage-key.json)
+     */
+    @Bean
+    public BlobStore devportalBlobStore() throws IOException {
+        try (InputStream credentialsStream = new ClassPathResource("devportal-storage-key.json").getInputStream()) {
+            GoogleCredentials credentials = GoogleCredentials.fromStream(credentialsStream)
+                    .createScoped(Collections.singletonList("https://www.googleapis.com/auth/devstorage.read_write"));
+            Storage storage = StorageOptions.newBuilder()
+                    .setCredentials(credentials)
+                    .setProjectId("devportal-storage")
+                    .build()
+                    .getService();
+            System.out.println("✅ BlobStore de DevPortal inicializado con bucket: " + devportalBucketName);
+            return new GcsBlobStore(storage, devportalBucketName);
+        }
+    }
+
     /**
      * Validar que el bucket existe al iniciar la aplicación
      * NOTA: Comentado temporalmente por problemas de conectividad
@@ -3,6 +3,11 @@ package org.project.project.config;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -36,6 +41,23 @@ public class GlobalExceptionHandler {
         return "error/403";
     }
     
+    // Segundos que el cliente debe esperar antes de reintentar una descarga rechazada
+    @Value("${descargas.streaming.retry-after-segundos:30}")
+    private int retryAfterSegundos;
+    
+    /**
+     * mvcStreamingExecutor lleno (hilos y cola ocupados por otras descargas): 503 con Retry-After en lugar de 500
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> handleTaskRejected(TaskRejectedException ex, HttpServletRequest request) {
+        logger.warn("⏳ [EXCEPTION] Descargas saturadas, se rechaza {} {}: {}",
+                request.getMethod(), request.getRequestURI(), ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSegundos))
+                .body("Hay demasiadas descargas en curso, intente de nuevo en unos segundos");
+    }
+    
     @ExceptionHandler(TemplateProcessingException.class)
     public ModelAndView handleTemplateProcessingException(TemplateProcessingException ex, HttpServletRequest request) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
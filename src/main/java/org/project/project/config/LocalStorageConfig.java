@@ -0,0 +1,65 @@
+package org.project.project.config;
+
+import org.project.project.service.storage.LocalBlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+
+/**
+ * Almacenamiento en disco local (storage.backend=local)
+ * Reemplaza a GCS en desarrollo y pruebas: mismos buckets, mismas rutas, sin credenciales de Google
+ */
+@Configuration
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalStorageConfig {
+
+    @Value("${storage.local.raiz:./almacenamiento-local}")
+    private String raiz;
+
+    @Value("${storage.local.url-base:http://localhost:8080/api/blob-local}")
+    private String urlBase;
+
+    // Vacía = clave aleatoria por arranque (las URLs firmadas dejan de valer al reiniciar)
+    @Value("${storage.local.clave-firma:}")
+    private String claveFirma;
+
+    @Value("${storage.local.temporales-horas:168}")
+    private long horasTemporales;
+
+    @Value("${gcs.filesystem.bucket-name}")
+    private String bucketName;
+
+    @Value("${devportal.storage.bucket-name}")
+    private String devportalBucketName;
+
+    private byte[] clave;
+
+    @Bean
+    public LocalBlobStore archivosBlobStore() throws IOException {
+        return new LocalBlobStore(Path.of(raiz), bucketName, urlBase, clave(), horasTemporales);
+    }
+
+    @Bean
+    public LocalBlobStore devportalBlobStore() throws IOException {
+        return new LocalBlobStore(Path.of(raiz), devportalBucketName, urlBase, clave(), horasTemporales);
+    }
+
+    private synchronized byte[] clave() {
+        if (clave == null) {
+            if (claveFirma.isBlank()) {
+                clave = new byte[32];
+                new SecureRandom().nextBytes(clave);
+                System.out.println("⚠️ storage.local.clave-firma no configurada: las URLs firmadas expiran al reiniciar");
+            } else {
+                clave = claveFirma.getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return clave;
+    }
+}
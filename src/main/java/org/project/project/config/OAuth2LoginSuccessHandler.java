@@ -6,6 +6,7 @@ import org.project.project.model.entity.Usuario;
 import org.project.project.model.entity.Rol;
 import org.project.project.repository.UsuarioRepository;
 import org.project.project.repository.RolRepository;
+import org.project.project.service.UsuarioCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.core.user.OAuth2User;
@@ -28,6 +29,9 @@ public class OAuth2LoginSuccessHandler implements AuthenticationSuccessHandler {
     @Autowired
     private RolRepository rolRepository;
 
+    @Autowired
+    private UsuarioCacheService usuarioCacheService;
+
     @Override
     @Transactional
     public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
@@ -112,6 +116,7 @@ public class OAuth2LoginSuccessHandler implements AuthenticationSuccessHandler {
             
             // Guardar cambios
             usuarioRepository.save(usuario);
+            usuarioCacheService.invalidar(usuario.getUsername());
             System.out.println("✅ Rol DEV asignado exitosamente a: " + usuario.getUsername());
         }
 
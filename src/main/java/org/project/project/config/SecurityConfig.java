@@ -95,7 +95,8 @@ public class SecurityConfig {
                                     "/oauth2/**", "/login/oauth2/**", "/login/oauth2/code/**",
                                     "/devportal/user/validate-field",
                                     "/api/reniec/**", // ✅ API pública para validación de DNI con RENIEC
-                                    "/api/chatbot/**" // ✅ API pública para chatbot (llamadas desde Cloud Run)
+                                    "/api/chatbot/**", // ✅ API pública para chatbot (llamadas desde Cloud Run)
+                                    "/api/blob-local/**" // ✅ URLs firmadas del almacenamiento local (la firma HMAC autoriza)
                                     // ⚠️ REMOVIDO: /devportal/** ya NO permite acceso anónimo
                             ).permitAll()
                             .requestMatchers("/devportal/**").authenticated() // 🔒 Requiere autenticación
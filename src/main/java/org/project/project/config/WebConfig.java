@@ -35,7 +35,7 @@ public class WebConfig implements WebMvcConfigurer {
         // Interceptor OIDC (TERCERO)
         registry.addInterceptor(oidcUserInterceptor)
                 .addPathPatterns("/**")
-                .excludePathPatterns("/api/**", "/assets/**", "/css/**", "/js/**", "/images/**", "/favicon.ico");
+                .excludePathPatterns("/api/**", "/mock/**", "/assets/**", "/css/**", "/js/**", "/images/**", "/favicon.ico");
     }
 
     @Bean
@@ -1,7 +1,11 @@
 package org.project.project.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -18,6 +22,15 @@ public class WebMvcConfig implements WebMvcConfigurer {
     @Autowired
     private org.project.project.interceptor.RouteValidationInterceptor routeValidationInterceptor;
     
+    @Autowired
+    @Qualifier("mvcStreamingExecutor")
+    private ThreadPoolTaskExecutor mvcStreamingExecutor;
+
+    // Timeout de las respuestas asíncronas (StreamingResponseBody). El de Tomcat por defecto (30 s)
+    // corta a mitad del cuerpo los ZIPs grandes y las descargas lentas; -1 = sin límite
+    @Value("${descargas.streaming.timeout-ms:3600000}")
+    private long streamingTimeoutMs;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         System.out.println("🔧 [WebMvcConfig] Registrando interceptores...");
@@ -30,11 +43,18 @@ public class WebMvcConfig implements WebMvcConfigurer {
         // 2. RequestLoggingInterceptor - Logging después
         registry.addInterceptor(requestLoggingInterceptor)
                 .addPathPatterns("/**")
+                .excludePathPatterns("/mock/**") // Mock servers: alto volumen, tienen sus propios contadores
                 .order(2);
                 
         System.out.println("✅ [WebMvcConfig] Interceptores registrados correctamente");
     }
     
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcStreamingExecutor);
+        configurer.setDefaultTimeout(streamingTimeoutMs);
+    }
+    
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         System.out.println("🔧 [WebMvcConfig] Configurando manejadores de recursos estáticos...");
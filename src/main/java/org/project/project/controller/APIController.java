@@ -14,7 +14,7 @@ import org.project.project.repository.CategoriaRepository;
 import org.project.project.repository.EtiquetaRepository;
 import org.project.project.repository.UsuarioRepository;
 import org.project.project.service.APIService;
-import org.project.project.service.ApiContractStorageService;
+import org.project.project.service.ContratoApiCacheService;
 import org.project.project.service.SolicitudPublicacionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -69,7 +69,7 @@ public class APIController {
     private APIService apiService;
     
     @Autowired
-    private ApiContractStorageService apiContractStorageService;
+    private ContratoApiCacheService contratoApiCacheService;
     
     @Autowired
     private SolicitudPublicacionService solicitudPublicacionService;
@@ -675,7 +675,7 @@ public class APIController {
                     if (contractUrl != null && !contractUrl.isEmpty()) {
                         log.info("📄 Intentando cargar contrato desde GCS: {}", contractUrl);
                         try {
-                            String contractContent = apiContractStorageService.getApiContract(contractUrl);
+                            String contractContent = contratoApiCacheService.obtenerContenido(latestVersion);
                             apiDetails.put("currentContract", contractContent);
                             log.info("✅ Contrato cargado exitosamente desde GCS, longitud: {}", contractContent.length());
                             log.info("🔍 DEBUG - Primeros 100 caracteres del contrato: {}", 
@@ -1163,7 +1163,7 @@ public class APIController {
             // Intentar cargar el contrato desde GCS
             try {
                 if (version.getContratoApiUrl() != null && !version.getContratoApiUrl().trim().isEmpty()) {
-                    String contract = apiContractStorageService.getApiContract(version.getContratoApiUrl());
+                    String contract = contratoApiCacheService.obtenerContenido(version);
                     log.info("✅ Contrato cargado exitosamente desde GCS para versión {}", version.getNumeroVersion());
                     
                     return ResponseEntity.ok(Map.of(
@@ -1473,7 +1473,7 @@ public class APIController {
                 String contractUrl = latestVersion.getContratoApiUrl();
                 if (contractUrl != null && !contractUrl.isEmpty()) {
                     try {
-                        String content = apiContractStorageService.getApiContract(contractUrl);
+                        String content = contratoApiCacheService.obtenerContenido(latestVersion);
                         debug.put("contractLoadSuccess", true);
                         debug.put("contractLength", content.length());
                         debug.put("contractPreview", content.length() > 200 ? content.substring(0, 200) + "..." : content);
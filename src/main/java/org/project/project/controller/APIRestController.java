@@ -6,8 +6,10 @@ import org.project.project.model.entity.API;
 import org.project.project.model.entity.VersionAPI;
 import org.project.project.model.entity.Documentacion;
 import org.project.project.service.APIService;
+import org.project.project.service.BusquedaService;
 import org.project.project.service.UserService;
 import org.project.project.model.entity.Usuario;
+import org.project.project.model.entity.Rol;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -28,6 +30,7 @@ public class APIRestController {
 
     private final APIService apiService;
     private final UserService userService;
+    private final BusquedaService busquedaService;
 
     /**
      * GET /api/apis
@@ -253,13 +256,11 @@ public class APIRestController {
                 );
             }
 
-            // Search in all APIs
-            String queryLower = query.trim().toLowerCase();
-            List<API> apis = apiService.listarApis().stream()
-                .filter(api -> api.getNombreApi().toLowerCase().contains(queryLower) ||
-                              (api.getDescripcionApi() != null &&
-                               api.getDescripcionApi().toLowerCase().contains(queryLower)))
-                .collect(Collectors.toList());
+            // Full-text search (ranked, filtered by what the user can see)
+            Usuario usuario = userService.obtenerUsuarioActualSinUsername(principal);
+            List<Long> ids = busquedaService.buscarIds(BusquedaService.TipoResultado.API, query,
+                usuario != null ? usuario.getUsuarioId() : null, esSA(usuario), BusquedaService.TAMANIO_MAXIMO);
+            List<API> apis = apiService.listarApisPorIds(ids);
 
             List<Map<String, Object>> resultados = apis.stream()
                 .map(api -> mapApiToJson(api, false))
@@ -285,6 +286,11 @@ public class APIRestController {
 
     // =================== HELPER METHODS ===================
 
+    private boolean esSA(Usuario usuario) {
+        return usuario != null && usuario.getRoles() != null && usuario.getRoles().stream()
+            .anyMatch(rol -> rol.getNombreRol() == Rol.NombreRol.SA);
+    }
+
     /**
      * Map API entity to simple JSON Map
      */
@@ -13,7 +13,7 @@ import org.project.project.repository.UsuarioRepository;
 import org.project.project.repository.VersionAPIRepository;
 import org.project.project.repository.EnlaceRepository;
 import org.project.project.service.DocumentationService;
-import org.project.project.service.ApiContractStorageService;
+import org.project.project.service.ContratoApiCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -46,7 +46,7 @@ public class DocumentationController {
     private EnlaceRepository enlaceRepository;
     
     @Autowired
-    private ApiContractStorageService apiContractStorageService;
+    private ContratoApiCacheService contratoApiCacheService;
 
     @GetMapping
     public List<Documentacion> getAllDocumentations() {
@@ -173,7 +173,7 @@ public class DocumentationController {
             String contratoContent = null;
             try {
                 if (contratoUrl != null && !contratoUrl.isEmpty()) {
-                    contratoContent = apiContractStorageService.getApiContract(contratoUrl);
+                    contratoContent = contratoApiCacheService.obtenerContenido(version);
                 }
             } catch (Exception e) {
                 log.error("❌ Error cargando contrato OpenAPI: {}", e.getMessage());
@@ -0,0 +1,125 @@
+package org.project.project.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.project.project.model.dto.response.JobDTO;
+import org.project.project.model.entity.FileOperationJob;
+import org.project.project.model.entity.Usuario;
+import org.project.project.service.FileOperationJobService;
+import org.project.project.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * REST API para consultar y controlar jobs de operaciones de archivos
+ * Los jobs se crean desde /api/repositories/{repoId}/jobs y /api/projects/{projectId}/jobs
+ * Cada usuario solo ve y controla sus propios jobs
+ */
+@RestController
+@RequestMapping("/api/file-jobs")
+@RequiredArgsConstructor
+public class FileOperationJobRestController {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileOperationJobRestController.class);
+
+    private final FileOperationJobService fileOperationJobService;
+    private final UserService userService;
+
+    /**
+     * 📋 GET /api/file-jobs
+     * Lista los jobs del usuario actual (más recientes primero)
+     */
+    @GetMapping
+    public ResponseEntity<?> listarJobs(Principal principal) {
+        try {
+            Usuario usuario = userService.buscarPorUsername(principal.getName());
+            List<JobDTO> jobs = fileOperationJobService.obtenerJobsPorUsuario(usuario.getUsuarioId()).stream()
+                    .map(fileOperationJobService::convertirADTO)
+                    .collect(Collectors.toList());
+            return ResponseEntity.ok(jobs);
+        } catch (Exception e) {
+            logger.error("❌ Error al listar jobs: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * ℹ️ GET /api/file-jobs/{jobId}
+     * Estado y progreso de un job
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> obtenerJob(@PathVariable Long jobId, Principal principal) {
+        try {
+            Optional<FileOperationJob> job = buscarJobPropio(jobId, principal);
+            if (job.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Job no encontrado"));
+            }
+            return ResponseEntity.ok(fileOperationJobService.convertirADTO(job.get()));
+        } catch (Exception e) {
+            logger.error("❌ Error al obtener job {}: {}", jobId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 🛑 POST /api/file-jobs/{jobId}/cancel
+     * Cancela un job pendiente o en ejecución
+     */
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<?> cancelarJob(@PathVariable Long jobId, Principal principal) {
+        try {
+            if (buscarJobPropio(jobId, principal).isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Job no encontrado"));
+            }
+            if (!fileOperationJobService.cancelarJob(jobId)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "El job ya finalizó"));
+            }
+            logger.info("🛑 [JOB {}] Cancelación solicitada", jobId);
+            return ResponseEntity.ok(Map.of("success", true, "message", "Job cancelado"));
+        } catch (Exception e) {
+            logger.error("❌ Error al cancelar job {}: {}", jobId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 🔁 POST /api/file-jobs/{jobId}/retry
+     * Reintenta un job fallido
+     */
+    @PostMapping("/{jobId}/retry")
+    public ResponseEntity<?> reintentarJob(@PathVariable Long jobId, Principal principal) {
+        try {
+            if (buscarJobPropio(jobId, principal).isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Job no encontrado"));
+            }
+            Optional<FileOperationJob> job = fileOperationJobService.reintentarJob(jobId);
+            if (job.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "Solo se pueden reintentar jobs fallidos"));
+            }
+            logger.info("🔁 [JOB {}] Reintento encolado", jobId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(fileOperationJobService.convertirADTO(job.get()));
+        } catch (Exception e) {
+            logger.error("❌ Error al reintentar job {}: {}", jobId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private Optional<FileOperationJob> buscarJobPropio(Long jobId, Principal principal) {
+        Usuario usuario = userService.buscarPorUsername(principal.getName());
+        return fileOperationJobService.obtenerEstadoJob(jobId)
+                .filter(job -> usuario.getUsuarioId().equals(job.getUserId()));
+    }
+}
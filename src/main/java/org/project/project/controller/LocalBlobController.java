@@ -0,0 +1,87 @@
+package org.project.project.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.project.project.service.storage.LocalBlobStore;
+import org.project.project.service.storage.MetadatosBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sirve las URLs firmadas del almacenamiento local (storage.backend=local)
+ * Equivalente a las signed URLs de GCS: no requiere sesión, la firma HMAC y la expiración
+ * van en la query (?expira=...&firma=...)
+ */
+@RestController
+@RequestMapping("/api/blob-local")
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalBlobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalBlobController.class);
+
+    private final Map<String, LocalBlobStore> almacenes;
+
+    public LocalBlobController(List<LocalBlobStore> almacenes) {
+        this.almacenes = almacenes.stream()
+                .collect(Collectors.toMap(LocalBlobStore::getNombre, Function.identity()));
+    }
+
+    /**
+     * 📥 GET /api/blob-local/{bucket}/{ruta...}?expira=&firma=
+     * Descarga el objeto con FileChannel.transferTo
+     */
+    @GetMapping("/{bucket}/**")
+    public ResponseEntity<StreamingResponseBody> descargar(@PathVariable String bucket,
+                                                           @RequestParam long expira,
+                                                           @RequestParam String firma,
+                                                           HttpServletRequest request) {
+        LocalBlobStore almacen = almacenes.get(bucket);
+        if (almacen == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String prefijo = request.getContextPath() + "/api/blob-local/" + bucket + "/";
+        String ruta = Arrays.stream(request.getRequestURI().substring(prefijo.length()).split("/"))
+                .map(segmento -> URLDecoder.decode(segmento, StandardCharsets.UTF_8))
+                .collect(Collectors.joining("/"));
+
+        if (!almacen.verificarFirma(ruta, expira, firma)) {
+            logger.warn("🚫 [BLOB-LOCAL] Firma inválida o expirada: {}/{}", bucket, ruta);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        MetadatosBlob blob = almacen.obtener(ruta);
+        if (blob == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.setContentType(blob.contentType() != null
+                ? MediaType.parseMediaType(blob.contentType())
+                : MediaType.APPLICATION_OCTET_STREAM);
+        cabeceras.setContentLength(blob.tamanio());
+        cabeceras.setCacheControl(CacheControl.noCache().cachePrivate());
+
+        long fin = blob.tamanio() - 1;
+        StreamingResponseBody cuerpo = salida -> almacen.transferirRango(ruta, blob.generacion(), 0, fin, salida);
+        return ResponseEntity.ok().headers(cabeceras).body(cuerpo);
+    }
+}
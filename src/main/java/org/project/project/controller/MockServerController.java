@@ -0,0 +1,183 @@
+package org.project.project.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.project.project.exception.ResourceNotFoundException;
+import org.project.project.model.dto.UsuarioCacheado;
+import org.project.project.service.MockRuntimeService;
+import org.project.project.service.UsuarioCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mock servers embebidos
+ * - /mock/{mockServerId}/** responde desde memoria según el contrato de la versión del mock
+ * - /api/mocks/{mockServerId}/estadisticas, /configuracion y /recompilar para administrarlos
+ *   (dueños del mock o de su API; SA ve estadísticas y configuración)
+ * Un mock de una API no publicada responde 404 a quien no es dueño ni SA (no se revela que existe)
+ * Un contrato que no se puede compilar como mock responde 422 con el motivo
+ * La latencia configurada no bloquea hilos de Tomcat: la respuesta se completa con un CompletableFuture retrasado
+ */
+@RestController
+public class MockServerController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockServerController.class);
+
+    @Autowired
+    private MockRuntimeService mockRuntimeService;
+
+    @Autowired
+    private UsuarioCacheService usuarioCacheService;
+
+    /**
+     * 🧪 /mock/{mockServerId}/** (cualquier método)
+     */
+    @RequestMapping("/mock/{mockServerId}/**")
+    public CompletableFuture<ResponseEntity<byte[]>> servirMock(@PathVariable Long mockServerId,
+                                                                HttpServletRequest request,
+                                                                Principal principal) {
+        UsuarioCacheado usuario = usuarioActual(principal);
+        if (usuario == null) {
+            return CompletableFuture.completedFuture(noEncontrado());
+        }
+
+        String prefijo = request.getContextPath() + "/mock/" + mockServerId;
+        String ruta = request.getRequestURI().substring(Math.min(prefijo.length(), request.getRequestURI().length()));
+
+        Optional<MockRuntimeService.RespuestaServida> respuesta;
+        try {
+            if (!mockRuntimeService.puedeUsar(mockServerId, usuario)) {
+                return CompletableFuture.completedFuture(noEncontrado());
+            }
+            respuesta = mockRuntimeService.responder(mockServerId, request.getMethod(), ruta);
+        } catch (Exception e) {
+            logger.error("❌ Error en el mock server {}: {}", mockServerId, e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(("{\"error\":\"Error interno del mock server\"}").getBytes(StandardCharsets.UTF_8)));
+        }
+
+        if (respuesta.isEmpty()) {
+            return CompletableFuture.completedFuture(noEncontrado());
+        }
+
+        MockRuntimeService.RespuestaServida servida = respuesta.get();
+        if (servida.demoraMs() <= 0) {
+            return CompletableFuture.completedFuture(aResponseEntity(servida));
+        }
+        return CompletableFuture.supplyAsync(() -> aResponseEntity(servida),
+                CompletableFuture.delayedExecutor(servida.demoraMs(), TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 📊 GET /api/mocks/{mockServerId}/estadisticas
+     */
+    @GetMapping("/api/mocks/{mockServerId}/estadisticas")
+    public ResponseEntity<?> estadisticas(@PathVariable Long mockServerId, Principal principal) {
+        UsuarioCacheado usuario = usuarioActual(principal);
+        if (usuario == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+        }
+        if (!usuario.tieneRol("SA") && !mockRuntimeService.esDueno(mockServerId, usuario.usuarioId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Acceso denegado"));
+        }
+        try {
+            return ResponseEntity.ok(mockRuntimeService.estadisticas(mockServerId));
+        } catch (Exception e) {
+            logger.error("❌ Error al obtener estadísticas del mock server {}: {}", mockServerId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * ♻️ POST /api/mocks/{mockServerId}/recompilar
+     * Aplica cambios del contrato o de la configuración sin esperar a mock.runtime.recompilar-min
+     */
+    @PostMapping("/api/mocks/{mockServerId}/recompilar")
+    public ResponseEntity<?> recompilar(@PathVariable Long mockServerId, Principal principal) {
+        UsuarioCacheado usuario = usuarioActual(principal);
+        if (usuario == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+        }
+        if (!mockRuntimeService.esDueno(mockServerId, usuario.usuarioId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(
+                    Map.of("error", "Solo el creador del mock o de la API puede recompilarlo"));
+        }
+        mockRuntimeService.invalidar(mockServerId);
+        return ResponseEntity.ok(Map.of("success", true, "message", "El mock server se recompilará en la próxima petición"));
+    }
+
+    /**
+     * ⚙️ GET /api/mocks/{mockServerId}/configuracion
+     */
+    @GetMapping("/api/mocks/{mockServerId}/configuracion")
+    public ResponseEntity<?> obtenerConfiguracion(@PathVariable Long mockServerId, Principal principal) {
+        UsuarioCacheado usuario = usuarioActual(principal);
+        if (usuario == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+        }
+        if (!usuario.tieneRol("SA") && !mockRuntimeService.esDueno(mockServerId, usuario.usuarioId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Acceso denegado"));
+        }
+        try {
+            Map<String, Object> configuracion = mockRuntimeService.obtenerConfiguracion(mockServerId);
+            return ResponseEntity.ok(configuracion != null ? configuracion : Map.of());
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * ⚙️ PUT /api/mocks/{mockServerId}/configuracion
+     * Latencia, jitter, inyección de errores, cabeceras globales, endpoints y respuesta de respaldo
+     * (forma documentada en fase_0.11_mock_server_runtime.sql); se aplica recompilando el mock
+     */
+    @PutMapping("/api/mocks/{mockServerId}/configuracion")
+    public ResponseEntity<?> actualizarConfiguracion(@PathVariable Long mockServerId,
+                                                     @RequestBody(required = false) Map<String, Object> configuracion,
+                                                     Principal principal) {
+        UsuarioCacheado usuario = usuarioActual(principal);
+        if (usuario == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+        }
+        if (!mockRuntimeService.esDueno(mockServerId, usuario.usuarioId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(
+                    Map.of("error", "Solo el creador del mock o de la API puede configurarlo"));
+        }
+        try {
+            mockRuntimeService.actualizarConfiguracion(mockServerId, configuracion);
+            return ResponseEntity.ok(Map.of("success", true, "message", "Configuración guardada; el mock se recompilará"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private UsuarioCacheado usuarioActual(Principal principal) {
+        return principal != null ? usuarioCacheService.obtenerPorUsername(principal.getName()) : null;
+    }
+
+    private ResponseEntity<byte[]> noEncontrado() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(("{\"error\":\"Mock server no encontrado o inactivo\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ResponseEntity<byte[]> aResponseEntity(MockRuntimeService.RespuestaServida servida) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(servida.status());
+        servida.cabeceras().forEach(builder::header);
+        if (servida.contentType() != null) {
+            builder.header("Content-Type", servida.contentType());
+        }
+        return builder.body(servida.cuerpo());
+    }
+}
@@ -1,20 +1,29 @@
 package org.project.project.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.project.project.model.dto.NodoCacheado;
 import org.project.project.model.dto.NodoDTO;
+import org.project.project.model.dto.response.JobDTO;
+import org.project.project.model.entity.CargaArchivo;
 import org.project.project.model.entity.ClipboardOperation;
+import org.project.project.model.entity.FileOperationJob;
 import org.project.project.model.entity.Nodo;
 import org.project.project.model.entity.Usuario;
+import org.project.project.service.ArchivoDescargaService;
+import org.project.project.service.CargaArchivoService;
 import org.project.project.service.ClipboardService;
+import org.project.project.service.FileOperationJobService;
 import org.project.project.service.FileStorageService;
 import org.project.project.service.NodoService;
 import org.project.project.service.UserService;
+import org.project.project.service.VistaPreviaArchivoService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.security.Principal;
 import java.util.HashMap;
@@ -35,10 +44,14 @@ public class ProjectFilesRestController {
     private static final Logger logger = LoggerFactory.getLogger(ProjectFilesRestController.class);
     
     private final NodoService nodoService;
+    private final ArchivoDescargaService archivoDescargaService;
+    private final VistaPreviaArchivoService vistaPreviaArchivoService;
+    private final CargaArchivoService cargaArchivoService;
     private final FileStorageService fileStorageService;
     private final ClipboardService clipboardService;
     private final UserService userService;
     private final org.project.project.service.FolderCompressionService folderCompressionService;
+    private final FileOperationJobService fileOperationJobService;
 
     /**
      * 📂 GET /api/projects/{projectId}/files
@@ -258,6 +271,156 @@ public class ProjectFilesRestController {
         }
     }
 
+    // ==================== 📤 SUBIDAS POR PARTES (RESUMABLES) ====================
+
+    /**
+     * POST /api/projects/{projectId}/files/uploads
+     * Inicia una subida por partes: {"nombre": "...", "tamanio": 123, "mimeType": "...", "parentId": 1}
+     * Responde uploadId, tamanioParte y totalPartes
+     */
+    @PostMapping("/{projectId}/files/uploads")
+    public ResponseEntity<?> iniciarCarga(@PathVariable Long projectId,
+                                          @RequestBody Map<String, Object> request,
+                                          Principal principal) {
+
+        logger.info("🔌 [REST-API] POST /api/projects/{}/files/uploads", projectId);
+
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+            }
+            Usuario currentUser = userService.buscarPorUsername(principal.getName());
+            if (!(request.get("tamanio") instanceof Number)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "El tamaño del archivo es obligatorio"));
+            }
+
+            CargaArchivo carga = cargaArchivoService.iniciar(
+                currentUser.getUsuarioId(),
+                Nodo.ContainerType.PROYECTO,
+                projectId,
+                request.get("parentId") != null ? ((Number) request.get("parentId")).longValue() : null,
+                (String) request.get("nombre"),
+                (String) request.get("mimeType"),
+                ((Number) request.get("tamanio")).longValue()
+            );
+            return ResponseEntity.status(HttpStatus.CREATED).body(cargaArchivoService.aMapa(carga));
+
+        } catch (Exception e) {
+            return respuestaErrorCarga(e);
+        }
+    }
+
+    /**
+     * PUT /api/projects/{projectId}/files/uploads/{uploadId}/chunks/{n}
+     * Recibe la parte N (0-indexed) como cuerpo binario (application/octet-stream)
+     */
+    @PutMapping("/{projectId}/files/uploads/{uploadId}/chunks/{n}")
+    public ResponseEntity<?> recibirParteCarga(@PathVariable Long projectId,
+                                               @PathVariable String uploadId,
+                                               @PathVariable int n,
+                                               jakarta.servlet.http.HttpServletRequest request,
+                                               Principal principal) {
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+            }
+            Usuario currentUser = userService.buscarPorUsername(principal.getName());
+
+            CargaArchivo carga = cargaArchivoService.recibirParte(
+                uploadId, currentUser.getUsuarioId(), Nodo.ContainerType.PROYECTO, projectId, n, request.getInputStream(), request.getContentLengthLong());
+            return ResponseEntity.ok(cargaArchivoService.aMapa(carga));
+
+        } catch (Exception e) {
+            return respuestaErrorCarga(e);
+        }
+    }
+
+    /**
+     * GET /api/projects/{projectId}/files/uploads/{uploadId}
+     * Estado de la subida (siguienteParte indica desde dónde retomar)
+     */
+    @GetMapping("/{projectId}/files/uploads/{uploadId}")
+    public ResponseEntity<?> estadoCarga(@PathVariable Long projectId,
+                                         @PathVariable String uploadId,
+                                         Principal principal) {
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+            }
+            Usuario currentUser = userService.buscarPorUsername(principal.getName());
+            return ResponseEntity.ok(cargaArchivoService.obtenerEstado(uploadId, currentUser.getUsuarioId()));
+
+        } catch (Exception e) {
+            return respuestaErrorCarga(e);
+        }
+    }
+
+    /**
+     * POST /api/projects/{projectId}/files/uploads/{uploadId}/complete
+     * Crea el nodo del archivo una vez recibidas todas las partes
+     */
+    @PostMapping("/{projectId}/files/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completarCarga(@PathVariable Long projectId,
+                                            @PathVariable String uploadId,
+                                            Principal principal) {
+
+        logger.info("🔌 [REST-API] POST /api/projects/{}/files/uploads/{}/complete", projectId, uploadId);
+
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+            }
+            Usuario currentUser = userService.buscarPorUsername(principal.getName());
+
+            Nodo nodo = cargaArchivoService.completar(
+                uploadId, currentUser.getUsuarioId(), Nodo.ContainerType.PROYECTO, projectId);
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "nodoId", nodo.getNodoId(),
+                "nombre", nodo.getNombre(),
+                "tamanio", nodo.getSize() != null ? nodo.getSize() : 0L
+            ));
+
+        } catch (Exception e) {
+            return respuestaErrorCarga(e);
+        }
+    }
+
+    /**
+     * DELETE /api/projects/{projectId}/files/uploads/{uploadId}
+     * Cancela una subida en curso
+     */
+    @DeleteMapping("/{projectId}/files/uploads/{uploadId}")
+    public ResponseEntity<?> cancelarCarga(@PathVariable Long projectId,
+                                           @PathVariable String uploadId,
+                                           Principal principal) {
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+            }
+            Usuario currentUser = userService.buscarPorUsername(principal.getName());
+            cargaArchivoService.cancelar(uploadId, currentUser.getUsuarioId());
+            return ResponseEntity.ok(Map.of("success", true));
+
+        } catch (Exception e) {
+            return respuestaErrorCarga(e);
+        }
+    }
+
+    private ResponseEntity<?> respuestaErrorCarga(Exception e) {
+        HttpStatus estado = HttpStatus.INTERNAL_SERVER_ERROR;
+        if (e instanceof IllegalArgumentException) {
+            estado = HttpStatus.BAD_REQUEST;
+        } else if (e instanceof IllegalStateException) {
+            estado = HttpStatus.CONFLICT;
+        } else if (e instanceof SecurityException) {
+            estado = HttpStatus.FORBIDDEN;
+        } else {
+            logger.error("💥 Error en subida por partes: {}", e.getMessage(), e);
+        }
+        return ResponseEntity.status(estado).body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
     /**
      * 🗑️ DELETE /api/files/{nodoId}
      * Eliminar archivo o carpeta
@@ -473,33 +636,29 @@ public class ProjectFilesRestController {
      * Descargar archivo
      */
     @GetMapping("/{projectId}/files/{nodoId}/download")
-    public ResponseEntity<org.springframework.core.io.Resource> descargarArchivo(
+    public ResponseEntity<?> descargarArchivo(
             @PathVariable Long projectId,
             @PathVariable Long nodoId,
-            @RequestParam(required = false, defaultValue = "false") Boolean inline) {
+            @RequestParam(required = false, defaultValue = "false") Boolean inline,
+            @RequestHeader org.springframework.http.HttpHeaders requestHeaders,
+            org.springframework.http.HttpMethod method) {
         try {
             logger.info("================================================================================");
             logger.info("📥 [REST-API] GET /api/projects/{}/files/{}/download (inline={})", projectId, nodoId, inline);
             
-            org.springframework.core.io.Resource resource = nodoService.descargarArchivo(nodoId);
-            
-            // Obtener nombre del archivo
             Nodo nodo = nodoService.obtenerPorId(nodoId)
                     .orElseThrow(() -> new IllegalArgumentException("Archivo no encontrado"));
             
+            if (nodo.getTipo() == Nodo.TipoNodo.CARPETA) {
+                return ResponseEntity.badRequest().build();
+            }
+            
             logger.info("   ✅ Descargando: '{}'", nodo.getNombre());
             logger.info("================================================================================");
             
-            // Usar 'inline' para preview (PDF/imágenes en iframe) o 'attachment' para descarga directa
-            String contentDisposition = inline 
-                ? "inline; filename=\"" + nodo.getNombre() + "\""
-                : "attachment; filename=\"" + nodo.getNombre() + "\"";
-            
-            return ResponseEntity.ok()
-                    .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
-                    .header(org.springframework.http.HttpHeaders.CONTENT_TYPE, 
-                            nodo.getMimeType() != null ? nodo.getMimeType() : "application/octet-stream")
-                    .body(resource);
+            // 'inline' para preview (PDF/imágenes en iframe) o 'attachment' para descarga directa;
+            // soporta Range (seek en videos), ETag e If-None-Match (304)
+            return archivoDescargaService.servir(nodo, inline, requestHeaders, method);
             
         } catch (Exception e) {
             logger.error("💥 [REST-API ERROR] Error al descargar archivo {} del proyecto {}", nodoId, projectId, e);
@@ -585,6 +744,18 @@ public class ProjectFilesRestController {
                 ));
             }
             
+            // Archivos grandes: se leen por partes con /preview en lugar de cargarlos completos en memoria
+            if (vistaPreviaArchivoService.excedeLimiteContenido(nodo)) {
+                logger.info("   📏 Archivo demasiado grande para /content: '{}'", nodo.getNombre());
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                    "error", "Archivo demasiado grande",
+                    "message", "El archivo supera el tamaño máximo para mostrarse completo. Usa la vista previa paginada.",
+                    "preview", "/api/projects/" + projectId + "/files/" + nodoId + "/preview",
+                    "nombre", nodo.getNombre(),
+                    "size", nodo.getSize() != null ? nodo.getSize() : 0L
+                ));
+            }
+
             // Descargar contenido desde GCS
             org.springframework.core.io.Resource resource = nodoService.descargarArchivo(nodoId);
             
@@ -622,6 +793,53 @@ public class ProjectFilesRestController {
         }
     }
 
+    /**
+     * 👁️ GET /api/projects/{projectId}/files/{nodoId}/preview
+     * Vista previa paginada de un archivo de texto (solo lee de GCS el tramo pedido)
+     *
+     * @param modo "lineas" (default) o "bytes"
+     * @param offset Primera línea (modo lineas) o primer byte (modo bytes), 0-indexed
+     * @param limit Cantidad de líneas o bytes (opcional, con máximo configurable)
+     *
+     * Response (modo lineas):
+     * {
+     *   "success": true, "nombre": "...", "charset": "UTF-8", "modo": "lineas", "offset": 0,
+     *   "lineas": ["..."], "cantidad": 200, "truncadas": 0, "fin": false, "siguienteOffset": 200,
+     *   "totalLineas": null
+     * }
+     */
+    @GetMapping("/{projectId}/files/{nodoId}/preview")
+    public ResponseEntity<?> obtenerVistaPreviaArchivo(@PathVariable Long projectId,
+                                            @PathVariable Long nodoId,
+                                            @RequestParam(required = false) String modo,
+                                            @RequestParam(defaultValue = "0") long offset,
+                                            @RequestParam(required = false) Integer limit) {
+
+        logger.info("📄 [REST-API] GET /api/projects/{}/files/{}/preview", projectId, nodoId);
+
+        try {
+            Nodo nodo = nodoService.obtenerPorId(nodoId)
+                    .orElseThrow(() -> new IllegalArgumentException("Archivo no encontrado"));
+
+            if (nodo.getTipo() == Nodo.TipoNodo.CARPETA) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "No se puede obtener contenido de una carpeta"
+                ));
+            }
+
+            return vistaPreviaArchivoService.vistaPrevia(nodo, modo, offset, limit);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("💥 [REST-API ERROR] Error en vista previa del archivo {}: {}", nodoId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "error", "Error del servidor",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
     /**
      * Convertir entidad Nodo a Map simple para respuesta JSON
      */
@@ -743,6 +961,17 @@ public class ProjectFilesRestController {
 
             Usuario usuario = userService.buscarPorUsername(principal.getName());
 
+            // Las copias se procesan como job (progreso y cancelación en /api/file-jobs/{jobId})
+            Optional<JobDTO> jobCopia = clipboardService.encolarCopia(parentId, usuario);
+            if (jobCopia.isPresent()) {
+                logger.info("   📋 Copia encolada como job {}", jobCopia.get().getId());
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                        "success", true,
+                        "message", "Copia en progreso",
+                        "job", jobCopia.get()
+                ));
+            }
+
             List<Nodo> nodosPegados = clipboardService.pegarNodos(parentId, usuario);
             
             logger.info("   ✅ {} nodos pegados", nodosPegados.size());
@@ -847,7 +1076,7 @@ public class ProjectFilesRestController {
      * Descargar carpeta como ZIP
      */
     @GetMapping("/{projectId}/folders/{folderId}/download")
-    public ResponseEntity<byte[]> descargarCarpeta(
+    public ResponseEntity<StreamingResponseBody> descargarCarpeta(
             @PathVariable Long projectId,
             @PathVariable Long folderId) {
         try {
@@ -861,18 +1090,22 @@ public class ProjectFilesRestController {
                 throw new IllegalArgumentException("El nodo especificado no es una carpeta");
             }
             
-            // Comprimir carpeta
-            java.io.ByteArrayOutputStream zipStream = folderCompressionService.comprimirCarpeta(folderId);
-            byte[] zipBytes = zipStream.toByteArray();
-            
-            logger.info("✅ [FOLDER-DOWNLOAD] Carpeta comprimida exitosamente. Tamaño: {} bytes", zipBytes.length);
+            // Comprimir carpeta en streaming (el ZIP se escribe directo en la respuesta)
+            StreamingResponseBody cuerpo = salida -> {
+                try {
+                    folderCompressionService.escribirZipCarpeta(folderId, salida);
+                    logger.info("✅ [FOLDER-DOWNLOAD] Carpeta {} enviada como ZIP", folderId);
+                } catch (java.io.IOException e) {
+                    logger.warn("⚠️ [FOLDER-DOWNLOAD] Descarga de carpeta {} interrumpida: {}", folderId, e.getMessage());
+                    throw e;
+                }
+            };
             
             return ResponseEntity.ok()
                     .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, 
                             "attachment; filename=\"" + carpeta.getNombre() + ".zip\"")
                     .header(org.springframework.http.HttpHeaders.CONTENT_TYPE, "application/zip")
-                    .header(org.springframework.http.HttpHeaders.CONTENT_LENGTH, String.valueOf(zipBytes.length))
-                    .body(zipBytes);
+                    .body(cuerpo);
                     
         } catch (Exception e) {
             logger.error("💥 [FOLDER-DOWNLOAD] Error al descargar carpeta {}: {}", folderId, e.getMessage(), e);
@@ -880,9 +1113,62 @@ public class ProjectFilesRestController {
         }
     }
 
+    /**
+     * ⚙️ POST /api/projects/{projectId}/jobs
+     * Encola una operación masiva en segundo plano (COMPRESS, BULK_DOWNLOAD, MOVE, DELETE_BULK)
+     * Body: { "operation": "MOVE", "nodoIds": [1, 2], "targetParentId": 10 }
+     * El progreso se consulta en /api/file-jobs/{jobId}
+     */
+    @PostMapping("/{projectId}/jobs")
+    public ResponseEntity<?> crearJob(
+            @PathVariable Long projectId,
+            @RequestBody Map<String, Object> request,
+            Principal principal) {
+        try {
+            Usuario usuario = userService.buscarPorUsername(principal.getName());
+
+            FileOperationJob.OperationType tipo = FileOperationJob.OperationType.valueOf(
+                    String.valueOf(request.get("operation")));
+            @SuppressWarnings("unchecked")
+            List<Long> nodoIds = ((List<Number>) request.getOrDefault("nodoIds", List.of())).stream()
+                    .map(Number::longValue)
+                    .collect(Collectors.toList());
+            Long targetParentId = request.get("targetParentId") != null
+                    ? ((Number) request.get("targetParentId")).longValue() : null;
+
+            logger.info("⚙️ [JOB] Usuario: {}, Proyecto: {}, Operación: {}, Nodos: {}",
+                       usuario.getUsername(), projectId, tipo, nodoIds.size());
+
+            // Todos los nodos (y la carpeta destino) deben ser del proyecto
+            List<Long> nodosAValidar = new java.util.ArrayList<>(nodoIds);
+            if (targetParentId != null) {
+                nodosAValidar.add(targetParentId);
+            }
+            if (nodoIds.isEmpty() || !nodoService.todosPertenecenAContenedor(
+                    nodosAValidar, Nodo.ContainerType.PROYECTO, projectId)) {
+                return ResponseEntity.badRequest().body(
+                    Map.of("error", "Los nodos indicados no pertenecen al proyecto")
+                );
+            }
+
+            FileOperationJob job = fileOperationJobService.crearJob(
+                    tipo, nodoIds, targetParentId, Nodo.ContainerType.PROYECTO, projectId, usuario);
+
+            logger.info("   ✅ Job {} encolado", job.getJobId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(fileOperationJobService.convertirADTO(job));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("❌ Error al crear job: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * 📦 POST /api/projects/{projectId}/upload-zip
-     * Subir y descomprimir archivo ZIP
+     * Subir un archivo ZIP e importarlo con un job (202 + JobDTO)
      */
     @PostMapping("/{projectId}/upload-zip")
     public ResponseEntity<?> subirYDescomprimirZip(
@@ -903,22 +1189,17 @@ public class ProjectFilesRestController {
             // Obtener usuario
             Usuario usuario = userService.buscarPorUsername(principal.getName());
             
-            // Descomprimir y crear nodos
-            List<Nodo> nodosCreados = folderCompressionService.descomprimirZip(
-                    file.getInputStream(),
+            // Importar en segundo plano (job BULK_UPLOAD): el progreso se consulta en /api/file-jobs/{jobId}
+            FileOperationJob job = fileOperationJobService.crearJobImportacionZip(
+                    file,
                     Nodo.ContainerType.PROYECTO,
                     projectId,
                     parentId,
-                    usuario.getUsuarioId()
+                    usuario
             );
             
-            logger.info("✅ [ZIP-UPLOAD] ZIP descomprimido exitosamente. Nodos creados: {}", nodosCreados.size());
-            
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Archivo ZIP descomprimido exitosamente",
-                    "nodesCreated", nodosCreados.size()
-            ));
+            logger.info("✅ [ZIP-UPLOAD] Importación encolada en job {}", job.getJobId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(fileOperationJobService.convertirADTO(job));
             
         } catch (Exception e) {
             logger.error("💥 [ZIP-UPLOAD] Error al subir ZIP: {}", e.getMessage(), e);
@@ -970,13 +1251,13 @@ public class ProjectFilesRestController {
                     
                     if (!carpetasCreadas.containsKey(rutaCarpeta)) {
                         // Verificar si la carpeta ya existe
-                        List<Nodo> hijos = nodoService.obtenerHijos(parentActual, Nodo.ContainerType.PROYECTO, projectId);
-                        Optional<Nodo> carpetaExistente = hijos.stream()
-                                .filter(n -> n.getTipo() == Nodo.TipoNodo.CARPETA && n.getNombre().equals(partes[jFinal]))
+                        List<NodoCacheado> hijos = nodoService.obtenerHijosCacheados(parentActual, Nodo.ContainerType.PROYECTO, projectId);
+                        Optional<NodoCacheado> carpetaExistente = hijos.stream()
+                                .filter(n -> n.esCarpeta() && n.nombre().equals(partes[jFinal]))
                                 .findFirst();
                         
                         if (carpetaExistente.isPresent()) {
-                            carpetasCreadas.put(rutaCarpeta, carpetaExistente.get().getNodoId());
+                            carpetasCreadas.put(rutaCarpeta, carpetaExistente.get().nodoId());
                         } else {
                             Nodo nuevaCarpeta = nodoService.crearCarpeta(
                                     partes[jFinal],
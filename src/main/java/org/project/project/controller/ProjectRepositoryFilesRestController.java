@@ -1,15 +1,18 @@
 package org.project.project.controller;
 
 import org.project.project.model.dto.NodoDTO;
+import org.project.project.model.dto.response.JobDTO;
 import org.project.project.model.entity.ClipboardOperation;
 import org.project.project.model.entity.Nodo;
 import org.project.project.model.entity.Repositorio;
 import org.project.project.model.entity.Usuario;
 import org.project.project.repository.RepositorioRepository;
+import org.project.project.service.ArchivoDescargaService;
 import org.project.project.service.ClipboardService;
 import org.project.project.service.NodoService;
 import org.project.project.service.RepositoryService;
 import org.project.project.service.UserService;
+import org.project.project.service.VistaPreviaArchivoService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -47,6 +50,12 @@ public class ProjectRepositoryFilesRestController {
     @Autowired
     private NodoService nodoService;
 
+    @Autowired
+    private ArchivoDescargaService archivoDescargaService;
+
+    @Autowired
+    private VistaPreviaArchivoService vistaPreviaArchivoService;
+
     @Autowired
     private ClipboardService clipboardService;
 
@@ -455,6 +464,8 @@ public class ProjectRepositoryFilesRestController {
                                          @PathVariable Long repoId,
                                          @PathVariable Long nodoId,
                                          @RequestParam(required = false, defaultValue = "false") Boolean inline,
+                                         @RequestHeader org.springframework.http.HttpHeaders requestHeaders,
+                                         org.springframework.http.HttpMethod method,
                                          Principal principal) {
         
         logger.info("🔌 [REST-API] GET /api/projects/{}/repositories/{}/files/{}/download (inline={})", 
@@ -493,27 +504,8 @@ public class ProjectRepositoryFilesRestController {
 
             logger.info("   📥 Descargando archivo: {} | Ruta GCS: {}", nodo.getNombre(), nodo.getGcsPath());
 
-            // Descargar el archivo desde GCS
-            org.springframework.core.io.Resource resource = nodoService.descargarArchivo(nodoId);
-
-            // Preparar headers para descarga o preview
-            org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-            String contentDisposition = inline 
-                ? "inline; filename=\"" + nodo.getNombre() + "\""
-                : "attachment; filename=\"" + nodo.getNombre() + "\"";
-            headers.add(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
-            
-            if (nodo.getMimeType() != null) {
-                headers.setContentType(org.springframework.http.MediaType.parseMediaType(nodo.getMimeType()));
-            } else {
-                headers.setContentType(org.springframework.http.MediaType.APPLICATION_OCTET_STREAM);
-            }
-
-            logger.info("   ✅ Descarga iniciada - Archivo: {}", nodo.getNombre());
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
+            // Stream desde GCS con soporte de Range / ETag / 304
+            return archivoDescargaService.servir(nodo, inline, requestHeaders, method);
 
         } catch (Exception e) {
             logger.error("💥 Error descargando archivo N-{}: {}", nodoId, e.getMessage(), e);
@@ -621,6 +613,18 @@ public class ProjectRepositoryFilesRestController {
                 ));
             }
             
+            // Archivos grandes: se leen por partes con /preview en lugar de cargarlos completos en memoria
+            if (vistaPreviaArchivoService.excedeLimiteContenido(nodo)) {
+                logger.info("   📏 Archivo demasiado grande para /content: '{}'", nodo.getNombre());
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                    "error", "Archivo demasiado grande",
+                    "message", "El archivo supera el tamaño máximo para mostrarse completo. Usa la vista previa paginada.",
+                    "preview", "/api/projects/" + projectId + "/repositories/" + repoId + "/files/" + nodoId + "/preview",
+                    "nombre", nodo.getNombre(),
+                    "size", nodo.getSize() != null ? nodo.getSize() : 0L
+                ));
+            }
+
             // Descargar contenido desde GCS
             org.springframework.core.io.Resource resource = nodoService.descargarArchivo(nodoId);
             
@@ -655,6 +659,75 @@ public class ProjectRepositoryFilesRestController {
         }
     }
 
+    /**
+     * GET /api/projects/{projectId}/repositories/{repoId}/files/{nodoId}/preview
+     * Vista previa paginada de un archivo de texto (solo lee de GCS el tramo pedido)
+     *
+     * @param modo "lineas" (default) o "bytes"
+     * @param offset Primera línea (modo lineas) o primer byte (modo bytes), 0-indexed
+     * @param limit Cantidad de líneas o bytes (opcional, con máximo configurable)
+     *
+     * Response (modo lineas):
+     * {
+     *   "success": true, "nombre": "...", "charset": "UTF-8", "modo": "lineas", "offset": 0,
+     *   "lineas": ["..."], "cantidad": 200, "truncadas": 0, "fin": false, "siguienteOffset": 200,
+     *   "totalLineas": null
+     * }
+     */
+    @GetMapping("/{projectId}/repositories/{repoId}/files/{nodoId}/preview")
+    public ResponseEntity<?> getFilePreview(@PathVariable Long projectId,
+                                            @PathVariable Long repoId,
+                                            @PathVariable Long nodoId,
+                                            @RequestParam(required = false) String modo,
+                                            @RequestParam(defaultValue = "0") long offset,
+                                            @RequestParam(required = false) Integer limit,
+                                            Principal principal) {
+
+        logger.info("🔌 [REST-API] GET /api/projects/{}/repositories/{}/files/{}/preview", projectId, repoId, nodoId);
+
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(
+                    Map.of("error", "No autenticado")
+                );
+            }
+
+            Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
+
+            // Verificar permisos en el repositorio
+            Map<String, Object> repoDetails = repositoryService.obtenerDetallesRepositorio(
+                currentUser.getUsuarioId(), repoId);
+            String userPermission = (String) repoDetails.get("privilegio_usuario_actual");
+
+            if ("SIN_ACCESO".equals(userPermission)) {
+                logger.warn("   ⛔ ACCESO DENEGADO");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(
+                    Map.of("error", "Acceso denegado")
+                );
+            }
+
+            Nodo nodo = nodoService.obtenerPorId(nodoId)
+                    .orElseThrow(() -> new IllegalArgumentException("Archivo no encontrado"));
+
+            if (nodo.getTipo() == Nodo.TipoNodo.CARPETA) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "No se puede obtener contenido de una carpeta"
+                ));
+            }
+
+            return vistaPreviaArchivoService.vistaPrevia(nodo, modo, offset, limit);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("💥 Error en vista previa del archivo N-{}: {}", nodoId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "error", "Error del servidor",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
     /**
      * GET /api/projects/{projectId}/repositories/{repoId}/files/{nodoId}/path
      * Obtiene la ruta completa (breadcrumb) de un nodo
@@ -849,6 +922,17 @@ public class ProjectRepositoryFilesRestController {
                 );
             }
 
+            // Las copias se procesan como job (progreso y cancelación en /api/file-jobs/{jobId})
+            Optional<JobDTO> jobCopia = clipboardService.encolarCopia(parentId, usuario);
+            if (jobCopia.isPresent()) {
+                logger.info("   📋 Copia encolada como job {}", jobCopia.get().getId());
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                        "success", true,
+                        "message", "Copia en progreso",
+                        "job", jobCopia.get()
+                ));
+            }
+
             List<Nodo> nodosPegados = clipboardService.pegarNodos(parentId, usuario);
             
             logger.info("   ✅ {} nodos pegados", nodosPegados.size());
@@ -8,19 +8,27 @@ import org.project.project.model.entity.Usuario;
 import org.project.project.service.GoogleCloudStorageService;
 import org.project.project.service.MetricsConversionService;
 import org.project.project.service.ReporteService;
-import org.project.project.service.ReportePdfExportService;
+import org.project.project.service.ReportePdfRenderService;
 import org.project.project.service.ReportExportService;
 import org.project.project.service.UserService;
+import org.project.project.service.UsuarioCacheService;
+import org.project.project.service.storage.MetadatosBlob;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * ReportController - Controlador para gestión de reportes
@@ -57,7 +65,14 @@ public class ReportController {
     private MetricsConversionService metricsConversionService;
 
     @Autowired
-    private ReportePdfExportService reportePdfExportService;
+    private ReportePdfRenderService reportePdfRenderService;
+
+    @Autowired
+    private UsuarioCacheService usuarioCacheService;
+
+    // Tiempo máximo que la descarga del PDF espera a que termine el render antes de responder 202
+    @Value("${reports.pdf.espera-ms:10000}")
+    private long pdfEsperaMs;
 
     // ========== UTILITY METHODS ==========
 
@@ -72,6 +87,19 @@ public class ReportController {
         return usuario;
     }
 
+    /**
+     * Visibilidad del reporte para el usuario autenticado (no el de la URL)
+     */
+    private boolean puedeVerReporte(Long reporteId, org.springframework.security.core.Authentication authentication) {
+        UsuarioCacheado usuario = authentication != null
+                ? usuarioCacheService.obtenerPorUsername(authentication.getName()) : null;
+        if (usuario == null) {
+            return false;
+        }
+        boolean revisor = usuario.tieneRol("PO") || usuario.tieneRol("SA");
+        return reporteService.puedeVerReporte(reporteId, usuario.usuarioId(), revisor);
+    }
+
     // ========== OVERVIEW (VISTA PRINCIPAL) ==========
 
     /**
@@ -1007,6 +1035,80 @@ public class ReportController {
         }
     }
 
+    /**
+     * GET /devportal/{role}/{username}/reports/metrics/download/detalle/{formato}
+     * Descarga el detalle (una fila por proyecto, repositorio y ticket) en Excel o CSV
+     *
+     * Las filas se leen por páginas keyset y se escriben directamente en la respuesta,
+     * así que la memoria no depende del tamaño de la exportación.
+     * alcance=plataforma exporta toda la plataforma (solo SA); por defecto, lo del usuario.
+     */
+    @GetMapping("/reports/metrics/download/detalle/{formato}")
+    public void downloadMetricsDetalle(
+            @PathVariable String username,
+            @PathVariable String formato,
+            @RequestParam(defaultValue = "usuario") String alcance,
+            org.springframework.security.core.Authentication authentication,
+            jakarta.servlet.http.HttpServletResponse response) throws java.io.IOException {
+        boolean excel = "excel".equalsIgnoreCase(formato);
+        if (!excel && !"csv".equalsIgnoreCase(formato)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Formato no soportado: " + formato);
+            return;
+        }
+
+        Usuario usuario;
+        try {
+            usuario = obtenerUsuario(username);
+        } catch (Exception e) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), e.getMessage());
+            return;
+        }
+
+        boolean plataforma = "plataforma".equalsIgnoreCase(alcance);
+        // El rol sale de la sesión autenticada, no del usuario de la URL
+        boolean esSA = authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(autoridad -> "ROLE_SA".equals(autoridad.getAuthority()));
+        if (plataforma && !esSA) {
+            response.sendError(HttpStatus.FORBIDDEN.value(), "Solo un SA puede exportar toda la plataforma");
+            return;
+        }
+        // El detalle de otro usuario solo lo puede descargar un SA
+        boolean esPropio = authentication != null && usuario.getUsername().equals(authentication.getName());
+        if (!esPropio && !esSA) {
+            response.sendError(HttpStatus.FORBIDDEN.value(), "No puede exportar el detalle de otro usuario");
+            return;
+        }
+
+        log.info("📥 Descargando detalle {} ({}) para usuario: {}", formato, plataforma ? "plataforma" : "usuario", username);
+
+        String fileName = String.format(
+            "dashboard-detalle-%s-%s.%s",
+            plataforma ? "plataforma" : username,
+            java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")),
+            excel ? "xlsx" : "csv"
+        );
+        response.setContentType(excel
+                ? "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"
+                : "text/csv; charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString());
+
+        Long usuarioId = plataforma ? null : usuario.getUsuarioId();
+        try {
+            long filas = excel
+                    ? reportExportService.exportarDetalleExcel(usuarioId, response.getOutputStream())
+                    : reportExportService.exportarDetalleCSV(usuarioId, response.getOutputStream());
+            log.info("✅ Detalle exportado - {} filas", filas);
+        } catch (Exception e) {
+            log.error("❌ Error exportando el detalle {}: {}", formato, e.getMessage(), e);
+            // Si ya se enviaron bytes (o el cliente se desconectó) no se puede cambiar el estado
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Error generando la exportación");
+            }
+        }
+    }
+
     // ========== DASHBOARD EXPORT ENDPOINTS (DEPRECATED) ====================
 
     /**
@@ -1127,17 +1229,18 @@ public class ReportController {
      * GET /devportal/{role}/{username}/reports/adjuntos/{adjuntoId}/download
      * Descargar archivo adjunto de un reporte
      * 
-     * Retorna el contenido binario del archivo con headers apropiados para descarga
+     * Retorna el contenido binario del archivo con headers apropiados para descarga.
+     * El contenido se copia en streaming desde el storage (o desde el BLOB heredado), sin cargarlo en memoria
      */
     @GetMapping("/reports/adjuntos/{adjuntoId:\\d+}/download")
-    public ResponseEntity<byte[]> downloadAdjunto(
+    public ResponseEntity<StreamingResponseBody> downloadAdjunto(
             @PathVariable String role,
             @PathVariable String username,
             @PathVariable Long adjuntoId) {
         try {
             log.info("📥 Descargando adjunto ID: {} por usuario: {}", adjuntoId, username);
             
-            // Obtener adjunto completo (con binario)
+            // Obtener metadatos del adjunto (el binario se lee al escribir la respuesta)
             ReporteAdjunto adjunto = reporteService.obtenerAdjuntoCompleto(adjuntoId);
             
             if (adjunto == null) {
@@ -1145,7 +1248,7 @@ public class ReportController {
                 return ResponseEntity.notFound().build();
             }
             
-            if (adjunto.getContenidoArchivo() == null || adjunto.getContenidoArchivo().length == 0) {
+            if (!reporteService.tieneContenido(adjunto)) {
                 log.warn("⚠️ Adjunto sin contenido binario: {}", adjuntoId);
                 return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
             }
@@ -1175,9 +1278,10 @@ public class ReportController {
                      adjunto.getTamanoBytes(), 
                      adjunto.getTipoMime());
             
+            StreamingResponseBody cuerpo = out -> reporteService.escribirContenidoAdjunto(adjunto, out);
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(adjunto.getContenidoArchivo());
+                    .body(cuerpo);
                     
         } catch (Exception e) {
             log.error("❌ Error descargando adjunto {}: {}", adjuntoId, e.getMessage(), e);
@@ -1243,19 +1347,25 @@ public class ReportController {
     /**
      * GET /devportal/{role}/{username}/reports/{id}/export/pdf
      * Exporta un reporte a PDF
+     *
+     * El PDF se renderiza en segundo plano y se guarda en storage por versión del reporte:
+     * si ya existe se transmite directamente; si no, se espera hasta reports.pdf.espera-ms
+     * y, si el render no terminó, se responde 202 con el estado para consultarlo después
      */
     @GetMapping("/reports/{id:\\d+}/export/pdf")
-    public ResponseEntity<byte[]> exportarReportePDF(
+    public ResponseEntity<?> exportarReportePDF(
             @PathVariable String role,
             @PathVariable String username,
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            org.springframework.security.core.Authentication authentication) {
         
         try {
             log.info("📄 Solicitud de exportación PDF para reporte ID={} por usuario={}", id, username);
+            if (!puedeVerReporte(id, authentication)) {
+                return ResponseEntity.notFound().build();
+            }
             
-            // Generar PDF
-            java.io.ByteArrayOutputStream pdfStream = reportePdfExportService.exportarReporteAPdf(id);
-            byte[] pdfBytes = pdfStream.toByteArray();
+            MetadatosBlob pdf = reportePdfRenderService.solicitar(id).get(pdfEsperaMs, TimeUnit.MILLISECONDS);
             
             // Configurar headers HTTP
             HttpHeaders headers = new HttpHeaders();
@@ -1265,14 +1375,30 @@ public class ReportController {
                     .filename("reporte-" + id + ".pdf")
                     .build()
             );
-            headers.setContentLength(pdfBytes.length);
+            if (pdf.tamanio() != null) {
+                headers.setContentLength(pdf.tamanio());
+            }
             
-            log.info("✅ PDF generado exitosamente para reporte ID={} ({} bytes)", id, pdfBytes.length);
+            log.info("✅ PDF listo para reporte ID={} ({} bytes)", id, pdf.tamanio());
             
+            StreamingResponseBody cuerpo = out -> reportePdfRenderService.copiarA(pdf, out);
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(pdfBytes);
+                    .body(cuerpo);
                     
+        } catch (TimeoutException e) {
+            log.info("⏳ PDF del reporte {} aún en proceso", id);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(reportePdfRenderService.estado(id));
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "10")
+                        .body(Map.of("error", "Demasiados PDFs en cola, inténtalo de nuevo en unos segundos"));
+            }
+            log.error("❌ Error exportando reporte {} a PDF: {}", id, e.getCause().getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+
         } catch (IllegalArgumentException e) {
             log.warn("⚠️ Reporte {} no encontrado", id);
             return ResponseEntity.notFound().build();
@@ -1282,6 +1408,48 @@ public class ReportController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    /**
+     * POST /devportal/{role}/{username}/reports/{id}/export/pdf
+     * Encola el render del PDF sin esperar (202 con el estado)
+     */
+    @PostMapping("/reports/{id:\\d+}/export/pdf")
+    @ResponseBody
+    public ResponseEntity<?> solicitarReportePDF(@PathVariable String role,
+                                                 @PathVariable String username,
+                                                 @PathVariable Long id,
+                                                 org.springframework.security.core.Authentication authentication) {
+        // Sin acceso se responde igual que si no existiera: no se encola ni se revela el estado
+        if (!puedeVerReporte(id, authentication)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            reportePdfRenderService.solicitar(id);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(reportePdfRenderService.estado(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * GET /devportal/{role}/{username}/reports/{id}/export/pdf/estado
+     * Estado del PDF de la versión actual: NO_SOLICITADO, EN_PROCESO, LISTO o ERROR
+     */
+    @GetMapping("/reports/{id:\\d+}/export/pdf/estado")
+    @ResponseBody
+    public ResponseEntity<?> estadoReportePDF(@PathVariable String role,
+                                              @PathVariable String username,
+                                              @PathVariable Long id,
+                                              org.springframework.security.core.Authentication authentication) {
+        if (!puedeVerReporte(id, authentication)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(reportePdfRenderService.estado(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 }
 
 
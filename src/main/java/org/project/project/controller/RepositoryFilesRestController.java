@@ -1,21 +1,29 @@
 package org.project.project.controller;
 
 import org.project.project.model.dto.NodoDTO;
+import org.project.project.model.dto.response.JobDTO;
+import org.project.project.model.entity.CargaArchivo;
 import org.project.project.model.entity.ClipboardOperation;
+import org.project.project.model.entity.FileOperationJob;
 import org.project.project.model.entity.Nodo;
 import org.project.project.model.entity.Repositorio;
 import org.project.project.model.entity.Usuario;
 import org.project.project.repository.RepositorioRepository;
+import org.project.project.service.ArchivoDescargaService;
+import org.project.project.service.CargaArchivoService;
 import org.project.project.service.ClipboardService;
+import org.project.project.service.FileOperationJobService;
 import org.project.project.service.NodoService;
 import org.project.project.service.RepositoryService;
 import org.project.project.service.UserService;
+import org.project.project.service.VistaPreviaArchivoService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.security.Principal;
 import java.util.HashMap;
@@ -47,12 +55,24 @@ public class RepositoryFilesRestController {
     @Autowired
     private NodoService nodoService;
 
+    @Autowired
+    private ArchivoDescargaService archivoDescargaService;
+
+    @Autowired
+    private VistaPreviaArchivoService vistaPreviaArchivoService;
+
+    @Autowired
+    private CargaArchivoService cargaArchivoService;
+
     @Autowired
     private ClipboardService clipboardService;
     
     @Autowired
     private org.project.project.service.FolderCompressionService folderCompressionService;
 
+    @Autowired
+    private FileOperationJobService fileOperationJobService;
+
     /**
      * GET /api/repositories/{repoId}/files
      * Obtiene la lista de archivos/carpetas raíz del repositorio
@@ -436,6 +456,170 @@ public class RepositoryFilesRestController {
         }
     }
 
+    // ==================== SUBIDAS POR PARTES (RESUMABLES) ====================
+
+    /**
+     * POST /api/repositories/{repoId}/files/uploads
+     * Inicia una subida por partes: {"nombre": "...", "tamanio": 123, "mimeType": "...", "parentId": 1}
+     * Responde uploadId, tamanioParte y totalPartes
+     */
+    @PostMapping("/{repoId}/files/uploads")
+    public ResponseEntity<?> iniciarCarga(@PathVariable Long repoId,
+                                          @RequestBody Map<String, Object> request,
+                                          Principal principal) {
+
+        logger.info("🔌 [REST-API] POST /api/repositories/{}/files/uploads", repoId);
+
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+            }
+            Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
+            if (!puedeEscribir(currentUser, repoId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(
+                    Map.of("error", "Acceso denegado", "message", "No tiene permisos para subir archivos a este repositorio")
+                );
+            }
+            if (!(request.get("tamanio") instanceof Number)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "El tamaño del archivo es obligatorio"));
+            }
+
+            CargaArchivo carga = cargaArchivoService.iniciar(
+                currentUser.getUsuarioId(),
+                Nodo.ContainerType.REPOSITORIO,
+                repoId,
+                request.get("parentId") != null ? ((Number) request.get("parentId")).longValue() : null,
+                (String) request.get("nombre"),
+                (String) request.get("mimeType"),
+                ((Number) request.get("tamanio")).longValue()
+            );
+            return ResponseEntity.status(HttpStatus.CREATED).body(cargaArchivoService.aMapa(carga));
+
+        } catch (Exception e) {
+            return respuestaErrorCarga(e);
+        }
+    }
+
+    /**
+     * PUT /api/repositories/{repoId}/files/uploads/{uploadId}/chunks/{n}
+     * Recibe la parte N (0-indexed) como cuerpo binario (application/octet-stream)
+     */
+    @PutMapping("/{repoId}/files/uploads/{uploadId}/chunks/{n}")
+    public ResponseEntity<?> recibirParteCarga(@PathVariable Long repoId,
+                                               @PathVariable String uploadId,
+                                               @PathVariable int n,
+                                               jakarta.servlet.http.HttpServletRequest request,
+                                               Principal principal) {
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+            }
+            Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
+
+            CargaArchivo carga = cargaArchivoService.recibirParte(
+                uploadId, currentUser.getUsuarioId(), Nodo.ContainerType.REPOSITORIO, repoId, n, request.getInputStream(), request.getContentLengthLong());
+            return ResponseEntity.ok(cargaArchivoService.aMapa(carga));
+
+        } catch (Exception e) {
+            return respuestaErrorCarga(e);
+        }
+    }
+
+    /**
+     * GET /api/repositories/{repoId}/files/uploads/{uploadId}
+     * Estado de la subida (siguienteParte indica desde dónde retomar)
+     */
+    @GetMapping("/{repoId}/files/uploads/{uploadId}")
+    public ResponseEntity<?> estadoCarga(@PathVariable Long repoId,
+                                         @PathVariable String uploadId,
+                                         Principal principal) {
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+            }
+            Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
+            return ResponseEntity.ok(cargaArchivoService.obtenerEstado(uploadId, currentUser.getUsuarioId()));
+
+        } catch (Exception e) {
+            return respuestaErrorCarga(e);
+        }
+    }
+
+    /**
+     * POST /api/repositories/{repoId}/files/uploads/{uploadId}/complete
+     * Crea el nodo del archivo una vez recibidas todas las partes
+     */
+    @PostMapping("/{repoId}/files/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completarCarga(@PathVariable Long repoId,
+                                            @PathVariable String uploadId,
+                                            Principal principal) {
+
+        logger.info("🔌 [REST-API] POST /api/repositories/{}/files/uploads/{}/complete", repoId, uploadId);
+
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+            }
+            Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
+            if (!puedeEscribir(currentUser, repoId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Acceso denegado"));
+            }
+
+            Nodo nodo = cargaArchivoService.completar(
+                uploadId, currentUser.getUsuarioId(), Nodo.ContainerType.REPOSITORIO, repoId);
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "nodoId", nodo.getNodoId(),
+                "nombre", nodo.getNombre(),
+                "tamanio", nodo.getSize() != null ? nodo.getSize() : 0L
+            ));
+
+        } catch (Exception e) {
+            return respuestaErrorCarga(e);
+        }
+    }
+
+    /**
+     * DELETE /api/repositories/{repoId}/files/uploads/{uploadId}
+     * Cancela una subida en curso
+     */
+    @DeleteMapping("/{repoId}/files/uploads/{uploadId}")
+    public ResponseEntity<?> cancelarCarga(@PathVariable Long repoId,
+                                           @PathVariable String uploadId,
+                                           Principal principal) {
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+            }
+            Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
+            cargaArchivoService.cancelar(uploadId, currentUser.getUsuarioId());
+            return ResponseEntity.ok(Map.of("success", true));
+
+        } catch (Exception e) {
+            return respuestaErrorCarga(e);
+        }
+    }
+
+    private boolean puedeEscribir(Usuario usuario, Long repoId) {
+        Map<String, Object> repoDetails = repositoryService.obtenerDetallesRepositorio(usuario.getUsuarioId(), repoId);
+        String userPermission = (String) repoDetails.get("privilegio_usuario_actual");
+        return !"SIN_ACCESO".equals(userPermission) && !"LECTOR".equals(userPermission);
+    }
+
+    private ResponseEntity<?> respuestaErrorCarga(Exception e) {
+        HttpStatus estado = HttpStatus.INTERNAL_SERVER_ERROR;
+        if (e instanceof IllegalArgumentException) {
+            estado = HttpStatus.BAD_REQUEST;
+        } else if (e instanceof IllegalStateException) {
+            estado = HttpStatus.CONFLICT;
+        } else if (e instanceof SecurityException) {
+            estado = HttpStatus.FORBIDDEN;
+        } else {
+            logger.error("💥 Error en subida por partes: {}", e.getMessage(), e);
+        }
+        return ResponseEntity.status(estado).body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
     /**
      * GET /api/repositories/{repoId}/files/{nodoId}/download
      * Descargar un archivo
@@ -444,6 +628,8 @@ public class RepositoryFilesRestController {
     public ResponseEntity<?> downloadFile(@PathVariable Long repoId,
                                          @PathVariable Long nodoId,
                                          @RequestParam(required = false, defaultValue = "false") Boolean inline,
+                                         @RequestHeader org.springframework.http.HttpHeaders requestHeaders,
+                                         org.springframework.http.HttpMethod method,
                                          Principal principal) {
         
         logger.info("🔌 [REST-API] GET /api/repositories/{}/files/{}/download (inline={})", repoId, nodoId, inline);
@@ -481,27 +667,8 @@ public class RepositoryFilesRestController {
 
             logger.info("   📥 Descargando archivo: {} | Ruta GCS: {}", nodo.getNombre(), nodo.getGcsPath());
 
-            // Descargar el archivo desde GCS
-            org.springframework.core.io.Resource resource = nodoService.descargarArchivo(nodoId);
-
-            // Preparar headers para descarga o preview
-            org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-            String contentDisposition = inline 
-                ? "inline; filename=\"" + nodo.getNombre() + "\""
-                : "attachment; filename=\"" + nodo.getNombre() + "\"";
-            headers.add(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
-            
-            if (nodo.getMimeType() != null) {
-                headers.setContentType(org.springframework.http.MediaType.parseMediaType(nodo.getMimeType()));
-            } else {
-                headers.setContentType(org.springframework.http.MediaType.APPLICATION_OCTET_STREAM);
-            }
-
-            logger.info("   ✅ Descarga iniciada - Archivo: {}", nodo.getNombre());
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
+            // Stream desde GCS con soporte de Range / ETag / 304
+            return archivoDescargaService.servir(nodo, inline, requestHeaders, method);
 
         } catch (Exception e) {
             logger.error("💥 Error descargando archivo N-{}: {}", nodoId, e.getMessage(), e);
@@ -608,6 +775,18 @@ public class RepositoryFilesRestController {
                 ));
             }
             
+            // Archivos grandes: se leen por partes con /preview en lugar de cargarlos completos en memoria
+            if (vistaPreviaArchivoService.excedeLimiteContenido(nodo)) {
+                logger.info("   📏 Archivo demasiado grande para /content: '{}'", nodo.getNombre());
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                    "error", "Archivo demasiado grande",
+                    "message", "El archivo supera el tamaño máximo para mostrarse completo. Usa la vista previa paginada.",
+                    "preview", "/api/repositories/" + repoId + "/files/" + nodoId + "/preview",
+                    "nombre", nodo.getNombre(),
+                    "size", nodo.getSize() != null ? nodo.getSize() : 0L
+                ));
+            }
+
             // Descargar contenido desde GCS
             org.springframework.core.io.Resource resource = nodoService.descargarArchivo(nodoId);
             
@@ -642,6 +821,74 @@ public class RepositoryFilesRestController {
         }
     }
 
+    /**
+     * GET /api/repositories/{repoId}/files/{nodoId}/preview?modo=lineas&offset=0&limit=200
+     * Vista previa paginada de un archivo de texto (solo lee de GCS el tramo pedido)
+     *
+     * @param modo "lineas" (default) o "bytes"
+     * @param offset Primera línea (modo lineas) o primer byte (modo bytes), 0-indexed
+     * @param limit Cantidad de líneas o bytes (opcional, con máximo configurable)
+     *
+     * Response (modo lineas):
+     * {
+     *   "success": true, "nombre": "...", "charset": "UTF-8", "modo": "lineas", "offset": 0,
+     *   "lineas": ["..."], "cantidad": 200, "truncadas": 0, "fin": false, "siguienteOffset": 200,
+     *   "totalLineas": null
+     * }
+     */
+    @GetMapping("/{repoId}/files/{nodoId}/preview")
+    public ResponseEntity<?> getFilePreview(@PathVariable Long repoId,
+                                            @PathVariable Long nodoId,
+                                            @RequestParam(required = false) String modo,
+                                            @RequestParam(defaultValue = "0") long offset,
+                                            @RequestParam(required = false) Integer limit,
+                                            Principal principal) {
+
+        logger.info("🔌 [REST-API] GET /api/repositories/{}/files/{}/preview", repoId, nodoId);
+
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(
+                    Map.of("error", "No autenticado")
+                );
+            }
+
+            Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
+
+            // Verificar permisos en el repositorio
+            Map<String, Object> repoDetails = repositoryService.obtenerDetallesRepositorio(
+                currentUser.getUsuarioId(), repoId);
+            String userPermission = (String) repoDetails.get("privilegio_usuario_actual");
+
+            if ("SIN_ACCESO".equals(userPermission)) {
+                logger.warn("   ⛔ ACCESO DENEGADO");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(
+                    Map.of("error", "Acceso denegado")
+                );
+            }
+
+            Nodo nodo = nodoService.obtenerPorId(nodoId)
+                    .orElseThrow(() -> new IllegalArgumentException("Archivo no encontrado"));
+
+            if (nodo.getTipo() == Nodo.TipoNodo.CARPETA) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "No se puede obtener contenido de una carpeta"
+                ));
+            }
+
+            return vistaPreviaArchivoService.vistaPrevia(nodo, modo, offset, limit);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("💥 Error en vista previa del archivo N-{}: {}", nodoId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "error", "Error del servidor",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
     /**
      * GET /api/repositories/{repoId}/files/{nodoId}/path
      * Obtiene la ruta completa (breadcrumb) de un nodo
@@ -832,6 +1079,17 @@ public class RepositoryFilesRestController {
                 );
             }
 
+            // Las copias se procesan como job (progreso y cancelación en /api/file-jobs/{jobId})
+            Optional<JobDTO> jobCopia = clipboardService.encolarCopia(parentId, usuario);
+            if (jobCopia.isPresent()) {
+                logger.info("   📋 Copia encolada como job {}", jobCopia.get().getId());
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                        "success", true,
+                        "message", "Copia en progreso",
+                        "job", jobCopia.get()
+                ));
+            }
+
             List<Nodo> nodosPegados = clipboardService.pegarNodos(parentId, usuario);
             
             logger.info("   ✅ {} nodos pegados", nodosPegados.size());
@@ -960,7 +1218,7 @@ public class RepositoryFilesRestController {
      * Descargar carpeta como ZIP
      */
     @GetMapping("/{repoId}/folders/{folderId}/download")
-    public ResponseEntity<byte[]> descargarCarpeta(
+    public ResponseEntity<StreamingResponseBody> descargarCarpeta(
             @PathVariable Long repoId,
             @PathVariable Long folderId,
             Principal principal) {
@@ -988,19 +1246,23 @@ public class RepositoryFilesRestController {
                 return ResponseEntity.badRequest().build();
             }
 
-            // Comprimir carpeta
-            java.io.ByteArrayOutputStream baos = folderCompressionService.comprimirCarpeta(folderId);
-            byte[] zipBytes = baos.toByteArray();
+            // Comprimir carpeta en streaming (el ZIP se escribe directo en la respuesta)
+            StreamingResponseBody cuerpo = salida -> {
+                try {
+                    folderCompressionService.escribirZipCarpeta(folderId, salida);
+                    logger.info("   ✅ Carpeta {} enviada como ZIP", folderId);
+                } catch (java.io.IOException e) {
+                    logger.warn("   ⚠️ Descarga de carpeta {} interrumpida: {}", folderId, e.getMessage());
+                    throw e;
+                }
+            };
 
-            // Preparar headers de respuesta
+            // Preparar headers de respuesta (sin Content-Length: el tamaño no se conoce de antemano)
             org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
             headers.setContentType(org.springframework.http.MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDispositionFormData("attachment", carpeta.getNombre() + ".zip");
-            headers.setContentLength(zipBytes.length);
-
-            logger.info("   ✅ Carpeta comprimida - Tamaño: {} bytes", zipBytes.length);
             
-            return new ResponseEntity<>(zipBytes, headers, HttpStatus.OK);
+            return new ResponseEntity<>(cuerpo, headers, HttpStatus.OK);
             
         } catch (Exception e) {
             logger.error("❌ Error al descargar carpeta: {}", e.getMessage(), e);
@@ -1008,9 +1270,76 @@ public class RepositoryFilesRestController {
         }
     }
     
+    /**
+     * ⚙️ POST /api/repositories/{repoId}/jobs
+     * Encola una operación masiva en segundo plano (COMPRESS, BULK_DOWNLOAD, MOVE, DELETE_BULK)
+     * Body: { "operation": "MOVE", "nodoIds": [1, 2], "targetParentId": 10 }
+     * El progreso se consulta en /api/file-jobs/{jobId}
+     */
+    @PostMapping("/{repoId}/jobs")
+    public ResponseEntity<?> crearJob(
+            @PathVariable Long repoId,
+            @RequestBody Map<String, Object> request,
+            Principal principal) {
+        try {
+            Usuario usuario = userService.buscarPorUsername(principal.getName());
+
+            FileOperationJob.OperationType tipo = FileOperationJob.OperationType.valueOf(
+                    String.valueOf(request.get("operation")));
+            @SuppressWarnings("unchecked")
+            List<Long> nodoIds = ((List<Number>) request.getOrDefault("nodoIds", List.of())).stream()
+                    .map(Number::longValue)
+                    .collect(Collectors.toList());
+            Long targetParentId = request.get("targetParentId") != null
+                    ? ((Number) request.get("targetParentId")).longValue() : null;
+
+            logger.info("⚙️ [JOB] Usuario: {}, Repositorio: {}, Operación: {}, Nodos: {}",
+                       usuario.getUsername(), repoId, tipo, nodoIds.size());
+
+            // Verificar permisos (lectura para descargas, escritura para mover/eliminar)
+            Map<String, Object> repoDetails = repositoryService.obtenerDetallesRepositorio(
+                usuario.getUsuarioId(), repoId);
+            String userPermission = (String) repoDetails.get("privilegio_usuario_actual");
+
+            boolean requiereEscritura = tipo == FileOperationJob.OperationType.MOVE
+                    || tipo == FileOperationJob.OperationType.DELETE_BULK;
+            if ("SIN_ACCESO".equals(userPermission) || (requiereEscritura && "LECTOR".equals(userPermission))) {
+                logger.warn("   ⛔ ACCESO DENEGADO");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(
+                    Map.of("error", "Acceso denegado")
+                );
+            }
+
+            // Todos los nodos (y la carpeta destino) deben ser del repositorio
+            List<Long> nodosAValidar = new java.util.ArrayList<>(nodoIds);
+            if (targetParentId != null) {
+                nodosAValidar.add(targetParentId);
+            }
+            if (nodoIds.isEmpty() || !nodoService.todosPertenecenAContenedor(
+                    nodosAValidar, Nodo.ContainerType.REPOSITORIO, repoId)) {
+                return ResponseEntity.badRequest().body(
+                    Map.of("error", "Los nodos indicados no pertenecen al repositorio")
+                );
+            }
+
+            FileOperationJob job = fileOperationJobService.crearJob(
+                    tipo, nodoIds, targetParentId, Nodo.ContainerType.REPOSITORIO, repoId, usuario);
+
+            logger.info("   ✅ Job {} encolado", job.getJobId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(fileOperationJobService.convertirADTO(job));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("❌ Error al crear job: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * 📤 POST /api/repositories/{repoId}/upload-zip
-     * Subir y descomprimir archivo ZIP
+     * Subir un archivo ZIP e importarlo con un job (202 + JobDTO)
      */
     @PostMapping("/{repoId}/upload-zip")
     public ResponseEntity<?> subirYDescomprimirZip(
@@ -1043,22 +1372,17 @@ public class RepositoryFilesRestController {
                 );
             }
 
-            // Descomprimir y crear estructura
-            List<Nodo> nodosCreados = folderCompressionService.descomprimirZip(
-                file.getInputStream(),
+            // Importar en segundo plano (job BULK_UPLOAD): el progreso se consulta en /api/file-jobs/{jobId}
+            FileOperationJob job = fileOperationJobService.crearJobImportacionZip(
+                file,
                 Nodo.ContainerType.REPOSITORIO,
                 repoId,
                 parentId,
-                usuario.getUsuarioId()
+                usuario
             );
 
-            logger.info("   ✅ ZIP descomprimido - {} nodos creados", nodosCreados.size());
-            
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "message", "ZIP descomprimido exitosamente",
-                "nodesCreated", nodosCreados.size()
-            ));
+            logger.info("   ✅ Importación encolada en job {}", job.getJobId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(fileOperationJobService.convertirADTO(job));
             
         } catch (Exception e) {
             logger.error("❌ Error al descomprimir ZIP: {}", e.getMessage(), e);
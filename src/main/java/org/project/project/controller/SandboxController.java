@@ -1,14 +1,25 @@
 package org.project.project.controller;
 
+import org.project.project.exception.ResourceNotFoundException;
 import org.project.project.model.dto.SandboxRequestDTO;
 import org.project.project.model.dto.SandboxResponseDTO;
+import org.project.project.model.dto.UsuarioCacheado;
+import org.project.project.service.CuotaEntornoService;
 import org.project.project.service.SandboxService;
+import org.project.project.service.TestingEnvironmentService;
+import org.project.project.service.UsuarioCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.HtmlUtils;
 
+import java.security.Principal;
 import java.util.Map;
+import java.util.Optional;
 
 @Controller
 public class SandboxController {
@@ -16,6 +27,12 @@ public class SandboxController {
     @Autowired
     private SandboxService sandboxService;
 
+    @Autowired
+    private TestingEnvironmentService testingEnvironmentService;
+
+    @Autowired
+    private UsuarioCacheService usuarioCacheService;
+
     @GetMapping("/devportal/{rol}/{username}/test-environment")
     public String showSandboxPage(@PathVariable String rol, @PathVariable String username, Model model) {
         model.addAttribute("userRole", rol);
@@ -26,10 +43,16 @@ public class SandboxController {
 
     @PostMapping("/devportal/{rol}/{username}/test-environment")
     @ResponseBody
-    public String executeSandboxRequest(
+    public ResponseEntity<String> executeSandboxRequest(
             @PathVariable String rol,
             @PathVariable String username,
-            @RequestBody Map<String, Object> formData) {
+            @RequestBody Map<String, Object> formData,
+            Principal principal) {
+        UsuarioCacheado usuario = principal != null ? usuarioCacheService.obtenerPorUsername(principal.getName()) : null;
+        if (usuario == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(panelError("No autenticado"));
+        }
+
         // Construir el DTO desde el frontend
         SandboxRequestDTO request = new SandboxRequestDTO();
         request.setMethod((String) formData.get("method"));
@@ -42,12 +65,41 @@ public class SandboxController {
 
         request.setBody(formData.get("body"));
 
+        // Cuota del entorno de prueba: el entorno se resuelve en el servidor (propio del usuario o el de la API
+        // del mock al que apunta la URL) y la frecuencia se limita por usuario autenticado, nunca por una cabecera del cliente
+        HttpHeaders cabeceras = new HttpHeaders();
+        Optional<Long> entornoId;
+        try {
+            Long solicitado = formData.get("entornoId") != null ? Long.valueOf(formData.get("entornoId").toString()) : null;
+            entornoId = testingEnvironmentService.resolverEntornoSandbox(usuario.usuarioId(), solicitado, request.getUrl());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(panelError(e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(panelError(e.getMessage()));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(panelError("Entorno de prueba no válido"));
+        }
+        if (entornoId.isPresent()) {
+            CuotaEntornoService.ResultadoCuota cuota =
+                    testingEnvironmentService.registrarLlamada(entornoId.get(), "usuario:" + usuario.usuarioId());
+            cuota.cabeceras().forEach(cabeceras::add);
+            if (!cuota.permitido()) {
+                // Sin tiempo de reintento: el entorno no está activo o expiró
+                HttpStatus estado = cuota.reintentarEnSeg() > 0 ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.FORBIDDEN;
+                return ResponseEntity.status(estado).headers(cabeceras).body(panelError(cuota.motivo()));
+            }
+        }
+
         // Ejecutar la petición
         long startTime = System.currentTimeMillis();
         SandboxResponseDTO response = sandboxService.executeRequest(request);
         long totalTime = System.currentTimeMillis() - startTime;
 
         // Generar el HTML de respuesta
-        return sandboxService.generateResponseHtml(response, totalTime);
+        return ResponseEntity.ok().headers(cabeceras).body(sandboxService.generateResponseHtml(response, totalTime));
+    }
+
+    private String panelError(String mensaje) {
+        return "<div class='response-panel'><div class='status error'>" + HtmlUtils.htmlEscape(mensaje) + "</div></div>";
     }
 }
@@ -9,6 +9,7 @@ import org.project.project.service.ImpersonacionService;
 import org.project.project.service.CategoriaService;
 import org.project.project.service.PlatformUserManagementService;
 import org.project.project.service.SystemAdministratorService;
+import org.project.project.service.MetricasRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -50,6 +51,9 @@ public class SystemAdministratorController {
     @Autowired
     private SystemAdministratorService systemAdministratorService;
 
+    @Autowired
+    private MetricasRollupService metricasRollupService;
+
     // ==========================================
     // HELPER METHODS
     // ==========================================
@@ -253,7 +257,7 @@ public class SystemAdministratorController {
                     .orElse("USER");
 
             // Obtener métricas del dashboard usando el nuevo servicio
-            Map<String, Object> dashboardMetrics = systemAdministratorService.getAllGeneralMetrics();
+            Map<String, Object> dashboardMetrics = metricasRollupService.getAllGeneralMetrics();
 
             model.addAttribute("usuario", currentUser);
             model.addAttribute("role", currentRole);
@@ -271,7 +275,7 @@ public class SystemAdministratorController {
     @ResponseBody
     public ResponseEntity<Map<String, Object>> getDashboardMetrics() {
         try {
-            Map<String, Object> metrics = systemAdministratorService.getAllGeneralMetrics();
+            Map<String, Object> metrics = metricasRollupService.getAllGeneralMetrics();
             return ResponseEntity.ok(metrics);
         } catch (Exception e) {
             e.printStackTrace();
@@ -1017,7 +1021,7 @@ public class SystemAdministratorController {
     @PreAuthorize("hasRole('SA')")
     public ResponseEntity<Map<String, Object>> getGeneralMetrics() {
         try {
-            Map<String, Object> metrics = systemAdministratorService.getGeneralMetrics();
+            Map<String, Object> metrics = metricasRollupService.getGeneralMetrics();
             return ResponseEntity.ok(metrics);
         } catch (Exception e) {
             log.error("Error al obtener métricas generales: ", e);
@@ -1089,7 +1093,7 @@ public class SystemAdministratorController {
     @PreAuthorize("hasRole('SA')")
     public ResponseEntity<Map<String, Object>> getApisMetrics() {
         try {
-            Map<String, Object> metrics = systemAdministratorService.getApisMetrics();
+            Map<String, Object> metrics = metricasRollupService.getApisMetrics();
             return ResponseEntity.ok(metrics);
         } catch (Exception e) {
             log.error("Error al obtener métricas de APIs: ", e);
@@ -1119,6 +1123,7 @@ public class SystemAdministratorController {
     /**
      * Obtiene datos paginados para tablas específicas
      * GET /api/sa/metrics/table/{category}?page=0&size=10&search=
+     * Por cursor: GET /api/sa/metrics/table/{category}?cursor=&size=10 y luego ?cursor={nextCursor}
      */
     @GetMapping("/api/sa/metrics/table/{category}")
     @ResponseBody
@@ -1127,9 +1132,12 @@ public class SystemAdministratorController {
             @PathVariable String category,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "") String search) {
+            @RequestParam(defaultValue = "") String search,
+            @RequestParam(required = false) String cursor) {
         try {
-            Map<String, Object> tableData = systemAdministratorService.getTableData(category, page, size, search);
+            Map<String, Object> tableData = cursor != null
+                    ? systemAdministratorService.getTableDataPorCursor(category, size, search, cursor)
+                    : systemAdministratorService.getTableData(category, page, size, search);
             return ResponseEntity.ok(tableData);
         } catch (Exception e) {
             log.error("Error al obtener datos de tabla para {}: ", category, e);
@@ -1239,7 +1247,7 @@ public class SystemAdministratorController {
     @PreAuthorize("hasRole('SA')")
     public ResponseEntity<Map<String, Object>> getMetricsDashboardSummary() {
         try {
-            Map<String, Object> summary = systemAdministratorService.getDashboardSummary();
+            Map<String, Object> summary = metricasRollupService.getDashboardSummary();
             return ResponseEntity.ok(summary);
         } catch (Exception e) {
             log.error("Error al obtener resumen del dashboard de métricas: ", e);
@@ -1248,6 +1256,26 @@ public class SystemAdministratorController {
         }
     }
 
+    /**
+     * Recalcula el snapshot de métricas sin esperar al siguiente refresco programado
+     * POST /api/sa/metrics/refresh
+     */
+    @PostMapping("/api/sa/metrics/refresh")
+    @ResponseBody
+    @PreAuthorize("hasRole('SA')")
+    public ResponseEntity<Map<String, Object>> refreshMetrics() {
+        try {
+            MetricasRollupService.SnapshotMetricas snapshot = metricasRollupService.refrescar();
+            return ResponseEntity.ok(Map.of(
+                    "snapshotGeneradoEn", snapshot.generadoEn().toString(),
+                    "duracionMs", snapshot.duracionMs()));
+        } catch (Exception e) {
+            log.error("Error al recalcular métricas: ", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Error al recalcular métricas: " + e.getMessage()));
+        }
+    }
+
     // ==========================================
     // EXPORTACIÓN DE REPORTES DE MÉTRICAS
     // ==========================================
@@ -1275,7 +1303,7 @@ public class SystemAdministratorController {
             response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
 
             // Obtener métricas
-            Map<String, Object> metrics = systemAdministratorService.getAllGeneralMetrics();
+            Map<String, Object> metrics = metricasRollupService.getAllGeneralMetrics();
 
             // Escribir el CSV
             java.io.PrintWriter writer = response.getWriter();
@@ -1354,7 +1382,7 @@ public class SystemAdministratorController {
             org.apache.poi.ss.usermodel.CellStyle dataStyle = createDataStyle(workbook);
 
             // Obtener métricas
-            Map<String, Object> metrics = systemAdministratorService.getAllGeneralMetrics();
+            Map<String, Object> metrics = metricasRollupService.getAllGeneralMetrics();
 
             // Crear hoja de resumen general
             createGeneralSummarySheet(workbook, metrics, headerStyle, titleStyle, dataStyle, authentication);
@@ -1391,23 +1419,23 @@ public class SystemAdministratorController {
         
         switch (category.toLowerCase()) {
             case "proyectos":
-                categoryData = systemAdministratorService.getProyectosMetrics();
+                categoryData = metricasRollupService.getProyectosMetrics();
                 writer.println("MÉTRICAS DE PROYECTOS");
                 break;
             case "usuarios":
-                categoryData = systemAdministratorService.getUsuariosMetrics();
+                categoryData = metricasRollupService.getUsuariosMetrics();
                 writer.println("MÉTRICAS DE USUARIOS");
                 break;
             case "repositorios":
-                categoryData = systemAdministratorService.getRepositoriosMetrics();
+                categoryData = metricasRollupService.getRepositoriosMetrics();
                 writer.println("MÉTRICAS DE REPOSITORIOS");
                 break;
             case "apis":
-                categoryData = systemAdministratorService.getApisMetrics();
+                categoryData = metricasRollupService.getApisMetrics();
                 writer.println("MÉTRICAS DE APIs");
                 break;
             case "tickets":
-                categoryData = systemAdministratorService.getTicketsMetrics();
+                categoryData = metricasRollupService.getTicketsMetrics();
                 writer.println("MÉTRICAS DE TICKETS");
                 break;
         }
@@ -1656,23 +1684,23 @@ public class SystemAdministratorController {
 
         switch (category.toLowerCase()) {
             case "proyectos":
-                categoryData = systemAdministratorService.getProyectosMetrics();
+                categoryData = metricasRollupService.getProyectosMetrics();
                 sheetName = "Proyectos";
                 break;
             case "usuarios":
-                categoryData = systemAdministratorService.getUsuariosMetrics();
+                categoryData = metricasRollupService.getUsuariosMetrics();
                 sheetName = "Usuarios";
                 break;
             case "repositorios":
-                categoryData = systemAdministratorService.getRepositoriosMetrics();
+                categoryData = metricasRollupService.getRepositoriosMetrics();
                 sheetName = "Repositorios";
                 break;
             case "apis":
-                categoryData = systemAdministratorService.getApisMetrics();
+                categoryData = metricasRollupService.getApisMetrics();
                 sheetName = "APIs";
                 break;
             case "tickets":
-                categoryData = systemAdministratorService.getTicketsMetrics();
+                categoryData = metricasRollupService.getTicketsMetrics();
                 sheetName = "Tickets";
                 break;
         }
@@ -2,6 +2,7 @@ package org.project.project.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.project.project.model.entity.Ticket;
+import org.project.project.service.CursorPaginacion;
 import org.project.project.service.TicketService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -63,10 +64,15 @@ public class TicketRestController {
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Ticket>> getTicketsByUserId(
+    public ResponseEntity<?> getTicketsByUserId(
             @PathVariable Long userId,
             @RequestParam(required = false, defaultValue = "0") int page,
-            @RequestParam(required = false, defaultValue = "20") int size) {
+            @RequestParam(required = false, defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+
+        if (cursor != null) {
+            return respuestaPorCursor("user", userId, cursor, size);
+        }
 
         if (page > 0 || size != 20) {
             Pageable pageable = PageRequest.of(page, size);
@@ -79,10 +85,15 @@ public class TicketRestController {
     }
 
     @GetMapping("/reported-by/{userId}")
-    public ResponseEntity<List<Ticket>> getTicketsReportedByUser(
+    public ResponseEntity<?> getTicketsReportedByUser(
             @PathVariable Long userId,
             @RequestParam(required = false, defaultValue = "0") int page,
-            @RequestParam(required = false, defaultValue = "20") int size) {
+            @RequestParam(required = false, defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+
+        if (cursor != null) {
+            return respuestaPorCursor("reported-by", userId, cursor, size);
+        }
 
         if (page > 0 || size != 20) {
             Pageable pageable = PageRequest.of(page, size);
@@ -95,10 +106,15 @@ public class TicketRestController {
     }
 
     @GetMapping("/assigned-to/{userId}")
-    public ResponseEntity<List<Ticket>> getTicketsAssignedToUser(
+    public ResponseEntity<?> getTicketsAssignedToUser(
             @PathVariable Long userId,
             @RequestParam(required = false, defaultValue = "0") int page,
-            @RequestParam(required = false, defaultValue = "20") int size) {
+            @RequestParam(required = false, defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+
+        if (cursor != null) {
+            return respuestaPorCursor("assigned-to", userId, cursor, size);
+        }
 
         if (page > 0 || size != 20) {
             Pageable pageable = PageRequest.of(page, size);
@@ -111,10 +127,15 @@ public class TicketRestController {
     }
 
     @GetMapping("/project/{projectId}")
-    public ResponseEntity<List<Ticket>> getTicketsByProjectId(
+    public ResponseEntity<?> getTicketsByProjectId(
             @PathVariable Long projectId,
             @RequestParam(required = false, defaultValue = "0") int page,
-            @RequestParam(required = false, defaultValue = "20") int size) {
+            @RequestParam(required = false, defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+
+        if (cursor != null) {
+            return respuestaPorCursor("project", projectId, cursor, size);
+        }
 
         if (page > 0 || size != 20) {
             Pageable pageable = PageRequest.of(page, size);
@@ -126,6 +147,19 @@ public class TicketRestController {
         return ResponseEntity.ok(tickets);
     }
 
+    /**
+     * Respuesta de los listados paginados por cursor: tickets, total aproximado y cursor siguiente
+     */
+    private ResponseEntity<Map<String, Object>> respuestaPorCursor(String listado, Long id, String cursor, int size) {
+        CursorPaginacion.Pagina<Ticket> pagina = ticketService.obtenerTicketsPorCursor(listado, id, cursor, size);
+        Map<String, Object> response = new HashMap<>();
+        response.put("tickets", pagina.elementos());
+        response.put("total", pagina.total());
+        response.put("hasNext", pagina.hayMas());
+        response.put("nextCursor", pagina.siguienteCursor());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/public")
     public ResponseEntity<List<Ticket>> getPublicTickets(
             @RequestParam(required = false, defaultValue = "0") int page,
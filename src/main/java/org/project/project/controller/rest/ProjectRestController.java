@@ -1,5 +1,6 @@
 package org.project.project.controller.rest;
 
+import org.project.project.service.CursorPaginacion;
 import org.project.project.service.ProjectService;
 import org.project.project.service.UserService;
 import org.project.project.model.entity.Usuario;
@@ -37,10 +38,13 @@ public class ProjectRestController {
      * @param search Texto de búsqueda (opcional)
      * @param sort Orden: 'name', 'recent', 'oldest' (opcional, default: 'recent')
      * @param page Número de página 0-indexed (opcional, default: 0)
+     * @param cursor Paginación por cursor: vacío para la primera página, luego el nextCursor recibido (opcional)
      * @param principal Usuario autenticado
      * @return JSON con proyectos y metadata de paginación
      * 
      * Ejemplo: GET /api/projects/personal?page=0&category=Backend&search=api&sort=recent
+     * Por cursor: GET /api/projects/personal?cursor=&sort=recent y luego ?cursor={nextCursor}
+     *   (la página N cuesta lo mismo que la primera; la respuesta incluye "nextCursor" en lugar de "currentPage")
      * 
      * Response:
      * {
@@ -59,32 +63,35 @@ public class ProjectRestController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false, defaultValue = "recent") String sort,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             Principal principal) {
 
         // Obtener usuario autenticado
         Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
 
+        if (cursor != null) {
+            return respuestaPorCursor("personal", currentUser.getUsuarioId(), category, search, sort, cursor);
+        }
+
         // Obtener proyectos paginados (12 por página)
         List<Map<String, Object>> projects = projectService.obtenerProyectosPersonalesPaginado(
             currentUser.getUsuarioId(), category, search, sort, page
         );
 
-        // Obtener conteo total para calcular paginación
-        List<Map<String, Object>> allProjects = projectService.obtenerProyectosPersonales(
-            currentUser.getUsuarioId(), category, search, sort
-        );
+        // Conteo total cacheado (sin cargar todos los proyectos)
+        long totalProjects = projectService.contarProyectos("personal", currentUser.getUsuarioId(), category, search);
 
         Map<String, Object> stats = projectService.obtenerEstadisticasProyectosUsuario(currentUser.getUsuarioId());
 
         // Preparar respuesta con metadata
         Map<String, Object> response = new HashMap<>();
         response.put("projects", projects);
-        response.put("totalProjects", allProjects.size());
+        response.put("totalProjects", totalProjects);
         response.put("currentPage", page);
-        response.put("totalPages", (int) Math.ceil((double) allProjects.size() / 12));
+        response.put("totalPages", (int) Math.ceil((double) totalProjects / 12));
         response.put("hasNext", projects.size() >= 12);
         response.put("startIndex", (page * 12) + 1);
-        response.put("endIndex", Math.min((page + 1) * 12, allProjects.size()));
+        response.put("endIndex", Math.min((page + 1) * 12, totalProjects));
         response.put("stats", stats);
         
         return ResponseEntity.ok(response);
@@ -98,6 +105,7 @@ public class ProjectRestController {
      * @param search Texto de búsqueda (opcional)
      * @param sort Orden: 'name', 'recent', 'oldest' (opcional, default: 'recent')
      * @param page Número de página 0-indexed (opcional, default: 0)
+     * @param cursor Paginación por cursor: vacío para la primera página, luego el nextCursor recibido (opcional)
      * @param principal Usuario autenticado
      * @return JSON con proyectos y metadata de paginación
      */
@@ -107,28 +115,31 @@ public class ProjectRestController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false, defaultValue = "recent") String sort,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             Principal principal) {
 
         Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
 
+        if (cursor != null) {
+            return respuestaPorCursor("team", currentUser.getUsuarioId(), category, search, sort, cursor);
+        }
+
         List<Map<String, Object>> projects = projectService.obtenerProyectosEquiposPaginado(
             currentUser.getUsuarioId(), category, search, sort, page
         );
 
-        List<Map<String, Object>> allProjects = projectService.obtenerProyectosEquipos(
-            currentUser.getUsuarioId(), category, search, sort
-        );
+        long totalProjects = projectService.contarProyectos("team", currentUser.getUsuarioId(), category, search);
 
         Map<String, Object> stats = projectService.obtenerEstadisticasProyectosUsuario(currentUser.getUsuarioId());
 
         Map<String, Object> response = new HashMap<>();
         response.put("projects", projects);
-        response.put("totalProjects", allProjects.size());
+        response.put("totalProjects", totalProjects);
         response.put("currentPage", page);
-        response.put("totalPages", (int) Math.ceil((double) allProjects.size() / 12));
+        response.put("totalPages", (int) Math.ceil((double) totalProjects / 12));
         response.put("hasNext", projects.size() >= 12);
         response.put("startIndex", (page * 12) + 1);
-        response.put("endIndex", Math.min((page + 1) * 12, allProjects.size()));
+        response.put("endIndex", Math.min((page + 1) * 12, totalProjects));
         response.put("stats", stats);
         
         return ResponseEntity.ok(response);
@@ -142,6 +153,7 @@ public class ProjectRestController {
      * @param search Texto de búsqueda (opcional)
      * @param sort Orden: 'name', 'recent', 'oldest' (opcional, default: 'recent')
      * @param page Número de página 0-indexed (opcional, default: 0)
+     * @param cursor Paginación por cursor: vacío para la primera página, luego el nextCursor recibido (opcional)
      * @param principal Usuario autenticado
      * @return JSON con proyectos y metadata de paginación
      */
@@ -151,28 +163,31 @@ public class ProjectRestController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false, defaultValue = "recent") String sort,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             Principal principal) {
 
         Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
 
+        if (cursor != null) {
+            return respuestaPorCursor("other", currentUser.getUsuarioId(), category, search, sort, cursor);
+        }
+
         List<Map<String, Object>> projects = projectService.obtenerOtrosProyectosPublicosPaginado(
             currentUser.getUsuarioId(), category, search, sort, page
         );
 
-        List<Map<String, Object>> allProjects = projectService.obtenerOtrosProyectosPublicos(
-            currentUser.getUsuarioId(), category, search, sort
-        );
+        long totalProjects = projectService.contarProyectos("other", currentUser.getUsuarioId(), category, search);
 
         Map<String, Object> stats = projectService.obtenerEstadisticasProyectosUsuario(currentUser.getUsuarioId());
 
         Map<String, Object> response = new HashMap<>();
         response.put("projects", projects);
-        response.put("totalProjects", allProjects.size());
+        response.put("totalProjects", totalProjects);
         response.put("currentPage", page);
-        response.put("totalPages", (int) Math.ceil((double) allProjects.size() / 12));
+        response.put("totalPages", (int) Math.ceil((double) totalProjects / 12));
         response.put("hasNext", projects.size() >= 12);
         response.put("startIndex", (page * 12) + 1);
-        response.put("endIndex", Math.min((page + 1) * 12, allProjects.size()));
+        response.put("endIndex", Math.min((page + 1) * 12, totalProjects));
         response.put("stats", stats);
         
         return ResponseEntity.ok(response);
@@ -186,6 +201,7 @@ public class ProjectRestController {
      * @param search Texto de búsqueda (opcional)
      * @param sort Orden: 'name', 'recent', 'oldest' (opcional, default: 'recent')
      * @param page Número de página 0-indexed (opcional, default: 0)
+     * @param cursor Paginación por cursor: vacío para la primera página, luego el nextCursor recibido (opcional)
      * @param principal Usuario autenticado
      * @return JSON con proyectos y metadata de paginación
      */
@@ -195,30 +211,33 @@ public class ProjectRestController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false, defaultValue = "recent") String sort,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             Principal principal) {
 
         Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
 
+        if (cursor != null) {
+            return respuestaPorCursor("all", currentUser.getUsuarioId(), category, search, sort, cursor);
+        }
+
         // Obtener proyectos paginados donde participo (12 por página)
         List<Map<String, Object>> projects = projectService.obtenerProyectosEnLosQueParticipoPersonalesYEquiposPaginado(
             currentUser.getUsuarioId(), category, search, sort, page
         );
 
-        // Obtener conteo total para calcular paginación
-        List<Map<String, Object>> allProjects = projectService.obtenerProyectosEnLosQueParticipoPersonalesYEquipos(
-            currentUser.getUsuarioId(), category, search, sort
-        );
+        // Conteo total cacheado (sin cargar todos los proyectos)
+        long totalProjects = projectService.contarProyectos("all", currentUser.getUsuarioId(), category, search);
 
         Map<String, Object> stats = projectService.obtenerEstadisticasProyectosUsuario(currentUser.getUsuarioId());
 
         Map<String, Object> response = new HashMap<>();
         response.put("projects", projects);
-        response.put("totalProjects", allProjects.size());
+        response.put("totalProjects", totalProjects);
         response.put("currentPage", page);
-        response.put("totalPages", (int) Math.ceil((double) allProjects.size() / 12));
+        response.put("totalPages", (int) Math.ceil((double) totalProjects / 12));
         response.put("hasNext", projects.size() >= 12);
         response.put("startIndex", (page * 12) + 1);
-        response.put("endIndex", Math.min((page + 1) * 12, allProjects.size()));
+        response.put("endIndex", Math.min((page + 1) * 12, totalProjects));
         response.put("stats", stats);
         
         return ResponseEntity.ok(response);
@@ -244,4 +263,24 @@ public class ProjectRestController {
         Map<String, Object> stats = projectService.obtenerEstadisticasProyectosUsuario(currentUser.getUsuarioId());
         return ResponseEntity.ok(stats);
     }
+
+    /**
+     * Respuesta paginada por cursor (keyset) con el mismo formato que la paginada por número de página
+     */
+    private ResponseEntity<Map<String, Object>> respuestaPorCursor(String seccion, Long userId, String category,
+                                                                   String search, String sort, String cursor) {
+        CursorPaginacion.Pagina<Map<String, Object>> pagina = projectService.obtenerProyectosPorCursor(
+            seccion, userId, category, search, sort, cursor
+        );
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("projects", pagina.elementos());
+        response.put("totalProjects", pagina.total());
+        response.put("totalPages", (int) Math.ceil((double) pagina.total() / CursorPaginacion.TAMANIO_PAGINA));
+        response.put("hasNext", pagina.hayMas());
+        response.put("nextCursor", pagina.siguienteCursor());
+        response.put("stats", projectService.obtenerEstadisticasProyectosUsuario(userId));
+
+        return ResponseEntity.ok(response);
+    }
 }
@@ -1,5 +1,6 @@
 package org.project.project.controller.rest;
 
+import org.project.project.service.CursorPaginacion;
 import org.project.project.service.RepositoryService;
 import org.project.project.service.UserService;
 import org.project.project.model.entity.Usuario;
@@ -37,6 +38,7 @@ public class RepositoryRestController {
      * @param search Texto de búsqueda (opcional)
      * @param sort Orden: 'name', 'recent', 'oldest' (opcional, default: 'recent')
      * @param page Número de página 0-indexed (opcional, default: 0)
+     * @param cursor Paginación por cursor: vacío para la primera página, luego el nextCursor recibido (opcional)
      * @param principal Usuario autenticado
      * @return JSON con repositorios y metadata de paginación
      * 
@@ -59,20 +61,23 @@ public class RepositoryRestController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false, defaultValue = "recent") String sort,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             Principal principal) {
 
         // Obtener usuario autenticado
         Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
 
+        if (cursor != null) {
+            return respuestaPorCursor("personal", currentUser.getUsuarioId(), category, search, sort, cursor);
+        }
+
         // Obtener repositorios paginados (12 por página)
         List<Map<String, Object>> repositories = repositoryService.obtenerRepositoriosPersonalesPaginado(
             currentUser.getUsuarioId(), category, search, sort, page
         );
 
-        // Obtener conteo total para calcular paginación
-        List<Map<String, Object>> allRepositories = repositoryService.obtenerRepositoriosPersonales(
-            currentUser.getUsuarioId(), category, search, sort
-        );
+        // Conteo total cacheado (sin cargar todos los repositorios)
+        long totalRepositories = repositoryService.contarRepositorios("personal", currentUser.getUsuarioId(), category, search);
 
         // Obtener estadísticas para actualizar contadores
         Map<String, Object> stats = repositoryService.obtenerEstadisticasRepositoriosUsuario(currentUser.getUsuarioId());
@@ -80,12 +85,12 @@ public class RepositoryRestController {
         // Preparar respuesta con metadata
         Map<String, Object> response = new HashMap<>();
         response.put("repositories", repositories);
-        response.put("totalRepositories", allRepositories.size());
+        response.put("totalRepositories", totalRepositories);
         response.put("currentPage", page);
-        response.put("totalPages", (int) Math.ceil((double) allRepositories.size() / 12));
+        response.put("totalPages", (int) Math.ceil((double) totalRepositories / 12));
         response.put("hasNext", repositories.size() >= 12);
         response.put("startIndex", (page * 12) + 1);
-        response.put("endIndex", Math.min((page + 1) * 12, allRepositories.size()));
+        response.put("endIndex", Math.min((page + 1) * 12, totalRepositories));
         response.put("stats", stats);
         
         return ResponseEntity.ok(response);
@@ -99,6 +104,7 @@ public class RepositoryRestController {
      * @param search Texto de búsqueda (opcional)
      * @param sort Orden: 'name', 'recent', 'oldest' (opcional, default: 'recent')
      * @param page Número de página 0-indexed (opcional, default: 0)
+     * @param cursor Paginación por cursor: vacío para la primera página, luego el nextCursor recibido (opcional)
      * @param principal Usuario autenticado
      * @return JSON con repositorios y metadata de paginación
      */
@@ -108,28 +114,31 @@ public class RepositoryRestController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false, defaultValue = "recent") String sort,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             Principal principal) {
 
         Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
 
+        if (cursor != null) {
+            return respuestaPorCursor("collaborative", currentUser.getUsuarioId(), category, search, sort, cursor);
+        }
+
         List<Map<String, Object>> repositories = repositoryService.obtenerRepositoriosColaborativosPaginado(
             currentUser.getUsuarioId(), category, search, sort, page
         );
 
-        List<Map<String, Object>> allRepositories = repositoryService.obtenerRepositoriosColaborativos(
-            currentUser.getUsuarioId(), category, search, sort
-        );
+        long totalRepositories = repositoryService.contarRepositorios("collaborative", currentUser.getUsuarioId(), category, search);
 
         Map<String, Object> stats = repositoryService.obtenerEstadisticasRepositoriosUsuario(currentUser.getUsuarioId());
 
         Map<String, Object> response = new HashMap<>();
         response.put("repositories", repositories);
-        response.put("totalRepositories", allRepositories.size());
+        response.put("totalRepositories", totalRepositories);
         response.put("currentPage", page);
-        response.put("totalPages", (int) Math.ceil((double) allRepositories.size() / 12));
+        response.put("totalPages", (int) Math.ceil((double) totalRepositories / 12));
         response.put("hasNext", repositories.size() >= 12);
         response.put("startIndex", (page * 12) + 1);
-        response.put("endIndex", Math.min((page + 1) * 12, allRepositories.size()));
+        response.put("endIndex", Math.min((page + 1) * 12, totalRepositories));
         response.put("stats", stats);
         
         return ResponseEntity.ok(response);
@@ -143,6 +152,7 @@ public class RepositoryRestController {
      * @param search Texto de búsqueda (opcional)
      * @param sort Orden: 'name', 'recent', 'oldest' (opcional, default: 'recent')
      * @param page Número de página 0-indexed (opcional, default: 0)
+     * @param cursor Paginación por cursor: vacío para la primera página, luego el nextCursor recibido (opcional)
      * @param principal Usuario autenticado
      * @return JSON con repositorios y metadata de paginación
      */
@@ -152,28 +162,31 @@ public class RepositoryRestController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false, defaultValue = "recent") String sort,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             Principal principal) {
 
         Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
 
+        if (cursor != null) {
+            return respuestaPorCursor("other", currentUser.getUsuarioId(), category, search, sort, cursor);
+        }
+
         List<Map<String, Object>> repositories = repositoryService.obtenerOtrosRepositoriosPaginado(
             currentUser.getUsuarioId(), category, search, sort, page
         );
 
-        List<Map<String, Object>> allRepositories = repositoryService.obtenerOtrosRepositorios(
-            currentUser.getUsuarioId(), category, search, sort
-        );
+        long totalRepositories = repositoryService.contarRepositorios("other", currentUser.getUsuarioId(), category, search);
 
         Map<String, Object> stats = repositoryService.obtenerEstadisticasRepositoriosUsuario(currentUser.getUsuarioId());
 
         Map<String, Object> response = new HashMap<>();
         response.put("repositories", repositories);
-        response.put("totalRepositories", allRepositories.size());
+        response.put("totalRepositories", totalRepositories);
         response.put("currentPage", page);
-        response.put("totalPages", (int) Math.ceil((double) allRepositories.size() / 12));
+        response.put("totalPages", (int) Math.ceil((double) totalRepositories / 12));
         response.put("hasNext", repositories.size() >= 12);
         response.put("startIndex", (page * 12) + 1);
-        response.put("endIndex", Math.min((page + 1) * 12, allRepositories.size()));
+        response.put("endIndex", Math.min((page + 1) * 12, totalRepositories));
         response.put("stats", stats);
         
         return ResponseEntity.ok(response);
@@ -187,6 +200,7 @@ public class RepositoryRestController {
      * @param search Texto de búsqueda (opcional)
      * @param sort Orden: 'name', 'recent', 'oldest' (opcional, default: 'recent')
      * @param page Número de página 0-indexed (opcional, default: 0)
+     * @param cursor Paginación por cursor: vacío para la primera página, luego el nextCursor recibido (opcional)
      * @param principal Usuario autenticado
      * @return JSON con repositorios y metadata de paginación
      */
@@ -196,28 +210,31 @@ public class RepositoryRestController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false, defaultValue = "recent") String sort,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             Principal principal) {
 
         Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
 
+        if (cursor != null) {
+            return respuestaPorCursor("all", currentUser.getUsuarioId(), category, search, sort, cursor);
+        }
+
         List<Map<String, Object>> repositories = repositoryService.obtenerTodosMisRepositoriosPaginado(
             currentUser.getUsuarioId(), category, search, sort, page
         );
 
-        List<Map<String, Object>> allRepositories = repositoryService.obtenerTodosMisRepositorios(
-            currentUser.getUsuarioId(), category, search, sort
-        );
+        long totalRepositories = repositoryService.contarRepositorios("all", currentUser.getUsuarioId(), category, search);
 
         Map<String, Object> stats = repositoryService.obtenerEstadisticasRepositoriosUsuario(currentUser.getUsuarioId());
 
         Map<String, Object> response = new HashMap<>();
         response.put("repositories", repositories);
-        response.put("totalRepositories", allRepositories.size());
+        response.put("totalRepositories", totalRepositories);
         response.put("currentPage", page);
-        response.put("totalPages", (int) Math.ceil((double) allRepositories.size() / 12));
+        response.put("totalPages", (int) Math.ceil((double) totalRepositories / 12));
         response.put("hasNext", repositories.size() >= 12);
         response.put("startIndex", (page * 12) + 1);
-        response.put("endIndex", Math.min((page + 1) * 12, allRepositories.size()));
+        response.put("endIndex", Math.min((page + 1) * 12, totalRepositories));
         response.put("stats", stats);
         
         return ResponseEntity.ok(response);
@@ -243,4 +260,24 @@ public class RepositoryRestController {
         Map<String, Object> stats = repositoryService.obtenerEstadisticasRepositoriosUsuario(currentUser.getUsuarioId());
         return ResponseEntity.ok(stats);
     }
+
+    /**
+     * Respuesta paginada por cursor (keyset) con el mismo formato que la paginada por número de página
+     */
+    private ResponseEntity<Map<String, Object>> respuestaPorCursor(String seccion, Long userId, String category,
+                                                                   String search, String sort, String cursor) {
+        CursorPaginacion.Pagina<Map<String, Object>> pagina = repositoryService.obtenerRepositoriosPorCursor(
+            seccion, userId, category, search, sort, cursor
+        );
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("repositories", pagina.elementos());
+        response.put("totalRepositories", pagina.total());
+        response.put("totalPages", (int) Math.ceil((double) pagina.total() / CursorPaginacion.TAMANIO_PAGINA));
+        response.put("hasNext", pagina.hayMas());
+        response.put("nextCursor", pagina.siguienteCursor());
+        response.put("stats", repositoryService.obtenerEstadisticasRepositoriosUsuario(userId));
+
+        return ResponseEntity.ok(response);
+    }
 }
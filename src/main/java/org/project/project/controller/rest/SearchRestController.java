@@ -0,0 +1,82 @@
+package org.project.project.controller.rest;
+
+import org.project.project.model.entity.Rol;
+import org.project.project.model.entity.Usuario;
+import org.project.project.service.BusquedaService;
+import org.project.project.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * REST Controller para la búsqueda unificada
+ * APIs, proyectos, repositorios, documentación, tickets y foro en una sola lista ordenada por relevancia
+ */
+@RestController
+@RequestMapping("/api/search")
+public class SearchRestController {
+
+    @Autowired
+    private BusquedaService busquedaService;
+
+    @Autowired
+    private UserService userService;
+
+    /**
+     * GET /api/search
+     *
+     * @param q Texto a buscar (términos de 3+ caracteres, coincidencia por prefijo)
+     * @param tipos Tipos a incluir: API, PROYECTO, REPOSITORIO, DOCUMENTACION, TICKET, FORO (opcional, default: todos)
+     * @param page Número de página 0-indexed (opcional, default: 0)
+     * @param size Resultados por página (opcional, default: 20, máximo 50)
+     * @param principal Usuario autenticado
+     *
+     * Ejemplo: GET /api/search?q=pagos&tipos=API,DOCUMENTACION&page=0
+     *
+     * Response:
+     * {
+     *   "resultados": [{"tipo": "API", "id": 4, "nombre": "...", "descripcion": "...", "contextoId": null, "relevancia": 3.2}],
+     *   "pagina": 0,
+     *   "tamanio": 20,
+     *   "hayMas": true,
+     *   "modo": "estricto"
+     * }
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) List<String> tipos,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            Principal principal) {
+
+        Usuario currentUser = userService.obtenerUsuarioActualSinUsername(principal);
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "No autenticado"));
+        }
+
+        Set<BusquedaService.TipoResultado> tiposBuscados = EnumSet.noneOf(BusquedaService.TipoResultado.class);
+        if (tipos != null) {
+            for (String tipo : tipos) {
+                try {
+                    tiposBuscados.add(BusquedaService.TipoResultado.valueOf(tipo.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.badRequest().body(Map.of("error", "Tipo de búsqueda inválido: " + tipo));
+                }
+            }
+        }
+
+        boolean esSA = currentUser.getRoles() != null && currentUser.getRoles().stream()
+                .anyMatch(rol -> rol.getNombreRol() == Rol.NombreRol.SA);
+
+        return ResponseEntity.ok(busquedaService.buscar(q, tiposBuscados, currentUser.getUsuarioId(), esSA, page, size));
+    }
+}
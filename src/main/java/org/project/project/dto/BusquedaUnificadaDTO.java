@@ -3,12 +3,26 @@ package org.project.project.dto;
 public class BusquedaUnificadaDTO {
     private String tipo;
     private String nombre;
+    private Long id;
+    private String descripcion;
+    private Long contextoId;  // API de la documentación, proyecto del ticket, etc.
+    private double relevancia;
 
     public BusquedaUnificadaDTO(String tipo, String nombre) {
         this.tipo = tipo;
         this.nombre = nombre;
     }
 
+    public BusquedaUnificadaDTO(String tipo, Long id, String nombre, String descripcion,
+                                Long contextoId, double relevancia) {
+        this.tipo = tipo;
+        this.id = id;
+        this.nombre = nombre;
+        this.descripcion = descripcion;
+        this.contextoId = contextoId;
+        this.relevancia = relevancia;
+    }
+
     public String getTipo() {
         return tipo;
     }
@@ -24,5 +38,36 @@ public class BusquedaUnificadaDTO {
     public void setNombre(String nombre) {
         this.nombre = nombre;
     }
-}
 
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    public void setDescripcion(String descripcion) {
+        this.descripcion = descripcion;
+    }
+
+    public Long getContextoId() {
+        return contextoId;
+    }
+
+    public void setContextoId(Long contextoId) {
+        this.contextoId = contextoId;
+    }
+
+    public double getRelevancia() {
+        return relevancia;
+    }
+
+    public void setRelevancia(double relevancia) {
+        this.relevancia = relevancia;
+    }
+}
@@ -0,0 +1,25 @@
+package org.project.project.model.dto;
+
+import org.project.project.model.entity.Nodo;
+
+/**
+ * Datos inmutables de un nodo hijo que se guardan en el caché "jerarquiasNodos"
+ * El caché nunca guarda entidades Nodo: fuera de su sesión sus relaciones LAZY fallarían en otros hilos
+ * y cualquier cambio en una entidad compartida se filtraría a otras peticiones
+ */
+public record NodoCacheado(Long nodoId,
+                           String nombre,
+                           Nodo.TipoNodo tipo,
+                           String gcsPath,
+                           Nodo.ContainerType containerType,
+                           Long containerId) {
+
+    public static NodoCacheado desde(Nodo nodo) {
+        return new NodoCacheado(nodo.getNodoId(), nodo.getNombre(), nodo.getTipo(), nodo.getGcsPath(),
+                nodo.getContainerType(), nodo.getContainerId());
+    }
+
+    public boolean esCarpeta() {
+        return tipo == Nodo.TipoNodo.CARPETA;
+    }
+}
@@ -22,6 +22,14 @@ public class SandboxResponseDTO {
     public static class Metadata {
         private long latency;
         private String timestamp;
+        // Desglose de tiempos (ms): resolución DNS, hasta las cabeceras (conexión + TLS + servidor) y cuerpo
+        private Long dnsMs;
+        private Long ttfbMs;
+        private Long descargaMs;
+        private Integer bytes;
+        // true si el cuerpo superó sandbox.http.max-respuesta-kb y se cortó
+        private boolean truncado;
+        private String protocolo;
     }
 }
 
@@ -0,0 +1,41 @@
+package org.project.project.model.dto;
+
+import org.project.project.model.entity.Rol;
+import org.project.project.model.entity.Usuario;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Datos inmutables del usuario autenticado que se guardan en el caché "usuarios"
+ * El caché nunca guarda entidades Usuario: una entidad cacheada se compartiría entre peticiones,
+ * quedaría fuera de su sesión (roles LAZY) y cualquier cambio en ella se filtraría a otras peticiones
+ *
+ * @param roles Nombres de los roles (DEV, QA, PO, SA), cargados al construir el resumen
+ */
+public record UsuarioCacheado(Long usuarioId,
+                              String username,
+                              Usuario.EstadoUsuario estadoUsuario,
+                              Usuario.AccesoUsuario accesoUsuario,
+                              Set<String> roles) {
+
+    public UsuarioCacheado {
+        roles = roles != null ? Set.copyOf(roles) : Set.of();
+    }
+
+    /**
+     * Copia los datos de la entidad; debe llamarse con los roles ya inicializados
+     */
+    public static UsuarioCacheado desde(Usuario usuario) {
+        Set<String> roles = usuario.getRoles() == null ? Set.of() : usuario.getRoles().stream()
+                .map(Rol::getNombreRol)
+                .map(Enum::name)
+                .collect(Collectors.toSet());
+        return new UsuarioCacheado(usuario.getUsuarioId(), usuario.getUsername(),
+                usuario.getEstadoUsuario(), usuario.getAccesoUsuario(), roles);
+    }
+
+    public boolean tieneRol(String rol) {
+        return roles.contains(rol);
+    }
+}
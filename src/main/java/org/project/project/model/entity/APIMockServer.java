@@ -3,8 +3,11 @@ package org.project.project.model.entity;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * Entidad híbrida SQL + MongoDB
@@ -75,6 +78,14 @@ public class APIMockServer {
     @Column(name = "nosql_config_id", length = 24)
     private String nosqlConfigId;
 
+    /**
+     * Configuración del runtime embebido (misma forma que mock_server_config):
+     * endpoints, fallback_response, global_headers, latencia_ms, jitter_ms, tasa_error, error_status
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "configuracion", columnDefinition = "JSON")
+    private Map<String, Object> configuracion;
+
     @Column(name = "fecha_creacion", nullable = false)
     private LocalDateTime fechaCreacion = LocalDateTime.now();
 
@@ -0,0 +1,37 @@
+package org.project.project.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Objeto de GCS direccionado por contenido (SHA-256)
+ * Varios nodos y versiones pueden apuntar al mismo blob; referencias lleva la cuenta
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "blob_contenido")
+public class BlobContenido {
+
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Column(name = "gcs_path", nullable = false, length = 2048)
+    private String gcsPath;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "referencias", nullable = false)
+    private Integer referencias = 0;
+
+    @Column(name = "creado_en", nullable = false, updatable = false)
+    private LocalDateTime creadoEn = LocalDateTime.now();
+
+    @Column(name = "actualizado_en", nullable = false)
+    private LocalDateTime actualizadoEn = LocalDateTime.now();
+}
@@ -0,0 +1,94 @@
+package org.project.project.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Subida por partes (resumable) de un archivo hacia GCS
+ * Tras cada parte se guarda el estado de la escritura (URI de la sesión resumable y posición) para poder retomarla
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "carga_archivo")
+public class CargaArchivo {
+
+    @Id
+    @Column(name = "carga_id", length = 36)
+    private String cargaId;
+
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "container_type", nullable = false)
+    private Nodo.ContainerType containerType;
+
+    @Column(name = "container_id", nullable = false)
+    private Long containerId;
+
+    @Column(name = "parent_id")
+    private Long parentId;
+
+    @Column(name = "nombre", nullable = false)
+    private String nombre;
+
+    @Column(name = "mime_type")
+    private String mimeType;
+
+    @Column(name = "tamanio_total", nullable = false)
+    private Long tamanioTotal;
+
+    @Column(name = "tamanio_parte", nullable = false)
+    private Integer tamanioParte;
+
+    @Column(name = "bytes_recibidos", nullable = false)
+    private Long bytesRecibidos = 0L;
+
+    @Column(name = "gcs_path", nullable = false, length = 2048)
+    private String gcsPath;
+
+    // Estado de EscrituraReanudable: URI de la sesión y posición, sin credenciales (null una vez cerrado el canal)
+    @Lob
+    @Column(name = "estado_canal", columnDefinition = "LONGBLOB")
+    private byte[] estadoCanal;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false)
+    private EstadoCarga estado = EstadoCarga.EN_CURSO;
+
+    @Column(name = "nodo_id")
+    private Long nodoId;
+
+    @Column(name = "creado_en", nullable = false, updatable = false)
+    private LocalDateTime creadoEn = LocalDateTime.now();
+
+    @Column(name = "actualizado_en", nullable = false)
+    private LocalDateTime actualizadoEn = LocalDateTime.now();
+
+    /**
+     * Número de partes que componen el archivo (un archivo vacío tiene una parte de 0 bytes)
+     */
+    public int getTotalPartes() {
+        if (tamanioTotal == null || tamanioParte == null || tamanioTotal == 0) {
+            return 1;
+        }
+        return (int) ((tamanioTotal + tamanioParte - 1) / tamanioParte);
+    }
+
+    /**
+     * Siguiente parte esperada (0-indexed)
+     */
+    public int getSiguienteParte() {
+        return (int) (bytesRecibidos / tamanioParte);
+    }
+
+    public enum EstadoCarga {
+        EN_CURSO,
+        COMPLETADA,
+        CANCELADA
+    }
+}
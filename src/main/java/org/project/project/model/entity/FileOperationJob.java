@@ -92,6 +92,14 @@ public class FileOperationJob {
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
 
+    // Último latido del worker (periódico mientras el job está en PROCESSING)
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    // Instancia que tomó el job (solo ella actualiza progreso, heartbeat y estado final)
+    @Column(name = "worker_id", length = 100)
+    private String workerId;
+
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "metadata", columnDefinition = "JSON")
     private Map<String, Object> metadata;
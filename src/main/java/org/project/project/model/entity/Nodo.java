@@ -57,6 +57,14 @@ public class Nodo {
     @Column(name = "gcs_path", length = 2048)
     private String gcsPath;
 
+    // Generación del objeto en GCS: identifica el contenido exacto (ETag de descargas)
+    @Column(name = "gcs_generation")
+    private Long gcsGeneration;
+
+    // SHA-256 del contenido (blob_contenido): null si el archivo tiene su propio objeto por ruta
+    @Column(name = "contenido_hash", length = 64)
+    private String contenidoHash;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "creado_por")
     private Usuario creadoPor;
@@ -161,4 +169,14 @@ public class Nodo {
                 ", path='" + path + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+
+    /**
+     * Si cambia la ruta en GCS, la generación guardada ya no corresponde al objeto
+     */
+    public void setGcsPath(String gcsPath) {
+        if (!java.util.Objects.equals(this.gcsPath, gcsPath)) {
+            this.gcsGeneration = null;
+        }
+        this.gcsPath = gcsPath;
+    }
+}
@@ -0,0 +1,27 @@
+package org.project.project.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Tabla de clausura de la jerarquía de nodos
+ * Una fila por cada par (ancestro, descendiente), incluida (nodo, nodo, 0)
+ * Se mantiene desde NodoService al crear y mover nodos
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "nodo_closure", indexes = {
+    @Index(name = "idx_closure_descendiente", columnList = "descendiente_id, profundidad")
+})
+public class NodoClosure {
+
+    @EmbeddedId
+    private NodoClosureId id;
+
+    @Column(name = "profundidad", nullable = false)
+    private Integer profundidad;
+
+    public NodoClosure() {}
+}
@@ -0,0 +1,20 @@
+package org.project.project.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class NodoClosureId implements java.io.Serializable {
+
+    @Column(name = "ancestro_id")
+    private Long ancestroId;
+
+    @Column(name = "descendiente_id")
+    private Long descendienteId;
+}
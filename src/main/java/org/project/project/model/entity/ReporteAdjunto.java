@@ -35,9 +35,9 @@ public class ReporteAdjunto {
     @Column(name = "ruta_archivo", insertable = false, updatable = false)
     private String filePath;
 
-    @Lob
-    @Column(name = "contenido_archivo")
-    private byte[] contenidoArchivo;
+    // contenido_archivo (BLOB heredado) no se mapea: cargar un reporte o sus adjuntos nunca arrastra los bytes.
+    // Los adjuntos nuevos van al storage (gcs_file_path) y MigracionAdjuntosService mueve los antiguos;
+    // mientras tanto ReporteService lo lee en streaming por JDBC.
 
     @Column(name = "tipo_mime", length = 100)
     private String tipoMime;
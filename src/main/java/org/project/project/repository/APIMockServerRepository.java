@@ -32,6 +32,13 @@ public interface APIMockServerRepository extends JpaRepository<APIMockServer, Lo
     @Query("SELECT m FROM APIMockServer m WHERE m.version.versionId = :versionId AND m.estadoMock = 'ACTIVO'")
     List<APIMockServer> findActiveMocksByVersionId(@Param("versionId") Long versionId);
 
+    /**
+     * Mock con su versión, su API y los creadores (para compilar el contrato y las reglas de acceso fuera de una transacción)
+     */
+    @Query("SELECT m FROM APIMockServer m LEFT JOIN FETCH m.version JOIN FETCH m.api a LEFT JOIN FETCH a.creadoPor " +
+           "LEFT JOIN FETCH m.creadoPor WHERE m.mockServerId = :mockServerId")
+    Optional<APIMockServer> findByIdConVersion(@Param("mockServerId") Long mockServerId);
+
     // =================== BÚSQUEDA POR NOMBRE ===================
 
     Optional<APIMockServer> findByNombreMock(String nombreMock);
@@ -0,0 +1,61 @@
+package org.project.project.repository;
+
+import org.project.project.model.entity.BlobContenido;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BlobContenidoRepository extends JpaRepository<BlobContenido, String> {
+
+    /**
+     * Suma una referencia a un contenido existente
+     * @return 1 si el contenido existe, 0 si hay que subirlo
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE blob_contenido SET referencias = referencias + :cantidad, actualizado_en = NOW() " +
+                   "WHERE hash = :hash", nativeQuery = true)
+    int sumarReferencias(@Param("hash") String hash, @Param("cantidad") int cantidad);
+
+    /**
+     * Resta una referencia (nunca baja de 0; el blob lo reclama la recolección)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE blob_contenido SET referencias = referencias - 1, actualizado_en = NOW() " +
+                   "WHERE hash = :hash AND referencias > 0", nativeQuery = true)
+    int restarReferencia(@Param("hash") String hash);
+
+    /**
+     * Registra un contenido recién subido con una referencia
+     * @return 1 si se insertó, 0 si otra subida lo registró antes
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO blob_contenido (hash, gcs_path, size_bytes, referencias) " +
+                   "VALUES (:hash, :gcsPath, :sizeBytes, 1)", nativeQuery = true)
+    int insertarSiNoExiste(@Param("hash") String hash,
+                           @Param("gcsPath") String gcsPath,
+                           @Param("sizeBytes") long sizeBytes);
+
+    /**
+     * Blobs sin referencias desde antes del límite (candidatos a recolección)
+     */
+    @Query("SELECT b FROM BlobContenido b WHERE b.referencias = 0 AND b.actualizadoEn < :limite")
+    List<BlobContenido> findHuerfanosAntesDe(@Param("limite") LocalDateTime limite);
+
+    /**
+     * Elimina la fila solo si sigue sin referencias (una subida concurrente pudo reutilizarla)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM blob_contenido WHERE hash = :hash AND referencias = 0", nativeQuery = true)
+    int eliminarSiSinReferencias(@Param("hash") String hash);
+}
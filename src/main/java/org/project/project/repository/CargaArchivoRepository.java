@@ -0,0 +1,57 @@
+package org.project.project.repository;
+
+import org.project.project.model.entity.CargaArchivo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CargaArchivoRepository extends JpaRepository<CargaArchivo, String> {
+
+    /**
+     * Avanza la subida solo si nadie escribió otra parte entre medio (bytes_recibidos = esperado)
+     * @return 1 si se actualizó, 0 si otra petición ya avanzó la subida
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE carga_archivo SET bytes_recibidos = :bytesRecibidos, estado_canal = :estadoCanal, " +
+                   "actualizado_en = NOW() " +
+                   "WHERE carga_id = :cargaId AND estado = 'EN_CURSO' AND bytes_recibidos = :bytesAnteriores",
+           nativeQuery = true)
+    int avanzarCarga(@Param("cargaId") String cargaId,
+                     @Param("bytesAnteriores") long bytesAnteriores,
+                     @Param("bytesRecibidos") long bytesRecibidos,
+                     @Param("estadoCanal") byte[] estadoCanal);
+
+    /**
+     * Marca la subida como completada con el nodo creado (solo la primera petición gana)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE carga_archivo SET estado = 'COMPLETADA', nodo_id = :nodoId, estado_canal = NULL, " +
+                   "actualizado_en = NOW() WHERE carga_id = :cargaId AND estado = 'EN_CURSO'",
+           nativeQuery = true)
+    int marcarCompletada(@Param("cargaId") String cargaId, @Param("nodoId") Long nodoId);
+
+    /**
+     * Subidas sin actividad desde la fecha dada (en curso o canceladas)
+     */
+    @Query("SELECT c FROM CargaArchivo c WHERE c.estado <> org.project.project.model.entity.CargaArchivo.EstadoCarga.COMPLETADA " +
+           "AND c.actualizadoEn < :limite")
+    List<CargaArchivo> findInactivasAntesDe(@Param("limite") LocalDateTime limite);
+
+    /**
+     * Elimina las subidas completadas antiguas (ya no se pueden consultar)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM carga_archivo WHERE estado = 'COMPLETADA' AND actualizado_en < :limite",
+           nativeQuery = true)
+    int eliminarCompletadasAntesDe(@Param("limite") LocalDateTime limite);
+}
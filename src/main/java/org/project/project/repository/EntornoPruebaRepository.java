@@ -57,6 +57,11 @@ public interface EntornoPruebaRepository extends JpaRepository<EntornoPrueba, Lo
     @Query("UPDATE EntornoPrueba e SET e.llamadasRealizadas = 0 WHERE e.entornoId = :entornoId")
     void resetCallCount(@Param("entornoId") Long entornoId);
 
+    @Modifying
+    @Transactional
+    @Query("UPDATE EntornoPrueba e SET e.llamadasRealizadas = 0 WHERE e.llamadasRealizadas <> 0")
+    int resetAllCallCounts();
+
     // =================== CAMBIAR ESTADO ===================
 
     @Modifying
@@ -3,11 +3,15 @@ package org.project.project.repository;
 import org.project.project.model.entity.FileOperationJob;
 import org.project.project.model.entity.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -41,6 +45,10 @@ public interface FileOperationJobRepository extends JpaRepository<FileOperationJ
     @Query("SELECT j FROM FileOperationJob j WHERE j.status = 'PENDING' ORDER BY j.createdAt ASC")
     List<FileOperationJob> findPendingJobs();
 
+    // Jobs PENDING creados antes del límite (encolados en una instancia caída o rechazados con la cola llena)
+    @Query("SELECT j FROM FileOperationJob j WHERE j.status = 'PENDING' AND j.createdAt < :limite ORDER BY j.createdAt ASC")
+    List<FileOperationJob> findPendingJobsAntesDe(@Param("limite") LocalDateTime limite);
+
     // Find in-progress jobs
     @Query("SELECT j FROM FileOperationJob j WHERE j.status IN ('PENDING', 'PROCESSING') " +
            "ORDER BY j.createdAt ASC")
@@ -73,4 +81,81 @@ public interface FileOperationJobRepository extends JpaRepository<FileOperationJ
 
     // Método adicional para FileOperationJobService
     List<FileOperationJob> findByUsuarioIdOrderByCreatedAtDesc(Long usuarioId);
+
+    // ===================================================================
+    // MOTOR DE JOBS: actualizaciones condicionales (no pisan un CANCELLED)
+    // ===================================================================
+
+    /**
+     * Toma un job PENDING para procesarlo y lo asigna a la instancia.
+     * Devuelve 0 si otro worker ya lo tomó o fue cancelado
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileOperationJob j SET j.status = 'PROCESSING', j.startedAt = :ahora, j.heartbeatAt = :ahora, " +
+           "j.workerId = :workerId WHERE j.jobId = :jobId AND j.status = 'PENDING'")
+    int reclamarJob(@Param("jobId") Long jobId, @Param("workerId") String workerId,
+                    @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Persiste progreso y heartbeat. Devuelve 0 si el job dejó de estar en PROCESSING (ej: cancelado)
+     * o si ya no pertenece a esta instancia
+     * REQUIRES_NEW: se confirma aunque se invoque dentro de la transacción de un paso del job
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileOperationJob j SET j.processedFiles = :procesados, j.totalFiles = :total, " +
+           "j.progressPercent = :porcentaje, j.heartbeatAt = :ahora " +
+           "WHERE j.jobId = :jobId AND j.status = 'PROCESSING' AND j.workerId = :workerId")
+    int actualizarProgreso(@Param("jobId") Long jobId,
+                           @Param("workerId") String workerId,
+                           @Param("procesados") Integer procesados,
+                           @Param("total") Integer total,
+                           @Param("porcentaje") Integer porcentaje,
+                           @Param("ahora") LocalDateTime ahora);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileOperationJob j SET j.status = 'COMPLETED', j.resultUrl = :resultUrl, j.progressPercent = 100, " +
+           "j.processedFiles = j.totalFiles, j.completedAt = :ahora " +
+           "WHERE j.jobId = :jobId AND j.status = 'PROCESSING' AND j.workerId = :workerId")
+    int marcarCompletado(@Param("jobId") Long jobId, @Param("workerId") String workerId,
+                         @Param("resultUrl") String resultUrl,
+                         @Param("ahora") LocalDateTime ahora);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileOperationJob j SET j.status = 'FAILED', j.errorMessage = :error, j.completedAt = :ahora " +
+           "WHERE j.jobId = :jobId AND j.status = 'PROCESSING' AND j.workerId = :workerId")
+    int marcarFallido(@Param("jobId") Long jobId, @Param("workerId") String workerId,
+                      @Param("error") String error,
+                      @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Latido periódico de los jobs que ejecuta esta instancia (independiente del progreso)
+     * REQUIRES_NEW: no depende de ninguna transacción abierta en el hilo del scheduler
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileOperationJob j SET j.heartbeatAt = :ahora " +
+           "WHERE j.jobId IN :jobIds AND j.status = 'PROCESSING' AND j.workerId = :workerId")
+    int latir(@Param("jobIds") Collection<Long> jobIds, @Param("workerId") String workerId,
+              @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Toma un job huérfano para recuperarlo: solo una instancia lo consigue, y solo si sigue sin latido
+     * Devuelve 0 si otra instancia ya lo recuperó o su worker volvió a latir
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileOperationJob j SET j.workerId = :workerId, j.heartbeatAt = :ahora " +
+           "WHERE j.jobId = :jobId AND j.status = 'PROCESSING' " +
+           "AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :limite)")
+    int reclamarHuerfano(@Param("jobId") Long jobId, @Param("workerId") String workerId,
+                         @Param("limite") LocalDateTime limite, @Param("ahora") LocalDateTime ahora);
+
+    // Jobs en PROCESSING cuyo worker dejó de latir (instancia caída o reiniciada)
+    @Query("SELECT j FROM FileOperationJob j WHERE j.status = 'PROCESSING' " +
+           "AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :limite) ORDER BY j.createdAt ASC")
+    List<FileOperationJob> findHuerfanos(@Param("limite") LocalDateTime limite);
 }
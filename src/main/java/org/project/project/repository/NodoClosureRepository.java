@@ -0,0 +1,51 @@
+package org.project.project.repository;
+
+import org.project.project.model.entity.NodoClosure;
+import org.project.project.model.entity.NodoClosureId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface NodoClosureRepository extends JpaRepository<NodoClosure, NodoClosureId> {
+
+    /**
+     * Indexa un nodo recién creado: su fila propia + una fila por cada ancestro del padre
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO nodo_closure (ancestro_id, descendiente_id, profundidad) " +
+                   "SELECT :nodoId, :nodoId, 0 " +
+                   "UNION ALL " +
+                   "SELECT c.ancestro_id, :nodoId, c.profundidad + 1 FROM nodo_closure c " +
+                   "WHERE c.descendiente_id = :parentId",
+           nativeQuery = true)
+    int indexarNodo(@Param("nodoId") Long nodoId, @Param("parentId") Long parentId);
+
+    /**
+     * Desconecta un subárbol de sus ancestros actuales (las filas internas del subárbol se conservan)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE c FROM nodo_closure c " +
+                   "JOIN nodo_closure sub ON sub.descendiente_id = c.descendiente_id AND sub.ancestro_id = :nodoId " +
+                   "JOIN nodo_closure sup ON sup.ancestro_id = c.ancestro_id AND sup.descendiente_id = :nodoId " +
+                   "WHERE sup.ancestro_id <> :nodoId",
+           nativeQuery = true)
+    int desconectarSubarbol(@Param("nodoId") Long nodoId);
+
+    /**
+     * Conecta un subárbol bajo un nuevo padre (producto cartesiano ancestros del padre x subárbol)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO nodo_closure (ancestro_id, descendiente_id, profundidad) " +
+                   "SELECT sup.ancestro_id, sub.descendiente_id, sup.profundidad + sub.profundidad + 1 " +
+                   "FROM nodo_closure sup JOIN nodo_closure sub " +
+                   "ON sup.descendiente_id = :parentId AND sub.ancestro_id = :nodoId",
+           nativeQuery = true)
+    int conectarSubarbol(@Param("nodoId") Long nodoId, @Param("parentId") Long parentId);
+}
@@ -3,10 +3,13 @@ package org.project.project.repository;
 import org.project.project.model.entity.Nodo;
 import org.project.project.model.entity.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -164,4 +167,205 @@ public interface NodoRepository extends JpaRepository<Nodo, Long> {
      */
     long countByContainerTypeAndContainerIdAndRamaIdAndIsDeletedFalse(
             Nodo.ContainerType containerType, Long containerId, Long ramaId);
+
+    // ===================================================================
+    // OPERACIONES SOBRE SUBÁRBOLES (path materializado)
+    // Los patrones LIKE llegan ya escapados con '!' como carácter de escape
+    // ===================================================================
+
+    /**
+     * Archivos con objeto en GCS dentro de un subárbol
+     * Devuelve [nodoId, path, gcsPath] sin cargar entidades completas
+     */
+    @Query("SELECT n.nodoId, n.path, n.gcsPath FROM Nodo n " +
+           "WHERE n.containerType = :containerType AND n.containerId = :containerId " +
+           "AND (n.ramaId = :ramaId OR (:ramaId IS NULL AND n.ramaId IS NULL)) " +
+           "AND n.path LIKE :patron ESCAPE '!' " +
+           "AND n.tipo = 'ARCHIVO' AND n.gcsPath IS NOT NULL AND n.isDeleted = false")
+    List<Object[]> findArchivosSubarbol(@Param("containerType") Nodo.ContainerType containerType,
+                                        @Param("containerId") Long containerId,
+                                        @Param("ramaId") Long ramaId,
+                                        @Param("patron") String patron);
+
+    /**
+     * Reescribe path y gcs_path de todos los descendientes de una carpeta en un solo UPDATE
+     * Solo dentro de la rama de la carpeta (rama_id null en proyectos): las demás ramas repiten los mismos paths
+     * Solo toca gcs_path cuando sigue el layout estándar (prefijo GCS de la carpeta)
+     * gcs_generation se limpia antes de reescribir gcs_path (MySQL evalúa las asignaciones en orden)
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query(value = "UPDATE nodo SET " +
+                   "path = CONCAT(:pathNuevo, SUBSTRING(path, CHAR_LENGTH(:pathViejo) + 1)), " +
+                   "gcs_generation = CASE WHEN gcs_path LIKE :patronGcs ESCAPE '!' THEN NULL ELSE gcs_generation END, " +
+                   "gcs_path = CASE WHEN gcs_path LIKE :patronGcs ESCAPE '!' " +
+                   "THEN CONCAT(:gcsNuevo, SUBSTRING(gcs_path, CHAR_LENGTH(:gcsViejo) + 1)) ELSE gcs_path END " +
+                   "WHERE container_type = :containerType AND container_id = :containerId " +
+                   "AND rama_id <=> :ramaId " +
+                   "AND path LIKE :patron ESCAPE '!' AND is_deleted = 0",
+           nativeQuery = true)
+    int actualizarPathsSubarbol(@Param("containerType") String containerType,
+                                @Param("containerId") Long containerId,
+                                @Param("ramaId") Long ramaId,
+                                @Param("patron") String patron,
+                                @Param("pathViejo") String pathViejo,
+                                @Param("pathNuevo") String pathNuevo,
+                                @Param("patronGcs") String patronGcs,
+                                @Param("gcsViejo") String gcsViejo,
+                                @Param("gcsNuevo") String gcsNuevo);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Nodo n SET n.gcsPath = :gcsPath, n.gcsGeneration = NULL WHERE n.nodoId = :nodoId")
+    int actualizarGcsPath(@Param("nodoId") Long nodoId, @Param("gcsPath") String gcsPath);
+
+    // ===================================================================
+    // RESOLUCIÓN DE PATHS DE NAVEGACIÓN
+    // ===================================================================
+
+    /**
+     * Resuelve un path materializado (ej: "/src/main/java") a sus nodoId candidatos en una sola consulta
+     * Usa el índice por (container_type, container_id, path). Descarta nodos con algún ancestro
+     * eliminado y, si se indica rama, exige que la carpeta de primer nivel pertenezca a esa rama.
+     * Devuelve como máximo 2 IDs ordenados: más de uno significa que el path es ambiguo
+     * (el mismo path en varias ramas y no se indicó rama)
+     */
+    @Query(value = "SELECT n.nodo_id FROM nodo n " +
+                   "WHERE n.container_type = :containerType AND n.container_id = :containerId " +
+                   "AND n.path = :path AND n.is_deleted = 0 " +
+                   "AND NOT EXISTS (SELECT 1 FROM nodo_closure c JOIN nodo a ON a.nodo_id = c.ancestro_id " +
+                   "                WHERE c.descendiente_id = n.nodo_id AND a.is_deleted = 1) " +
+                   "AND (:ramaId IS NULL OR EXISTS (" +
+                   "     SELECT 1 FROM nodo_closure c JOIN nodo r ON r.nodo_id = c.ancestro_id " +
+                   "     WHERE c.descendiente_id = n.nodo_id AND r.parent_id IS NULL AND r.rama_id = :ramaId)) " +
+                   "ORDER BY n.nodo_id LIMIT 2",
+           nativeQuery = true)
+    List<Long> resolverNodoIdsPorPath(@Param("containerType") String containerType,
+                                         @Param("containerId") Long containerId,
+                                         @Param("path") String path,
+                                         @Param("ramaId") Long ramaId);
+
+    // ===================================================================
+    // CONSULTAS SOBRE LA TABLA DE CLAUSURA (nodo_closure)
+    // ===================================================================
+
+    /**
+     * Ancestros de un nodo (incluido él mismo) ordenados desde la raíz
+     * Vacío si el nodo aún no está indexado en nodo_closure
+     */
+    @Query(value = "SELECT n.* FROM nodo n JOIN nodo_closure c ON c.ancestro_id = n.nodo_id " +
+                   "WHERE c.descendiente_id = :nodoId ORDER BY c.profundidad DESC",
+           nativeQuery = true)
+    List<Nodo> findAncestros(@Param("nodoId") Long nodoId);
+
+    /**
+     * IDs de las carpetas de un subárbol (incluido el propio nodo si es carpeta)
+     */
+    @Query(value = "SELECT c.descendiente_id FROM nodo_closure c JOIN nodo n ON n.nodo_id = c.descendiente_id " +
+                   "WHERE c.ancestro_id = :nodoId AND n.tipo = 'CARPETA'",
+           nativeQuery = true)
+    List<Long> findCarpetasSubarbol(@Param("nodoId") Long nodoId);
+
+    /**
+     * Suma del tamaño de los archivos no eliminados de un subárbol (incluido el propio nodo)
+     */
+    @Query(value = "SELECT COALESCE(SUM(n.size_bytes), 0) FROM nodo n JOIN nodo_closure c ON c.descendiente_id = n.nodo_id " +
+                   "WHERE c.ancestro_id = :nodoId AND n.tipo = 'ARCHIVO' AND n.is_deleted = 0",
+           nativeQuery = true)
+    Long sumarTamanioSubarbol(@Param("nodoId") Long nodoId);
+
+    /**
+     * Guarda la generación GCS leída en la primera descarga
+     * Solo si gcs_path no cambió mientras tanto (un movimiento concurrente la deja en NULL)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE nodo SET gcs_generation = :generacion WHERE nodo_id = :nodoId AND gcs_path = :gcsPath",
+           nativeQuery = true)
+    int guardarGeneracionGcs(@Param("nodoId") Long nodoId,
+                             @Param("gcsPath") String gcsPath,
+                             @Param("generacion") Long generacion);
+
+    /**
+     * Apunta un archivo al almacén direccionado por contenido
+     * Solo si sigue en su ruta anterior (un movimiento concurrente deja la adopción sin efecto)
+     * Limpia el contexto de persistencia para que una lectura posterior vea el nuevo gcs_path
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query(value = "UPDATE nodo SET gcs_path = :gcsPathNuevo, contenido_hash = :hash, gcs_generation = NULL " +
+                   "WHERE nodo_id = :nodoId AND gcs_path = :gcsPathAnterior AND contenido_hash IS NULL",
+           nativeQuery = true)
+    int adoptarContenido(@Param("nodoId") Long nodoId,
+                         @Param("gcsPathAnterior") String gcsPathAnterior,
+                         @Param("gcsPathNuevo") String gcsPathNuevo,
+                         @Param("hash") String hash);
+
+    /**
+     * Referencias al almacén deduplicado que tiene un subárbol (archivos y sus versiones),
+     * una fila por referencia: se liberan antes de borrarlo definitivamente
+     */
+    @Query(value = "SELECT n.contenido_hash FROM nodo n " +
+                   "JOIN nodo_closure c ON c.descendiente_id = n.nodo_id " +
+                   "WHERE c.ancestro_id = :nodoId AND n.contenido_hash IS NOT NULL " +
+                   "UNION ALL " +
+                   "SELECT v.checksum FROM version_archivo v " +
+                   "JOIN nodo_closure c ON c.descendiente_id = v.nodo_id " +
+                   "JOIN blob_contenido b ON b.hash = v.checksum AND b.gcs_path = v.storage_key " +
+                   "WHERE c.ancestro_id = :nodoId",
+           nativeQuery = true)
+    List<String> findReferenciasContenidoSubarbol(@Param("nodoId") Long nodoId);
+
+    /**
+     * IDs de un subárbol (incluido el propio nodo) bloqueando sus filas hasta el fin de la transacción:
+     * una restauración concurrente espera a que termine la purga
+     */
+    @Query(value = "SELECT n.nodo_id FROM nodo n " +
+                   "JOIN nodo_closure c ON c.descendiente_id = n.nodo_id " +
+                   "WHERE c.ancestro_id = :nodoId FOR UPDATE",
+           nativeQuery = true)
+    List<Long> findIdsSubarbolParaBorrar(@Param("nodoId") Long nodoId);
+
+    /**
+     * Nodos no eliminados de un subárbol (lectura actual, tras findIdsSubarbolParaBorrar)
+     */
+    @Query(value = "SELECT COUNT(*) FROM nodo n " +
+                   "JOIN nodo_closure c ON c.descendiente_id = n.nodo_id " +
+                   "WHERE c.ancestro_id = :nodoId AND n.is_deleted = 0 FOR UPDATE",
+           nativeQuery = true)
+    long contarNoEliminadosSubarbol(@Param("nodoId") Long nodoId);
+
+    /**
+     * Borra definitivamente los nodos indicados (clausura, versiones, permisos, tags y enlaces caen en cascada)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query(value = "DELETE FROM nodo WHERE nodo_id IN (:ids)", nativeQuery = true)
+    int borrarPorIds(@Param("ids") List<Long> ids);
+
+    /**
+     * Raíces de subárboles en la papelera desde antes del límite: nodos eliminados cuyo padre no es
+     * a su vez candidato (la purga del padre ya incluye al hijo)
+     */
+    @Query(value = "SELECT n.nodo_id FROM nodo n " +
+                   "LEFT JOIN nodo p ON p.nodo_id = n.parent_id " +
+                   "WHERE n.is_deleted = 1 AND n.deleted_at < :limite " +
+                   "AND (p.nodo_id IS NULL OR p.is_deleted = 0 OR p.deleted_at IS NULL OR p.deleted_at >= :limite) " +
+                   "ORDER BY n.deleted_at LIMIT :lote",
+           nativeQuery = true)
+    List<Long> findRaicesEnPapeleraAntesDe(@Param("limite") LocalDateTime limite, @Param("lote") int lote);
+
+    /**
+     * Foto de varios subárboles en una sola consulta (copiar/pegar), ordenada por profundidad
+     * para que cada padre aparezca antes que sus hijos
+     * Devuelve [raizId, nodoId, parentId, nombre, tipo, sizeBytes, mimeType, gcsPath, gcsGeneration,
+     * contenidoHash, containerType, containerId]
+     */
+    @Query(value = "SELECT c.ancestro_id, n.nodo_id, n.parent_id, n.nombre, n.tipo, n.size_bytes, n.mime_type, " +
+                   "n.gcs_path, n.gcs_generation, n.contenido_hash, n.container_type, n.container_id " +
+                   "FROM nodo_closure c JOIN nodo n ON n.nodo_id = c.descendiente_id " +
+                   "WHERE c.ancestro_id IN (:raices) AND n.is_deleted = 0 " +
+                   "ORDER BY c.profundidad, n.nodo_id",
+           nativeQuery = true)
+    List<Object[]> findSubarbolesParaCopia(@Param("raices") List<Long> raices);
 }
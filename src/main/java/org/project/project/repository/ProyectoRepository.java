@@ -3,6 +3,7 @@ package org.project.project.repository;
 import org.project.project.model.entity.Proyecto;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -58,4 +59,23 @@ public interface ProyectoRepository extends JpaRepository<Proyecto, Long> {
     // Usando el campo createdBy que es de tipo Usuario (relación ManyToOne)
     // Se usa el patrón Property_Field para acceder al ID del Usuario relacionado
     List<Proyecto> findByCreatedBy_UsuarioId(Long usuarioId);
+
+    // =================== EXPORTACIÓN (KEYSET) ===================
+
+    /**
+     * Página de proyectos para la exportación en streaming, ordenada por id (keyset: proyecto_id > despuesDe)
+     * usuarioId NULL = toda la plataforma (SA)
+     * [proyecto_id, nombre, propietario, propietario_nombre, estado, visibilidad, fecha_inicio, fecha_fin]
+     */
+    @Query(value = "SELECT p.proyecto_id, p.nombre_proyecto, p.propietario_proyecto, p.propietario_nombre, " +
+                   "p.estado_proyecto, p.visibilidad_proyecto, p.fecha_inicio_proyecto, p.fecha_fin_proyecto " +
+                   "FROM proyecto p " +
+                   "WHERE p.proyecto_id > :despuesDe " +
+                   "AND (:usuarioId IS NULL OR EXISTS (SELECT 1 FROM usuario_has_proyecto uhp " +
+                   "     WHERE uhp.proyecto_proyecto_id = p.proyecto_id AND uhp.usuario_usuario_id = :usuarioId)) " +
+                   "ORDER BY p.proyecto_id LIMIT :limite",
+           nativeQuery = true)
+    List<Object[]> findPaginaExportacion(@Param("usuarioId") Long usuarioId,
+                                         @Param("despuesDe") Long despuesDe,
+                                         @Param("limite") int limite);
 }
@@ -2,9 +2,11 @@ package org.project.project.repository;
 
 import org.project.project.model.entity.ReporteAdjunto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -23,8 +25,53 @@ public interface ReporteAdjuntoRepository extends JpaRepository<ReporteAdjunto,
     List<ReporteAdjunto> findByReporte_ReporteIdOrderByOrdenVisualizacionAsc(Long reporteId);
     
     /**
-     * Obtener un adjunto completo incluyendo contenido binario (para descarga)
+     * Obtener un adjunto por ID (la entidad no mapea contenido_archivo: ver ReporteService.escribirContenidoAdjunto)
      */
     @Query("SELECT a FROM ReporteAdjunto a WHERE a.adjuntoId = :adjuntoId")
     Optional<ReporteAdjunto> findByIdWithContent(@Param("adjuntoId") Long adjuntoId);
+
+    // =================== MIGRACIÓN DE BLOBs AL STORAGE ===================
+
+    /**
+     * Indica si el adjunto conserva su binario en contenido_archivo (pendiente de migrar)
+     */
+    @Query(value = "SELECT COUNT(*) FROM reporte_adjunto WHERE adjunto_id = :adjuntoId AND contenido_archivo IS NOT NULL",
+           nativeQuery = true)
+    long countContenidoHeredado(@Param("adjuntoId") Long adjuntoId);
+
+    /**
+     * Siguiente lote de adjuntos con BLOB pendientes de migrar, por keyset (adjunto_id > despuesDe)
+     * [adjunto_id, reporte_id, nombre_archivo, tipo_mime, subido_en, subido_por, LENGTH(contenido_archivo)]
+     */
+    @Query(value = "SELECT adjunto_id, reporte_id, nombre_archivo, tipo_mime, subido_en, subido_por, " +
+                   "LENGTH(contenido_archivo) " +
+                   "FROM reporte_adjunto " +
+                   "WHERE adjunto_id > :despuesDe AND contenido_archivo IS NOT NULL " +
+                   "AND (gcs_migrado IS NULL OR gcs_migrado = 0) " +
+                   "ORDER BY adjunto_id LIMIT :limite",
+           nativeQuery = true)
+    List<Object[]> findPendientesMigracion(@Param("despuesDe") Long despuesDe, @Param("limite") int limite);
+
+    @Query(value = "SELECT COUNT(*) FROM reporte_adjunto " +
+                   "WHERE contenido_archivo IS NOT NULL AND (gcs_migrado IS NULL OR gcs_migrado = 0)",
+           nativeQuery = true)
+    long countPendientesMigracion();
+
+    /**
+     * Marca el adjunto como migrado y libera el BLOB. Solo actúa si sigue pendiente
+     * (otra instancia pudo migrarlo antes; la ruta es la misma, así que no queda nada huérfano)
+     * @return 1 si se marcó, 0 si ya estaba migrado
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE reporte_adjunto SET gcs_migrado = 1, contenido_archivo = NULL, " +
+                   "gcs_file_id = :gcsFileId, gcs_bucket_name = :bucket, gcs_file_path = :gcsFilePath, " +
+                   "gcs_file_size_bytes = :tamanio, ruta_archivo = :gcsFilePath " +
+                   "WHERE adjunto_id = :adjuntoId AND (gcs_migrado IS NULL OR gcs_migrado = 0)",
+           nativeQuery = true)
+    int marcarMigrado(@Param("adjuntoId") Long adjuntoId,
+                      @Param("gcsFileId") String gcsFileId,
+                      @Param("bucket") String bucket,
+                      @Param("gcsFilePath") String gcsFilePath,
+                      @Param("tamanio") Long tamanio);
 }
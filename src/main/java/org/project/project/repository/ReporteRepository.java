@@ -3,9 +3,11 @@ package org.project.project.repository;
 import org.project.project.model.entity.Reporte;
 import org.project.project.model.entity.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -207,6 +209,20 @@ public interface ReporteRepository extends JpaRepository<Reporte, Long> {
            "AND r.autor.usuarioId != :usuarioId " +
            "AND r.estadoReporte != 'BORRADOR'")
     long countReceivedReportsByUserId(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Visibilidad de un reporte: su autor siempre; una vez enviado (no BORRADOR), sus destinatarios
+     * y, si revisor es true, cualquier revisor
+     */
+    @Query("SELECT COUNT(r) > 0 FROM Reporte r " +
+           "WHERE r.reporteId = :reporteId " +
+           "AND (r.autor.usuarioId = :usuarioId " +
+           "     OR (r.estadoReporte != 'BORRADOR' " +
+           "         AND (:revisor = true OR EXISTS (SELECT 1 FROM UsuarioHasReporte uhr " +
+           "              WHERE uhr.reporte.reporteId = r.reporteId AND uhr.usuario.usuarioId = :usuarioId))))")
+    boolean esVisiblePara(@Param("reporteId") Long reporteId,
+                          @Param("usuarioId") Long usuarioId,
+                          @Param("revisor") boolean revisor);
     
     /**
      * Contar reportes por tipo (para métricas dinámicas)
@@ -215,4 +231,18 @@ public interface ReporteRepository extends JpaRepository<Reporte, Long> {
            "WHERE r.autor.usuarioId = :usuarioId " +
            "AND r.tipoReporte = :tipo")
     long countByTipoAndAutor(@Param("usuarioId") Long usuarioId, @Param("tipo") Reporte.TipoReporte tipo);
+
+    /**
+     * Fecha de última modificación de un reporte (versión del PDF renderizado), sin cargar la entidad
+     */
+    @Query("SELECT COALESCE(r.actualizadoEn, r.creadoEn) FROM Reporte r WHERE r.reporteId = :reporteId")
+    Optional<LocalDateTime> findActualizadoEnById(@Param("reporteId") Long reporteId);
+
+    /**
+     * Marca un reporte como modificado (p. ej. al cambiar sus adjuntos) para invalidar su PDF renderizado
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Reporte r SET r.actualizadoEn = :fecha WHERE r.reporteId = :reporteId")
+    int marcarActualizado(@Param("reporteId") Long reporteId, @Param("fecha") LocalDateTime fecha);
 }
@@ -3,6 +3,7 @@ package org.project.project.repository;
 import org.project.project.model.entity.Repositorio;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -37,4 +38,24 @@ public interface RepositorioRepository extends JpaRepository<Repositorio, Long>
     
     // Contar por visibilidad
     long countByRepositoryVisibility(String visibilidad);
+
+    // =================== EXPORTACIÓN (KEYSET) ===================
+
+    /**
+     * Página de repositorios para la exportación en streaming, ordenada por id (keyset: repositorio_id > despuesDe)
+     * usuarioId NULL = toda la plataforma (SA); si no, los creados por el usuario o con acceso (como el dashboard)
+     * [repositorio_id, nombre, tipo, visibilidad, rama_principal, fecha_creacion, last_activity_at, size_bytes]
+     */
+    @Query(value = "SELECT r.repositorio_id, r.nombre_repositorio, r.tipo_repositorio, r.visibilidad_repositorio, " +
+                   "r.rama_principal_repositorio, r.fecha_creacion, r.last_activity_at, r.size_bytes " +
+                   "FROM repositorio r " +
+                   "WHERE r.repositorio_id > :despuesDe " +
+                   "AND (:usuarioId IS NULL OR r.creado_por_usuario_id = :usuarioId " +
+                   "     OR EXISTS (SELECT 1 FROM usuario_has_repositorio uhr " +
+                   "                WHERE uhr.repositorio_repositorio_id = r.repositorio_id AND uhr.usuario_usuario_id = :usuarioId)) " +
+                   "ORDER BY r.repositorio_id LIMIT :limite",
+           nativeQuery = true)
+    List<Object[]> findPaginaExportacion(@Param("usuarioId") Long usuarioId,
+                                         @Param("despuesDe") Long despuesDe,
+                                         @Param("limite") int limite);
 }
@@ -203,4 +203,86 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
            "FROM Ticket t WHERE t.asignadoA IS NULL " +
            "ORDER BY t.fechaCreacion DESC")
     List<AvailableTicketView> findAvailableByAsignadoAIsNull();
+
+    /**
+     * Conteos de tickets del usuario (reportados + asignados) en una sola consulta:
+     * [total, ENVIADO, RECIBIDO, EN_PROGRESO, RESUELTO, CERRADO, RECHAZADO, BAJA, MEDIA, ALTA]
+     * Un ticket reportado y asignado al mismo usuario cuenta dos veces (igual que el dashboard original)
+     */
+    @Query(value = "SELECT COUNT(*), " +
+                   "COALESCE(SUM(t.estado_ticket = 'ENVIADO'), 0), " +
+                   "COALESCE(SUM(t.estado_ticket = 'RECIBIDO'), 0), " +
+                   "COALESCE(SUM(t.estado_ticket = 'EN_PROGRESO'), 0), " +
+                   "COALESCE(SUM(t.estado_ticket = 'RESUELTO'), 0), " +
+                   "COALESCE(SUM(t.estado_ticket = 'CERRADO'), 0), " +
+                   "COALESCE(SUM(t.estado_ticket = 'RECHAZADO'), 0), " +
+                   "COALESCE(SUM(t.prioridad_ticket = 'BAJA'), 0), " +
+                   "COALESCE(SUM(t.prioridad_ticket = 'MEDIA'), 0), " +
+                   "COALESCE(SUM(t.prioridad_ticket = 'ALTA'), 0) " +
+                   "FROM (SELECT estado_ticket, prioridad_ticket FROM ticket WHERE reportado_por_usuario_id = :usuarioId " +
+                   "      UNION ALL " +
+                   "      SELECT estado_ticket, prioridad_ticket FROM ticket WHERE asignado_a_usuario_id = :usuarioId) t",
+           nativeQuery = true)
+    List<Object[]> agregarEstadisticasTickets(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Página de tickets para la exportación en streaming, ordenada por id (keyset: ticket_id > despuesDe)
+     * usuarioId NULL = toda la plataforma (SA); si no, los reportados por o asignados al usuario
+     * [ticket_id, asunto, tipo, estado, etapa, prioridad, fecha_creacion, fecha_cierre, proyecto_id, reportado_por, asignado_a]
+     */
+    @Query(value = "SELECT t.ticket_id, t.asunto_ticket, t.tipo_ticket, t.estado_ticket, t.etapa_ticket, " +
+                   "t.prioridad_ticket, t.fecha_creacion, t.fecha_cierre, t.proyecto_id, ur.username, ua.username " +
+                   "FROM ticket t " +
+                   "JOIN usuario ur ON ur.usuario_id = t.reportado_por_usuario_id " +
+                   "LEFT JOIN usuario ua ON ua.usuario_id = t.asignado_a_usuario_id " +
+                   "WHERE t.ticket_id > :despuesDe " +
+                   "AND (:usuarioId IS NULL OR t.reportado_por_usuario_id = :usuarioId OR t.asignado_a_usuario_id = :usuarioId) " +
+                   "ORDER BY t.ticket_id LIMIT :limite",
+           nativeQuery = true)
+    List<Object[]> findPaginaExportacion(@Param("usuarioId") Long usuarioId,
+                                         @Param("despuesDe") Long despuesDe,
+                                         @Param("limite") int limite);
+
+    // =================== PAGINACIÓN POR CURSOR (keyset) ===================
+    // Orden fecha_creacion DESC, ticket_id DESC. cursorFecha/cursorId son los del último ticket de la página
+    // anterior (null en la primera); el Pageable solo aporta el límite (PageRequest.of(0, n)): sin OFFSET ni COUNT
+
+    @Query("SELECT t FROM Ticket t WHERE (t.reportadoPor.usuarioId = :userId OR t.asignadoA.usuarioId = :userId) " +
+           "AND (:cursorId IS NULL OR t.fechaCreacion < :cursorFecha " +
+           "     OR (t.fechaCreacion = :cursorFecha AND t.ticketId < :cursorId)) " +
+           "ORDER BY t.fechaCreacion DESC, t.ticketId DESC")
+    List<Ticket> findPaginaPorUsuario(@Param("userId") Long userId,
+                                      @Param("cursorFecha") LocalDateTime cursorFecha,
+                                      @Param("cursorId") Long cursorId,
+                                      Pageable limite);
+
+    @Query("SELECT t FROM Ticket t WHERE t.reportadoPor.usuarioId = :userId " +
+           "AND (:cursorId IS NULL OR t.fechaCreacion < :cursorFecha " +
+           "     OR (t.fechaCreacion = :cursorFecha AND t.ticketId < :cursorId)) " +
+           "ORDER BY t.fechaCreacion DESC, t.ticketId DESC")
+    List<Ticket> findPaginaReportadosPor(@Param("userId") Long userId,
+                                         @Param("cursorFecha") LocalDateTime cursorFecha,
+                                         @Param("cursorId") Long cursorId,
+                                         Pageable limite);
+
+    @Query("SELECT t FROM Ticket t WHERE t.asignadoA.usuarioId = :userId " +
+           "AND (:cursorId IS NULL OR t.fechaCreacion < :cursorFecha " +
+           "     OR (t.fechaCreacion = :cursorFecha AND t.ticketId < :cursorId)) " +
+           "ORDER BY t.fechaCreacion DESC, t.ticketId DESC")
+    List<Ticket> findPaginaAsignadosA(@Param("userId") Long userId,
+                                      @Param("cursorFecha") LocalDateTime cursorFecha,
+                                      @Param("cursorId") Long cursorId,
+                                      Pageable limite);
+
+    @Query("SELECT t FROM Ticket t WHERE t.proyecto.proyectoId = :proyectoId " +
+           "AND (:cursorId IS NULL OR t.fechaCreacion < :cursorFecha " +
+           "     OR (t.fechaCreacion = :cursorFecha AND t.ticketId < :cursorId)) " +
+           "ORDER BY t.fechaCreacion DESC, t.ticketId DESC")
+    List<Ticket> findPaginaPorProyecto(@Param("proyectoId") Long proyectoId,
+                                       @Param("cursorFecha") LocalDateTime cursorFecha,
+                                       @Param("cursorId") Long cursorId,
+                                       Pageable limite);
+
+    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.reportadoPor.usuarioId = :userId OR t.asignadoA.usuarioId = :userId")
+    long countAllByUserId(@Param("userId") Long userId);
 }
@@ -123,4 +123,24 @@ public interface UsuarioHasProyectoRepository extends JpaRepository<UsuarioHasPr
     // Encontrar proyectos sin administradores
     @Query("SELECT p FROM Proyecto p WHERE p.proyectoId NOT IN (SELECT uhp.id.proyectoId FROM UsuarioHasProyecto uhp WHERE uhp.privilegio = 'ADMIN')")
     List<Proyecto> findProjectsWithoutAdmins();
-}
\ No newline at end of file
+
+    // =================== AGREGADOS PARA DASHBOARD ===================
+
+    /**
+     * Conteos de los proyectos del usuario en una sola consulta:
+     * [total, USUARIO, GRUPO, EMPRESA, PLANEADO, EN_DESARROLLO, MANTENIMIENTO, CERRADO]
+     */
+    @Query(value = "SELECT COUNT(*), " +
+                   "COALESCE(SUM(p.propietario_proyecto = 'USUARIO'), 0), " +
+                   "COALESCE(SUM(p.propietario_proyecto = 'GRUPO'), 0), " +
+                   "COALESCE(SUM(p.propietario_proyecto = 'EMPRESA'), 0), " +
+                   "COALESCE(SUM(p.estado_proyecto = 'PLANEADO'), 0), " +
+                   "COALESCE(SUM(p.estado_proyecto = 'EN_DESARROLLO'), 0), " +
+                   "COALESCE(SUM(p.estado_proyecto = 'MANTENIMIENTO'), 0), " +
+                   "COALESCE(SUM(p.estado_proyecto = 'CERRADO'), 0) " +
+                   "FROM usuario_has_proyecto uhp " +
+                   "JOIN proyecto p ON p.proyecto_id = uhp.proyecto_proyecto_id " +
+                   "WHERE uhp.usuario_usuario_id = :usuarioId",
+           nativeQuery = true)
+    List<Object[]> agregarEstadisticasProyectos(@Param("usuarioId") Long usuarioId);
+}
@@ -137,4 +137,26 @@ public interface UsuarioHasRepositorioRepository extends JpaRepository<UsuarioHa
     // Encontrar repositorios sin editores
     @Query("SELECT r FROM Repositorio r WHERE r.repositorioId NOT IN (SELECT uhr.id.repositorioId FROM UsuarioHasRepositorio uhr WHERE uhr.privilegio = 'EDITOR')")
     List<Repositorio> findRepositoriesWithoutEditors();
-}
\ No newline at end of file
+
+    // =================== AGREGADOS PARA DASHBOARD ===================
+
+    /**
+     * Conteos de los repositorios del usuario en una sola consulta:
+     * [total (creados o con acceso), EDITOR, LECTOR, PUBLICO, PRIVADO]
+     * El total sigue el mismo criterio que "I-am-part-of" (RepositorioQueryService.findAllMyRepositories)
+     */
+    @Query(value = "SELECT " +
+                   "(SELECT COUNT(*) FROM repositorio r2 WHERE r2.creado_por_usuario_id = :usuarioId " +
+                   "   OR EXISTS (SELECT 1 FROM usuario_has_repositorio x " +
+                   "              WHERE x.repositorio_repositorio_id = r2.repositorio_id " +
+                   "              AND x.usuario_usuario_id = :usuarioId)), " +
+                   "COALESCE(SUM(uhr.privilegio_usuario_repositorio = 'EDITOR'), 0), " +
+                   "COALESCE(SUM(uhr.privilegio_usuario_repositorio = 'LECTOR'), 0), " +
+                   "COALESCE(SUM(r.visibilidad_repositorio = 'PUBLICO'), 0), " +
+                   "COALESCE(SUM(r.visibilidad_repositorio = 'PRIVADO'), 0) " +
+                   "FROM usuario_has_repositorio uhr " +
+                   "JOIN repositorio r ON r.repositorio_id = uhr.repositorio_repositorio_id " +
+                   "WHERE uhr.usuario_usuario_id = :usuarioId",
+           nativeQuery = true)
+    List<Object[]> agregarEstadisticasRepositorios(@Param("usuarioId") Long usuarioId);
+}
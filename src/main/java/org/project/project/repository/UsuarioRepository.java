@@ -27,6 +27,10 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     
     Optional<Usuario> findByCorreo(String correo);
     Optional<Usuario> findByUsername(String username);
+
+    // Usuario con sus roles inicializados (para el resumen cacheado de UsuarioCacheService)
+    @Query("SELECT DISTINCT u FROM Usuario u LEFT JOIN FETCH u.roles WHERE u.username = :username")
+    Optional<Usuario> findByUsernameConRoles(@Param("username") String username);
     Optional<Usuario> findByProviderAndProviderId(String proveedor, String idProveedor);
     Optional<Usuario> findByCodigoUsuario(String codigoUsuario);
     
@@ -17,4 +17,15 @@ public interface VersionAPIRepository extends JpaRepository<VersionAPI, Long> {
      */
     @Query("SELECT DISTINCT v.api.apiId FROM VersionAPI v WHERE v.creadoPorUsuarioId = :userId")
     List<Long> findDistinctApiIdsByCreatorId(@Param("userId") Long userId);
+
+    /**
+     * Última versión de las APIs con más suscripciones: [version_id, contrato_api_url]
+     * Usado para precargar la caché de contratos al arrancar
+     */
+    @Query(value = "SELECT v.version_id, v.contrato_api_url FROM version_api v " +
+            "JOIN (SELECT s.api_api_id, COUNT(*) AS total FROM api_suscripcion s " +
+            "      GROUP BY s.api_api_id ORDER BY total DESC LIMIT :limite) p ON p.api_api_id = v.api_api_id " +
+            "WHERE v.fecha_lanzamiento = (SELECT MAX(v2.fecha_lanzamiento) FROM version_api v2 WHERE v2.api_api_id = v.api_api_id) " +
+            "ORDER BY p.total DESC", nativeQuery = true)
+    List<Object[]> findContratosDeApisPopulares(@Param("limite") int limite);
 }
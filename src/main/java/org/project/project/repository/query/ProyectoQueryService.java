@@ -340,4 +340,330 @@ public interface ProyectoQueryService extends JpaRepository<Proyecto, Long> {
         @Param("limit") int limit,
         @Param("offset") int offset
     );
-}
\ No newline at end of file
+
+    // =================== CONSULTAS PAGINADAS POR CURSOR (keyset) ===================
+    // Mismos filtros que las consultas paginadas; la posición es (clave de orden, proyecto_id) del último
+    // elemento devuelto en lugar de OFFSET. Cada sección tiene una query por orden (name, oldest, recent)
+    // para que MySQL recorra el índice (clave de orden, proyecto_id) en lugar de ordenar con CASE;
+    // find*Keyset elige la query según el orden ya normalizado. :cursorId/:cursorValor son null en la primera página.
+
+    String KEYSET_POR_NOMBRE = """
+        AND (:cursorId IS NULL OR (p.nombre_proyecto, p.proyecto_id) > (:cursorValor, :cursorId))
+        ORDER BY p.nombre_proyecto ASC, p.proyecto_id ASC
+        LIMIT :limit
+    """;
+
+    String KEYSET_MAS_ANTIGUOS = """
+        AND (:cursorId IS NULL OR (p.fecha_inicio_proyecto, p.proyecto_id) > (:cursorValor, :cursorId))
+        ORDER BY p.fecha_inicio_proyecto ASC, p.proyecto_id ASC
+        LIMIT :limit
+    """;
+
+    String KEYSET_MAS_RECIENTES = """
+        AND (:cursorId IS NULL OR (p.fecha_inicio_proyecto, p.proyecto_id) < (:cursorValor, :cursorId))
+        ORDER BY p.fecha_inicio_proyecto DESC, p.proyecto_id DESC
+        LIMIT :limit
+    """;
+
+    /**
+     * ✅ CURSOR: Proyectos personales
+     */
+    String PROYECTOS_PERSONALES_KEYSET = """
+        SELECT DISTINCT p.*
+        FROM proyecto p
+        INNER JOIN usuario_has_proyecto up ON p.proyecto_id = up.proyecto_proyecto_id
+        LEFT JOIN categoria_has_proyecto chp ON p.proyecto_id = chp.proyecto_proyecto_id
+        LEFT JOIN categoria c ON chp.categoria_id_categoria = c.id_categoria
+        WHERE up.usuario_usuario_id = :userId
+        AND p.propietario_proyecto = 'USUARIO'
+        AND (:category IS NULL OR :category = '' OR c.nombre_categoria = :category)
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(p.nombre_proyecto) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(p.descripcion_proyecto) LIKE LOWER(CONCAT('%', :search, '%')))
+    """;
+
+    default List<Proyecto> findPersonalProjectsKeyset(Long userId, String category, String search, String sort,
+            String cursorValor, Long cursorId, int limit) {
+        return switch (sort) {
+            case "name" -> findPersonalProjectsKeysetByName(userId, category, search, cursorValor, cursorId, limit);
+            case "oldest" -> findPersonalProjectsKeysetByOldest(userId, category, search, cursorValor, cursorId, limit);
+            default -> findPersonalProjectsKeysetByRecent(userId, category, search, cursorValor, cursorId, limit);
+        };
+    }
+
+    @Query(value = PROYECTOS_PERSONALES_KEYSET + KEYSET_POR_NOMBRE, nativeQuery = true)
+    List<Proyecto> findPersonalProjectsKeysetByName(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = PROYECTOS_PERSONALES_KEYSET + KEYSET_MAS_ANTIGUOS, nativeQuery = true)
+    List<Proyecto> findPersonalProjectsKeysetByOldest(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = PROYECTOS_PERSONALES_KEYSET + KEYSET_MAS_RECIENTES, nativeQuery = true)
+    List<Proyecto> findPersonalProjectsKeysetByRecent(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT COUNT(DISTINCT p.proyecto_id)
+        FROM proyecto p
+        INNER JOIN usuario_has_proyecto up ON p.proyecto_id = up.proyecto_proyecto_id
+        LEFT JOIN categoria_has_proyecto chp ON p.proyecto_id = chp.proyecto_proyecto_id
+        LEFT JOIN categoria c ON chp.categoria_id_categoria = c.id_categoria
+        WHERE up.usuario_usuario_id = :userId
+        AND p.propietario_proyecto = 'USUARIO'
+        AND (:category IS NULL OR :category = '' OR c.nombre_categoria = :category)
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(p.nombre_proyecto) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(p.descripcion_proyecto) LIKE LOWER(CONCAT('%', :search, '%')))
+    """, nativeQuery = true)
+    long countPersonalProjects(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search
+    );
+
+    /**
+     * ✅ CURSOR: Proyectos de equipos
+     */
+    String PROYECTOS_EQUIPO_KEYSET = """
+        SELECT DISTINCT p.*
+        FROM proyecto p
+        INNER JOIN usuario_has_proyecto uhp ON p.proyecto_id = uhp.proyecto_proyecto_id
+        LEFT JOIN categoria_has_proyecto chp ON p.proyecto_id = chp.proyecto_proyecto_id
+        LEFT JOIN categoria c ON chp.categoria_id_categoria = c.id_categoria
+        WHERE uhp.usuario_usuario_id = :userId
+        AND p.propietario_proyecto != 'USUARIO'
+        AND (:category IS NULL OR :category = '' OR c.nombre_categoria = :category)
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(p.nombre_proyecto) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(p.descripcion_proyecto) LIKE LOWER(CONCAT('%', :search, '%')))
+    """;
+
+    default List<Proyecto> findTeamProjectsKeyset(Long userId, String category, String search, String sort,
+            String cursorValor, Long cursorId, int limit) {
+        return switch (sort) {
+            case "name" -> findTeamProjectsKeysetByName(userId, category, search, cursorValor, cursorId, limit);
+            case "oldest" -> findTeamProjectsKeysetByOldest(userId, category, search, cursorValor, cursorId, limit);
+            default -> findTeamProjectsKeysetByRecent(userId, category, search, cursorValor, cursorId, limit);
+        };
+    }
+
+    @Query(value = PROYECTOS_EQUIPO_KEYSET + KEYSET_POR_NOMBRE, nativeQuery = true)
+    List<Proyecto> findTeamProjectsKeysetByName(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = PROYECTOS_EQUIPO_KEYSET + KEYSET_MAS_ANTIGUOS, nativeQuery = true)
+    List<Proyecto> findTeamProjectsKeysetByOldest(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = PROYECTOS_EQUIPO_KEYSET + KEYSET_MAS_RECIENTES, nativeQuery = true)
+    List<Proyecto> findTeamProjectsKeysetByRecent(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT COUNT(DISTINCT p.proyecto_id)
+        FROM proyecto p
+        INNER JOIN usuario_has_proyecto uhp ON p.proyecto_id = uhp.proyecto_proyecto_id
+        LEFT JOIN categoria_has_proyecto chp ON p.proyecto_id = chp.proyecto_proyecto_id
+        LEFT JOIN categoria c ON chp.categoria_id_categoria = c.id_categoria
+        WHERE uhp.usuario_usuario_id = :userId
+        AND p.propietario_proyecto != 'USUARIO'
+        AND (:category IS NULL OR :category = '' OR c.nombre_categoria = :category)
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(p.nombre_proyecto) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(p.descripcion_proyecto) LIKE LOWER(CONCAT('%', :search, '%')))
+    """, nativeQuery = true)
+    long countTeamProjects(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search
+    );
+
+    /**
+     * ✅ CURSOR: Proyectos donde participo (personales + equipos)
+     */
+    String PROYECTOS_PARTICIPO_KEYSET = """
+        SELECT DISTINCT p.*
+        FROM proyecto p
+        INNER JOIN usuario_has_proyecto uhp ON p.proyecto_id = uhp.proyecto_proyecto_id
+        LEFT JOIN categoria_has_proyecto chp ON p.proyecto_id = chp.proyecto_proyecto_id
+        LEFT JOIN categoria c ON chp.categoria_id_categoria = c.id_categoria
+        WHERE uhp.usuario_usuario_id = :userId
+        AND (:category IS NULL OR :category = '' OR c.nombre_categoria = :category)
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(p.nombre_proyecto) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(p.descripcion_proyecto) LIKE LOWER(CONCAT('%', :search, '%')))
+    """;
+
+    default List<Proyecto> findParticipatingProjectsKeyset(Long userId, String category, String search, String sort,
+            String cursorValor, Long cursorId, int limit) {
+        return switch (sort) {
+            case "name" -> findParticipatingProjectsKeysetByName(userId, category, search, cursorValor, cursorId, limit);
+            case "oldest" -> findParticipatingProjectsKeysetByOldest(userId, category, search, cursorValor, cursorId, limit);
+            default -> findParticipatingProjectsKeysetByRecent(userId, category, search, cursorValor, cursorId, limit);
+        };
+    }
+
+    @Query(value = PROYECTOS_PARTICIPO_KEYSET + KEYSET_POR_NOMBRE, nativeQuery = true)
+    List<Proyecto> findParticipatingProjectsKeysetByName(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = PROYECTOS_PARTICIPO_KEYSET + KEYSET_MAS_ANTIGUOS, nativeQuery = true)
+    List<Proyecto> findParticipatingProjectsKeysetByOldest(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = PROYECTOS_PARTICIPO_KEYSET + KEYSET_MAS_RECIENTES, nativeQuery = true)
+    List<Proyecto> findParticipatingProjectsKeysetByRecent(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT COUNT(DISTINCT p.proyecto_id)
+        FROM proyecto p
+        INNER JOIN usuario_has_proyecto uhp ON p.proyecto_id = uhp.proyecto_proyecto_id
+        LEFT JOIN categoria_has_proyecto chp ON p.proyecto_id = chp.proyecto_proyecto_id
+        LEFT JOIN categoria c ON chp.categoria_id_categoria = c.id_categoria
+        WHERE uhp.usuario_usuario_id = :userId
+        AND (:category IS NULL OR :category = '' OR c.nombre_categoria = :category)
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(p.nombre_proyecto) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(p.descripcion_proyecto) LIKE LOWER(CONCAT('%', :search, '%')))
+    """, nativeQuery = true)
+    long countParticipatingProjects(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search
+    );
+
+    /**
+     * ✅ CURSOR: Otros proyectos
+     */
+    String OTROS_PROYECTOS_KEYSET = """
+        SELECT DISTINCT p.*
+        FROM proyecto p
+        LEFT JOIN categoria_has_proyecto chp ON p.proyecto_id = chp.proyecto_proyecto_id
+        LEFT JOIN categoria c ON chp.categoria_id_categoria = c.id_categoria
+        WHERE NOT EXISTS (
+            SELECT 1 FROM usuario_has_proyecto uhp 
+            WHERE uhp.proyecto_proyecto_id = p.proyecto_id 
+            AND uhp.usuario_usuario_id = :userId
+        )
+        AND (:category IS NULL OR :category = '' OR c.nombre_categoria = :category)
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(p.nombre_proyecto) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(p.descripcion_proyecto) LIKE LOWER(CONCAT('%', :search, '%')))
+    """;
+
+    default List<Proyecto> findOtherProjectsKeyset(Long userId, String category, String search, String sort,
+            String cursorValor, Long cursorId, int limit) {
+        return switch (sort) {
+            case "name" -> findOtherProjectsKeysetByName(userId, category, search, cursorValor, cursorId, limit);
+            case "oldest" -> findOtherProjectsKeysetByOldest(userId, category, search, cursorValor, cursorId, limit);
+            default -> findOtherProjectsKeysetByRecent(userId, category, search, cursorValor, cursorId, limit);
+        };
+    }
+
+    @Query(value = OTROS_PROYECTOS_KEYSET + KEYSET_POR_NOMBRE, nativeQuery = true)
+    List<Proyecto> findOtherProjectsKeysetByName(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = OTROS_PROYECTOS_KEYSET + KEYSET_MAS_ANTIGUOS, nativeQuery = true)
+    List<Proyecto> findOtherProjectsKeysetByOldest(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = OTROS_PROYECTOS_KEYSET + KEYSET_MAS_RECIENTES, nativeQuery = true)
+    List<Proyecto> findOtherProjectsKeysetByRecent(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT COUNT(DISTINCT p.proyecto_id)
+        FROM proyecto p
+        LEFT JOIN categoria_has_proyecto chp ON p.proyecto_id = chp.proyecto_proyecto_id
+        LEFT JOIN categoria c ON chp.categoria_id_categoria = c.id_categoria
+        WHERE NOT EXISTS (
+            SELECT 1 FROM usuario_has_proyecto uhp 
+            WHERE uhp.proyecto_proyecto_id = p.proyecto_id 
+            AND uhp.usuario_usuario_id = :userId
+        )
+        AND (:category IS NULL OR :category = '' OR c.nombre_categoria = :category)
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(p.nombre_proyecto) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(p.descripcion_proyecto) LIKE LOWER(CONCAT('%', :search, '%')))
+    """, nativeQuery = true)
+    long countOtherProjects(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search
+    );
+}
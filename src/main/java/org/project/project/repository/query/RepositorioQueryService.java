@@ -448,6 +448,350 @@ public interface RepositorioQueryService extends JpaRepository<Repositorio, Long
         WHERE r.repositorioId IN :repositoryIds
     """)
     List<Repositorio> findByIdsWithRelations(@Param("repositoryIds") List<Long> repositoryIds);
-    
 
-}
\ No newline at end of file
+    // =================== CONSULTAS PAGINADAS POR CURSOR (keyset) ===================
+    // Mismos filtros que las consultas paginadas; la posición es (clave de orden, repositorio_id) del último
+    // elemento devuelto en lugar de OFFSET. Cada sección tiene una query por orden (name, oldest, recent)
+    // para que MySQL recorra el índice (clave de orden, repositorio_id) en lugar de ordenar con CASE;
+    // find*Keyset elige la query según el orden ya normalizado. :cursorId/:cursorValor son null en la primera página.
+
+    String KEYSET_POR_NOMBRE = """
+        AND (:cursorId IS NULL OR (r.nombre_repositorio, r.repositorio_id) > (:cursorValor, :cursorId))
+        ORDER BY r.nombre_repositorio ASC, r.repositorio_id ASC
+        LIMIT :limit
+    """;
+
+    String KEYSET_MAS_ANTIGUOS = """
+        AND (:cursorId IS NULL OR (r.fecha_creacion, r.repositorio_id) > (:cursorValor, :cursorId))
+        ORDER BY r.fecha_creacion ASC, r.repositorio_id ASC
+        LIMIT :limit
+    """;
+
+    String KEYSET_MAS_RECIENTES = """
+        AND (:cursorId IS NULL OR (r.fecha_creacion, r.repositorio_id) < (:cursorValor, :cursorId))
+        ORDER BY r.fecha_creacion DESC, r.repositorio_id DESC
+        LIMIT :limit
+    """;
+
+    /**
+     * ✅ CURSOR: Repositorios personales
+     */
+    String REPOSITORIOS_PERSONALES_KEYSET = """
+        SELECT r.* FROM repositorio r
+        WHERE r.tipo_repositorio = 'PERSONAL'
+        AND (r.creado_por_usuario_id = :userId OR 
+             EXISTS (SELECT 1 FROM usuario_has_repositorio ur 
+                     WHERE ur.repositorio_repositorio_id = r.repositorio_id 
+                     AND ur.usuario_usuario_id = :userId))
+        AND (:category IS NULL OR :category = '' OR 
+             EXISTS (SELECT 1 FROM categoria_has_repositorio cr 
+                     INNER JOIN categoria c ON cr.categoria_id_categoria = c.id_categoria 
+                     WHERE cr.repositorio_repositorio_id = r.repositorio_id 
+                     AND c.nombre_categoria = :category))
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(r.nombre_repositorio) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(r.descripcion_repositorio) LIKE LOWER(CONCAT('%', :search, '%')))
+    """;
+
+    default List<Repositorio> findPersonalRepositoriesKeyset(Long userId, String category, String search, String sort,
+            String cursorValor, Long cursorId, int limit) {
+        return switch (sort) {
+            case "name" -> findPersonalRepositoriesKeysetByName(userId, category, search, cursorValor, cursorId, limit);
+            case "oldest" -> findPersonalRepositoriesKeysetByOldest(userId, category, search, cursorValor, cursorId, limit);
+            default -> findPersonalRepositoriesKeysetByRecent(userId, category, search, cursorValor, cursorId, limit);
+        };
+    }
+
+    @Query(value = REPOSITORIOS_PERSONALES_KEYSET + KEYSET_POR_NOMBRE, nativeQuery = true)
+    List<Repositorio> findPersonalRepositoriesKeysetByName(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = REPOSITORIOS_PERSONALES_KEYSET + KEYSET_MAS_ANTIGUOS, nativeQuery = true)
+    List<Repositorio> findPersonalRepositoriesKeysetByOldest(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = REPOSITORIOS_PERSONALES_KEYSET + KEYSET_MAS_RECIENTES, nativeQuery = true)
+    List<Repositorio> findPersonalRepositoriesKeysetByRecent(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT COUNT(*) FROM repositorio r
+        WHERE r.tipo_repositorio = 'PERSONAL'
+        AND (r.creado_por_usuario_id = :userId OR 
+             EXISTS (SELECT 1 FROM usuario_has_repositorio ur 
+                     WHERE ur.repositorio_repositorio_id = r.repositorio_id 
+                     AND ur.usuario_usuario_id = :userId))
+        AND (:category IS NULL OR :category = '' OR 
+             EXISTS (SELECT 1 FROM categoria_has_repositorio cr 
+                     INNER JOIN categoria c ON cr.categoria_id_categoria = c.id_categoria 
+                     WHERE cr.repositorio_repositorio_id = r.repositorio_id 
+                     AND c.nombre_categoria = :category))
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(r.nombre_repositorio) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(r.descripcion_repositorio) LIKE LOWER(CONCAT('%', :search, '%')))
+    """, nativeQuery = true)
+    long countPersonalRepositories(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search
+    );
+
+    /**
+     * ✅ CURSOR: Repositorios colaborativos
+     */
+    String REPOSITORIOS_COLABORATIVOS_KEYSET = """
+        SELECT r.* FROM repositorio r
+        WHERE r.tipo_repositorio = 'COLABORATIVO'
+        AND (r.creado_por_usuario_id = :userId OR 
+             EXISTS (SELECT 1 FROM usuario_has_repositorio ur 
+                     WHERE ur.repositorio_repositorio_id = r.repositorio_id 
+                     AND ur.usuario_usuario_id = :userId))
+        AND (:category IS NULL OR :category = '' OR 
+             EXISTS (SELECT 1 FROM categoria_has_repositorio cr 
+                     INNER JOIN categoria c ON cr.categoria_id_categoria = c.id_categoria 
+                     WHERE cr.repositorio_repositorio_id = r.repositorio_id 
+                     AND c.nombre_categoria = :category))
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(r.nombre_repositorio) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(r.descripcion_repositorio) LIKE LOWER(CONCAT('%', :search, '%')))
+    """;
+
+    default List<Repositorio> findCollaborativeRepositoriesKeyset(Long userId, String category, String search, String sort,
+            String cursorValor, Long cursorId, int limit) {
+        return switch (sort) {
+            case "name" -> findCollaborativeRepositoriesKeysetByName(userId, category, search, cursorValor, cursorId, limit);
+            case "oldest" -> findCollaborativeRepositoriesKeysetByOldest(userId, category, search, cursorValor, cursorId, limit);
+            default -> findCollaborativeRepositoriesKeysetByRecent(userId, category, search, cursorValor, cursorId, limit);
+        };
+    }
+
+    @Query(value = REPOSITORIOS_COLABORATIVOS_KEYSET + KEYSET_POR_NOMBRE, nativeQuery = true)
+    List<Repositorio> findCollaborativeRepositoriesKeysetByName(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = REPOSITORIOS_COLABORATIVOS_KEYSET + KEYSET_MAS_ANTIGUOS, nativeQuery = true)
+    List<Repositorio> findCollaborativeRepositoriesKeysetByOldest(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = REPOSITORIOS_COLABORATIVOS_KEYSET + KEYSET_MAS_RECIENTES, nativeQuery = true)
+    List<Repositorio> findCollaborativeRepositoriesKeysetByRecent(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT COUNT(*) FROM repositorio r
+        WHERE r.tipo_repositorio = 'COLABORATIVO'
+        AND (r.creado_por_usuario_id = :userId OR 
+             EXISTS (SELECT 1 FROM usuario_has_repositorio ur 
+                     WHERE ur.repositorio_repositorio_id = r.repositorio_id 
+                     AND ur.usuario_usuario_id = :userId))
+        AND (:category IS NULL OR :category = '' OR 
+             EXISTS (SELECT 1 FROM categoria_has_repositorio cr 
+                     INNER JOIN categoria c ON cr.categoria_id_categoria = c.id_categoria 
+                     WHERE cr.repositorio_repositorio_id = r.repositorio_id 
+                     AND c.nombre_categoria = :category))
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(r.nombre_repositorio) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(r.descripcion_repositorio) LIKE LOWER(CONCAT('%', :search, '%')))
+    """, nativeQuery = true)
+    long countCollaborativeRepositories(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search
+    );
+
+    /**
+     * ✅ CURSOR: Todos mis repositorios (personal + colaborativo)
+     */
+    String MIS_REPOSITORIOS_KEYSET = """
+        SELECT r.* FROM repositorio r
+        WHERE (r.creado_por_usuario_id = :userId OR 
+             EXISTS (SELECT 1 FROM usuario_has_repositorio ur 
+                     WHERE ur.repositorio_repositorio_id = r.repositorio_id 
+                     AND ur.usuario_usuario_id = :userId))
+        AND (:category IS NULL OR :category = '' OR 
+             EXISTS (SELECT 1 FROM categoria_has_repositorio cr 
+                     INNER JOIN categoria c ON cr.categoria_id_categoria = c.id_categoria 
+                     WHERE cr.repositorio_repositorio_id = r.repositorio_id 
+                     AND c.nombre_categoria = :category))
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(r.nombre_repositorio) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(r.descripcion_repositorio) LIKE LOWER(CONCAT('%', :search, '%')))
+    """;
+
+    default List<Repositorio> findAllMyRepositoriesKeyset(Long userId, String category, String search, String sort,
+            String cursorValor, Long cursorId, int limit) {
+        return switch (sort) {
+            case "name" -> findAllMyRepositoriesKeysetByName(userId, category, search, cursorValor, cursorId, limit);
+            case "oldest" -> findAllMyRepositoriesKeysetByOldest(userId, category, search, cursorValor, cursorId, limit);
+            default -> findAllMyRepositoriesKeysetByRecent(userId, category, search, cursorValor, cursorId, limit);
+        };
+    }
+
+    @Query(value = MIS_REPOSITORIOS_KEYSET + KEYSET_POR_NOMBRE, nativeQuery = true)
+    List<Repositorio> findAllMyRepositoriesKeysetByName(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = MIS_REPOSITORIOS_KEYSET + KEYSET_MAS_ANTIGUOS, nativeQuery = true)
+    List<Repositorio> findAllMyRepositoriesKeysetByOldest(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = MIS_REPOSITORIOS_KEYSET + KEYSET_MAS_RECIENTES, nativeQuery = true)
+    List<Repositorio> findAllMyRepositoriesKeysetByRecent(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT COUNT(*) FROM repositorio r
+        WHERE (r.creado_por_usuario_id = :userId OR 
+             EXISTS (SELECT 1 FROM usuario_has_repositorio ur 
+                     WHERE ur.repositorio_repositorio_id = r.repositorio_id 
+                     AND ur.usuario_usuario_id = :userId))
+        AND (:category IS NULL OR :category = '' OR 
+             EXISTS (SELECT 1 FROM categoria_has_repositorio cr 
+                     INNER JOIN categoria c ON cr.categoria_id_categoria = c.id_categoria 
+                     WHERE cr.repositorio_repositorio_id = r.repositorio_id 
+                     AND c.nombre_categoria = :category))
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(r.nombre_repositorio) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(r.descripcion_repositorio) LIKE LOWER(CONCAT('%', :search, '%')))
+    """, nativeQuery = true)
+    long countAllMyRepositories(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search
+    );
+
+    /**
+     * ✅ CURSOR: Otros repositorios (TODOS, públicos y privados)
+     */
+    String OTROS_REPOSITORIOS_KEYSET = """
+        SELECT r.* FROM repositorio r
+        WHERE r.creado_por_usuario_id != :userId
+        AND r.repositorio_id NOT IN (
+            SELECT ur.repositorio_repositorio_id FROM usuario_has_repositorio ur 
+            WHERE ur.usuario_usuario_id = :userId
+        )
+        AND (:category IS NULL OR :category = '' OR 
+             EXISTS (SELECT 1 FROM categoria_has_repositorio cr 
+                     INNER JOIN categoria c ON cr.categoria_id_categoria = c.id_categoria 
+                     WHERE cr.repositorio_repositorio_id = r.repositorio_id 
+                     AND c.nombre_categoria = :category))
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(r.nombre_repositorio) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(r.descripcion_repositorio) LIKE LOWER(CONCAT('%', :search, '%')))
+    """;
+
+    default List<Repositorio> findOtherRepositoriesKeyset(Long userId, String category, String search, String sort,
+            String cursorValor, Long cursorId, int limit) {
+        return switch (sort) {
+            case "name" -> findOtherRepositoriesKeysetByName(userId, category, search, cursorValor, cursorId, limit);
+            case "oldest" -> findOtherRepositoriesKeysetByOldest(userId, category, search, cursorValor, cursorId, limit);
+            default -> findOtherRepositoriesKeysetByRecent(userId, category, search, cursorValor, cursorId, limit);
+        };
+    }
+
+    @Query(value = OTROS_REPOSITORIOS_KEYSET + KEYSET_POR_NOMBRE, nativeQuery = true)
+    List<Repositorio> findOtherRepositoriesKeysetByName(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = OTROS_REPOSITORIOS_KEYSET + KEYSET_MAS_ANTIGUOS, nativeQuery = true)
+    List<Repositorio> findOtherRepositoriesKeysetByOldest(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = OTROS_REPOSITORIOS_KEYSET + KEYSET_MAS_RECIENTES, nativeQuery = true)
+    List<Repositorio> findOtherRepositoriesKeysetByRecent(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search,
+        @Param("cursorValor") String cursorValor,
+        @Param("cursorId") Long cursorId,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT COUNT(*) FROM repositorio r
+        WHERE r.creado_por_usuario_id != :userId
+        AND r.repositorio_id NOT IN (
+            SELECT ur.repositorio_repositorio_id FROM usuario_has_repositorio ur 
+            WHERE ur.usuario_usuario_id = :userId
+        )
+        AND (:category IS NULL OR :category = '' OR 
+             EXISTS (SELECT 1 FROM categoria_has_repositorio cr 
+                     INNER JOIN categoria c ON cr.categoria_id_categoria = c.id_categoria 
+                     WHERE cr.repositorio_repositorio_id = r.repositorio_id 
+                     AND c.nombre_categoria = :category))
+        AND (:search IS NULL OR :search = '' 
+             OR LOWER(r.nombre_repositorio) LIKE LOWER(CONCAT('%', :search, '%')) 
+             OR LOWER(r.descripcion_repositorio) LIKE LOWER(CONCAT('%', :search, '%')))
+    """, nativeQuery = true)
+    long countOtherRepositories(
+        @Param("userId") Long userId,
+        @Param("category") String category,
+        @Param("search") String search
+    );
+}
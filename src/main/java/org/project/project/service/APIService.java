@@ -24,6 +24,9 @@ import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 import org.springframework.web.multipart.MultipartFile;
 
 @Slf4j
@@ -46,6 +49,9 @@ public class APIService {
     @Autowired
     private VersionAPIRepository versionAPIRepository;
 
+    @Autowired
+    private ContratoApiCacheService contratoApiCacheService;
+
     @Autowired
     private UsuarioRepository usuarioRepository;
 
@@ -86,6 +92,15 @@ public class APIService {
         return apiRepository.findAll();
     }
 
+    /**
+     * Carga varias APIs respetando el orden de los IDs (p. ej. ranking de BusquedaService)
+     */
+    public List<API> listarApisPorIds(List<Long> ids) {
+        Map<Long, API> porId = apiRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(API::getApiId, api -> api));
+        return ids.stream().map(porId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
     public API buscarApiPorId(Long id) {
         return apiRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("API no encontrada con id: " + id));
@@ -452,6 +467,10 @@ public class APIService {
             versionAPI = versionAPIRepository.save(versionAPI);
             log.info("✅ VersionAPI actualizada con URL del contrato");
 
+            // El contrato ya está validado y parseado: la primera vista lo sirve desde caché
+            contratoApiCacheService.registrar(versionAPI.getVersionId(), gcsPath, dto.getContratoYaml(),
+                    validationResult.getOpenAPI());
+
             // 13. Crear Enlace para el contrato (usando API como contexto ya que VERSION_API no existe en la BD)
             Enlace enlaceContrato = new Enlace();
             enlaceContrato.setDireccionAlmacenamiento(gcsPath);
@@ -0,0 +1,329 @@
+package org.project.project.service;
+
+import org.project.project.model.entity.BlobContenido;
+import org.project.project.model.entity.Nodo;
+import org.project.project.repository.BlobContenidoRepository;
+import org.project.project.repository.NodoRepository;
+import org.project.project.repository.ProyectoHasRepositorioRepository;
+import org.project.project.service.storage.MetadatosBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Almacén de archivos direccionado por contenido (deduplicación)
+ *
+ * - Cada contenido distinto se guarda una sola vez en contenido/sha256/{aa}/{hash}
+ * - blob_contenido.referencias cuenta los nodos y versiones que apuntan al blob
+ * - Copiar, pegar y versionar un archivo direccionado solo suma una referencia (sin tocar GCS)
+ * - Renombrar y mover no mueven el objeto; eliminar conserva la referencia (restaurable) hasta que
+ *   PapeleraNodosService purga el nodo
+ * - La recolección elimina los blobs sin referencias tras un período de gracia (permite restaurar)
+ * Los archivos anteriores (contenido_hash NULL) mantienen su objeto por ruta hasta ser adoptados.
+ */
+@Service
+public class AlmacenContenidoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlmacenContenidoService.class);
+
+    private static final int BLOQUE_LECTURA = 256 * 1024;
+
+    @Autowired
+    private BlobContenidoRepository blobContenidoRepository;
+
+    @Autowired
+    private NodoRepository nodoRepository;
+
+    @Autowired
+    private ProyectoHasRepositorioRepository proyectoHasRepositorioRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private GCSConfigService gcsConfigService;
+
+    @Value("${files.contenido.gc-gracia-horas:72}")
+    private int graciaHoras;
+
+    /**
+     * Contenido registrado en el almacén (ya con una referencia a cargo del llamador)
+     * @param generacion Generación del objeto en GCS (null si el contenido ya existía)
+     * @param duplicado true si el contenido ya estaba almacenado y no se subió nada
+     */
+    public record ContenidoAlmacenado(String hash, String gcsPath, long tamanio, Long generacion, boolean duplicado) {}
+
+    /**
+     * Almacena un archivo multipart: el hash se calcula sobre el temporal de Tomcat y solo se sube
+     * a GCS si el contenido no existía
+     */
+    public ContenidoAlmacenado almacenar(MultipartFile file) throws IOException {
+        MessageDigest digest = nuevoDigest();
+        try (InputStream entrada = new DigestInputStream(file.getInputStream(), digest)) {
+            entrada.transferTo(OutputStream.nullOutputStream());
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+
+        BlobContenido existente = retenerExistente(hash);
+        if (existente != null) {
+            logger.debug("♻️ [CONTENIDO] {} ya almacenado ({} bytes), sin subida", hash, file.getSize());
+            return new ContenidoAlmacenado(hash, existente.getGcsPath(), existente.getSizeBytes(), null, true);
+        }
+
+        String rutaContenido = gcsConfigService.construirRutaContenido(hash);
+        MetadatosBlob blob = fileStorageService.subirArchivo(file, rutaContenido, null);
+        registrarNuevo(hash, rutaContenido, file.getSize());
+        return new ContenidoAlmacenado(hash, rutaContenido, file.getSize(), blob.generacion(), false);
+    }
+
+    /**
+     * Contenido que se puede abrir más de una vez (entrada de un ZIP en disco, archivo temporal)
+     */
+    @FunctionalInterface
+    public interface FuenteContenido {
+        InputStream abrir() throws IOException;
+    }
+
+    /**
+     * Almacena un contenido releíble: una primera lectura local calcula el hash y solo si el
+     * contenido es nuevo se vuelve a abrir para subirlo directo a su ruta de contenido
+     */
+    public ContenidoAlmacenado almacenar(FuenteContenido fuente, long tamanio, String contentType) throws IOException {
+        MessageDigest digest = nuevoDigest();
+        try (InputStream entrada = new DigestInputStream(fuente.abrir(), digest)) {
+            entrada.transferTo(OutputStream.nullOutputStream());
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+
+        BlobContenido existente = retenerExistente(hash);
+        if (existente != null) {
+            return new ContenidoAlmacenado(hash, existente.getGcsPath(), existente.getSizeBytes(), null, true);
+        }
+
+        String rutaContenido = gcsConfigService.construirRutaContenido(hash);
+        MetadatosBlob blob;
+        try (InputStream entrada = fuente.abrir()) {
+            blob = fileStorageService.subirArchivoDesdeStream(entrada, rutaContenido, contentType, tamanio);
+        }
+        registrarNuevo(hash, rutaContenido, tamanio);
+        return new ContenidoAlmacenado(hash, rutaContenido, tamanio, blob != null ? blob.generacion() : null, false);
+    }
+
+    /**
+     * Almacena un stream que no se puede releer: se sube a una ruta temporal calculando el hash
+     * mientras se transmite y luego se copia (del lado del servidor) a su ruta de contenido
+     */
+    public ContenidoAlmacenado almacenar(InputStream contenido, String contentType) throws IOException {
+        String rutaTemporal = gcsConfigService.construirRutaTemporal("contenido-" + UUID.randomUUID(), "upload");
+        MessageDigest digest = nuevoDigest();
+        MetadatosBlob temporal;
+        try (InputStream entrada = new DigestInputStream(contenido, digest)) {
+            temporal = fileStorageService.subirArchivoDesdeStream(entrada, rutaTemporal, contentType, -1);
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        try {
+            return registrarDesdeObjeto(hash, rutaTemporal, temporal.tamanio() != null ? temporal.tamanio() : 0L);
+        } finally {
+            fileStorageService.eliminarArchivoDeGCS(rutaTemporal);
+        }
+    }
+
+    /**
+     * Suma una referencia a un contenido (copiar/pegar, nueva versión, restaurar)
+     * @return false si el contenido ya no existe en el almacén
+     */
+    public boolean retener(String hash) {
+        return retener(hash, 1);
+    }
+
+    /**
+     * Suma varias referencias a un contenido en un solo UPDATE (copias masivas)
+     * @return false si el contenido ya no existe en el almacén
+     */
+    public boolean retener(String hash, int referencias) {
+        return hash != null && blobContenidoRepository.sumarReferencias(hash, referencias) == 1;
+    }
+
+    /**
+     * Resta una referencia; el blob se elimina en la recolección si queda sin referencias
+     */
+    public void liberar(String hash) {
+        if (hash != null) {
+            blobContenidoRepository.restarReferencia(hash);
+        }
+    }
+
+    /**
+     * Indica si un nodo apunta al almacén direccionado por contenido
+     */
+    public static boolean esDireccionado(Nodo nodo) {
+        return nodo != null && nodo.getContenidoHash() != null;
+    }
+
+    // =================== ADOPCIÓN DE ARCHIVOS EXISTENTES ===================
+
+    /**
+     * Adopta en segundo plano un archivo con objeto propio (subidas por partes, archivos anteriores)
+     */
+    @Async("fileOperationExecutor")
+    public void adoptarEnSegundoPlano(Long nodoId) {
+        try {
+            adoptar(nodoId);
+        } catch (Exception e) {
+            logger.warn("⚠️ [CONTENIDO] No se pudo adoptar el nodo {}: {}", nodoId, e.getMessage());
+        }
+    }
+
+    /**
+     * Incorpora un archivo con objeto propio al almacén: lee el objeto una vez para calcular el hash,
+     * lo registra (o reutiliza el existente), reapunta el nodo y elimina el objeto anterior y sus
+     * copias en proyectos
+     * @return true si el nodo quedó direccionado por contenido
+     */
+    public boolean adoptar(Long nodoId) throws IOException {
+        Nodo nodo = nodoRepository.findById(nodoId).orElse(null);
+        if (nodo == null || nodo.getTipo() != Nodo.TipoNodo.ARCHIVO
+                || esDireccionado(nodo) || nodo.getGcsPath() == null) {
+            return esDireccionado(nodo);
+        }
+
+        String rutaAnterior = nodo.getGcsPath();
+        MetadatosBlob blob = fileStorageService.obtenerBlob(rutaAnterior);
+        if (blob == null) {
+            return false;
+        }
+        long tamanio = blob.tamanio() != null ? blob.tamanio() : 0L;
+
+        MessageDigest digest = nuevoDigest();
+        if (tamanio > 0) {
+            try (ReadableByteChannel canal = fileStorageService.abrirCanalRango(
+                    rutaAnterior, blob.generacion(), 0, tamanio - 1, BLOQUE_LECTURA * 8)) {
+                try (InputStream entrada = new DigestInputStream(Channels.newInputStream(canal), digest)) {
+                    entrada.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+
+        ContenidoAlmacenado contenido = registrarDesdeObjeto(hash, rutaAnterior, tamanio);
+        if (nodoRepository.adoptarContenido(nodoId, rutaAnterior, contenido.gcsPath(), hash) == 0) {
+            // El nodo se movió o cambió mientras tanto: se devuelve la referencia
+            liberar(hash);
+            return false;
+        }
+
+        fileStorageService.eliminarArchivoDeGCS(rutaAnterior, blob.generacion());
+        eliminarCopiasEnProyectos(nodo);
+        logger.info("♻️ [CONTENIDO] Nodo {} adoptado -> {} ({})", nodoId, hash,
+                contenido.duplicado() ? "duplicado" : "nuevo");
+        return true;
+    }
+
+    // =================== RECOLECCIÓN ===================
+
+    /**
+     * Elimina los blobs sin referencias desde hace más de gc-gracia-horas
+     * La fila se borra solo si sigue en 0 y el objeto solo si no fue reescrito (precondición de generación),
+     * así una subida concurrente del mismo contenido nunca pierde su objeto
+     */
+    @Scheduled(initialDelayString = "${files.contenido.gc-initial-delay-ms:120000}",
+               fixedDelayString = "${files.contenido.gc-interval-ms:3600000}")
+    public void recolectarHuerfanos() {
+        List<BlobContenido> huerfanos = blobContenidoRepository.findHuerfanosAntesDe(
+                LocalDateTime.now().minusHours(graciaHoras));
+        int eliminados = 0;
+        for (BlobContenido huerfano : huerfanos) {
+            try {
+                MetadatosBlob blob = fileStorageService.obtenerBlob(huerfano.getGcsPath());
+                if (blobContenidoRepository.eliminarSiSinReferencias(huerfano.getHash()) == 0) {
+                    continue;
+                }
+                if (blob != null) {
+                    fileStorageService.eliminarArchivoDeGCS(huerfano.getGcsPath(), blob.generacion());
+                }
+                eliminados++;
+            } catch (Exception e) {
+                logger.warn("⚠️ [CONTENIDO] No se pudo recolectar {}: {}", huerfano.getHash(), e.getMessage());
+            }
+        }
+        if (eliminados > 0) {
+            logger.info("🧹 [CONTENIDO] {} blob(s) sin referencias eliminados", eliminados);
+        }
+    }
+
+    // =================== AUXILIARES ===================
+
+    private BlobContenido retenerExistente(String hash) {
+        if (blobContenidoRepository.sumarReferencias(hash, 1) == 0) {
+            return null;
+        }
+        return blobContenidoRepository.findById(hash).orElse(null);
+    }
+
+    /**
+     * Registra el contenido de un objeto ya subido: si el hash existe suma una referencia,
+     * si no copia el objeto a su ruta de contenido (copia del lado del servidor)
+     */
+    private ContenidoAlmacenado registrarDesdeObjeto(String hash, String rutaOrigen, long tamanio) {
+        BlobContenido existente = retenerExistente(hash);
+        if (existente != null) {
+            return new ContenidoAlmacenado(hash, existente.getGcsPath(), existente.getSizeBytes(), null, true);
+        }
+        String rutaContenido = gcsConfigService.construirRutaContenido(hash);
+        MetadatosBlob copia = fileStorageService.copiarArchivo(rutaOrigen, rutaContenido);
+        registrarNuevo(hash, rutaContenido, tamanio);
+        return new ContenidoAlmacenado(hash, rutaContenido, tamanio, copia.generacion(), false);
+    }
+
+    private void registrarNuevo(String hash, String rutaContenido, long tamanio) {
+        if (blobContenidoRepository.insertarSiNoExiste(hash, rutaContenido, tamanio) == 0) {
+            // Otra subida del mismo contenido lo registró primero
+            blobContenidoRepository.sumarReferencias(hash, 1);
+        }
+        logger.debug("📦 [CONTENIDO] Nuevo contenido {} ({} bytes)", hash, tamanio);
+    }
+
+    /**
+     * Las copias por ruta en proyectos (sincronización dual) dejan de ser necesarias
+     * una vez que el archivo está en el almacén compartido
+     */
+    private void eliminarCopiasEnProyectos(Nodo nodo) {
+        if (nodo.getContainerType() != Nodo.ContainerType.REPOSITORIO) {
+            return;
+        }
+        proyectoHasRepositorioRepository.findById_RepositoryId(nodo.getContainerId()).forEach(phr -> {
+            try {
+                fileStorageService.eliminarArchivoDeGCS(
+                        gcsConfigService.construirRutaGCS(nodo, phr.getProject().getProyectoId()));
+            } catch (Exception e) {
+                logger.debug("⚠️ [CONTENIDO] Copia en proyecto no eliminada: {}", e.getMessage());
+            }
+        });
+    }
+
+    private MessageDigest nuevoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -1,63 +1,42 @@
 package org.project.project.service;
 
-import com.google.auth.oauth2.GoogleCredentials;
-import com.google.cloud.storage.*;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
+import org.project.project.service.storage.BlobStore;
+import org.project.project.service.storage.MetadatosBlob;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 public class ApiContractStorageService {
 
-    private final Storage storage;
+    private final BlobStore blobStore;
     private final String bucketName;
 
-    public ApiContractStorageService(
-            @Value("${devportal.storage.bucket-name}") String bucketName) {
+    public ApiContractStorageService(@Qualifier("devportalBlobStore") BlobStore blobStore) {
+        this.blobStore = blobStore;
+        this.bucketName = blobStore.getNombre();
+        log.info("✅ Initialized ApiContractStorageService with bucket: {}", bucketName);
+
+        // Test basic connectivity
         try {
-            log.info("Initializing Google Cloud Storage with explicit credentials...");
-            
-            // Load credentials directly from classpath
-            InputStream credentialsStream = new ClassPathResource("devportal-storage-key.json").getInputStream();
-            GoogleCredentials credentials = GoogleCredentials.fromStream(credentialsStream)
-                    .createScoped(Collections.singletonList("https://www.googleapis.com/auth/devstorage.read_write"));
-            
-            // Create storage instance with explicit credentials
-            this.storage = StorageOptions.newBuilder()
-                    .setCredentials(credentials)
-                    .setProjectId("devportal-storage")
-                    .build()
-                    .getService();
-            
-            this.bucketName = bucketName;
-            log.info("✅ Initialized ApiContractStorageService with bucket: {}", bucketName);
-            
-            // Test basic connectivity
-            try {
-                Bucket bucket = storage.get(bucketName);
-                if (bucket != null) {
-                    log.info("✅ Successfully connected to bucket: {}", bucketName);
-                } else {
-                    log.warn("⚠️ Bucket {} not found or not accessible", bucketName);
-                }
-            } catch (Exception e) {
-                log.error("❌ Error accessing bucket {}: {}", bucketName, e.getMessage());
+            if (blobStore.disponible()) {
+                log.info("✅ Successfully connected to bucket: {}", bucketName);
+            } else {
+                log.warn("⚠️ Bucket {} not found or not accessible", bucketName);
             }
         } catch (Exception e) {
-            log.error("❌ Failed to initialize Google Cloud Storage: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to initialize GCS service", e);
+            log.error("❌ Error accessing bucket {}: {}", bucketName, e.getMessage());
         }
     }
 
@@ -71,21 +50,16 @@ public class ApiContractStorageService {
             String fileName = generateFileName(apiId, version);
             log.info("Generated filename: {}", fileName);
             
-            BlobId blobId = BlobId.of(bucketName, fileName);
-            log.info("Created BlobId for bucket: {} file: {}", bucketName, fileName);
-            
-            BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                    .setContentType("text/plain")
-                    .setMetadata(java.util.Map.of(
-                            "api_id", apiId.toString(),
-                            "version", version,
-                            "upload_time", LocalDateTime.now().toString()
-                    ))
-                    .build();
-
-            log.info("Attempting to create blob in GCS...");
-            Blob blob = storage.create(blobInfo, contractContent.getBytes(StandardCharsets.UTF_8));
-            log.info("✅ Blob created successfully with name: {}", blob.getName());
+            java.util.Map<String, String> metadatos = java.util.Map.of(
+                    "api_id", apiId.toString(),
+                    "version", version,
+                    "upload_time", LocalDateTime.now().toString()
+            );
+
+            log.info("Attempting to create blob in bucket {}...", bucketName);
+            MetadatosBlob blob = blobStore.guardar(fileName, contractContent.getBytes(StandardCharsets.UTF_8),
+                    "text/plain", metadatos);
+            log.info("✅ Blob created successfully with name: {}", blob.ruta());
             
             String publicUrl = String.format("gs://%s/%s", bucketName, fileName);
             log.info("✅ Successfully saved API contract: {}", publicUrl);
@@ -105,18 +79,16 @@ public class ApiContractStorageService {
         try {
             String fileName = generateFileName(apiId, version, file.getOriginalFilename());
             
-            BlobId blobId = BlobId.of(bucketName, fileName);
-            BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                    .setContentType(file.getContentType())
-                    .setMetadata(java.util.Map.of(
-                            "api_id", apiId.toString(),
-                            "version", version,
-                            "original_name", file.getOriginalFilename(),
-                            "upload_time", LocalDateTime.now().toString()
-                    ))
-                    .build();
-
-            Blob blob = storage.create(blobInfo, file.getBytes());
+            java.util.Map<String, String> metadatos = java.util.Map.of(
+                    "api_id", apiId.toString(),
+                    "version", version,
+                    "original_name", file.getOriginalFilename(),
+                    "upload_time", LocalDateTime.now().toString()
+            );
+
+            try (InputStream contenido = file.getInputStream()) {
+                blobStore.guardar(fileName, contenido, file.getContentType(), metadatos);
+            }
             
             String publicUrl = String.format("gs://%s/%s", bucketName, fileName);
             log.info("Successfully saved API contract file: {}", publicUrl);
@@ -133,16 +105,27 @@ public class ApiContractStorageService {
      * Recupera el contenido del contrato
      */
     public String getApiContract(String gcsUrl) {
+        return leerContrato(gcsUrl).contenido();
+    }
+
+    /**
+     * Contenido del contrato junto con la generación del objeto en el storage
+     * (ContratoApiCacheService la guarda para identificar qué revisión tiene en caché)
+     */
+    public record ContratoLeido(String contenido, Long generacion) {
+    }
+
+    public ContratoLeido leerContrato(String gcsUrl) {
         try {
             String fileName = extractFileNameFromUrl(gcsUrl);
-            BlobId blobId = BlobId.of(bucketName, fileName);
-            Blob blob = storage.get(blobId);
-            
-            if (blob == null) {
+            MetadatosBlob metadatos = blobStore.obtener(fileName);
+            if (metadatos == null) {
                 throw new RuntimeException("Contract file not found: " + gcsUrl);
             }
             
-            return new String(blob.getContent(), StandardCharsets.UTF_8);
+            try (InputStream entrada = Channels.newInputStream(blobStore.abrirLectura(fileName, BlobStore.BLOQUE_LECTURA))) {
+                return new ContratoLeido(new String(entrada.readAllBytes(), StandardCharsets.UTF_8), metadatos.generacion());
+            }
             
         } catch (Exception e) {
             log.error("Error retrieving API contract from {}: {}", gcsUrl, e.getMessage());
@@ -156,13 +139,7 @@ public class ApiContractStorageService {
     public String generateSignedUrl(String gcsUrl, long durationMinutes) {
         try {
             String fileName = extractFileNameFromUrl(gcsUrl);
-            BlobId blobId = BlobId.of(bucketName, fileName);
-            
-            URL signedUrl = storage.signUrl(
-                    BlobInfo.newBuilder(blobId).build(),
-                    durationMinutes,
-                    TimeUnit.MINUTES
-            );
+            URL signedUrl = blobStore.urlFirmada(fileName, durationMinutes, TimeUnit.MINUTES);
             
             return signedUrl.toString();
             
@@ -178,9 +155,7 @@ public class ApiContractStorageService {
     public boolean deleteApiContract(String gcsUrl) {
         try {
             String fileName = extractFileNameFromUrl(gcsUrl);
-            BlobId blobId = BlobId.of(bucketName, fileName);
-            
-            boolean deleted = storage.delete(blobId);
+            boolean deleted = blobStore.eliminar(fileName);
             log.info("Contract deletion result for {}: {}", gcsUrl, deleted);
             
             return deleted;
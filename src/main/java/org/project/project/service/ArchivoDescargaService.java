@@ -0,0 +1,206 @@
+package org.project.project.service;
+
+import org.project.project.model.entity.Nodo;
+import org.project.project.repository.NodoRepository;
+import org.project.project.service.storage.MetadatosBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Descarga de archivos con soporte HTTP de caché y rangos
+ *
+ * - ETag fuerte "nodoId-generación" a partir de nodo.gcs_generation: If-None-Match se responde
+ *   con 304 sin tocar GCS (los nodos sin generación la leen una sola vez de los metadatos)
+ * - Last-Modified / If-Modified-Since con actualizado_en (o creado_en)
+ * - Range de un solo tramo (bytes=inicio-fin, bytes=inicio-, bytes=-sufijo) con 206 y lectura
+ *   parcial en GCS (seek + limit) fijada a la generación del ETag; If-Range inválido => archivo completo
+ * Los permisos los valida el controlador antes de llamar a este servicio.
+ */
+@Service
+public class ArchivoDescargaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivoDescargaService.class);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private NodoRepository nodoRepository;
+
+    /**
+     * Construye la respuesta de descarga de un nodo de tipo archivo
+     * @param nodo Nodo a descargar (ya validado: existe, es archivo y el usuario tiene acceso)
+     * @param inline true para Content-Disposition inline (preview), false para attachment
+     * @param peticion Cabeceras de la petición (If-None-Match, If-Modified-Since, Range, If-Range)
+     * @param metodo GET o HEAD (HEAD no abre el canal de lectura)
+     */
+    public ResponseEntity<?> servir(Nodo nodo, boolean inline, HttpHeaders peticion, HttpMethod metodo) {
+        if (nodo.getGcsPath() == null || nodo.getGcsPath().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "El archivo no tiene una ruta de almacenamiento válida"));
+        }
+
+        Long generacion = nodo.getGcsGeneration();
+        long tamanio = nodo.getSize() != null ? nodo.getSize() : 0L;
+        boolean leidoDeGcs = false;
+        if (generacion == null) {
+            // Nodo anterior a gcs_generation o recién movido: una lectura de metadatos y se guarda
+            MetadatosBlob blob = fileStorageService.obtenerBlob(nodo.getGcsPath());
+            if (blob == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Archivo no encontrado en el almacenamiento"));
+            }
+            generacion = blob.generacion();
+            tamanio = blob.tamanio() != null ? blob.tamanio() : 0L;
+            leidoDeGcs = true;
+            nodoRepository.guardarGeneracionGcs(nodo.getNodoId(), nodo.getGcsPath(), generacion);
+        }
+
+        String etag = "\"" + nodo.getNodoId() + "-" + generacion + "\"";
+        long ultimaModificacion = ultimaModificacion(nodo);
+
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.setETag(etag);
+        if (ultimaModificacion > 0) {
+            cabeceras.setLastModified(ultimaModificacion);
+        }
+        cabeceras.setCacheControl(CacheControl.noCache().cachePrivate());
+        cabeceras.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // 1. Petición condicional: If-None-Match tiene prioridad sobre If-Modified-Since
+        if (noModificado(peticion, etag, ultimaModificacion)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(cabeceras).build();
+        }
+
+        cabeceras.setContentDisposition((inline ? ContentDisposition.inline() : ContentDisposition.attachment())
+                .filename(nodo.getNombre(), StandardCharsets.UTF_8)
+                .build());
+        cabeceras.setContentType(tipoContenido(nodo));
+
+        // 2. Tamaño: el de BD basta; si falta (nodos antiguos) se lee de los metadatos
+        if (tamanio <= 0 && !leidoDeGcs) {
+            MetadatosBlob blob = fileStorageService.obtenerBlob(nodo.getGcsPath());
+            tamanio = blob != null && blob.tamanio() != null ? blob.tamanio() : 0L;
+        }
+
+        // 3. Rango (solo si If-Range coincide o no viene)
+        long inicio = 0;
+        long fin = tamanio - 1;
+        HttpStatus estado = HttpStatus.OK;
+
+        List<HttpRange> rangos = List.of();
+        if (peticion.getFirst(HttpHeaders.RANGE) != null && !ignorarRango(peticion, etag, ultimaModificacion)) {
+            try {
+                rangos = peticion.getRange();
+            } catch (IllegalArgumentException e) {
+                return rangoNoSatisfacible(cabeceras, tamanio);
+            }
+        }
+        if (rangos.size() == 1 && tamanio > 0) {
+            HttpRange rango = rangos.get(0);
+            inicio = rango.getRangeStart(tamanio);
+            fin = rango.getRangeEnd(tamanio);
+            if (inicio >= tamanio || inicio > fin) {
+                return rangoNoSatisfacible(cabeceras, tamanio);
+            }
+            estado = HttpStatus.PARTIAL_CONTENT;
+            cabeceras.set(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + tamanio);
+        }
+        // Varios tramos (multipart/byteranges) no se soportan: se envía el archivo completo
+
+        long longitud = tamanio > 0 ? fin - inicio + 1 : 0;
+        cabeceras.setContentLength(longitud);
+
+        if (HttpMethod.HEAD.equals(metodo) || longitud == 0) {
+            return ResponseEntity.status(estado).headers(cabeceras).build();
+        }
+
+        String gcsPath = nodo.getGcsPath();
+        Long generacionLectura = generacion;
+        long inicioLectura = inicio;
+        long finLectura = fin;
+        // En disco local el rango se copia con FileChannel.transferTo
+        StreamingResponseBody cuerpo = salida ->
+                fileStorageService.transferirRango(gcsPath, generacionLectura, inicioLectura, finLectura, salida);
+
+        logger.debug("📥 [DESCARGA] {} {} bytes {}-{}/{} (etag {})",
+                nodo.getNombre(), estado.value(), inicio, fin, tamanio, etag);
+        return ResponseEntity.status(estado).headers(cabeceras).body(cuerpo);
+    }
+
+    // =================== CONDICIONES ===================
+
+    private boolean noModificado(HttpHeaders peticion, String etag, long ultimaModificacion) {
+        List<String> ifNoneMatch = peticion.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            // Comparación débil (RFC 9110 13.1.2): se ignora el prefijo W/
+            return ifNoneMatch.stream()
+                    .map(valor -> valor.startsWith("W/") ? valor.substring(2) : valor)
+                    .anyMatch(valor -> "*".equals(valor) || etag.equals(valor));
+        }
+        long ifModifiedSince = fecha(peticion, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince > 0 && ultimaModificacion > 0
+                && ultimaModificacion / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private ResponseEntity<?> rangoNoSatisfacible(HttpHeaders cabeceras, long tamanio) {
+        cabeceras.set(HttpHeaders.CONTENT_RANGE, "bytes */" + tamanio);
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(cabeceras).build();
+    }
+
+    /**
+     * If-Range: el rango solo vale si el cliente tiene la misma versión (comparación fuerte de ETag o fecha exacta)
+     */
+    private boolean ignorarRango(HttpHeaders peticion, String etag, long ultimaModificacion) {
+        String ifRange = peticion.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return false;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return !etag.equals(ifRange);
+        }
+        long fechaIfRange = fecha(peticion, HttpHeaders.IF_RANGE);
+        return fechaIfRange <= 0 || ultimaModificacion / 1000 != fechaIfRange / 1000;
+    }
+
+    private long fecha(HttpHeaders peticion, String cabecera) {
+        try {
+            return peticion.getFirstDate(cabecera);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private long ultimaModificacion(Nodo nodo) {
+        LocalDateTime fecha = nodo.getActualizadoEn() != null ? nodo.getActualizadoEn() : nodo.getCreadoEn();
+        return fecha != null ? fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+
+    private MediaType tipoContenido(Nodo nodo) {
+        if (nodo.getMimeType() != null) {
+            try {
+                return MediaType.parseMediaType(nodo.getMimeType());
+            } catch (Exception e) {
+                logger.debug("⚠️ [DESCARGA] MIME inválido '{}' en nodo {}", nodo.getMimeType(), nodo.getNodoId());
+            }
+        }
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
+}
@@ -0,0 +1,234 @@
+package org.project.project.service;
+
+import org.project.project.dto.BusquedaUnificadaDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Búsqueda unificada sobre los índices FULLTEXT de MySQL (ver SQL/alter/fase_0.7_fulltext_busqueda.sql)
+ *
+ * - Una sola consulta UNION ALL ordenada por relevancia (MATCH ... AGAINST) y paginada en la BD
+ * - Cada tipo aplica su filtro de permisos en el WHERE: nunca se devuelve algo que el usuario no puede ver
+ * - Coincidencia por prefijo (término*) exigiendo todos los términos; si no hay resultados se relaja
+ *   a "cualquier término" para tolerar palabras mal escritas o incompletas
+ * InnoDB mantiene los índices en cada INSERT/UPDATE, así que no hay reindexado desde la aplicación.
+ */
+@Service
+public class BusquedaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusquedaService.class);
+
+    /** innodb_ft_min_token_size por defecto: términos más cortos no están indexados */
+    private static final int LARGO_MINIMO_TERMINO = 3;
+    private static final int MAX_TERMINOS = 8;
+    public static final int TAMANIO_MAXIMO = 50;
+
+    public enum TipoResultado {
+        API, PROYECTO, REPOSITORIO, DOCUMENTACION, TICKET, FORO
+    }
+
+    /**
+     * Fragmento SELECT por tipo. Orden de parámetros: consulta (x2), esSA, luego usuarioId tantas veces
+     * como aparezca en el filtro de permisos
+     */
+    private static final Map<TipoResultado, String> CONSULTAS = new LinkedHashMap<>();
+    private static final Map<TipoResultado, Integer> PARAMETROS_USUARIO = new LinkedHashMap<>();
+    static {
+        CONSULTAS.put(TipoResultado.API, """
+                SELECT 'API' AS tipo, a.api_id AS id, a.nombre_api AS nombre, LEFT(a.descripcion_api, 200) AS descripcion,
+                       NULL AS contexto_id, MATCH(a.nombre_api, a.descripcion_api) AGAINST (? IN BOOLEAN MODE) AS relevancia
+                  FROM api a
+                 WHERE MATCH(a.nombre_api, a.descripcion_api) AGAINST (? IN BOOLEAN MODE)
+                   AND (? OR a.estado_api = 'PRODUCCION' OR a.creado_por = ?)
+                """);
+        PARAMETROS_USUARIO.put(TipoResultado.API, 1);
+
+        CONSULTAS.put(TipoResultado.PROYECTO, """
+                SELECT 'PROYECTO', p.proyecto_id, p.nombre_proyecto, LEFT(p.descripcion_proyecto, 200),
+                       NULL, MATCH(p.nombre_proyecto, p.descripcion_proyecto) AGAINST (? IN BOOLEAN MODE)
+                  FROM proyecto p
+                 WHERE MATCH(p.nombre_proyecto, p.descripcion_proyecto) AGAINST (? IN BOOLEAN MODE)
+                   AND (? OR p.visibilidad_proyecto = 'PUBLICO'
+                        OR EXISTS (SELECT 1 FROM usuario_has_proyecto up
+                                    WHERE up.proyecto_proyecto_id = p.proyecto_id AND up.usuario_usuario_id = ?))
+                """);
+        PARAMETROS_USUARIO.put(TipoResultado.PROYECTO, 1);
+
+        CONSULTAS.put(TipoResultado.REPOSITORIO, """
+                SELECT 'REPOSITORIO', r.repositorio_id, r.nombre_repositorio, LEFT(r.descripcion_repositorio, 200),
+                       NULL, MATCH(r.nombre_repositorio, r.descripcion_repositorio) AGAINST (? IN BOOLEAN MODE)
+                  FROM repositorio r
+                 WHERE MATCH(r.nombre_repositorio, r.descripcion_repositorio) AGAINST (? IN BOOLEAN MODE)
+                   AND (? OR r.visibilidad_repositorio = 'PUBLICO' OR r.creado_por_usuario_id = ?
+                        OR EXISTS (SELECT 1 FROM usuario_has_repositorio ur
+                                    WHERE ur.repositorio_repositorio_id = r.repositorio_id AND ur.usuario_usuario_id = ?))
+                """);
+        PARAMETROS_USUARIO.put(TipoResultado.REPOSITORIO, 2);
+
+        CONSULTAS.put(TipoResultado.DOCUMENTACION, """
+                SELECT 'DOCUMENTACION', c.contenido_id, c.titulo_contenido, d.seccion_documentacion,
+                       a.api_id, MATCH(c.titulo_contenido) AGAINST (? IN BOOLEAN MODE)
+                  FROM contenido c
+                  JOIN documentacion d ON d.documentacion_id = c.documentacion_documentacion_id
+                  JOIN api a ON a.api_id = d.api_api_id
+                 WHERE MATCH(c.titulo_contenido) AGAINST (? IN BOOLEAN MODE)
+                   AND (? OR a.estado_api = 'PRODUCCION' OR a.creado_por = ?)
+                """);
+        PARAMETROS_USUARIO.put(TipoResultado.DOCUMENTACION, 1);
+
+        CONSULTAS.put(TipoResultado.TICKET, """
+                SELECT 'TICKET', t.ticket_id, t.asunto_ticket, LEFT(t.cuerpo_ticket, 200),
+                       t.proyecto_id, MATCH(t.asunto_ticket, t.cuerpo_ticket) AGAINST (? IN BOOLEAN MODE)
+                  FROM ticket t
+                 WHERE MATCH(t.asunto_ticket, t.cuerpo_ticket) AGAINST (? IN BOOLEAN MODE)
+                   AND (? OR t.reportado_por_usuario_id = ? OR t.asignado_a_usuario_id = ?)
+                """);
+        PARAMETROS_USUARIO.put(TipoResultado.TICKET, 2);
+
+        CONSULTAS.put(TipoResultado.FORO, """
+                SELECT 'FORO', f.tema_id, f.titulo_tema, LEFT(f.contenido_tema, 200),
+                       NULL, MATCH(f.titulo_tema, f.contenido_tema) AGAINST (? IN BOOLEAN MODE)
+                  FROM foro_tema f
+                 WHERE MATCH(f.titulo_tema, f.contenido_tema) AGAINST (? IN BOOLEAN MODE)
+                   AND (? OR f.estado_tema <> 'ARCHIVADO' OR f.autor_usuario_id = ?)
+                """);
+        PARAMETROS_USUARIO.put(TipoResultado.FORO, 1);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Busca en los tipos indicados (todos si viene vacío) con los permisos de usuarioId
+     * @return resultados, pagina, tamanio, hayMas, modo ("estricto" | "relajado")
+     */
+    public Map<String, Object> buscar(String texto, Set<TipoResultado> tipos, Long usuarioId, boolean esSA,
+                                      int pagina, int tamanio) {
+        Set<TipoResultado> tiposBuscados = tipos == null || tipos.isEmpty()
+                ? EnumSet.allOf(TipoResultado.class) : EnumSet.copyOf(tipos);
+        int paginaSegura = Math.max(pagina, 0);
+        int tamanioSeguro = Math.min(Math.max(tamanio, 1), TAMANIO_MAXIMO);
+
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("pagina", paginaSegura);
+        respuesta.put("tamanio", tamanioSeguro);
+
+        List<String> terminos = extraerTerminos(texto);
+        if (terminos.isEmpty()) {
+            respuesta.put("resultados", List.of());
+            respuesta.put("hayMas", false);
+            respuesta.put("modo", "vacio");
+            return respuesta;
+        }
+
+        long inicio = System.currentTimeMillis();
+        String modo = "estricto";
+        List<BusquedaUnificadaDTO> resultados = ejecutar(consultaBooleana(terminos, true), tiposBuscados,
+                usuarioId, esSA, paginaSegura, tamanioSeguro);
+
+        // Sin coincidencias con todos los términos: cualquiera de ellos (solo tiene sentido en la primera página)
+        if (resultados.isEmpty() && paginaSegura == 0 && terminos.size() > 1) {
+            modo = "relajado";
+            resultados = ejecutar(consultaBooleana(terminos, false), tiposBuscados,
+                    usuarioId, esSA, paginaSegura, tamanioSeguro);
+        }
+
+        boolean hayMas = resultados.size() > tamanioSeguro;
+        if (hayMas) {
+            resultados = resultados.subList(0, tamanioSeguro);
+        }
+
+        logger.debug("🔎 [BUSQUEDA] '{}' tipos={} -> {} resultado(s) en {} ms ({})",
+                texto, tiposBuscados, resultados.size(), System.currentTimeMillis() - inicio, modo);
+
+        respuesta.put("resultados", resultados);
+        respuesta.put("hayMas", hayMas);
+        respuesta.put("modo", modo);
+        return respuesta;
+    }
+
+    /**
+     * IDs de un solo tipo ordenados por relevancia (para endpoints que después cargan las entidades)
+     */
+    public List<Long> buscarIds(TipoResultado tipo, String texto, Long usuarioId, boolean esSA, int limite) {
+        @SuppressWarnings("unchecked")
+        List<BusquedaUnificadaDTO> resultados = (List<BusquedaUnificadaDTO>)
+                buscar(texto, EnumSet.of(tipo), usuarioId, esSA, 0, limite).get("resultados");
+        return resultados.stream().map(BusquedaUnificadaDTO::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Convierte texto libre en una consulta BOOLEAN MODE segura: "+api* +pagos*" (estricto) o "api* pagos*"
+     * Devuelve null si no queda ningún término indexable
+     */
+    public static String consultaBooleana(String texto, boolean todosLosTerminos) {
+        List<String> terminos = extraerTerminos(texto);
+        return terminos.isEmpty() ? null : consultaBooleana(terminos, todosLosTerminos);
+    }
+
+    private static String consultaBooleana(List<String> terminos, boolean todosLosTerminos) {
+        String prefijo = todosLosTerminos ? "+" : "";
+        return terminos.stream().map(t -> prefijo + t + "*").collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Quita los operadores de BOOLEAN MODE (+ - < > ( ) ~ * " @) y descarta términos no indexados
+     */
+    private static List<String> extraerTerminos(String texto) {
+        if (texto == null) {
+            return List.of();
+        }
+        return Arrays.stream(texto.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}_]+"))
+                .filter(t -> t.length() >= LARGO_MINIMO_TERMINO)
+                .distinct()
+                .limit(MAX_TERMINOS)
+                .collect(Collectors.toList());
+    }
+
+    private List<BusquedaUnificadaDTO> ejecutar(String consulta, Set<TipoResultado> tipos, Long usuarioId,
+                                                boolean esSA, int pagina, int tamanio) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM (\n");
+        List<Object> parametros = new ArrayList<>();
+
+        boolean primero = true;
+        for (TipoResultado tipo : tipos) {
+            if (!primero) {
+                sql.append("UNION ALL\n");
+            }
+            primero = false;
+            sql.append(CONSULTAS.get(tipo));
+            parametros.add(consulta);
+            parametros.add(consulta);
+            parametros.add(esSA);
+            for (int i = 0; i < PARAMETROS_USUARIO.get(tipo); i++) {
+                parametros.add(usuarioId);
+            }
+        }
+        // Se pide un resultado extra para saber si hay página siguiente sin un COUNT aparte
+        sql.append(") resultados ORDER BY relevancia DESC, id DESC LIMIT ? OFFSET ?");
+        parametros.add(tamanio + 1);
+        parametros.add(pagina * tamanio);
+
+        return jdbcTemplate.query(sql.toString(), (rs, fila) -> new BusquedaUnificadaDTO(
+                rs.getString("tipo"),
+                rs.getLong("id"),
+                rs.getString("nombre"),
+                rs.getString("descripcion"),
+                rs.getObject("contexto_id") != null ? rs.getLong("contexto_id") : null,
+                rs.getDouble("relevancia")
+        ), parametros.toArray());
+    }
+}
@@ -0,0 +1,379 @@
+package org.project.project.service;
+
+import org.project.project.model.entity.CargaArchivo;
+import org.project.project.model.entity.Nodo;
+import org.project.project.model.entity.Usuario;
+import org.project.project.repository.CargaArchivoRepository;
+import org.project.project.repository.NodoRepository;
+import org.project.project.service.storage.EscrituraReanudable;
+import org.project.project.service.storage.MetadatosBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Subidas por partes (resumables) de archivos grandes
+ *
+ * Protocolo: iniciar -> PUT parte N (0-indexed, en orden) -> completar
+ * - Cada parte se escribe directo a la escritura reanudable del almacenamiento (sesión resumable en GCS,
+ *   archivo parcial en disco local) leyendo del cuerpo de la petición en bloques de 256 KiB:
+ *   el archivo nunca está completo en memoria
+ * - Tras cada parte se guarda el estado del canal en carga_archivo (URI de la sesión y posición, sin
+ *   credenciales), así la subida sobrevive a desconexiones del cliente y puede continuar en cualquier instancia
+ * - Reenviar una parte ya recibida es idempotente; saltarse una parte responde conflicto
+ * Los permisos sobre el contenedor los valida el controlador; aquí se valida el dueño de la subida y que
+ * el contenedor de la URL sea el que quedó registrado al iniciarla.
+ */
+@Service
+public class CargaArchivoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CargaArchivoService.class);
+
+    /** GCS exige partes múltiplo de 256 KiB (salvo la última) */
+    private static final int MULTIPLO_PARTE = 256 * 1024;
+
+    @Autowired
+    private CargaArchivoRepository cargaArchivoRepository;
+
+    @Autowired
+    private NodoRepository nodoRepository;
+
+    @Autowired
+    private NodoService nodoService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private AlmacenContenidoService almacenContenidoService;
+
+    @Value("${files.upload.chunk-size-mb:8}")
+    private int tamanioParteMb;
+
+    @Value("${files.upload.expira-horas:24}")
+    private int expiraHoras;
+
+    @Value("${files.upload.max-bytes:10737418240}")
+    private long tamanioMaximo;
+
+    /**
+     * Inicia una subida: valida el nombre, abre la escritura reanudable y guarda su estado
+     * @param tamanioTotal Tamaño declarado del archivo en bytes
+     * @return Subida creada (cargaId, tamanioParte y totalPartes para el cliente)
+     */
+    public CargaArchivo iniciar(Long usuarioId, Nodo.ContainerType containerType, Long containerId,
+                                Long parentId, String nombreOriginal, String mimeType, long tamanioTotal) {
+        String nombre = nodoService.limpiarNombreArchivo(nombreOriginal);
+        if (nombre == null || nombre.trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre del archivo no puede estar vacío");
+        }
+        if (tamanioTotal < 0) {
+            throw new IllegalArgumentException("El tamaño del archivo no es válido");
+        }
+        if (tamanioTotal > tamanioMaximo) {
+            throw new IllegalArgumentException("El archivo supera el tamaño máximo permitido de " + tamanioMaximo + " bytes");
+        }
+        if (parentId != null) {
+            Nodo padre = nodoService.obtenerPorId(parentId)
+                    .orElseThrow(() -> new IllegalArgumentException("Carpeta padre no encontrada"));
+            if (padre.getTipo() != Nodo.TipoNodo.CARPETA
+                    || padre.getContainerType() != containerType
+                    || !padre.getContainerId().equals(containerId)) {
+                throw new IllegalArgumentException("El nodo padre debe ser una carpeta del mismo contenedor");
+            }
+            if (nodoRepository.existsByNombreAndParentIdAndIsDeletedFalse(nombre, parentId)) {
+                throw new IllegalArgumentException("Ya existe un archivo con el nombre '" + nombre + "' en esta ubicación");
+            }
+        }
+
+        int tamanioParte = tamanioParte();
+        String rutaGCS = nodoService.construirRutaGcsNuevoArchivo(nombre, containerType, containerId, parentId, null);
+
+        EscrituraReanudable canal = abrir(rutaGCS, mimeType != null ? mimeType : "application/octet-stream", tamanioParte);
+
+        CargaArchivo carga = new CargaArchivo();
+        carga.setCargaId(UUID.randomUUID().toString());
+        carga.setUsuarioId(usuarioId);
+        carga.setContainerType(containerType);
+        carga.setContainerId(containerId);
+        carga.setParentId(parentId);
+        carga.setNombre(nombre);
+        carga.setMimeType(mimeType);
+        carga.setTamanioTotal(tamanioTotal);
+        carga.setTamanioParte(tamanioParte);
+        carga.setGcsPath(rutaGCS);
+        carga.setEstadoCanal(capturar(canal));
+        CargaArchivo guardada = cargaArchivoRepository.save(carga);
+
+        logger.info("📤 [CARGA] Iniciada {} - {} ({} bytes, {} partes de {} bytes)",
+                guardada.getCargaId(), nombre, tamanioTotal, guardada.getTotalPartes(), tamanioParte);
+        return guardada;
+    }
+
+    /**
+     * Recibe la parte N de una subida y la escribe en GCS
+     * La última parte cierra el canal (el objeto queda creado en GCS, falta completar para crear el nodo)
+     * @param contenido Cuerpo de la petición; debe traer exactamente el tamaño de la parte
+     * @param longitudDeclarada Content-Length de la petición (-1 si no viene)
+     * @return Subida con bytes_recibidos actualizado
+     * @throws IllegalStateException si la parte no es la siguiente esperada o la subida no está en curso
+     */
+    public CargaArchivo recibirParte(String cargaId, Long usuarioId, Nodo.ContainerType containerType, Long containerId,
+                                     int numeroParte, InputStream contenido, long longitudDeclarada) throws IOException {
+        CargaArchivo carga = obtenerPropia(cargaId, usuarioId, containerType, containerId);
+        if (carga.getEstado() != CargaArchivo.EstadoCarga.EN_CURSO) {
+            throw new IllegalStateException("La subida no está en curso (" + carga.getEstado() + ")");
+        }
+
+        int siguiente = carga.getSiguienteParte();
+        if (numeroParte < siguiente || carga.getEstadoCanal() == null) {
+            // Reintento de una parte ya confirmada: no se vuelve a escribir
+            logger.debug("🔁 [CARGA] Parte {} de {} ya recibida", numeroParte, cargaId);
+            return carga;
+        }
+        if (numeroParte > siguiente) {
+            throw new IllegalStateException("Se esperaba la parte " + siguiente + " y se recibió la " + numeroParte);
+        }
+
+        long bytesAnteriores = carga.getBytesRecibidos();
+        long esperados = Math.min(carga.getTamanioParte(), carga.getTamanioTotal() - bytesAnteriores);
+        boolean ultima = bytesAnteriores + esperados >= carga.getTamanioTotal();
+        if (longitudDeclarada >= 0 && longitudDeclarada != esperados) {
+            // Se rechaza antes de tocar el canal: un cuerpo de otro tamaño dejaría la sesión de GCS desfasada
+            throw new IllegalArgumentException("La parte " + numeroParte + " debe tener " + esperados
+                    + " bytes (recibidos " + longitudDeclarada + ")");
+        }
+
+        EscrituraReanudable canal = restaurar(carga.getEstadoCanal());
+        escribirExacto(contenido, canal, esperados);
+
+        byte[] nuevoEstado = null;
+        if (ultima) {
+            canal.close();
+        } else {
+            nuevoEstado = capturar(canal);
+        }
+
+        long bytesRecibidos = bytesAnteriores + esperados;
+        if (cargaArchivoRepository.avanzarCarga(cargaId, bytesAnteriores, bytesRecibidos, nuevoEstado) == 0) {
+            throw new IllegalStateException("Otra petición ya escribió la parte " + numeroParte);
+        }
+        carga.setBytesRecibidos(bytesRecibidos);
+        carga.setEstadoCanal(nuevoEstado);
+
+        logger.debug("📦 [CARGA] {} parte {}/{} ({} / {} bytes)",
+                cargaId, numeroParte + 1, carga.getTotalPartes(), bytesRecibidos, carga.getTamanioTotal());
+        return carga;
+    }
+
+    /**
+     * Completa la subida: crea el nodo del archivo ya subido a GCS
+     * Repetir la llamada sobre una subida completada devuelve el mismo nodo
+     * @throws SecurityException si la subida no es del usuario o se inició en otro contenedor
+     */
+    public Nodo completar(String cargaId, Long usuarioId, Nodo.ContainerType containerType, Long containerId)
+            throws IOException {
+        CargaArchivo carga = obtenerPropia(cargaId, usuarioId, containerType, containerId);
+        if (carga.getEstado() == CargaArchivo.EstadoCarga.COMPLETADA) {
+            return nodoService.obtenerPorId(carga.getNodoId())
+                    .orElseThrow(() -> new IllegalStateException("El archivo de la subida ya no existe"));
+        }
+        if (carga.getEstado() != CargaArchivo.EstadoCarga.EN_CURSO) {
+            throw new IllegalStateException("La subida no está en curso (" + carga.getEstado() + ")");
+        }
+        if (carga.getBytesRecibidos() < carga.getTamanioTotal()) {
+            throw new IllegalStateException("Faltan partes: recibidos " + carga.getBytesRecibidos()
+                    + " de " + carga.getTamanioTotal() + " bytes");
+        }
+        if (carga.getEstadoCanal() != null) {
+            // Archivo vacío: no hubo ninguna parte que cerrara el canal
+            restaurar(carga.getEstadoCanal()).close();
+        }
+
+        MetadatosBlob blob = fileStorageService.obtenerBlob(carga.getGcsPath());
+        if (blob == null) {
+            throw new IllegalStateException("El archivo no se encuentra en el almacenamiento");
+        }
+
+        Usuario usuario = new Usuario();
+        usuario.setUsuarioId(usuarioId);
+        Nodo archivo = nodoService.crearNodoArchivo(
+                carga.getNombre(),
+                carga.getContainerType(),
+                carga.getContainerId(),
+                carga.getParentId(),
+                carga.getGcsPath(),
+                carga.getTamanioTotal(),
+                carga.getMimeType(),
+                usuario
+        );
+        if (blob.generacion() != null) {
+            nodoRepository.guardarGeneracionGcs(archivo.getNodoId(), carga.getGcsPath(), blob.generacion());
+            archivo.setGcsGeneration(blob.generacion());
+        }
+        cargaArchivoRepository.marcarCompletada(cargaId, archivo.getNodoId());
+
+        // Deduplicación: el hash no se puede calcular por partes entre instancias, se calcula al adoptar
+        almacenContenidoService.adoptarEnSegundoPlano(archivo.getNodoId());
+
+        logger.info("✅ [CARGA] Completada {} - Nodo ID: {}", cargaId, archivo.getNodoId());
+        return archivo;
+    }
+
+    /**
+     * Cancela una subida en curso y elimina el objeto si ya se había cerrado en GCS
+     * (las sesiones resumables sin cerrar las descarta GCS al expirar)
+     */
+    public void cancelar(String cargaId, Long usuarioId) {
+        CargaArchivo carga = obtenerPropia(cargaId, usuarioId);
+        if (carga.getEstado() != CargaArchivo.EstadoCarga.EN_CURSO) {
+            return;
+        }
+        boolean cerrada = carga.getEstadoCanal() == null;
+        carga.setEstado(CargaArchivo.EstadoCarga.CANCELADA);
+        carga.setEstadoCanal(null);
+        carga.setActualizadoEn(LocalDateTime.now());
+        cargaArchivoRepository.save(carga);
+        if (cerrada) {
+            fileStorageService.eliminarArchivoDeGCS(carga.getGcsPath());
+        }
+        logger.info("🚫 [CARGA] Cancelada {}", cargaId);
+    }
+
+    /**
+     * Estado de una subida para que el cliente sepa desde qué parte retomar
+     */
+    public Map<String, Object> obtenerEstado(String cargaId, Long usuarioId) {
+        return aMapa(obtenerPropia(cargaId, usuarioId));
+    }
+
+    public Map<String, Object> aMapa(CargaArchivo carga) {
+        Map<String, Object> estado = new HashMap<>();
+        estado.put("uploadId", carga.getCargaId());
+        estado.put("nombre", carga.getNombre());
+        estado.put("estado", carga.getEstado().name());
+        estado.put("tamanioTotal", carga.getTamanioTotal());
+        estado.put("tamanioParte", carga.getTamanioParte());
+        estado.put("totalPartes", carga.getTotalPartes());
+        estado.put("bytesRecibidos", carga.getBytesRecibidos());
+        estado.put("siguienteParte", carga.getSiguienteParte());
+        estado.put("nodoId", carga.getNodoId());
+        return estado;
+    }
+
+    /**
+     * Limpieza de subidas abandonadas: elimina los objetos cerrados sin nodo y las filas expiradas
+     */
+    @Scheduled(initialDelayString = "${files.upload.limpieza-initial-delay-ms:60000}",
+               fixedDelayString = "${files.upload.limpieza-interval-ms:3600000}")
+    public void limpiarExpiradas() {
+        LocalDateTime limite = LocalDateTime.now().minusHours(expiraHoras);
+        List<CargaArchivo> inactivas = cargaArchivoRepository.findInactivasAntesDe(limite);
+        for (CargaArchivo carga : inactivas) {
+            try {
+                if (carga.getEstado() == CargaArchivo.EstadoCarga.EN_CURSO && carga.getEstadoCanal() == null) {
+                    // Todas las partes subidas pero nunca completada: el objeto quedó huérfano en GCS
+                    fileStorageService.eliminarArchivoDeGCS(carga.getGcsPath());
+                }
+                cargaArchivoRepository.delete(carga);
+            } catch (Exception e) {
+                logger.warn("⚠️ [CARGA] No se pudo limpiar la subida {}: {}", carga.getCargaId(), e.getMessage());
+            }
+        }
+        int completadas = cargaArchivoRepository.eliminarCompletadasAntesDe(limite);
+        if (!inactivas.isEmpty() || completadas > 0) {
+            logger.info("🧹 [CARGA] Limpieza: {} subidas abandonadas, {} completadas eliminadas",
+                    inactivas.size(), completadas);
+        }
+    }
+
+    // =================== AUXILIARES ===================
+
+    private CargaArchivo obtenerPropia(String cargaId, Long usuarioId) {
+        CargaArchivo carga = cargaArchivoRepository.findById(cargaId)
+                .orElseThrow(() -> new IllegalArgumentException("Subida no encontrada: " + cargaId));
+        if (!carga.getUsuarioId().equals(usuarioId)) {
+            throw new SecurityException("La subida pertenece a otro usuario");
+        }
+        return carga;
+    }
+
+    /**
+     * Subida propia del usuario e iniciada en el contenedor indicado: el permiso que valida el controlador
+     * sobre el contenedor de la URL es entonces el del contenedor donde se creará el archivo
+     */
+    private CargaArchivo obtenerPropia(String cargaId, Long usuarioId, Nodo.ContainerType containerType,
+                                       Long containerId) {
+        CargaArchivo carga = obtenerPropia(cargaId, usuarioId);
+        if (carga.getContainerType() != containerType || !carga.getContainerId().equals(containerId)) {
+            throw new SecurityException("La subida pertenece a otro contenedor");
+        }
+        return carga;
+    }
+
+    /**
+     * Tamaño de parte configurado, redondeado a múltiplo de 256 KiB
+     */
+    private int tamanioParte() {
+        int bytes = Math.max(1, tamanioParteMb) * 1024 * 1024;
+        return (bytes / MULTIPLO_PARTE) * MULTIPLO_PARTE;
+    }
+
+    /**
+     * Copia exactamente {@code bytes} del cuerpo al canal en bloques de 256 KiB
+     */
+    private void escribirExacto(InputStream contenido, EscrituraReanudable canal, long bytes) throws IOException {
+        byte[] bloque = new byte[MULTIPLO_PARTE];
+        long restantes = bytes;
+        while (restantes > 0) {
+            int leidos = contenido.read(bloque, 0, (int) Math.min(bloque.length, restantes));
+            if (leidos < 0) {
+                throw new IllegalArgumentException("Parte incompleta: faltan " + restantes + " bytes");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bloque, 0, leidos);
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            restantes -= leidos;
+        }
+        if (contenido.read() >= 0) {
+            throw new IllegalArgumentException("La parte excede el tamaño esperado de " + bytes + " bytes");
+        }
+    }
+
+    private EscrituraReanudable abrir(String rutaGCS, String contentType, int tamanioParte) {
+        try {
+            return fileStorageService.abrirEscrituraReanudable(rutaGCS, contentType, tamanioParte);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo iniciar la subida en el almacenamiento", e);
+        }
+    }
+
+    private byte[] capturar(EscrituraReanudable canal) {
+        try {
+            return canal.capturar();
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo guardar el estado de la subida", e);
+        }
+    }
+
+    private EscrituraReanudable restaurar(byte[] estado) {
+        try {
+            return fileStorageService.restaurarEscritura(estado);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo restaurar el estado de la subida", e);
+        }
+    }
+}
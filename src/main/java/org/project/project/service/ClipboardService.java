@@ -1,6 +1,8 @@
 package org.project.project.service;
 
+import org.project.project.model.dto.response.JobDTO;
 import org.project.project.model.entity.ClipboardOperation;
+import org.project.project.model.entity.FileOperationJob;
 import org.project.project.model.entity.Nodo;
 import org.project.project.model.entity.Usuario;
 import org.project.project.repository.ClipboardOperationRepository;
@@ -27,10 +29,7 @@ public class ClipboardService {
     private NodoService nodoService;
 
     @Autowired
-    private FileStorageService fileStorageService;
-
-    @Autowired
-    private GCSConfigService gcsConfigService;
+    private FileOperationJobService fileOperationJobService;
 
     /**
      * Copia nodos al clipboard
@@ -108,111 +107,68 @@ public class ClipboardService {
     }
 
     /**
-     * Pega los nodos del clipboard en una nueva ubicación
+     * Encola como job la copia activa del clipboard (COPY se procesa en segundo plano con
+     * CopiaSubarbolService para no mantener una transacción abierta mientras se copian los objetos)
      * @param nodoPadreDestinoId ID del nodo padre destino (null para raíz)
      * @param usuario Usuario que realiza la operación
-     * @return Lista de nodos creados/movidos
+     * @return Job de copia, o vacío si la operación activa es CUT (se pega con pegarNodos)
      */
     @Transactional
-    public List<Nodo> pegarNodos(Long nodoPadreDestinoId, Usuario usuario) {
-        // Obtener operación activa
+    public Optional<JobDTO> encolarCopia(Long nodoPadreDestinoId, Usuario usuario) {
         ClipboardOperation operation = obtenerOperacionActiva(usuario.getId())
                 .orElseThrow(() -> new IllegalStateException("No hay operación de clipboard activa"));
+        if (operation.getOperationType() != ClipboardOperation.OperationType.COPY) {
+            return Optional.empty();
+        }
 
-        List<Nodo> resultados = new ArrayList<>();
-
-        if (operation.getOperationType() == ClipboardOperation.OperationType.COPY) {
-            // COPIAR: Duplicar nodos en nueva ubicación
-            for (Long nodoId : operation.getNodoIds()) {
-                Nodo nodoOriginal = nodoService.obtenerPorId(nodoId)
-                        .orElseThrow(() -> new IllegalArgumentException("Nodo no encontrado: " + nodoId));
-                
-                Nodo nodoCopia = copiarNodoRecursivo(nodoOriginal, nodoPadreDestinoId, usuario);
-                resultados.add(nodoCopia);
-            }
-            
-            // La operación de COPY no se marca como expirada (se puede pegar múltiples veces)
-            
-        } else if (operation.getOperationType() == ClipboardOperation.OperationType.CUT) {
-            // CORTAR: Mover nodos a nueva ubicación
-            for (Long nodoId : operation.getNodoIds()) {
-                nodoService.moverNodo(nodoId, nodoPadreDestinoId);
-                
-                Nodo nodoMovido = nodoService.obtenerPorId(nodoId)
-                        .orElseThrow(() -> new IllegalArgumentException("Nodo no encontrado: " + nodoId));
-                resultados.add(nodoMovido);
-            }
-            
-            // Marcar operación como expirada después de pegar
-            operation.markAsExpired();
-            clipboardRepository.save(operation);
+        // Contenedor destino: el de la carpeta destino, o el de origen si se pega en la raíz
+        Nodo.ContainerType containerType = operation.getSourceContainerType();
+        Long containerId = operation.getSourceContainerId();
+        if (nodoPadreDestinoId != null) {
+            Nodo destino = nodoService.obtenerPorId(nodoPadreDestinoId)
+                    .orElseThrow(() -> new IllegalArgumentException("Carpeta destino no encontrada"));
+            containerType = destino.getContainerType();
+            containerId = destino.getContainerId();
         }
 
-        return resultados;
+        // La operación de COPY no se marca como expirada (se puede pegar múltiples veces)
+        FileOperationJob job = fileOperationJobService.crearJobCopia(
+                new ArrayList<>(operation.getNodoIds()), nodoPadreDestinoId, containerType, containerId, usuario);
+        return Optional.of(fileOperationJobService.convertirADTO(job));
     }
 
     /**
-     * Copia un nodo recursivamente (incluyendo archivos en GCS)
-     * @param nodoOriginal Nodo a copiar
-     * @param nodoPadreDestinoId ID del nodo padre destino
-     * @param usuario Usuario que realiza la copia
-     * @return Nodo copiado
+     * Pega los nodos cortados del clipboard en una nueva ubicación
+     * Las copias no pasan por aquí: se encolan con encolarCopia
+     * @param nodoPadreDestinoId ID del nodo padre destino (null para raíz)
+     * @param usuario Usuario que realiza la operación
+     * @return Lista de nodos movidos
      */
-    private Nodo copiarNodoRecursivo(Nodo nodoOriginal, Long nodoPadreDestinoId, Usuario usuario) {
-        if (nodoOriginal.getTipo() == Nodo.TipoNodo.CARPETA) {
-            // Copiar carpeta
-            Nodo carpetaCopia = nodoService.crearCarpeta(
-                    nodoOriginal.getNombre() + " (copia)",
-                    nodoOriginal.getContainerType(),
-                    nodoOriginal.getContainerId(),
-                    nodoPadreDestinoId,
-                    usuario
-            );
-
-            // Copiar hijos recursivamente
-            List<Nodo> hijos = nodoService.obtenerHijos(
-                    nodoOriginal.getNodoId(),
-                    nodoOriginal.getContainerType(),
-                    nodoOriginal.getContainerId()
-            );
-
-            for (Nodo hijo : hijos) {
-                copiarNodoRecursivo(hijo, carpetaCopia.getNodoId(), usuario);
-            }
+    @Transactional
+    public List<Nodo> pegarNodos(Long nodoPadreDestinoId, Usuario usuario) {
+        // Obtener operación activa
+        ClipboardOperation operation = obtenerOperacionActiva(usuario.getId())
+                .orElseThrow(() -> new IllegalStateException("No hay operación de clipboard activa"));
 
-            return carpetaCopia;
+        if (operation.getOperationType() != ClipboardOperation.OperationType.CUT) {
+            throw new IllegalArgumentException("La copia se procesa en segundo plano (encolarCopia)");
+        }
 
-        } else {
-            // Copiar archivo en GCS
-            String rutaOrigenGCS = nodoOriginal.getGcsPath();
-            
-            String rutaDestino = "/";
-            if (nodoPadreDestinoId != null) {
-                rutaDestino = nodoService.obtenerRutaCompleta(nodoPadreDestinoId);
-            }
+        // CORTAR: Mover nodos a nueva ubicación
+        List<Nodo> resultados = new ArrayList<>();
+        for (Long nodoId : operation.getNodoIds()) {
+            nodoService.moverNodo(nodoId, nodoPadreDestinoId);
 
-            Nodo nodoTemporal = new Nodo();
-            nodoTemporal.setNombre(nodoOriginal.getNombre());
-            nodoTemporal.setContainerType(nodoOriginal.getContainerType());
-            nodoTemporal.setContainerId(nodoOriginal.getContainerId());
-            
-            String rutaDestinoGCS = gcsConfigService.obtenerRutaCompleta(nodoTemporal, rutaDestino);
+            Nodo nodoMovido = nodoService.obtenerPorId(nodoId)
+                    .orElseThrow(() -> new IllegalArgumentException("Nodo no encontrado: " + nodoId));
+            resultados.add(nodoMovido);
+        }
 
-            // Copiar archivo en GCS
-            fileStorageService.copiarArchivo(rutaOrigenGCS, rutaDestinoGCS);
+        // Marcar operación como expirada después de pegar
+        operation.markAsExpired();
+        clipboardRepository.save(operation);
 
-            // Crear nodo en BD
-            return nodoService.crearNodoArchivo(
-                    nodoOriginal.getNombre(),
-                    nodoOriginal.getContainerType(),
-                    nodoOriginal.getContainerId(),
-                    nodoPadreDestinoId,
-                    rutaDestinoGCS,
-                    nodoOriginal.getSize(),
-                    nodoOriginal.getMimeType(),
-                    usuario
-            );
-        }
+        return resultados;
     }
 
     /**
@@ -0,0 +1,47 @@
+package org.project.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Caché de conteos totales de los listados paginados
+ * El total se muestra como referencia ("25 proyectos"): se tolera que quede desfasado hasta
+ * paginacion.conteo.ttl-seg a cambio de no ejecutar un COUNT por cada página pedida
+ */
+@Service
+public class ConteoCacheService {
+
+    private final Cache<String, Long> conteos;
+
+    public ConteoCacheService(@Value("${paginacion.conteo.ttl-seg:60}") long ttlSegundos,
+                              @Value("${paginacion.conteo.max-entradas:10000}") long maxEntradas) {
+        this.conteos = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .build();
+    }
+
+    /**
+     * Conteo cacheado por clave (incluye listado, usuario y filtros)
+     */
+    public long contar(String clave, Supplier<Long> consulta) {
+        Long total = conteos.get(clave, k -> consulta.get());
+        return total != null ? total : 0L;
+    }
+
+    /**
+     * Clave de un conteo a partir del listado y sus filtros
+     */
+    public static String clave(String listado, Object... filtros) {
+        StringBuilder clave = new StringBuilder(listado);
+        for (Object filtro : filtros) {
+            clave.append('|').append(filtro != null ? filtro : "");
+        }
+        return clave.toString();
+    }
+}
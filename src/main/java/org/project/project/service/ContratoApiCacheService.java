@@ -0,0 +1,253 @@
+package org.project.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import io.swagger.v3.parser.core.models.ParseOptions;
+import org.project.project.model.entity.VersionAPI;
+import org.project.project.repository.VersionAPIRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Caché de contratos OpenAPI por versión
+ * - Clave: (versionId, contrato_api_url). Cada subida genera un nombre de objeto nuevo (con timestamp),
+ *   así que la URL identifica la revisión y un contrato cambiado nunca devuelve la entrada anterior
+ * - Nivel en memoria acotado por tamaño (contratos.cache.max-mb) con el texto y, parseado bajo demanda
+ *   una sola vez, el modelo OpenAPI resuelto (resolveFully)
+ * - Nivel opcional en disco local (contratos.cache.disco-dir): sobrevive a reinicios sin volver a GCS
+ * - Al arrancar se precargan las últimas versiones de las APIs con más suscripciones
+ */
+@Service
+public class ContratoApiCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContratoApiCacheService.class);
+
+    @Autowired
+    private ApiContractStorageService apiContractStorageService;
+
+    @Autowired
+    private VersionAPIRepository versionAPIRepository;
+
+    @Autowired
+    @Qualifier("statsRefreshExecutor")
+    private Executor statsRefreshExecutor;
+
+    // Número de APIs populares cuyo contrato se precarga al arrancar (0 = sin precarga)
+    @Value("${contratos.cache.precarga-apis:20}")
+    private int apisPrecarga;
+
+    private final Cache<ClaveContrato, ContratoCacheado> contratos;
+
+    private final Path directorioDisco;
+
+    public ContratoApiCacheService(@Value("${contratos.cache.max-mb:64}") long maxMb,
+                                   @Value("${contratos.cache.disco-dir:}") String directorioDisco) {
+        this.contratos = Caffeine.newBuilder()
+                .maximumWeight(maxMb * 1024 * 1024)
+                .weigher((ClaveContrato clave, ContratoCacheado contrato) -> contrato.peso())
+                .build();
+        this.directorioDisco = directorioDisco == null || directorioDisco.isBlank() ? null : Path.of(directorioDisco);
+        if (this.directorioDisco != null) {
+            try {
+                Files.createDirectories(this.directorioDisco);
+                logger.info("💽 Caché de contratos en disco: {}", this.directorioDisco.toAbsolutePath());
+            } catch (IOException e) {
+                logger.warn("⚠️ No se pudo crear el directorio de caché de contratos {}: {}", directorioDisco, e.getMessage());
+            }
+        }
+    }
+
+    private record ClaveContrato(Long versionId, String url) {
+    }
+
+    /**
+     * Contrato en caché; el modelo se parsea la primera vez que alguien lo pide
+     */
+    private static final class ContratoCacheado {
+        private final String contenido;
+        private final Long generacion;
+        private volatile OpenAPI modelo;
+        private volatile boolean parseado;
+
+        private ContratoCacheado(String contenido, Long generacion, OpenAPI modelo) {
+            this.contenido = contenido;
+            this.generacion = generacion;
+            this.modelo = modelo;
+            this.parseado = modelo != null;
+        }
+
+        // El modelo parseado ocupa del orden de varias veces el texto: se estima como 4x
+        private int peso() {
+            return (int) Math.min(Integer.MAX_VALUE, contenido.length() * 2L * 4);
+        }
+
+        private OpenAPI modelo() {
+            if (!parseado) {
+                synchronized (this) {
+                    if (!parseado) {
+                        ParseOptions parseOptions = new ParseOptions();
+                        parseOptions.setResolve(true);
+                        parseOptions.setResolveFully(true);
+                        modelo = new OpenAPIV3Parser().readContents(contenido, null, parseOptions).getOpenAPI();
+                        parseado = true;
+                    }
+                }
+            }
+            return modelo;
+        }
+    }
+
+    // =================== LECTURA ===================
+
+    /**
+     * Texto del contrato de la versión (memoria → disco → storage)
+     */
+    public String obtenerContenido(VersionAPI version) {
+        return obtener(version.getVersionId(), version.getContratoApiUrl()).contenido;
+    }
+
+    /**
+     * Modelo OpenAPI resuelto del contrato de la versión (null si el contrato no es OpenAPI válido)
+     */
+    public OpenAPI obtenerModelo(VersionAPI version) {
+        return obtener(version.getVersionId(), version.getContratoApiUrl()).modelo();
+    }
+
+    private ContratoCacheado obtener(Long versionId, String url) {
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("La versión " + versionId + " no tiene URL de contrato");
+        }
+        return contratos.get(new ClaveContrato(versionId, url), this::cargar);
+    }
+
+    private ContratoCacheado cargar(ClaveContrato clave) {
+        ContratoCacheado enDisco = leerDeDisco(clave);
+        if (enDisco != null) {
+            return enDisco;
+        }
+
+        long inicio = System.currentTimeMillis();
+        ApiContractStorageService.ContratoLeido leido = apiContractStorageService.leerContrato(clave.url());
+        logger.info("📄 Contrato de la versión {} leído del storage (generación {}) en {} ms",
+                clave.versionId(), leido.generacion(), System.currentTimeMillis() - inicio);
+
+        ContratoCacheado contrato = new ContratoCacheado(leido.contenido(), leido.generacion(), null);
+        escribirEnDisco(clave, contrato);
+        return contrato;
+    }
+
+    // =================== ESCRITURA ===================
+
+    /**
+     * Registra un contrato recién subido (con el modelo ya parseado por la validación),
+     * para que la primera vista no tenga que volver a descargarlo ni parsearlo
+     */
+    public void registrar(Long versionId, String url, String contenido, OpenAPI modelo) {
+        if (versionId == null || url == null || contenido == null) {
+            return;
+        }
+        ClaveContrato clave = new ClaveContrato(versionId, url);
+        ContratoCacheado contrato = new ContratoCacheado(contenido, null, modelo);
+        contratos.put(clave, contrato);
+        escribirEnDisco(clave, contrato);
+    }
+
+    // =================== PRECARGA ===================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargarPopulares() {
+        if (apisPrecarga <= 0) {
+            return;
+        }
+        statsRefreshExecutor.execute(() -> {
+            try {
+                long inicio = System.currentTimeMillis();
+                List<Object[]> versiones = versionAPIRepository.findContratosDeApisPopulares(apisPrecarga);
+                int cargados = 0;
+                for (Object[] fila : versiones) {
+                    try {
+                        obtener(((Number) fila[0]).longValue(), (String) fila[1]).modelo();
+                        cargados++;
+                    } catch (Exception e) {
+                        logger.warn("⚠️ No se pudo precargar el contrato de la versión {}: {}", fila[0], e.getMessage());
+                    }
+                }
+                logger.info("🔥 Caché de contratos precargada: {}/{} versiones en {} ms",
+                        cargados, versiones.size(), System.currentTimeMillis() - inicio);
+            } catch (Exception e) {
+                logger.error("❌ Error precargando la caché de contratos: {}", e.getMessage());
+            }
+        });
+    }
+
+    // =================== NIVEL EN DISCO ===================
+
+    private Path archivoEnDisco(ClaveContrato clave) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(clave.url().getBytes(StandardCharsets.UTF_8));
+            return directorioDisco.resolve("v" + clave.versionId() + "-" + HexFormat.of().formatHex(hash, 0, 8) + ".contrato");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Formato: primera línea = generación del objeto (vacía si se desconoce), resto = contrato
+     */
+    private ContratoCacheado leerDeDisco(ClaveContrato clave) {
+        if (directorioDisco == null) {
+            return null;
+        }
+        Path archivo = archivoEnDisco(clave);
+        if (!Files.exists(archivo)) {
+            return null;
+        }
+        try {
+            String texto = Files.readString(archivo, StandardCharsets.UTF_8);
+            int salto = texto.indexOf('\n');
+            if (salto < 0) {
+                return null;
+            }
+            String generacion = texto.substring(0, salto);
+            return new ContratoCacheado(texto.substring(salto + 1),
+                    generacion.isEmpty() ? null : Long.valueOf(generacion), null);
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("⚠️ Contrato en disco ilegible {}, se vuelve a descargar: {}", archivo, e.getMessage());
+            return null;
+        }
+    }
+
+    private void escribirEnDisco(ClaveContrato clave, ContratoCacheado contrato) {
+        if (directorioDisco == null) {
+            return;
+        }
+        Path archivo = archivoEnDisco(clave);
+        try {
+            Path temporal = Files.createTempFile(directorioDisco, "contrato", ".tmp");
+            Files.writeString(temporal, (contrato.generacion != null ? contrato.generacion.toString() : "")
+                    + "\n" + contrato.contenido, StandardCharsets.UTF_8);
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("⚠️ No se pudo guardar el contrato de la versión {} en disco: {}", clave.versionId(), e.getMessage());
+        }
+    }
+}
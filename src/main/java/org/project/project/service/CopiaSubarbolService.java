@@ -0,0 +1,361 @@
+package org.project.project.service;
+
+import org.project.project.model.entity.Nodo;
+import org.project.project.repository.NodoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Motor de copia de subárboles (pegar tras copiar; se ejecuta dentro de un job COPY)
+ *
+ * 1. Foto: todos los subárboles a copiar se leen en una sola consulta sobre nodo_closure y se arman en memoria
+ * 2. Copia: los archivos con objeto propio se copian del lado del servidor en paralelo, acotado por
+ *    files.copy.paralelismo sobre gcsBulkExecutor y fuera de cualquier transacción; los archivos del almacén
+ *    deduplicado no se copian, solo suman referencias
+ * 3. Inserción: una transacción corta suma las referencias (un UPDATE por contenido distinto) e inserta
+ *    nodos y filas de nodo_closure con JDBC por lotes, nivel por nivel
+ * Si algo falla o el job se cancela, la transacción se revierte y se eliminan los objetos ya copiados.
+ * Las carpetas copiadas llevan el sufijo " (copia)"; un nombre ocupado en el destino aborta la copia
+ * antes de tocar GCS.
+ */
+@Service
+public class CopiaSubarbolService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CopiaSubarbolService.class);
+
+    private static final String SUFIJO_COPIA = " (copia)";
+
+    @Autowired
+    private NodoRepository nodoRepository;
+
+    @Autowired
+    private AlmacenContenidoService almacenContenidoService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private GCSConfigService gcsConfigService;
+
+    @Autowired
+    private NodoCacheInvalidator nodoCacheInvalidator;
+
+    @Autowired
+    private InsercionNodosService insercionNodosService;
+
+    @Autowired
+    private TransferenciaParalelaService transferenciaParalelaService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Copias simultáneas en GCS por job
+    @Value("${files.copy.paralelismo:8}")
+    private int paralelismo;
+
+    // Filas por lote de INSERT
+    @Value("${files.copy.lote-insercion:500}")
+    private int loteInsercion;
+
+    // Nodos máximos por pegado
+    @Value("${files.copy.max-nodos:50000}")
+    private int maxNodos;
+
+    /**
+     * Callback de avance (se invoca siempre desde el hilo del job; puede lanzar para cancelar)
+     */
+    public interface ProgresoCopia {
+        void avance(int procesados, int total);
+    }
+
+    public record ResultadoCopia(int carpetasCreadas, int archivosCreados, long bytes) {}
+
+    /**
+     * Carpeta o archivo de la foto del origen
+     */
+    private static final class Elemento {
+        private final String nombre;
+        private final boolean carpeta;
+        private final Elemento padre;
+        private final List<Elemento> hijos = new ArrayList<>();
+        private long tamanio;
+        private String mimeType;
+        private String gcsOrigen;
+        private Long generacionOrigen;
+        private String contenidoHash;
+        private Long nodoId;
+        private String path;
+        /** Filas de clausura del elemento: {ancestro, profundidad} (solo carpetas) */
+        private List<long[]> ancestros;
+        /** Destino del objeto copiado (null si el archivo no tiene objeto propio) */
+        private String gcsDestino;
+        private Long generacionDestino;
+
+        Elemento(String nombre, boolean carpeta, Elemento padre) {
+            this.nombre = nombre;
+            this.carpeta = carpeta;
+            this.padre = padre;
+        }
+    }
+
+    /**
+     * Copia los nodos indicados (con todo su contenido) dentro de una carpeta
+     * @param nodoIds Nodos a copiar
+     * @param parentId Carpeta destino (null para la raíz del contenedor)
+     * @param containerType Contenedor destino cuando parentId es null
+     * @param containerId ID del contenedor destino cuando parentId es null
+     */
+    public ResultadoCopia copiar(List<Long> nodoIds, Long parentId, Nodo.ContainerType containerType,
+                                 Long containerId, Long usuarioId, ProgresoCopia progreso) {
+        Elemento destino = new Elemento(null, true, null);
+        destino.nodoId = parentId;
+        destino.path = "";
+        if (parentId != null) {
+            Nodo carpeta = nodoRepository.findById(parentId)
+                    .filter(n -> !Boolean.TRUE.equals(n.getIsDeleted()) && n.getTipo() == Nodo.TipoNodo.CARPETA)
+                    .orElseThrow(() -> new IllegalArgumentException("Carpeta destino no encontrada"));
+            containerType = carpeta.getContainerType();
+            containerId = carpeta.getContainerId();
+            destino.path = carpeta.getPath();
+        }
+
+        // 1. Foto del origen
+        armarArbol(destino, nodoIds);
+        verificarNombresLibres(destino, containerType, containerId);
+
+        List<Elemento> carpetas = new ArrayList<>();
+        List<Elemento> archivos = new ArrayList<>();
+        asignarRutas(destino, containerType, containerId, carpetas, archivos);
+        List<Elemento> aCopiar = archivos.stream().filter(a -> a.gcsDestino != null).toList();
+        long bytes = archivos.stream().mapToLong(a -> a.tamanio).sum();
+        logger.info("📋 [COPIAR] {} carpeta(s) y {} archivo(s) ({} bytes), {} objeto(s) a copiar en GCS",
+                carpetas.size(), archivos.size(), bytes, aCopiar.size());
+
+        int total = aCopiar.size() + 1;
+        ConcurrentLinkedQueue<String> copiados = new ConcurrentLinkedQueue<>();
+        try {
+            // 2. Copia en GCS
+            copiarObjetos(aCopiar, copiados, progreso, total);
+
+            // 3. Referencias e inserción
+            final Nodo.ContainerType tipoDestino = containerType;
+            final Long idDestino = containerId;
+            new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+                retenerContenidos(archivos);
+                insertar(destino, tipoDestino, idDestino, usuarioId);
+            });
+        } catch (RuntimeException e) {
+            deshacerCopias(copiados);
+            throw e;
+        }
+        progreso.avance(total, total);
+
+        return new ResultadoCopia(carpetas.size(), archivos.size(), bytes);
+    }
+
+    // =================== FOTO ===================
+
+    /**
+     * Arma en memoria los subárboles de los nodos a copiar como hijos de la carpeta destino
+     * Un nodo elegido junto con uno de sus ancestros se copia dos veces (igual que al copiarlos por separado)
+     */
+    private void armarArbol(Elemento destino, List<Long> nodoIds) {
+        List<Object[]> filas = nodoRepository.findSubarbolesParaCopia(nodoIds);
+        if (filas.size() > maxNodos) {
+            throw new IllegalArgumentException("La copia supera el máximo de " + maxNodos + " elementos");
+        }
+
+        // Un índice por raíz: el mismo nodo puede aparecer bajo dos raíces elegidas
+        Map<Long, Map<Long, Elemento>> porRaiz = new LinkedHashMap<>();
+        Map<Long, Elemento> raices = new HashMap<>();
+        for (Object[] fila : filas) {
+            long raizId = ((Number) fila[0]).longValue();
+            long nodoId = ((Number) fila[1]).longValue();
+            boolean carpeta = Nodo.TipoNodo.CARPETA.name().equals(fila[4]);
+            Map<Long, Elemento> indice = porRaiz.computeIfAbsent(raizId, id -> new HashMap<>());
+
+            Elemento elemento;
+            if (nodoId == raizId) {
+                String nombre = (String) fila[3];
+                elemento = new Elemento(carpeta ? nombre + SUFIJO_COPIA : nombre, carpeta, destino);
+                raices.put(raizId, elemento);
+            } else {
+                Elemento padre = fila[2] != null ? indice.get(((Number) fila[2]).longValue()) : null;
+                if (padre == null) {
+                    // Padre eliminado dentro del subárbol: la rama no se copia
+                    continue;
+                }
+                elemento = new Elemento((String) fila[3], carpeta, padre);
+                padre.hijos.add(elemento);
+            }
+            if (!carpeta) {
+                elemento.tamanio = fila[5] != null ? ((Number) fila[5]).longValue() : 0L;
+                elemento.mimeType = (String) fila[6];
+                elemento.gcsOrigen = (String) fila[7];
+                elemento.generacionOrigen = fila[8] != null ? ((Number) fila[8]).longValue() : null;
+                elemento.contenidoHash = (String) fila[9];
+            }
+            indice.put(nodoId, elemento);
+        }
+
+        // Las raíces se pegan en el orden en que se copiaron
+        for (Long nodoId : nodoIds) {
+            Elemento raiz = raices.get(nodoId);
+            if (raiz == null) {
+                throw new IllegalArgumentException("Nodo no encontrado: " + nodoId);
+            }
+            destino.hijos.add(raiz);
+        }
+    }
+
+    /**
+     * Los nombres de las raíces no pueden estar ocupados en el destino ni repetirse entre sí
+     */
+    private void verificarNombresLibres(Elemento destino, Nodo.ContainerType containerType, Long containerId) {
+        List<Nodo> existentes = destino.nodoId != null
+                ? nodoRepository.findByParentIdAndIsDeletedFalse(destino.nodoId)
+                : nodoRepository.findByContainerTypeAndContainerIdAndParentIdIsNullAndIsDeletedFalse(containerType, containerId);
+        Set<String> ocupados = new HashSet<>();
+        existentes.forEach(n -> ocupados.add(n.getNombre()));
+
+        for (Elemento raiz : destino.hijos) {
+            if (!ocupados.add(raiz.nombre)) {
+                throw new IllegalArgumentException("Ya existe un elemento con el nombre '" + raiz.nombre + "' en esta ubicación");
+            }
+        }
+    }
+
+    /**
+     * Calcula el path de cada elemento y la ruta GCS de los objetos a copiar
+     */
+    private void asignarRutas(Elemento carpeta, Nodo.ContainerType containerType, Long containerId,
+                              List<Elemento> carpetas, List<Elemento> archivos) {
+        for (Elemento hijo : carpeta.hijos) {
+            hijo.path = carpeta.path + "/" + hijo.nombre;
+            if (hijo.carpeta) {
+                carpetas.add(hijo);
+                asignarRutas(hijo, containerType, containerId, carpetas, archivos);
+                continue;
+            }
+            archivos.add(hijo);
+            if (hijo.contenidoHash == null && hijo.gcsOrigen != null) {
+                Nodo nodo = new Nodo();
+                nodo.setContainerType(containerType);
+                nodo.setContainerId(containerId);
+                nodo.setPath(hijo.path);
+                hijo.gcsDestino = gcsConfigService.construirRutaGCS(nodo);
+            }
+        }
+    }
+
+    // =================== COPIA EN GCS ===================
+
+    /**
+     * Copia los objetos del lado del servidor con un máximo de copias simultáneas (ver TransferenciaParalelaService)
+     */
+    private void copiarObjetos(List<Elemento> archivos, ConcurrentLinkedQueue<String> copiados,
+                               ProgresoCopia progreso, int total) {
+        Throwable falla = transferenciaParalelaService.ejecutar(archivos, paralelismo, archivo -> {
+            archivo.generacionDestino = fileStorageService
+                    .copiarArchivo(archivo.gcsOrigen, archivo.gcsDestino).generacion();
+            copiados.add(archivo.gcsDestino);
+        }, completadas -> progreso.avance(completadas, total));
+
+        if (falla != null) {
+            throw new IllegalStateException("Error copiando archivos en GCS: " + falla.getMessage(), falla);
+        }
+    }
+
+    private void deshacerCopias(ConcurrentLinkedQueue<String> copiados) {
+        if (copiados.isEmpty()) {
+            return;
+        }
+        int eliminados = fileStorageService.eliminarArchivosEnLote(copiados);
+        logger.info("↩️ [COPIAR] Copia revertida, {} de {} objeto(s) copiados eliminados", eliminados, copiados.size());
+    }
+
+    // =================== INSERCIÓN ===================
+
+    /**
+     * Suma las referencias al almacén deduplicado (un UPDATE por contenido distinto, dentro de la transacción)
+     */
+    private void retenerContenidos(List<Elemento> archivos) {
+        Map<String, Integer> referencias = new HashMap<>();
+        for (Elemento archivo : archivos) {
+            if (archivo.contenidoHash != null) {
+                referencias.merge(archivo.contenidoHash, 1, Integer::sum);
+            }
+        }
+        referencias.forEach((hash, cantidad) -> {
+            if (!almacenContenidoService.retener(hash, cantidad)) {
+                throw new IllegalStateException("El contenido " + hash + " ya no existe en el almacén");
+            }
+        });
+    }
+
+    /**
+     * Inserta los nodos nivel por nivel y sus filas de nodo_closure (dentro de la transacción)
+     */
+    private void insertar(Elemento destino, Nodo.ContainerType containerType, Long containerId, Long usuarioId) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<long[]> clausura = new ArrayList<>();
+        destino.ancestros = insercionNodosService.consultarAncestros(destino.nodoId);
+
+        List<Elemento> nivel = destino.hijos;
+        while (!nivel.isEmpty()) {
+            insertarNodos(nivel, containerType, containerId, usuarioId, ahora);
+
+            List<Elemento> siguiente = new ArrayList<>();
+            for (Elemento elemento : nivel) {
+                List<long[]> propias = InsercionNodosService.agregarClausura(clausura, elemento.nodoId, elemento.padre.ancestros);
+                if (elemento.carpeta) {
+                    elemento.ancestros = propias;
+                    siguiente.addAll(elemento.hijos);
+                }
+            }
+            nivel = siguiente;
+        }
+
+        insercionNodosService.insertarClausura(clausura, loteInsercion);
+
+        // Solo la carpeta destino cambia de listado (después del commit)
+        nodoCacheInvalidator.evictarCarpeta(containerType, containerId, destino.nodoId);
+    }
+
+    /**
+     * Inserta los nodos de un nivel y asigna sus IDs generados
+     * Los archivos con objeto propio apuntan a la copia; los del almacén deduplicado, al mismo contenido
+     */
+    private void insertarNodos(List<Elemento> nivel, Nodo.ContainerType containerType, Long containerId,
+                               Long usuarioId, Timestamp ahora) {
+        List<InsercionNodosService.NodoNuevo> nodos = new ArrayList<>(nivel.size());
+        for (Elemento elemento : nivel) {
+            boolean objetoPropio = elemento.gcsDestino != null;
+            nodos.add(new InsercionNodosService.NodoNuevo(elemento.padre.nodoId, elemento.nombre, elemento.carpeta,
+                    elemento.path, elemento.tamanio, elemento.mimeType,
+                    objetoPropio ? elemento.gcsDestino : elemento.gcsOrigen,
+                    objetoPropio ? elemento.generacionDestino : elemento.generacionOrigen,
+                    elemento.contenidoHash));
+        }
+        List<Long> ids = insercionNodosService.insertarNodos(nodos, containerType, containerId, usuarioId, ahora, loteInsercion);
+        for (int i = 0; i < nivel.size(); i++) {
+            nivel.get(i).nodoId = ids.get(i);
+        }
+    }
+}
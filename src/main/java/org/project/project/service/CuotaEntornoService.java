@@ -0,0 +1,336 @@
+package org.project.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.project.project.exception.ResourceNotFoundException;
+import org.project.project.model.entity.EntornoPrueba;
+import org.project.project.repository.EntornoPruebaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cuotas y límite de frecuencia de los entornos de prueba, en memoria
+ * - Cuota diaria por entorno: un contador atómico por entorno (sin lectura ni escritura en BD por llamada);
+ *   la admisión es un compare-and-set, así que llamadas concurrentes no superan el límite
+ * - Frecuencia por usuario autenticado: una cubeta de tokens por (entorno, clave) que absorbe ráfagas
+ * - Las llamadas se vuelcan a llamadas_realizadas en lote cada testing.cuota.flush-interval-ms
+ * - El estado del entorno (límite, estado, expiración) y el contador de BD se releen cada
+ *   testing.cuota.recarga-seg, lo que también suma las llamadas de otras instancias
+ * - El contador se reinicia para todos los entornos con testing.cuota.reset-cron
+ */
+@Service
+public class CuotaEntornoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CuotaEntornoService.class);
+
+    private static final String SUMAR_LLAMADAS =
+            "UPDATE entorno_prueba SET llamadas_realizadas = llamadas_realizadas + ?, ultima_llamada = ? WHERE entorno_id = ?";
+
+    @Autowired
+    private EntornoPruebaRepository entornoPruebaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, ContadorEntorno> contadores = new ConcurrentHashMap<>();
+
+    private final Cache<String, CubetaTokens> cubetas;
+
+    private final CronExpression cronReinicio;
+
+    // Segundos entre relecturas del entorno en BD
+    @Value("${testing.cuota.recarga-seg:60}")
+    private long segundosRecarga;
+
+    // Tokens por minuto de cada clave (usuario que llama) y tamaño máximo de ráfaga
+    @Value("${testing.cuota.por-minuto:60}")
+    private int llamadasPorMinuto;
+
+    @Value("${testing.cuota.rafaga:20}")
+    private int rafaga;
+
+    public CuotaEntornoService(@Value("${testing.cuota.reset-cron:0 0 0 * * *}") String cronReinicio,
+                               @Value("${testing.cuota.claves-max:10000}") long clavesMax) {
+        this.cronReinicio = CronExpression.parse(cronReinicio);
+        this.cubetas = Caffeine.newBuilder()
+                .maximumSize(clavesMax)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+    }
+
+    /**
+     * Resultado de una admisión; se expone al cliente en las cabeceras X-RateLimit-*
+     * @param motivo Motivo del rechazo (null si se permitió)
+     * @param reintentarEnSeg Segundos hasta que vuelva a haber cupo (0 si se permitió)
+     */
+    public record ResultadoCuota(boolean permitido, String motivo, int limite, int restantes,
+                                 long reinicioEpochSeg, long reintentarEnSeg) {
+
+        public Map<String, String> cabeceras() {
+            Map<String, String> cabeceras = new LinkedHashMap<>();
+            cabeceras.put("X-RateLimit-Limit", String.valueOf(limite));
+            cabeceras.put("X-RateLimit-Remaining", String.valueOf(restantes));
+            cabeceras.put("X-RateLimit-Reset", String.valueOf(reinicioEpochSeg));
+            if (!permitido && reintentarEnSeg > 0) {
+                cabeceras.put("Retry-After", String.valueOf(reintentarEnSeg));
+            }
+            return cabeceras;
+        }
+    }
+
+    /**
+     * Contador diario de un entorno
+     * usadas es el valor de admisión (BD + llamadas locales); pendientes, lo que falta volcar a BD
+     */
+    private static final class ContadorEntorno {
+        private final Long entornoId;
+        private final AtomicInteger usadas = new AtomicInteger();
+        private final AtomicInteger pendientes = new AtomicInteger();
+        private volatile int limite;
+        private volatile EntornoPrueba.EstadoEntorno estado;
+        private volatile LocalDateTime expiracion;
+        private volatile LocalDateTime ultimaLlamada;
+        private volatile long proximaRecarga;
+
+        ContadorEntorno(Long entornoId) {
+            this.entornoId = entornoId;
+        }
+    }
+
+    /**
+     * Cubeta de tokens de una clave (usuario que llama)
+     */
+    private static final class CubetaTokens {
+        private final int capacidad;
+        private final double tokensPorNano;
+        private double tokens;
+        private long ultimaRecarga = System.nanoTime();
+
+        CubetaTokens(int capacidad, int porMinuto) {
+            this.capacidad = capacidad;
+            this.tokensPorNano = porMinuto / (double) TimeUnit.MINUTES.toNanos(1);
+            this.tokens = capacidad;
+        }
+
+        /**
+         * @return 0 si se tomó un token, o los segundos hasta el próximo token
+         */
+        synchronized long tomar() {
+            long ahora = System.nanoTime();
+            tokens = Math.min(capacidad, tokens + (ahora - ultimaRecarga) * tokensPorNano);
+            ultimaRecarga = ahora;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPorNano / TimeUnit.SECONDS.toNanos(1)));
+        }
+    }
+
+    // =================== ADMISIÓN ===================
+
+    /**
+     * Registra una llamada al entorno si hay cuota y la clave no supera su frecuencia
+     * @param clave Identidad autenticada que hace la llamada; null para no limitar frecuencia
+     * @throws ResourceNotFoundException si el entorno no existe
+     */
+    public ResultadoCuota consumir(Long entornoId, String clave) {
+        ContadorEntorno contador = obtenerContador(entornoId);
+        long reinicio = proximoReinicio();
+
+        if (contador.estado != EntornoPrueba.EstadoEntorno.ACTIVO) {
+            return rechazo(contador, "El entorno no está activo", reinicio, 0);
+        }
+        if (contador.expiracion != null && LocalDateTime.now().isAfter(contador.expiracion)) {
+            return rechazo(contador, "El entorno expiró", reinicio, 0);
+        }
+
+        // La frecuencia se consulta antes que la cuota: un rechazo por ráfaga no gasta cuota diaria
+        if (clave != null) {
+            long espera = cubetas.get(entornoId + ":" + clave, k -> new CubetaTokens(rafaga, llamadasPorMinuto)).tomar();
+            if (espera > 0) {
+                return rechazo(contador, "Demasiadas llamadas, reintente en " + espera + " s", reinicio, espera);
+            }
+        }
+
+        int usadas;
+        do {
+            usadas = contador.usadas.get();
+            if (usadas >= contador.limite) {
+                return rechazo(contador, "Límite de llamadas diarias alcanzado", reinicio,
+                        Math.max(1, reinicio - System.currentTimeMillis() / 1000));
+            }
+        } while (!contador.usadas.compareAndSet(usadas, usadas + 1));
+
+        contador.pendientes.incrementAndGet();
+        contador.ultimaLlamada = LocalDateTime.now();
+        return new ResultadoCuota(true, null, contador.limite, Math.max(0, contador.limite - usadas - 1), reinicio, 0);
+    }
+
+    /**
+     * Cuota restante sin consumir
+     */
+    public ResultadoCuota consultar(Long entornoId) {
+        ContadorEntorno contador = obtenerContador(entornoId);
+        int restantes = Math.max(0, contador.limite - contador.usadas.get());
+        boolean disponible = contador.estado == EntornoPrueba.EstadoEntorno.ACTIVO && restantes > 0
+                && (contador.expiracion == null || LocalDateTime.now().isBefore(contador.expiracion));
+        return new ResultadoCuota(disponible, null, contador.limite, restantes, proximoReinicio(), 0);
+    }
+
+    /**
+     * Fuerza a releer el entorno en la próxima llamada (cambio de límite, estado o contador)
+     */
+    public void invalidar(Long entornoId) {
+        ContadorEntorno contador = contadores.get(entornoId);
+        if (contador != null) {
+            contador.proximaRecarga = 0;
+        }
+    }
+
+    private ResultadoCuota rechazo(ContadorEntorno contador, String motivo, long reinicio, long reintentarEnSeg) {
+        int restantes = Math.max(0, contador.limite - contador.usadas.get());
+        return new ResultadoCuota(false, motivo, contador.limite, restantes, reinicio, reintentarEnSeg);
+    }
+
+    private long proximoReinicio() {
+        ZonedDateTime siguiente = cronReinicio.next(ZonedDateTime.now());
+        return siguiente != null ? siguiente.toEpochSecond() : 0L;
+    }
+
+    // =================== ESTADO EN MEMORIA ===================
+
+    private ContadorEntorno obtenerContador(Long entornoId) {
+        ContadorEntorno contador = contadores.computeIfAbsent(entornoId, ContadorEntorno::new);
+        if (System.currentTimeMillis() >= contador.proximaRecarga) {
+            recargar(contador);
+        }
+        return contador;
+    }
+
+    /**
+     * Vuelca lo pendiente y relee el entorno; las llamadas que entren mientras tanto quedan en pendientes
+     * y se suman al valor de BD
+     */
+    private void recargar(ContadorEntorno contador) {
+        synchronized (contador) {
+            if (System.currentTimeMillis() < contador.proximaRecarga) {
+                return;
+            }
+            volcar(List.of(contador));
+            Optional<EntornoPrueba> entorno = entornoPruebaRepository.findById(contador.entornoId);
+            if (entorno.isEmpty()) {
+                contadores.remove(contador.entornoId);
+                throw new ResourceNotFoundException("Entorno de prueba no encontrado con id: " + contador.entornoId);
+            }
+            EntornoPrueba e = entorno.get();
+            contador.limite = e.getLimiteLlamadasDia() != null ? e.getLimiteLlamadasDia() : 0;
+            contador.estado = e.getEstadoEntorno();
+            contador.expiracion = e.getFechaExpiracion();
+            int enBd = e.getLlamadasRealizadas() != null ? e.getLlamadasRealizadas() : 0;
+            contador.usadas.set(enBd + contador.pendientes.get());
+            contador.proximaRecarga = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(segundosRecarga);
+        }
+    }
+
+    // =================== VOLCADO Y REINICIO ===================
+
+    @Scheduled(initialDelayString = "${testing.cuota.flush-interval-ms:5000}",
+               fixedDelayString = "${testing.cuota.flush-interval-ms:5000}")
+    public void volcadoProgramado() {
+        try {
+            volcar(contadores.values());
+        } catch (Exception e) {
+            // Lo no volcado vuelve a pendientes y se reintenta en el próximo ciclo
+            logger.error("❌ [CUOTA] Error volcando llamadas: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Suma las llamadas pendientes a llamadas_realizadas en un único batch
+     */
+    private void volcar(Iterable<ContadorEntorno> candidatos) {
+        List<ContadorEntorno> lote = new ArrayList<>();
+        List<Object[]> filas = new ArrayList<>();
+        for (ContadorEntorno contador : candidatos) {
+            int cantidad = contador.pendientes.getAndSet(0);
+            if (cantidad > 0) {
+                lote.add(contador);
+                LocalDateTime ultima = contador.ultimaLlamada != null ? contador.ultimaLlamada : LocalDateTime.now();
+                filas.add(new Object[] { cantidad, Timestamp.valueOf(ultima), contador.entornoId });
+            }
+        }
+        if (filas.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(SUMAR_LLAMADAS, filas);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < lote.size(); i++) {
+                lote.get(i).pendientes.addAndGet((Integer) filas.get(i)[0]);
+            }
+            throw e;
+        }
+        logger.debug("💾 [CUOTA] Llamadas volcadas de {} entorno(s)", filas.size());
+    }
+
+    /**
+     * Reinicio diario de todos los contadores (reemplaza los reinicios entorno por entorno)
+     */
+    @Scheduled(cron = "${testing.cuota.reset-cron:0 0 0 * * *}")
+    public void reinicioDiario() {
+        try {
+            volcar(contadores.values());
+            int reiniciados = entornoPruebaRepository.resetAllCallCounts();
+            // Las llamadas que entraron después del volcado cuentan para el nuevo día
+            contadores.values().forEach(c -> c.usadas.set(c.pendientes.get()));
+            logger.info("🔄 [CUOTA] Contadores diarios reiniciados ({} entorno(s))", reiniciados);
+        } catch (Exception e) {
+            logger.error("❌ [CUOTA] Error en el reinicio diario: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reinicia el contador de un entorno
+     */
+    public void reiniciar(Long entornoId) {
+        ContadorEntorno contador = contadores.get(entornoId);
+        if (contador == null) {
+            entornoPruebaRepository.resetCallCount(entornoId);
+            return;
+        }
+        synchronized (contador) {
+            volcar(List.of(contador));
+            entornoPruebaRepository.resetCallCount(entornoId);
+            contador.usadas.set(contador.pendientes.get());
+        }
+    }
+
+    @PreDestroy
+    public void volcarAlCerrar() {
+        try {
+            volcar(contadores.values());
+        } catch (Exception e) {
+            logger.warn("⚠️ [CUOTA] No se pudieron volcar las llamadas pendientes al cerrar: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.project.project.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Paginación por cursor (keyset) para los listados de proyectos, repositorios y tickets
+ * - El cursor es opaco para el cliente: codifica el orden, el valor de la clave de orden
+ *   y el ID del último elemento devuelto (desempate)
+ * - La siguiente página se pide con "clave > cursor" en lugar de OFFSET, así que la página N
+ *   cuesta lo mismo que la primera
+ * - Un cursor ilegible o de otro orden se ignora y se devuelve la primera página
+ */
+public final class CursorPaginacion {
+
+    public static final int TAMANIO_PAGINA = 12;
+
+    // Tope del tamaño de página que puede pedir el cliente (mismo que la búsqueda paginada)
+    public static final int TAMANIO_MAXIMO = BusquedaService.TAMANIO_MAXIMO;
+
+    // Formato que MySQL compara directamente contra columnas DATETIME
+    private static final DateTimeFormatter FORMATO_FECHA_HORA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    private CursorPaginacion() {
+    }
+
+    /**
+     * Posición decodificada de un cursor
+     * @param orden Orden normalizado (name, oldest o recent)
+     * @param valor Valor de la clave de orden del último elemento, en el formato que acepta MySQL
+     * @param id ID del último elemento
+     */
+    public record Posicion(String orden, String valor, Long id) {
+    }
+
+    /**
+     * Página de resultados
+     * @param siguienteCursor Cursor de la página siguiente (null si no hay más)
+     * @param total Total aproximado de elementos (conteo cacheado, ver ConteoCacheService)
+     */
+    public record Pagina<T>(List<T> elementos, String siguienteCursor, long total) {
+        public boolean hayMas() {
+            return siguienteCursor != null;
+        }
+    }
+
+    /**
+     * Orden admitido por las consultas keyset: name, oldest o recent (por defecto)
+     */
+    public static String normalizarOrden(String sort) {
+        if ("name".equals(sort) || "oldest".equals(sort)) {
+            return sort;
+        }
+        return "recent";
+    }
+
+    public static String codificar(String orden, Object valor, Long id) {
+        String texto = orden + "\n" + id + "\n" + formatear(valor);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return Posición del cursor, o null si está vacío, es ilegible o corresponde a otro orden
+     */
+    public static Posicion decodificar(String cursor, String orden) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = texto.split("\n", 3);
+            if (partes.length != 3 || !partes[0].equals(orden)) {
+                return null;
+            }
+            return new Posicion(partes[0], partes[2], Long.valueOf(partes[1]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Valor de la posición como fecha y hora (listados ordenados por una columna DATETIME)
+     * @return null si el valor no es una fecha válida
+     */
+    public static LocalDateTime fechaHora(Posicion posicion) {
+        try {
+            return LocalDateTime.parse(posicion.valor(), FORMATO_FECHA_HORA);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Tamaño de página pedido por el cliente acotado a [1, TAMANIO_MAXIMO]
+     */
+    public static int tamanioSeguro(int size) {
+        return Math.min(Math.max(size, 1), TAMANIO_MAXIMO);
+    }
+
+    private static String formatear(Object valor) {
+        if (valor instanceof LocalDateTime fechaHora) {
+            return fechaHora.format(FORMATO_FECHA_HORA);
+        }
+        if (valor instanceof LocalDate fecha) {
+            return fecha.toString();
+        }
+        return valor != null ? valor.toString() : "";
+    }
+}
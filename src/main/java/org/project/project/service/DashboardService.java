@@ -1,24 +1,38 @@
 package org.project.project.service;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import org.project.project.model.dto.DashboardStatsDTO;
 import org.project.project.model.dto.TeamInfoDTO;
 import org.project.project.model.dto.TeamMemberDTO;
 
 import org.project.project.repository.*;
-import org.project.project.repository.query.RepositorioQueryService;
 import org.project.project.model.entity.*;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Servicio para el Dashboard - Completamente nuevo
+ *
+ * Las estadísticas se calculan con una consulta agregada por dominio (proyectos, repositorios,
+ * tickets) y se sirven desde un snapshot por usuario: pasado dashboard.stats.refresh-seconds
+ * se devuelve el snapshot actual y se recalcula en segundo plano (statsRefreshExecutor)
  */
 @Service
 @Transactional(readOnly = true)
@@ -37,8 +51,9 @@ public class DashboardService {
     private final UsuarioHasProyectoRepository usuarioHasProyectoRepository;
     private final UsuarioHasRepositorioRepository usuarioHasRepositorioRepository;
     
-    // Query services
-    private final RepositorioQueryService repositorioQueryService;
+    // Snapshot de estadísticas por usuario
+    private final TransactionTemplate transactionTemplate;
+    private final LoadingCache<Long, DashboardStatsDTO> snapshots;
     
     public DashboardService(
             UsuarioRepository usuarioRepository,
@@ -48,7 +63,11 @@ public class DashboardService {
             DocumentacionRepository documentacionRepository,
             UsuarioHasProyectoRepository usuarioHasProyectoRepository,
             UsuarioHasRepositorioRepository usuarioHasRepositorioRepository,
-            RepositorioQueryService repositorioQueryService) {
+            PlatformTransactionManager transactionManager,
+            @Qualifier("statsRefreshExecutor") Executor statsRefreshExecutor,
+            @Value("${dashboard.stats.refresh-seconds:30}") long refrescoSegundos,
+            @Value("${dashboard.stats.ttl-min:10}") long ttlMinutos,
+            @Value("${dashboard.stats.max-size:5000}") long maxSize) {
         
         this.usuarioRepository = usuarioRepository;
         this.equipoRepository = equipoRepository;
@@ -57,56 +76,82 @@ public class DashboardService {
         this.documentacionRepository = documentacionRepository;
         this.usuarioHasProyectoRepository = usuarioHasProyectoRepository;
         this.usuarioHasRepositorioRepository = usuarioHasRepositorioRepository;
-        this.repositorioQueryService = repositorioQueryService;
+        
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(refrescoSegundos, TimeUnit.SECONDS)
+                .expireAfterWrite(ttlMinutos, TimeUnit.MINUTES)
+                .executor(statsRefreshExecutor)
+                .build(usuarioId -> transactionTemplate.execute(status -> calcularEstadisticas(usuarioId)));
     }
     
     /**
      * Obtiene las estadísticas completas del dashboard para un usuario
+     * Primera llamada: cálculo síncrono. Luego: snapshot (refrescado en segundo plano si está viejo)
+     * También alimenta las exportaciones de MetricsConversionService
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public DashboardStatsDTO obtenerEstadisticasCompletas(Long usuarioId) {
-        logger.info("=== GETTING DASHBOARD STATS FOR USER ID: {} ===", usuarioId);
+        return snapshots.get(usuarioId);
+    }
+    
+    /**
+     * Descarta el snapshot de un usuario (el siguiente acceso recalcula)
+     */
+    public void invalidarEstadisticas(Long usuarioId) {
+        snapshots.invalidate(usuarioId);
+    }
+    
+    /**
+     * Calcula las estadísticas: 3 consultas agregadas + 3 conteos simples
+     */
+    private DashboardStatsDTO calcularEstadisticas(Long usuarioId) {
+        long inicio = System.currentTimeMillis();
         DashboardStatsDTO stats = new DashboardStatsDTO();
         
         // Estadísticas principales
-        stats.setTotalTeams(contarEquiposDelUsuario(usuarioId));
-        stats.setTotalProjects(contarProyectosDelUsuario(usuarioId));
-        stats.setTotalRepositories(contarRepositoriosDelUsuario(usuarioId));
-        stats.setTotalTickets(contarTicketsDelUsuario(usuarioId));
-        stats.setTotalApis(contarApisDelUsuario(usuarioId));
-        stats.setTotalDocumentations(contarDocumentacionesDelUsuario(usuarioId));
+        stats.setTotalTeams(contar(() -> equipoRepository.countTeamsByUserId(usuarioId), "equipos", usuarioId));
+        stats.setTotalApis(contar(apiRepository::count, "apis", usuarioId));
+        stats.setTotalDocumentations(contar(documentacionRepository::count, "documentaciones", usuarioId));
         
-        // Estadísticas de proyectos por propietario
-        stats.setPersonalProjects(contarProyectosPersonales(usuarioId));
-        stats.setGroupProjects(contarProyectosDeEquipo(usuarioId));
-        stats.setCompanyProjects(contarProyectosEmpresariales(usuarioId));
+        // Proyectos: [total, USUARIO, GRUPO, EMPRESA, PLANEADO, EN_DESARROLLO, MANTENIMIENTO, CERRADO]
+        long[] proyectos = fila(() -> usuarioHasProyectoRepository.agregarEstadisticasProyectos(usuarioId), 8, "proyectos", usuarioId);
+        stats.setTotalProjects(proyectos[0]);
+        stats.setPersonalProjects(proyectos[1]);
+        stats.setGroupProjects(proyectos[2]);
+        stats.setCompanyProjects(proyectos[3]);
+        stats.setPlannedProjects(proyectos[4]);
+        stats.setDevelopmentProjects(proyectos[5]);
+        stats.setMaintenanceProjects(proyectos[6]);
+        stats.setClosedProjects(proyectos[7]);
         
-        // Estadísticas de proyectos por estado
-        stats.setPlannedProjects(contarProyectosPorEstado(usuarioId, "PLANEADO"));
-        stats.setDevelopmentProjects(contarProyectosPorEstado(usuarioId, "EN_DESARROLLO"));
-        stats.setMaintenanceProjects(contarProyectosPorEstado(usuarioId, "MANTENIMIENTO"));
-        stats.setClosedProjects(contarProyectosPorEstado(usuarioId, "CERRADO"));
+        // Repositorios: [total, EDITOR, LECTOR, PUBLICO, PRIVADO]
+        long[] repositorios = fila(() -> usuarioHasRepositorioRepository.agregarEstadisticasRepositorios(usuarioId), 5, "repositorios", usuarioId);
+        stats.setTotalRepositories(repositorios[0]);
+        stats.setPersonalRepositories(repositorios[1]);
+        stats.setCollaborativeRepositories(repositorios[2]);
+        stats.setPublicRepositories(repositorios[3]);
+        stats.setPrivateRepositories(repositorios[4]);
         
-        // Estadísticas de repositorios
-        stats.setPersonalRepositories(contarRepositoriosPersonales(usuarioId));
-        stats.setCollaborativeRepositories(contarRepositoriosColaborativos(usuarioId));
-        stats.setPublicRepositories(contarRepositoriosPorVisibilidad(usuarioId, "PUBLICO"));
-        stats.setPrivateRepositories(contarRepositoriosPorVisibilidad(usuarioId, "PRIVADO"));
+        // Tickets: [total, ENVIADO, RECIBIDO, EN_PROGRESO, RESUELTO, CERRADO, RECHAZADO, BAJA, MEDIA, ALTA]
+        long[] tickets = fila(() -> ticketRepository.agregarEstadisticasTickets(usuarioId), 10, "tickets", usuarioId);
+        stats.setTotalTickets(tickets[0]);
+        stats.setSentTickets(tickets[1]);
+        stats.setReceivedTickets(tickets[2]);
+        stats.setInProgressTickets(tickets[3]);
+        stats.setResolvedTickets(tickets[4]);
+        stats.setClosedTickets(tickets[5]);
+        stats.setRejectedTickets(tickets[6]);
+        stats.setLowPriorityTickets(tickets[7]);
+        stats.setMediumPriorityTickets(tickets[8]);
+        stats.setHighPriorityTickets(tickets[9]);
         
-        // Estadísticas de tickets por estado
-        stats.setSentTickets(contarTicketsPorEstado(usuarioId, "ENVIADO"));
-        stats.setReceivedTickets(contarTicketsPorEstado(usuarioId, "RECIBIDO"));
-        stats.setInProgressTickets(contarTicketsPorEstado(usuarioId, "EN_PROGRESO"));
-        stats.setResolvedTickets(contarTicketsPorEstado(usuarioId, "RESUELTO"));
-        stats.setClosedTickets(contarTicketsPorEstado(usuarioId, "CERRADO"));
-        stats.setRejectedTickets(contarTicketsPorEstado(usuarioId, "RECHAZADO"));
-        
-        // Estadísticas de tickets por prioridad
-        stats.setLowPriorityTickets(contarTicketsPorPrioridad(usuarioId, "BAJA"));
-        stats.setMediumPriorityTickets(contarTicketsPorPrioridad(usuarioId, "MEDIA"));
-        stats.setHighPriorityTickets(contarTicketsPorPrioridad(usuarioId, "ALTA"));
-        
-        logger.info("Stats completed for user {}: Projects={}, Teams={}, Repositories={}", 
-                   usuarioId, stats.getTotalProjects(), stats.getTotalTeams(), stats.getTotalRepositories());
+        logger.info("Stats computed for user {} in {} ms: Projects={}, Teams={}, Repositories={}", 
+                   usuarioId, System.currentTimeMillis() - inicio,
+                   stats.getTotalProjects(), stats.getTotalTeams(), stats.getTotalRepositories());
         
         return stats;
     }
@@ -182,206 +227,35 @@ public class DashboardService {
     
     // Métodos auxiliares para conteos específicos
     
-    private long contarEquiposDelUsuario(Long usuarioId) {
-        try {
-            long count = equipoRepository.countTeamsByUserId(usuarioId);
-            logger.debug("Teams count for user {}: {}", usuarioId, count);
-            return count;
-        } catch (Exception e) {
-            logger.error("Error counting teams for user {}: {}", usuarioId, e.getMessage());
-            return 0;
-        }
-    }
-    
-    private long contarProyectosDelUsuario(Long usuarioId) {
-        try {
-            return usuarioHasProyectoRepository.countByUserId(usuarioId);
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private long contarRepositoriosDelUsuario(Long usuarioId) {
-        try {
-            // SOLUCIÓN: Usar la misma consulta exacta que la sección "I-am-part-of"
-            System.out.println("🔍 DASHBOARD - Contando repositorios para usuario ID: " + usuarioId);
-            
-            // Usar repositorioQueryService.findAllMyRepositories como en I-am-part-of
-            // Esto incluye TANTO repositorios donde es colaborador COMO donde es creador
-            List<Repositorio> repositoriosCorrectos = repositorioQueryService.findAllMyRepositories(usuarioId, null, null, null);
-            System.out.println("📊 DASHBOARD - CONSULTA CORRECTA (usando repositorioQueryService) - Repositorios encontrados: " + repositoriosCorrectos.size());
-            
-            // Log detallado de cada repositorio
-            System.out.println("📋 DASHBOARD - Repositorios detallados (Consulta correcta):");
-            for (Repositorio repo : repositoriosCorrectos) {
-                System.out.println("  - " + repo.getNombreRepositorio() + " (ID: " + repo.getRepositorioId() + ")");
-            }
-            
-            // Para comparación: mantener la consulta anterior para ver la diferencia
-            List<Repositorio> repositoriosIncorrectos = usuarioHasRepositorioRepository.findRepositoriesByUserId(usuarioId);
-            System.out.println("📊 DASHBOARD - CONSULTA ANTERIOR (solo tabla intermedia) - Repositorios encontrados: " + repositoriosIncorrectos.size());
-            
-            if (repositoriosCorrectos.size() != repositoriosIncorrectos.size()) {
-                System.out.println("✅ DASHBOARD - ¡PROBLEMA IDENTIFICADO! La consulta anterior no incluía todos los repositorios");
-                System.out.println("� DASHBOARD - Repositorios que faltaban en consulta anterior:");
-                for (Repositorio repo : repositoriosCorrectos) {
-                    boolean faltaba = repositoriosIncorrectos.stream()
-                        .noneMatch(r -> r.getRepositorioId().equals(repo.getRepositorioId()));
-                    if (faltaba) {
-                        System.out.println("  ❌ FALTABA: " + repo.getNombreRepositorio() + " (ID: " + repo.getRepositorioId() + ")");
-                    }
-                }
-            }
-            
-            return repositoriosCorrectos.size();
-        } catch (Exception e) {
-            System.err.println("🔥 DASHBOARD - Error contando repositorios: " + e.getMessage());
-            logger.error("Error counting repositories for user {}: {}", usuarioId, e.getMessage());
-            return 0;
-        }
-    }
-    
-    private long contarTicketsDelUsuario(Long usuarioId) {
-        try {
-            // Contar tickets reportados + tickets asignados
-            long ticketsReportados = ticketRepository.countByReportadoPor_UsuarioId(usuarioId);
-            long ticketsAsignados = ticketRepository.countByAsignadoA_UsuarioId(usuarioId);
-            return ticketsReportados + ticketsAsignados;
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private long contarApisDelUsuario(Long usuarioId) {
+    private long contar(LongSupplier conteo, String dominio, Long usuarioId) {
         try {
-            // Contamos las APIs donde el usuario tiene acceso
-            return apiRepository.count();
+            return conteo.getAsLong();
         } catch (Exception e) {
+            logger.error("Error counting {} for user {}: {}", dominio, usuarioId, e.getMessage());
             return 0;
         }
     }
     
-    private long contarDocumentacionesDelUsuario(Long usuarioId) {
-        try {
-            // Contamos las documentaciones disponibles
-            return documentacionRepository.count();
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private long contarProyectosPersonales(Long usuarioId) {
-        try {
-            List<Proyecto> proyectos = usuarioHasProyectoRepository.findProjectsByUserId(usuarioId);
-            return proyectos.stream()
-                .filter(p -> p.getPropietarioProyecto() == Proyecto.PropietarioProyecto.USUARIO)
-                .count();
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private long contarProyectosDeEquipo(Long usuarioId) {
-        try {
-            List<Proyecto> proyectos = usuarioHasProyectoRepository.findProjectsByUserId(usuarioId);
-            return proyectos.stream()
-                .filter(p -> p.getPropietarioProyecto() == Proyecto.PropietarioProyecto.GRUPO)
-                .count();
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private long contarProyectosEmpresariales(Long usuarioId) {
-        try {
-            List<Proyecto> proyectos = usuarioHasProyectoRepository.findProjectsByUserId(usuarioId);
-            return proyectos.stream()
-                .filter(p -> p.getPropietarioProyecto() == Proyecto.PropietarioProyecto.EMPRESA)
-                .count();
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private long contarProyectosPorEstado(Long usuarioId, String estado) {
-        try {
-            Proyecto.EstadoProyecto estadoEnum = Proyecto.EstadoProyecto.valueOf(estado);
-            List<Proyecto> proyectos = usuarioHasProyectoRepository.findProjectsByUserId(usuarioId);
-            return proyectos.stream()
-                .filter(p -> p.getEstadoProyecto() == estadoEnum)
-                .count();
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private long contarRepositoriosPersonales(Long usuarioId) {
-        try {
-            return usuarioHasRepositorioRepository.countByUserIdAndPrivilege(
-                usuarioId, UsuarioHasRepositorio.PrivilegioUsuarioRepositorio.EDITOR);
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private long contarRepositoriosColaborativos(Long usuarioId) {
+    /**
+     * Convierte la fila única de una consulta agregada en long[]; ceros si la consulta falla
+     */
+    private long[] fila(Supplier<List<Object[]>> consulta, int columnas, String dominio, Long usuarioId) {
+        long[] valores = new long[columnas];
+        List<Object[]> resultado;
         try {
-            return usuarioHasRepositorioRepository.countByUserIdAndPrivilege(
-                usuarioId, UsuarioHasRepositorio.PrivilegioUsuarioRepositorio.LECTOR);
+            resultado = consulta.get();
         } catch (Exception e) {
-            return 0;
+            logger.error("Error aggregating {} for user {}: {}", dominio, usuarioId, e.getMessage());
+            return valores;
         }
-    }
-    
-    private long contarRepositoriosPorVisibilidad(Long usuarioId, String visibilidad) {
-        try {
-            Repositorio.VisibilidadRepositorio visibilidadEnum = Repositorio.VisibilidadRepositorio.valueOf(visibilidad);
-            List<Repositorio> repositorios = usuarioHasRepositorioRepository.findRepositoriesByUserId(usuarioId);
-            return repositorios.stream()
-                .filter(r -> r.getVisibilidadRepositorio() == visibilidadEnum)
-                .count();
-        } catch (Exception e) {
-            return 0;
+        if (resultado == null || resultado.isEmpty()) {
+            logger.warn("Empty {} aggregate for user {}", dominio, usuarioId);
+            return valores;
         }
-    }
-    
-    private long contarTicketsPorEstado(Long usuarioId, String estado) {
-        try {
-            Ticket.EstadoTicket estadoEnum = Ticket.EstadoTicket.valueOf(estado);
-            // Obtener tickets del usuario (reportados + asignados)
-            List<Ticket> ticketsReportados = ticketRepository.findByReportadoPor_UsuarioIdOrderByFechaCreacionDesc(usuarioId);
-            List<Ticket> ticketsAsignados = ticketRepository.findByAsignadoA_UsuarioIdOrderByFechaCreacionDesc(usuarioId);
-
-            long countReportados = ticketsReportados.stream()
-                .filter(t -> t.getEstadoTicket() == estadoEnum)
-                .count();
-            long countAsignados = ticketsAsignados.stream()
-                .filter(t -> t.getEstadoTicket() == estadoEnum)
-                .count();
-
-            return countReportados + countAsignados;
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private long contarTicketsPorPrioridad(Long usuarioId, String prioridad) {
-        try {
-            Ticket.PrioridadTicket prioridadEnum = Ticket.PrioridadTicket.valueOf(prioridad);
-            // Obtener tickets del usuario (reportados + asignados)
-            List<Ticket> ticketsReportados = ticketRepository.findByReportadoPor_UsuarioIdOrderByFechaCreacionDesc(usuarioId);
-            List<Ticket> ticketsAsignados = ticketRepository.findByAsignadoA_UsuarioIdOrderByFechaCreacionDesc(usuarioId);
-
-            long countReportados = ticketsReportados.stream()
-                .filter(t -> t.getPrioridadTicket() == prioridadEnum)
-                .count();
-            long countAsignados = ticketsAsignados.stream()
-                .filter(t -> t.getPrioridadTicket() == prioridadEnum)
-                .count();
-
-            return countReportados + countAsignados;
-        } catch (Exception e) {
-            return 0;
+        Object[] row = resultado.get(0);
+        for (int i = 0; i < columnas && i < row.length; i++) {
+            valores[i] = row[i] != null ? ((Number) row[i]).longValue() : 0L;
         }
+        return valores;
     }
 }
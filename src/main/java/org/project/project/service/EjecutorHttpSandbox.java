@@ -0,0 +1,462 @@
+package org.project.project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.project.project.model.dto.SandboxRequestDTO;
+import org.project.project.model.dto.SandboxResponseDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.ByteArrayOutputStream;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Motor de ejecución de peticiones del sandbox (en proceso, con el HttpClient del JDK)
+ * - Clientes compartidos (uno para http y uno por host https, por el SNI): las conexiones keep-alive se reutilizan
+ * - Envío asíncrono sobre sandboxHttpExecutor con un límite de peticiones simultáneas por host
+ * - La respuesta se lee en streaming y se corta al llegar a sandbox.http.max-respuesta-kb
+ * - Tiempos: DNS (resolución previa, que deja la dirección en la caché de la JVM), TTFB (hasta las
+ *   cabeceras, incluye conexión y TLS) y descarga del cuerpo
+ * - No sigue redirecciones ni permite destinos de red privada (salvo sandbox.http.permitir-red-privada)
+ * - La conexión va a la dirección ya validada (la URI se reescribe con la IP y se envía el Host original;
+ *   en https el SNI y la verificación del certificado usan el nombre original), así que un segundo DNS que
+ *   responda otra IP (DNS rebinding) no cambia el destino. Requiere jdk.httpclient.allowRestrictedHeaders=host
+ *   antes del primer HttpClient de la JVM: lo fijan ProjectApplication.main y el inicializador estático de esta
+ *   clase (tests, WAR); si otro componente crea un HttpClient antes, hay que pasarlo como opción de la JVM
+ */
+@Component
+public class EjecutorHttpSandbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(EjecutorHttpSandbox.class);
+
+    private static final String CABECERAS_PERMITIDAS = "jdk.httpclient.allowRestrictedHeaders";
+
+    static {
+        // Se respeta un valor ya configurado, agregándole host si no lo incluye
+        String permitidas = System.getProperty(CABECERAS_PERMITIDAS);
+        if (permitidas == null || permitidas.isBlank()) {
+            System.setProperty(CABECERAS_PERMITIDAS, "host");
+        } else if (Arrays.stream(permitidas.split(",")).noneMatch(c -> c.trim().equalsIgnoreCase("host"))) {
+            System.setProperty(CABECERAS_PERMITIDAS, permitidas + ",host");
+        }
+    }
+
+    private static final Set<String> METODOS = Set.of("GET", "POST", "PUT", "PATCH", "DELETE", "HEAD", "OPTIONS");
+
+    private static final Set<String> METODOS_CON_CUERPO = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    // Cabeceras que gestiona el propio cliente (HttpClient rechaza que se fijen a mano)
+    private static final Set<String> CABECERAS_RESTRINGIDAS =
+            Set.of("host", "connection", "content-length", "expect", "upgrade", "keep-alive", "transfer-encoding");
+
+    @Autowired
+    @Qualifier("sandboxHttpExecutor")
+    private Executor sandboxHttpExecutor;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Cache<String, Semaphore> permisosPorHost = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    // Clientes https por host: el SNI se fija en el cliente porque la URI lleva la IP
+    // Cada cliente tiene su hilo selector y su pool de conexiones: se mantienen pocos y por poco tiempo
+    private Cache<String, HttpClient> clientesTls;
+
+    private HttpClient cliente;
+
+    @Value("${sandbox.http.max-clientes-tls:16}")
+    private int maxClientesTls;
+
+    @Value("${sandbox.http.connect-timeout-ms:5000}")
+    private long timeoutConexionMs;
+
+    // Tiempo máximo de la petición completa (cabeceras + cuerpo)
+    @Value("${sandbox.http.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${sandbox.http.max-por-host:8}")
+    private int maxPorHost;
+
+    // Espera máxima por un turno cuando el host ya tiene max-por-host peticiones en curso
+    @Value("${sandbox.http.espera-host-ms:2000}")
+    private long esperaHostMs;
+
+    @Value("${sandbox.http.max-respuesta-kb:1024}")
+    private int maxRespuestaKb;
+
+    @Value("${sandbox.http.permitir-red-privada:false}")
+    private boolean permitirRedPrivada;
+
+    @PostConstruct
+    public void inicializar() {
+        this.cliente = nuevoCliente(null);
+        this.clientesTls = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxClientesTls))
+                .expireAfterAccess(2, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * HTTP/1.1: en HTTP/2 el :authority saldría de la URI (la IP) en lugar del host original
+     * @param sni Nombre para SNI y verificación del certificado (null en http o con IP literal)
+     */
+    private HttpClient nuevoCliente(String sni) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .executor(sandboxHttpExecutor)
+                .connectTimeout(Duration.ofMillis(timeoutConexionMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .version(HttpClient.Version.HTTP_1_1);
+        if (sni != null) {
+            try {
+                SSLParameters parametros = SSLContext.getDefault().getDefaultSSLParameters();
+                parametros.setServerNames(List.of(new SNIHostName(sni)));
+                builder.sslParameters(parametros);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("TLS no disponible", e);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Ejecuta la petición y arma la respuesta del sandbox (nunca lanza: los errores van en error)
+     */
+    public SandboxResponseDTO ejecutar(SandboxRequestDTO request) {
+        SandboxResponseDTO response = new SandboxResponseDTO();
+        SandboxResponseDTO.Metadata metadata = new SandboxResponseDTO.Metadata();
+        response.setMetadata(metadata);
+        long inicio = System.nanoTime();
+
+        Semaphore permisos = null;
+        try {
+            String metodo = request.getMethod() != null ? request.getMethod().trim().toUpperCase(Locale.ROOT) : "GET";
+            if (!METODOS.contains(metodo)) {
+                throw new IllegalArgumentException("Método HTTP no soportado: " + request.getMethod());
+            }
+            URI uri = validarUri(request.getUrl());
+
+            // 1. DNS
+            long inicioDns = System.nanoTime();
+            InetAddress[] direcciones = InetAddress.getAllByName(uri.getHost());
+            metadata.setDnsMs(milis(System.nanoTime() - inicioDns));
+            if (!permitirRedPrivada) {
+                verificarDestinoPublico(uri.getHost(), direcciones);
+            }
+
+            InetAddress destino = direcciones[0];
+
+            // 2. Turno en el host
+            String host = uri.getHost().toLowerCase(Locale.ROOT) + ":" + puerto(uri);
+            permisos = permisosPorHost.get(host, h -> new Semaphore(maxPorHost));
+            if (!permisos.tryAcquire(esperaHostMs, TimeUnit.MILLISECONDS)) {
+                permisos = null;
+                throw new IllegalStateException("Demasiadas peticiones simultáneas a " + uri.getHost());
+            }
+
+            // 3. Envío y lectura acotada
+            CuerpoLimitado cuerpo = new CuerpoLimitado(maxRespuestaKb * 1024);
+            AtomicLong cabecerasEn = new AtomicLong();
+            long inicioEnvio = System.nanoTime();
+            CompletableFuture<HttpResponse<byte[]>> envio = clientePara(uri).sendAsync(
+                    construirPeticion(metodo, uri, destino, request),
+                    info -> {
+                        cabecerasEn.set(System.nanoTime());
+                        return cuerpo;
+                    });
+
+            HttpResponse<byte[]> httpResponse;
+            try {
+                httpResponse = envio.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                envio.cancel(true);
+                throw new IllegalStateException("Tiempo de espera agotado (" + timeoutMs + " ms)");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception causa ? causa : e;
+            }
+
+            metadata.setTtfbMs(milis(cabecerasEn.get() - inicioEnvio));
+            metadata.setDescargaMs(milis(cuerpo.finNanos - cabecerasEn.get()));
+            metadata.setBytes(httpResponse.body().length);
+            metadata.setTruncado(cuerpo.truncado);
+            metadata.setProtocolo(httpResponse.version() == HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1");
+
+            response.setResponse(mapearRespuesta(httpResponse, cuerpo.truncado));
+            response.setSuccess(httpResponse.statusCode() < 400);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.setSuccess(false);
+            response.setError("Petición interrumpida");
+        } catch (UnknownHostException e) {
+            response.setSuccess(false);
+            response.setError("No se pudo resolver el host: " + e.getMessage());
+        } catch (Exception e) {
+            logger.debug("🧪 [SANDBOX] Error ejecutando {} {}: {}", request.getMethod(), request.getUrl(), e.getMessage());
+            response.setSuccess(false);
+            response.setError("Error al ejecutar la petición: " + e.getMessage());
+        } finally {
+            if (permisos != null) {
+                permisos.release();
+            }
+            metadata.setLatency(milis(System.nanoTime() - inicio));
+            metadata.setTimestamp(LocalDateTime.now().toString());
+        }
+        return response;
+    }
+
+    // =================== PETICIÓN ===================
+
+    private URI validarUri(String url) {
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("La URL es obligatoria");
+        }
+        URI uri = URI.create(url.trim());
+        String esquema = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : "";
+        if (!esquema.equals("http") && !esquema.equals("https")) {
+            throw new IllegalArgumentException("Solo se admiten URLs http y https");
+        }
+        if (uri.getHost() == null) {
+            throw new IllegalArgumentException("La URL no tiene host");
+        }
+        return uri;
+    }
+
+    /**
+     * Rechaza destinos internos (loopback, red privada, CGNAT, link-local, metadatos de la nube)
+     */
+    private void verificarDestinoPublico(String host, InetAddress[] direcciones) {
+        for (InetAddress direccion : direcciones) {
+            byte[] bytes = direccion.getAddress();
+            boolean privada = direccion.isLoopbackAddress() || direccion.isSiteLocalAddress()
+                    || direccion.isLinkLocalAddress() || direccion.isAnyLocalAddress() || direccion.isMulticastAddress()
+                    || (direccion instanceof Inet6Address && (bytes[0] & 0xFE) == 0xFC)
+                    // 0.0.0.0/8, 100.64.0.0/10 (CGNAT, usada por redes internas de proveedores) y 198.18.0.0/15
+                    || (direccion instanceof Inet4Address && (bytes[0] == 0
+                        || (bytes[0] == 100 && (bytes[1] & 0xC0) == 64)
+                        || ((bytes[0] & 0xFF) == 198 && (bytes[1] & 0xFE) == 18)));
+            if (privada) {
+                throw new IllegalArgumentException("Destino no permitido en el sandbox: " + host);
+            }
+        }
+    }
+
+    private HttpClient clientePara(URI uri) {
+        if (!"https".equalsIgnoreCase(uri.getScheme()) || esLiteral(uri.getHost())) {
+            return cliente;
+        }
+        return clientesTls.get(uri.getHost().toLowerCase(Locale.ROOT), this::nuevoCliente);
+    }
+
+    private static boolean esLiteral(String host) {
+        return host.startsWith("[") || host.matches("\\d{1,3}(\\.\\d{1,3}){3}");
+    }
+
+    /**
+     * URI con la dirección validada en lugar del nombre: el cliente no vuelve a resolver el host
+     */
+    private URI fijarDireccion(URI uri, InetAddress destino) {
+        String ip = destino.getHostAddress();
+        if (destino instanceof Inet6Address) {
+            int ambito = ip.indexOf('%');
+            ip = "[" + (ambito >= 0 ? ip.substring(0, ambito) : ip) + "]";
+        }
+        StringBuilder fijada = new StringBuilder(uri.getScheme()).append("://").append(ip).append(':').append(puerto(uri));
+        fijada.append(uri.getRawPath() != null ? uri.getRawPath() : "");
+        if (uri.getRawQuery() != null) {
+            fijada.append('?').append(uri.getRawQuery());
+        }
+        return URI.create(fijada.toString());
+    }
+
+    private int puerto(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private HttpRequest construirPeticion(String metodo, URI uri, InetAddress destino,
+                                         SandboxRequestDTO request) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(fijarDireccion(uri, destino))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Host", uri.getPort() != -1 ? uri.getHost() + ":" + uri.getPort() : uri.getHost());
+
+        boolean tieneContentType = false;
+        if (request.getHeaders() != null) {
+            for (Map.Entry<String, String> cabecera : request.getHeaders().entrySet()) {
+                String nombre = cabecera.getKey();
+                if (nombre == null || nombre.isBlank() || cabecera.getValue() == null
+                        || CABECERAS_RESTRINGIDAS.contains(nombre.trim().toLowerCase(Locale.ROOT))) {
+                    continue;
+                }
+                builder.header(nombre.trim(), cabecera.getValue());
+                tieneContentType |= nombre.trim().equalsIgnoreCase("Content-Type");
+            }
+        }
+
+        HttpRequest.BodyPublisher publicador = HttpRequest.BodyPublishers.noBody();
+        Object cuerpo = request.getBody();
+        if (cuerpo != null && METODOS_CON_CUERPO.contains(metodo)) {
+            String texto = cuerpo instanceof String s ? s : objectMapper.writeValueAsString(cuerpo);
+            if (!texto.isEmpty()) {
+                publicador = HttpRequest.BodyPublishers.ofString(texto, StandardCharsets.UTF_8);
+                if (!tieneContentType) {
+                    builder.header("Content-Type", "application/json");
+                }
+            }
+        }
+        return builder.method(metodo, publicador).build();
+    }
+
+    // =================== RESPUESTA ===================
+
+    private SandboxResponseDTO.ResponseData mapearRespuesta(HttpResponse<byte[]> httpResponse, boolean truncado) {
+        SandboxResponseDTO.ResponseData data = new SandboxResponseDTO.ResponseData();
+        data.setStatus(httpResponse.statusCode());
+        HttpStatus estado = HttpStatus.resolve(httpResponse.statusCode());
+        data.setStatusText(estado != null ? estado.getReasonPhrase() : "");
+
+        Map<String, String> cabeceras = new LinkedHashMap<>();
+        httpResponse.headers().map().forEach((nombre, valores) -> {
+            if (!nombre.startsWith(":")) {
+                cabeceras.put(nombre, String.join(", ", valores));
+            }
+        });
+        data.setHeaders(cabeceras);
+
+        String contentType = httpResponse.headers().firstValue("content-type").orElse("");
+        byte[] bytes = httpResponse.body();
+        if (bytes.length == 0) {
+            data.setData(null);
+        } else if (!truncado && contentType.toLowerCase(Locale.ROOT).contains("json")) {
+            try {
+                data.setData(objectMapper.readValue(bytes, Object.class));
+            } catch (Exception e) {
+                data.setData(new String(bytes, charset(contentType)));
+            }
+        } else {
+            data.setData(new String(bytes, charset(contentType)));
+        }
+        return data;
+    }
+
+    private Charset charset(String contentType) {
+        for (String parte : contentType.split(";")) {
+            String valor = parte.trim();
+            if (valor.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                try {
+                    return Charset.forName(valor.substring(8).replace("\"", "").trim());
+                } catch (Exception e) {
+                    break;
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static long milis(long nanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /**
+     * Suscriptor del cuerpo que guarda hasta un límite de bytes y cancela el resto de la descarga
+     * (HttpClient garantiza que los métodos del suscriptor no se invocan en paralelo)
+     */
+    private static final class CuerpoLimitado implements HttpResponse.BodySubscriber<byte[]> {
+        private final int limite;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final CompletableFuture<byte[]> resultado = new CompletableFuture<>();
+        private Flow.Subscription suscripcion;
+        private volatile boolean truncado;
+        private volatile long finNanos;
+
+        CuerpoLimitado(int limite) {
+            this.limite = limite;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return resultado;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.suscripcion = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            if (resultado.isDone()) {
+                return;
+            }
+            for (ByteBuffer bloque : item) {
+                int cantidad = Math.min(limite - buffer.size(), bloque.remaining());
+                byte[] copia = new byte[cantidad];
+                bloque.get(copia);
+                buffer.write(copia, 0, cantidad);
+                if (bloque.hasRemaining()) {
+                    truncado = true;
+                    suscripcion.cancel();
+                    terminar();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            resultado.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            terminar();
+        }
+
+        private void terminar() {
+            finNanos = System.nanoTime();
+            resultado.complete(buffer.toByteArray());
+        }
+    }
+}
@@ -1,30 +1,120 @@
 package org.project.project.service;
 
+import org.project.project.model.dto.response.JobDTO;
 import org.project.project.model.entity.FileOperationJob;
+import org.project.project.model.entity.Nodo;
 import org.project.project.model.entity.Usuario;
 import org.project.project.repository.FileOperationJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * Service para jobs asíncronos de operaciones de archivos
  * Maneja compresión, descarga masiva y otras operaciones pesadas
  * Métodos en español siguiendo convención
+ *
+ * MOTOR DE JOBS:
+ * - Los jobs se ejecutan en el pool fileOperationExecutor, fuera del hilo del request
+ * - El progreso se persiste con throttling (files.jobs.progress-interval-ms), no en cada archivo
+ * - La cancelación es cooperativa: el worker la detecta entre archivos (en memoria) o al
+ *   persistir progreso (en BD, para cancelaciones hechas desde otra instancia)
+ * - Cada job en PROCESSING pertenece a la instancia que lo tomó (worker_id), que le envía un heartbeat
+ *   periódico aunque no avance; al arrancar y cada files.jobs.recuperacion-interval-ms, los PROCESSING sin
+ *   heartbeat se reintentan y los PENDING que nadie tomó se encolan
+ * - COMPRESS / BULK_DOWNLOAD dejan el resultado en GCS (temp/) y devuelven una URL firmada
+ * - BULK_UPLOAD importa un ZIP subido a temp/ (ImportacionZipService); es todo o nada, así que
+ *   un reintento vuelve a empezar y omite lo que ya se hubiera creado
  */
 @Service
 public class FileOperationJobService {
 
+    private static final Logger logger = LoggerFactory.getLogger(FileOperationJobService.class);
+
     @Autowired
     private FileOperationJobRepository jobRepository;
 
+    @Autowired
+    private NodoService nodoService;
+
+    @Autowired
+    private FolderCompressionService folderCompressionService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private GCSConfigService gcsConfigService;
+
+    @Autowired
+    private ImportacionZipService importacionZipService;
+
+    @Autowired
+    private CopiaSubarbolService copiaSubarbolService;
+
+    @Autowired
+    @Qualifier("fileOperationExecutor")
+    private Executor fileOperationExecutor;
+
+    // Intervalo mínimo entre escrituras de progreso en BD
+    @Value("${files.jobs.progress-interval-ms:2000}")
+    private long intervaloProgresoMs;
+
+    // Validez de la URL firmada del resultado
+    @Value("${files.jobs.result-url-hours:24}")
+    private int horasUrlResultado;
+
+    // Minutos sin heartbeat para considerar huérfano un job en PROCESSING
+    @Value("${files.jobs.heartbeat-timeout-min:10}")
+    private int minutosSinHeartbeat;
+
+    // Reintentos automáticos tras una caída o reinicio antes de marcar el job como fallido
+    @Value("${files.jobs.max-intentos:3}")
+    private int maxIntentos;
+
+    // Jobs cancelados en esta instancia (detección inmediata sin ir a BD)
+    private final Set<Long> cancelados = ConcurrentHashMap.newKeySet();
+
+    // Jobs encolados en esta instancia que todavía no empezaron (la recuperación periódica no los duplica)
+    private final Set<Long> encolados = ConcurrentHashMap.newKeySet();
+
+    // Jobs que se están ejecutando en esta instancia (reciben el heartbeat periódico)
+    private final Set<Long> enEjecucion = ConcurrentHashMap.newKeySet();
+
+    // Identificador de esta instancia como dueña de sus jobs (worker_id)
+    private final String instanciaId = generarInstanciaId();
+
     /**
      * Crea un job para comprimir archivos/carpetas
      * @param nodoIds Lista de IDs de nodos a comprimir
@@ -33,19 +123,18 @@ public class FileOperationJobService {
      */
     @Transactional
     public FileOperationJob crearJobCompresion(List<Long> nodoIds, Usuario usuario) {
-        FileOperationJob job = new FileOperationJob();
-        job.setUsuario(usuario);
-        job.setOperationType(FileOperationJob.OperationType.COMPRESS);
-        job.setStatus(FileOperationJob.JobStatus.PENDING);
-        job.setProgressPercent(0);
-        
+        FileOperationJob job = new FileOperationJob(usuario, FileOperationJob.OperationType.COMPRESS, nodoIds);
+        job.setTotalFiles(nodoIds.size());
+
         // Metadata con información adicional
         Map<String, Object> metadata = new HashMap<>();
         metadata.put("nodoIds", nodoIds);
         metadata.put("totalFiles", nodoIds.size());
         job.setMetadata(metadata);
 
-        return jobRepository.save(job);
+        FileOperationJob guardado = jobRepository.save(job);
+        encolarDespuesDeCommit(guardado.getJobId());
+        return guardado;
     }
 
     /**
@@ -56,18 +145,134 @@ public class FileOperationJobService {
      */
     @Transactional
     public FileOperationJob crearJobDescargaMasiva(List<Long> nodoIds, Usuario usuario) {
-        FileOperationJob job = new FileOperationJob();
-        job.setUsuario(usuario);
-        job.setOperationType(FileOperationJob.OperationType.BULK_DOWNLOAD);
-        job.setStatus(FileOperationJob.JobStatus.PENDING);
-        job.setProgressPercent(0);
-        
+        FileOperationJob job = new FileOperationJob(usuario, FileOperationJob.OperationType.BULK_DOWNLOAD, nodoIds);
+        job.setTotalFiles(nodoIds.size());
+
         Map<String, Object> metadata = new HashMap<>();
         metadata.put("nodoIds", nodoIds);
         metadata.put("totalFiles", nodoIds.size());
         job.setMetadata(metadata);
 
-        return jobRepository.save(job);
+        FileOperationJob guardado = jobRepository.save(job);
+        encolarDespuesDeCommit(guardado.getJobId());
+        return guardado;
+    }
+
+    /**
+     * Crea un job para mover varios nodos a una carpeta destino
+     * @param nodoIds Lista de IDs de nodos a mover
+     * @param targetParentId Carpeta destino (null para raíz)
+     * @param containerType Tipo de contenedor destino
+     * @param containerId ID del contenedor destino
+     * @param usuario Usuario que solicita el movimiento
+     * @return Job creado
+     */
+    @Transactional
+    public FileOperationJob crearJobMovimiento(List<Long> nodoIds, Long targetParentId,
+                                               Nodo.ContainerType containerType, Long containerId,
+                                               Usuario usuario) {
+        FileOperationJob job = new FileOperationJob(usuario, FileOperationJob.OperationType.MOVE, nodoIds);
+        job.setTotalFiles(nodoIds.size());
+        job.setTargetParentId(targetParentId);
+        job.setTargetContainerType(containerType);
+        job.setTargetContainerId(containerId);
+        job.setMetadata(new HashMap<>());
+
+        FileOperationJob guardado = jobRepository.save(job);
+        encolarDespuesDeCommit(guardado.getJobId());
+        return guardado;
+    }
+
+    /**
+     * Crea un job para copiar varios nodos (con todo su contenido) en una carpeta destino
+     * @param nodoIds Lista de IDs de nodos a copiar
+     * @param targetParentId Carpeta destino (null para raíz)
+     * @param containerType Tipo de contenedor destino
+     * @param containerId ID del contenedor destino
+     * @param usuario Usuario que solicita la copia
+     * @return Job creado
+     */
+    @Transactional
+    public FileOperationJob crearJobCopia(List<Long> nodoIds, Long targetParentId,
+                                          Nodo.ContainerType containerType, Long containerId,
+                                          Usuario usuario) {
+        FileOperationJob job = new FileOperationJob(usuario, FileOperationJob.OperationType.COPY, nodoIds);
+        job.setTotalFiles(nodoIds.size());
+        job.setTargetParentId(targetParentId);
+        job.setTargetContainerType(containerType);
+        job.setTargetContainerId(containerId);
+        job.setMetadata(new HashMap<>());
+
+        FileOperationJob guardado = jobRepository.save(job);
+        encolarDespuesDeCommit(guardado.getJobId());
+        return guardado;
+    }
+
+    /**
+     * Crea un job para eliminar varios nodos
+     * @param nodoIds Lista de IDs de nodos a eliminar
+     * @param usuario Usuario que solicita la eliminación
+     * @return Job creado
+     */
+    @Transactional
+    public FileOperationJob crearJobEliminacionMasiva(List<Long> nodoIds, Usuario usuario) {
+        FileOperationJob job = new FileOperationJob(usuario, FileOperationJob.OperationType.DELETE_BULK, nodoIds);
+        job.setTotalFiles(nodoIds.size());
+        job.setMetadata(new HashMap<>());
+
+        FileOperationJob guardado = jobRepository.save(job);
+        encolarDespuesDeCommit(guardado.getJobId());
+        return guardado;
+    }
+
+    /**
+     * Crea un job para importar un ZIP en una carpeta
+     * El ZIP se guarda en temp/ de GCS para que cualquier instancia pueda procesarlo o reintentarlo;
+     * no es @Transactional para no mantener una conexión abierta durante la subida
+     * @param zip Archivo ZIP recibido
+     * @param parentId Carpeta destino (null para raíz)
+     * @param usuario Usuario que importa
+     * @return Job creado
+     */
+    public FileOperationJob crearJobImportacionZip(MultipartFile zip, Nodo.ContainerType containerType, Long containerId,
+                                                   Long parentId, Usuario usuario) throws IOException {
+        String rutaZip = gcsConfigService.construirRutaTemporal("importacion-" + UUID.randomUUID(), "importacion.zip");
+        fileStorageService.subirArchivo(zip, rutaZip, null);
+
+        FileOperationJob job = new FileOperationJob(usuario, FileOperationJob.OperationType.BULK_UPLOAD, new ArrayList<>());
+        job.setTargetParentId(parentId);
+        job.setTargetContainerType(containerType);
+        job.setTargetContainerId(containerId);
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("zipPath", rutaZip);
+        metadata.put("nombreZip", zip.getOriginalFilename());
+        metadata.put("tamanioZip", zip.getSize());
+        job.setMetadata(metadata);
+
+        FileOperationJob guardado = jobRepository.save(job);
+        encolarDespuesDeCommit(guardado.getJobId());
+        return guardado;
+    }
+
+    /**
+     * Crea un job según el tipo de operación (punto de entrada de los controllers)
+     * @throws IllegalArgumentException si el tipo no está soportado por el motor
+     */
+    @Transactional
+    public FileOperationJob crearJob(FileOperationJob.OperationType tipo, List<Long> nodoIds, Long targetParentId,
+                                     Nodo.ContainerType containerType, Long containerId, Usuario usuario) {
+        if (nodoIds == null || nodoIds.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un nodo");
+        }
+        return switch (tipo) {
+            case COMPRESS -> crearJobCompresion(nodoIds, usuario);
+            case BULK_DOWNLOAD -> crearJobDescargaMasiva(nodoIds, usuario);
+            case MOVE -> crearJobMovimiento(nodoIds, targetParentId, containerType, containerId, usuario);
+            case COPY -> crearJobCopia(nodoIds, targetParentId, containerType, containerId, usuario);
+            case DELETE_BULK -> crearJobEliminacionMasiva(nodoIds, usuario);
+            default -> throw new IllegalArgumentException("Tipo de operación no soportado: " + tipo);
+        };
     }
 
     /**
@@ -84,7 +289,7 @@ public class FileOperationJobService {
         job.setOperationType(FileOperationJob.OperationType.COMPRESS);
         job.setStatus(FileOperationJob.JobStatus.PENDING);
         job.setProgressPercent(0);
-        
+
         Map<String, Object> metadata = new HashMap<>();
         metadata.put("nodoId", nodoId);
         metadata.put("formatoDestino", formatoDestino);
@@ -95,162 +300,218 @@ public class FileOperationJobService {
 
     /**
      * Procesa un job de forma asíncrona
+     * No es @Transactional: cada paso (progreso, movimiento de un nodo, etc.) usa su propia
+     * transacción corta para no mantener una transacción abierta durante todo el job
      * @param jobId ID del job a procesar
      */
     @Async("fileOperationExecutor")
-    @Transactional
     public void procesarJob(Long jobId) {
+        ejecutarJob(jobId);
+    }
+
+    /**
+     * Ejecuta un job en el hilo actual
+     */
+    private void ejecutarJob(Long jobId) {
+        encolados.remove(jobId);
+        // Tomar el job de forma atómica (evita doble ejecución y respeta cancelaciones previas)
+        if (jobRepository.reclamarJob(jobId, instanciaId, LocalDateTime.now()) == 0) {
+            logger.info("⏭️ [JOB {}] No está PENDING (ya tomado o cancelado), se omite", jobId);
+            return;
+        }
+
         Optional<FileOperationJob> optionalJob = jobRepository.findById(jobId);
         if (optionalJob.isEmpty()) {
             return;
         }
 
         FileOperationJob job = optionalJob.get();
-        
-        try {
-            // Marcar como en progreso
-            job.start();
-            jobRepository.save(job);
+        ProgresoJob progreso = new ProgresoJob(jobId);
+        enEjecucion.add(jobId);
+        logger.info("⚙️ [JOB {}] Iniciando {} sobre {} nodo(s)", jobId, job.getOperationType(), job.getNodoIds().size());
 
+        try {
             // Procesar según el tipo de operación
-            switch (job.getOperationType()) {
-                case COMPRESS:
-                    procesarCompresion(job);
-                    break;
-                case BULK_DOWNLOAD:
-                    procesarDescargaMasiva(job);
-                    break;
-                case MOVE:
-                    procesarMovimiento(job);
-                    break;
-                case DELETE_BULK:
-                    procesarEliminacionMasiva(job);
-                    break;
-                default:
-                    throw new IllegalStateException("Tipo de operación no soportado");
-            }
+            String resultUrl = switch (job.getOperationType()) {
+                case COMPRESS -> procesarCompresion(job, progreso);
+                case BULK_DOWNLOAD -> procesarDescargaMasiva(job, progreso);
+                case MOVE -> procesarMovimiento(job, progreso);
+                case COPY -> procesarCopia(job, progreso);
+                case DELETE_BULK -> procesarEliminacionMasiva(job, progreso);
+                case BULK_UPLOAD -> procesarImportacionZip(job, progreso);
+                default -> throw new IllegalStateException("Tipo de operación no soportado");
+            };
 
             // Marcar como completado
-            job.complete(null);
-            jobRepository.save(job);
+            if (jobRepository.marcarCompletado(jobId, instanciaId, resultUrl, LocalDateTime.now()) == 0) {
+                logger.info("🛑 [JOB {}] Cancelado justo antes de completarse", jobId);
+            } else {
+                logger.info("✅ [JOB {}] Completado", jobId);
+            }
 
+        } catch (JobCanceladoException e) {
+            logger.info("🛑 [JOB {}] Cancelado por el usuario en {}/{}", jobId, progreso.procesados, progreso.total);
         } catch (Exception e) {
-            job.fail("Error procesando job: " + e.getMessage());
-            jobRepository.save(job);
+            logger.error("❌ [JOB {}] Error procesando job: {}", jobId, e.getMessage(), e);
+            jobRepository.marcarFallido(jobId, instanciaId, "Error procesando job: " + e.getMessage(), LocalDateTime.now());
+        } finally {
+            enEjecucion.remove(jobId);
+            cancelados.remove(jobId);
         }
     }
 
     /**
-     * Procesa la compresión de archivos (implementación placeholder)
+     * Comprime los nodos del job en un ZIP que se escribe directo en GCS
+     * @return URL firmada del ZIP
      */
-    private void procesarCompresion(FileOperationJob job) {
-        // TODO: Implementar lógica de compresión
-        // 1. Obtener nodos del metadata
-        // 2. Descargar archivos de GCS
-        // 3. Crear ZIP
-        // 4. Subir ZIP a GCS
-        // 5. Crear enlace temporal
-        // 6. Actualizar job con resultEnlace
-        
-        // Simulación de progreso
-        for (int i = 0; i <= 100; i += 10) {
-            job.updateProgress(i, 100);
-            jobRepository.save(job);
-            try {
-                Thread.sleep(100); // Simular trabajo
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
+    private String procesarCompresion(FileOperationJob job, ProgresoJob progreso) throws Exception {
+        String rutaResultado = gcsConfigService.construirRutaTemporal(
+                "job-" + job.getJobId(), "archivos-" + job.getJobId() + ".zip");
+        generarZipEnGCS(job.getNodoIds(), rutaResultado, progreso);
+        return fileStorageService.obtenerUrlFirmada(rutaResultado, horasUrlResultado).toString();
     }
 
     /**
-     * Procesa la descarga masiva de archivos (implementación placeholder)
+     * Descarga masiva: un único archivo se entrega con URL firmada directa, el resto como ZIP
+     * @return URL firmada del resultado
      */
-    private void procesarDescargaMasiva(FileOperationJob job) {
-        // TODO: Implementar lógica de descarga masiva
-        // Similar a compresión pero puede incluir carpetas completas
-        
-        for (int i = 0; i <= 100; i += 10) {
-            job.updateProgress(i, 100);
-            jobRepository.save(job);
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    private String procesarDescargaMasiva(FileOperationJob job, ProgresoJob progreso) throws Exception {
+        List<Long> nodoIds = job.getNodoIds();
+        if (nodoIds.size() == 1) {
+            Optional<Nodo> nodo = nodoService.obtenerPorId(nodoIds.get(0));
+            if (nodo.isPresent() && nodo.get().getTipo() == Nodo.TipoNodo.ARCHIVO && nodo.get().getGcsPath() != null) {
+                progreso.avanzar(1, 1);
+                return fileStorageService.obtenerUrlFirmada(nodo.get().getGcsPath(), horasUrlResultado).toString();
             }
         }
+        return procesarCompresion(job, progreso);
     }
 
     /**
-     * Procesa la conversión de formato (implementación placeholder)
+     * Escribe el ZIP de los nodos en un canal de escritura del almacenamiento (sin pasar por memoria)
+     * Si el job falla o se cancela, el objeto parcial se elimina
      */
-    private void procesarConversion(FileOperationJob job) {
-        // TODO: Implementar lógica de conversión
-        // Usar librerías de conversión según el formato
-        
-        for (int i = 0; i <= 100; i += 10) {
-            job.updateProgress(i, 100);
-            jobRepository.save(job);
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    private void generarZipEnGCS(List<Long> nodoIds, String rutaResultado, ProgresoJob progreso) throws Exception {
+        WritableByteChannel canal = fileStorageService.abrirCanalEscritura(rutaResultado, "application/zip");
+        boolean completado = false;
+        try (OutputStream salida = Channels.newOutputStream(canal)) {
+            folderCompressionService.escribirZipNodos(nodoIds, salida, progreso::avanzar);
+            completado = true;
+        } finally {
+            if (!completado) {
+                try {
+                    fileStorageService.eliminarArchivoDeGCS(rutaResultado);
+                } catch (Exception e) {
+                    logger.warn("   ⚠️ No se pudo eliminar ZIP parcial {}: {}", rutaResultado, e.getMessage());
+                }
             }
         }
     }
 
     /**
-     * Procesa el movimiento de archivos (implementación placeholder)
+     * Mueve los nodos del job a la carpeta destino
+     * Reanudable: empieza desde processedFiles y omite nodos que ya están en el destino
      */
-    private void procesarMovimiento(FileOperationJob job) {
-        // TODO: Implementar lógica de movimiento
-        // Mover nodos de una carpeta a otra
-        
-        for (int i = 0; i <= 100; i += 10) {
-            job.updateProgress(i, 100);
-            jobRepository.save(job);
+    private String procesarMovimiento(FileOperationJob job, ProgresoJob progreso) {
+        List<Long> nodoIds = job.getNodoIds();
+        List<String> errores = new ArrayList<>();
+
+        for (int i = indiceInicial(job); i < nodoIds.size(); i++) {
+            progreso.verificarCancelacion();
+            Long nodoId = nodoIds.get(i);
             try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                Optional<Nodo> nodo = nodoService.obtenerPorId(nodoId);
+                if (nodo.isPresent() && !nodo.get().getIsDeleted()
+                        && !Objects.equals(nodo.get().getParentId(), job.getTargetParentId())) {
+                    final int completados = i;
+                    nodoService.moverNodo(nodoId, job.getTargetParentId(),
+                            (movidos, totalObjetos) -> progreso.avanzarParcial(completados, nodoIds.size(), movidos, totalObjetos));
+                }
+            } catch (Exception e) {
+                logger.warn("   ⚠️ [JOB {}] No se pudo mover nodo {}: {}", job.getJobId(), nodoId, e.getMessage());
+                errores.add(nodoId + ": " + e.getMessage());
             }
+            progreso.avanzar(i + 1, nodoIds.size());
         }
+
+        verificarErrores(errores, nodoIds.size(), "mover");
+        return null;
+    }
+
+    /**
+     * Copia los nodos del job en la carpeta destino
+     * Todo o nada: si falla o se cancela no queda ningún nodo ni objeto copiado, así que un reintento
+     * empieza desde cero
+     */
+    private String procesarCopia(FileOperationJob job, ProgresoJob progreso) {
+        CopiaSubarbolService.ResultadoCopia resultado = copiaSubarbolService.copiar(
+                job.getNodoIds(), job.getTargetParentId(), job.getTargetContainerType(), job.getTargetContainerId(),
+                job.getUserId(), progreso::avanzar);
+        logger.info("   📋 [JOB {}] Copia terminada: {} carpeta(s), {} archivo(s), {} bytes", job.getJobId(),
+                resultado.carpetasCreadas(), resultado.archivosCreados(), resultado.bytes());
+        return null;
     }
 
     /**
-     * Procesa la eliminación masiva (implementación placeholder)
+     * Elimina los nodos del job
+     * Reanudable: empieza desde processedFiles y omite nodos ya eliminados
      */
-    private void procesarEliminacionMasiva(FileOperationJob job) {
-        // TODO: Implementar lógica de eliminación masiva
-        // Eliminar múltiples nodos
-        
-        for (int i = 0; i <= 100; i += 10) {
-            job.updateProgress(i, 100);
-            jobRepository.save(job);
+    private String procesarEliminacionMasiva(FileOperationJob job, ProgresoJob progreso) {
+        List<Long> nodoIds = job.getNodoIds();
+        List<String> errores = new ArrayList<>();
+
+        for (int i = indiceInicial(job); i < nodoIds.size(); i++) {
+            progreso.verificarCancelacion();
+            Long nodoId = nodoIds.get(i);
             try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                Optional<Nodo> nodo = nodoService.obtenerPorId(nodoId);
+                if (nodo.isPresent() && !nodo.get().getIsDeleted()) {
+                    nodoService.eliminarNodo(nodoId, job.getUserId());
+                }
+            } catch (Exception e) {
+                logger.warn("   ⚠️ [JOB {}] No se pudo eliminar nodo {}: {}", job.getJobId(), nodoId, e.getMessage());
+                errores.add(nodoId + ": " + e.getMessage());
             }
+            progreso.avanzar(i + 1, nodoIds.size());
         }
+
+        verificarErrores(errores, nodoIds.size(), "eliminar");
+        return null;
     }
 
     /**
-     * Procesa la extracción de archivos comprimidos (implementación placeholder)
+     * Importa el ZIP del job; el ZIP temporal se elimina solo si la importación terminó
+     * (si falla queda disponible para reintentar y lo limpia la regla de lifecycle de temp/)
      */
-    private void procesarExtraccion(FileOperationJob job) {
-        // TODO: Implementar lógica de extracción
-        // Descomprimir ZIP/RAR/TAR y crear nodos
-        
-        for (int i = 0; i <= 100; i += 10) {
-            job.updateProgress(i, 100);
-            jobRepository.save(job);
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+    private String procesarImportacionZip(FileOperationJob job, ProgresoJob progreso) throws Exception {
+        String rutaZip = job.getMetadata() != null ? (String) job.getMetadata().get("zipPath") : null;
+        if (rutaZip == null) {
+            throw new IllegalStateException("El job no tiene un ZIP asociado");
+        }
+
+        ImportacionZipService.ResultadoImportacion resultado = importacionZipService.importar(
+                rutaZip, job.getTargetContainerType(), job.getTargetContainerId(), job.getTargetParentId(),
+                job.getUserId(), progreso::avanzar);
+        logger.info("   📦 [JOB {}] ZIP importado: {} carpeta(s), {} archivo(s), {} omitido(s)", job.getJobId(),
+                resultado.carpetasCreadas(), resultado.archivosCreados(), resultado.omitidos());
+
+        try {
+            fileStorageService.eliminarArchivoDeGCS(rutaZip);
+        } catch (Exception e) {
+            logger.warn("   ⚠️ No se pudo eliminar el ZIP temporal {}: {}", rutaZip, e.getMessage());
+        }
+        return null;
+    }
+
+    private int indiceInicial(FileOperationJob job) {
+        int procesados = job.getProcessedFiles() != null ? job.getProcessedFiles() : 0;
+        return Math.max(0, Math.min(procesados, job.getNodoIds().size()));
+    }
+
+    private void verificarErrores(List<String> errores, int total, String accion) {
+        if (!errores.isEmpty()) {
+            throw new IllegalStateException(errores.size() + " de " + total + " nodo(s) no se pudieron "
+                    + accion + ": " + String.join("; ", errores.subList(0, Math.min(10, errores.size()))));
         }
     }
 
@@ -290,6 +551,7 @@ public class FileOperationJobService {
 
     /**
      * Cancela un job
+     * Si el job está en ejecución, el worker lo detecta entre archivos y se detiene
      * @param jobId ID del job a cancelar
      * @return true si se canceló exitosamente
      */
@@ -301,13 +563,14 @@ public class FileOperationJobService {
         }
 
         FileOperationJob job = optionalJob.get();
-        
+
         if (job.getStatus() == FileOperationJob.JobStatus.COMPLETED ||
             job.getStatus() == FileOperationJob.JobStatus.FAILED ||
             job.getStatus() == FileOperationJob.JobStatus.CANCELLED) {
             return false; // No se puede cancelar un job ya finalizado
         }
 
+        cancelados.add(jobId);
         job.cancel();
         jobRepository.save(job);
         return true;
@@ -315,6 +578,7 @@ public class FileOperationJobService {
 
     /**
      * Limpia jobs antiguos completados/fallidos (ejecutado por evento programado)
+     * Los ZIP resultantes en temp/ se eliminan con la regla de lifecycle del bucket
      * @param diasAntiguedad Días de antigüedad para considerar un job como antiguo
      */
     @Transactional
@@ -329,7 +593,7 @@ public class FileOperationJobService {
     }
 
     /**
-     * Reinicia un job fallido
+     * Reinicia un job fallido y lo vuelve a encolar
      * @param jobId ID del job a reintentar
      * @return Job reiniciado
      */
@@ -341,22 +605,232 @@ public class FileOperationJobService {
         }
 
         FileOperationJob job = optionalJob.get();
-        
+
         if (job.getStatus() != FileOperationJob.JobStatus.FAILED) {
             return Optional.empty(); // Solo se pueden reintentar jobs fallidos
         }
 
         job.setStatus(FileOperationJob.JobStatus.PENDING);
         job.setProgressPercent(0);
+        job.setProcessedFiles(0);
         job.setErrorMessage(null);
         job.setStartedAt(null);
         job.setCompletedAt(null);
-        
-        return Optional.of(jobRepository.save(job));
+
+        FileOperationJob guardado = jobRepository.save(job);
+        encolarDespuesDeCommit(guardado.getJobId());
+        return Optional.of(guardado);
     }
-}
 
+    /**
+     * Al arrancar la aplicación: reencola jobs huérfanos (instancia reiniciada a mitad del job)
+     * y todos los jobs PENDING que nunca llegaron a ejecutarse
+     * MOVE y DELETE_BULK continúan desde processedFiles; COMPRESS/BULK_DOWNLOAD/COPY se regeneran
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recuperarJobs() {
+        recuperar(jobRepository.findPendingJobs());
+    }
 
+    /**
+     * Recuperación periódica: una instancia caída sin reinicio deja jobs en PROCESSING sin heartbeat,
+     * y un job rechazado con la cola llena queda PENDING; sin esta pasada solo se recuperaban al arrancar
+     * Los PENDING se toman solo si llevan más de heartbeat-timeout-min sin ejecutarse
+     */
+    @Scheduled(fixedDelayString = "${files.jobs.recuperacion-interval-ms:300000}",
+               initialDelayString = "${files.jobs.recuperacion-interval-ms:300000}")
+    public void recuperarJobsPeriodicamente() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(minutosSinHeartbeat);
+        recuperar(jobRepository.findPendingJobsAntesDe(limite).stream()
+                .filter(job -> !encolados.contains(job.getJobId()))
+                .toList());
+    }
 
+    /**
+     * Reintenta los PROCESSING cuyo heartbeat venció (hasta files.jobs.max-intentos) y encola los PENDING dados
+     */
+    private void recuperar(List<FileOperationJob> pendientes) {
+        try {
+            LocalDateTime limite = LocalDateTime.now().minusMinutes(minutosSinHeartbeat);
+            List<FileOperationJob> huerfanos = jobRepository.findHuerfanos(limite);
+            int recuperados = 0;
+            for (FileOperationJob job : huerfanos) {
+                // Otra instancia puede estar recuperando el mismo job a la vez
+                if (jobRepository.reclamarHuerfano(job.getJobId(), instanciaId, limite, LocalDateTime.now()) == 0) {
+                    continue;
+                }
+                recuperados++;
+                job.setWorkerId(null);
+                job.setHeartbeatAt(null);
+
+                Map<String, Object> metadata = job.getMetadata() != null ? new HashMap<>(job.getMetadata()) : new HashMap<>();
+                int intentos = metadata.get("intentos") instanceof Number n ? n.intValue() + 1 : 1;
+                metadata.put("intentos", intentos);
+                job.setMetadata(metadata);
+
+                if (intentos > maxIntentos) {
+                    job.fail("Job interrumpido " + intentos + " veces por caídas o reinicios del servidor");
+                    logger.warn("❌ [JOB {}] Supera {} reintentos, se marca como fallido", job.getJobId(), maxIntentos);
+                } else {
+                    job.setStatus(FileOperationJob.JobStatus.PENDING);
+                    logger.info("🔁 [JOB {}] Huérfano (sin heartbeat), reencolando (intento {})", job.getJobId(), intentos);
+                }
+                jobRepository.save(job);
+            }
 
+            // Los huérfanos reencolados también están PENDING (si no venían ya en la lista)
+            Set<Long> aEncolar = new LinkedHashSet<>();
+            pendientes.forEach(job -> aEncolar.add(job.getJobId()));
+            huerfanos.stream()
+                    .filter(job -> job.getStatus() == FileOperationJob.JobStatus.PENDING)
+                    .forEach(job -> aEncolar.add(job.getJobId()));
+            aEncolar.forEach(this::encolar);
+            if (recuperados > 0 || !pendientes.isEmpty()) {
+                logger.info("⚙️ Recuperación de jobs: {} huérfano(s), {} encolado(s)", recuperados, aEncolar.size());
+            }
+        } catch (Exception e) {
+            logger.error("❌ Error recuperando jobs pendientes: {}", e.getMessage(), e);
+        }
+    }
 
+    /**
+     * Heartbeat periódico de los jobs que ejecuta esta instancia, independiente del progreso:
+     * un job que tarda en un solo archivo grande no se considera huérfano mientras la instancia viva
+     */
+    @Scheduled(fixedDelayString = "${files.jobs.heartbeat-interval-ms:30000}")
+    public void latirJobsEnEjecucion() {
+        if (enEjecucion.isEmpty()) {
+            return;
+        }
+        try {
+            List<Long> jobIds = new ArrayList<>(enEjecucion);
+            int actualizados = jobRepository.latir(jobIds, instanciaId, LocalDateTime.now());
+            if (actualizados < jobIds.size()) {
+                logger.debug("💓 Heartbeat: {}/{} jobs siguen en PROCESSING en esta instancia", actualizados, jobIds.size());
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Error enviando heartbeat de jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Convierte un job a DTO para las respuestas REST
+     */
+    public JobDTO convertirADTO(FileOperationJob job) {
+        return new JobDTO(
+                job.getJobId(),
+                job.getOperationType().name(),
+                job.getStatus().name(),
+                job.getProgressPercent(),
+                job.getResultUrl(),
+                job.getErrorMessage(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getCompletedAt()
+        );
+    }
+
+    /**
+     * Encola el job cuando la transacción que lo creó hace commit (el worker debe poder leerlo)
+     */
+    private void encolarDespuesDeCommit(Long jobId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    encolar(jobId);
+                }
+            });
+        } else {
+            encolar(jobId);
+        }
+    }
+
+    private void encolar(Long jobId) {
+        if (!encolados.add(jobId)) {
+            return;
+        }
+        try {
+            fileOperationExecutor.execute(() -> ejecutarJob(jobId));
+        } catch (TaskRejectedException e) {
+            encolados.remove(jobId);
+            // Cola llena: el job queda PENDING y se toma en la próxima recuperación
+            logger.warn("⚠️ [JOB {}] Cola de jobs llena, queda PENDING: {}", jobId, e.getMessage());
+        }
+    }
+
+    private static String generarInstanciaId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "desconocido";
+        }
+        String id = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return id.length() > 100 ? id.substring(id.length() - 100) : id;
+    }
+
+    /**
+     * Progreso de un job con escritura a BD limitada por tiempo
+     * Cada escritura también sirve de chequeo de cancelación entre instancias; el heartbeat
+     * lo mantiene además latirJobsEnEjecucion aunque el job no avance
+     */
+    private class ProgresoJob {
+        private final Long jobId;
+        private int procesados;
+        private int total;
+        private long ultimaEscritura = System.currentTimeMillis();
+
+        ProgresoJob(Long jobId) {
+            this.jobId = jobId;
+        }
+
+        void avanzar(int procesados, int total) {
+            registrar(procesados, total, total > 0 ? procesados * 100 / total : 0, true);
+        }
+
+        /**
+         * Avance dentro de un elemento (ej: objetos GCS de una carpeta que se está moviendo)
+         * processedFiles sigue contando solo elementos completos, para poder reanudar
+         * No aborta: cortar a mitad de un elemento dejaría BD y GCS desalineados,
+         * la cancelación se aplica al terminar el elemento
+         */
+        void avanzarParcial(int completados, int total, int parcial, int totalParcial) {
+            double fraccion = totalParcial > 0 ? (double) parcial / totalParcial : 0;
+            registrar(completados, total, total > 0 ? (int) ((completados + fraccion) * 100 / total) : 0, false);
+        }
+
+        private void registrar(int procesados, int total, int porcentaje, boolean cancelable) {
+            this.procesados = procesados;
+            this.total = total;
+            if (cancelable) {
+                verificarCancelacion();
+            }
+
+            long ahora = System.currentTimeMillis();
+            if (ahora - ultimaEscritura >= intervaloProgresoMs) {
+                ultimaEscritura = ahora;
+                // Se deja en 99% como máximo: el 100% lo pone marcarCompletado
+                if (jobRepository.actualizarProgreso(jobId, instanciaId, procesados, total, Math.min(99, porcentaje),
+                        LocalDateTime.now()) == 0 && cancelable) {
+                    throw new JobCanceladoException();
+                }
+            }
+        }
+
+        void verificarCancelacion() {
+            if (cancelados.contains(jobId)) {
+                throw new JobCanceladoException();
+            }
+        }
+    }
+
+    /**
+     * Señal interna para abortar un job cancelado
+     */
+    private static class JobCanceladoException extends RuntimeException {
+        JobCanceladoException() {
+            super("Job cancelado", null, false, false);
+        }
+    }
+}
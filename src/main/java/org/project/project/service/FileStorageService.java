@@ -1,60 +1,82 @@
 package org.project.project.service;
 
-import com.google.cloud.storage.*;
 import org.project.project.model.entity.Nodo;
+import org.project.project.service.storage.BlobStore;
+import org.project.project.service.storage.EscrituraReanudable;
+import org.project.project.service.storage.MetadatosBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
- * Service para operaciones de almacenamiento en Google Cloud Storage
- * Maneja subida, descarga, eliminación y gestión de archivos en GCS
+ * Service para operaciones de almacenamiento del file system (proyectos y repositorios)
+ * Maneja subida, descarga, eliminación y gestión de archivos sobre el BlobStore configurado
+ * (GCS o disco local según storage.backend)
  */
 @Service
 public class FileStorageService {
 
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
+
     @Autowired
-    private Storage storage;
+    @Qualifier("archivosBlobStore")
+    private BlobStore blobStore;
 
     @Autowired
     private GCSConfigService gcsConfigService;
 
+    @Autowired
+    @Qualifier("gcsBulkExecutor")
+    private Executor gcsBulkExecutor;
+
+    // Operaciones por lote en movimientos masivos (el batch de GCS admite hasta 100)
+    @Value("${files.gcs.bulk-batch-size:100}")
+    private int tamanioLoteGcs;
+
     /**
      * Sube un archivo a Google Cloud Storage
      * @param file Archivo multipart a subir
      * @param rutaGCS Ruta completa en GCS donde se guardará el archivo
      * @param metadata Metadatos adicionales para el archivo (opcional)
-     * @return Información del blob creado en GCS
+     * @return Metadatos del objeto creado
      * @throws IOException Si hay error al leer el archivo o subirlo
      */
-    public Blob subirArchivo(MultipartFile file, String rutaGCS, Map<String, String> metadata) throws IOException {
-        BlobId blobId = BlobId.of(gcsConfigService.getBucketName(), rutaGCS);
-        
-        BlobInfo.Builder blobInfoBuilder = BlobInfo.newBuilder(blobId)
-                .setContentType(file.getContentType());
-        
-        // Agregar metadata personalizada
-        if (metadata != null && !metadata.isEmpty()) {
-            blobInfoBuilder.setMetadata(metadata);
-        }
-        
-        // Agregar metadata automática
-        Map<String, String> autoMetadata = new HashMap<>();
+    public MetadatosBlob subirArchivo(MultipartFile file, String rutaGCS, Map<String, String> metadata) throws IOException {
+        // Metadata personalizada + automática
+        Map<String, String> autoMetadata = metadata != null ? new HashMap<>(metadata) : new HashMap<>();
         autoMetadata.put("original-filename", file.getOriginalFilename());
         autoMetadata.put("upload-timestamp", String.valueOf(System.currentTimeMillis()));
-        blobInfoBuilder.setMetadata(autoMetadata);
-        
-        BlobInfo blobInfo = blobInfoBuilder.build();
-        
-        return storage.create(blobInfo, file.getBytes());
+
+        // Se sube desde el archivo temporal de Tomcat: no se carga el contenido en el heap
+        try (InputStream contenido = file.getInputStream()) {
+            return blobStore.guardar(rutaGCS, contenido, file.getContentType(), autoMetadata);
+        }
     }
 
     /**
@@ -63,26 +85,11 @@ public class FileStorageService {
      * @param rutaGCS Ruta completa en GCS donde se guardará el archivo
      * @param contentType Tipo MIME del archivo
      * @param tamanio Tamaño del archivo en bytes
-     * @return Información del blob creado en GCS
+     * @return Metadatos del objeto creado
      * @throws IOException Si hay error al leer el stream o subirlo
      */
-    public Blob subirArchivoDesdeStream(InputStream inputStream, String rutaGCS, String contentType, long tamanio) throws IOException {
-        BlobId blobId = BlobId.of(gcsConfigService.getBucketName(), rutaGCS);
-        
-        BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                .setContentType(contentType)
-                .build();
-        
-        // Usar Writer para subida eficiente de streams grandes
-        try (var writer = storage.writer(blobInfo)) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                writer.write(java.nio.ByteBuffer.wrap(buffer, 0, bytesRead));
-            }
-        }
-        
-        return storage.get(blobId);
+    public MetadatosBlob subirArchivoDesdeStream(InputStream inputStream, String rutaGCS, String contentType, long tamanio) throws IOException {
+        return blobStore.guardar(rutaGCS, inputStream, contentType, null);
     }
 
     /**
@@ -92,14 +99,11 @@ public class FileStorageService {
      * @throws IllegalArgumentException Si el archivo no existe
      */
     public byte[] descargarArchivo(String rutaGCS) {
-        BlobId blobId = BlobId.of(gcsConfigService.getBucketName(), rutaGCS);
-        Blob blob = storage.get(blobId);
-        
-        if (blob == null || !blob.exists()) {
-            throw new IllegalArgumentException("Archivo no encontrado en GCS: " + rutaGCS);
+        try (InputStream entrada = obtenerStreamDescarga(rutaGCS)) {
+            return entrada.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al descargar " + rutaGCS, e);
         }
-        
-        return blob.getContent();
     }
 
     /**
@@ -109,14 +113,103 @@ public class FileStorageService {
      * @throws IllegalArgumentException Si el archivo no existe
      */
     public InputStream obtenerStreamDescarga(String rutaGCS) {
-        BlobId blobId = BlobId.of(gcsConfigService.getBucketName(), rutaGCS);
-        Blob blob = storage.get(blobId);
-        
-        if (blob == null || !blob.exists()) {
+        if (blobStore.obtener(rutaGCS) == null) {
             throw new IllegalArgumentException("Archivo no encontrado en GCS: " + rutaGCS);
         }
-        
-        return Channels.newInputStream(blob.reader());
+        try {
+            return Channels.newInputStream(blobStore.abrirLectura(rutaGCS, BlobStore.BLOQUE_LECTURA));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al abrir " + rutaGCS, e);
+        }
+    }
+
+    /**
+     * Abre un canal de lectura directo sobre un archivo en GCS (no carga el contenido en memoria)
+     * A diferencia de obtenerStreamDescarga, no lee los metadatos antes: si el archivo
+     * no existe, el error aparece al abrir o en la primera lectura del canal
+     * @param rutaGCS Ruta completa del archivo en GCS
+     * @param chunkSize Tamaño del bloque que el canal pide al almacenamiento en cada lectura
+     * @return Canal posicionado al inicio del archivo
+     */
+    public ReadableByteChannel abrirCanalLectura(String rutaGCS, int chunkSize) throws IOException {
+        return blobStore.abrirLectura(rutaGCS, chunkSize);
+    }
+
+    /**
+     * Lee los metadatos de un objeto (generación, tamaño, fechas) sin descargar su contenido
+     * @param rutaGCS Ruta completa del archivo en GCS
+     * @return Metadatos del objeto, o null si no existe
+     */
+    public MetadatosBlob obtenerBlob(String rutaGCS) {
+        return blobStore.obtener(rutaGCS);
+    }
+
+    /**
+     * Abre un canal de lectura sobre un rango de bytes de una generación concreta del objeto
+     * Fijar la generación garantiza que todos los rangos de un mismo ETag leen el mismo contenido
+     * (si el objeto fue reemplazado, la lectura falla en lugar de mezclar versiones)
+     * @param rutaGCS Ruta completa del archivo en GCS
+     * @param generacion Generación del objeto (null = la actual)
+     * @param inicio Primer byte (inclusive)
+     * @param fin Último byte (inclusive)
+     * @param chunkSize Tamaño del bloque que el canal pide al almacenamiento en cada lectura
+     * @return Canal posicionado en inicio y limitado a fin
+     */
+    public ReadableByteChannel abrirCanalRango(String rutaGCS, Long generacion, long inicio, long fin,
+                                               int chunkSize) throws IOException {
+        return blobStore.abrirRango(rutaGCS, generacion, inicio, fin, chunkSize);
+    }
+
+    /**
+     * Copia un rango de bytes de una generación concreta hacia la salida (descargas)
+     * En disco local usa FileChannel.transferTo (sin copiar por el heap)
+     * @return Bytes escritos
+     */
+    public long transferirRango(String rutaGCS, Long generacion, long inicio, long fin,
+                                OutputStream salida) throws IOException {
+        return blobStore.transferirRango(rutaGCS, generacion, inicio, fin, salida);
+    }
+
+    /**
+     * Lee un rango acotado de bytes de una generación concreta (vistas previas)
+     * En disco local el rango se mapea en memoria
+     * @return Buffer listo para leer (más corto si el archivo termina antes)
+     */
+    public ByteBuffer leerRango(String rutaGCS, Long generacion, long inicio, int longitud) throws IOException {
+        return blobStore.leerRango(rutaGCS, generacion, inicio, longitud);
+    }
+
+    /**
+     * Descarga el archivo completo a un archivo local (reemplaza su contenido)
+     */
+    public void descargarA(String rutaGCS, Path destino) throws IOException {
+        blobStore.descargarA(rutaGCS, destino);
+    }
+
+    /**
+     * Abre un canal de escritura hacia el almacenamiento
+     * El objeto solo queda creado al cerrar el canal
+     * @param rutaGCS Ruta completa del archivo en GCS
+     * @param contentType Tipo MIME del archivo
+     * @return Canal listo para escribir
+     */
+    public WritableByteChannel abrirCanalEscritura(String rutaGCS, String contentType) throws IOException {
+        return blobStore.abrirEscritura(rutaGCS, contentType);
+    }
+
+    /**
+     * Abre una escritura reanudable (subidas por partes): su estado se guarda entre peticiones
+     * @param chunkSize Tamaño de bloque enviado en cada petición al almacenamiento
+     */
+    public EscrituraReanudable abrirEscrituraReanudable(String rutaGCS, String contentType, int chunkSize) throws IOException {
+        return blobStore.abrirEscrituraReanudable(rutaGCS, contentType, chunkSize);
+    }
+
+    /**
+     * Retoma una escritura reanudable a partir de su estado capturado
+     */
+    public EscrituraReanudable restaurarEscritura(byte[] estado) throws IOException {
+        return blobStore.restaurarEscritura(estado);
     }
 
     /**
@@ -125,43 +218,43 @@ public class FileStorageService {
      * @return true si el archivo fue eliminado, false si no existía
      */
     public boolean eliminarArchivoDeGCS(String rutaGCS) {
-        BlobId blobId = BlobId.of(gcsConfigService.getBucketName(), rutaGCS);
-        return storage.delete(blobId);
+        return blobStore.eliminar(rutaGCS);
+    }
+
+    /**
+     * Elimina una generación concreta de un archivo (no borra el objeto si fue reescrito)
+     * @param rutaGCS Ruta completa del archivo en GCS
+     * @param generacion Generación esperada del objeto
+     * @return true si se eliminó, false si no existía o cambió de generación
+     */
+    public boolean eliminarArchivoDeGCS(String rutaGCS, long generacion) {
+        return blobStore.eliminar(rutaGCS, generacion);
     }
 
     /**
      * Copia un archivo dentro de GCS
      * @param rutaOrigenGCS Ruta del archivo origen
      * @param rutaDestinoGCS Ruta del archivo destino
-     * @return Información del blob copiado
+     * @return Metadatos de la copia
      * @throws IllegalArgumentException Si el archivo origen no existe
      */
-    public Blob copiarArchivo(String rutaOrigenGCS, String rutaDestinoGCS) {
-        BlobId origenBlobId = BlobId.of(gcsConfigService.getBucketName(), rutaOrigenGCS);
-        BlobId destinoBlobId = BlobId.of(gcsConfigService.getBucketName(), rutaDestinoGCS);
-        
-        Blob origenBlob = storage.get(origenBlobId);
-        if (origenBlob == null || !origenBlob.exists()) {
+    public MetadatosBlob copiarArchivo(String rutaOrigenGCS, String rutaDestinoGCS) {
+        // Copia del lado del servidor manteniendo metadatos
+        MetadatosBlob copia = blobStore.copiar(rutaOrigenGCS, rutaDestinoGCS);
+        if (copia == null) {
             throw new IllegalArgumentException("Archivo origen no encontrado en GCS: " + rutaOrigenGCS);
         }
-        
-        // Copiar blob manteniendo metadatos
-        Storage.CopyRequest copyRequest = Storage.CopyRequest.newBuilder()
-                .setSource(origenBlobId)
-                .setTarget(destinoBlobId)
-                .build();
-        
-        return storage.copy(copyRequest).getResult();
+        return copia;
     }
 
     /**
      * Mueve un archivo dentro de GCS (copia + elimina origen)
      * @param rutaOrigenGCS Ruta del archivo origen
      * @param rutaDestinoGCS Ruta del archivo destino
-     * @return Información del blob movido
+     * @return Metadatos del archivo movido
      * @throws IllegalArgumentException Si el archivo origen no existe
      */
-    public Blob moverArchivo(String rutaOrigenGCS, String rutaDestinoGCS) {
+    public MetadatosBlob moverArchivo(String rutaOrigenGCS, String rutaDestinoGCS) {
         System.out.println("🚚 [FileStorageService] Iniciando movimiento de archivo:");
         System.out.println("   📍 Origen:  " + rutaOrigenGCS);
         System.out.println("   📍 Destino: " + rutaDestinoGCS);
@@ -169,7 +262,7 @@ public class FileStorageService {
         try {
             // Copiar archivo
             System.out.println("   📋 Copiando archivo...");
-            Blob destinoBlob = copiarArchivo(rutaOrigenGCS, rutaDestinoGCS);
+            MetadatosBlob destinoBlob = copiarArchivo(rutaOrigenGCS, rutaDestinoGCS);
             System.out.println("   ✅ Archivo copiado exitosamente");
             
             // Eliminar archivo origen
@@ -186,6 +279,75 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Copia muchos archivos dentro de GCS sin borrar los orígenes (subárboles completos al renombrar/mover carpetas)
+     * Permite mover en dos fases: copiar antes de confirmar la transacción y borrar los orígenes
+     * solo cuando la BD ya apunta a los destinos
+     * - Las copias de cada lote se hacen en paralelo, acotadas por gcsBulkExecutor
+     *   (la API batch de GCS no admite copy/rewrite; los borrados sí van en batch, ver eliminarArchivosEnLote)
+     * - Un origen inexistente o una copia fallida no detienen el resto
+     * @param movimientos Mapa ruta origen -> ruta destino
+     * @param progreso Callback de avance (puede ser null)
+     * @return Rutas origen que NO se copiaron
+     */
+    public Set<String> copiarArchivosEnLote(Map<String, String> movimientos, ProgresoLote progreso) {
+        List<Map.Entry<String, String>> pendientes = new ArrayList<>(movimientos.entrySet());
+        Set<String> fallidos = ConcurrentHashMap.newKeySet();
+        int total = pendientes.size();
+
+        for (int inicio = 0; inicio < total; inicio += tamanioLoteGcs) {
+            List<Map.Entry<String, String>> lote = pendientes.subList(inicio, Math.min(inicio + tamanioLoteGcs, total));
+
+            List<CompletableFuture<Void>> copias = lote.stream()
+                    .map(mov -> CompletableFuture.runAsync(() -> {
+                        try {
+                            if (blobStore.copiar(mov.getKey(), mov.getValue()) != null) {
+                                return;
+                            }
+                            logger.warn("   ⚠️ Archivo no existe en GCS: {} (continuando...)", mov.getKey());
+                        } catch (RuntimeException e) {
+                            logger.error("   ❌ Error al copiar {} -> {}: {}", mov.getKey(), mov.getValue(), e.getMessage());
+                        }
+                        fallidos.add(mov.getKey());
+                    }, gcsBulkExecutor))
+                    .collect(Collectors.toList());
+            copias.forEach(CompletableFuture::join);
+
+            if (progreso != null) {
+                progreso.avance(inicio + lote.size(), total);
+            }
+        }
+        return fallidos;
+    }
+
+    /**
+     * Elimina muchos archivos en peticiones batch de files.gcs.bulk-batch-size
+     * Los errores solo se registran (se usa para deshacer copias masivas)
+     * @return Cantidad de archivos cuyo lote se eliminó sin error
+     */
+    public int eliminarArchivosEnLote(Collection<String> rutas) {
+        List<String> pendientes = new ArrayList<>(rutas);
+        int eliminados = 0;
+        for (int inicio = 0; inicio < pendientes.size(); inicio += tamanioLoteGcs) {
+            List<String> lote = pendientes.subList(inicio, Math.min(inicio + tamanioLoteGcs, pendientes.size()));
+            try {
+                blobStore.eliminarEnLote(lote);
+                eliminados += lote.size();
+            } catch (RuntimeException e) {
+                logger.warn("   ⚠️ No se pudieron borrar {} archivo(s) del lote: {}", lote.size(), e.getMessage());
+            }
+        }
+        return eliminados;
+    }
+
+    /**
+     * Callback de avance para operaciones en lote
+     */
+    @FunctionalInterface
+    public interface ProgresoLote {
+        void avance(int procesados, int total);
+    }
+
     /**
      * Genera una URL firmada para acceso temporal a un archivo privado
      * @param rutaGCS Ruta completa del archivo en GCS
@@ -194,14 +356,11 @@ public class FileStorageService {
      * @throws IllegalArgumentException Si el archivo no existe
      */
     public URL obtenerUrlFirmada(String rutaGCS, int duracionHoras) {
-        BlobId blobId = BlobId.of(gcsConfigService.getBucketName(), rutaGCS);
-        Blob blob = storage.get(blobId);
-        
-        if (blob == null || !blob.exists()) {
+        if (blobStore.obtener(rutaGCS) == null) {
             throw new IllegalArgumentException("Archivo no encontrado en GCS: " + rutaGCS);
         }
         
-        return blob.signUrl(duracionHoras, TimeUnit.HOURS);
+        return blobStore.urlFirmada(rutaGCS, duracionHoras, TimeUnit.HOURS);
     }
 
     /**
@@ -220,25 +379,22 @@ public class FileStorageService {
      * @throws IllegalArgumentException Si el archivo no existe
      */
     public Map<String, String> obtenerMetadatos(String rutaGCS) {
-        BlobId blobId = BlobId.of(gcsConfigService.getBucketName(), rutaGCS);
-        Blob blob = storage.get(blobId);
+        MetadatosBlob blob = blobStore.obtener(rutaGCS);
         
-        if (blob == null || !blob.exists()) {
+        if (blob == null) {
             throw new IllegalArgumentException("Archivo no encontrado en GCS: " + rutaGCS);
         }
         
         Map<String, String> metadatos = new HashMap<>();
-        metadatos.put("name", blob.getName());
-        metadatos.put("size", String.valueOf(blob.getSize()));
-        metadatos.put("contentType", blob.getContentType());
-        metadatos.put("created", String.valueOf(blob.getCreateTime()));
-        metadatos.put("updated", String.valueOf(blob.getUpdateTime()));
-        metadatos.put("generation", String.valueOf(blob.getGeneration()));
+        metadatos.put("name", blob.ruta());
+        metadatos.put("size", String.valueOf(blob.tamanio()));
+        metadatos.put("contentType", blob.contentType());
+        metadatos.put("created", String.valueOf(blob.creado()));
+        metadatos.put("updated", String.valueOf(blob.actualizado()));
+        metadatos.put("generation", String.valueOf(blob.generacion()));
         
-        // Agregar metadata personalizada si existe
-        if (blob.getMetadata() != null) {
-            metadatos.putAll(blob.getMetadata());
-        }
+        // Agregar metadata personalizada
+        metadatos.putAll(blob.metadatos());
         
         return metadatos;
     }
@@ -249,9 +405,7 @@ public class FileStorageService {
      * @return true si el archivo existe, false en caso contrario
      */
     public boolean existeArchivo(String rutaGCS) {
-        BlobId blobId = BlobId.of(gcsConfigService.getBucketName(), rutaGCS);
-        Blob blob = storage.get(blobId);
-        return blob != null && blob.exists();
+        return blobStore.obtener(rutaGCS) != null;
     }
 
     /**
@@ -261,35 +415,30 @@ public class FileStorageService {
      * @throws IllegalArgumentException Si el archivo no existe
      */
     public long obtenerTamanio(String rutaGCS) {
-        BlobId blobId = BlobId.of(gcsConfigService.getBucketName(), rutaGCS);
-        Blob blob = storage.get(blobId);
+        MetadatosBlob blob = blobStore.obtener(rutaGCS);
         
-        if (blob == null || !blob.exists()) {
+        if (blob == null) {
             throw new IllegalArgumentException("Archivo no encontrado en GCS: " + rutaGCS);
         }
         
-        return blob.getSize();
+        return blob.tamanio();
     }
 
     /**
      * Actualiza los metadatos de un archivo en GCS
      * @param rutaGCS Ruta completa del archivo en GCS
      * @param nuevosMetadatos Map con los nuevos metadatos
-     * @return Información actualizada del blob
+     * @return Metadatos actualizados
      * @throws IllegalArgumentException Si el archivo no existe
      */
-    public Blob actualizarMetadatos(String rutaGCS, Map<String, String> nuevosMetadatos) {
-        BlobId blobId = BlobId.of(gcsConfigService.getBucketName(), rutaGCS);
-        Blob blob = storage.get(blobId);
+    public MetadatosBlob actualizarMetadatos(String rutaGCS, Map<String, String> nuevosMetadatos) {
+        MetadatosBlob blob = blobStore.actualizarMetadatos(rutaGCS, nuevosMetadatos);
         
-        if (blob == null || !blob.exists()) {
+        if (blob == null) {
             throw new IllegalArgumentException("Archivo no encontrado en GCS: " + rutaGCS);
         }
         
-        return blob.toBuilder()
-                .setMetadata(nuevosMetadatos)
-                .build()
-                .update();
+        return blob;
     }
 
     /**
@@ -311,9 +460,9 @@ public class FileStorageService {
      * Restaura un archivo desde la papelera
      * @param rutaTrash Ruta del archivo en trash
      * @param rutaDestino Ruta destino para restaurar el archivo
-     * @return Información del blob restaurado
+     * @return Metadatos del archivo restaurado
      */
-    public Blob restaurarDesdeTrash(String rutaTrash, String rutaDestino) {
+    public MetadatosBlob restaurarDesdeTrash(String rutaTrash, String rutaDestino) {
         return moverArchivo(rutaTrash, rutaDestino);
     }
 }
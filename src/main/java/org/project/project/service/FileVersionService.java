@@ -12,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -32,6 +33,12 @@ public class FileVersionService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private AlmacenContenidoService almacenContenidoService;
+
+    @Autowired
+    private GCSConfigService gcsConfigService;
+
     // ==================== CRUD OPERATIONS ====================
 
     /**
@@ -78,6 +85,7 @@ public class FileVersionService {
      * Eliminar versión
      */
     public void eliminarVersion(Long id) {
+        fileVersionRepository.findById(id).ifPresent(this::liberarContenido);
         fileVersionRepository.deleteById(id);
     }
 
@@ -130,6 +138,31 @@ public class FileVersionService {
 
         return fileVersionRepository.save(nuevaVersion);
     }
+
+    /**
+     * Crear versión con el contenido actual del nodo (solo metadatos)
+     * La versión apunta al mismo blob deduplicado que el archivo y suma una referencia;
+     * un archivo anterior al almacén deduplicado se adopta primero
+     */
+    public VersionArchivo crearVersionDelContenidoActual(Long nodoId, Long enlaceId, String versionLabel,
+                                                         Long creadoPor) throws IOException {
+        Nodo nodo = obtenerNodo(nodoId);
+        if (!AlmacenContenidoService.esDireccionado(nodo)) {
+            if (!almacenContenidoService.adoptar(nodoId)) {
+                throw new IllegalStateException("El contenido del archivo no está disponible: " + nodoId);
+            }
+            nodo = obtenerNodo(nodoId);
+        }
+        if (!almacenContenidoService.retener(nodo.getContenidoHash())) {
+            throw new IllegalStateException("El contenido del archivo ya no está almacenado: " + nodoId);
+        }
+
+        VersionArchivo version = crearNuevaVersion(nodoId, enlaceId, nodo.getGcsPath(),
+                nodo.getSize(), versionLabel, creadoPor);
+        version.setChecksum(nodo.getContenidoHash());
+        version.setStorageBucket(gcsConfigService.getBucketName());
+        return fileVersionRepository.save(version);
+    }
     
     // Métodos auxiliares privados
     private Nodo obtenerNodo(Long nodoId) {
@@ -211,7 +244,17 @@ public class FileVersionService {
         
         if (versiones.size() > mantenerUltimas) {
             List<VersionArchivo> aEliminar = versiones.subList(mantenerUltimas, versiones.size());
+            aEliminar.forEach(this::liberarContenido);
             fileVersionRepository.deleteAll(aEliminar);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Libera la referencia al blob deduplicado de una versión (las versiones con objeto propio no tienen)
+     */
+    private void liberarContenido(VersionArchivo version) {
+        if (version.getChecksum() != null && gcsConfigService.esRutaContenido(version.getStorageKey())) {
+            almacenContenidoService.liberar(version.getChecksum());
+        }
+    }
+}
@@ -1,20 +1,30 @@
 package org.project.project.service;
 
+import org.project.project.model.dto.NodoCacheado;
 import org.project.project.model.entity.Nodo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 /**
- * Servicio para compresión y descompresión de carpetas
+ * Servicio para compresión de carpetas
+ * La importación de ZIPs (descompresión) está en ImportacionZipService
  */
 @Service
 public class FolderCompressionService {
@@ -27,13 +37,47 @@ public class FolderCompressionService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    @Qualifier("zipPrefetchExecutor")
+    private Executor zipPrefetchExecutor;
+
+    // Blobs que se abren por adelantado mientras se escribe el archivo actual (0 = sin prefetch)
+    @Value("${files.zip.prefetch-count:4}")
+    private int prefetchCount;
+
+    // KB leídos por adelantado de cada blob (también es el chunk del canal de lectura)
+    @Value("${files.zip.prefetch-buffer-kb:256}")
+    private int prefetchBufferKb;
+
     /**
-     * Comprime una carpeta completa (incluyendo subcarpetas) en un archivo ZIP
+     * Comprime una carpeta completa (incluyendo subcarpetas) en un archivo ZIP en memoria
+     * Solo apto para carpetas pequeñas; para descargas HTTP usar escribirZipCarpeta
      * @param carpetaId ID de la carpeta raíz a comprimir
      * @return ByteArrayOutputStream con el contenido del ZIP
      */
     public ByteArrayOutputStream comprimirCarpeta(Long carpetaId) throws IOException {
-        logger.info("📦 Comprimiendo carpeta ID: {}", carpetaId);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        escribirZipCarpeta(carpetaId, baos);
+        logger.info("✅ Carpeta comprimida exitosamente - Tamaño: {} bytes", baos.size());
+        return baos;
+    }
+
+    /**
+     * Escribe el ZIP de una carpeta directamente en un OutputStream (modo streaming)
+     * 
+     * Cada archivo se copia desde un canal de lectura del almacenamiento hacia la salida sin pasar por un byte[]
+     * completo. Mientras se escribe un archivo, los siguientes {@code files.zip.prefetch-count}
+     * se abren en paralelo y se leen sus primeros {@code files.zip.prefetch-buffer-kb} KB,
+     * así la latencia de GCS por archivo se solapa con la escritura.
+     * 
+     * MEMORIA: acotada a ~ (prefetchCount + 1) * 2 * prefetchBuffer por descarga,
+     * independiente del tamaño de la carpeta.
+     * 
+     * @param carpetaId ID de la carpeta raíz a comprimir
+     * @param salida Stream destino (ej: el OutputStream de la respuesta HTTP). No se cierra.
+     */
+    public void escribirZipCarpeta(Long carpetaId, OutputStream salida) throws IOException {
+        logger.info("📦 Comprimiendo carpeta ID: {} (streaming)", carpetaId);
         
         Nodo carpeta = nodoService.obtenerPorId(carpetaId)
                 .orElseThrow(() -> new IllegalArgumentException("Carpeta no encontrada"));
@@ -42,304 +86,281 @@ public class FolderCompressionService {
             throw new IllegalArgumentException("El nodo no es una carpeta");
         }
         
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
-            // Comprimir recursivamente todos los archivos
-            comprimirCarpetaRecursivo(carpeta, "", zos);
-            zos.finish();
+        // 1. Recolectar entradas (solo metadata, sin contenido)
+        List<EntradaZip> entradas = new ArrayList<>();
+        recolectarEntradas(NodoCacheado.desde(carpeta), "", entradas);
+        
+        // 2. Escribir entradas en orden, con prefetch de los siguientes blobs
+        long totalBytes = escribirEntradas(entradas, salida, null);
+        
+        logger.info("✅ Carpeta {} comprimida en streaming - {} entradas, {} bytes sin comprimir",
+                carpetaId, entradas.size(), totalBytes);
+    }
+
+    /**
+     * Escribe en streaming un ZIP con una selección de nodos (archivos y/o carpetas completas)
+     * Cada nodo queda en la raíz del ZIP; las carpetas incluyen todo su contenido
+     * @param nodoIds IDs de los nodos a incluir
+     * @param salida Stream destino (ej: WriteChannel de GCS). No se cierra.
+     * @param progreso Callback por archivo escrito (puede lanzar excepción para abortar), o null
+     * @return Bytes sin comprimir escritos
+     */
+    public long escribirZipNodos(List<Long> nodoIds, OutputStream salida, ProgresoZip progreso) throws IOException {
+        logger.info("📦 Comprimiendo {} nodo(s) seleccionados (streaming)", nodoIds.size());
+        
+        List<EntradaZip> entradas = new ArrayList<>();
+        for (Long nodoId : nodoIds) {
+            Nodo nodo = nodoService.obtenerPorId(nodoId)
+                    .orElseThrow(() -> new IllegalArgumentException("Nodo no encontrado: " + nodoId));
+            if (nodo.getIsDeleted()) {
+                continue;
+            }
+            if (nodo.getTipo() == Nodo.TipoNodo.CARPETA) {
+                entradas.add(new EntradaZip(nodo.getNombre(), null, true));
+                recolectarEntradas(NodoCacheado.desde(nodo), nodo.getNombre(), entradas);
+            } else if (nodo.getGcsPath() != null && !nodo.getGcsPath().isEmpty()) {
+                entradas.add(new EntradaZip(nodo.getNombre(), nodo.getGcsPath(), false));
+            }
         }
         
-        logger.info("✅ Carpeta comprimida exitosamente - Tamaño: {} bytes", baos.size());
-        return baos;
+        return escribirEntradas(entradas, salida, progreso);
     }
 
     /**
-     * Comprime recursivamente archivos y subcarpetas
+     * Callback de progreso de un ZIP en streaming
      */
-    private void comprimirCarpetaRecursivo(Nodo carpeta, String rutaRelativa, ZipOutputStream zos) throws IOException {
-        List<Nodo> hijos = nodoService.obtenerHijos(
-            carpeta.getNodoId(),
-            carpeta.getContainerType(), 
-            carpeta.getContainerId()
-        );
+    public interface ProgresoZip {
+        /**
+         * @param escritos Archivos escritos hasta ahora
+         * @param total Total de archivos del ZIP
+         */
+        void archivoEscrito(int escritos, int total);
+    }
+
+    /**
+     * Escribe las entradas en un ZIP sobre la salida, con la ventana de prefetch
+     * @return Bytes sin comprimir escritos
+     */
+    private long escribirEntradas(List<EntradaZip> entradas, OutputStream salida, ProgresoZip progreso) throws IOException {
+        int bytesPrefetch = Math.max(8, prefetchBufferKb) * 1024;
+        VentanaPrefetch ventana = new VentanaPrefetch(entradas, Math.max(0, prefetchCount), bytesPrefetch);
+        byte[] bufferCopia = new byte[bytesPrefetch];
+        int totalArchivos = (int) entradas.stream().filter(e -> !e.carpeta()).count();
+        int archivosEscritos = 0;
+        long totalBytes = 0;
         
-        for (Nodo hijo : hijos) {
-            String rutaHijo = rutaRelativa.isEmpty() ? hijo.getNombre() : rutaRelativa + "/" + hijo.getNombre();
-            
-            if (hijo.getTipo() == Nodo.TipoNodo.ARCHIVO) {
-                // Agregar archivo al ZIP
-                logger.debug("   📄 Agregando archivo: {}", rutaHijo);
-                
-                try {
-                    byte[] contenido = fileStorageService.descargarArchivo(hijo.getGcsPath());
-                    ZipEntry entry = new ZipEntry(rutaHijo);
-                    entry.setSize(contenido.length);
-                    zos.putNextEntry(entry);
-                    zos.write(contenido);
+        ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(salida, 64 * 1024));
+        try {
+            for (EntradaZip entrada : entradas) {
+                if (entrada.carpeta()) {
+                    logger.debug("   📁 Agregando carpeta: {}/", entrada.ruta());
+                    zos.putNextEntry(new ZipEntry(entrada.ruta() + "/"));
                     zos.closeEntry();
-                } catch (Exception e) {
-                    logger.warn("   ⚠️ No se pudo agregar archivo {}: {}", rutaHijo, e.getMessage());
-                    // Continuar con otros archivos
+                    continue;
                 }
-            } else if (hijo.getTipo() == Nodo.TipoNodo.CARPETA) {
-                // Crear entrada de carpeta en ZIP
-                logger.debug("   📁 Agregando carpeta: {}/", rutaHijo);
-                ZipEntry entry = new ZipEntry(rutaHijo + "/");
-                zos.putNextEntry(entry);
-                zos.closeEntry();
                 
-                // Recursión para subcarpetas
-                comprimirCarpetaRecursivo(hijo, rutaHijo, zos);
+                CompletableFuture<BloquePrefetch> futuro = ventana.siguiente();
+                totalBytes += escribirArchivo(entrada, futuro, zos, bufferCopia);
+                archivosEscritos++;
+                if (progreso != null) {
+                    progreso.archivoEscrito(archivosEscritos, totalArchivos);
+                }
             }
+            zos.finish();
+            zos.flush();
+        } finally {
+            ventana.liberarPendientes();
         }
+        return totalBytes;
     }
 
     /**
-     * Descomprime un archivo ZIP y crea la estructura de carpetas/archivos
-     * @param zipInputStream Stream del archivo ZIP
-     * @param containerType Tipo de contenedor (PROYECTO o REPOSITORIO)
-     * @param containerId ID del contenedor
-     * @param parentId ID del nodo padre donde descomprimir
-     * @param usuarioId ID del usuario que realiza la operación
-     * @return Lista de nodos creados
+     * Recorre la carpeta y arma la lista ordenada de entradas del ZIP
      */
-    public List<Nodo> descomprimirZip(InputStream zipInputStream, 
-                                       Nodo.ContainerType containerType,
-                                       Long containerId,
-                                       Long parentId,
-                                       Long usuarioId) throws Exception {
-        logger.info("📦 Descomprimiendo ZIP en contenedor {} ID: {}", containerType, containerId);
-        
-        List<Nodo> nodosCreados = new ArrayList<>();
+    private void recolectarEntradas(NodoCacheado carpeta, String rutaRelativa, List<EntradaZip> entradas) {
+        List<NodoCacheado> hijos = nodoService.obtenerHijosCacheados(
+            carpeta.nodoId(),
+            carpeta.containerType(), 
+            carpeta.containerId()
+        );
         
-        try (ZipInputStream zis = new ZipInputStream(zipInputStream)) {
-            ZipEntry entry;
+        for (NodoCacheado hijo : hijos) {
+            String rutaHijo = rutaRelativa.isEmpty() ? hijo.nombre() : rutaRelativa + "/" + hijo.nombre();
             
-            while ((entry = zis.getNextEntry()) != null) {
-                String nombreEntry = entry.getName();
-                logger.debug("   📄 Procesando: {}", nombreEntry);
-                
-                if (entry.isDirectory()) {
-                    // Crear carpeta
-                    Nodo carpeta = crearCarpetaDesdeZip(nombreEntry, containerType, containerId, parentId, usuarioId);
-                    if (carpeta != null) {
-                        nodosCreados.add(carpeta);
-                    }
-                } else {
-                    // Crear archivo
-                    Nodo archivo = crearArchivoDesdeZip(nombreEntry, zis, containerType, containerId, parentId, usuarioId);
-                    if (archivo != null) {
-                        nodosCreados.add(archivo);
-                    }
+            if (hijo.tipo() == Nodo.TipoNodo.ARCHIVO) {
+                if (hijo.gcsPath() == null || hijo.gcsPath().isEmpty()) {
+                    logger.warn("   ⚠️ Archivo sin ruta GCS, se omite: {}", rutaHijo);
+                    continue;
                 }
-                
-                zis.closeEntry();
+                entradas.add(new EntradaZip(rutaHijo, hijo.gcsPath(), false));
+            } else if (hijo.esCarpeta()) {
+                entradas.add(new EntradaZip(rutaHijo, null, true));
+                recolectarEntradas(hijo, rutaHijo, entradas);
             }
         }
-        
-        logger.info("✅ ZIP descomprimido - {} nodos creados", nodosCreados.size());
-        return nodosCreados;
     }
 
     /**
-     * Crea una carpeta desde una entrada del ZIP
+     * Escribe un archivo en el ZIP: primero el bloque prefetcheado y luego el resto del canal
+     * Los errores de lectura en GCS omiten (o truncan) el archivo; los de escritura se propagan
+     * porque significan que el cliente cortó la descarga
+     * @return Bytes escritos del archivo
      */
-    private Nodo crearCarpetaDesdeZip(String rutaCompleta, Nodo.ContainerType containerType,
-                                       Long containerId, Long parentId, Long usuarioId) {
+    private long escribirArchivo(EntradaZip entrada, CompletableFuture<BloquePrefetch> futuro,
+                                 ZipOutputStream zos, byte[] bufferCopia) throws IOException {
+        BloquePrefetch bloque;
         try {
-            // Remover trailing slash
-            String ruta = rutaCompleta.endsWith("/") ? rutaCompleta.substring(0, rutaCompleta.length() - 1) : rutaCompleta;
-            
-            // Separar path en partes
-            String[] partes = ruta.split("/");
-            Long parentActual = parentId;
+            bloque = futuro.join();
+        } catch (CompletionException e) {
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            logger.warn("   ⚠️ No se pudo agregar archivo {}: {}", entrada.ruta(), causa.getMessage());
+            return 0;
+        }
+        
+        logger.debug("   📄 Agregando archivo: {}", entrada.ruta());
+        try {
+            zos.putNextEntry(new ZipEntry(entrada.ruta()));
+            ByteBuffer inicio = bloque.inicio();
+            zos.write(inicio.array(), 0, inicio.limit());
+            long escritos = inicio.limit();
             
-            // Crear carpetas intermedias si no existen
-            for (String nombreCarpeta : partes) {
-                // Verificar si ya existe
-                List<Nodo> hijosExistentes = nodoService.obtenerHijos(parentActual, containerType, containerId);
-                Nodo existente = hijosExistentes.stream()
-                    .filter(n -> n.getNombre().equals(nombreCarpeta) && n.getTipo() == Nodo.TipoNodo.CARPETA)
-                    .findFirst()
-                    .orElse(null);
-                
-                if (existente != null) {
-                    parentActual = existente.getNodoId();
-                } else {
-                    // Crear carpeta
-                    Nodo nuevaCarpeta = nodoService.crearCarpeta(
-                        nombreCarpeta,
-                        containerType,
-                        containerId,
-                        parentActual,
-                        usuarioId
-                    );
-                    parentActual = nuevaCarpeta.getNodoId();
-                    logger.debug("   ✅ Carpeta creada: {}", nombreCarpeta);
-                    return nuevaCarpeta;
+            if (!bloque.fin()) {
+                ByteBuffer copia = ByteBuffer.wrap(bufferCopia);
+                while (true) {
+                    copia.clear();
+                    int leidos;
+                    try {
+                        leidos = bloque.canal().read(copia);
+                    } catch (IOException e) {
+                        logger.warn("   ⚠️ Archivo {} truncado, error leyendo de GCS: {}", entrada.ruta(), e.getMessage());
+                        break;
+                    }
+                    if (leidos < 0) {
+                        break;
+                    }
+                    zos.write(bufferCopia, 0, leidos);
+                    escritos += leidos;
                 }
             }
-        } catch (Exception e) {
-            logger.error("   ❌ Error creando carpeta {}: {}", rutaCompleta, e.getMessage());
+            zos.closeEntry();
+            return escritos;
+        } finally {
+            bloque.cerrar();
         }
-        return null;
     }
 
     /**
-     * Crea un archivo desde una entrada del ZIP
+     * Abre el canal de un blob y lee su primer bloque (se ejecuta en zipPrefetchExecutor)
      */
-    private Nodo crearArchivoDesdeZip(String rutaCompleta, InputStream contenido,
-                                       Nodo.ContainerType containerType, Long containerId,
-                                       Long parentId, Long usuarioId) {
+    private BloquePrefetch prefetch(EntradaZip entrada, int bytes) {
+        ReadableByteChannel canal;
         try {
-            // Separar path en carpetas y nombre de archivo
-            String[] partes = rutaCompleta.split("/");
-            String nombreArchivo = partes[partes.length - 1];
-            
-            // Crear carpetas intermedias si es necesario
-            Long parentActual = parentId;
-            if (partes.length > 1) {
-                for (int i = 0; i < partes.length - 1; i++) {
-                    String nombreCarpeta = partes[i];
-                    
-                    // Verificar si ya existe
-                    List<Nodo> hijosExistentes = nodoService.obtenerHijos(parentActual, containerType, containerId);
-                    Nodo existente = hijosExistentes.stream()
-                        .filter(n -> n.getNombre().equals(nombreCarpeta) && n.getTipo() == Nodo.TipoNodo.CARPETA)
-                        .findFirst()
-                        .orElse(null);
-                    
-                    if (existente != null) {
-                        parentActual = existente.getNodoId();
-                    } else {
-                        Nodo nuevaCarpeta = nodoService.crearCarpeta(
-                            nombreCarpeta,
-                            containerType,
-                            containerId,
-                            parentActual,
-                            usuarioId
-                        );
-                        parentActual = nuevaCarpeta.getNodoId();
-                    }
+            canal = fileStorageService.abrirCanalLectura(entrada.gcsPath(), bytes);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        try {
+            ByteBuffer inicio = ByteBuffer.allocate(bytes);
+            boolean fin = false;
+            while (inicio.hasRemaining()) {
+                if (canal.read(inicio) < 0) {
+                    fin = true;
+                    break;
                 }
             }
-            
-            // Leer contenido del archivo
-            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            byte[] data = new byte[8192];
-            int nRead;
-            while ((nRead = contenido.read(data, 0, data.length)) != -1) {
-                buffer.write(data, 0, nRead);
+            inicio.flip();
+            BloquePrefetch bloque = new BloquePrefetch(canal, inicio, fin);
+            if (fin) {
+                bloque.cerrar();
             }
-            
-            byte[] bytes = buffer.toByteArray();
-            
-            // Crear archivo temporal para subir
-            CustomMultipartFile file = new CustomMultipartFile(
-                nombreArchivo,
-                nombreArchivo,
-                detectarMimeType(nombreArchivo),
-                bytes
-            );
-            
-            // Subir archivo con sincronización dual
-            Nodo nodo = nodoService.subirArchivoConSincronizacionDual(
-                file,
-                containerType,
-                containerId,
-                parentActual,
-                usuarioId
-            );
-            
-            logger.debug("   ✅ Archivo creado: {} ({} bytes)", nombreArchivo, bytes.length);
-            return nodo;
-        } catch (Exception e) {
-            logger.error("   ❌ Error creando archivo {}: {}", rutaCompleta, e.getMessage());
-            return null;
+            return bloque;
+        } catch (IOException | RuntimeException e) {
+            cerrarSilencioso(canal);
+            throw new CompletionException(e);
         }
     }
 
     /**
-     * Detecta el MIME type basado en la extensión del archivo
+     * Entrada del ZIP: carpeta (gcsPath null) o archivo
      */
-    private String detectarMimeType(String nombreArchivo) {
-        String ext = nombreArchivo.substring(nombreArchivo.lastIndexOf('.') + 1).toLowerCase();
-        
-        return switch (ext) {
-            case "txt" -> "text/plain";
-            case "html", "htm" -> "text/html";
-            case "css" -> "text/css";
-            case "js" -> "application/javascript";
-            case "json" -> "application/json";
-            case "xml" -> "application/xml";
-            case "pdf" -> "application/pdf";
-            case "zip" -> "application/zip";
-            case "jpg", "jpeg" -> "image/jpeg";
-            case "png" -> "image/png";
-            case "gif" -> "image/gif";
-            case "svg" -> "image/svg+xml";
-            case "mp4" -> "video/mp4";
-            case "mp3" -> "audio/mpeg";
-            default -> "application/octet-stream";
-        };
-    }
-    
+    private record EntradaZip(String ruta, String gcsPath, boolean carpeta) {}
+
     /**
-     * Implementación simple de MultipartFile para archivos en memoria
+     * Primer bloque leído de un blob + canal abierto para leer el resto
      */
-    private static class CustomMultipartFile implements org.springframework.web.multipart.MultipartFile {
-        private final String name;
-        private final String originalFilename;
-        private final String contentType;
-        private final byte[] content;
-        
-        public CustomMultipartFile(String name, String originalFilename, String contentType, byte[] content) {
-            this.name = name;
-            this.originalFilename = originalFilename;
-            this.contentType = contentType;
-            this.content = content;
-        }
-        
-        @Override
-        public String getName() {
-            return name;
-        }
-        
-        @Override
-        public String getOriginalFilename() {
-            return originalFilename;
-        }
-        
-        @Override
-        public String getContentType() {
-            return contentType;
+    private record BloquePrefetch(ReadableByteChannel canal, ByteBuffer inicio, boolean fin) {
+        void cerrar() {
+            if (canal.isOpen()) {
+                cerrarSilencioso(canal);
+            }
         }
-        
-        @Override
-        public boolean isEmpty() {
-            return content == null || content.length == 0;
+    }
+
+    private static void cerrarSilencioso(ReadableByteChannel canal) {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            // el canal ya no se usa: un error al cerrar no afecta al ZIP
         }
-        
-        @Override
-        public long getSize() {
-            return content.length;
+    }
+
+    /**
+     * Ventana deslizante de prefetch sobre los archivos del ZIP
+     * Mantiene como máximo {@code tamanio} blobs abiertos por adelantado
+     */
+    private class VentanaPrefetch {
+        private final List<EntradaZip> entradas;
+        private final int tamanio;
+        private final int bytes;
+        private final Deque<CompletableFuture<BloquePrefetch>> pendientes = new ArrayDeque<>();
+        private int cursor = 0;
+
+        VentanaPrefetch(List<EntradaZip> entradas, int tamanio, int bytes) {
+            this.entradas = entradas;
+            this.tamanio = tamanio;
+            this.bytes = bytes;
         }
-        
-        @Override
-        public byte[] getBytes() throws IOException {
-            return content;
+
+        /**
+         * Devuelve el bloque del siguiente archivo en orden y rellena la ventana
+         */
+        CompletableFuture<BloquePrefetch> siguiente() {
+            if (pendientes.isEmpty()) {
+                lanzarSiguiente();
+            }
+            CompletableFuture<BloquePrefetch> actual = pendientes.pollFirst();
+            while (pendientes.size() < tamanio && lanzarSiguiente()) {
+                // rellenar la ventana mientras se escribe el archivo actual
+            }
+            return actual;
         }
-        
-        @Override
-        public InputStream getInputStream() throws IOException {
-            return new ByteArrayInputStream(content);
+
+        private boolean lanzarSiguiente() {
+            while (cursor < entradas.size()) {
+                EntradaZip entrada = entradas.get(cursor++);
+                if (entrada.carpeta()) {
+                    continue;
+                }
+                // Sin prefetch configurado, el blob se abre en el propio hilo de la descarga
+                Executor ejecutor = tamanio == 0 ? Runnable::run : zipPrefetchExecutor;
+                pendientes.addLast(CompletableFuture.supplyAsync(() -> prefetch(entrada, bytes), ejecutor));
+                return true;
+            }
+            return false;
         }
-        
-        @Override
-        public void transferTo(java.io.File dest) throws IOException, IllegalStateException {
-            try (FileOutputStream fos = new FileOutputStream(dest)) {
-                fos.write(content);
+
+        /**
+         * Cierra los canales de los blobs prefetcheados que no llegaron a escribirse
+         */
+        void liberarPendientes() {
+            for (CompletableFuture<BloquePrefetch> futuro : pendientes) {
+                futuro.whenComplete((bloque, error) -> {
+                    if (bloque != null) {
+                        bloque.cerrar();
+                    }
+                });
             }
+            pendientes.clear();
         }
     }
 }
@@ -1,8 +1,9 @@
 package org.project.project.service;
 
-import com.google.cloud.storage.Storage;
 import org.project.project.model.entity.Nodo;
+import org.project.project.service.storage.BlobStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -17,7 +18,8 @@ import java.util.concurrent.TimeUnit;
 public class GCSConfigService {
 
     @Autowired
-    private Storage storage;
+    @Qualifier("archivosBlobStore")
+    private BlobStore blobStore;
 
     @Value("${gcp.project-id}")
     private String projectId;
@@ -37,6 +39,9 @@ public class GCSConfigService {
     @Value("${gcs.filesystem.prefix.temp}")
     private String tempPrefix;
 
+    @Value("${gcs.filesystem.prefix.contenido:contenido/}")
+    private String contenidoPrefix;
+
     @Value("${gcs.filesystem.base-url}")
     private String baseUrl;
 
@@ -178,6 +183,23 @@ public class GCSConfigService {
         return tempPrefix + operationId + "/" + filename;
     }
 
+    /**
+     * Construye la ruta de un objeto direccionado por contenido (deduplicado)
+     * @param hash SHA-256 en hexadecimal del contenido
+     * @return Ruta en formato: contenido/sha256/{2 primeros}/{hash}
+     */
+    public String construirRutaContenido(String hash) {
+        return contenidoPrefix + "sha256/" + hash.substring(0, 2) + "/" + hash;
+    }
+
+    /**
+     * Indica si una ruta GCS pertenece al almacén direccionado por contenido
+     * (esos objetos no se mueven al renombrar/mover ni se eliminan al borrar un nodo)
+     */
+    public boolean esRutaContenido(String rutaGCS) {
+        return rutaGCS != null && rutaGCS.startsWith(contenidoPrefix + "sha256/");
+    }
+
     /**
      * Obtiene el prefijo correspondiente según el tipo de contenedor
      * @param tipo Tipo de contenedor (PROYECTO o REPOSITORIO)
@@ -194,8 +216,7 @@ public class GCSConfigService {
      */
     public boolean validarConfiguracion() {
         try {
-            var bucket = storage.get(bucketName);
-            if (bucket == null || !bucket.exists()) {
+            if (!blobStore.disponible()) {
                 throw new IllegalStateException("Bucket GCS no existe: " + bucketName);
             }
             return true;
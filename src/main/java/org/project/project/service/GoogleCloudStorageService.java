@@ -1,23 +1,23 @@
 package org.project.project.service;
 
-import com.google.auth.oauth2.GoogleCredentials;
-import com.google.cloud.storage.*;
-import com.google.common.io.ByteStreams;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
+import org.project.project.service.storage.BlobStore;
+import org.project.project.service.storage.MetadatosBlob;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.channels.Channels;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Servicio para gestionar archivos en Google Cloud Storage.
+ * Servicio para gestionar archivos en Google Cloud Storage (bucket de DevPortal).
+ * Usa el BlobStore "devportalBlobStore": con storage.backend=local los archivos quedan en disco.
  * 
  * Características:
  * - Subida automática con estructura de carpetas por fecha y reporte
@@ -39,45 +39,23 @@ public class GoogleCloudStorageService {
     private static final String VERSION_INICIAL = "v1-inicial";
     private static final long URL_EXPIRY_DAYS = 7L;
 
-    private final Storage storage;
+    private final BlobStore blobStore;
     private final String bucketName;
 
-    /**
-     * Constructor que inicializa Google Cloud Storage con credenciales explícitas.
-     */
-    public GoogleCloudStorageService(@Value("${devportal.storage.bucket-name}") String bucketName) {
+    public GoogleCloudStorageService(@Qualifier("devportalBlobStore") BlobStore blobStore) {
+        this.blobStore = blobStore;
+        this.bucketName = blobStore.getNombre();
+        log.info("✅ GoogleCloudStorageService inicializado con bucket: {}", bucketName);
+
+        // Probar conectividad básica
         try {
-            log.info("Inicializando Google Cloud Storage con credenciales explícitas...");
-            
-            // Cargar credenciales desde classpath
-            InputStream credentialsStream = new ClassPathResource("devportal-storage-key.json").getInputStream();
-            GoogleCredentials credentials = GoogleCredentials.fromStream(credentialsStream)
-                    .createScoped(Collections.singletonList("https://www.googleapis.com/auth/devstorage.read_write"));
-            
-            // Crear instancia de Storage con credenciales explícitas
-            this.storage = StorageOptions.newBuilder()
-                    .setCredentials(credentials)
-                    .setProjectId("devportal-storage")
-                    .build()
-                    .getService();
-            
-            this.bucketName = bucketName;
-            log.info("✅ GoogleCloudStorageService inicializado con bucket: {}", bucketName);
-            
-            // Probar conectividad básica
-            try {
-                Bucket bucket = storage.get(bucketName);
-                if (bucket != null) {
-                    log.info("✅ Conectado exitosamente al bucket: {}", bucketName);
-                } else {
-                    log.warn("⚠️ Bucket {} no encontrado o no accesible", bucketName);
-                }
-            } catch (Exception e) {
-                log.error("❌ Error al acceder al bucket {}: {}", bucketName, e.getMessage());
+            if (blobStore.disponible()) {
+                log.info("✅ Conectado exitosamente al bucket: {}", bucketName);
+            } else {
+                log.warn("⚠️ Bucket {} no encontrado o no accesible", bucketName);
             }
         } catch (Exception e) {
-            log.error("❌ Error al inicializar Google Cloud Storage: {}", e.getMessage(), e);
-            throw new RuntimeException("Error al inicializar el servicio de GCS", e);
+            log.error("❌ Error al acceder al bucket {}: {}", bucketName, e.getMessage());
         }
     }
 
@@ -103,27 +81,26 @@ public class GoogleCloudStorageService {
             String gcsPath = generateGcsPath(reporteId, file.getOriginalFilename());
             log.info("Iniciando subida de archivo a GCS: {} (tamaño: {} bytes)", gcsPath, file.getSize());
 
-            // Preparar metadatos del blob
-            BlobInfo blobInfo = BlobInfo.newBuilder(BlobId.of(bucketName, gcsPath))
-                    .setContentType(file.getContentType())
-                    .setMetadata(Map.of(
-                            "uploaded-by", String.valueOf(subidoPorUsuarioId),
-                            "reporte-id", String.valueOf(reporteId),
-                            "uploaded-at", LocalDateTime.now().toString()
-                    ))
-                    .build();
+            // Metadatos del blob
+            Map<String, String> metadatos = Map.of(
+                    "uploaded-by", String.valueOf(subidoPorUsuarioId),
+                    "reporte-id", String.valueOf(reporteId),
+                    "uploaded-at", LocalDateTime.now().toString()
+            );
 
-            // Subir a GCS
-            byte[] fileContent = ByteStreams.toByteArray(file.getInputStream());
-            Blob blob = storage.create(blobInfo, fileContent);
-            log.info("Archivo subido exitosamente: {} (GCS ID: {})", gcsPath, blob.getName());
+            // Subir a GCS (en streaming desde el archivo temporal)
+            MetadatosBlob blob;
+            try (InputStream contenido = file.getInputStream()) {
+                blob = blobStore.guardar(gcsPath, contenido, file.getContentType(), metadatos);
+            }
+            log.info("Archivo subido exitosamente: {} (GCS ID: {})", gcsPath, blob.ruta());
 
             // Generar URL pública con expiración
             String publicUrl = generatePublicUrl(gcsPath);
 
             // Construir objeto de respuesta
             return GcsFileInfo.builder()
-                    .gcsFileId(blob.getName())
+                    .gcsFileId(blob.ruta())
                     .gcsBucketName(bucketName)
                     .gcsFilePath(gcsPath)
                     .gcsPublicUrl(publicUrl)
@@ -141,6 +118,65 @@ public class GoogleCloudStorageService {
         }
     }
 
+    /**
+     * Sube el contenido de un adjunto de reporte (nuevo o migrado desde reporte_adjunto.contenido_archivo).
+     *
+     * Estructura generada (una carpeta por adjunto, así dos adjuntos con el mismo nombre no se pisan
+     * y la migración es idempotente):
+     * reportes/YYYY/MM/reporte-123/adjunto-456/nombreArchivo.pdf
+     *
+     * @param contenido Contenido del adjunto (se consume en streaming, no se cierra)
+     * @param subidoEn Fecha del adjunto: define la carpeta YYYY/MM
+     * @return GcsFileInfo con metadatos del archivo subido (sin URL pública: la descarga pasa por la app)
+     */
+    public GcsFileInfo subirAdjunto(Long reporteId, Long adjuntoId, String nombreArchivo, String contentType,
+                                    InputStream contenido, LocalDateTime subidoEn, Long subidoPorUsuarioId) throws IOException {
+        LocalDateTime fecha = subidoEn != null ? subidoEn : LocalDateTime.now();
+        String gcsPath = String.format("%s/%04d/%02d/reporte-%d/adjunto-%d/%s",
+                REPORTES_PREFIX,
+                fecha.getYear(),
+                fecha.getMonthValue(),
+                reporteId,
+                adjuntoId,
+                sanitizeFilename(nombreArchivo));
+
+        Map<String, String> metadatos = new HashMap<>();
+        metadatos.put("reporte-id", String.valueOf(reporteId));
+        metadatos.put("adjunto-id", String.valueOf(adjuntoId));
+        if (subidoPorUsuarioId != null) {
+            metadatos.put("uploaded-by", String.valueOf(subidoPorUsuarioId));
+        }
+
+        MetadatosBlob blob = blobStore.guardar(gcsPath, contenido,
+                contentType != null ? contentType : "application/octet-stream", metadatos);
+        log.info("Adjunto {} subido: {} ({} bytes)", adjuntoId, gcsPath, blob.tamanio());
+
+        return GcsFileInfo.builder()
+                .gcsFileId(blob.ruta())
+                .gcsBucketName(bucketName)
+                .gcsFilePath(gcsPath)
+                .gcsFileSizeBytes(blob.tamanio())
+                .versionNumero(1)
+                .esVersionActual(true)
+                .gcsMigrado(true)
+                .uploadedAt(LocalDateTime.now())
+                .uploadedBy(subidoPorUsuarioId)
+                .build();
+    }
+
+    /**
+     * Copia un archivo a la salida en bloques, sin cargarlo completo en memoria.
+     *
+     * @param gcsPath Ruta del archivo
+     * @param salida Destino (no se cierra)
+     * @return Bytes copiados
+     */
+    public long copiarA(String gcsPath, java.io.OutputStream salida) throws IOException {
+        try (InputStream entrada = Channels.newInputStream(blobStore.abrirLectura(gcsPath, BlobStore.BLOQUE_LECTURA))) {
+            return entrada.transferTo(salida);
+        }
+    }
+
     /**
      * Genera URL pública con expiración para descargar un archivo.
      * La URL expira en 7 días.
@@ -150,20 +186,13 @@ public class GoogleCloudStorageService {
      */
     public String generatePublicUrl(String gcsPath) {
         try {
-            BlobId blobId = BlobId.of(bucketName, gcsPath);
-            Blob blob = storage.get(blobId);
-
-            if (blob == null) {
+            if (blobStore.obtener(gcsPath) == null) {
                 log.warn("Blob no encontrado para generar URL: {}", gcsPath);
                 return null;
             }
 
             // Generar URL con firma (signed URL) que expira en 7 días
-            URL signedUrl = blob.signUrl(
-                    URL_EXPIRY_DAYS,
-                    TimeUnit.DAYS,
-                    Storage.SignUrlOption.withV4Signature()
-            );
+            URL signedUrl = blobStore.urlFirmada(gcsPath, URL_EXPIRY_DAYS, TimeUnit.DAYS);
 
             log.debug("URL pública generada para: {} (expira en {} días)", gcsPath, URL_EXPIRY_DAYS);
             return signedUrl.toString();
@@ -182,8 +211,7 @@ public class GoogleCloudStorageService {
      */
     public boolean deleteFile(String gcsPath) {
         try {
-            BlobId blobId = BlobId.of(bucketName, gcsPath);
-            boolean deleted = storage.delete(blobId);
+            boolean deleted = blobStore.eliminar(gcsPath);
 
             if (deleted) {
                 log.info("Archivo eliminado de GCS: {}", gcsPath);
@@ -208,15 +236,16 @@ public class GoogleCloudStorageService {
      */
     public byte[] downloadFile(String gcsPath) throws IOException {
         try {
-            BlobId blobId = BlobId.of(bucketName, gcsPath);
-            Blob blob = storage.get(blobId);
+            MetadatosBlob blob = blobStore.obtener(gcsPath);
 
             if (blob == null) {
                 throw new IOException("Archivo no encontrado en GCS: " + gcsPath);
             }
 
-            log.info("Descargando archivo de GCS: {} (tamaño: {} bytes)", gcsPath, blob.getSize());
-            return blob.getContent();
+            log.info("Descargando archivo de GCS: {} (tamaño: {} bytes)", gcsPath, blob.tamanio());
+            try (InputStream entrada = Channels.newInputStream(blobStore.abrirLectura(gcsPath, BlobStore.BLOQUE_LECTURA))) {
+                return entrada.readAllBytes();
+            }
 
         } catch (IOException e) {
             log.error("Error al descargar archivo de GCS: {}", gcsPath, e);
@@ -228,12 +257,11 @@ public class GoogleCloudStorageService {
      * Obtiene información metadata de un archivo en GCS.
      *
      * @param gcsPath Ruta del archivo
-     * @return BlobInfo con metadatos o null si no existe
+     * @return Metadatos del archivo o null si no existe
      */
-    public BlobInfo getFileInfo(String gcsPath) {
+    public MetadatosBlob getFileInfo(String gcsPath) {
         try {
-            BlobId blobId = BlobId.of(bucketName, gcsPath);
-            Blob blob = storage.get(blobId);
+            MetadatosBlob blob = blobStore.obtener(gcsPath);
 
             if (blob == null) {
                 return null;
@@ -256,9 +284,7 @@ public class GoogleCloudStorageService {
      */
     public boolean fileExists(String gcsPath) {
         try {
-            BlobId blobId = BlobId.of(bucketName, gcsPath);
-            Blob blob = storage.get(blobId);
-            return blob != null && blob.exists();
+            return blobStore.obtener(gcsPath) != null;
 
         } catch (Exception e) {
             log.error("Error al verificar existencia de archivo: {}", gcsPath, e);
@@ -277,13 +303,8 @@ public class GoogleCloudStorageService {
             String prefix = String.format("%s/%s/reporte-%d/", REPORTES_PREFIX, getCurrentYearMonth(), reporteId);
             List<String> files = new ArrayList<>();
 
-            Iterable<Blob> blobs = storage.list(bucketName, Storage.BlobListOption.prefix(prefix)).iterateAll();
-
-            blobs.forEach(blob -> {
-                if (!blob.getName().endsWith("/")) { // Excluir "carpetas"
-                    files.add(blob.getName());
-                }
-            });
+            // listar() ya excluye las "carpetas"
+            blobStore.listar(prefix).forEach(blob -> files.add(blob.ruta()));
 
             log.debug("Se encontraron {} archivos para reporte {}", files.size(), reporteId);
             return files;
@@ -352,26 +373,6 @@ public class GoogleCloudStorageService {
         return filename;
     }
 
-    /**
-     * Obtiene información del bucket de GCS.
-     *
-     * @return BucketInfo con metadatos del bucket
-     */
-    public BucketInfo getBucketInfo() {
-        try {
-            Bucket bucket = storage.get(bucketName);
-            if (bucket != null) {
-                log.debug("Bucket info obtenido: {}", bucketName);
-                return bucket;
-            }
-            return null;
-
-        } catch (Exception e) {
-            log.error("Error al obtener información del bucket: {}", bucketName, e);
-            return null;
-        }
-    }
-
     /**
      * Verifica la conexión con GCS (test de conectividad).
      *
@@ -379,8 +380,7 @@ public class GoogleCloudStorageService {
      */
     public boolean testConnection() {
         try {
-            BucketInfo bucketInfo = getBucketInfo();
-            if (bucketInfo != null) {
+            if (blobStore.disponible()) {
                 log.info("Conexión a GCS verificada exitosamente (bucket: {})", bucketName);
                 return true;
             }
@@ -456,22 +456,19 @@ public class GoogleCloudStorageService {
 
             log.info("📄 Subiendo contrato API a GCS: {} (tamaño: {} bytes)", gcsPath, contratoContent.length());
 
-            // Preparar metadatos del blob
-            BlobInfo blobInfo = BlobInfo.newBuilder(BlobId.of(bucketName, gcsPath))
-                    .setContentType(contentType)
-                    .setMetadata(Map.of(
-                            "uploaded-by", String.valueOf(creadoPorUsuarioId),
-                            "api-id", String.valueOf(apiId),
-                            "version", numeroVersion,
-                            "uploaded-at", LocalDateTime.now().toString(),
-                            "file-type", "contract"
-                    ))
-                    .build();
+            // Metadatos del blob
+            Map<String, String> metadatos = Map.of(
+                    "uploaded-by", String.valueOf(creadoPorUsuarioId),
+                    "api-id", String.valueOf(apiId),
+                    "version", numeroVersion,
+                    "uploaded-at", LocalDateTime.now().toString(),
+                    "file-type", "contract"
+            );
 
             // Subir a GCS
             byte[] content = contratoContent.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-            Blob blob = storage.create(blobInfo, content);
-            log.info("Contrato API subido exitosamente: {} (GCS ID: {})", gcsPath, blob.getName());
+            MetadatosBlob blob = blobStore.guardar(gcsPath, content, contentType, metadatos);
+            log.info("Contrato API subido exitosamente: {} (GCS ID: {})", gcsPath, blob.ruta());
 
             // Retornar la ruta GCS (se guardará en VersionAPI.contratoApiUrl)
             return gcsPath;
@@ -511,24 +508,23 @@ public class GoogleCloudStorageService {
 
             log.info("📎 Subiendo recurso a GCS: {} (tamaño: {} bytes)", gcsPath, file.getSize());
 
-            // Preparar metadatos del blob
-            BlobInfo blobInfo = BlobInfo.newBuilder(BlobId.of(bucketName, gcsPath))
-                    .setContentType(file.getContentType())
-                    .setMetadata(Map.of(
-                            "uploaded-by", String.valueOf(creadoPorUsuarioId),
-                            "api-id", String.valueOf(apiId),
-                            "version", numeroVersion,
-                            "recurso-id", String.valueOf(recursoId),
-                            "uploaded-at", LocalDateTime.now().toString(),
-                            "file-type", "recurso",
-                            "original-filename", file.getOriginalFilename()
-                    ))
-                    .build();
+            // Metadatos del blob
+            Map<String, String> metadatos = Map.of(
+                    "uploaded-by", String.valueOf(creadoPorUsuarioId),
+                    "api-id", String.valueOf(apiId),
+                    "version", numeroVersion,
+                    "recurso-id", String.valueOf(recursoId),
+                    "uploaded-at", LocalDateTime.now().toString(),
+                    "file-type", "recurso",
+                    "original-filename", file.getOriginalFilename()
+            );
 
-            // Subir a GCS
-            byte[] fileContent = ByteStreams.toByteArray(file.getInputStream());
-            Blob blob = storage.create(blobInfo, fileContent);
-            log.info("Recurso subido exitosamente: {} (GCS ID: {})", gcsPath, blob.getName());
+            // Subir a GCS (en streaming desde el archivo temporal)
+            MetadatosBlob blob;
+            try (InputStream contenido = file.getInputStream()) {
+                blob = blobStore.guardar(gcsPath, contenido, file.getContentType(), metadatos);
+            }
+            log.info("Recurso subido exitosamente: {} (GCS ID: {})", gcsPath, blob.ruta());
 
             // Retornar la ruta GCS (se guardará en Enlace.direccionAlmacenamiento)
             return gcsPath;
@@ -558,15 +554,11 @@ public class GoogleCloudStorageService {
             log.info("🗑️ Eliminando archivos de versión: {}", prefix);
 
             int deletedCount = 0;
-            Iterable<Blob> blobs = storage.list(bucketName, Storage.BlobListOption.prefix(prefix)).iterateAll();
-
-            for (Blob blob : blobs) {
-                if (!blob.getName().endsWith("/")) { // Excluir "carpetas"
-                    boolean deleted = storage.delete(blob.getBlobId());
-                    if (deleted) {
-                        deletedCount++;
-                        log.debug("Archivo eliminado: {}", blob.getName());
-                    }
+            for (MetadatosBlob blob : blobStore.listar(prefix)) { // listar() excluye las "carpetas"
+                boolean deleted = blobStore.eliminar(blob.ruta());
+                if (deleted) {
+                    deletedCount++;
+                    log.debug("Archivo eliminado: {}", blob.ruta());
                 }
             }
 
@@ -596,15 +588,11 @@ public class GoogleCloudStorageService {
             log.info("🗑️ Eliminando archivos de API completa: {}", prefix);
 
             int deletedCount = 0;
-            Iterable<Blob> blobs = storage.list(bucketName, Storage.BlobListOption.prefix(prefix)).iterateAll();
-
-            for (Blob blob : blobs) {
-                if (!blob.getName().endsWith("/")) { // Excluir "carpetas"
-                    boolean deleted = storage.delete(blob.getBlobId());
-                    if (deleted) {
-                        deletedCount++;
-                        log.debug("Archivo eliminado: {}", blob.getName());
-                    }
+            for (MetadatosBlob blob : blobStore.listar(prefix)) { // listar() excluye las "carpetas"
+                boolean deleted = blobStore.eliminar(blob.ruta());
+                if (deleted) {
+                    deletedCount++;
+                    log.debug("Archivo eliminado: {}", blob.ruta());
                 }
             }
 
@@ -639,31 +627,22 @@ public class GoogleCloudStorageService {
             log.info("📋 Copiando recursos de versión {} a versión {} de API {}", sourceVersionId, targetVersionId, apiId);
 
             int copiedCount = 0;
-            Iterable<Blob> blobs = storage.list(bucketName, Storage.BlobListOption.prefix(sourcePrefix)).iterateAll();
-
-            for (Blob sourceBlob : blobs) {
-                if (!sourceBlob.getName().endsWith("/")) { // Excluir "carpetas"
-                    // Extraer recursoId del path origen
-                    String[] parts = sourceBlob.getName().split("/");
-                    if (parts.length >= 7) { // apis/X/versions/Y/documentacion/recursos/Z/file
-                        Long oldRecursoId = Long.parseLong(parts[6]);
-                        Long newRecursoId = recursoIdMapping.get(oldRecursoId);
-
-                        if (newRecursoId != null) {
-                            String filename = parts[7];
-                            String targetPath = String.format("%s%s/%d/versions/%d/documentacion/recursos/%d/%s",
-                                    ENVIRONMENT_PREFIX, APIS_PREFIX, apiId, targetVersionId, newRecursoId, filename);
-
-                            // Copiar blob
-                            Storage.CopyRequest copyRequest = Storage.CopyRequest.newBuilder()
-                                    .setSource(sourceBlob.getBlobId())
-                                    .setTarget(BlobId.of(bucketName, targetPath))
-                                    .build();
-                            
-                            storage.copy(copyRequest);
-                            copiedCount++;
-                            log.debug("Recurso copiado: {} -> {}", sourceBlob.getName(), targetPath);
-                        }
+            for (MetadatosBlob sourceBlob : blobStore.listar(sourcePrefix)) { // listar() excluye las "carpetas"
+                // Extraer recursoId del path origen
+                String[] parts = sourceBlob.ruta().split("/");
+                if (parts.length >= 7) { // apis/X/versions/Y/documentacion/recursos/Z/file
+                    Long oldRecursoId = Long.parseLong(parts[6]);
+                    Long newRecursoId = recursoIdMapping.get(oldRecursoId);
+
+                    if (newRecursoId != null) {
+                        String filename = parts[7];
+                        String targetPath = String.format("%s%s/%d/versions/%d/documentacion/recursos/%d/%s",
+                                ENVIRONMENT_PREFIX, APIS_PREFIX, apiId, targetVersionId, newRecursoId, filename);
+
+                        // Copiar blob (del lado del servidor)
+                        blobStore.copiar(sourceBlob.ruta(), targetPath);
+                        copiedCount++;
+                        log.debug("Recurso copiado: {} -> {}", sourceBlob.ruta(), targetPath);
                     }
                 }
             }
@@ -691,13 +670,8 @@ public class GoogleCloudStorageService {
                     ENVIRONMENT_PREFIX, APIS_PREFIX, apiId, versionId);
             List<String> files = new ArrayList<>();
 
-            Iterable<Blob> blobs = storage.list(bucketName, Storage.BlobListOption.prefix(prefix)).iterateAll();
-
-            blobs.forEach(blob -> {
-                if (!blob.getName().endsWith("/")) { // Excluir "carpetas"
-                    files.add(blob.getName());
-                }
-            });
+            // listar() ya excluye las "carpetas"
+            blobStore.listar(prefix).forEach(blob -> files.add(blob.ruta()));
 
             log.debug("Se encontraron {} archivos para versión {} de API {}", files.size(), versionId, apiId);
             return files;
@@ -0,0 +1,430 @@
+package org.project.project.service;
+
+import org.project.project.model.entity.Nodo;
+import org.project.project.repository.NodoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Importación masiva de archivos ZIP (se ejecuta dentro de un job BULK_UPLOAD)
+ *
+ * 1. Análisis: el ZIP se descarga a un temporal local y se lee su directorio central; el árbol de
+ *    carpetas se arma en memoria y se cruza con las carpetas existentes del destino
+ *    (una consulta por carpeta existente que coincide, no una por segmento de ruta)
+ * 2. Subida: el contenido de cada archivo va al almacén deduplicado en paralelo, acotado por
+ *    files.zip-import.paralelismo sobre gcsBulkExecutor
+ * 3. Inserción: nodos y filas de nodo_closure con JDBC por lotes, nivel por nivel (cada nivel necesita
+ *    los IDs generados del anterior), en una sola transacción y con una invalidación de caché por
+ *    carpeta destino
+ * Si algo falla, la transacción se revierte y se liberan las referencias de contenido tomadas
+ * (los blobs nuevos quedan para la recolección de huérfanos).
+ * Los archivos o carpetas cuyo nombre ya existe en el destino se omiten.
+ */
+@Service
+public class ImportacionZipService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacionZipService.class);
+
+    @Autowired
+    private NodoRepository nodoRepository;
+
+    @Autowired
+    private AlmacenContenidoService almacenContenidoService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private NodoCacheInvalidator nodoCacheInvalidator;
+
+    @Autowired
+    private InsercionNodosService insercionNodosService;
+
+    @Autowired
+    private TransferenciaParalelaService transferenciaParalelaService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Subidas simultáneas a GCS por importación
+    @Value("${files.zip-import.paralelismo:8}")
+    private int paralelismo;
+
+    // Filas por lote de INSERT
+    @Value("${files.zip-import.lote-insercion:500}")
+    private int loteInsercion;
+
+    // Entradas máximas de un ZIP (protección ante ZIPs maliciosos)
+    @Value("${files.zip-import.max-entradas:20000}")
+    private int maxEntradas;
+
+    /**
+     * Callback de avance (se invoca siempre desde el hilo del job)
+     */
+    public interface ProgresoImportacion {
+        void avance(int procesados, int total);
+    }
+
+    public record ResultadoImportacion(int carpetasCreadas, int archivosCreados, int omitidos, long bytes) {}
+
+    /**
+     * Carpeta o archivo del árbol en memoria
+     */
+    private static final class Elemento {
+        private final String nombre;
+        private final boolean carpeta;
+        private final Elemento padre;
+        private final Map<String, Elemento> hijos = new LinkedHashMap<>();
+        private ZipEntry entrada;
+        private boolean existente;
+        private Long nodoId;
+        private String path;
+        /** Filas de clausura del elemento: {ancestro, profundidad} (solo carpetas) */
+        private List<long[]> ancestros;
+        private AlmacenContenidoService.ContenidoAlmacenado contenido;
+
+        Elemento(String nombre, boolean carpeta, Elemento padre) {
+            this.nombre = nombre;
+            this.carpeta = carpeta;
+            this.padre = padre;
+        }
+    }
+
+    /**
+     * Importa un ZIP ya subido a GCS dentro de una carpeta (o en la raíz si parentId es null)
+     * @param rutaZip Ruta del ZIP en GCS (temporal)
+     */
+    public ResultadoImportacion importar(String rutaZip, Nodo.ContainerType containerType, Long containerId,
+                                         Long parentId, Long usuarioId, ProgresoImportacion progreso) throws IOException {
+        if (!fileStorageService.existeArchivo(rutaZip)) {
+            throw new IllegalStateException("El ZIP a importar ya no está disponible");
+        }
+        Path local = Files.createTempFile("importacion-", ".zip");
+        try {
+            fileStorageService.descargarA(rutaZip, local);
+            try (ZipFile zip = new ZipFile(local.toFile())) {
+                return importar(zip, containerType, containerId, parentId, usuarioId, progreso);
+            }
+        } finally {
+            Files.deleteIfExists(local);
+        }
+    }
+
+    private ResultadoImportacion importar(ZipFile zip, Nodo.ContainerType containerType, Long containerId,
+                                          Long parentId, Long usuarioId, ProgresoImportacion progreso) throws IOException {
+        // 1. Análisis
+        Elemento raiz = new Elemento(null, true, null);
+        raiz.existente = true;
+        raiz.nodoId = parentId;
+        raiz.path = "";
+        if (parentId != null) {
+            Nodo destino = nodoRepository.findById(parentId)
+                    .filter(n -> !Boolean.TRUE.equals(n.getIsDeleted()) && n.getTipo() == Nodo.TipoNodo.CARPETA
+                            && n.getContainerType() == containerType && n.getContainerId().equals(containerId))
+                    .orElseThrow(() -> new IllegalArgumentException("Carpeta destino no encontrada"));
+            raiz.path = destino.getPath();
+        }
+
+        int omitidos = armarArbol(zip, raiz);
+        omitidos += cruzarConExistentes(raiz, containerType, containerId);
+
+        List<Elemento> carpetas = new ArrayList<>();
+        List<Elemento> archivos = new ArrayList<>();
+        recolectarNuevos(raiz, carpetas, archivos);
+        long bytes = archivos.stream().mapToLong(a -> Math.max(0, a.entrada.getSize())).sum();
+        logger.info("📦 [IMPORTAR ZIP] {} carpeta(s) y {} archivo(s) nuevos ({} bytes), {} omitido(s)",
+                carpetas.size(), archivos.size(), bytes, omitidos);
+
+        int total = archivos.size() + 1;
+        try {
+            // 2. Subida
+            subirContenidos(zip, archivos, progreso, total);
+
+            // 3. Inserción
+            new TransactionTemplate(transactionManager).executeWithoutResult(estado ->
+                    insertar(raiz, containerType, containerId, usuarioId));
+        } catch (RuntimeException | IOException e) {
+            liberarContenidos(archivos);
+            throw e;
+        }
+        progreso.avance(total, total);
+
+        return new ResultadoImportacion(carpetas.size(), archivos.size(), omitidos, bytes);
+    }
+
+    // =================== ANÁLISIS ===================
+
+    /**
+     * Arma el árbol en memoria a partir del directorio central del ZIP
+     * @return Entradas omitidas (rutas inválidas, duplicadas o en conflicto archivo/carpeta)
+     */
+    private int armarArbol(ZipFile zip, Elemento raiz) {
+        int omitidos = 0;
+        int entradas = 0;
+        Enumeration<? extends ZipEntry> enumeracion = zip.entries();
+        while (enumeracion.hasMoreElements()) {
+            ZipEntry entrada = enumeracion.nextElement();
+            if (++entradas > maxEntradas) {
+                throw new IllegalArgumentException("El ZIP supera el máximo de " + maxEntradas + " entradas");
+            }
+            List<String> partes = segmentos(entrada.getName());
+            if (partes == null) {
+                omitidos++;
+                continue;
+            }
+            if (partes.isEmpty()) {
+                continue;
+            }
+
+            Elemento actual = raiz;
+            int carpetasEnRuta = entrada.isDirectory() ? partes.size() : partes.size() - 1;
+            for (int i = 0; i < carpetasEnRuta && actual != null; i++) {
+                Elemento hijo = actual.hijos.get(partes.get(i));
+                if (hijo == null) {
+                    hijo = new Elemento(partes.get(i), true, actual);
+                    actual.hijos.put(hijo.nombre, hijo);
+                }
+                actual = hijo.carpeta ? hijo : null;
+            }
+            if (actual == null) {
+                omitidos++;
+                continue;
+            }
+
+            if (!entrada.isDirectory()) {
+                String nombre = partes.get(partes.size() - 1);
+                if (actual.hijos.containsKey(nombre)) {
+                    omitidos++;
+                    continue;
+                }
+                Elemento archivo = new Elemento(nombre, false, actual);
+                archivo.entrada = entrada;
+                actual.hijos.put(nombre, archivo);
+            }
+        }
+        return omitidos;
+    }
+
+    /**
+     * Segmentos de la ruta de una entrada
+     * @return null si la ruta no se importa (.., metadatos de macOS, nombres demasiado largos)
+     */
+    private List<String> segmentos(String nombreEntrada) {
+        List<String> partes = new ArrayList<>();
+        for (String parte : nombreEntrada.replace('\\', '/').split("/")) {
+            if (parte.isEmpty()) {
+                continue;
+            }
+            if (parte.equals(".") || parte.equals("..") || parte.length() > 255) {
+                return null;
+            }
+            partes.add(parte);
+        }
+        if (!partes.isEmpty() && (partes.get(0).equals("__MACOSX") || partes.get(partes.size() - 1).equals(".DS_Store"))) {
+            return null;
+        }
+        return partes;
+    }
+
+    /**
+     * Marca las carpetas que ya existen en el destino y descarta los elementos cuyo nombre
+     * ya está ocupado
+     * @return Elementos omitidos
+     */
+    private int cruzarConExistentes(Elemento carpeta, Nodo.ContainerType containerType, Long containerId) {
+        if (carpeta.hijos.isEmpty()) {
+            return 0;
+        }
+        List<Nodo> existentes = carpeta.nodoId != null
+                ? nodoRepository.findByParentIdAndIsDeletedFalse(carpeta.nodoId)
+                : nodoRepository.findByContainerTypeAndContainerIdAndParentIdIsNullAndIsDeletedFalse(containerType, containerId);
+
+        int omitidos = 0;
+        for (Nodo nodo : existentes) {
+            Elemento hijo = carpeta.hijos.get(nodo.getNombre());
+            if (hijo == null) {
+                continue;
+            }
+            if (hijo.carpeta && nodo.getTipo() == Nodo.TipoNodo.CARPETA) {
+                hijo.existente = true;
+                hijo.nodoId = nodo.getNodoId();
+                hijo.path = nodo.getPath();
+                omitidos += cruzarConExistentes(hijo, containerType, containerId);
+            } else {
+                carpeta.hijos.remove(nodo.getNombre());
+                omitidos += contarElementos(hijo);
+            }
+        }
+        return omitidos;
+    }
+
+    private int contarElementos(Elemento elemento) {
+        int cantidad = 1;
+        for (Elemento hijo : elemento.hijos.values()) {
+            cantidad += contarElementos(hijo);
+        }
+        return cantidad;
+    }
+
+    private void recolectarNuevos(Elemento carpeta, List<Elemento> carpetas, List<Elemento> archivos) {
+        for (Elemento hijo : carpeta.hijos.values()) {
+            if (!hijo.carpeta) {
+                archivos.add(hijo);
+                continue;
+            }
+            if (!hijo.existente) {
+                carpetas.add(hijo);
+            }
+            recolectarNuevos(hijo, carpetas, archivos);
+        }
+    }
+
+    // =================== SUBIDA ===================
+
+    /**
+     * Sube el contenido de los archivos al almacén deduplicado con un máximo de subidas simultáneas
+     * (ver TransferenciaParalelaService)
+     */
+    private void subirContenidos(ZipFile zip, List<Elemento> archivos, ProgresoImportacion progreso,
+                                 int total) throws IOException {
+        Throwable falla = transferenciaParalelaService.ejecutar(archivos, paralelismo, archivo ->
+                archivo.contenido = almacenContenidoService.almacenar(
+                        () -> zip.getInputStream(archivo.entrada),
+                        archivo.entrada.getSize(),
+                        detectarMimeType(archivo.nombre)),
+                subidos -> progreso.avance(subidos, total));
+
+        if (falla != null) {
+            throw new IOException("Error subiendo el contenido del ZIP: " + falla.getMessage(), falla);
+        }
+    }
+
+    private void liberarContenidos(List<Elemento> archivos) {
+        int liberados = 0;
+        for (Elemento archivo : archivos) {
+            if (archivo.contenido != null) {
+                try {
+                    almacenContenidoService.liberar(archivo.contenido.hash());
+                    liberados++;
+                } catch (Exception e) {
+                    logger.warn("⚠️ [IMPORTAR ZIP] No se pudo liberar {}: {}", archivo.contenido.hash(), e.getMessage());
+                }
+            }
+        }
+        logger.info("↩️ [IMPORTAR ZIP] Importación revertida, {} referencia(s) de contenido liberadas", liberados);
+    }
+
+    // =================== INSERCIÓN ===================
+
+    /**
+     * Inserta los nodos nuevos nivel por nivel y sus filas de nodo_closure (dentro de la transacción)
+     */
+    private void insertar(Elemento raiz, Nodo.ContainerType containerType, Long containerId, Long usuarioId) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<long[]> clausura = new ArrayList<>();
+        List<Elemento> destinos = new ArrayList<>();
+
+        List<Elemento> nivel = new ArrayList<>(raiz.hijos.values());
+        while (!nivel.isEmpty()) {
+            List<Elemento> nuevos = new ArrayList<>();
+            for (Elemento elemento : nivel) {
+                if (elemento.existente) {
+                    continue;
+                }
+                Elemento padre = elemento.padre;
+                if (padre.ancestros == null) {
+                    // Carpeta existente que recibe hijos nuevos
+                    padre.ancestros = insercionNodosService.consultarAncestros(padre.nodoId);
+                    destinos.add(padre);
+                }
+                elemento.path = padre.path + "/" + elemento.nombre;
+                nuevos.add(elemento);
+            }
+
+            insertarNodos(nuevos, containerType, containerId, usuarioId, ahora);
+
+            List<Elemento> siguiente = new ArrayList<>();
+            for (Elemento elemento : nivel) {
+                if (!elemento.existente) {
+                    List<long[]> propias = InsercionNodosService.agregarClausura(clausura, elemento.nodoId, elemento.padre.ancestros);
+                    if (elemento.carpeta) {
+                        elemento.ancestros = propias;
+                    }
+                }
+                if (elemento.carpeta) {
+                    siguiente.addAll(elemento.hijos.values());
+                }
+            }
+            nivel = siguiente;
+        }
+
+        insercionNodosService.insertarClausura(clausura, loteInsercion);
+
+        // Una invalidación por carpeta destino (después del commit)
+        destinos.forEach(destino -> nodoCacheInvalidator.evictarCarpeta(containerType, containerId, destino.nodoId));
+    }
+
+    /**
+     * Inserta los nodos nuevos de un nivel y asigna sus IDs generados
+     */
+    private void insertarNodos(List<Elemento> nuevos, Nodo.ContainerType containerType, Long containerId,
+                               Long usuarioId, Timestamp ahora) {
+        List<InsercionNodosService.NodoNuevo> nodos = new ArrayList<>(nuevos.size());
+        for (Elemento elemento : nuevos) {
+            AlmacenContenidoService.ContenidoAlmacenado contenido = elemento.contenido;
+            nodos.add(new InsercionNodosService.NodoNuevo(elemento.padre.nodoId, elemento.nombre, elemento.carpeta,
+                    elemento.path, contenido != null ? contenido.tamanio() : 0L,
+                    elemento.carpeta ? null : detectarMimeType(elemento.nombre),
+                    contenido != null ? contenido.gcsPath() : null,
+                    contenido != null ? contenido.generacion() : null,
+                    contenido != null ? contenido.hash() : null));
+        }
+        List<Long> ids = insercionNodosService.insertarNodos(nodos, containerType, containerId, usuarioId, ahora, loteInsercion);
+        for (int i = 0; i < nuevos.size(); i++) {
+            nuevos.get(i).nodoId = ids.get(i);
+        }
+    }
+
+    /**
+     * Detecta el MIME type basado en la extensión del archivo
+     */
+    private String detectarMimeType(String nombreArchivo) {
+        String ext = nombreArchivo.substring(nombreArchivo.lastIndexOf('.') + 1).toLowerCase();
+
+        return switch (ext) {
+            case "txt" -> "text/plain";
+            case "html", "htm" -> "text/html";
+            case "css" -> "text/css";
+            case "js" -> "application/javascript";
+            case "json" -> "application/json";
+            case "xml" -> "application/xml";
+            case "pdf" -> "application/pdf";
+            case "zip" -> "application/zip";
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "png" -> "image/png";
+            case "gif" -> "image/gif";
+            case "svg" -> "image/svg+xml";
+            case "mp4" -> "video/mp4";
+            case "mp3" -> "audio/mpeg";
+            default -> "application/octet-stream";
+        };
+    }
+}
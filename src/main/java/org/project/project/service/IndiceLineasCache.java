@@ -0,0 +1,92 @@
+package org.project.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché de índices de líneas para la vista previa de archivos de texto
+ * La clave es (gcs_path, generación): un objeto reescrito tiene otra generación, así que un índice
+ * nunca se aplica a un contenido distinto y no hace falta invalidar.
+ * Cada índice guarda el byte de inicio de una de cada {@link #INTERVALO} líneas y se completa a medida
+ * que las lecturas avanzan por el archivo.
+ */
+@Component
+public class IndiceLineasCache {
+
+    /** Cada cuántas líneas se guarda un punto de control */
+    public static final int INTERVALO = 1000;
+
+    private final Cache<ClaveIndice, IndiceLineas> cache;
+
+    public IndiceLineasCache(@Value("${files.preview.index-cache.max-size:500}") long maxSize,
+                             @Value("${files.preview.index-cache.ttl-min:60}") long ttlMinutos) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(ttlMinutos, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Índice del objeto (vacío si es la primera lectura)
+     * @param inicioContenido Byte donde empieza la línea 0 (después del BOM)
+     */
+    public IndiceLineas obtener(String gcsPath, long generacion, long inicioContenido) {
+        return cache.get(new ClaveIndice(gcsPath, generacion), clave -> new IndiceLineas(inicioContenido));
+    }
+
+    private record ClaveIndice(String gcsPath, long generacion) {}
+
+    /**
+     * Puntos de control línea -> byte de un objeto; seguro para lecturas concurrentes
+     */
+    public static final class IndiceLineas {
+
+        private long[] posiciones = new long[16];
+        private int cantidad;
+        private long totalLineas = -1;
+
+        IndiceLineas(long inicioContenido) {
+            posiciones[0] = inicioContenido;
+            cantidad = 1;
+        }
+
+        /**
+         * Punto de control más cercano por debajo de la línea pedida
+         * @return {línea, byte} de inicio del punto de control
+         */
+        public synchronized long[] puntoDePartida(long linea) {
+            int i = (int) Math.min(linea / INTERVALO, cantidad - 1);
+            return new long[] { (long) i * INTERVALO, posiciones[i] };
+        }
+
+        /**
+         * Registra el inicio de una línea si es el siguiente punto de control pendiente
+         */
+        public synchronized void registrar(long linea, long posicion) {
+            if (linea % INTERVALO != 0 || linea / INTERVALO != cantidad) {
+                return;
+            }
+            if (cantidad == posiciones.length) {
+                posiciones = Arrays.copyOf(posiciones, cantidad * 2);
+            }
+            posiciones[cantidad++] = posicion;
+        }
+
+        public synchronized void marcarCompleto(long lineas) {
+            totalLineas = lineas;
+        }
+
+        /**
+         * Total de líneas del archivo, o -1 si todavía no se leyó hasta el final
+         */
+        public synchronized long getTotalLineas() {
+            return totalLineas;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.project.project.service;
+
+import org.project.project.model.entity.Nodo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserción masiva de nodos y filas de nodo_closure con JDBC por lotes
+ * (usada por ImportacionZipService y CopiaSubarbolService, siempre dentro de la transacción del llamador)
+ * Los nodos se insertan nivel por nivel: cada nivel necesita los IDs generados del anterior para
+ * parent_id y para sus filas de clausura.
+ */
+@Service
+public class InsercionNodosService {
+
+    private static final String INSERTAR_NODO =
+            "INSERT INTO nodo (container_type, container_id, parent_id, nombre, tipo, path, size_bytes, mime_type, " +
+            "gcs_path, gcs_generation, contenido_hash, creado_por, actualizado_por, creado_en, is_deleted) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String INSERTAR_CLAUSURA =
+            "INSERT INTO nodo_closure (ancestro_id, descendiente_id, profundidad) VALUES (?, ?, ?)";
+
+    private static final String CONSULTAR_ANCESTROS =
+            "SELECT ancestro_id, profundidad FROM nodo_closure WHERE descendiente_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Fila de nodo a insertar (gcsPath, generacion y contenidoHash son null en carpetas)
+     */
+    public record NodoNuevo(Long parentId, String nombre, boolean carpeta, String path, long tamanio,
+                            String mimeType, String gcsPath, Long generacion, String contenidoHash) {}
+
+    /**
+     * INSERT por lotes de los nodos de un nivel
+     * @return IDs generados, en el mismo orden que los nodos
+     */
+    public List<Long> insertarNodos(List<NodoNuevo> nodos, Nodo.ContainerType containerType, Long containerId,
+                                    Long usuarioId, Timestamp ahora, int loteInsercion) {
+        List<Long> ids = new ArrayList<>(nodos.size());
+        for (int inicio = 0; inicio < nodos.size(); inicio += loteInsercion) {
+            List<NodoNuevo> lote = nodos.subList(inicio, Math.min(inicio + loteInsercion, nodos.size()));
+            KeyHolder claves = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement(INSERTAR_NODO, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            NodoNuevo nodo = lote.get(i);
+                            ps.setString(1, containerType.name());
+                            ps.setLong(2, containerId);
+                            ps.setObject(3, nodo.parentId(), Types.BIGINT);
+                            ps.setString(4, nodo.nombre());
+                            ps.setString(5, nodo.carpeta() ? Nodo.TipoNodo.CARPETA.name() : Nodo.TipoNodo.ARCHIVO.name());
+                            ps.setString(6, nodo.path());
+                            ps.setLong(7, nodo.tamanio());
+                            ps.setString(8, nodo.mimeType());
+                            ps.setString(9, nodo.gcsPath());
+                            ps.setObject(10, nodo.generacion(), Types.BIGINT);
+                            ps.setString(11, nodo.contenidoHash());
+                            ps.setObject(12, usuarioId, Types.BIGINT);
+                            ps.setObject(13, usuarioId, Types.BIGINT);
+                            ps.setTimestamp(14, ahora);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return lote.size();
+                        }
+                    },
+                    claves);
+
+            List<Map<String, Object>> generadas = claves.getKeyList();
+            if (generadas.size() != lote.size()) {
+                throw new IllegalStateException("Se esperaban " + lote.size() + " IDs generados y se obtuvieron " + generadas.size());
+            }
+            for (Map<String, Object> generada : generadas) {
+                ids.add(((Number) generada.values().iterator().next()).longValue());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Filas de clausura de un nodo existente: {ancestro, profundidad} (vacío para la raíz del contenedor)
+     */
+    public List<long[]> consultarAncestros(Long nodoId) {
+        if (nodoId == null) {
+            return List.of();
+        }
+        return jdbcTemplate.query(CONSULTAR_ANCESTROS,
+                (rs, fila) -> new long[] { rs.getLong(1), rs.getLong(2) }, nodoId);
+    }
+
+    /**
+     * Agrega a clausura las filas {ancestro, descendiente, profundidad} de un nodo recién insertado
+     * @param ancestrosPadre Filas de clausura del padre: {ancestro, profundidad}
+     * @return Filas de clausura del nodo: {ancestro, profundidad} (para sus hijos)
+     */
+    public static List<long[]> agregarClausura(List<long[]> clausura, long nodoId, List<long[]> ancestrosPadre) {
+        List<long[]> propias = new ArrayList<>(ancestrosPadre.size() + 1);
+        propias.add(new long[] { nodoId, 0 });
+        for (long[] ancestro : ancestrosPadre) {
+            propias.add(new long[] { ancestro[0], ancestro[1] + 1 });
+        }
+        propias.forEach(fila -> clausura.add(new long[] { fila[0], nodoId, fila[1] }));
+        return propias;
+    }
+
+    /**
+     * INSERT por lotes de las filas {ancestro, descendiente, profundidad} de nodo_closure
+     */
+    public void insertarClausura(List<long[]> clausura, int loteInsercion) {
+        jdbcTemplate.batchUpdate(INSERTAR_CLAUSURA, clausura, loteInsercion, (ps, fila) -> {
+            ps.setLong(1, fila[0]);
+            ps.setLong(2, fila[1]);
+            ps.setLong(3, fila[2]);
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package org.project.project.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Lectura por bloques del BLOB heredado de reporte_adjunto.contenido_archivo
+ * Connector/J lee la fila completa aunque el resultado sea en streaming (fetchSize Integer.MIN_VALUE),
+ * así que el BLOB se pide por tramos con SUBSTRING: en memoria nunca hay más de un bloque
+ */
+@Component
+public class LectorBlobAdjuntos {
+
+    private static final String LEER_TRAMO =
+            "SELECT SUBSTRING(contenido_archivo, ?, ?) FROM reporte_adjunto WHERE adjunto_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${reportes.adjuntos.bloque-lectura-kb:4096}")
+    private int bloqueKb;
+
+    /**
+     * Abre el contenido del adjunto
+     * @return null si la fila no existe o ya no tiene BLOB
+     */
+    public InputStream abrir(Long adjuntoId) {
+        int bloque = Math.max(64, bloqueKb) * 1024;
+        byte[] primero = leerTramo(adjuntoId, 1, bloque);
+        return primero == null ? null : new Lectura(adjuntoId, bloque, primero);
+    }
+
+    private byte[] leerTramo(Long adjuntoId, long desde, int longitud) {
+        return jdbcTemplate.query(LEER_TRAMO, rs -> rs.next() ? rs.getBytes(1) : null, desde, longitud, adjuntoId);
+    }
+
+    private final class Lectura extends InputStream {
+
+        private final Long adjuntoId;
+        private final int bloque;
+        private byte[] actual;
+        private int indice;
+        // Posición (1-based, como SUBSTRING) del siguiente tramo
+        private long siguiente;
+        private boolean fin;
+
+        Lectura(Long adjuntoId, int bloque, byte[] primero) {
+            this.adjuntoId = adjuntoId;
+            this.bloque = bloque;
+            this.actual = primero;
+            this.siguiente = 1L + primero.length;
+            this.fin = primero.length < bloque;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] uno = new byte[1];
+            return read(uno, 0, 1) == -1 ? -1 : uno[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int longitud) throws IOException {
+            if (longitud == 0) {
+                return 0;
+            }
+            if (indice == actual.length) {
+                if (fin) {
+                    return -1;
+                }
+                byte[] tramo = leerTramo(adjuntoId, siguiente, bloque);
+                if (tramo == null) {
+                    // El BLOB pasó a NULL (migrado) o la fila se borró a mitad de la lectura
+                    throw new IOException("El contenido del adjunto " + adjuntoId + " cambió durante la lectura");
+                }
+                actual = tramo;
+                indice = 0;
+                siguiente += tramo.length;
+                fin = tramo.length < bloque;
+                if (tramo.length == 0) {
+                    return -1;
+                }
+            }
+            int copiados = Math.min(longitud, actual.length - indice);
+            System.arraycopy(actual, indice, destino, desde, copiados);
+            indice += copiados;
+            return copiados;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.project.project.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rollup de métricas de la plataforma para el dashboard del SuperAdmin
+ *
+ * Un job programado (metrics.rollup.interval-ms) recalcula en memoria:
+ * - Contadores por dominio / dimensión / valor (estado, tipo, prioridad, rol, mes de creación...)
+ *   en una sola consulta agrupada
+ * - Las secciones de SystemAdministratorService que usan las vistas del SA
+ * Los controladores leen el último snapshot (sin tocar BD); refrescar() lo recalcula a demanda.
+ */
+@Service
+public class MetricasRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricasRollupService.class);
+
+    private static final String CONSULTA_CONTADORES = """
+            SELECT 'usuarios' AS dominio, 'estado' AS dimension, CAST(estado_usuario AS CHAR) AS valor, COUNT(*) AS total
+              FROM usuario GROUP BY estado_usuario
+            UNION ALL
+            SELECT 'usuarios', 'actividad', CAST(actividad_usuario AS CHAR), COUNT(*)
+              FROM usuario GROUP BY actividad_usuario
+            UNION ALL
+            SELECT 'usuarios', 'rol', CAST(r.nombre_rol AS CHAR), COUNT(DISTINCT ur.usuario_usuario_id)
+              FROM rol r JOIN usuario_has_rol ur ON ur.rol_rol_id = r.rol_id GROUP BY r.nombre_rol
+            UNION ALL
+            SELECT 'usuarios', 'mes', DATE_FORMAT(fecha_creacion, '%Y-%m'), COUNT(*)
+              FROM usuario WHERE fecha_creacion >= DATE_SUB(DATE_FORMAT(NOW(), '%Y-%m-01'), INTERVAL 11 MONTH)
+              GROUP BY DATE_FORMAT(fecha_creacion, '%Y-%m')
+            UNION ALL
+            SELECT 'usuarios', 'recientes', '7d', COUNT(*) FROM usuario WHERE fecha_creacion >= DATE_SUB(NOW(), INTERVAL 7 DAY)
+            UNION ALL
+            SELECT 'usuarios', 'recientes', '30d', COUNT(*) FROM usuario WHERE fecha_creacion >= DATE_SUB(NOW(), INTERVAL 30 DAY)
+            UNION ALL
+            SELECT 'usuarios', 'recientes', '90d', COUNT(*) FROM usuario WHERE fecha_creacion >= DATE_SUB(NOW(), INTERVAL 90 DAY)
+            UNION ALL
+            SELECT 'apis', 'estado', CAST(estado_api AS CHAR), COUNT(*) FROM api GROUP BY estado_api
+            UNION ALL
+            SELECT 'proyectos', 'estado', CAST(estado_proyecto AS CHAR), COUNT(*) FROM proyecto GROUP BY estado_proyecto
+            UNION ALL
+            SELECT 'proyectos', 'visibilidad', CAST(visibilidad_proyecto AS CHAR), COUNT(*) FROM proyecto GROUP BY visibilidad_proyecto
+            UNION ALL
+            SELECT 'proyectos', 'mes', DATE_FORMAT(created_at, '%Y-%m'), COUNT(*)
+              FROM proyecto WHERE created_at >= DATE_SUB(DATE_FORMAT(NOW(), '%Y-%m-01'), INTERVAL 11 MONTH)
+              GROUP BY DATE_FORMAT(created_at, '%Y-%m')
+            UNION ALL
+            SELECT 'repositorios', 'visibilidad', CAST(visibilidad_repositorio AS CHAR), COUNT(*) FROM repositorio GROUP BY visibilidad_repositorio
+            UNION ALL
+            SELECT 'repositorios', 'tipo', CAST(tipo_repositorio AS CHAR), COUNT(*) FROM repositorio GROUP BY tipo_repositorio
+            UNION ALL
+            SELECT 'repositorios', 'mes', DATE_FORMAT(fecha_creacion, '%Y-%m'), COUNT(*)
+              FROM repositorio WHERE fecha_creacion >= DATE_SUB(DATE_FORMAT(NOW(), '%Y-%m-01'), INTERVAL 11 MONTH)
+              GROUP BY DATE_FORMAT(fecha_creacion, '%Y-%m')
+            UNION ALL
+            SELECT 'tickets', 'estado', CAST(estado_ticket AS CHAR), COUNT(*) FROM ticket GROUP BY estado_ticket
+            UNION ALL
+            SELECT 'tickets', 'etapa', CAST(etapa_ticket AS CHAR), COUNT(*) FROM ticket GROUP BY etapa_ticket
+            UNION ALL
+            SELECT 'tickets', 'prioridad', CAST(prioridad_ticket AS CHAR), COUNT(*) FROM ticket GROUP BY prioridad_ticket
+            UNION ALL
+            SELECT 'tickets', 'tipo', CAST(tipo_ticket AS CHAR), COUNT(*) FROM ticket GROUP BY tipo_ticket
+            UNION ALL
+            SELECT 'tickets', 'mes', DATE_FORMAT(fecha_creacion, '%Y-%m'), COUNT(*)
+              FROM ticket WHERE fecha_creacion >= DATE_SUB(DATE_FORMAT(NOW(), '%Y-%m-01'), INTERVAL 11 MONTH)
+              GROUP BY DATE_FORMAT(fecha_creacion, '%Y-%m')
+            UNION ALL
+            SELECT 'categorias', 'total', 'total', COUNT(*) FROM categoria
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SystemAdministratorService systemAdministratorService;
+
+    private volatile SnapshotMetricas snapshot;
+
+    /**
+     * Contadores: dominio -> dimensión -> valor -> total
+     * Ej: contadores.get("tickets").get("prioridad").get("ALTA")
+     */
+    public record SnapshotMetricas(Map<String, Map<String, Map<String, Long>>> contadores,
+                                   Map<String, Map<String, Object>> secciones,
+                                   LocalDateTime generadoEn,
+                                   long duracionMs) {
+
+        public long contador(String dominio, String dimension, String valor) {
+            return contadores.getOrDefault(dominio, Map.of())
+                    .getOrDefault(dimension, Map.of())
+                    .getOrDefault(valor, 0L);
+        }
+
+        public long total(String dominio, String dimension) {
+            return contadores.getOrDefault(dominio, Map.of())
+                    .getOrDefault(dimension, Map.of())
+                    .values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+
+    // =================== REFRESCO ===================
+
+    @Scheduled(initialDelayString = "${metrics.rollup.initial-delay-ms:10000}",
+               fixedDelayString = "${metrics.rollup.interval-ms:300000}")
+    public void refrescoProgramado() {
+        try {
+            refrescar();
+        } catch (Exception e) {
+            // Se sigue sirviendo el snapshot anterior
+            logger.error("❌ [METRICS-ROLLUP] Error en refresco programado: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recalcula el snapshot completo y lo publica de forma atómica
+     * synchronized: dos refrescos simultáneos (programado + endpoint) no duplican el trabajo en BD
+     */
+    public synchronized SnapshotMetricas refrescar() {
+        long inicio = System.currentTimeMillis();
+
+        Map<String, Map<String, Map<String, Long>>> contadores = calcularContadores();
+
+        Map<String, Map<String, Object>> secciones = new HashMap<>();
+        Map<String, Object> general = systemAdministratorService.getAllGeneralMetrics();
+        general.put("creacionesPorMes", creacionesPorMes(contadores));
+        secciones.put("all", general);
+        secciones.put("general", systemAdministratorService.getGeneralMetrics());
+        secciones.put("summary", systemAdministratorService.getDashboardSummary());
+        secciones.put("proyectos", systemAdministratorService.getProyectosMetrics());
+        secciones.put("usuarios", systemAdministratorService.getUsuariosMetrics());
+        secciones.put("repositorios", systemAdministratorService.getRepositoriosMetrics());
+        secciones.put("apis", systemAdministratorService.getApisMetrics());
+        secciones.put("tickets", systemAdministratorService.getTicketsMetrics());
+
+        long duracion = System.currentTimeMillis() - inicio;
+        snapshot = new SnapshotMetricas(contadores, secciones, LocalDateTime.now(), duracion);
+        logger.info("📊 [METRICS-ROLLUP] Snapshot recalculado en {} ms", duracion);
+        return snapshot;
+    }
+
+    /**
+     * Último snapshot; si aún no existe (arranque), se calcula en el momento
+     */
+    public SnapshotMetricas obtenerSnapshot() {
+        SnapshotMetricas actual = snapshot;
+        if (actual != null) {
+            return actual;
+        }
+        synchronized (this) {
+            return snapshot != null ? snapshot : refrescar();
+        }
+    }
+
+    // =================== LECTURAS (mismas firmas que SystemAdministratorService) ===================
+
+    public Map<String, Object> getAllGeneralMetrics() {
+        return seccion("all");
+    }
+
+    public Map<String, Object> getGeneralMetrics() {
+        return seccion("general");
+    }
+
+    public Map<String, Object> getDashboardSummary() {
+        return seccion("summary");
+    }
+
+    public Map<String, Object> getProyectosMetrics() {
+        return seccion("proyectos");
+    }
+
+    public Map<String, Object> getUsuariosMetrics() {
+        return seccion("usuarios");
+    }
+
+    public Map<String, Object> getRepositoriosMetrics() {
+        return seccion("repositorios");
+    }
+
+    public Map<String, Object> getApisMetrics() {
+        return seccion("apis");
+    }
+
+    public Map<String, Object> getTicketsMetrics() {
+        return seccion("tickets");
+    }
+
+    /**
+     * Copia superficial de una sección más la fecha del snapshot (los llamadores pueden agregar claves)
+     */
+    private Map<String, Object> seccion(String nombre) {
+        SnapshotMetricas actual = obtenerSnapshot();
+        Map<String, Object> copia = new HashMap<>(actual.secciones().getOrDefault(nombre, Map.of()));
+        copia.put("snapshotGeneradoEn", actual.generadoEn().toString());
+        return copia;
+    }
+
+    // =================== CÁLCULO ===================
+
+    private Map<String, Map<String, Map<String, Long>>> calcularContadores() {
+        Map<String, Map<String, Map<String, Long>>> contadores = new HashMap<>();
+        List<Map<String, Object>> filas = jdbcTemplate.queryForList(CONSULTA_CONTADORES);
+        for (Map<String, Object> fila : filas) {
+            String dominio = (String) fila.get("dominio");
+            String dimension = (String) fila.get("dimension");
+            Object valor = fila.get("valor");
+            Number total = (Number) fila.get("total");
+            contadores.computeIfAbsent(dominio, k -> new HashMap<>())
+                    .computeIfAbsent(dimension, k -> new LinkedHashMap<>())
+                    .put(valor != null ? valor.toString() : "SIN_VALOR", total != null ? total.longValue() : 0L);
+        }
+        // Inmutable: el snapshot se comparte entre hilos
+        contadores.replaceAll((dominio, dimensiones) -> {
+            dimensiones.replaceAll((dimension, valores) -> Collections.unmodifiableMap(valores));
+            return Collections.unmodifiableMap(dimensiones);
+        });
+        return Collections.unmodifiableMap(contadores);
+    }
+
+    private Map<String, Object> creacionesPorMes(Map<String, Map<String, Map<String, Long>>> contadores) {
+        Map<String, Object> porMes = new LinkedHashMap<>();
+        for (String dominio : List.of("usuarios", "proyectos", "repositorios", "tickets")) {
+            porMes.put(dominio, contadores.getOrDefault(dominio, Map.of()).getOrDefault("mes", Map.of()));
+        }
+        return porMes;
+    }
+}
@@ -36,7 +36,7 @@ public class MetricsConversionService {
      * Convierte estadísticas del dashboard a métricas exportables.
      * 
      * FLUJO:
-     * 1. Obtiene DashboardStatsDTO del usuario (con 40+ campos individuales)
+     * 1. Obtiene DashboardStatsDTO del usuario (snapshot compartido con el dashboard, ver DashboardService)
      * 2. Transforma a ReportMetricsDTO (con Maps agrupados)
      * 3. Agrega metadata (usuario, rol, fecha)
      * 
@@ -53,7 +53,7 @@ public class MetricsConversionService {
     public ReportMetricsDTO convertirEstadisticasAMetricas(Long usuarioId, String username, String role) {
         log.info("🔄 Convirtiendo estadísticas del dashboard a métricas para usuario: {}", username);
         
-        // ===== PASO 1: Obtener estadísticas completas del dashboard =====
+        // ===== PASO 1: Obtener estadísticas completas del dashboard (snapshot por usuario) =====
         DashboardStatsDTO stats = dashboardService.obtenerEstadisticasCompletas(usuarioId);
         log.debug("📊 Estadísticas obtenidas - Proyectos: {}, Repositorios: {}, Tickets: {}", 
                  stats.getTotalProjects(), stats.getTotalRepositories(), stats.getTotalTickets());
@@ -0,0 +1,149 @@
+package org.project.project.service;
+
+import org.project.project.repository.ReporteAdjuntoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Migración en segundo plano de los adjuntos de reportes guardados como BLOB (reporte_adjunto.contenido_archivo)
+ * al storage de objetos
+ * - Cada ciclo procesa como máximo reportes.adjuntos.migracion.lote adjuntos, con una pausa entre cada uno,
+ *   para no competir con el tráfico normal por el buffer pool ni por el ancho de banda
+ * - Reanudable: el estado es gcs_migrado de cada fila; tras un reinicio se continúa con los pendientes
+ * - Recorre los pendientes por adjunto_id (keyset), así un adjunto que falla no bloquea la pasada
+ * - Un adjunto se marca como migrado (y su BLOB pasa a NULL) solo si el tamaño subido coincide con el del BLOB;
+ *   los que fallan se reintentan en el siguiente ciclo
+ * - El BLOB se lee por tramos (LectorBlobAdjuntos), nunca completo en memoria
+ * - Si la fila se borra durante la subida, el objeto subido se elimina (no queda huérfano en el storage)
+ */
+@Service
+public class MigracionAdjuntosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigracionAdjuntosService.class);
+
+    @Autowired
+    private ReporteAdjuntoRepository reporteAdjuntoRepository;
+
+    @Autowired
+    private GoogleCloudStorageService gcsService;
+
+    @Autowired
+    private LectorBlobAdjuntos lectorBlobAdjuntos;
+
+    @Value("${reportes.adjuntos.migracion.habilitada:true}")
+    private boolean habilitada;
+
+    // Adjuntos por ciclo y pausa entre adjuntos (limita la carga sobre MySQL y el storage)
+    @Value("${reportes.adjuntos.migracion.lote:50}")
+    private int lote;
+
+    @Value("${reportes.adjuntos.migracion.pausa-ms:200}")
+    private long pausaMs;
+
+    // Último adjunto procesado en la pasada actual (keyset): los que fallan no bloquean al resto
+    private long ultimoId = 0L;
+
+    private volatile boolean completada = false;
+
+    @Scheduled(initialDelayString = "${reportes.adjuntos.migracion.initial-delay-ms:60000}",
+               fixedDelayString = "${reportes.adjuntos.migracion.intervalo-ms:30000}")
+    public void migrarLote() {
+        if (!habilitada || completada) {
+            return;
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            List<Object[]> pendientes = reporteAdjuntoRepository.findPendientesMigracion(ultimoId, lote);
+            if (pendientes.isEmpty()) {
+                if (ultimoId == 0L) {
+                    completada = true;
+                    logger.info("✅ Migración de adjuntos de reportes completada: no quedan BLOBs en reporte_adjunto");
+                } else {
+                    // Fin de la pasada: la siguiente reintenta desde el principio los que fallaron
+                    ultimoId = 0L;
+                }
+                return;
+            }
+
+            int migrados = 0;
+            long bytes = 0;
+            for (Object[] fila : pendientes) {
+                Long adjuntoId = ((Number) fila[0]).longValue();
+                ultimoId = adjuntoId;
+                try {
+                    long tamanio = migrar(fila);
+                    if (tamanio >= 0) {
+                        migrados++;
+                        bytes += tamanio;
+                    }
+                } catch (Exception e) {
+                    logger.error("❌ Error migrando el adjunto {}: {}", adjuntoId, e.getMessage());
+                }
+                if (pausaMs > 0) {
+                    Thread.sleep(pausaMs);
+                }
+            }
+
+            logger.info("📦 Migración de adjuntos: {}/{} migrados ({} bytes) en {} ms, quedan {}",
+                    migrados, pendientes.size(), bytes, System.currentTimeMillis() - inicio,
+                    reporteAdjuntoRepository.countPendientesMigracion());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("❌ Error en el ciclo de migración de adjuntos: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sube el BLOB de un adjunto al storage (leído en streaming por JDBC) y lo marca como migrado
+     * @return bytes migrados, o -1 si no se marcó (tamaño distinto o ya migrado por otra instancia)
+     */
+    private long migrar(Object[] fila) throws IOException {
+        Long adjuntoId = ((Number) fila[0]).longValue();
+        Long reporteId = ((Number) fila[1]).longValue();
+        String nombreArchivo = (String) fila[2];
+        String tipoMime = (String) fila[3];
+        LocalDateTime subidoEn = fila[4] instanceof Timestamp ts ? ts.toLocalDateTime()
+                : fila[4] instanceof LocalDateTime fecha ? fecha : null;
+        Long subidoPor = fila[5] != null ? ((Number) fila[5]).longValue() : null;
+        long tamanioBlob = ((Number) fila[6]).longValue();
+
+        GoogleCloudStorageService.GcsFileInfo info;
+        try (InputStream contenido = lectorBlobAdjuntos.abrir(adjuntoId)) {
+            if (contenido == null) {
+                return -1;
+            }
+            info = gcsService.subirAdjunto(reporteId, adjuntoId, nombreArchivo, tipoMime, contenido, subidoEn, subidoPor);
+        }
+
+        if (info == null) {
+            return -1;
+        }
+        if (info.getGcsFileSizeBytes() == null || info.getGcsFileSizeBytes() != tamanioBlob) {
+            logger.warn("⚠️ Adjunto {}: tamaño subido {} distinto del BLOB {}, no se marca como migrado",
+                    adjuntoId, info.getGcsFileSizeBytes(), tamanioBlob);
+            gcsService.deleteFile(info.getGcsFilePath());
+            return -1;
+        }
+
+        int marcados = reporteAdjuntoRepository.marcarMigrado(adjuntoId, info.getGcsFileId(),
+                info.getGcsBucketName(), info.getGcsFilePath(), info.getGcsFileSizeBytes());
+        if (marcados == 0 && !reporteAdjuntoRepository.existsById(adjuntoId)) {
+            // El adjunto se eliminó mientras se subía: nadie referencia el objeto
+            gcsService.deleteFile(info.getGcsFilePath());
+            logger.info("🗑️ Adjunto {} eliminado durante la migración, se borra el objeto subido", adjuntoId);
+        }
+        // 0 con la fila presente = otra instancia ya lo marcó; la ruta es la misma, así que el objeto no se borra
+        return marcados == 1 ? tamanioBlob : -1;
+    }
+}
@@ -0,0 +1,777 @@
+package org.project.project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.examples.Example;
+import io.swagger.v3.oas.models.media.ArraySchema;
+import io.swagger.v3.oas.models.media.ComposedSchema;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import io.swagger.v3.oas.models.servers.Server;
+import org.project.project.exception.ResourceNotFoundException;
+import org.project.project.model.dto.UsuarioCacheado;
+import org.project.project.model.entity.API;
+import org.project.project.model.entity.APIMockServer;
+import org.project.project.repository.APIMockServerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime embebido de mock servers: responde /mock/{mockServerId}/** desde memoria
+ * - El contrato OpenAPI de la versión del mock (vía ContratoApiCacheService) se compila una vez a un trie de rutas
+ *   (segmentos literales + un hijo comodín por {parametro}) con la respuesta de cada operación
+ *   ya serializada: el example del contrato o, si no hay, uno generado a partir del schema
+ * - La columna configuracion (misma forma que mock_server_config) sobrescribe o añade endpoints,
+ *   define la respuesta de respaldo, las cabeceras globales y la inyección de latencia/errores;
+ *   se valida y guarda con actualizarConfiguracion, que recompila el mock
+ * - Los mocks compilados se recompilan al vencer mock.runtime.recompilar-min o con invalidar()
+ * - Contadores de peticiones por mock y por ruta con LongAdder (sin contención entre hilos)
+ * - Acceso: un mock de una API en PRODUCCION lo usa cualquier usuario; los demás solo sus dueños (creador del mock
+ *   o de la API) y SA. Las reglas se compilan con el mock, así que un cambio de estado o de dueño se aplica al recompilar
+ */
+@Service
+public class MockRuntimeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockRuntimeService.class);
+
+    private static final String JSON = "application/json";
+    private static final int PROFUNDIDAD_MAXIMA_EJEMPLO = 6;
+
+    private static final Set<String> CLAVES_CONFIGURACION = Set.of("endpoints", "fallback_response", "global_headers",
+            "latencia_ms", "jitter_ms", "tasa_error", "error_status");
+    private static final Set<String> METODOS_HTTP = Set.of("GET", "POST", "PUT", "PATCH", "DELETE", "HEAD", "OPTIONS");
+
+    @Autowired
+    private APIMockServerRepository mockServerRepository;
+
+    @Autowired
+    private ContratoApiCacheService contratoApiCacheService;
+
+    // Tope de latencia, jitter y delay_ms configurables (la respuesta se retrasa sin bloquear hilos, pero ocupa la conexión)
+    @Value("${mock.runtime.max-latencia-ms:30000}")
+    private long maxLatenciaMs;
+
+    @Value("${mock.runtime.max-endpoints:200}")
+    private int maxEndpoints;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final LoadingCache<Long, MockCompilado> compilados;
+
+    private final Map<Long, ContadoresMock> contadores = new ConcurrentHashMap<>();
+
+    public MockRuntimeService(@Value("${mock.runtime.max-mocks:500}") long maxMocks,
+                              @Value("${mock.runtime.recompilar-min:5}") long minutosRecompilar) {
+        this.compilados = Caffeine.newBuilder()
+                .maximumSize(maxMocks)
+                .expireAfterWrite(minutosRecompilar, TimeUnit.MINUTES)
+                .build(this::compilar);
+    }
+
+    // =================== MODELO COMPILADO ===================
+
+    /**
+     * Respuesta de una operación, preparada para servirse sin trabajo por petición
+     * (solo se sustituyen las variables {{path.x}} si la plantilla las usa)
+     */
+    public record RespuestaMock(int status, String contentType, Map<String, String> cabeceras,
+                                byte[] cuerpo, String plantilla, long demoraMs) {
+    }
+
+    /**
+     * Resultado de atender una petición al mock
+     * @param demoraMs Latencia a aplicar antes de responder (configurada + jitter)
+     */
+    public record RespuestaServida(int status, String contentType, Map<String, String> cabeceras,
+                                   byte[] cuerpo, long demoraMs) {
+    }
+
+    private static final class NodoRuta {
+        private final Map<String, NodoRuta> literales = new HashMap<>();
+        private NodoRuta parametro;
+        private String nombreParametro;
+        private final Map<String, RutaCompilada> porMetodo = new HashMap<>();
+    }
+
+    private record RutaCompilada(String clave, RespuestaMock respuesta) {
+    }
+
+    private record MockCompilado(Long mockServerId, APIMockServer.EstadoMock estado, NodoRuta raiz,
+                                 String prefijoServidor, RespuestaMock respaldo, long latenciaMs, long jitterMs,
+                                 double tasaError, int statusError, Map<String, String> cabecerasGlobales,
+                                 int rutas, LocalDateTime compiladoEn, boolean publico, Set<Long> duenos,
+                                 String errorCompilacion) {
+
+        static MockCompilado inexistente(Long mockServerId) {
+            return new MockCompilado(mockServerId, null, new NodoRuta(), "", null, 0, 0, 0, 500,
+                    Map.of(), 0, LocalDateTime.now(), false, Set.of(), null);
+        }
+
+        /**
+         * Mock cuyo contrato o configuración no se pudo compilar: conserva estado y reglas de acceso
+         * para responder un error claro en lugar de fallar la carga del caché
+         */
+        static MockCompilado noServible(Long mockServerId, APIMockServer.EstadoMock estado, boolean publico,
+                                        Set<Long> duenos, String error) {
+            return new MockCompilado(mockServerId, estado, new NodoRuta(), "", null, 0, 0, 0, 500,
+                    Map.of(), 0, LocalDateTime.now(), publico, duenos, error);
+        }
+    }
+
+    private static final class ContadoresMock {
+        private final LongAdder peticiones = new LongAdder();
+        private final LongAdder sinRuta = new LongAdder();
+        private final LongAdder erroresInyectados = new LongAdder();
+        private final Map<String, LongAdder> porRuta = new ConcurrentHashMap<>();
+    }
+
+    // =================== ATENCIÓN DE PETICIONES ===================
+
+    /**
+     * Atiende una petición al mock
+     * @param ruta Path relativo al mock (lo que sigue a /mock/{mockServerId})
+     * @return vacío si el mock no existe o está inactivo
+     */
+    public Optional<RespuestaServida> responder(Long mockServerId, String metodo, String ruta) {
+        MockCompilado mock = compilados.get(mockServerId);
+        if (mock.estado() == null || mock.estado() == APIMockServer.EstadoMock.INACTIVO) {
+            return Optional.empty();
+        }
+
+        ContadoresMock contador = contadores.computeIfAbsent(mockServerId, id -> new ContadoresMock());
+        contador.peticiones.increment();
+
+        if (mock.estado() == APIMockServer.EstadoMock.MANTENIMIENTO) {
+            return Optional.of(respuestaError(mock, 503, "Mock server en mantenimiento", 0));
+        }
+
+        if (mock.errorCompilacion() != null) {
+            return Optional.of(respuestaError(mock, 422,
+                    "El contrato no se puede servir como mock: " + mock.errorCompilacion(), 0));
+        }
+
+        long demora = mock.latenciaMs();
+        if (mock.jitterMs() > 0) {
+            demora += ThreadLocalRandom.current().nextLong(mock.jitterMs() + 1);
+        }
+
+        if (mock.tasaError() > 0 && ThreadLocalRandom.current().nextDouble() < mock.tasaError()) {
+            contador.erroresInyectados.increment();
+            return Optional.of(respuestaError(mock, mock.statusError(), "Error inyectado por el mock server", demora));
+        }
+
+        Map<String, String> parametros = new HashMap<>(4);
+        RutaCompilada encontrada = buscar(mock, metodo.toUpperCase(Locale.ROOT), ruta, parametros);
+        if (encontrada == null) {
+            contador.sinRuta.increment();
+            if (mock.respaldo() != null) {
+                return Optional.of(servir(mock, mock.respaldo(), parametros, ruta, demora));
+            }
+            return Optional.of(respuestaError(mock, 404, "Ruta no definida en el contrato: " + metodo + " " + ruta, demora));
+        }
+
+        contador.porRuta.computeIfAbsent(encontrada.clave(), c -> new LongAdder()).increment();
+        return Optional.of(servir(mock, encontrada.respuesta(), parametros, ruta, demora));
+    }
+
+    private RutaCompilada buscar(MockCompilado mock, String metodo, String ruta, Map<String, String> parametros) {
+        String[] segmentos = segmentar(ruta);
+        RutaCompilada encontrada = buscar(mock.raiz(), segmentos, 0, metodo, parametros);
+        if (encontrada == null && !mock.prefijoServidor().isEmpty()) {
+            // Permitir también /mock/{id}/v1/... cuando el servers[0].url del contrato tiene path
+            String sinPrefijo = quitarPrefijo(ruta, mock.prefijoServidor());
+            if (sinPrefijo != null) {
+                parametros.clear();
+                encontrada = buscar(mock.raiz(), segmentar(sinPrefijo), 0, metodo, parametros);
+            }
+        }
+        return encontrada;
+    }
+
+    /**
+     * Recorrido del trie: primero el segmento literal y, si no lleva a una ruta, el comodín
+     */
+    private RutaCompilada buscar(NodoRuta nodo, String[] segmentos, int indice, String metodo,
+                                 Map<String, String> parametros) {
+        if (indice == segmentos.length) {
+            RutaCompilada ruta = nodo.porMetodo.get(metodo);
+            if (ruta == null && "HEAD".equals(metodo)) {
+                ruta = nodo.porMetodo.get("GET");
+            }
+            return ruta;
+        }
+
+        String segmento = segmentos[indice];
+        NodoRuta literal = nodo.literales.get(segmento);
+        if (literal != null) {
+            RutaCompilada ruta = buscar(literal, segmentos, indice + 1, metodo, parametros);
+            if (ruta != null) {
+                return ruta;
+            }
+        }
+
+        if (nodo.parametro != null) {
+            RutaCompilada ruta = buscar(nodo.parametro, segmentos, indice + 1, metodo, parametros);
+            if (ruta != null) {
+                parametros.put(nodo.parametro.nombreParametro, segmento);
+                return ruta;
+            }
+        }
+        return null;
+    }
+
+    private RespuestaServida servir(MockCompilado mock, RespuestaMock respuesta, Map<String, String> parametros,
+                                    String ruta, long demora) {
+        byte[] cuerpo = respuesta.cuerpo();
+        if (respuesta.plantilla() != null) {
+            String texto = respuesta.plantilla().replace("{{request.path}}", ruta);
+            for (Map.Entry<String, String> parametro : parametros.entrySet()) {
+                texto = texto.replace("{{path." + parametro.getKey() + "}}", parametro.getValue());
+            }
+            cuerpo = texto.getBytes(StandardCharsets.UTF_8);
+        }
+        return new RespuestaServida(respuesta.status(), respuesta.contentType(), respuesta.cabeceras(), cuerpo,
+                demora + respuesta.demoraMs());
+    }
+
+    private RespuestaServida respuestaError(MockCompilado mock, int status, String mensaje, long demora) {
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("error", mensaje);
+        cuerpo.put("mockServerId", mock.mockServerId());
+        return new RespuestaServida(status, JSON, mock.cabecerasGlobales(), serializar(cuerpo), demora);
+    }
+
+    // =================== ACCESO ===================
+
+    /**
+     * Si el usuario puede hacer peticiones al mock (API publicada, dueño o SA)
+     */
+    public boolean puedeUsar(Long mockServerId, UsuarioCacheado usuario) {
+        MockCompilado mock = compilados.get(mockServerId);
+        return mock.publico() || usuario.tieneRol("SA") || mock.duenos().contains(usuario.usuarioId());
+    }
+
+    /**
+     * Si el usuario creó el mock o la API del mock
+     */
+    public boolean esDueno(Long mockServerId, Long usuarioId) {
+        return compilados.get(mockServerId).duenos().contains(usuarioId);
+    }
+
+    // =================== ADMINISTRACIÓN ===================
+
+    /**
+     * Configuración guardada del mock (null = solo el contrato)
+     * @throws ResourceNotFoundException si el mock no existe
+     */
+    public Map<String, Object> obtenerConfiguracion(Long mockServerId) {
+        return mockServerRepository.findById(mockServerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Mock server no encontrado: " + mockServerId))
+                .getConfiguracion();
+    }
+
+    /**
+     * Valida y guarda la configuración del mock y lo recompila
+     * La invalidación va después del save (ya confirmado): una compilación concurrente no puede volver
+     * a cachear la configuración anterior
+     * @param configuracion null o vacía = solo el contrato
+     * @throws IllegalArgumentException si la configuración no es válida
+     * @throws ResourceNotFoundException si el mock no existe
+     */
+    public void actualizarConfiguracion(Long mockServerId, Map<String, Object> configuracion) {
+        APIMockServer mockServer = mockServerRepository.findById(mockServerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Mock server no encontrado: " + mockServerId));
+        validarConfiguracion(configuracion);
+
+        mockServer.setConfiguracion(configuracion == null || configuracion.isEmpty() ? null : configuracion);
+        mockServer.actualizar();
+        mockServerRepository.save(mockServer);
+        invalidar(mockServerId);
+    }
+
+    private void validarConfiguracion(Map<String, Object> configuracion) {
+        if (configuracion == null) {
+            return;
+        }
+        for (String clave : configuracion.keySet()) {
+            if (!CLAVES_CONFIGURACION.contains(clave)) {
+                throw new IllegalArgumentException("Clave de configuración no soportada: " + clave);
+            }
+        }
+        validarRango(configuracion, "latencia_ms", 0, maxLatenciaMs);
+        validarRango(configuracion, "jitter_ms", 0, maxLatenciaMs);
+        validarRango(configuracion, "error_status", 100, 599);
+        if (configuracion.get("tasa_error") != null) {
+            if (!(configuracion.get("tasa_error") instanceof Number tasa) || tasa.doubleValue() < 0 || tasa.doubleValue() > 1) {
+                throw new IllegalArgumentException("tasa_error debe ser un número entre 0 y 1");
+            }
+        }
+        validarCabeceras(configuracion.get("global_headers"), "global_headers");
+        if (configuracion.get("fallback_response") != null) {
+            validarRespuesta(configuracion.get("fallback_response"), "fallback_response");
+        }
+
+        Object endpoints = configuracion.get("endpoints");
+        if (endpoints == null) {
+            return;
+        }
+        if (!(endpoints instanceof List<?> lista)) {
+            throw new IllegalArgumentException("endpoints debe ser una lista");
+        }
+        if (lista.size() > maxEndpoints) {
+            throw new IllegalArgumentException("Máximo " + maxEndpoints + " endpoints configurados");
+        }
+        for (int i = 0; i < lista.size(); i++) {
+            String campo = "endpoints[" + i + "]";
+            if (!(lista.get(i) instanceof Map<?, ?> endpoint)) {
+                throw new IllegalArgumentException(campo + " debe ser un objeto");
+            }
+            if (!(endpoint.get("method") instanceof String metodo) || !METODOS_HTTP.contains(metodo.toUpperCase(Locale.ROOT))) {
+                throw new IllegalArgumentException(campo + ".method debe ser uno de " + METODOS_HTTP);
+            }
+            if (!(endpoint.get("path") instanceof String path) || !path.startsWith("/")) {
+                throw new IllegalArgumentException(campo + ".path debe empezar por /");
+            }
+            validarRespuesta(endpoint.get("response"), campo + ".response");
+        }
+    }
+
+    private void validarRespuesta(Object definicion, String campo) {
+        if (!(definicion instanceof Map<?, ?> respuesta)) {
+            throw new IllegalArgumentException(campo + " debe ser un objeto");
+        }
+        validarRango(respuesta, "status_code", 100, 599, campo);
+        validarRango(respuesta, "delay_ms", 0, maxLatenciaMs, campo);
+        validarCabeceras(respuesta.get("headers"), campo + ".headers");
+    }
+
+    private static void validarCabeceras(Object cabeceras, String campo) {
+        if (cabeceras == null) {
+            return;
+        }
+        if (!(cabeceras instanceof Map<?, ?> mapa)) {
+            throw new IllegalArgumentException(campo + " debe ser un objeto");
+        }
+        for (Map.Entry<?, ?> cabecera : mapa.entrySet()) {
+            if (!(cabecera.getValue() instanceof String valor) || valor.indexOf('\r') >= 0 || valor.indexOf('\n') >= 0
+                    || String.valueOf(cabecera.getKey()).isBlank()) {
+                throw new IllegalArgumentException(campo + "." + cabecera.getKey() + " debe ser texto de una línea");
+            }
+        }
+    }
+
+    private static void validarRango(Map<?, ?> mapa, String clave, long minimo, long maximo) {
+        validarRango(mapa, clave, minimo, maximo, null);
+    }
+
+    private static void validarRango(Map<?, ?> mapa, String clave, long minimo, long maximo, String padre) {
+        Object valor = mapa.get(clave);
+        if (valor == null) {
+            return;
+        }
+        if (!(valor instanceof Number numero) || numero.doubleValue() != numero.longValue()
+                || numero.longValue() < minimo || numero.longValue() > maximo) {
+            throw new IllegalArgumentException((padre != null ? padre + "." : "") + clave
+                    + " debe ser un entero entre " + minimo + " y " + maximo);
+        }
+    }
+
+    /**
+     * Fuerza la recompilación del mock en su próxima petición (p. ej. tras cambiar contrato o configuración)
+     */
+    public void invalidar(Long mockServerId) {
+        compilados.invalidate(mockServerId);
+        logger.info("♻️ Mock server {} invalidado, se recompilará en la próxima petición", mockServerId);
+    }
+
+    /**
+     * Contadores del mock desde el arranque de la instancia y datos de la compilación vigente
+     */
+    public Map<String, Object> estadisticas(Long mockServerId) {
+        MockCompilado mock = compilados.get(mockServerId);
+        ContadoresMock contador = contadores.getOrDefault(mockServerId, new ContadoresMock());
+
+        Map<String, Long> porRuta = new TreeMap<>();
+        contador.porRuta.forEach((clave, total) -> porRuta.put(clave, total.sum()));
+
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("mockServerId", mockServerId);
+        estadisticas.put("estado", mock.estado());
+        estadisticas.put("rutasCompiladas", mock.rutas());
+        estadisticas.put("compiladoEn", mock.compiladoEn().toString());
+        estadisticas.put("errorCompilacion", mock.errorCompilacion());
+        estadisticas.put("peticiones", contador.peticiones.sum());
+        estadisticas.put("sinRuta", contador.sinRuta.sum());
+        estadisticas.put("erroresInyectados", contador.erroresInyectados.sum());
+        estadisticas.put("porRuta", porRuta);
+        return estadisticas;
+    }
+
+    // =================== COMPILACIÓN ===================
+
+    private MockCompilado compilar(Long mockServerId) {
+        Optional<APIMockServer> encontrado = mockServerRepository.findByIdConVersion(mockServerId);
+        if (encontrado.isEmpty()) {
+            return MockCompilado.inexistente(mockServerId);
+        }
+
+        long inicio = System.currentTimeMillis();
+        APIMockServer mockServer = encontrado.get();
+        boolean publico = mockServer.getApi().getEstadoApi() == API.EstadoApi.PRODUCCION;
+        Set<Long> duenos = duenos(mockServer);
+        try {
+            MockCompilado compilado = compilar(mockServer, publico, duenos);
+            logger.info("🧩 Mock server {} compilado: {} rutas en {} ms", mockServerId, compilado.rutas(),
+                    System.currentTimeMillis() - inicio);
+            return compilado;
+        } catch (RuntimeException e) {
+            logger.warn("⚠️ El mock server {} no se pudo compilar: {}", mockServerId, e.getMessage());
+            return MockCompilado.noServible(mockServerId, mockServer.getEstadoMock(), publico, duenos,
+                    e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private MockCompilado compilar(APIMockServer mockServer, boolean publico, Set<Long> duenos) {
+        Map<String, Object> config = mockServer.getConfiguracion() != null ? mockServer.getConfiguracion() : Map.of();
+        Map<String, String> cabecerasGlobales = mapaTexto(config.get("global_headers"));
+
+        NodoRuta raiz = new NodoRuta();
+        String prefijoServidor = "";
+        int rutas = 0;
+
+        OpenAPI openAPI = leerContrato(mockServer);
+        if (openAPI != null) {
+            prefijoServidor = prefijoServidor(openAPI);
+            if (openAPI.getPaths() != null) {
+                for (Map.Entry<String, PathItem> path : openAPI.getPaths().entrySet()) {
+                    for (Map.Entry<PathItem.HttpMethod, Operation> operacion : path.getValue().readOperationsMap().entrySet()) {
+                        RespuestaMock respuesta = respuestaDeOperacion(operacion.getValue(), cabecerasGlobales);
+                        registrar(raiz, operacion.getKey().name(), path.getKey(), respuesta);
+                        rutas++;
+                    }
+                }
+            }
+        }
+
+        // Endpoints configurados: sobrescriben la respuesta del contrato o añaden rutas nuevas
+        if (config.get("endpoints") instanceof List<?> endpoints) {
+            for (Object elemento : endpoints) {
+                if (elemento instanceof Map<?, ?> endpoint && endpoint.get("method") != null && endpoint.get("path") != null) {
+                    RespuestaMock respuesta = respuestaConfigurada(endpoint.get("response"), cabecerasGlobales);
+                    registrar(raiz, endpoint.get("method").toString().toUpperCase(Locale.ROOT),
+                            endpoint.get("path").toString(), respuesta);
+                    rutas++;
+                }
+            }
+        }
+
+        RespuestaMock respaldo = config.get("fallback_response") != null
+                ? respuestaConfigurada(config.get("fallback_response"), cabecerasGlobales)
+                : null;
+
+        return new MockCompilado(mockServer.getMockServerId(), mockServer.getEstadoMock(), raiz, prefijoServidor,
+                respaldo, numero(config.get("latencia_ms"), 0L), numero(config.get("jitter_ms"), 0L),
+                Math.max(0, Math.min(1, numeroDecimal(config.get("tasa_error")))),
+                numero(config.get("error_status"), 500L).intValue(), cabecerasGlobales, rutas, LocalDateTime.now(),
+                publico, duenos, null);
+    }
+
+    private Set<Long> duenos(APIMockServer mockServer) {
+        Set<Long> duenos = new HashSet<>();
+        if (mockServer.getCreadoPor() != null) {
+            duenos.add(mockServer.getCreadoPor().getUsuarioId());
+        }
+        if (mockServer.getApi().getCreadoPor() != null) {
+            duenos.add(mockServer.getApi().getCreadoPor().getUsuarioId());
+        }
+        return Set.copyOf(duenos);
+    }
+
+    private OpenAPI leerContrato(APIMockServer mockServer) {
+        if (mockServer.getVersion() == null || mockServer.getVersion().getContratoApiUrl() == null) {
+            logger.warn("⚠️ Mock server {} sin versión o sin contrato; solo se usarán los endpoints configurados",
+                    mockServer.getMockServerId());
+            return null;
+        }
+        try {
+            OpenAPI openAPI = contratoApiCacheService.obtenerModelo(mockServer.getVersion());
+            if (openAPI == null) {
+                logger.warn("⚠️ El contrato del mock server {} no es OpenAPI válido", mockServer.getMockServerId());
+            }
+            return openAPI;
+        } catch (Exception e) {
+            logger.error("❌ Error al leer el contrato del mock server {}: {}", mockServer.getMockServerId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void registrar(NodoRuta raiz, String metodo, String path, RespuestaMock respuesta) {
+        NodoRuta nodo = raiz;
+        for (String segmento : segmentar(path)) {
+            if (segmento.startsWith("{") && segmento.endsWith("}")) {
+                if (nodo.parametro == null) {
+                    nodo.parametro = new NodoRuta();
+                    nodo.parametro.nombreParametro = segmento.substring(1, segmento.length() - 1);
+                }
+                nodo = nodo.parametro;
+            } else {
+                nodo = nodo.literales.computeIfAbsent(segmento, s -> new NodoRuta());
+            }
+        }
+        nodo.porMetodo.put(metodo, new RutaCompilada(metodo + " " + normalizar(path), respuesta));
+    }
+
+    /**
+     * Respuesta de una operación del contrato: el primer 2xx (código exacto antes que el rango 2XX; si no, default),
+     * con su example o, si no lo tiene, un ejemplo generado a partir del schema
+     */
+    private RespuestaMock respuestaDeOperacion(Operation operacion, Map<String, String> cabecerasGlobales) {
+        int status = 200;
+        ApiResponse elegida = null;
+        if (operacion.getResponses() != null && !operacion.getResponses().isEmpty()) {
+            // En el TreeMap "200" < "2XX": los códigos exactos se prefieren al rango
+            for (Map.Entry<String, ApiResponse> respuesta : new TreeMap<>(operacion.getResponses()).entrySet()) {
+                int codigo = codigoDeRespuesta(respuesta.getKey());
+                if (codigo >= 200 && codigo < 300) {
+                    status = codigo;
+                    elegida = respuesta.getValue();
+                    break;
+                }
+            }
+            if (elegida == null) {
+                elegida = operacion.getResponses().getDefault();
+            }
+        }
+
+        if (elegida == null || elegida.getContent() == null || elegida.getContent().isEmpty()) {
+            return new RespuestaMock(status, null, cabecerasGlobales, new byte[0], null, 0);
+        }
+
+        String contentType = elegida.getContent().containsKey(JSON) ? JSON : elegida.getContent().keySet().iterator().next();
+        Object ejemplo = ejemploDeMediaType(elegida.getContent().get(contentType));
+
+        byte[] cuerpo = ejemplo instanceof String texto && !contentType.contains("json")
+                ? texto.getBytes(StandardCharsets.UTF_8)
+                : serializar(ejemplo);
+        return new RespuestaMock(status, contentType, cabecerasGlobales, cuerpo, null, 0);
+    }
+
+    private Object ejemploDeMediaType(MediaType mediaType) {
+        if (mediaType == null) {
+            return null;
+        }
+        if (mediaType.getExample() != null) {
+            return mediaType.getExample();
+        }
+        if (mediaType.getExamples() != null) {
+            for (Example ejemplo : mediaType.getExamples().values()) {
+                if (ejemplo != null && ejemplo.getValue() != null) {
+                    return ejemplo.getValue();
+                }
+            }
+        }
+        return ejemploDeSchema(mediaType.getSchema(), 0);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Object ejemploDeSchema(Schema schema, int profundidad) {
+        if (schema == null || profundidad > PROFUNDIDAD_MAXIMA_EJEMPLO) {
+            return null;
+        }
+        if (schema.getExample() != null) {
+            return schema.getExample();
+        }
+        if (schema.getDefault() != null) {
+            return schema.getDefault();
+        }
+        if (schema.getEnum() != null && !schema.getEnum().isEmpty()) {
+            return schema.getEnum().get(0);
+        }
+
+        if (schema instanceof ComposedSchema compuesto) {
+            if (compuesto.getAllOf() != null && !compuesto.getAllOf().isEmpty()) {
+                Map<String, Object> combinado = new LinkedHashMap<>();
+                for (Schema parte : compuesto.getAllOf()) {
+                    if (ejemploDeSchema(parte, profundidad + 1) instanceof Map<?, ?> mapa) {
+                        mapa.forEach((clave, valor) -> combinado.put(String.valueOf(clave), valor));
+                    }
+                }
+                return combinado;
+            }
+            List<Schema> alternativas = compuesto.getOneOf() != null ? compuesto.getOneOf() : compuesto.getAnyOf();
+            if (alternativas != null && !alternativas.isEmpty()) {
+                return ejemploDeSchema(alternativas.get(0), profundidad + 1);
+            }
+        }
+
+        if (schema instanceof ArraySchema || "array".equals(schema.getType())) {
+            Schema items = schema instanceof ArraySchema a ? a.getItems() : null;
+            List<Object> lista = new ArrayList<>();
+            Object elemento = ejemploDeSchema(items, profundidad + 1);
+            if (elemento != null) {
+                lista.add(elemento);
+            }
+            return lista;
+        }
+
+        String tipo = schema.getType() != null ? schema.getType() : (schema.getProperties() != null ? "object" : "string");
+        String formato = schema.getFormat();
+        switch (tipo) {
+            case "object": {
+                Map<String, Object> objeto = new LinkedHashMap<>();
+                if (schema.getProperties() != null) {
+                    Map<String, Schema> propiedades = schema.getProperties();
+                    for (Map.Entry<String, Schema> propiedad : propiedades.entrySet()) {
+                        objeto.put(propiedad.getKey(), ejemploDeSchema(propiedad.getValue(), profundidad + 1));
+                    }
+                }
+                return objeto;
+            }
+            case "integer":
+                return schema.getMinimum() != null ? schema.getMinimum().longValue() : 1;
+            case "number":
+                return schema.getMinimum() != null ? schema.getMinimum().doubleValue() : 1.5;
+            case "boolean":
+                return true;
+            default:
+                if (formato == null) {
+                    return "string";
+                }
+                return switch (formato) {
+                    case "date-time" -> "2025-01-01T00:00:00Z";
+                    case "date" -> "2025-01-01";
+                    case "uuid" -> "3fa85f64-5717-4562-b3fc-2c963f66afa6";
+                    case "email" -> "usuario@example.com";
+                    case "uri", "url" -> "https://example.com";
+                    default -> "string";
+                };
+        }
+    }
+
+    /**
+     * Respuesta configurada: {status_code, headers, body_template, delay_ms}
+     */
+    private RespuestaMock respuestaConfigurada(Object definicion, Map<String, String> cabecerasGlobales) {
+        Map<?, ?> respuesta = definicion instanceof Map<?, ?> mapa ? mapa : Map.of();
+        Map<String, String> cabeceras = new LinkedHashMap<>(cabecerasGlobales);
+        cabeceras.putAll(mapaTexto(respuesta.get("headers")));
+        String contentType = cabeceras.entrySet().stream()
+                .filter(c -> c.getKey().equalsIgnoreCase("Content-Type"))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(JSON);
+        cabeceras.keySet().removeIf(clave -> clave.equalsIgnoreCase("Content-Type"));
+
+        Object cuerpo = respuesta.get("body_template");
+        String texto = cuerpo == null ? "" : (cuerpo instanceof String s ? s : new String(serializar(cuerpo), StandardCharsets.UTF_8));
+        String plantilla = texto.contains("{{") ? texto : null;
+
+        return new RespuestaMock(numero(respuesta.get("status_code"), 200L).intValue(), contentType, Map.copyOf(cabeceras),
+                texto.getBytes(StandardCharsets.UTF_8), plantilla, numero(respuesta.get("delay_ms"), 0L));
+    }
+
+    // =================== UTILIDADES ===================
+
+    private String prefijoServidor(OpenAPI openAPI) {
+        List<Server> servidores = openAPI.getServers();
+        if (servidores == null || servidores.isEmpty() || servidores.get(0).getUrl() == null) {
+            return "";
+        }
+        try {
+            String path = URI.create(servidores.get(0).getUrl().replaceAll("\\{[^}]*}", "x")).getPath();
+            return path == null ? "" : normalizar(path);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Código HTTP de una clave de responses: "201" -> 201, rango OpenAPI 3 "2XX" -> 200
+     * @return -1 si la clave no es un código ni un rango (p. ej. "default")
+     */
+    private static int codigoDeRespuesta(String clave) {
+        if (clave == null || clave.length() != 3 || clave.charAt(0) < '1' || clave.charAt(0) > '5') {
+            return -1;
+        }
+        if (clave.substring(1).equalsIgnoreCase("XX")) {
+            return (clave.charAt(0) - '0') * 100;
+        }
+        try {
+            return Integer.parseInt(clave);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String quitarPrefijo(String ruta, String prefijo) {
+        String normalizada = normalizar(ruta);
+        if (normalizada.equals(prefijo)) {
+            return "/";
+        }
+        return normalizada.startsWith(prefijo + "/") ? normalizada.substring(prefijo.length()) : null;
+    }
+
+    private static String normalizar(String path) {
+        String normalizado = path.startsWith("/") ? path : "/" + path;
+        while (normalizado.length() > 1 && normalizado.endsWith("/")) {
+            normalizado = normalizado.substring(0, normalizado.length() - 1);
+        }
+        return normalizado.equals("/") ? "" : normalizado;
+    }
+
+    private static String[] segmentar(String path) {
+        String normalizado = normalizar(path);
+        return normalizado.isEmpty() ? new String[0] : normalizado.substring(1).split("/");
+    }
+
+    private static Map<String, String> mapaTexto(Object valor) {
+        Map<String, String> mapa = new LinkedHashMap<>();
+        if (valor instanceof Map<?, ?> origen) {
+            origen.forEach((clave, contenido) -> mapa.put(String.valueOf(clave), String.valueOf(contenido)));
+        }
+        return Map.copyOf(mapa);
+    }
+
+    private static Long numero(Object valor, Long porDefecto) {
+        return valor instanceof Number n ? n.longValue() : porDefecto;
+    }
+
+    private static double numeroDecimal(Object valor) {
+        return valor instanceof Number n ? n.doubleValue() : 0;
+    }
+
+    private byte[] serializar(Object valor) {
+        try {
+            return objectMapper.writeValueAsBytes(valor);
+        } catch (Exception e) {
+            logger.warn("⚠️ No se pudo serializar el ejemplo del mock: {}", e.getMessage());
+            return new byte[0];
+        }
+    }
+}
@@ -29,6 +29,9 @@ public class NodeService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private AlmacenContenidoService almacenContenidoService;
+
     // ==================== CRUD OPERATIONS ====================
 
     /**
@@ -84,10 +87,35 @@ public class NodeService {
     }
 
     /**
-     * Eliminar nodo permanentemente
+     * Eliminar nodo permanentemente (con todo su subárbol)
      */
     public void eliminarNodoPermanente(Long id) {
-        nodoRepository.deleteById(id);
+        List<Long> ids = nodoRepository.findIdsSubarbolParaBorrar(id);
+        if (!ids.isEmpty()) {
+            borrarSubarbol(id, ids);
+        }
+    }
+
+    /**
+     * Purga un subárbol de la papelera: lo borra definitivamente y libera su contenido deduplicado
+     * @return false si ya no existe o alguna parte se restauró (no se borra nada)
+     */
+    public boolean purgarSubarbolEliminado(Long id) {
+        List<Long> ids = nodoRepository.findIdsSubarbolParaBorrar(id);
+        if (ids.isEmpty() || nodoRepository.contarNoEliminadosSubarbol(id) > 0) {
+            return false;
+        }
+        borrarSubarbol(id, ids);
+        return true;
+    }
+
+    /**
+     * fk_nodo_parent es ON DELETE SET NULL: el subárbol se borra entero por ID para no dejar hijos sueltos.
+     * Versiones y clausura caen en cascada, así que su contenido deduplicado se libera antes
+     */
+    private void borrarSubarbol(Long id, List<Long> ids) {
+        nodoRepository.findReferenciasContenidoSubarbol(id).forEach(almacenContenidoService::liberar);
+        nodoRepository.borrarPorIds(ids);
     }
 
     // ==================== BUSINESS OPERATIONS ====================
@@ -0,0 +1,118 @@
+package org.project.project.service;
+
+import org.project.project.model.entity.Nodo;
+import org.project.project.repository.NodoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Invalidación selectiva de los cachés de nodos (nodosRaiz, nodosHijos, jerarquiasNodos)
+ *
+ * - Cambios en una carpeta: se evicta solo la entrada de esa carpeta y la de la raíz de su contenedor
+ * - Cambios de subárbol (renombrar/mover/eliminar carpetas): se sube la generación del contenedor.
+ *   Las claves de nodosRaiz y jerarquiasNodos incluyen la generación, así que las entradas viejas
+ *   dejan de leerse sin vaciar el caché de los demás contenedores; las de nodosHijos del subárbol
+ *   se evictan por ID (carpetas obtenidas de nodo_closure)
+ *
+ * Dentro de una transacción la invalidación se hace después del commit, para que ninguna lectura
+ * concurrente vuelva a cachear el estado anterior.
+ */
+@Component("nodoCacheInvalidator")
+public class NodoCacheInvalidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodoCacheInvalidator.class);
+
+    private final Map<String, AtomicLong> generaciones = new ConcurrentHashMap<>();
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private NodoRepository nodoRepository;
+
+    /**
+     * Generación actual de un contenedor (usada en las claves SpEL de @Cacheable)
+     */
+    public long generacion(Nodo.ContainerType containerType, Long containerId) {
+        AtomicLong generacion = generaciones.get(claveContenedor(containerType, containerId));
+        return generacion != null ? generacion.get() : 0L;
+    }
+
+    /**
+     * Clave de nodosRaiz: "PROYECTO:22:<generación>"
+     */
+    public String claveRaiz(Nodo.ContainerType containerType, Long containerId) {
+        return claveContenedor(containerType, containerId) + ":" + generacion(containerType, containerId);
+    }
+
+    /**
+     * Clave de jerarquiasNodos: "PROYECTO:22:<generación>:<parentId|root>"
+     */
+    public String claveJerarquia(Nodo.ContainerType containerType, Long containerId, Long parentId) {
+        return claveRaiz(containerType, containerId) + ":" + (parentId != null ? parentId : "root");
+    }
+
+    /**
+     * Se creó, renombró o eliminó un nodo dentro de una carpeta (o de la raíz si parentId es null)
+     */
+    public void evictarCarpeta(Nodo.ContainerType containerType, Long containerId, Long parentId) {
+        alConfirmar(() -> {
+            evictar("nodosRaiz", claveRaiz(containerType, containerId));
+            evictar("jerarquiasNodos", claveJerarquia(containerType, containerId, parentId));
+            if (parentId != null) {
+                evictar("nodosHijos", parentId);
+            }
+        });
+    }
+
+    /**
+     * Cambió el path de todo un subárbol: evicta los listados de sus carpetas y sube la generación
+     * Debe llamarse antes de modificar el subárbol (o antes de que se borren sus filas de clausura)
+     */
+    public void evictarSubarbol(Nodo.ContainerType containerType, Long containerId, Long nodoId) {
+        List<Long> carpetas = nodoRepository.findCarpetasSubarbol(nodoId);
+        alConfirmar(() -> {
+            carpetas.forEach(carpetaId -> evictar("nodosHijos", carpetaId));
+            long nueva = generaciones
+                    .computeIfAbsent(claveContenedor(containerType, containerId), k -> new AtomicLong())
+                    .incrementAndGet();
+            logger.debug("🗄️ [CACHE] {} #{} -> generación {} ({} carpeta(s) evictadas)",
+                    containerType, containerId, nueva, carpetas.size());
+        });
+    }
+
+    private void evictar(String nombreCache, Object clave) {
+        Cache cache = cacheManager.getCache(nombreCache);
+        if (cache != null) {
+            cache.evict(clave);
+        }
+    }
+
+    private void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    private String claveContenedor(Nodo.ContainerType containerType, Long containerId) {
+        return containerType + ":" + containerId;
+    }
+}
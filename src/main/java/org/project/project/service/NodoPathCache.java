@@ -0,0 +1,51 @@
+package org.project.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.project.project.model.entity.Nodo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché acotado path -> nodoId para resolver URLs de navegación (/files/src/main/java/...)
+ * Solo guarda el ID: quien lo usa vuelve a cargar el nodo por clave primaria y comprueba que
+ * el path siga coincidiendo, así una entrada desactualizada nunca devuelve un nodo equivocado.
+ * Se invalida por prefijo desde renombrar, mover y eliminar.
+ */
+@Component
+public class NodoPathCache {
+
+    private final Cache<ClavePath, Long> cache;
+
+    public NodoPathCache(@Value("${files.path-cache.max-size:20000}") long maxSize,
+                         @Value("${files.path-cache.ttl-min:30}") long ttlMinutos) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(ttlMinutos, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    public Long obtener(Nodo.ContainerType containerType, Long containerId, Long ramaId, String path) {
+        return cache.getIfPresent(new ClavePath(containerType, containerId, ramaId, path));
+    }
+
+    public void guardar(Nodo.ContainerType containerType, Long containerId, Long ramaId, String path, Long nodoId) {
+        cache.put(new ClavePath(containerType, containerId, ramaId, path), nodoId);
+    }
+
+    /**
+     * Elimina el path indicado y todo lo que cuelga de él, en cualquier rama del contenedor
+     */
+    public void invalidar(Nodo.ContainerType containerType, Long containerId, String path) {
+        String prefijo = path + "/";
+        cache.asMap().keySet().removeIf(clave ->
+                clave.containerType() == containerType
+                        && clave.containerId().equals(containerId)
+                        && (clave.path().equals(path) || clave.path().startsWith(prefijo)));
+    }
+
+    private record ClavePath(Nodo.ContainerType containerType, Long containerId, Long ramaId, String path) {}
+}
@@ -3,17 +3,19 @@ package org.project.project.service;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.StoredProcedureQuery;
+import org.project.project.model.dto.NodoCacheado;
 import org.project.project.model.dto.NodoDTO;
 import org.project.project.model.entity.Nodo;
+import org.project.project.model.entity.NodoClosureId;
 import org.project.project.model.entity.Proyecto;
 import org.project.project.model.entity.Repositorio;
 import org.project.project.model.entity.Usuario;
+import org.project.project.repository.NodoClosureRepository;
 import org.project.project.repository.NodoRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -21,6 +23,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -44,6 +47,21 @@ public class NodoService {
     
     @Autowired
     private GCSConfigService gcsConfigService;
+
+    @Autowired
+    private NodoSubarbolService nodoSubarbolService;
+
+    @Autowired
+    private NodoClosureRepository nodoClosureRepository;
+
+    @Autowired
+    private NodoPathCache nodoPathCache;
+
+    @Autowired
+    private NodoCacheInvalidator nodoCacheInvalidator;
+
+    @Autowired
+    private AlmacenContenidoService almacenContenidoService;
     
     @Autowired
     private org.project.project.repository.UsuarioRepository usuarioRepository;
@@ -112,7 +130,10 @@ public class NodoService {
         
         carpeta.setPath(pathCompleto);
 
-        return nodoRepository.save(carpeta);
+        Nodo guardada = nodoRepository.save(carpeta);
+        nodoClosureRepository.indexarNodo(guardada.getNodoId(), ParentId);
+        nodoCacheInvalidator.evictarCarpeta(ContainerType, ContainerId, ParentId);
+        return guardada;
     }
     
     /**
@@ -125,7 +146,6 @@ public class NodoService {
      * @return Carpeta creada
      */
     @Transactional
-    @CacheEvict(value = {"nodosRaiz", "nodosHijos", "jerarquiasNodos"}, allEntries = true)
     public Nodo crearCarpeta(String nombre, Nodo.ContainerType ContainerType, Long ContainerId, 
                              Long ParentId, Long usuarioId) {
         Usuario usuario = usuarioRepository.findById(usuarioId)
@@ -146,9 +166,20 @@ public class NodoService {
      * @return Nodo de archivo creado
      */
     @Transactional
-    @CacheEvict(value = "jerarquiasNodos", allEntries = true)
     public Nodo crearNodoArchivo(String nombre, Nodo.ContainerType ContainerType, Long ContainerId,
                                  Long ParentId, String rutaGCS, Long tamanio, String tipoMime, Usuario usuario) {
+        return crearNodoArchivo(nombre, ContainerType, ContainerId, ParentId, rutaGCS, tamanio, tipoMime, usuario, null);
+    }
+
+    /**
+     * Crea un nodo de archivo que apunta a un contenido del almacén deduplicado
+     * La referencia al contenido debe haberla tomado el llamador (AlmacenContenidoService)
+     * @param contenidoHash SHA-256 del contenido, o null si rutaGCS es un objeto propio del archivo
+     */
+    @Transactional
+    public Nodo crearNodoArchivo(String nombre, Nodo.ContainerType ContainerType, Long ContainerId,
+                                 Long ParentId, String rutaGCS, Long tamanio, String tipoMime, Usuario usuario,
+                                 String contenidoHash) {
         
         // Validar que el nombre no esté vacío
         if (nombre == null || nombre.trim().isEmpty()) {
@@ -169,6 +200,7 @@ public class NodoService {
         archivo.setContainerType(ContainerType);
         archivo.setContainerId(ContainerId);
         archivo.setGcsPath(rutaGCS);
+        archivo.setContenidoHash(contenidoHash);
         archivo.setSize(tamanio);
         archivo.setMimeType(tipoMime);
         archivo.setIsDeleted(false);
@@ -195,7 +227,10 @@ public class NodoService {
         
         archivo.setPath(pathCompleto);
 
-        return nodoRepository.save(archivo);
+        Nodo guardado = nodoRepository.save(archivo);
+        nodoClosureRepository.indexarNodo(guardado.getNodoId(), ParentId);
+        nodoCacheInvalidator.evictarCarpeta(ContainerType, ContainerId, ParentId);
+        return guardado;
     }
 
     /**
@@ -208,23 +243,25 @@ public class NodoService {
     }
 
     /**
-     * Obtiene los hijos directos de una carpeta
-     * 
-     * CACHEABLE: Este método se ejecuta MUCHO (en cada navegación de carpeta)
-     * Hit ratio esperado: >60% (usuarios navegan por las mismas carpetas)
-     * 
-     * IMPACTO:
-     * - Sin caché + sin índices: ~150ms
-     * - Con índices (actual): ~5-10ms
-     * - Con índices + caché: ~0.1ms (50-100x más rápido que solo índices)
+     * Verifica que todos los nodos existan y pertenezcan al contenedor indicado
+     * Se usa para validar operaciones masivas antes de encolarlas como job
+     * @return true si todos los nodos pertenecen al contenedor
+     */
+    public boolean todosPertenecenAContenedor(List<Long> nodoIds, Nodo.ContainerType containerType, Long containerId) {
+        List<Nodo> nodos = nodoRepository.findAllById(nodoIds);
+        return nodos.size() == new HashSet<>(nodoIds).size()
+                && nodos.stream().allMatch(n -> n.getContainerType() == containerType
+                        && containerId.equals(n.getContainerId()));
+    }
+
+    /**
+     * Obtiene los hijos directos de una carpeta (entidades de la sesión actual, sin caché)
      * 
      * @param ParentId ID del nodo padre (null para raíz)
      * @param ContainerType Tipo de contenedor
      * @param ContainerId ID del contenedor
      * @return Lista de nodos hijos no eliminados
      */
-    @Cacheable(value = "jerarquiasNodos", 
-               key = "#ContainerType + ':' + #ContainerId + ':' + (#ParentId != null ? #ParentId : 'root')")
     public List<Nodo> obtenerHijos(Long ParentId, Nodo.ContainerType ContainerType, Long ContainerId) {
         if (ParentId == null) {
             // ✅ OPTIMIZADO: JOIN FETCH carga usuarios en la misma query (evita N+1)
@@ -235,6 +272,30 @@ public class NodoService {
         }
     }
 
+    /**
+     * Obtiene los hijos directos de una carpeta como datos inmutables (con caché)
+     * 
+     * CACHEABLE: Este método se ejecuta MUCHO (recorridos de carpetas, subidas de carpetas)
+     * Hit ratio esperado: >60% (usuarios navegan por las mismas carpetas)
+     * 
+     * IMPACTO:
+     * - Sin caché + sin índices: ~150ms
+     * - Con índices (actual): ~5-10ms
+     * - Con índices + caché: ~0.1ms (50-100x más rápido que solo índices)
+     * 
+     * @param ParentId ID del nodo padre (null para raíz)
+     * @param ContainerType Tipo de contenedor
+     * @param ContainerId ID del contenedor
+     * @return Hijos no eliminados, en el mismo orden que obtenerHijos
+     */
+    @Cacheable(value = "jerarquiasNodos",
+               key = "@nodoCacheInvalidator.claveJerarquia(#ContainerType, #ContainerId, #ParentId)")
+    public List<NodoCacheado> obtenerHijosCacheados(Long ParentId, Nodo.ContainerType ContainerType, Long ContainerId) {
+        return obtenerHijos(ParentId, ContainerType, ContainerId).stream()
+                .map(NodoCacheado::desde)
+                .toList();
+    }
+
     /**
      * Obtiene todos los nodos de un contenedor (proyecto o repositorio)
      * @param ContainerType Tipo de contenedor
@@ -259,7 +320,6 @@ public class NodoService {
      * @return Nodo renombrado
      */
     @Transactional
-    @CacheEvict(value = {"nodosRaiz", "nodosHijos", "jerarquiasNodos"}, allEntries = true)
     public Nodo renombrarNodo(Long nodoId, String nuevoNombre, Usuario usuario) {
         logger.info("✏️ [RENAME] Iniciando renombrado de nodo ID: {}", nodoId);
         
@@ -286,8 +346,9 @@ public class NodoService {
             throw new IllegalArgumentException("Ya existe otro elemento con el nombre '" + nuevoNombre + "' en esta ubicación");
         }
 
-        // Si es archivo, renombrar en GCS (mover archivo)
-        if (nodo.getTipo() == Nodo.TipoNodo.ARCHIVO && nodo.getGcsPath() != null) {
+        // Si es archivo, renombrar en GCS (mover archivo); el contenido deduplicado no depende del nombre
+        if (nodo.getTipo() == Nodo.TipoNodo.ARCHIVO && nodo.getGcsPath() != null
+                && !AlmacenContenidoService.esDireccionado(nodo)) {
             String gcsPathViejo = nodo.getGcsPath();
             
             // Extraer el nombre real del archivo en GCS (última parte del path)
@@ -358,6 +419,11 @@ public class NodoService {
         nodo.setPath(pathNuevo);
         
         logger.info("   📂 Path actualizado: '{}' -> '{}'", pathViejo, pathNuevo);
+        nodoPathCache.invalidar(nodo.getContainerType(), nodo.getContainerId(), pathViejo);
+        nodoCacheInvalidator.evictarCarpeta(nodo.getContainerType(), nodo.getContainerId(), nodo.getParentId());
+        if (nodo.getTipo() == Nodo.TipoNodo.CARPETA) {
+            nodoCacheInvalidator.evictarSubarbol(nodo.getContainerType(), nodo.getContainerId(), nodoId);
+        }
         
         // Actualizar metadatos
         nodo.setActualizadoPor(usuario);
@@ -365,10 +431,11 @@ public class NodoService {
 
         Nodo nodoGuardado = nodoRepository.save(nodo);
         
-        // Si es carpeta, actualizar paths de todos los hijos recursivamente
+        // Si es carpeta, actualizar paths de todo el subárbol (un UPDATE + movimientos GCS en lote)
         if (nodo.getTipo() == Nodo.TipoNodo.CARPETA) {
             logger.info("   📁 Es carpeta, actualizando paths de nodos hijos...");
-            actualizarPathsHijosRecursivo(nodoId, pathViejo, pathNuevo);
+            nodoSubarbolService.reubicarDescendientes(
+                    nodo.getContainerType(), nodo.getContainerId(), nodo.getRamaId(), pathViejo, pathNuevo, null);
         }
         
         logger.info("✏️ [RENAME] Renombrado completado exitosamente");
@@ -376,74 +443,29 @@ public class NodoService {
     }
     
     /**
-     * Actualiza recursivamente los paths de todos los nodos hijos cuando se renombra una carpeta
-     * @param carpetaId ID de la carpeta renombrada
-     * @param pathViejoPadre Path viejo de la carpeta padre
-     * @param pathNuevoPadre Path nuevo de la carpeta padre
-     */
-    private void actualizarPathsHijosRecursivo(Long carpetaId, String pathViejoPadre, String pathNuevoPadre) {
-        List<Nodo> hijos = nodoRepository.findByParentIdAndIsDeletedFalseOrderByTipoDescNombreAsc(carpetaId);
-        
-        for (Nodo hijo : hijos) {
-            String pathViejoHijo = hijo.getPath();
-            String pathNuevoHijo = pathViejoHijo.replace(pathViejoPadre, pathNuevoPadre);
-            
-            hijo.setPath(pathNuevoHijo);
-            
-            // Si el hijo es archivo, actualizar también su gcsPath
-            if (hijo.getTipo() == Nodo.TipoNodo.ARCHIVO && hijo.getGcsPath() != null) {
-                String gcsPathViejo = hijo.getGcsPath();
-                String gcsPathNuevo = gcsPathViejo.replace(pathViejoPadre, pathNuevoPadre);
-                
-                try {
-                    logger.info("      🔄 Moviendo archivo hijo en GCS: {} -> {}", gcsPathViejo, gcsPathNuevo);
-                    fileStorageService.moverArchivo(gcsPathViejo, gcsPathNuevo);
-                    hijo.setGcsPath(gcsPathNuevo);
-                    
-                    // 🔄 SINCRONIZACIÓN DUAL
-                    try {
-                        moverArchivoConSincronizacion(hijo, pathNuevoHijo);
-                    } catch (Exception syncError) {
-                        logger.error("      ⚠️ Error en sincronización dual: {}", syncError.getMessage());
-                    }
-                } catch (IllegalArgumentException e) {
-                    // Archivo no existe en GCS (probablemente archivo antiguo)
-                    if (e.getMessage().contains("no encontrado en GCS") || e.getMessage().contains("not found")) {
-                        logger.warn("      ⚠️ Archivo hijo no existe en GCS: {} (continuando...)", gcsPathViejo);
-                    } else {
-                        logger.error("      ❌ Error al mover archivo hijo en GCS: {}", e.getMessage());
-                    }
-                    // Continuar con otros archivos
-                } catch (Exception e) {
-                    logger.error("      ❌ Error inesperado al mover archivo hijo en GCS: {}", e.getMessage());
-                    // Continuar con otros archivos
-                }
-            }
-            
-            nodoRepository.save(hijo);
-            
-            // Si el hijo es carpeta, recursión
-            if (hijo.getTipo() == Nodo.TipoNodo.CARPETA) {
-                actualizarPathsHijosRecursivo(hijo.getNodoId(), pathViejoHijo, pathNuevoHijo);
-            }
-        }
-    }
-
-    /**
-     * Mueve un nodo a una nueva carpeta usando el stored procedure sp_move_nodo
+     * Mueve un nodo a una nueva carpeta
      * 🔧 FASE 7.3: SINCRONIZACIÓN CON GCS
-     * - El SP actualiza parentId y path en la BD
+     * - Actualiza parentId y path del nodo en la BD
      * - Este método mueve el archivo físico en GCS a la nueva ubicación
      * - Actualiza gcsPath con la nueva ruta
-     * - Para carpetas, mueve recursivamente todos los archivos hijos en GCS
+     * - Para carpetas, reubica todo el subárbol con NodoSubarbolService
+     *   (un UPDATE por contenedor + movimientos GCS en lote)
      * 
      * @param nodoId ID del nodo a mover
      * @param nuevoParentId ID de la nueva carpeta padre (null para raíz)
      * @return true si el movimiento fue exitoso
      */
     @Transactional
-    @CacheEvict(value = {"nodosRaiz", "nodosHijos", "jerarquiasNodos"}, allEntries = true)
     public boolean moverNodo(Long nodoId, Long nuevoParentId) {
+        return moverNodo(nodoId, nuevoParentId, (FileStorageService.ProgresoLote) null);
+    }
+
+    /**
+     * Mueve un nodo reportando el avance de los movimientos en GCS (usado por jobs)
+     * @param progreso Callback de avance del subárbol (puede ser null)
+     */
+    @Transactional
+    public boolean moverNodo(Long nodoId, Long nuevoParentId, FileStorageService.ProgresoLote progreso) {
         logger.info("🚚 [MOVE] Iniciando movimiento de nodo ID: {} a padre ID: {}", nodoId, nuevoParentId);
         
         // 1. Obtener nodo antes de moverlo para guardar gcsPath viejo
@@ -461,33 +483,45 @@ public class NodoService {
             logger.info("   ☁️  GCS Path actual: {}", gcsPathViejo);
         }
         
-        // 2. Ejecutar stored procedure (actualiza parentId y path en BD)
-        StoredProcedureQuery query = entityManager.createStoredProcedureQuery("sp_move_nodo")
-                .registerStoredProcedureParameter("p_nodo_id", Long.class, jakarta.persistence.ParameterMode.IN)
-                .registerStoredProcedureParameter("p_nuevo_nodo_padre_id", Long.class, jakarta.persistence.ParameterMode.IN)
-                .setParameter("p_nodo_id", nodoId)
-                .setParameter("p_nuevo_nodo_padre_id", nuevoParentId);
-
-        try {
-            query.execute();
-            entityManager.clear(); // Limpiar cache para reflejar cambios del SP
-            logger.info("   ✅ Stored procedure ejecutado (BD actualizada)");
-        } catch (Exception e) {
-            logger.error("   ❌ Error al ejecutar stored procedure: {}", e.getMessage(), e);
-            throw new RuntimeException("Error al mover el nodo en BD: " + e.getMessage(), e);
+        // 2. Calcular path destino (mismo criterio que sp_move_nodo)
+        String pathPadre = "/";
+        if (nuevoParentId != null) {
+            Nodo nuevoPadre = obtenerPorId(nuevoParentId)
+                    .orElseThrow(() -> new IllegalArgumentException("Carpeta destino no encontrada"));
+            if (nuevoPadre.getContainerType() != nodo.getContainerType()
+                    || !nuevoPadre.getContainerId().equals(nodo.getContainerId())) {
+                throw new IllegalArgumentException("La carpeta destino pertenece a otro contenedor");
+            }
+            if (nuevoParentId.equals(nodoId) || esDescendienteDe(nuevoParentId, nodoId)) {
+                throw new IllegalArgumentException("No se puede mover una carpeta dentro de sí misma");
+            }
+            pathPadre = nuevoPadre.getPath();
         }
-        
-        // 3. Recargar nodo para obtener path actualizado por el SP
-        // FIXED: Usar find() en lugar de refresh() porque clear() desasoció la entidad
-        nodo = entityManager.find(Nodo.class, nodoId);
-        if (nodo == null) {
-            throw new IllegalStateException("Nodo no encontrado después de mover: " + nodoId);
+        String pathNuevo = "/".equals(pathPadre) ? "/" + nodo.getNombre() : pathPadre + "/" + nodo.getNombre();
+
+        // Invalidar cachés antes de reenlazar (el subárbol se lee de nodo_closure)
+        nodoCacheInvalidator.evictarCarpeta(nodo.getContainerType(), nodo.getContainerId(), nodo.getParentId());
+        nodoCacheInvalidator.evictarCarpeta(nodo.getContainerType(), nodo.getContainerId(), nuevoParentId);
+        if (esCarpeta) {
+            nodoCacheInvalidator.evictarSubarbol(nodo.getContainerType(), nodo.getContainerId(), nodoId);
         }
-        String pathNuevo = nodo.getPath();
+
+        // 3. Actualizar parentId y path del nodo
+        nodo.setParentId(nuevoParentId);
+        nodo.setPath(pathNuevo);
+        nodo.setActualizadoEn(LocalDateTime.now());
+        nodo = nodoRepository.save(nodo);
         logger.info("   📍 Path nuevo: {}", pathNuevo);
+        nodoPathCache.invalidar(nodo.getContainerType(), nodo.getContainerId(), pathViejo);
+
+        // Reenlazar el subárbol en la tabla de clausura
+        nodoClosureRepository.desconectarSubarbol(nodoId);
+        if (nuevoParentId != null) {
+            nodoClosureRepository.conectarSubarbol(nodoId, nuevoParentId);
+        }
         
-        // 4. Si es archivo, mover físicamente en GCS
-        if (esArchivo && gcsPathViejo != null) {
+        // 4. Si es archivo, mover físicamente en GCS (el contenido deduplicado no depende del path)
+        if (esArchivo && gcsPathViejo != null && !AlmacenContenidoService.esDireccionado(nodo)) {
             try {
                 // Calcular nueva ruta GCS usando el servicio de configuración
                 String gcsPathNuevo = gcsConfigService.construirRutaGCS(nodo);
@@ -529,82 +563,18 @@ public class NodoService {
             }
         }
         
-        // 5. Si es carpeta, mover recursivamente todos los archivos hijos en GCS
+        // 5. Si es carpeta, reubicar todo el subárbol (BD + GCS)
         if (esCarpeta) {
-            logger.info("   📁 Es carpeta, moviendo archivos hijos en GCS...");
-            try {
-                moverArchivosHijosEnGCS(nodoId, pathViejo, pathNuevo);
-                logger.info("   ✅ Archivos hijos movidos exitosamente");
-            } catch (Exception e) {
-                logger.error("   ❌ Error al mover archivos hijos: {}", e.getMessage(), e);
-                // No lanzar excepción aquí para no revertir el movimiento en BD
-                // Los archivos pueden moverse manualmente después
-            }
+            logger.info("   📁 Es carpeta, reubicando subárbol...");
+            int actualizados = nodoSubarbolService.reubicarDescendientes(
+                    nodo.getContainerType(), nodo.getContainerId(), nodo.getRamaId(), pathViejo, pathNuevo, progreso);
+            logger.info("   ✅ {} nodo(s) hijos reubicados", actualizados);
         }
         
         logger.info("🚚 [MOVE] Movimiento completado exitosamente");
         return true;
     }
     
-    /**
-     * Mueve recursivamente todos los archivos hijos de una carpeta en GCS
-     * @param carpetaId ID de la carpeta movida
-     * @param pathViejo Path viejo de la carpeta
-     * @param pathNuevo Path nuevo de la carpeta
-     */
-    private void moverArchivosHijosEnGCS(Long carpetaId, String pathViejo, String pathNuevo) {
-        List<Nodo> hijos = nodoRepository.findByParentIdAndIsDeletedFalseOrderByTipoDescNombreAsc(carpetaId);
-        
-        for (Nodo hijo : hijos) {
-            // Si es archivo, mover en GCS
-            if (hijo.getTipo() == Nodo.TipoNodo.ARCHIVO && hijo.getGcsPath() != null) {
-                String gcsPathViejoHijo = hijo.getGcsPath();
-                
-                // Calcular nueva ruta GCS (reemplazar path viejo por nuevo)
-                String gcsPathNuevoHijo = gcsPathViejoHijo.replace(
-                    pathViejo.substring(1), // Quitar primer '/' del path viejo
-                    pathNuevo.substring(1)  // Quitar primer '/' del path nuevo
-                );
-                
-                try {
-                    logger.info("      🔄 Moviendo archivo hijo: {} -> {}", gcsPathViejoHijo, gcsPathNuevoHijo);
-                    fileStorageService.moverArchivo(gcsPathViejoHijo, gcsPathNuevoHijo);
-                    
-                    // Actualizar gcsPath en BD
-                    hijo.setGcsPath(gcsPathNuevoHijo);
-                    nodoRepository.save(hijo);
-                    
-                    // 🔄 SINCRONIZACIÓN DUAL
-                    try {
-                        String pathNuevoHijo = hijo.getPath().replace(pathViejo, pathNuevo);
-                        moverArchivoConSincronizacion(hijo, pathNuevoHijo);
-                    } catch (Exception syncError) {
-                        logger.warn("      ⚠️ Error en sincronización dual: {}", syncError.getMessage());
-                    }
-                    
-                } catch (IllegalArgumentException e) {
-                    // Archivo no existe en GCS (probablemente archivo antiguo)
-                    if (e.getMessage().contains("no encontrado en GCS") || e.getMessage().contains("not found")) {
-                        logger.warn("      ⚠️ Archivo hijo no existe en GCS: {} (continuando...)", gcsPathViejoHijo);
-                    } else {
-                        logger.error("      ❌ Error al mover archivo hijo '{}': {}", hijo.getNombre(), e.getMessage());
-                    }
-                    // Continuar con otros archivos
-                } catch (Exception e) {
-                    logger.error("      ❌ Error al mover archivo hijo '{}': {}", hijo.getNombre(), e.getMessage());
-                    // Continuar con otros archivos
-                }
-            }
-            
-            // Si es carpeta, recursión
-            if (hijo.getTipo() == Nodo.TipoNodo.CARPETA) {
-                String pathViejoHijo = hijo.getPath();
-                String pathNuevoHijo = pathViejoHijo.replace(pathViejo, pathNuevo);
-                moverArchivosHijosEnGCS(hijo.getNodoId(), pathViejoHijo, pathNuevoHijo);
-            }
-        }
-    }
-
     /**
      * Elimina un nodo de forma lógica usando el stored procedure sp_delete_nodo_soft
      * 🔧 FASE 7.1: SINCRONIZACIÓN CON GCS
@@ -617,7 +587,6 @@ public class NodoService {
      * @return true si la eliminación fue exitosa
      */
     @Transactional
-    @CacheEvict(value = {"nodosRaiz", "nodosHijos", "jerarquiasNodos"}, allEntries = true)
     public boolean eliminarNodo(Long nodoId, Long usuarioId) {
         logger.info("🗑️ [DELETE] Iniciando eliminación de nodo ID: {}", nodoId);
         
@@ -629,7 +598,9 @@ public class NodoService {
             nodo.getNombre(), nodo.getTipo(), nodo.getGcsPath());
         
         // 2. Si es archivo, eliminar de GCS PRIMERO
-        if (nodo.getTipo() == Nodo.TipoNodo.ARCHIVO && nodo.getGcsPath() != null) {
+        //    (el contenido deduplicado se conserva para poder restaurar; PapeleraNodosService libera la referencia al purgar)
+        if (nodo.getTipo() == Nodo.TipoNodo.ARCHIVO && nodo.getGcsPath() != null
+                && !AlmacenContenidoService.esDireccionado(nodo)) {
             try {
                 logger.info("   🔥 Eliminando archivo de GCS: {}", nodo.getGcsPath());
                 boolean eliminadoGCS = fileStorageService.eliminarArchivoDeGCS(nodo.getGcsPath());
@@ -658,6 +629,12 @@ public class NodoService {
             eliminarArchivosHijosDeGCS(nodoId);
         }
         
+        nodoPathCache.invalidar(nodo.getContainerType(), nodo.getContainerId(), nodo.getPath());
+        nodoCacheInvalidator.evictarCarpeta(nodo.getContainerType(), nodo.getContainerId(), nodo.getParentId());
+        if (nodo.getTipo() == Nodo.TipoNodo.CARPETA) {
+            nodoCacheInvalidator.evictarSubarbol(nodo.getContainerType(), nodo.getContainerId(), nodoId);
+        }
+
         // 3. Hacer soft delete en BD usando stored procedure
         logger.info("   💾 Marcando nodo como eliminado en BD...");
         StoredProcedureQuery query = entityManager.createStoredProcedureQuery("sp_delete_nodo_soft")
@@ -686,7 +663,8 @@ public class NodoService {
         List<Nodo> hijos = nodoRepository.findByParentIdAndIsDeletedFalseOrderByTipoDescNombreAsc(carpetaId);
         
         for (Nodo hijo : hijos) {
-            if (hijo.getTipo() == Nodo.TipoNodo.ARCHIVO && hijo.getGcsPath() != null) {
+            if (hijo.getTipo() == Nodo.TipoNodo.ARCHIVO && hijo.getGcsPath() != null
+                    && !AlmacenContenidoService.esDireccionado(hijo)) {
                 try {
                     logger.info("      🔥 Eliminando archivo hijo de GCS: {}", hijo.getGcsPath());
                     fileStorageService.eliminarArchivoDeGCS(hijo.getGcsPath());
@@ -714,6 +692,13 @@ public class NodoService {
      */
     @Transactional
     public boolean restaurarNodo(Long nodoId) {
+        obtenerPorId(nodoId).ifPresent(nodo -> {
+            nodoCacheInvalidator.evictarCarpeta(nodo.getContainerType(), nodo.getContainerId(), nodo.getParentId());
+            if (nodo.getTipo() == Nodo.TipoNodo.CARPETA) {
+                nodoCacheInvalidator.evictarSubarbol(nodo.getContainerType(), nodo.getContainerId(), nodoId);
+            }
+        });
+
         StoredProcedureQuery query = entityManager.createStoredProcedureQuery("sp_restore_nodo")
                 .registerStoredProcedureParameter("p_nodo_id", Long.class, jakarta.persistence.ParameterMode.IN)
                 .setParameter("p_nodo_id", nodoId);
@@ -766,11 +751,20 @@ public class NodoService {
     }
 
     /**
-     * Obtiene la ruta completa de un nodo usando el stored procedure sp_get_nodo_full_path
+     * Obtiene la ruta completa de un nodo con una consulta a nodo_closure
+     * Si el nodo no está indexado, usa el stored procedure sp_get_nodo_full_path
      * @param nodoId ID del nodo
      * @return Ruta completa del nodo (ej: "/carpeta1/carpeta2/archivo.txt")
      */
     public String obtenerRutaCompleta(Long nodoId) {
+        List<Nodo> ancestros = nodoRepository.findAncestros(nodoId);
+        if (!ancestros.isEmpty()) {
+            return "/" + ancestros.stream()
+                    .map(Nodo::getNombre)
+                    .filter(nombre -> !"/".equals(nombre))
+                    .collect(Collectors.joining("/"));
+        }
+
         StoredProcedureQuery query = entityManager.createStoredProcedureQuery("sp_get_nodo_full_path")
                 .registerStoredProcedureParameter("p_nodo_id", Long.class, jakarta.persistence.ParameterMode.IN)
                 .registerStoredProcedureParameter("p_full_path", String.class, jakarta.persistence.ParameterMode.OUT)
@@ -785,11 +779,16 @@ public class NodoService {
     }
 
     /**
-     * Obtiene el tamaño total de un nodo (recursivo para carpetas) usando sp_get_nodo_size_recursive
+     * Obtiene el tamaño total de un nodo (recursivo para carpetas) con una consulta a nodo_closure
+     * Si el nodo no está indexado, usa sp_get_nodo_size_recursive
      * @param nodoId ID del nodo
      * @return Tamaño total en bytes
      */
     public Long obtenerTamanioRecursivo(Long nodoId) {
+        if (nodoClosureRepository.existsById(new NodoClosureId(nodoId, nodoId))) {
+            return nodoRepository.sumarTamanioSubarbol(nodoId);
+        }
+
         StoredProcedureQuery query = entityManager.createStoredProcedureQuery("sp_get_nodo_size_recursive")
                 .registerStoredProcedureParameter("p_nodo_id", Long.class, jakarta.persistence.ParameterMode.IN)
                 .registerStoredProcedureParameter("p_total_size", Long.class, jakarta.persistence.ParameterMode.OUT)
@@ -812,26 +811,51 @@ public class NodoService {
     public List<Map<String, Object>> obtenerJerarquiaNodo(Long nodoId) {
         List<Map<String, Object>> jerarquia = new java.util.ArrayList<>();
         
-        Nodo nodoActual = nodoRepository.findById(nodoId)
+        Nodo nodo = nodoRepository.findById(nodoId)
                 .orElseThrow(() -> new RuntimeException("Nodo no encontrado: " + nodoId));
         
-        // Construir jerarquía desde el nodo actual hacia arriba
-        while (nodoActual != null) {
+        // Orden: raíz -> ... -> actual
+        for (Nodo nodoActual : obtenerAncestros(nodo)) {
             Map<String, Object> nodoInfo = new java.util.HashMap<>();
             nodoInfo.put("nodoId", nodoActual.getNodoId());
             nodoInfo.put("nombre", nodoActual.getNombre());
             nodoInfo.put("tipo", nodoActual.getTipo().toString());
-            
-            // Agregar al inicio de la lista (para tener orden: raíz -> ... -> actual)
-            jerarquia.add(0, nodoInfo);
-            
-            // Subir al padre
-            nodoActual = nodoActual.getParent();
+            jerarquia.add(nodoInfo);
         }
         
         return jerarquia;
     }
 
+    /**
+     * Ancestros de un nodo (incluido él mismo) ordenados desde la raíz
+     * Una sola consulta a nodo_closure; si el nodo no está indexado, sube por parent_id
+     */
+    private List<Nodo> obtenerAncestros(Nodo nodo) {
+        List<Nodo> ancestros = nodoRepository.findAncestros(nodo.getNodoId());
+        if (!ancestros.isEmpty()) {
+            return ancestros;
+        }
+
+        List<Nodo> ruta = new ArrayList<>();
+        Nodo actual = nodo;
+        while (actual != null) {
+            ruta.add(0, actual);
+            actual = actual.getParentId() != null ? obtenerPorId(actual.getParentId()).orElse(null) : null;
+        }
+        return ruta;
+    }
+
+    /**
+     * Indica si un nodo está dentro del subárbol de otro (consulta por clave primaria en nodo_closure)
+     * Útil para validar movimientos y permisos heredados
+     * @param nodoId Nodo a comprobar
+     * @param ancestroId Posible ancestro
+     * @return true si nodoId está bajo ancestroId (o es el mismo nodo)
+     */
+    public boolean esDescendienteDe(Long nodoId, Long ancestroId) {
+        return nodoClosureRepository.existsById(new NodoClosureId(ancestroId, nodoId));
+    }
+
     /**
      * Busca nodos por nombre (búsqueda parcial)
      * @param nombre Nombre o parte del nombre a buscar
@@ -937,16 +961,16 @@ public class NodoService {
      * Obtiene los nodos raíz de un contenedor como DTOs
      * 
      * 🔥 FASE 6.1: CACHE MULTINIVEL
-     * - Cache key: ContainerType + ContainerId (ej: "PROYECTO:22")
+     * - Cache key: ContainerType + ContainerId + generación (ej: "PROYECTO:22:0")
      * - TTL: 5 minutos (configurado en CacheConfig)
-     * - Eviction: @CacheEvict en operaciones CRUD
+     * - Eviction: NodoCacheInvalidator, solo la entrada del contenedor afectado
      * 
      * IMPACTO:
      * - Sin cache: ~50-150ms (depende del número de archivos)
      * - Con cache hit: ~0.1-0.5ms (100-500x más rápido)
      * - Hit ratio esperado: >70% (usuarios navegan repetidamente)
      */
-    @Cacheable(value = "nodosRaiz", key = "#ContainerType + ':' + #ContainerId")
+    @Cacheable(value = "nodosRaiz", key = "@nodoCacheInvalidator.claveRaiz(#ContainerType, #ContainerId)")
     public List<NodoDTO> obtenerNodosRaizDTO(Nodo.ContainerType ContainerType, Long ContainerId) {
         logger.info("=".repeat(80));
         logger.info("📂 [NODO-SERVICE] Obteniendo nodos raíz DTO (CACHE MISS)");
@@ -985,7 +1009,7 @@ public class NodoService {
      * 🔥 FASE 6.1: CACHE MULTINIVEL
      * - Cache key: ParentId (ID de carpeta padre)
      * - TTL: 5 minutos
-     * - Eviction: @CacheEvict cuando se modifica contenido de carpeta
+     * - Eviction: NodoCacheInvalidator cuando se modifica contenido de esa carpeta
      * 
      * IMPACTO:
      * - Navegación entre carpetas: 2s → 0.3s (85% mejora)
@@ -1081,76 +1105,16 @@ public class NodoService {
 
     /**
      * Resuelve un path (ej: /src/main/java) a un nodo específico
-     * Navega la jerarquía de carpetas desde la raíz usando nombres
+     * Una sola consulta por el path materializado, respaldada por NodoPathCache
      * 
      * @param path Path relativo (ej: "src/main/java" o "/src/main/java")
      * @param containerType Tipo de contenedor (PROYECTO o REPOSITORIO)
      * @param containerId ID del contenedor
      * @return Optional con el nodo si existe, vacío si no se encuentra
+     * @throws IllegalStateException si el path existe en varias ramas del repositorio (usar resolverPathANodoConRama)
      */
     public Optional<Nodo> resolverPathANodo(String path, Nodo.ContainerType containerType, Long containerId) {
-        logger.info("🔍 [PATH-RESOLVER] Resolviendo path '{}' en {} #{}", path, containerType, containerId);
-        
-        // Si path está vacío o es "/", retornar null (indica raíz)
-        if (path == null || path.isEmpty() || path.equals("/")) {
-            logger.info("   ✅ [PATH-RESOLVER] Path vacío = raíz del contenedor");
-            return Optional.empty();
-        }
-        
-        // Limpiar path: quitar "/" inicial y final
-        String cleanPath = path.replaceAll("^/+", "").replaceAll("/+$", "");
-        if (cleanPath.isEmpty()) {
-            logger.info("   ✅ [PATH-RESOLVER] Path limpio vacío = raíz del contenedor");
-            return Optional.empty();
-        }
-        
-        // Dividir path en segmentos (nombres de carpetas)
-        String[] segmentos = cleanPath.split("/");
-        logger.info("   📂 [PATH-RESOLVER] Segmentos: {}", String.join(" > ", segmentos));
-        
-        // Empezar desde los nodos raíz del contenedor
-        List<Nodo> nodosActuales = nodoRepository.findByParentIdIsNullAndContainerTypeAndContainerIdAndIsDeletedFalseOrderByTipoDescNombreAsc(
-            containerType, containerId
-        );
-        
-        Nodo nodoActual = null;
-        
-        // Navegar segmento por segmento
-        for (int i = 0; i < segmentos.length; i++) {
-            String nombreBuscado = segmentos[i];
-            logger.info("   🔎 [PATH-RESOLVER] Buscando segmento #{}: '{}'", i + 1, nombreBuscado);
-            
-            // Buscar carpeta con este nombre en el nivel actual
-            Optional<Nodo> encontrado = nodosActuales.stream()
-                .filter(n -> n.getNombre().equals(nombreBuscado))
-                .findFirst();
-            
-            if (encontrado.isEmpty()) {
-                logger.warn("   ❌ [PATH-RESOLVER] Segmento '{}' no encontrado en nivel {}", nombreBuscado, i + 1);
-                return Optional.empty();
-            }
-            
-            nodoActual = encontrado.get();
-            logger.info("   ✅ [PATH-RESOLVER] Encontrado: {} (ID: {})", nodoActual.getNombre(), nodoActual.getNodoId());
-            
-            // Si no es el último segmento, obtener hijos para siguiente iteración
-            if (i < segmentos.length - 1) {
-                if (nodoActual.getTipo() != Nodo.TipoNodo.CARPETA) {
-                    logger.warn("   ❌ [PATH-RESOLVER] '{}' no es carpeta, pero quedan {} segmentos", 
-                               nombreBuscado, segmentos.length - i - 1);
-                    return Optional.empty();
-                }
-                nodosActuales = nodoRepository.findByParentIdAndIsDeletedFalseOrderByTipoDescNombreAsc(nodoActual.getNodoId());
-            }
-        }
-        
-        if (nodoActual == null) {
-            logger.warn("   ❌ [PATH-RESOLVER] Error: nodoActual es null al finalizar bucle");
-            return Optional.empty();
-        }
-        
-        logger.info("   ✅ [PATH-RESOLVER] Path resuelto a nodo: {} (ID: {})", nodoActual.getNombre(), nodoActual.getNodoId());
-        return Optional.of(nodoActual);
+        return resolverPath(path, containerType, containerId, null);
     }
     
     /**
@@ -1161,13 +1125,11 @@ public class NodoService {
      * @return Path completo (sin "/" inicial)
      */
     public String construirPathCompleto(Nodo nodo) {
-        List<String> segmentos = new ArrayList<>();
-        Nodo actual = nodo;
-        
-        while (actual != null && actual.getParentId() != null) {
-            segmentos.add(0, actual.getNombre());
-            actual = actual.getParent();
-        }
+        // El nodo de primer nivel (parent_id NULL) no forma parte del path
+        List<String> segmentos = obtenerAncestros(nodo).stream()
+                .filter(actual -> actual.getParentId() != null)
+                .map(Nodo::getNombre)
+                .collect(Collectors.toList());
         
         String path = String.join("/", segmentos);
         logger.debug("📁 [PATH-BUILDER] Nodo #{} -> Path: '{}'", nodo.getNodoId(), path);
@@ -1196,20 +1158,7 @@ public class NodoService {
         
         // Construir ruta de carpetas desde la raíz hasta el nodo actual
         // INCLUIR todos los nodos hasta llegar a la raíz del contenedor
-        List<Nodo> rutaCarpetas = new ArrayList<>();
-        Nodo actual = nodo;
-        
-        // Agregar el nodo actual y todos sus ancestros
-        while (actual != null) {
-            rutaCarpetas.add(0, actual); // Insertar al inicio para mantener orden
-            
-            if (actual.getParentId() != null) {
-                actual = obtenerPorId(actual.getParentId()).orElse(null);
-            } else {
-                // Ya llegamos a un nodo raíz (parent_id = NULL), detener
-                break;
-            }
-        }
+        List<Nodo> rutaCarpetas = obtenerAncestros(nodo);
         
         // Agregar cada carpeta al breadcrumb CON PATH DINÁMICO
         StringBuilder pathAcumulado = new StringBuilder();
@@ -1253,14 +1202,10 @@ public class NodoService {
             "isActive", false
         ));
         
-        // Construir ruta de carpetas desde la raíz hasta el nodo actual
-        List<Nodo> rutaCarpetas = new ArrayList<>();
-        Nodo actual = nodo;
-        while (actual.getParentId() != null) {
-            rutaCarpetas.add(0, actual); // Insertar al inicio
-            actual = obtenerPorId(actual.getParentId()).orElse(null);
-            if (actual == null) break;
-        }
+        // Construir ruta de carpetas desde la raíz hasta el nodo actual (sin el nodo de primer nivel)
+        List<Nodo> rutaCarpetas = obtenerAncestros(nodo).stream()
+                .filter(actual -> actual.getParentId() != null)
+                .collect(Collectors.toList());
         
         // Agregar cada carpeta al breadcrumb
         for (int i = 0; i < rutaCarpetas.size() - 1; i++) {
@@ -1285,11 +1230,45 @@ public class NodoService {
         return breadcrumbs;
     }
 
+    /**
+     * Deja solo el último segmento de un nombre de archivo (los navegadores pueden enviar rutas completas)
+     */
+    public String limpiarNombreArchivo(String originalFilename) {
+        if (originalFilename != null && (originalFilename.contains("/") || originalFilename.contains("\\"))) {
+            int lastSlash = Math.max(
+                originalFilename.lastIndexOf('/'), 
+                originalFilename.lastIndexOf('\\')
+            );
+            return originalFilename.substring(lastSlash + 1);
+        }
+        return originalFilename;
+    }
+
+    /**
+     * Ruta GCS que tendrá un archivo nuevo según su carpeta padre
+     * @param projectId ID del proyecto padre (si el repositorio pertenece a un proyecto), puede ser null
+     */
+    public String construirRutaGcsNuevoArchivo(String nombreArchivo, Nodo.ContainerType ContainerType, Long ContainerId,
+                                               Long parentNodeId, Long projectId) {
+        String path = (parentNodeId == null) ? "/" + nombreArchivo 
+                : obtenerPorId(parentNodeId).map(p -> p.getPath() + "/" + nombreArchivo)
+                  .orElse("/" + nombreArchivo);
+        
+        Nodo tempNodo = new Nodo();
+        tempNodo.setContainerType(ContainerType);
+        tempNodo.setContainerId(ContainerId);
+        tempNodo.setPath(path);
+        
+        // Usar el método con projectId si está disponible
+        return (projectId != null) 
+            ? gcsConfigService.construirRutaGCS(tempNodo, projectId)
+            : gcsConfigService.construirRutaGCS(tempNodo);
+    }
+
     /**
      * Sube un archivo a GCS y crea el nodo en BD
      */
     @Transactional
-    @CacheEvict(value = {"nodosRaiz", "nodosHijos", "jerarquiasNodos"}, allEntries = true)
     public Nodo subirArchivo(MultipartFile file, Nodo.ContainerType ContainerType, Long ContainerId,
                             Long parentNodeId, Long usuarioId) throws Exception {
         return subirArchivo(file, ContainerType, ContainerId, parentNodeId, usuarioId, null);
@@ -1311,62 +1290,44 @@ public class NodoService {
         
         // 🔥 EXTRAER SOLO EL NOMBRE BASE DEL ARCHIVO (sin ruta completa)
         String originalFilename = file.getOriginalFilename();
-        final String nombreArchivo;
-        
-        // Si el nombre contiene rutas (separadores / o \), extraer solo el último segmento
-        if (originalFilename != null && (originalFilename.contains("/") || originalFilename.contains("\\"))) {
-            int lastSlash = Math.max(
-                originalFilename.lastIndexOf('/'), 
-                originalFilename.lastIndexOf('\\')
-            );
-            nombreArchivo = originalFilename.substring(lastSlash + 1);
-        } else {
-            nombreArchivo = originalFilename;
-        }
+        final String nombreArchivo = limpiarNombreArchivo(originalFilename);
         
         logger.debug("📝 [NOMBRE ARCHIVO] Original: {} → Limpio: {}", originalFilename, nombreArchivo);
         
-        // 1. Construir ruta GCS
-        String path = (parentNodeId == null) ? "/" + nombreArchivo 
-                : obtenerPorId(parentNodeId).map(p -> p.getPath() + "/" + nombreArchivo)
-                  .orElse("/" + nombreArchivo);
-        
-        Nodo tempNodo = new Nodo();
-        tempNodo.setContainerType(ContainerType);
-        tempNodo.setContainerId(ContainerId);
-        tempNodo.setPath(path);
+        // 1. Guardar el contenido en el almacén deduplicado (si ya existe no se sube nada)
+        AlmacenContenidoService.ContenidoAlmacenado contenido = almacenContenidoService.almacenar(file);
         
-        // Usar el método con projectId si está disponible
-        String rutaGCS = (projectId != null) 
-            ? gcsConfigService.construirRutaGCS(tempNodo, projectId)
-            : gcsConfigService.construirRutaGCS(tempNodo);
-        
-        // 2. Subir archivo a GCS
-        Map<String, Object> metadata = new HashMap<>();
-        metadata.put("container_type", ContainerType.toString());
-        metadata.put("container_id", ContainerId.toString());
-        if (projectId != null) {
-            metadata.put("project_id", projectId.toString());
-        }
-        Map<String, String> metadataStr = metadata.entrySet().stream()
-            .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toString()));
-        
-        fileStorageService.subirArchivo(file, rutaGCS, metadataStr);
-        
-        // 3. Crear nodo en BD con el nombre limpio (sin ruta completa)
+        // 2. Crear nodo en BD con el nombre limpio (sin ruta completa)
         Usuario usuario = new Usuario();
         usuario.setUsuarioId(usuarioId);
         
-        return crearNodoArchivo(
-            nombreArchivo,  // 🔥 Usar nombre limpio en lugar de file.getOriginalFilename()
-            ContainerType,
-            ContainerId,
-            parentNodeId,
-            rutaGCS,
-            file.getSize(),
-            file.getContentType(),
-            usuario
-        );
+        Nodo archivo;
+        try {
+            archivo = crearNodoArchivo(
+                nombreArchivo,  // 🔥 Usar nombre limpio en lugar de file.getOriginalFilename()
+                ContainerType,
+                ContainerId,
+                parentNodeId,
+                contenido.gcsPath(),
+                file.getSize(),
+                file.getContentType(),
+                usuario,
+                contenido.hash()
+            );
+        } catch (RuntimeException e) {
+            // Sin nodo no hay referencia: el contenido queda para la recolección si nadie más lo usa
+            almacenContenidoService.liberar(contenido.hash());
+            throw e;
+        }
+        
+        // Generación del objeto subido: ETag de las descargas sin consultar GCS
+        if (contenido.generacion() != null) {
+            nodoRepository.guardarGeneracionGcs(archivo.getNodoId(), contenido.gcsPath(), contenido.generacion());
+            archivo.setGcsGeneration(contenido.generacion());
+        }
+        logger.debug("📦 [UPLOAD] {} -> {} ({})", nombreArchivo, contenido.hash(),
+                contenido.duplicado() ? "contenido existente" : "contenido nuevo");
+        return archivo;
     }
 
     /**
@@ -1412,7 +1373,6 @@ public class NodoService {
      * @throws Exception si hay error al subir el archivo
      */
     @Transactional
-    @CacheEvict(value = {"nodosRaiz", "nodosHijos", "jerarquiasNodos"}, allEntries = true)
     public Nodo subirArchivoConSincronizacionDual(MultipartFile file, Nodo.ContainerType ContainerType, 
                                                    Long ContainerId, Long parentNodeId, Long usuarioId) throws Exception {
         
@@ -1454,6 +1414,10 @@ public class NodoService {
      * @throws Exception si hay error al sincronizar
      */
     private void sincronizarArchivoEnProyecto(Nodo nodo, Long proyectoId, MultipartFile file) throws Exception {
+        if (AlmacenContenidoService.esDireccionado(nodo)) {
+            // El contenido deduplicado es compartido: no hace falta una copia por proyecto
+            return;
+        }
         // Construir la ruta en el proyecto: proyectos/{projectId}/repositorios/{repoId}/path/file
         String rutaEnProyecto = gcsConfigService.construirRutaGCS(nodo, proyectoId);
         
@@ -1612,7 +1576,7 @@ public class NodoService {
 
     /**
      * Resuelve un path a un nodo específico considerando la rama (branch)
-     * Similar a resolverPathANodo pero filtra por rama_id
+     * Similar a resolverPathANodo pero exige que la carpeta de primer nivel sea de la rama
      * 
      * @param path Path relativo (ej: "src/main/java")
      * @param containerType Tipo de contenedor (PROYECTO o REPOSITORIO)
@@ -1622,78 +1586,56 @@ public class NodoService {
      */
     public Optional<Nodo> resolverPathANodoConRama(String path, Nodo.ContainerType containerType, 
                                                     Long containerId, Long ramaId) {
-        logger.info("🔍 [PATH-RESOLVER-RAMA] Resolviendo path '{}' en {} #{} rama #{}", 
-                   path, containerType, containerId, ramaId);
-        
-        // Si path está vacío o es "/", retornar null (indica raíz)
-        if (path == null || path.isEmpty() || path.equals("/")) {
-            logger.info("   ✅ [PATH-RESOLVER-RAMA] Path vacío = raíz del contenedor");
+        return resolverPath(path, containerType, containerId, ramaId);
+    }
+
+    /**
+     * Resolución común: normaliza el path al formato guardado en nodo.path ("/a/b/c"),
+     * consulta el caché y, si no hay entrada válida, hace una única búsqueda en BD
+     * Un path vacío o "/" devuelve vacío (indica raíz del contenedor)
+     */
+    private Optional<Nodo> resolverPath(String path, Nodo.ContainerType containerType, Long containerId, Long ramaId) {
+        if (path == null) {
             return Optional.empty();
         }
-        
-        // Limpiar path
         String cleanPath = path.replaceAll("^/+", "").replaceAll("/+$", "");
         if (cleanPath.isEmpty()) {
-            logger.info("   ✅ [PATH-RESOLVER-RAMA] Path limpio vacío = raíz del contenedor");
             return Optional.empty();
         }
-        
-        // Dividir path en segmentos
-        String[] segmentos = cleanPath.split("/");
-        logger.info("   📂 [PATH-RESOLVER-RAMA] Segmentos: {}", String.join(" > ", segmentos));
-        
-        // Empezar desde los nodos raíz del contenedor FILTRADO POR RAMA
-        List<Nodo> nodosActuales;
-        if (ramaId != null) {
-            nodosActuales = nodoRepository.findByParentIdIsNullAndContainerTypeAndContainerIdAndRamaIdAndIsDeletedFalse(
-                containerType, containerId, ramaId
-            );
-        } else {
-            nodosActuales = nodoRepository.findByParentIdIsNullAndContainerTypeAndContainerIdAndIsDeletedFalseOrderByTipoDescNombreAsc(
-                containerType, containerId
-            );
-        }
-        
-        Nodo nodoActual = null;
-        
-        // Navegar segmento por segmento
-        for (int i = 0; i < segmentos.length; i++) {
-            String nombreBuscado = segmentos[i];
-            logger.info("   🔎 [PATH-RESOLVER-RAMA] Buscando segmento #{}: '{}'", i + 1, nombreBuscado);
-            
-            // Buscar carpeta con este nombre en el nivel actual
-            Optional<Nodo> encontrado = nodosActuales.stream()
-                .filter(n -> n.getNombre().equals(nombreBuscado))
-                .findFirst();
-            
-            if (encontrado.isEmpty()) {
-                logger.warn("   ❌ [PATH-RESOLVER-RAMA] Segmento '{}' no encontrado en nivel {}", nombreBuscado, i + 1);
-                return Optional.empty();
-            }
-            
-            nodoActual = encontrado.get();
-            logger.info("   ✅ [PATH-RESOLVER-RAMA] Encontrado: {} (ID: {}, Rama: {})", 
-                       nodoActual.getNombre(), nodoActual.getNodoId(), nodoActual.getRamaId());
-            
-            // Si no es el último segmento, obtener hijos para siguiente iteración
-            if (i < segmentos.length - 1) {
-                if (nodoActual.getTipo() != Nodo.TipoNodo.CARPETA) {
-                    logger.warn("   ❌ [PATH-RESOLVER-RAMA] '{}' no es carpeta, pero quedan {} segmentos", 
-                               nombreBuscado, segmentos.length - i - 1);
-                    return Optional.empty();
-                }
-                nodosActuales = nodoRepository.findByParentIdAndIsDeletedFalseOrderByTipoDescNombreAsc(nodoActual.getNodoId());
+        String pathGuardado = "/" + cleanPath;
+
+        // 1. Caché: se valida contra el nodo real (por clave primaria) antes de usarlo
+        Long nodoIdCache = nodoPathCache.obtener(containerType, containerId, ramaId, pathGuardado);
+        if (nodoIdCache != null) {
+            Optional<Nodo> nodo = nodoRepository.findById(nodoIdCache)
+                    .filter(n -> !Boolean.TRUE.equals(n.getIsDeleted())
+                            && n.getContainerType() == containerType
+                            && n.getContainerId().equals(containerId)
+                            && pathGuardado.equals(n.getPath()));
+            if (nodo.isPresent()) {
+                return nodo;
             }
+            nodoPathCache.invalidar(containerType, containerId, pathGuardado);
         }
-        
-        if (nodoActual == null) {
-            logger.warn("   ❌ [PATH-RESOLVER-RAMA] Error: nodoActual es null al finalizar bucle");
+
+        // 2. Una sola consulta por (contenedor, path[, rama])
+        List<Long> candidatos = nodoRepository
+                .resolverNodoIdsPorPath(containerType.name(), containerId, pathGuardado, ramaId);
+        if (candidatos.size() > 1) {
+            // El mismo path existe en varias ramas: sin rama no se puede elegir uno
+            logger.warn("⚠️ [PATH-RESOLVER] '{}' es ambiguo en {} #{} (rama {}): nodos {}",
+                    pathGuardado, containerType, containerId, ramaId, candidatos);
+            throw new IllegalStateException("El path '" + pathGuardado + "' existe en varias ramas; indique la rama");
+        }
+        Optional<Nodo> nodo = candidatos.stream().findFirst().flatMap(nodoRepository::findById);
+        if (nodo.isEmpty()) {
+            logger.debug("🔍 [PATH-RESOLVER] '{}' no encontrado en {} #{} (rama {})",
+                    pathGuardado, containerType, containerId, ramaId);
             return Optional.empty();
         }
-        
-        logger.info("   ✅ [PATH-RESOLVER-RAMA] Path resuelto a nodo: {} (ID: {})", 
-                   nodoActual.getNombre(), nodoActual.getNodoId());
-        return Optional.of(nodoActual);
+
+        nodoPathCache.guardar(containerType, containerId, ramaId, pathGuardado, nodo.get().getNodoId());
+        return nodo;
     }
 
     /**
@@ -1723,19 +1665,8 @@ public class NodoService {
         
         // Construir ruta de carpetas desde la raíz hasta el nodo actual
         if (nodo != null) {
-            List<Nodo> rutaCarpetas = new ArrayList<>();
-            Nodo actual = nodo;
-            
             // Agregar el nodo actual y todos sus ancestros
-            while (actual != null) {
-                rutaCarpetas.add(0, actual);
-                
-                if (actual.getParentId() != null) {
-                    actual = obtenerPorId(actual.getParentId()).orElse(null);
-                } else {
-                    break;
-                }
-            }
+            List<Nodo> rutaCarpetas = obtenerAncestros(nodo);
             
             // Agregar cada carpeta al breadcrumb CON PATH DINÁMICO
             StringBuilder pathAcumulado = new StringBuilder();
@@ -1797,17 +1728,7 @@ public class NodoService {
         
         // Construir ruta de carpetas
         if (nodo != null) {
-            List<Nodo> rutaCarpetas = new ArrayList<>();
-            Nodo actual = nodo;
-            
-            while (actual != null) {
-                rutaCarpetas.add(0, actual);
-                if (actual.getParentId() != null) {
-                    actual = obtenerPorId(actual.getParentId()).orElse(null);
-                } else {
-                    break;
-                }
-            }
+            List<Nodo> rutaCarpetas = obtenerAncestros(nodo);
             
             StringBuilder pathAcumulado = new StringBuilder();
             for (int i = 0; i < rutaCarpetas.size(); i++) {
@@ -0,0 +1,216 @@
+package org.project.project.service;
+
+import org.project.project.model.entity.Nodo;
+import org.project.project.repository.NodoRepository;
+import org.project.project.repository.ProyectoHasRepositorioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Motor de operaciones sobre subárboles de nodos (renombrar / mover carpetas)
+ * Usa el path materializado en lugar de recorrer hijo por hijo:
+ * - Una consulta obtiene todos los archivos del subárbol con objeto en GCS
+ * - Los objetos se copian en lotes paralelos (FileStorageService.copiarArchivosEnLote)
+ * - Un único UPDATE reescribe path y gcs_path de todos los descendientes del contenedor
+ * - Los orígenes se borran solo tras el commit; si la transacción se revierte se borran las copias,
+ *   así las filas nunca apuntan a un objeto que ya no existe
+ * - Si el repositorio pertenece a proyectos, sus copias en GCS se mueven en el mismo pase
+ */
+@Service
+public class NodoSubarbolService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodoSubarbolService.class);
+
+    @Autowired
+    private NodoRepository nodoRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private GCSConfigService gcsConfigService;
+
+    @Autowired
+    private ProyectoHasRepositorioRepository proyectoHasRepositorioRepository;
+
+    /**
+     * Reubica todos los descendientes de una carpeta cuyo path cambió
+     * Debe ejecutarse en la misma transacción que actualiza la carpeta
+     * Los archivos que no se pudieron copiar en GCS conservan su gcs_path original
+     * Los objetos de origen se borran después del commit (ver moverAlConfirmar)
+     *
+     * @param containerType Tipo de contenedor de la carpeta
+     * @param containerId ID del contenedor
+     * @param ramaId Rama de la carpeta (null fuera de repositorios); las demás ramas no se tocan
+     * @param pathViejo Path anterior de la carpeta (ej: "/src/old")
+     * @param pathNuevo Path nuevo de la carpeta (ej: "/lib/new")
+     * @param progreso Callback de avance de los movimientos en GCS (puede ser null)
+     * @return Cantidad de descendientes actualizados en BD
+     */
+    @Transactional
+    public int reubicarDescendientes(Nodo.ContainerType containerType, Long containerId, Long ramaId,
+                                     String pathViejo, String pathNuevo,
+                                     FileStorageService.ProgresoLote progreso) {
+        if (pathViejo.equals(pathNuevo)) {
+            return 0;
+        }
+
+        logger.info("🌳 [SUBÁRBOL] {} {}: '{}' -> '{}'", containerType, containerId, pathViejo, pathNuevo);
+
+        String patron = escaparLike(pathViejo) + "/%";
+        String gcsViejo = construirRutaGCS(containerType, containerId, pathViejo, null);
+        String gcsNuevo = construirRutaGCS(containerType, containerId, pathNuevo, null);
+
+        // 1. Archivos del subárbol con objeto en GCS (una sola consulta)
+        List<Object[]> archivos = nodoRepository.findArchivosSubarbol(containerType, containerId, ramaId, patron);
+
+        Map<String, String> movimientos = new LinkedHashMap<>();
+        Map<String, Long> nodoPorOrigen = new HashMap<>();
+        List<Object[]> archivosConCopia = new ArrayList<>();
+        for (Object[] fila : archivos) {
+            Long nodoId = (Long) fila[0];
+            String gcsPath = (String) fila[2];
+            if (gcsConfigService.esRutaContenido(gcsPath)) {
+                // Contenido deduplicado: el objeto no depende del path y no tiene copias en proyectos
+                continue;
+            }
+            archivosConCopia.add(fila);
+            if (gcsPath.startsWith(gcsViejo + "/")) {
+                movimientos.put(gcsPath, gcsNuevo + gcsPath.substring(gcsViejo.length()));
+                nodoPorOrigen.put(gcsPath, nodoId);
+            } else {
+                // Ruta GCS fuera del layout estándar: se deja donde está (igual que el UPDATE)
+                logger.warn("   ⚠️ gcsPath fuera del layout esperado, no se mueve: {}", gcsPath);
+            }
+        }
+        logger.info("   📄 {} archivo(s) a mover en GCS", movimientos.size());
+
+        // 2. Copiar objetos en GCS (los orígenes se conservan hasta el commit)
+        Set<String> noMovidos = movimientos.isEmpty()
+                ? Set.of()
+                : fileStorageService.copiarArchivosEnLote(movimientos, progreso);
+        moverAlConfirmar(movimientos, noMovidos);
+
+        // 🔄 SINCRONIZACIÓN DUAL: copias del repositorio dentro de proyectos
+        if (containerType == Nodo.ContainerType.REPOSITORIO && !archivosConCopia.isEmpty()) {
+            moverCopiasEnProyectos(containerId, archivosConCopia, pathViejo, pathNuevo);
+        }
+
+        // 3. Reescribir paths de todo el subárbol en un único UPDATE
+        int actualizados = nodoRepository.actualizarPathsSubarbol(
+                containerType.name(), containerId, ramaId, patron, pathViejo, pathNuevo,
+                escaparLike(gcsViejo) + "/%", gcsViejo, gcsNuevo);
+
+        // 4. Los objetos que siguen en su ruta original mantienen su gcs_path
+        for (String origen : noMovidos) {
+            nodoRepository.actualizarGcsPath(nodoPorOrigen.get(origen), origen);
+        }
+
+        logger.info("🌳 [SUBÁRBOL] {} nodo(s) actualizados, {} archivo(s) sin mover en GCS",
+                actualizados, noMovidos.size());
+        return actualizados;
+    }
+
+    /**
+     * Mueve las copias de los archivos en los proyectos a los que pertenece el repositorio
+     * Los errores solo se registran (igual que la sincronización dual archivo por archivo)
+     */
+    private void moverCopiasEnProyectos(Long repositorioId, List<Object[]> archivos,
+                                        String pathViejo, String pathNuevo) {
+        List<Long> proyectos = proyectoHasRepositorioRepository.findById_RepositoryId(repositorioId).stream()
+                .map(phr -> phr.getProject().getProyectoId())
+                .collect(Collectors.toList());
+        if (proyectos.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> movimientos = new LinkedHashMap<>();
+        for (Long proyectoId : proyectos) {
+            for (Object[] fila : archivos) {
+                String path = (String) fila[1];
+                String pathDestino = pathNuevo + path.substring(pathViejo.length());
+                movimientos.put(
+                        construirRutaGCS(Nodo.ContainerType.REPOSITORIO, repositorioId, path, proyectoId),
+                        construirRutaGCS(Nodo.ContainerType.REPOSITORIO, repositorioId, pathDestino, proyectoId));
+            }
+        }
+
+        logger.info("   🚚 Moviendo {} copia(s) en {} proyecto(s)...", movimientos.size(), proyectos.size());
+        Set<String> noCopiados = fileStorageService.copiarArchivosEnLote(movimientos, null);
+        moverAlConfirmar(movimientos, noCopiados);
+    }
+
+    /**
+     * Completa un movimiento en dos fases al terminar la transacción:
+     * tras el commit borra los orígenes copiados; tras un rollback borra los destinos
+     */
+    private void moverAlConfirmar(Map<String, String> movimientos, Set<String> noCopiados) {
+        List<String> origenes = new ArrayList<>();
+        List<String> destinos = new ArrayList<>();
+        movimientos.forEach((origen, destino) -> {
+            if (!noCopiados.contains(origen)) {
+                origenes.add(origen);
+                destinos.add(destino);
+            }
+        });
+        if (origenes.isEmpty()) {
+            return;
+        }
+        alTerminar(true, () -> fileStorageService.eliminarArchivosEnLote(origenes));
+        alTerminar(false, () -> {
+            logger.warn("   ↩️ Transacción revertida, eliminando {} copia(s) en GCS", destinos.size());
+            fileStorageService.eliminarArchivosEnLote(destinos);
+        });
+    }
+
+    /**
+     * Ejecuta la acción al terminar la transacción actual: tras confirmar (siConfirma=true)
+     * o tras revertir (siConfirma=false). Sin transacción activa, solo se ejecuta si siConfirma.
+     */
+    private void alTerminar(boolean siConfirma, Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (siConfirma) {
+                accion.run();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (siConfirma ? status == STATUS_COMMITTED : status == STATUS_ROLLED_BACK) {
+                    accion.run();
+                }
+            }
+        });
+    }
+
+    private String construirRutaGCS(Nodo.ContainerType containerType, Long containerId, String path, Long proyectoId) {
+        Nodo nodo = new Nodo();
+        nodo.setContainerType(containerType);
+        nodo.setContainerId(containerId);
+        nodo.setPath(path);
+        return proyectoId != null
+                ? gcsConfigService.construirRutaGCS(nodo, proyectoId)
+                : gcsConfigService.construirRutaGCS(nodo);
+    }
+
+    /**
+     * Escapa comodines de LIKE usando '!' como carácter de escape
+     */
+    private String escaparLike(String valor) {
+        return valor.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
@@ -0,0 +1,58 @@
+package org.project.project.service;
+
+import org.project.project.repository.NodoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Purga de la papelera de nodos
+ * - eliminarNodo solo marca is_deleted (se puede restaurar) y conserva la referencia al contenido deduplicado
+ * - Pasados files.papelera.retencion-dias, el subárbol se borra definitivamente y sus referencias se liberan;
+ *   la recolección de AlmacenContenidoService reclama luego los blobs que quedan en 0
+ * - Cada subárbol se purga en su propia transacción (NodeService.purgarSubarbolEliminado); si se restauró
+ *   mientras tanto, se omite
+ */
+@Service
+public class PapeleraNodosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PapeleraNodosService.class);
+
+    @Autowired
+    private NodoRepository nodoRepository;
+
+    @Autowired
+    private NodeService nodeService;
+
+    @Value("${files.papelera.retencion-dias:30}")
+    private int retencionDias;
+
+    @Value("${files.papelera.lote:200}")
+    private int tamanioLote;
+
+    @Scheduled(initialDelayString = "${files.papelera.initial-delay-ms:300000}",
+               fixedDelayString = "${files.papelera.interval-ms:3600000}")
+    public void purgarProgramado() {
+        LocalDateTime limite = LocalDateTime.now().minusDays(retencionDias);
+        List<Long> raices = nodoRepository.findRaicesEnPapeleraAntesDe(limite, tamanioLote);
+        int purgados = 0;
+        for (Long nodoId : raices) {
+            try {
+                if (nodeService.purgarSubarbolEliminado(nodoId)) {
+                    purgados++;
+                }
+            } catch (Exception e) {
+                logger.warn("⚠️ [PAPELERA] No se pudo purgar el nodo {}: {}", nodoId, e.getMessage());
+            }
+        }
+        if (purgados > 0) {
+            logger.info("🧹 [PAPELERA] {} subárbol(es) eliminados hace más de {} días purgados", purgados, retencionDias);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.project.project.service;
+
+import org.project.project.model.entity.Repositorio;
+import org.project.project.model.entity.UsuarioHasRepositorio;
+import org.project.project.repository.UsuarioHasRepositorioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caché "permisos": privilegio de un usuario en un repositorio (PROPIETARIO, ADMINISTRADOR, EDITOR, LECTOR o SIN_ACCESO)
+ * - Una entrada por usuario y repositorio (clave userId:repositorioId); el batch consulta solo los que faltan,
+ *   así una invalidación puntual también afecta a los listados
+ * - Usa el CacheManager directamente: funciona igual llamado desde otro servicio o desde este mismo
+ * - Quien cambia colaboradores o propietarios llama a invalidar(userId, repositorioId) o, si afecta a muchos
+ *   usuarios (borrar un repositorio o un usuario), a invalidarTodo()
+ */
+@Service
+public class PermisoRepositorioCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PermisoRepositorioCacheService.class);
+    private static final String CACHE = "permisos";
+
+    @Autowired
+    private UsuarioHasRepositorioRepository usuarioHasRepositorioRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * Privilegio del usuario en el repositorio
+     * @param creadoPorId Creador del repositorio (es PROPIETARIO sin consultar la tabla de colaboradores)
+     */
+    public String obtener(Long userId, Long repositorioId, Long creadoPorId) {
+        Cache cache = cacheManager.getCache(CACHE);
+        String clave = clave(userId, repositorioId);
+        String cacheado = cache != null ? cache.get(clave, String.class) : null;
+        if (cacheado != null) {
+            return cacheado;
+        }
+
+        String privilegio;
+        if (creadoPorId != null && creadoPorId.equals(userId)) {
+            privilegio = "PROPIETARIO";
+        } else {
+            privilegio = usuarioHasRepositorioRepository
+                    .findById_UserIdAndId_RepositoryId(userId, repositorioId)
+                    .map(rel -> rel.getPrivilegio().toString())
+                    .orElse("SIN_ACCESO");
+        }
+        if (cache != null) {
+            cache.put(clave, privilegio);
+        }
+        return privilegio;
+    }
+
+    /**
+     * Privilegios del usuario en varios repositorios: los no cacheados se resuelven en una sola query
+     * @return Map repositorioId -> privilegio
+     */
+    public Map<Long, String> obtenerBatch(Long userId, List<Repositorio> repositorios) {
+        Cache cache = cacheManager.getCache(CACHE);
+        Map<Long, String> permisos = new HashMap<>();
+        List<Long> pendientes = new ArrayList<>();
+
+        for (Repositorio repo : repositorios) {
+            String cacheado = cache != null ? cache.get(clave(userId, repo.getRepositorioId()), String.class) : null;
+            if (cacheado != null) {
+                permisos.put(repo.getRepositorioId(), cacheado);
+            } else if (repo.getCreadoPorUsuarioId() != null && repo.getCreadoPorUsuarioId().equals(userId)) {
+                permisos.put(repo.getRepositorioId(), "PROPIETARIO");
+                guardar(cache, userId, repo.getRepositorioId(), "PROPIETARIO");
+            } else {
+                pendientes.add(repo.getRepositorioId());
+            }
+        }
+
+        if (!pendientes.isEmpty()) {
+            Map<Long, String> encontrados = new HashMap<>();
+            for (UsuarioHasRepositorio rel : usuarioHasRepositorioRepository.findByUsuarioIdAndRepositorioIdIn(userId, pendientes)) {
+                encontrados.put(rel.getId().getRepositoryId(), rel.getPrivilegio().toString());
+            }
+            for (Long repositorioId : pendientes) {
+                String privilegio = encontrados.getOrDefault(repositorioId, "SIN_ACCESO");
+                permisos.put(repositorioId, privilegio);
+                guardar(cache, userId, repositorioId, privilegio);
+            }
+        }
+
+        logger.debug("🔍 Permisos batch: {} repositorios, {} consultados", permisos.size(), pendientes.size());
+        return permisos;
+    }
+
+    /**
+     * Elimina el privilegio cacheado de un usuario en un repositorio
+     * Dentro de una transacción se repite al terminarla (ver UsuarioCacheService.invalidar)
+     */
+    public void invalidar(Long userId, Long repositorioId) {
+        despuesDeTransaccion(() -> evictar(userId, repositorioId));
+    }
+
+    /**
+     * Vacía el caché de permisos (cambios que afectan a muchos usuarios o repositorios)
+     */
+    public void invalidarTodo() {
+        despuesDeTransaccion(this::vaciar);
+    }
+
+    private void despuesDeTransaccion(Runnable invalidacion) {
+        invalidacion.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidacion.run();
+                }
+            });
+        }
+    }
+
+    private void evictar(Long userId, Long repositorioId) {
+        Cache cache = cacheManager.getCache(CACHE);
+        if (cache != null) {
+            cache.evict(clave(userId, repositorioId));
+            logger.debug("🗑️ [CACHE] permisos: invalidado {}:{}", userId, repositorioId);
+        }
+    }
+
+    private void vaciar() {
+        Cache cache = cacheManager.getCache(CACHE);
+        if (cache != null) {
+            cache.clear();
+            logger.info("🗑️ [CACHE] permisos: vaciado");
+        }
+    }
+
+    private static void guardar(Cache cache, Long userId, Long repositorioId, String privilegio) {
+        if (cache != null) {
+            cache.put(clave(userId, repositorioId), privilegio);
+        }
+    }
+
+    private static String clave(Long userId, Long repositorioId) {
+        return userId + ":" + repositorioId;
+    }
+}
@@ -1,20 +1,14 @@
 package org.project.project.service;
 
+import org.project.project.model.dto.UsuarioCacheado;
 import org.project.project.model.entity.Repositorio;
-import org.project.project.model.entity.Usuario;
-import org.project.project.model.entity.UsuarioHasRepositorio;
-import org.project.project.repository.UsuarioHasRepositorioRepository;
-import org.project.project.repository.UsuarioRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -32,6 +26,9 @@ import java.util.stream.Collectors;
  * - Tiempo total: ~10-20ms
  * 
  * MEJORA: 100x más rápido (de ~2s a ~0.02s)
+ *
+ * El caché de permisos vive en PermisoRepositorioCacheService (bean aparte: una llamada desde
+ * esta misma clase a un método @Cacheable no pasaría por el proxy de caché)
  */
 @Service
 public class PermissionService {
@@ -39,13 +36,13 @@ public class PermissionService {
     private static final Logger log = LoggerFactory.getLogger(PermissionService.class);
     
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private PermisoRepositorioCacheService permisoRepositorioCacheService;
     
     @Autowired
-    private UsuarioHasRepositorioRepository usuarioHasRepositorioRepository;
+    private UsuarioCacheService usuarioCacheService;
     
     /**
-     * Obtiene el usuario autenticado actual (con caché)
+     * Obtiene el usuario autenticado actual (resumen inmutable cacheado en UsuarioCacheService)
      * Este método se llama MUCHO, por eso es crítico cachearlo
      * 
      * IMPACTO:
@@ -53,42 +50,23 @@ public class PermissionService {
      * - Con caché: ~0.1ms
      * - Hit ratio esperado: >95% (mismo usuario hace múltiples requests)
      */
-    @Cacheable(value = "usuarios", key = "'auth:' + #username")
-    public Usuario obtenerUsuarioAutenticado(String username) {
-        return usuarioRepository.findByUsername(username).orElse(null);
+    public UsuarioCacheado obtenerUsuarioAutenticado(String username) {
+        return usuarioCacheService.obtenerPorUsername(username);
     }
     
     /**
      * Obtiene el permiso de un usuario en un repositorio específico (con caché)
      * 
-     * CACHEABLE: Clave compuesta por userId + repositorioId
-     * - Duración: 10 minutos
-     * - Invalidación: Al cambiar permisos (@CacheEvict en otros métodos)
+     * CACHÉ: entrada userId:repositorioId en "permisos" (10 minutos)
+     * - Invalidación: PermisoRepositorioCacheService.invalidar al cambiar colaboradores o propietario
      * 
      * IMPACTO:
      * - Sin caché: ~80ms por query
      * - Con caché: ~0.1ms (800x más rápido)
      * - Hit ratio esperado: >70%
      */
-    @Cacheable(value = "permisos", key = "#userId + ':' + #repositorioId")
     public String obtenerPermisoRepositorio(Long userId, Long repositorioId, Long creadoPorId) {
-        log.debug("🔍 Buscando permiso - Usuario: {}, Repo: {}", userId, repositorioId);
-        
-        // Verificar si es propietario (creador)
-        if (creadoPorId != null && creadoPorId.equals(userId)) {
-            log.debug("✅ Usuario es PROPIETARIO");
-            return "PROPIETARIO";
-        }
-        
-        // Buscar en tabla de permisos
-        return usuarioHasRepositorioRepository
-            .findById_UserIdAndId_RepositoryId(userId, repositorioId)
-            .map(rel -> {
-                String privilegio = rel.getPrivilegio().toString();
-                log.debug("✅ Privilegio encontrado: {}", privilegio);
-                return privilegio;
-            })
-            .orElse("SIN_ACCESO");
+        return permisoRepositorioCacheService.obtener(userId, repositorioId, creadoPorId);
     }
     
     /**
@@ -96,7 +74,7 @@ public class PermissionService {
      * 
      * Este es el método CLAVE para eliminar el N+1:
      * - Antes: 20 repositorios = 20 queries individuales
-     * - Ahora: 20 repositorios = 1 query batch
+     * - Ahora: 20 repositorios = 1 query batch (solo para los que no están en caché)
      * 
      * MEJORA: 20x menos queries, ~40x más rápido
      * 
@@ -104,43 +82,8 @@ public class PermissionService {
      * @param repositorios Lista de repositorios
      * @return Map con repositorioId -> privilegio
      */
-    @Cacheable(value = "permisos", key = "'batch:' + #userId + ':' + #repositorios.![repositorioId].toString()")
     public Map<Long, String> obtenerPermisosBatch(Long userId, List<Repositorio> repositorios) {
-        log.warn("�🔥🔥 PERMISSION SERVICE BATCH - Usuario: {}, Repos: {}", userId, repositorios.size());
-        
-        Map<Long, String> permisos = new HashMap<>();
-        
-        // Primero marcar propietarios
-        for (Repositorio repo : repositorios) {
-            if (repo.getCreadoPorUsuarioId() != null && repo.getCreadoPorUsuarioId().equals(userId)) {
-                permisos.put(repo.getRepositorioId(), "PROPIETARIO");
-            }
-        }
-        
-        // Obtener IDs de repos que no son propiedad del usuario
-        List<Long> repoIds = repositorios.stream()
-            .filter(r -> !permisos.containsKey(r.getRepositorioId()))
-            .map(Repositorio::getRepositorioId)
-            .collect(Collectors.toList());
-        
-        if (!repoIds.isEmpty()) {
-            // UNA SOLA QUERY para todos los permisos
-            List<UsuarioHasRepositorio> relaciones = usuarioHasRepositorioRepository
-                .findByUsuarioIdAndRepositorioIdIn(userId, repoIds);
-            
-            // Mapear resultados
-            for (UsuarioHasRepositorio rel : relaciones) {
-                permisos.put(rel.getId().getRepositoryId(), rel.getPrivilegio().toString());
-            }
-        }
-        
-        // Rellenar repos sin permiso con "SIN_ACCESO"
-        for (Repositorio repo : repositorios) {
-            permisos.putIfAbsent(repo.getRepositorioId(), "SIN_ACCESO");
-        }
-        
-        log.info("✅ Permisos batch obtenidos: {} repositorios procesados", permisos.size());
-        return permisos;
+        return permisoRepositorioCacheService.obtenerBatch(userId, repositorios);
     }
     
     /**
@@ -156,14 +99,14 @@ public class PermissionService {
         }
         
         String username = auth.getName();
-        Usuario usuario = obtenerUsuarioAutenticado(username);
+        UsuarioCacheado usuario = obtenerUsuarioAutenticado(username);
         
         if (usuario == null) {
             return "SIN_ACCESO";
         }
         
         return obtenerPermisoRepositorio(
-            usuario.getUsuarioId(), 
+            usuario.usuarioId(), 
             repositorio.getRepositorioId(),
             repositorio.getCreadoPorUsuarioId()
         );
@@ -181,30 +124,13 @@ public class PermissionService {
         }
         
         String username = auth.getName();
-        Usuario usuario = obtenerUsuarioAutenticado(username);
+        UsuarioCacheado usuario = obtenerUsuarioAutenticado(username);
         
         if (usuario == null) {
             return repositorios.stream()
                 .collect(Collectors.toMap(Repositorio::getRepositorioId, r -> "SIN_ACCESO"));
         }
         
-        return obtenerPermisosBatch(usuario.getUsuarioId(), repositorios);
-    }
-    
-    /**
-     * Invalida el caché de permisos cuando se modifican
-     * Llamar después de agregar/quitar colaboradores o cambiar roles
-     */
-    @CacheEvict(value = "permisos", allEntries = true)
-    public void invalidarCachePermisos() {
-        log.info("🗑️ Caché de permisos invalidado");
-    }
-    
-    /**
-     * Invalida caché de un permiso específico
-     */
-    @CacheEvict(value = "permisos", key = "#userId + ':' + #repositorioId")
-    public void invalidarPermisoEspecifico(Long userId, Long repositorioId) {
-        log.info("🗑️ Caché invalidado - Usuario: {}, Repo: {}", userId, repositorioId);
+        return obtenerPermisosBatch(usuario.usuarioId(), repositorios);
     }
 }
@@ -43,6 +43,8 @@ public class PlatformUserManagementService {
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
     private final TokenService tokenService;
+    private final UsuarioCacheService usuarioCacheService;
+    private final PermisoRepositorioCacheService permisoRepositorioCacheService;
 
     public PlatformUserManagementService(UsuarioRepository usuarioRepository,
                                        RolRepository rolRepository,
@@ -52,7 +54,9 @@ public class PlatformUserManagementService {
                                        TicketHasUsuarioRepository ticketHasUsuarioRepository,
                                        PasswordEncoder passwordEncoder,
                                        EmailService emailService,
-                                       TokenService tokenService) {
+                                       TokenService tokenService,
+                                       UsuarioCacheService usuarioCacheService,
+                                       PermisoRepositorioCacheService permisoRepositorioCacheService) {
         this.usuarioRepository = usuarioRepository;
         this.rolRepository = rolRepository;
         this.feedbackRepository = feedbackRepository;
@@ -62,6 +66,8 @@ public class PlatformUserManagementService {
         this.passwordEncoder = passwordEncoder;
         this.emailService = emailService;
         this.tokenService = tokenService;
+        this.usuarioCacheService = usuarioCacheService;
+        this.permisoRepositorioCacheService = permisoRepositorioCacheService;
     }
 
     /**
@@ -252,6 +258,7 @@ public class PlatformUserManagementService {
 
         usuario.setEstadoUsuario(Usuario.EstadoUsuario.HABILITADO);
         Usuario usuarioActualizado = usuarioRepository.save(usuario);
+        usuarioCacheService.invalidar(usuarioActualizado.getUsername());
 
         logger.info("Usuario habilitado exitosamente: {} - Nuevo estado: {}",
             usuarioActualizado.getUsername(), usuarioActualizado.getEstadoUsuario());
@@ -272,6 +279,7 @@ public class PlatformUserManagementService {
 
         usuario.setEstadoUsuario(Usuario.EstadoUsuario.INHABILITADO);
         Usuario usuarioActualizado = usuarioRepository.save(usuario);
+        usuarioCacheService.invalidar(usuarioActualizado.getUsername());
 
         logger.info("Usuario inhabilitado exitosamente: {} - Nuevo estado: {}",
             usuarioActualizado.getUsername(), usuarioActualizado.getEstadoUsuario());
@@ -305,6 +313,7 @@ public class PlatformUserManagementService {
         try {
             logger.info("🔍 PASO 1: Obteniendo información del usuario...");
             Usuario usuario = obtenerUsuarioPorId(id);
+            usuarioCacheService.invalidar(usuario.getUsername());
             logger.info("   ✅ Usuario encontrado:");
             logger.info("      - ID: {}", usuario.getUsuarioId());
             logger.info("      - Username: {}", usuario.getUsername());
@@ -433,6 +442,7 @@ public class PlatformUserManagementService {
             logger.info("   2.4 - Eliminando usuario_has_repositorio...");
             usuarioRepository.deleteUsuarioHasRepositorioByUserId(id);
             usuarioRepository.flush();
+            permisoRepositorioCacheService.invalidarTodo();
             logger.info("      ✅ usuario_has_repositorio eliminados");
             
             logger.info("   2.5 - Eliminando usuario_has_rol...");
@@ -34,6 +34,9 @@ import java.util.HashMap;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.ArrayList;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ProjectService {
@@ -68,6 +71,9 @@ public class ProjectService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private ConteoCacheService conteoCacheService;
+
     public List<Proyecto> listarProyectos() {
         return proyectoRepository.findAll();
     }
@@ -998,4 +1004,79 @@ public class ProjectService {
             .toList();
     }
 
+    // =================== PAGINACIÓN POR CURSOR (keyset) ===================
+
+    /**
+     * ✅ CURSOR: Página de proyectos de una sección del dashboard (personal, team, all u other) - 12 por página
+     * La siguiente página se pide con el cursor devuelto, sin OFFSET; el total es un conteo cacheado
+     * @param cursor Cursor devuelto por la página anterior (null o vacío = primera página)
+     */
+    public CursorPaginacion.Pagina<Map<String, Object>> obtenerProyectosPorCursor(String seccion, Long userId, String category,
+                                                                                  String search, String sort, String cursor) {
+        String orden = CursorPaginacion.normalizarOrden(sort);
+        CursorPaginacion.Posicion posicion = CursorPaginacion.decodificar(cursor, orden);
+        String cursorValor = posicion != null ? posicion.valor() : null;
+        Long cursorId = posicion != null ? posicion.id() : null;
+        int limit = CursorPaginacion.TAMANIO_PAGINA + 1;
+
+        // 1. Query keyset (pide un elemento extra para saber si hay página siguiente)
+        List<Proyecto> projects = switch (seccion) {
+            case "personal" -> proyectoQueryService.findPersonalProjectsKeyset(userId, category, search, orden, cursorValor, cursorId, limit);
+            case "team" -> proyectoQueryService.findTeamProjectsKeyset(userId, category, search, orden, cursorValor, cursorId, limit);
+            case "all" -> proyectoQueryService.findParticipatingProjectsKeyset(userId, category, search, orden, cursorValor, cursorId, limit);
+            case "other" -> proyectoQueryService.findOtherProjectsKeyset(userId, category, search, orden, cursorValor, cursorId, limit);
+            default -> throw new IllegalArgumentException("Sección de proyectos no válida: " + seccion);
+        };
+
+        String siguienteCursor = null;
+        if (projects.size() > CursorPaginacion.TAMANIO_PAGINA) {
+            projects = projects.subList(0, CursorPaginacion.TAMANIO_PAGINA);
+            Proyecto ultimo = projects.get(projects.size() - 1);
+            siguienteCursor = CursorPaginacion.codificar(orden,
+                    "name".equals(orden) ? ultimo.getNombreProyecto() : ultimo.getFechaInicioProyecto(),
+                    ultimo.getProyectoId());
+        }
+
+        // 2. Recargar con JOIN FETCH para eliminar N+1, conservando el orden de la query keyset
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (!projects.isEmpty()) {
+            List<Long> projectIds = projects.stream().map(Proyecto::getProyectoId).toList();
+            Map<Long, Proyecto> cargados = proyectoQueryService.findByIdsWithRelations(projectIds).stream()
+                    .collect(Collectors.toMap(Proyecto::getProyectoId, Function.identity(), (a, b) -> a));
+            List<Proyecto> ordenados = projectIds.stream().map(cargados::get).filter(Objects::nonNull).toList();
+
+            String privilegio = switch (seccion) {
+                case "personal" -> "PROPIETARIO";
+                case "other" -> "LECTURA";
+                default -> "COLABORADOR";
+            };
+            result = convertirProyectosAMapaBatch(ordenados, privilegio);
+
+            // "Donde participo" mezcla ambos: privilegio dinámico según el propietario
+            if ("all".equals(seccion)) {
+                for (int i = 0; i < ordenados.size(); i++) {
+                    if (ordenados.get(i).getPropietarioProyecto() == Proyecto.PropietarioProyecto.USUARIO) {
+                        result.get(i).put("privilegio_usuario_actual", "PROPIETARIO");
+                    }
+                }
+            }
+        }
+
+        return new CursorPaginacion.Pagina<>(result, siguienteCursor, contarProyectos(seccion, userId, category, search));
+    }
+
+    /**
+     * ✅ Total de proyectos de una sección con los filtros dados (COUNT cacheado, sin cargar entidades)
+     */
+    public long contarProyectos(String seccion, Long userId, String category, String search) {
+        String clave = ConteoCacheService.clave("proyectos:" + seccion, userId, category, search);
+        return switch (seccion) {
+            case "personal" -> conteoCacheService.contar(clave, () -> proyectoQueryService.countPersonalProjects(userId, category, search));
+            case "team" -> conteoCacheService.contar(clave, () -> proyectoQueryService.countTeamProjects(userId, category, search));
+            case "all" -> conteoCacheService.contar(clave, () -> proyectoQueryService.countParticipatingProjects(userId, category, search));
+            case "other" -> conteoCacheService.contar(clave, () -> proyectoQueryService.countOtherProjects(userId, category, search));
+            default -> throw new IllegalArgumentException("Sección de proyectos no válida: " + seccion);
+        };
+    }
+
 }
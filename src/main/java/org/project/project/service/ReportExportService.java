@@ -1,15 +1,30 @@
 package org.project.project.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.project.project.model.dto.ReportMetricsDTO;
+import org.project.project.repository.ProyectoRepository;
+import org.project.project.repository.RepositorioRepository;
+import org.project.project.repository.TicketRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -23,6 +38,10 @@ import java.util.Map;
  * Formatos soportados:
  * - Excel (.xlsx) - usando Apache POI
  * - CSV (.csv) - generación manual
+ *
+ * Modo detalle (streaming): una fila por proyecto, repositorio y ticket, leídas por páginas keyset
+ * y escritas directamente en la respuesta (SXSSF con ventana fija de filas), con memoria constante
+ * aunque la exportación de plataforma (SA) tenga cientos de miles de filas
  * 
  * @author jleon
  * @since 2025-01-23
@@ -33,6 +52,25 @@ public class ReportExportService {
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
 
+    private static final int MAX_FILAS_HOJA = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    @Autowired
+    private ProyectoRepository proyectoRepository;
+
+    @Autowired
+    private RepositorioRepository repositorioRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    // Filas que SXSSF mantiene en memoria por hoja (el resto se vuelca a un temporal comprimido)
+    @Value("${reports.export.ventana-filas:500}")
+    private int ventanaFilas;
+
+    // Filas por consulta keyset
+    @Value("${reports.export.pagina:2000}")
+    private int tamanioPagina;
+
     // ==================== EXCEL EXPORT ====================
 
     /**
@@ -398,6 +436,171 @@ public class ReportExportService {
         }
     }
 
+    // ==================== EXPORTACIÓN DETALLADA EN STREAMING ====================
+
+    /**
+     * Fuente de filas paginada por keyset: la primera columna de cada fila es el id (orden ascendente)
+     */
+    @FunctionalInterface
+    private interface PaginaExportacion {
+        List<Object[]> siguiente(Long usuarioId, Long despuesDe, int limite);
+    }
+
+    private record HojaDetalle(String nombre, String[] columnas, PaginaExportacion fuente) {
+    }
+
+    private List<HojaDetalle> hojasDetalle() {
+        return List.of(
+                new HojaDetalle("Proyectos",
+                        new String[]{"ID", "Nombre", "Propietario", "Nombre Propietario", "Estado", "Visibilidad",
+                                "Fecha Inicio", "Fecha Fin"},
+                        proyectoRepository::findPaginaExportacion),
+                new HojaDetalle("Repositorios",
+                        new String[]{"ID", "Nombre", "Tipo", "Visibilidad", "Rama Principal", "Fecha Creación",
+                                "Última Actividad", "Tamaño (bytes)"},
+                        repositorioRepository::findPaginaExportacion),
+                new HojaDetalle("Tickets",
+                        new String[]{"ID", "Asunto", "Tipo", "Estado", "Etapa", "Prioridad", "Fecha Creación",
+                                "Fecha Cierre", "Proyecto ID", "Reportado Por", "Asignado A"},
+                        ticketRepository::findPaginaExportacion));
+    }
+
+    /**
+     * Exporta el detalle (proyectos, repositorios, tickets) a Excel escribiendo directamente en la salida
+     *
+     * @param usuarioId Usuario cuyo detalle se exporta (null = toda la plataforma)
+     * @param out Salida de la respuesta HTTP (no se cierra)
+     * @return Total de filas de datos escritas
+     */
+    public long exportarDetalleExcel(Long usuarioId, OutputStream out) throws IOException {
+        long inicio = System.currentTimeMillis();
+        long total = 0;
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ventanaFilas);
+        workbook.setCompressTempFiles(true);
+        try {
+            CellStyle headerStyle = crearEstiloHeader(workbook);
+
+            for (HojaDetalle hoja : hojasDetalle()) {
+                int parte = 1;
+                Sheet sheet = crearHojaDetalle(workbook, hoja, parte, headerStyle);
+                int rowNum = 1;
+
+                long despuesDe = 0;
+                List<Object[]> pagina;
+                do {
+                    pagina = hoja.fuente().siguiente(usuarioId, despuesDe, tamanioPagina);
+                    for (Object[] fila : pagina) {
+                        if (rowNum >= MAX_FILAS_HOJA) {
+                            sheet = crearHojaDetalle(workbook, hoja, ++parte, headerStyle);
+                            rowNum = 1;
+                        }
+                        Row row = sheet.createRow(rowNum++);
+                        for (int col = 0; col < fila.length; col++) {
+                            escribirCelda(row.createCell(col), fila[col]);
+                        }
+                    }
+                    total += pagina.size();
+                    if (!pagina.isEmpty()) {
+                        despuesDe = ((Number) pagina.get(pagina.size() - 1)[0]).longValue();
+                    }
+                } while (pagina.size() == tamanioPagina);
+            }
+
+            workbook.write(out);
+            out.flush();
+            log.info("Excel detallado generado: {} filas en {} ms (usuario: {})",
+                    total, System.currentTimeMillis() - inicio, usuarioId != null ? usuarioId : "plataforma");
+            return total;
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Exporta el detalle (proyectos, repositorios, tickets) a CSV escribiendo cada página en la salida
+     *
+     * @param usuarioId Usuario cuyo detalle se exporta (null = toda la plataforma)
+     * @param out Salida de la respuesta HTTP (no se cierra)
+     * @return Total de filas de datos escritas
+     */
+    public long exportarDetalleCSV(Long usuarioId, OutputStream out) throws IOException {
+        long inicio = System.currentTimeMillis();
+        long total = 0;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        boolean primera = true;
+        for (HojaDetalle hoja : hojasDetalle()) {
+            if (!primera) {
+                writer.append("\n");
+            }
+            primera = false;
+            writer.append(hoja.nombre().toUpperCase()).append("\n");
+            writer.append(String.join(",", hoja.columnas())).append("\n");
+
+            long despuesDe = 0;
+            List<Object[]> pagina;
+            do {
+                pagina = hoja.fuente().siguiente(usuarioId, despuesDe, tamanioPagina);
+                for (Object[] fila : pagina) {
+                    for (int col = 0; col < fila.length; col++) {
+                        if (col > 0) {
+                            writer.append(',');
+                        }
+                        writer.append(escapeCsvValue(formatearValor(fila[col])));
+                    }
+                    writer.append("\n");
+                }
+                total += pagina.size();
+                if (!pagina.isEmpty()) {
+                    despuesDe = ((Number) pagina.get(pagina.size() - 1)[0]).longValue();
+                }
+                writer.flush();
+            } while (pagina.size() == tamanioPagina);
+        }
+
+        writer.flush();
+        log.info("CSV detallado generado: {} filas en {} ms (usuario: {})",
+                total, System.currentTimeMillis() - inicio, usuarioId != null ? usuarioId : "plataforma");
+        return total;
+    }
+
+    private Sheet crearHojaDetalle(Workbook workbook, HojaDetalle hoja, int parte, CellStyle headerStyle) {
+        Sheet sheet = workbook.createSheet(parte == 1 ? hoja.nombre() : hoja.nombre() + " (" + parte + ")");
+        Row header = sheet.createRow(0);
+        for (int col = 0; col < hoja.columnas().length; col++) {
+            Cell cell = header.createCell(col);
+            cell.setCellValue(hoja.columnas()[col]);
+            cell.setCellStyle(headerStyle);
+            // Ancho fijo: autoSizeColumn necesitaría recorrer todas las filas
+            sheet.setColumnWidth(col, (col == 1 ? 40 : 18) * 256);
+        }
+        sheet.createFreezePane(0, 1);
+        return sheet;
+    }
+
+    private void escribirCelda(Cell cell, Object valor) {
+        if (valor instanceof Number numero) {
+            cell.setCellValue(numero.doubleValue());
+        } else if (valor != null) {
+            cell.setCellValue(formatearValor(valor));
+        }
+    }
+
+    private String formatearValor(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().format(DATE_FORMATTER);
+        }
+        if (valor instanceof LocalDateTime fecha) {
+            return fecha.format(DATE_FORMATTER);
+        }
+        return valor.toString();
+    }
+
     // ==================== ESTILOS EXCEL ====================
 
     /**
@@ -12,6 +12,7 @@ import org.project.project.model.entity.ReporteAdjunto;
 import org.project.project.repository.ReporteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.awt.Color;
 import java.io.ByteArrayOutputStream;
@@ -68,7 +69,10 @@ public class ReportePdfExportService {
 
     /**
      * Exporta un reporte a PDF profesional
+     * Transaccional porque se ejecuta en los workers de ReportePdfRenderService (fuera de la petición)
+     * y recorre relaciones LAZY del reporte
      */
+    @Transactional(readOnly = true)
     public ByteArrayOutputStream exportarReporteAPdf(Long reporteId) throws IOException {
         log.info("📄 Iniciando generación de PDF profesional para reporte ID={}", reporteId);
 
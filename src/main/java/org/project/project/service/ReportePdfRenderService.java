@@ -0,0 +1,187 @@
+package org.project.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.project.project.repository.ReporteRepository;
+import org.project.project.service.storage.BlobStore;
+import org.project.project.service.storage.MetadatosBlob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * ReportePdfRenderService - Renderizado asíncrono de PDFs de reportes con caché en storage
+ *
+ * - Cada PDF se guarda en reportes/pdf/reporte-{id}/{actualizado_en}.pdf: la versión es la fecha de
+ *   última modificación del reporte, así que solo se vuelve a renderizar cuando el reporte cambia
+ * - Los renders se ejecutan en pdfRenderExecutor (pool y cola acotados); peticiones simultáneas
+ *   del mismo reporte y versión comparten un único render
+ * - Al guardar una versión nueva se eliminan los PDFs anteriores del mismo reporte
+ */
+@Service
+@Slf4j
+public class ReportePdfRenderService {
+
+    private static final String PREFIJO = "reportes/pdf/";
+    private static final DateTimeFormatter FORMATO_VERSION = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    @Autowired
+    private ReportePdfExportService reportePdfExportService;
+
+    @Autowired
+    private ReporteRepository reporteRepository;
+
+    @Autowired
+    @Qualifier("devportalBlobStore")
+    private BlobStore blobStore;
+
+    @Autowired
+    @Qualifier("pdfRenderExecutor")
+    private Executor pdfRenderExecutor;
+
+    public enum EstadoRender {
+        NO_SOLICITADO, EN_PROCESO, LISTO, ERROR
+    }
+
+    /**
+     * Estado del PDF de la versión actual de un reporte (respuesta del endpoint de estado)
+     */
+    public record EstadoPdf(Long reporteId, String version, EstadoRender estado, Long tamanioBytes, String error) {
+    }
+
+    private record ClaveRender(Long reporteId, String version) {
+    }
+
+    // Renders en curso: una sola tarea por reporte y versión
+    private final Map<ClaveRender, CompletableFuture<MetadatosBlob>> enCurso = new ConcurrentHashMap<>();
+
+    // Último error por versión, para el endpoint de estado
+    private final Cache<ClaveRender, String> errores = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    /**
+     * Devuelve el PDF de la versión actual del reporte: inmediato si ya está en storage,
+     * si no, el render en curso o uno nuevo encolado
+     * @throws IllegalArgumentException si el reporte no existe
+     */
+    public CompletableFuture<MetadatosBlob> solicitar(Long reporteId) {
+        ClaveRender clave = claveActual(reporteId);
+        MetadatosBlob cacheado = blobStore.obtener(ruta(clave));
+        if (cacheado != null) {
+            return CompletableFuture.completedFuture(cacheado);
+        }
+
+        CompletableFuture<MetadatosBlob> nuevo = new CompletableFuture<>();
+        CompletableFuture<MetadatosBlob> existente = enCurso.putIfAbsent(clave, nuevo);
+        if (existente != null) {
+            return existente;
+        }
+
+        try {
+            pdfRenderExecutor.execute(() -> {
+                try {
+                    nuevo.complete(renderizar(clave));
+                } catch (Exception e) {
+                    log.error("❌ Error renderizando el PDF del reporte {} (versión {}): {}",
+                            clave.reporteId(), clave.version(), e.getMessage(), e);
+                    errores.put(clave, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                    nuevo.completeExceptionally(e);
+                } finally {
+                    enCurso.remove(clave, nuevo);
+                }
+            });
+            log.info("📥 PDF del reporte {} (versión {}) encolado para render", reporteId, clave.version());
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ Cola de render de PDFs llena, se rechaza el reporte {}", reporteId);
+            enCurso.remove(clave, nuevo);
+            nuevo.completeExceptionally(e);
+        }
+        return nuevo;
+    }
+
+    /**
+     * Estado del PDF de la versión actual del reporte
+     * @throws IllegalArgumentException si el reporte no existe
+     */
+    public EstadoPdf estado(Long reporteId) {
+        ClaveRender clave = claveActual(reporteId);
+        MetadatosBlob cacheado = blobStore.obtener(ruta(clave));
+        if (cacheado != null) {
+            return new EstadoPdf(reporteId, clave.version(), EstadoRender.LISTO, cacheado.tamanio(), null);
+        }
+        if (enCurso.containsKey(clave)) {
+            return new EstadoPdf(reporteId, clave.version(), EstadoRender.EN_PROCESO, null, null);
+        }
+        String error = errores.getIfPresent(clave);
+        if (error != null) {
+            return new EstadoPdf(reporteId, clave.version(), EstadoRender.ERROR, null, error);
+        }
+        return new EstadoPdf(reporteId, clave.version(), EstadoRender.NO_SOLICITADO, null, null);
+    }
+
+    /**
+     * Copia un PDF ya renderizado a la salida en bloques
+     * @return Bytes copiados
+     */
+    public long copiarA(MetadatosBlob pdf, OutputStream salida) throws IOException {
+        try (InputStream entrada = Channels.newInputStream(blobStore.abrirLectura(pdf.ruta(), BlobStore.BLOQUE_LECTURA))) {
+            return entrada.transferTo(salida);
+        }
+    }
+
+    private MetadatosBlob renderizar(ClaveRender clave) throws IOException {
+        long inicio = System.currentTimeMillis();
+        byte[] pdf = reportePdfExportService.exportarReporteAPdf(clave.reporteId()).toByteArray();
+
+        String ruta = ruta(clave);
+        MetadatosBlob guardado = blobStore.guardar(ruta, pdf, "application/pdf",
+                Map.of("reporteId", clave.reporteId().toString(), "version", clave.version()));
+        errores.invalidate(clave);
+
+        // Las demás versiones del mismo reporte ya no se pueden pedir, pero solo si esta sigue siendo la vigente:
+        // un render lento de una versión vieja no borra el PDF de una más nueva (lo limpia el siguiente render vigente)
+        boolean vigente = reporteRepository.findActualizadoEnById(clave.reporteId())
+                .map(actualizadoEn -> actualizadoEn.format(FORMATO_VERSION).equals(clave.version()))
+                .orElse(false);
+        if (vigente) {
+            for (MetadatosBlob anterior : blobStore.listar(PREFIJO + "reporte-" + clave.reporteId() + "/")) {
+                if (!anterior.ruta().equals(ruta)) {
+                    blobStore.eliminar(anterior.ruta());
+                }
+            }
+        } else {
+            log.info("ℹ️ El reporte {} cambió durante el render de la versión {}, no se limpian otras versiones",
+                    clave.reporteId(), clave.version());
+        }
+
+        log.info("✅ PDF del reporte {} (versión {}) renderizado y guardado en {} ms ({}KB)",
+                clave.reporteId(), clave.version(), System.currentTimeMillis() - inicio, pdf.length / 1024);
+        return guardado;
+    }
+
+    private ClaveRender claveActual(Long reporteId) {
+        LocalDateTime actualizadoEn = reporteRepository.findActualizadoEnById(reporteId)
+                .orElseThrow(() -> new IllegalArgumentException("Reporte no encontrado: " + reporteId));
+        return new ClaveRender(reporteId, actualizadoEn.format(FORMATO_VERSION));
+    }
+
+    private String ruta(ClaveRender clave) {
+        return PREFIJO + "reporte-" + clave.reporteId() + "/" + clave.version() + ".pdf";
+    }
+}
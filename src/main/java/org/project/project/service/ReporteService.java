@@ -9,10 +9,14 @@ import org.project.project.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -66,6 +70,12 @@ public class ReporteService {
     @Autowired
     private ReporteAdjuntoRepository reporteAdjuntoRepository;
 
+    @Autowired
+    private GoogleCloudStorageService gcsService;
+
+    @Autowired
+    private LectorBlobAdjuntos lectorBlobAdjuntos;
+
     // Repositorios de entidades (USAR SIN MODIFICAR)
     @Autowired
     private APIRepository apiRepository;
@@ -157,6 +167,14 @@ public class ReporteService {
         return mapToDetailDTO(reporte);
     }
 
+    /**
+     * Indica si el usuario puede ver el reporte (autor; destinatarios y revisores PO/SA una vez enviado)
+     */
+    @Transactional(readOnly = true)
+    public boolean puedeVerReporte(Long reporteId, Long usuarioId, boolean esRevisor) {
+        return reporteRepository.esVisiblePara(reporteId, usuarioId, esRevisor);
+    }
+
     /**
      * Lista todos los reportes del usuario (ENVIADOS).
      */
@@ -1594,7 +1612,8 @@ public class ReporteService {
     }
     
     /**
-     * Obtiene adjunto completo con contenido binario para descarga
+     * Obtiene el adjunto para descarga (solo metadatos: el binario se lee en streaming
+     * con escribirContenidoAdjunto, desde el storage o desde el BLOB heredado)
      */
     @Transactional(readOnly = true)
     public ReporteAdjunto obtenerAdjuntoCompleto(Long adjuntoId) {
@@ -1603,6 +1622,37 @@ public class ReporteService {
                 .orElse(null);
     }
 
+    /**
+     * Indica si el adjunto tiene contenido descargable
+     */
+    public boolean tieneContenido(ReporteAdjunto adjunto) {
+        if (estaEnStorage(adjunto)) {
+            return true;
+        }
+        return reporteAdjuntoRepository.countContenidoHeredado(adjunto.getAdjuntoId()) > 0;
+    }
+
+    /**
+     * Copia el contenido del adjunto a la salida sin cargarlo completo en memoria
+     * - Migrado: se lee del storage por bloques
+     * - Pendiente de migrar: se lee el BLOB de reporte_adjunto por tramos (LectorBlobAdjuntos; la entidad no lo mapea)
+     *
+     * @return Bytes copiados
+     */
+    public long escribirContenidoAdjunto(ReporteAdjunto adjunto, OutputStream salida) throws IOException {
+        if (estaEnStorage(adjunto)) {
+            return gcsService.copiarA(adjunto.getGcsFilePath(), salida);
+        }
+
+        try (InputStream entrada = lectorBlobAdjuntos.abrir(adjunto.getAdjuntoId())) {
+            return entrada == null ? 0L : entrada.transferTo(salida);
+        }
+    }
+
+    private boolean estaEnStorage(ReporteAdjunto adjunto) {
+        return Boolean.TRUE.equals(adjunto.getGcsMigrado()) && adjunto.getGcsFilePath() != null;
+    }
+
     /**
      * Obtiene un reporte por ID (entidad completa)
      */
@@ -1628,12 +1678,17 @@ public class ReporteService {
         // Remover el adjunto de la colección del reporte (para mantener consistencia en la relación bidireccional)
         if (reporte != null && reporte.getAdjuntos() != null) {
             reporte.getAdjuntos().remove(adjunto);
-            // Persistir el cambio en el reporte
+            // Persistir el cambio en el reporte (la nueva fecha invalida su PDF renderizado)
+            reporte.setActualizadoEn(LocalDateTime.now());
             reporteRepository.save(reporte);
         }
         
-        // Eliminar el adjunto de la base de datos
+        // Eliminar el adjunto de la base de datos (y su archivo del storage, una vez confirmado)
+        String gcsFilePath = estaEnStorage(adjunto) ? adjunto.getGcsFilePath() : null;
         reporteAdjuntoRepository.deleteById(adjuntoId);
+        if (gcsFilePath != null) {
+            alTerminar(true, () -> gcsService.deleteFile(gcsFilePath));
+        }
         
         // Forzar la sincronización inmediata con la base de datos
         entityManager.flush();
@@ -1662,6 +1717,7 @@ public class ReporteService {
                         .max()
                         .orElse(0) + 1;
 
+        int guardados = 0;
         for (org.springframework.web.multipart.MultipartFile file : adjuntos) {
             if (!file.isEmpty()) {
                 try {
@@ -1676,17 +1732,37 @@ public class ReporteService {
                     adjunto.setNombreArchivo(file.getOriginalFilename());
                     adjunto.setTipoMime(file.getContentType());
                     adjunto.setTamanoBytes(file.getSize());
-                    adjunto.setContenidoArchivo(file.getBytes()); // Guardar binario en BD
-                    adjunto.setRutaArchivo(null); // NULL porque está en contenido_archivo
-                    adjunto.setGcsMigrado(false); // No está en GCS
+                    adjunto.setGcsMigrado(false);
                     adjunto.setOrdenVisualizacion(orden++);
                     adjunto.setSubidoEn(LocalDateTime.now());
                     adjunto.setSubidoPor(usuario);
                     adjunto.setVersionNumero(1);
                     adjunto.setEsVersionActual(true);
-                    
+
+                    // Primero la fila (para tener el ID que forma la ruta), luego el binario al storage
+                    adjunto = reporteAdjuntoRepository.save(adjunto);
+                    GoogleCloudStorageService.GcsFileInfo info;
+                    try (InputStream contenido = file.getInputStream()) {
+                        info = gcsService.subirAdjunto(reporte.getReporteId(), adjunto.getAdjuntoId(),
+                                file.getOriginalFilename(), file.getContentType(), contenido,
+                                adjunto.getSubidoEn(), usuario != null ? usuario.getUsuarioId() : null);
+                    } catch (Exception e) {
+                        reporteAdjuntoRepository.delete(adjunto);
+                        throw e;
+                    }
+                    // Si la transacción no se confirma, el archivo subido quedaría huérfano
+                    String gcsFilePath = info.getGcsFilePath();
+                    alTerminar(false, () -> gcsService.deleteFile(gcsFilePath));
+
+                    adjunto.setRutaArchivo(info.getGcsFilePath());
+                    adjunto.setGcsFileId(info.getGcsFileId());
+                    adjunto.setGcsBucketName(info.getGcsBucketName());
+                    adjunto.setGcsFilePath(info.getGcsFilePath());
+                    adjunto.setGcsFileSizeBytes(info.getGcsFileSizeBytes());
+                    adjunto.setGcsMigrado(true);
                     reporteAdjuntoRepository.save(adjunto);
-                    log.info("✅ Adjunto guardado: {} ({} bytes)", 
+                    guardados++;
+                    log.info("✅ Adjunto guardado en storage: {} ({} bytes)", 
                              adjunto.getNombreArchivo(), adjunto.getTamanoBytes());
                              
                 } catch (Exception e) {
@@ -1694,7 +1770,31 @@ public class ReporteService {
                 }
             }
         }
-    }
-}
 
+        // La lista de adjuntos forma parte del PDF: una nueva fecha de actualización lo invalida
+        if (guardados > 0) {
+            reporteRepository.marcarActualizado(reporte.getReporteId(), LocalDateTime.now());
+        }
+    }
 
+    /**
+     * Ejecuta la acción al terminar la transacción actual: tras confirmar (siConfirma=true)
+     * o tras revertir (siConfirma=false). Sin transacción activa, solo se ejecuta si siConfirma.
+     */
+    private void alTerminar(boolean siConfirma, Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (siConfirma) {
+                accion.run();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (siConfirma ? status == STATUS_COMMITTED : status == STATUS_ROLLED_BACK) {
+                    accion.run();
+                }
+            }
+        });
+    }
+}
@@ -24,6 +24,9 @@ public class RepositoryInvitationService {
     @Autowired
     private UsuarioHasRepositorioRepository usuarioHasRepositorioRepository;
 
+    @Autowired
+    private PermisoRepositorioCacheService permisoRepositorioCacheService;
+
     @Autowired
     private EquipoRepository equipoRepository;
 
@@ -258,6 +261,7 @@ public class RepositoryInvitationService {
         
         logger.info("   - Guardando en base de datos...");
         usuarioHasRepositorioRepository.save(usuarioHasRepositorio);
+        permisoRepositorioCacheService.invalidar(usuario.getUsuarioId(), repositorio.getRepositorioId());
         logger.info("✅ usuario_has_repositorio creado con privilegio: {}", privilegio);
 
         // 2. Agregar usuario a los equipos
@@ -32,6 +32,9 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class RepositoryService {
@@ -62,6 +65,9 @@ public class RepositoryService {
     @Autowired
     private PermissionService permissionService;
 
+    @Autowired
+    private PermisoRepositorioCacheService permisoRepositorioCacheService;
+
     @Autowired
     private RepositoryInvitationService repositoryInvitationService;
 
@@ -74,6 +80,9 @@ public class RepositoryService {
     @Autowired
     private NodoRepository nodoRepository;
 
+    @Autowired
+    private ConteoCacheService conteoCacheService;
+
     public List<Repositorio> listarRepositorios() {
         return repositorioRepository.findAll();
     }
@@ -101,6 +110,7 @@ public class RepositoryService {
     public void eliminarRepositorio(Long id) {
         Repositorio repositorio = buscarRepositorioPorId(id);
         repositorioRepository.delete(repositorio);
+        permisoRepositorioCacheService.invalidarTodo();
     }
 
     // =================== MÉTODOS PARA EL CONTROLADOR JERÁRQUICO ===================
@@ -448,6 +458,7 @@ public class RepositoryService {
 
             // Guardar la relación
             usuarioHasRepositorioRepository.save(usuarioRepositorio);
+            permisoRepositorioCacheService.invalidar(usuario.getUsuarioId(), saved.getRepositorioId());
 
             // VINCULAR CON PROYECTO(S) SI SE ESPECIFICÓ
             // Ahora soporta múltiples proyectos
@@ -504,6 +515,7 @@ public class RepositoryService {
             
             repositorio.setPropietarioId(propietarioId);
             repositorioRepository.save(repositorio);
+            permisoRepositorioCacheService.invalidarTodo();
             
             log.info("Propietario del repositorio R-{} actualizado a: {}", repositorioId, propietarioId);
         } catch (Exception e) {
@@ -619,6 +631,7 @@ public class RepositoryService {
         // TODO: Implementar verificación de permisos
 
         repositorioRepository.delete(repositorio);
+        permisoRepositorioCacheService.invalidarTodo();
     }
 
     /**
@@ -1004,4 +1017,64 @@ public class RepositoryService {
         List<Repositorio> repositories = repositorioQueryService.findAllMyRepositoriesPaginated(userId, category, search, sort, limit, offset);
         return convertirRepositoriosAMapaBatch(repositories);
     }
+
+    // =================== PAGINACIÓN POR CURSOR (keyset) ===================
+
+    /**
+     * ✅ CURSOR: Página de repositorios de una sección del dashboard (personal, collaborative, other o all) - 12 por página
+     * La siguiente página se pide con el cursor devuelto, sin OFFSET; el total es un conteo cacheado
+     * @param cursor Cursor devuelto por la página anterior (null o vacío = primera página)
+     */
+    public CursorPaginacion.Pagina<Map<String, Object>> obtenerRepositoriosPorCursor(String seccion, Long userId, String category,
+                                                                                     String search, String sort, String cursor) {
+        String orden = CursorPaginacion.normalizarOrden(sort);
+        CursorPaginacion.Posicion posicion = CursorPaginacion.decodificar(cursor, orden);
+        String cursorValor = posicion != null ? posicion.valor() : null;
+        Long cursorId = posicion != null ? posicion.id() : null;
+        int limit = CursorPaginacion.TAMANIO_PAGINA + 1;
+
+        // 1. Query keyset (pide un elemento extra para saber si hay página siguiente)
+        List<Repositorio> repositories = switch (seccion) {
+            case "personal" -> repositorioQueryService.findPersonalRepositoriesKeyset(userId, category, search, orden, cursorValor, cursorId, limit);
+            case "collaborative" -> repositorioQueryService.findCollaborativeRepositoriesKeyset(userId, category, search, orden, cursorValor, cursorId, limit);
+            case "other" -> repositorioQueryService.findOtherRepositoriesKeyset(userId, category, search, orden, cursorValor, cursorId, limit);
+            case "all" -> repositorioQueryService.findAllMyRepositoriesKeyset(userId, category, search, orden, cursorValor, cursorId, limit);
+            default -> throw new IllegalArgumentException("Sección de repositorios no válida: " + seccion);
+        };
+
+        String siguienteCursor = null;
+        if (repositories.size() > CursorPaginacion.TAMANIO_PAGINA) {
+            repositories = repositories.subList(0, CursorPaginacion.TAMANIO_PAGINA);
+            Repositorio ultimo = repositories.get(repositories.size() - 1);
+            siguienteCursor = CursorPaginacion.codificar(orden,
+                    "name".equals(orden) ? ultimo.getNombreRepositorio() : ultimo.getFechaCreacion(),
+                    ultimo.getRepositorioId());
+        }
+
+        // 2. Recargar con JOIN FETCH para eliminar N+1, conservando el orden de la query keyset
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (!repositories.isEmpty()) {
+            List<Long> repositoryIds = repositories.stream().map(Repositorio::getRepositorioId).toList();
+            Map<Long, Repositorio> cargados = repositorioQueryService.findByIdsWithRelations(repositoryIds).stream()
+                    .collect(Collectors.toMap(Repositorio::getRepositorioId, Function.identity(), (a, b) -> a));
+            result = convertirRepositoriosAMapaBatch(
+                    repositoryIds.stream().map(cargados::get).filter(Objects::nonNull).toList());
+        }
+
+        return new CursorPaginacion.Pagina<>(result, siguienteCursor, contarRepositorios(seccion, userId, category, search));
+    }
+
+    /**
+     * ✅ Total de repositorios de una sección con los filtros dados (COUNT cacheado, sin cargar entidades)
+     */
+    public long contarRepositorios(String seccion, Long userId, String category, String search) {
+        String clave = ConteoCacheService.clave("repositorios:" + seccion, userId, category, search);
+        return switch (seccion) {
+            case "personal" -> conteoCacheService.contar(clave, () -> repositorioQueryService.countPersonalRepositories(userId, category, search));
+            case "collaborative" -> conteoCacheService.contar(clave, () -> repositorioQueryService.countCollaborativeRepositories(userId, category, search));
+            case "other" -> conteoCacheService.contar(clave, () -> repositorioQueryService.countOtherRepositories(userId, category, search));
+            case "all" -> conteoCacheService.contar(clave, () -> repositorioQueryService.countAllMyRepositories(userId, category, search));
+            default -> throw new IllegalArgumentException("Sección de repositorios no válida: " + seccion);
+        };
+    }
 }
@@ -2,142 +2,31 @@ package org.project.project.service;
 
 import org.project.project.model.dto.SandboxRequestDTO;
 import org.project.project.model.dto.SandboxResponseDTO;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
-import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
 @Service
 public class SandboxService {
 
-    private static final String EXTERNAL_PROXY_URL = "https://api-proxy-backend-4epq24vhwa-uc.a.run.app/api/request";
-
-    private final RestTemplate restTemplate;
+    private final EjecutorHttpSandbox ejecutorHttpSandbox;
     private final ObjectMapper objectMapper;
 
-    public SandboxService() {
-        // Configurar RestTemplate con timeouts
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(30000); // 30 segundos para conectar
-        factory.setReadTimeout(30000);    // 30 segundos para leer
-
-        this.restTemplate = new RestTemplate(factory);
+    public SandboxService(EjecutorHttpSandbox ejecutorHttpSandbox) {
+        this.ejecutorHttpSandbox = ejecutorHttpSandbox;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
     }
 
+    /**
+     * Ejecuta la petición del sandbox en proceso (ver EjecutorHttpSandbox)
+     */
     public SandboxResponseDTO executeRequest(SandboxRequestDTO request) {
-        SandboxResponseDTO response = new SandboxResponseDTO();
-        SandboxResponseDTO.Metadata metadata = new SandboxResponseDTO.Metadata();
-
-        long startTime = System.currentTimeMillis();
-
-        try {
-            // Construir el JSON para enviar al servicio externo
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("method", request.getMethod());
-            requestBody.put("url", request.getUrl());
-
-            if (request.getHeaders() != null && !request.getHeaders().isEmpty()) {
-                requestBody.put("headers", request.getHeaders());
-            }
-
-            if (request.getBody() != null &&
-                ("POST".equalsIgnoreCase(request.getMethod()) || "PUT".equalsIgnoreCase(request.getMethod()))) {
-                requestBody.put("body", request.getBody());
-            }
-
-            // Configurar headers para la petición al servicio externo
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-            // Enviar petición al servicio externo
-            ResponseEntity<String> httpResponse = restTemplate.exchange(
-                EXTERNAL_PROXY_URL,
-                HttpMethod.POST,
-                entity,
-                String.class
-            );
-
-            long endTime = System.currentTimeMillis();
-            metadata.setLatency(endTime - startTime);
-            metadata.setTimestamp(LocalDateTime.now().toString());
-
-            // Parsear la respuesta JSON del servicio externo
-            Map<String, Object> externalResponse = objectMapper.readValue(
-                httpResponse.getBody(),
-                Map.class
-            );
-
-            // Extraer datos de la respuesta
-            response.setSuccess((Boolean) externalResponse.getOrDefault("success", false));
-
-            if (externalResponse.containsKey("response")) {
-                Map<String, Object> responseData = (Map<String, Object>) externalResponse.get("response");
-
-                SandboxResponseDTO.ResponseData data = new SandboxResponseDTO.ResponseData();
-                data.setStatus((Integer) responseData.get("status"));
-                data.setStatusText((String) responseData.get("statusText"));
-                data.setHeaders((Map<String, String>) responseData.get("headers"));
-                data.setData(responseData.get("data"));
-
-                response.setResponse(data);
-            }
-
-            if (externalResponse.containsKey("error")) {
-                response.setError((String) externalResponse.get("error"));
-            }
-
-            if (externalResponse.containsKey("metadata")) {
-                Map<String, Object> externalMetadata = (Map<String, Object>) externalResponse.get("metadata");
-                SandboxResponseDTO.Metadata responseMeta = new SandboxResponseDTO.Metadata();
-
-                Object latencyObj = externalMetadata.get("latency");
-                if (latencyObj instanceof Integer) {
-                    responseMeta.setLatency(((Integer) latencyObj).longValue());
-                } else if (latencyObj instanceof Long) {
-                    responseMeta.setLatency((Long) latencyObj);
-                }
-
-                responseMeta.setTimestamp((String) externalMetadata.get("timestamp"));
-                response.setMetadata(responseMeta);
-            } else {
-                response.setMetadata(metadata);
-            }
-
-        } catch (HttpClientErrorException | HttpServerErrorException e) {
-            // Error HTTP del servicio externo
-            long endTime = System.currentTimeMillis();
-            metadata.setLatency(endTime - startTime);
-            metadata.setTimestamp(LocalDateTime.now().toString());
-
-            response.setSuccess(false);
-            response.setError("Error al comunicarse con el servicio externo: " + e.getMessage());
-            response.setMetadata(metadata);
-
-        } catch (Exception e) {
-            // Error general
-            long endTime = System.currentTimeMillis();
-            metadata.setLatency(endTime - startTime);
-            metadata.setTimestamp(LocalDateTime.now().toString());
-
-            response.setSuccess(false);
-            response.setError("Error al ejecutar la petición: " + e.getMessage());
-            response.setMetadata(metadata);
-        }
-
-        return response;
+        return ejecutorHttpSandbox.ejecutar(request);
     }
 
     public String generateResponseHtml(SandboxResponseDTO response, long totalTime) {
@@ -168,11 +57,21 @@ public class SandboxService {
         }
 
         // Latency
-        long backendLatency = response.getMetadata() != null ? response.getMetadata().getLatency() : 0;
+        SandboxResponseDTO.Metadata meta = response.getMetadata();
+        long backendLatency = meta != null ? meta.getLatency() : 0;
         html.append("<div class='latency'>")
             .append("Latencia Backend: ").append(backendLatency).append("ms | ")
-            .append("Total: ").append(totalTime).append("ms")
-            .append("</div>");
+            .append("Total: ").append(totalTime).append("ms");
+        if (meta != null && meta.getTtfbMs() != null) {
+            html.append(" | DNS: ").append(meta.getDnsMs()).append("ms")
+                .append(" | TTFB: ").append(meta.getTtfbMs()).append("ms")
+                .append(" | Descarga: ").append(meta.getDescargaMs()).append("ms")
+                .append(" | ").append(meta.getBytes()).append(" bytes");
+            if (meta.isTruncado()) {
+                html.append(" (truncado)");
+            }
+        }
+        html.append("</div>");
 
         html.append("</div>"); // close response-header
 
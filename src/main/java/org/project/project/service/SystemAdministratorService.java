@@ -15,6 +15,9 @@ public class SystemAdministratorService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ConteoCacheService conteoCacheService;
+
     /**
      * Obtiene métricas generales del sistema
      */
@@ -385,17 +388,22 @@ public class SystemAdministratorService {
         Map<String, Object> result = new HashMap<>();
         
         try {
+            // Proyectos y repositorios usan sus índices FULLTEXT (LIKE si ningún término llega al mínimo indexado);
+            // usuarios no tiene, se mantiene LIKE
+            boolean hayBusqueda = search != null && !search.trim().isEmpty();
+            String consultaFullText = hayBusqueda ? BusquedaService.consultaBooleana(search, true) : null;
+            List<Object> searchParams = new ArrayList<>();
             String searchCondition = "";
-            if (search != null && !search.trim().isEmpty()) {
-                search = search.replace("'", "''"); // Escapar comillas simples
-                searchCondition = " WHERE LOWER(nombre_busqueda) LIKE LOWER('%" + search + "%')";
-            }
             
             String baseQuery = "";
             String countQuery = "";
             
             switch (category.toLowerCase()) {
                 case "proyectos":
+                    if (hayBusqueda) {
+                        searchCondition = " WHERE " + condicionFullText("nombre_proyecto", "descripcion_proyecto",
+                                search, consultaFullText, searchParams);
+                    }
                     baseQuery = """
                         SELECT 
                             nombre_proyecto as nombre,
@@ -412,6 +420,10 @@ public class SystemAdministratorService {
                     break;
                     
                 case "usuarios":
+                    if (hayBusqueda) {
+                        searchCondition = " WHERE CONCAT(nombre_usuario, ' ', apellido_paterno, ' ', apellido_materno, ' ', username) LIKE ?";
+                        searchParams.add("%" + search.trim() + "%");
+                    }
                     baseQuery = """
                         SELECT 
                             CONCAT(nombre_usuario, ' ', apellido_paterno, ' ', apellido_materno) as nombre,
@@ -429,6 +441,10 @@ public class SystemAdministratorService {
                     break;
                     
                 case "repositorios":
+                    if (hayBusqueda) {
+                        searchCondition = " WHERE " + condicionFullText("nombre_repositorio", "descripcion_repositorio",
+                                search, consultaFullText, searchParams);
+                    }
                     baseQuery = """
                         SELECT 
                             nombre_repositorio as nombre,
@@ -455,8 +471,15 @@ public class SystemAdministratorService {
             }
             
             // Ejecutar consultas
-            List<Map<String, Object>> data = jdbcTemplate.queryForList(baseQuery, size, page * size);
-            Integer totalElements = jdbcTemplate.queryForObject(countQuery, Integer.class);
+            List<Object> dataParams = new ArrayList<>(searchParams);
+            dataParams.add(size);
+            dataParams.add(page * size);
+            List<Map<String, Object>> data = jdbcTemplate.queryForList(baseQuery, dataParams.toArray());
+            // El COUNT recorre la tabla completa: se cachea por categoría y búsqueda
+            String sqlConteo = countQuery;
+            Integer totalElements = (int) conteoCacheService.contar(
+                    ConteoCacheService.clave("sa:" + category.toLowerCase(), search),
+                    () -> jdbcTemplate.queryForObject(sqlConteo, Long.class, searchParams.toArray()));
             
             result.put("data", data);
             result.put("totalElements", totalElements != null ? totalElements : 0);
@@ -476,6 +499,176 @@ public class SystemAdministratorService {
         return result;
     }
 
+    /**
+     * Condición de búsqueda sobre las columnas FULLTEXT de proyectos o repositorios
+     * Sin consulta booleana (todos los términos son más cortos que el mínimo indexado) se busca con LIKE:
+     * MATCH con una consulta vacía no devolvería nada
+     */
+    private static String condicionFullText(String columnaNombre, String columnaDescripcion, String search,
+                                            String consultaFullText, List<Object> params) {
+        if (consultaFullText != null) {
+            params.add(consultaFullText);
+            return "MATCH(" + columnaNombre + ", " + columnaDescripcion + ") AGAINST (? IN BOOLEAN MODE)";
+        }
+        String patron = "%" + search.trim() + "%";
+        params.add(patron);
+        params.add(patron);
+        return "(" + columnaNombre + " LIKE ? OR " + columnaDescripcion + " LIKE ?)";
+    }
+
+    /**
+     * Obtiene datos de tablas paginados por cursor (keyset) en lugar de LIMIT/OFFSET
+     * Mismo orden que getTableData con el ID como desempate (usuarios: nombre_usuario, usuario_id);
+     * la página N cuesta lo mismo que la primera. Cada fila incluye su "id"; el total es un conteo cacheado
+     * @param cursor nextCursor de la página anterior (null o vacío = primera página)
+     */
+    public Map<String, Object> getTableDataPorCursor(String category, int size, String search, String cursor) {
+        Map<String, Object> result = new HashMap<>();
+        size = CursorPaginacion.tamanioSeguro(size);
+        String categoria = category.toLowerCase();
+
+        String columnas;
+        String tabla;
+        String columnaOrden;
+        String columnaId;
+        boolean descendente;
+        String condicionBusqueda = "";
+        List<Object> params = new ArrayList<>();
+
+        boolean hayBusqueda = search != null && !search.trim().isEmpty();
+        String consultaFullText = hayBusqueda ? BusquedaService.consultaBooleana(search, true) : null;
+
+        switch (categoria) {
+            case "proyectos":
+                columnas = """
+                    proyecto_id as id,
+                    nombre_proyecto as nombre,
+                    descripcion_proyecto as descripcion,
+                    estado_proyecto as estado,
+                    fecha_inicio_proyecto as fecha_inicio,
+                    nombre_proyecto as nombre_busqueda
+                    """;
+                tabla = "proyecto";
+                columnaOrden = "nombre_proyecto";
+                columnaId = "proyecto_id";
+                descendente = false;
+                if (hayBusqueda) {
+                    condicionBusqueda = condicionFullText("nombre_proyecto", "descripcion_proyecto",
+                            search, consultaFullText, params);
+                }
+                break;
+
+            case "usuarios":
+                columnas = """
+                    usuario_id as id,
+                    CONCAT(nombre_usuario, ' ', apellido_paterno, ' ', apellido_materno) as nombre,
+                    username,
+                    correo,
+                    estado_usuario as estado,
+                    actividad_usuario as actividad,
+                    nombre_usuario as clave_orden,
+                    CONCAT(nombre_usuario, ' ', apellido_paterno, ' ', apellido_materno, ' ', username) as nombre_busqueda
+                    """;
+                tabla = "usuario";
+                columnaOrden = "nombre_usuario";
+                columnaId = "usuario_id";
+                descendente = false;
+                if (hayBusqueda) {
+                    condicionBusqueda = "CONCAT(nombre_usuario, ' ', apellido_paterno, ' ', apellido_materno, ' ', username) LIKE ?";
+                    params.add("%" + search.trim() + "%");
+                }
+                break;
+
+            case "repositorios":
+                columnas = """
+                    repositorio_id as id,
+                    nombre_repositorio as nombre,
+                    descripcion_repositorio as descripcion,
+                    tipo_repositorio as tipo,
+                    visibilidad_repositorio as visibilidad,
+                    fecha_creacion,
+                    nombre_repositorio as nombre_busqueda
+                    """;
+                tabla = "repositorio";
+                columnaOrden = "fecha_creacion";
+                columnaId = "repositorio_id";
+                descendente = true;
+                if (hayBusqueda) {
+                    condicionBusqueda = condicionFullText("nombre_repositorio", "descripcion_repositorio",
+                            search, consultaFullText, params);
+                }
+                break;
+
+            default:
+                result.put("data", new ArrayList<>());
+                result.put("totalElements", 0);
+                result.put("nextCursor", null);
+                result.put("hasNext", false);
+                result.put("size", size);
+                return result;
+        }
+
+        try {
+            String countQuery = "SELECT COUNT(*) FROM " + tabla + (hayBusqueda ? " WHERE " + condicionBusqueda : "");
+            List<Object> countParams = new ArrayList<>(params);
+            long totalElements = conteoCacheService.contar(ConteoCacheService.clave("sa:" + categoria, search),
+                    () -> jdbcTemplate.queryForObject(countQuery, Long.class, countParams.toArray()));
+
+            // Posición: (clave de orden, id) de la última fila de la página anterior
+            List<String> condiciones = new ArrayList<>();
+            if (hayBusqueda) {
+                condiciones.add(condicionBusqueda);
+            }
+            CursorPaginacion.Posicion posicion = CursorPaginacion.decodificar(cursor, categoria);
+            String comparador = descendente ? "<" : ">";
+            if (posicion != null) {
+                condiciones.add("(" + columnaOrden + " " + comparador + " ? OR (" + columnaOrden + " = ? AND "
+                        + columnaId + " " + comparador + " ?))");
+                params.add(posicion.valor());
+                params.add(posicion.valor());
+                params.add(posicion.id());
+            }
+            String direccion = descendente ? " DESC" : " ASC";
+            String dataQuery = "SELECT " + columnas + " FROM " + tabla
+                    + (condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones))
+                    + " ORDER BY " + columnaOrden + direccion + ", " + columnaId + direccion
+                    + " LIMIT ?";
+            params.add(size + 1);
+
+            List<Map<String, Object>> data = new ArrayList<>(jdbcTemplate.queryForList(dataQuery, params.toArray()));
+            String nextCursor = null;
+            if (data.size() > size) {
+                data = new ArrayList<>(data.subList(0, size));
+                Map<String, Object> ultima = data.get(data.size() - 1);
+                Object valorOrden = switch (categoria) {
+                    case "usuarios" -> ultima.remove("clave_orden");
+                    case "repositorios" -> ultima.get("fecha_creacion") instanceof java.sql.Timestamp ts
+                            ? ts.toLocalDateTime() : ultima.get("fecha_creacion");
+                    default -> ultima.get("nombre");
+                };
+                nextCursor = CursorPaginacion.codificar(categoria, valorOrden, ((Number) ultima.get("id")).longValue());
+            }
+            data.forEach(fila -> fila.remove("clave_orden"));
+
+            result.put("data", data);
+            result.put("totalElements", totalElements);
+            result.put("totalPages", (int) Math.ceil((double) totalElements / size));
+            result.put("nextCursor", nextCursor);
+            result.put("hasNext", nextCursor != null);
+            result.put("size", size);
+
+        } catch (Exception e) {
+            result.put("error", "Error al obtener datos de tabla: " + e.getMessage());
+            result.put("data", new ArrayList<>());
+            result.put("totalElements", 0);
+            result.put("nextCursor", null);
+            result.put("hasNext", false);
+            result.put("size", size);
+        }
+
+        return result;
+    }
+
     /**
      * Obtiene datos específicos para gráficos
      */
@@ -1,9 +1,11 @@
 package org.project.project.service;
 
+import org.project.project.model.entity.APIMockServer;
 import org.project.project.model.entity.EntornoPrueba;
 import org.project.project.model.entity.API;
 import org.project.project.model.entity.VersionAPI;
 import org.project.project.model.entity.Usuario;
+import org.project.project.repository.APIMockServerRepository;
 import org.project.project.repository.EntornoPruebaRepository;
 import org.project.project.repository.APIRepository;
 import org.project.project.repository.VersionAPIRepository;
@@ -11,15 +13,23 @@ import org.project.project.repository.UsuarioRepository;
 import org.project.project.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 @Transactional
 public class TestingEnvironmentService {
 
+    /** Peticiones del sandbox contra los mock servers embebidos: /mock/{mockServerId}/... */
+    private static final Pattern RUTA_MOCK = Pattern.compile("^/mock/(\\d+)(?:/.*)?$");
+
     @Autowired
     private EntornoPruebaRepository entornoPruebaRepository;
 
@@ -32,6 +42,12 @@ public class TestingEnvironmentService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private APIMockServerRepository mockServerRepository;
+
+    @Autowired
+    private CuotaEntornoService cuotaEntornoService;
+
     // =================== CRUD OPERATIONS ===================
 
     /**
@@ -108,7 +124,9 @@ public class TestingEnvironmentService {
             entorno.setFechaExpiracion(entornoDetalles.getFechaExpiracion());
         }
 
-        return entornoPruebaRepository.save(entorno);
+        EntornoPrueba guardado = entornoPruebaRepository.save(entorno);
+        cuotaEntornoService.invalidar(id);
+        return guardado;
     }
 
     /**
@@ -117,6 +135,7 @@ public class TestingEnvironmentService {
     public void eliminarEntorno(Long id) {
         EntornoPrueba entorno = buscarEntornoPorId(id);
         entornoPruebaRepository.delete(entorno);
+        cuotaEntornoService.invalidar(id);
     }
 
     // =================== BÚSQUEDAS ESPECÍFICAS ===================
@@ -177,7 +196,9 @@ public class TestingEnvironmentService {
     public EntornoPrueba activarEntorno(Long id) {
         EntornoPrueba entorno = buscarEntornoPorId(id);
         entorno.setEstadoEntorno(EntornoPrueba.EstadoEntorno.ACTIVO);
-        return entornoPruebaRepository.save(entorno);
+        EntornoPrueba guardado = entornoPruebaRepository.save(entorno);
+        cuotaEntornoService.invalidar(id);
+        return guardado;
     }
 
     /**
@@ -186,7 +207,9 @@ public class TestingEnvironmentService {
     public EntornoPrueba pausarEntorno(Long id) {
         EntornoPrueba entorno = buscarEntornoPorId(id);
         entorno.setEstadoEntorno(EntornoPrueba.EstadoEntorno.PAUSADO);
-        return entornoPruebaRepository.save(entorno);
+        EntornoPrueba guardado = entornoPruebaRepository.save(entorno);
+        cuotaEntornoService.invalidar(id);
+        return guardado;
     }
 
     /**
@@ -195,7 +218,9 @@ public class TestingEnvironmentService {
     public EntornoPrueba suspenderEntorno(Long id) {
         EntornoPrueba entorno = buscarEntornoPorId(id);
         entorno.setEstadoEntorno(EntornoPrueba.EstadoEntorno.PAUSADO);
-        return entornoPruebaRepository.save(entorno);
+        EntornoPrueba guardado = entornoPruebaRepository.save(entorno);
+        cuotaEntornoService.invalidar(id);
+        return guardado;
     }
 
     /**
@@ -204,50 +229,82 @@ public class TestingEnvironmentService {
     public EntornoPrueba archivarEntorno(Long id) {
         EntornoPrueba entorno = buscarEntornoPorId(id);
         entorno.setEstadoEntorno(EntornoPrueba.EstadoEntorno.ELIMINADO);
-        return entornoPruebaRepository.save(entorno);
+        EntornoPrueba guardado = entornoPruebaRepository.save(entorno);
+        cuotaEntornoService.invalidar(id);
+        return guardado;
     }
 
     // =================== GESTIÓN DE LLAMADAS ===================
 
     /**
-     * Incrementar contador de llamadas
+     * Registrar una llamada al entorno (cuota diaria y frecuencia por clave, en memoria)
+     * No abre transacción: el contador se vuelca a BD en lote (CuotaEntornoService)
+     * @param clave Identidad autenticada que llama (null para no limitar frecuencia)
+     * @return Resultado con la cuota restante; si no se permitió, incluye el motivo
      */
-    public EntornoPrueba registrarLlamada(Long id) {
-        EntornoPrueba entorno = buscarEntornoPorId(id);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CuotaEntornoService.ResultadoCuota registrarLlamada(Long id, String clave) {
+        return cuotaEntornoService.consumir(id, clave);
+    }
 
-        // Verificar si el entorno está activo
-        if (entorno.getEstadoEntorno() != EntornoPrueba.EstadoEntorno.ACTIVO) {
-            throw new IllegalStateException("El entorno no está activo");
+    /**
+     * Entorno de prueba al que se cuenta una petición del sandbox, resuelto en el servidor
+     * - Si el cliente indica un entorno, debe ser del usuario autenticado
+     * - Si no, la URL contra un mock server (/mock/{id}/...) se cuenta en el entorno activo del usuario para la API del mock
+     * @return vacío si la petición no va contra ningún entorno del usuario
+     * @throws SecurityException si el entorno indicado pertenece a otro usuario
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> resolverEntornoSandbox(Long usuarioId, Long entornoSolicitado, String url) {
+        if (entornoSolicitado != null) {
+            EntornoPrueba entorno = buscarEntornoPorId(entornoSolicitado);
+            if (!entorno.getUsuario().getUsuarioId().equals(usuarioId)) {
+                throw new SecurityException("El entorno de prueba no pertenece al usuario");
+            }
+            return Optional.of(entorno.getEntornoId());
         }
 
-        // Verificar límite de llamadas
-        if (entorno.getLlamadasRealizadas() >= entorno.getLimiteLlamadasDia()) {
-            throw new IllegalStateException("Límite de llamadas diarias alcanzado");
+        Long mockServerId = mockServerDeUrl(url);
+        if (mockServerId == null) {
+            return Optional.empty();
         }
+        return mockServerRepository.findById(mockServerId)
+                .map(APIMockServer::getApi)
+                .flatMap(api -> entornoPruebaRepository.findActiveEnvironmentsByUsuarioId(usuarioId).stream()
+                        .filter(entorno -> entorno.getApi().getApiId().equals(api.getApiId()))
+                        .map(EntornoPrueba::getEntornoId)
+                        .findFirst());
+    }
 
-        entorno.setLlamadasRealizadas(entorno.getLlamadasRealizadas() + 1);
-        entorno.setUltimaLlamada(LocalDateTime.now());
-
-        return entornoPruebaRepository.save(entorno);
+    private Long mockServerDeUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            String ruta = URI.create(url.trim()).getPath();
+            Matcher coincidencia = ruta != null ? RUTA_MOCK.matcher(ruta) : null;
+            return coincidencia != null && coincidencia.matches() ? Long.valueOf(coincidencia.group(1)) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
-     * Resetear contador de llamadas (para uso diario)
+     * Resetear contador de llamadas de un entorno (el reinicio diario de todos lo hace CuotaEntornoService)
      */
     public EntornoPrueba resetearContadorLlamadas(Long id) {
         EntornoPrueba entorno = buscarEntornoPorId(id);
+        cuotaEntornoService.reiniciar(id);
         entorno.setLlamadasRealizadas(0);
-        return entornoPruebaRepository.save(entorno);
+        return entorno;
     }
 
     /**
      * Verificar si un entorno puede realizar más llamadas
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean puedeRealizarLlamadas(Long id) {
-        EntornoPrueba entorno = buscarEntornoPorId(id);
-        return entorno.getEstadoEntorno() == EntornoPrueba.EstadoEntorno.ACTIVO
-                && entorno.getLlamadasRealizadas() < entorno.getLimiteLlamadasDia();
+        return cuotaEntornoService.consultar(id).permitido();
     }
 
     // =================== GESTIÓN DE EXPIRACIÓN ===================
@@ -270,6 +327,7 @@ public class TestingEnvironmentService {
         for (EntornoPrueba entorno : expirados) {
             entorno.setEstadoEntorno(EntornoPrueba.EstadoEntorno.EXPIRADO);
             entornoPruebaRepository.save(entorno);
+            cuotaEntornoService.invalidar(entorno.getEntornoId());
             contador++;
         }
 
@@ -288,7 +346,9 @@ public class TestingEnvironmentService {
             entorno.setFechaExpiracion(entorno.getFechaExpiracion().plusDays(dias));
         }
 
-        return entornoPruebaRepository.save(entorno);
+        EntornoPrueba guardado = entornoPruebaRepository.save(entorno);
+        cuotaEntornoService.invalidar(id);
+        return guardado;
     }
 
     // =================== ESTADÍSTICAS ===================
@@ -11,6 +11,7 @@ import org.project.project.repository.TicketRepository;
 import org.project.project.repository.UsuarioRepository;
 import org.project.project.repository.ProyectoRepository;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,6 +27,7 @@ public class TicketService {
     private final TicketRepository ticketRepository;
     private final UsuarioRepository usuarioRepository;
     private final ProyectoRepository proyectoRepository;
+    private final ConteoCacheService conteoCacheService;
 
     // =================== TICKET CREATION ===================
 
@@ -205,6 +207,55 @@ public class TicketService {
         return ticketRepository.findByProyecto_ProyectoIdOrderByFechaCreacionDesc(projectId, pageable);
     }
 
+    /**
+     * Página de tickets por cursor (keyset sobre fecha_creacion DESC, ticket_id DESC)
+     * @param listado user, reported-by, assigned-to o project
+     * @param id ID del usuario o del proyecto según el listado
+     * @param cursor Cursor devuelto en la página anterior (null o vacío para la primera)
+     */
+    @Transactional(readOnly = true)
+    public CursorPaginacion.Pagina<Ticket> obtenerTicketsPorCursor(String listado, Long id, String cursor, int size) {
+        size = CursorPaginacion.tamanioSeguro(size);
+        CursorPaginacion.Posicion posicion = CursorPaginacion.decodificar(cursor, "recent");
+        LocalDateTime cursorFecha = posicion != null ? CursorPaginacion.fechaHora(posicion) : null;
+        Long cursorId = cursorFecha != null ? posicion.id() : null;
+        // Un elemento de más para saber si hay página siguiente sin hacer COUNT
+        Pageable limite = PageRequest.of(0, size + 1);
+
+        List<Ticket> tickets;
+        long total;
+        switch (listado) {
+            case "reported-by" -> {
+                tickets = ticketRepository.findPaginaReportadosPor(id, cursorFecha, cursorId, limite);
+                total = conteoCacheService.contar(ConteoCacheService.clave("tickets-reportados", id),
+                        () -> ticketRepository.countByReportadoPor_UsuarioId(id));
+            }
+            case "assigned-to" -> {
+                tickets = ticketRepository.findPaginaAsignadosA(id, cursorFecha, cursorId, limite);
+                total = conteoCacheService.contar(ConteoCacheService.clave("tickets-asignados", id),
+                        () -> ticketRepository.countByAsignadoA_UsuarioId(id));
+            }
+            case "project" -> {
+                tickets = ticketRepository.findPaginaPorProyecto(id, cursorFecha, cursorId, limite);
+                total = conteoCacheService.contar(ConteoCacheService.clave("tickets-proyecto", id),
+                        () -> ticketRepository.countByProyecto_ProyectoId(id));
+            }
+            default -> {
+                tickets = ticketRepository.findPaginaPorUsuario(id, cursorFecha, cursorId, limite);
+                total = conteoCacheService.contar(ConteoCacheService.clave("tickets-usuario", id),
+                        () -> ticketRepository.countAllByUserId(id));
+            }
+        }
+
+        String siguienteCursor = null;
+        if (tickets.size() > size) {
+            tickets = tickets.subList(0, size);
+            Ticket ultimo = tickets.get(size - 1);
+            siguienteCursor = CursorPaginacion.codificar("recent", ultimo.getFechaCreacion(), ultimo.getTicketId());
+        }
+        return new CursorPaginacion.Pagina<>(tickets, siguienteCursor, total);
+    }
+
     public List<Ticket> findPublicTickets() {
         return ticketRepository.findByProyectoIsNullOrderByFechaCreacionDesc();
     }
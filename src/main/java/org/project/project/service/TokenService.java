@@ -18,6 +18,9 @@ public class TokenService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private UsuarioCacheService usuarioCacheService;
+
     @Autowired
     @Lazy
     private EmailService emailService;
@@ -65,6 +68,7 @@ public class TokenService {
             System.out.println("LOG: 6. Cambiando el estado del usuario a HABILITADO.");
 
             usuarioRepository.save(usuario);
+            usuarioCacheService.invalidar(usuario.getUsername());
             System.out.println("LOG: 7. Usuario guardado en la base de datos. El cambio debería ser visible ahora.");
 
             token.setEstadoToken(Token.EstadoToken.REVOCADO);
@@ -0,0 +1,80 @@
+package org.project.project.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * Transferencias a GCS en paralelo sobre gcsBulkExecutor con un máximo de tareas simultáneas
+ * (subidas de ImportacionZipService y copias de CopiaSubarbolService)
+ * Ante el primer error no se lanzan más tareas; siempre se espera a las que están en curso antes de
+ * volver, así el llamador puede deshacer lo transferido sin carreras.
+ */
+@Service
+public class TransferenciaParalelaService {
+
+    @Autowired
+    @Qualifier("gcsBulkExecutor")
+    private Executor gcsBulkExecutor;
+
+    /**
+     * Transferencia de un elemento (se ejecuta en un hilo de gcsBulkExecutor)
+     */
+    public interface Tarea<T> {
+        void ejecutar(T elemento) throws Exception;
+    }
+
+    /**
+     * Ejecuta la tarea sobre cada elemento
+     * @param avance Recibe las tareas completadas; se invoca desde el hilo llamador (puede lanzar para cancelar)
+     * @return Primer error (null si todas terminaron bien)
+     */
+    public <T> Throwable ejecutar(List<T> elementos, int paralelismo, Tarea<T> tarea, IntConsumer avance) {
+        Semaphore permisos = new Semaphore(Math.max(1, paralelismo));
+        AtomicInteger completadas = new AtomicInteger();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<CompletableFuture<Void>> tareas = new ArrayList<>(elementos.size());
+
+        try {
+            for (T elemento : elementos) {
+                if (error.get() != null) {
+                    break;
+                }
+                permisos.acquire();
+                tareas.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        if (error.get() == null) {
+                            tarea.ejecutar(elemento);
+                            completadas.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        permisos.release();
+                    }
+                }, gcsBulkExecutor));
+                avance.accept(completadas.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error.compareAndSet(null, e);
+        } finally {
+            // Las tareas en curso terminan antes de seguir (o de deshacerlas)
+            CompletableFuture.allOf(tareas.toArray(new CompletableFuture[0])).exceptionally(t -> null).join();
+        }
+
+        if (error.get() == null) {
+            avance.accept(completadas.get());
+        }
+        return error.get();
+    }
+}
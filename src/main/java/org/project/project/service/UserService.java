@@ -5,8 +5,6 @@ import org.project.project.repository.*;
 import org.project.project.exception.ResourceNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
@@ -26,27 +24,19 @@ public class UserService {
     private final EmailService emailService;
     private final RolRepository rolRepository;
 
-    private final APIRepository apiRepository;
-    private final ProyectoRepository proyectoRepository;
-    private final TicketRepository ticketRepository;
-    private final RepositorioRepository repositorioRepository;
-    private final CategoriaRepository categoriaRepository;
+    private final MetricasRollupService metricasRollupService;
+    private final UsuarioCacheService usuarioCacheService;
 
     public UserService(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder,
                        TokenService tokenService, EmailService emailService, RolRepository rolRepository,
-                       APIRepository apiRepository, ProyectoRepository proyectoRepository,
-                       TicketRepository ticketRepository, RepositorioRepository repositorioRepository,
-                       CategoriaRepository categoriaRepository) {
+                       MetricasRollupService metricasRollupService, UsuarioCacheService usuarioCacheService) {
         this.usuarioRepository = usuarioRepository;
         this.passwordEncoder = passwordEncoder;
         this.tokenService = tokenService;
         this.emailService = emailService;
         this.rolRepository = rolRepository;
-        this.apiRepository = apiRepository;
-        this.proyectoRepository = proyectoRepository;
-        this.ticketRepository = ticketRepository;
-        this.repositorioRepository = repositorioRepository;
-        this.categoriaRepository = categoriaRepository;
+        this.metricasRollupService = metricasRollupService;
+        this.usuarioCacheService = usuarioCacheService;
     }
 
     public List<Usuario> listarUsuarios() {
@@ -59,10 +49,8 @@ public class UserService {
 
     /**
      * Busca usuario por ID
-     * CACHEABLE: Este método se llama frecuentemente para verificar permisos
-     * Hit ratio esperado: >80%
+     * Devuelve la entidad de la sesión actual (sin caché: los llamadores la modifican y la guardan)
      */
-    @Cacheable(value = "usuarios", key = "#id")
     public Usuario buscarUsuarioPorId(Long id) {
         return usuarioRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con id: " + id));
@@ -103,12 +91,11 @@ public class UserService {
     }
 
     /**
-     * Actualiza usuario e invalida caché
-     * CACHE_EVICT: Elimina entrada del caché cuando cambian datos del usuario
+     * Actualiza usuario e invalida su resumen cacheado (username anterior y nuevo)
      */
-    @CacheEvict(value = "usuarios", key = "#id")
     public Usuario actualizarUsuario(Long id, Usuario usuarioDetails) {
         Usuario usuario = buscarUsuarioPorId(id);
+        String usernameAnterior = usuario.getUsername();
         usuario.setNombreUsuario(usuarioDetails.getNombreUsuario());
         usuario.setApellidoPaterno(usuarioDetails.getApellidoPaterno());
         usuario.setApellidoMaterno(usuarioDetails.getApellidoMaterno());
@@ -126,12 +113,15 @@ public class UserService {
         usuario.setCodigoUsuario(usuarioDetails.getCodigoUsuario());
         usuario.setAccesoUsuario(usuarioDetails.getAccesoUsuario());
 // La contraseña (hashedPassword) no se actualiza por esta vía por seguridad
-        return usuarioRepository.save(usuario);
+        Usuario guardado = usuarioRepository.save(usuario);
+        usuarioCacheService.invalidar(usernameAnterior, guardado.getUsername());
+        return guardado;
     }
 
     public Usuario eliminarUsuario(Long id) {
         Usuario usuario = buscarUsuarioPorId(id);
         usuarioRepository.delete(usuario);
+        usuarioCacheService.invalidar(usuario.getUsername());
         return usuario;
     }
 
@@ -153,14 +143,9 @@ public class UserService {
 
     /**
      * Busca usuario por username
-     * CACHEABLE: Este es el método MÁS CRÍTICO - se ejecuta en CADA request
-     * Hit ratio esperado: >90% (mismo usuario hace múltiples requests)
-     * 
-     * IMPACTO:
-     * - Sin caché: ~30-50ms por query
-     * - Con caché: ~0.1ms (300-500x más rápido)
+     * Devuelve la entidad de la sesión actual (sin caché: los llamadores la modifican y la guardan).
+     * Para solo id, estado o roles del usuario autenticado usar UsuarioCacheService.obtenerPorUsername
      */
-    @Cacheable(value = "usuarios", key = "'username:' + #username")
     public Usuario buscarPorUsername(String username) {
         return usuarioRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con username: " + username));
@@ -238,210 +223,109 @@ public class UserService {
         }
     }
 
+    /**
+     * Métricas del dashboard leídas del snapshot de MetricasRollupService (sin findAll por entidad)
+     */
     public java.util.Map<String, Object> obtenerMetricasDashboard() {
         java.util.Map<String, Object> metrics = new java.util.HashMap<>();
 
         try {
+            MetricasRollupService.SnapshotMetricas snapshot = metricasRollupService.obtenerSnapshot();
 
-            List<Usuario> todosUsuarios = usuarioRepository.findAll();
-
-            metrics.put("totalUsuarios", todosUsuarios.size());
-
-            long usuariosHabilitados = todosUsuarios.stream()
-                    .filter(u -> u.getEstadoUsuario() == Usuario.EstadoUsuario.HABILITADO)
-                    .count();
-            long usuariosInhabilitados = todosUsuarios.size() - usuariosHabilitados;
+            long totalUsuarios = snapshot.total("usuarios", "estado");
+            metrics.put("totalUsuarios", totalUsuarios);
 
+            long usuariosHabilitados = snapshot.contador("usuarios", "estado", Usuario.EstadoUsuario.HABILITADO.name());
             metrics.put("usuariosHabilitados", usuariosHabilitados);
-            metrics.put("usuariosInhabilitados", usuariosInhabilitados);
-
-            long usuariosActivos = todosUsuarios.stream()
-                    .filter(u -> u.getActividadUsuario() == Usuario.ActividadUsuario.ACTIVO)
-                    .count();
-            long usuariosInactivos = todosUsuarios.size() - usuariosActivos;
+            metrics.put("usuariosInhabilitados", totalUsuarios - usuariosHabilitados);
 
+            long usuariosActivos = snapshot.contador("usuarios", "actividad", Usuario.ActividadUsuario.ACTIVO.name());
             metrics.put("usuariosActivos", usuariosActivos);
-            metrics.put("usuariosInactivos", usuariosInactivos);
-
-            LocalDateTime hace30Dias = LocalDateTime.now().minusDays(30);
-            long usuariosCreados30Dias = todosUsuarios.stream()
-                    .filter(u -> u.getFechaCreacion() != null && u.getFechaCreacion().isAfter(hace30Dias))
-                    .count();
-            metrics.put("usuariosCreados30Dias", usuariosCreados30Dias);
+            metrics.put("usuariosInactivos", totalUsuarios - usuariosActivos);
 
+            metrics.put("usuariosCreados30Dias", snapshot.contador("usuarios", "recientes", "30d"));
 
-            List<API> todasAPIs = apiRepository.findAll();
             java.util.Map<String, Object> apiMetrics = new java.util.HashMap<>();
-
-            apiMetrics.put("totalAPIs", todasAPIs.size());
-
-            long apisProduccion = todasAPIs.stream()
-                    .filter(api -> api.getEstadoApi() == API.EstadoApi.PRODUCCION)
-                    .count();
-            long apisQA = todasAPIs.stream()
-                    .filter(api -> api.getEstadoApi() == API.EstadoApi.QA)
-                    .count();
-            long apisDeprecated = todasAPIs.stream()
-                    .filter(api -> api.getEstadoApi() == API.EstadoApi.DEPRECATED)
-                    .count();
-
-            apiMetrics.put("apisProduccion", (int)apisProduccion);
-            apiMetrics.put("apisQA", (int)apisQA);
-            apiMetrics.put("apisDeprecated", (int)apisDeprecated);
+            apiMetrics.put("totalAPIs", (int) snapshot.total("apis", "estado"));
 
             java.util.Map<String, Integer> apiEstados = new java.util.HashMap<>();
-            apiEstados.put("PRODUCCION", (int)apisProduccion);
-            apiEstados.put("QA", (int)apisQA);
-            apiEstados.put("DEPRECATED", (int)apisDeprecated);
+            for (API.EstadoApi estado : List.of(API.EstadoApi.PRODUCCION, API.EstadoApi.QA, API.EstadoApi.DEPRECATED)) {
+                apiEstados.put(estado.name(), (int) snapshot.contador("apis", "estado", estado.name()));
+            }
+            apiMetrics.put("apisProduccion", apiEstados.get("PRODUCCION"));
+            apiMetrics.put("apisQA", apiEstados.get("QA"));
+            apiMetrics.put("apisDeprecated", apiEstados.get("DEPRECATED"));
             apiMetrics.put("apisPorEstado", apiEstados);
 
             metrics.put("apiMetrics", apiMetrics);
 
-
-
             java.util.Map<String, Object> userMetrics = new java.util.HashMap<>();
-            long usuariosSA = todosUsuarios.stream()
-                    .filter(u -> u.getRoles() != null && u.getRoles().stream()
-                            .anyMatch(rol -> rol.getNombreRol() == Rol.NombreRol.SA))
-                    .count();
-            long usuariosDEV = todosUsuarios.stream()
-                    .filter(u -> u.getRoles() != null && u.getRoles().stream()
-                            .anyMatch(rol -> rol.getNombreRol() == Rol.NombreRol.DEV))
-                    .count();
-            long usuariosQA = todosUsuarios.stream()
-                    .filter(u -> u.getRoles() != null && u.getRoles().stream()
-                            .anyMatch(rol -> rol.getNombreRol() == Rol.NombreRol.QA))
-                    .count();
-            long usuariosPO = todosUsuarios.stream()
-                    .filter(u -> u.getRoles() != null && u.getRoles().stream()
-                            .anyMatch(rol -> rol.getNombreRol() == Rol.NombreRol.PO))
-                    .count();
-
-            userMetrics.put("usuariosSA", usuariosSA);
-            userMetrics.put("usuariosDEV", usuariosDEV);
-            userMetrics.put("usuariosQA", usuariosQA);
-            userMetrics.put("usuariosPO", usuariosPO);
-
-            LocalDateTime hace7Dias = LocalDateTime.now().minusDays(7);
-            LocalDateTime hace90Dias = LocalDateTime.now().minusDays(90);
-
-            long usuariosCreados7Dias = todosUsuarios.stream()
-                    .filter(u -> u.getFechaCreacion() != null && u.getFechaCreacion().isAfter(hace7Dias))
-                    .count();
-            long usuariosCreados90Dias = todosUsuarios.stream()
-                    .filter(u -> u.getFechaCreacion() != null && u.getFechaCreacion().isAfter(hace90Dias))
-                    .count();
-
-            userMetrics.put("usuariosCreados7Dias", usuariosCreados7Dias);
-            userMetrics.put("usuariosCreados90Dias", usuariosCreados90Dias);
+            userMetrics.put("usuariosSA", snapshot.contador("usuarios", "rol", Rol.NombreRol.SA.name()));
+            userMetrics.put("usuariosDEV", snapshot.contador("usuarios", "rol", Rol.NombreRol.DEV.name()));
+            userMetrics.put("usuariosQA", snapshot.contador("usuarios", "rol", Rol.NombreRol.QA.name()));
+            userMetrics.put("usuariosPO", snapshot.contador("usuarios", "rol", Rol.NombreRol.PO.name()));
+            userMetrics.put("usuariosCreados7Dias", snapshot.contador("usuarios", "recientes", "7d"));
+            userMetrics.put("usuariosCreados90Dias", snapshot.contador("usuarios", "recientes", "90d"));
 
             metrics.put("userMetrics", userMetrics);
 
-            List<Proyecto> todosProyectos = proyectoRepository.findAll();
             java.util.Map<String, Object> projectMetrics = new java.util.HashMap<>();
-
-            projectMetrics.put("totalProyectos", todosProyectos.size());
+            projectMetrics.put("totalProyectos", (int) snapshot.total("proyectos", "estado"));
 
             // Proyectos por estado
-            long proyectosEnDesarrollo = todosProyectos.stream()
-                    .filter(p -> p.getEstadoProyecto() == Proyecto.EstadoProyecto.EN_DESARROLLO)
-                    .count();
-            long proyectosEnMantenimiento = todosProyectos.stream()
-                    .filter(p -> p.getEstadoProyecto() == Proyecto.EstadoProyecto.MANTENIMIENTO)
-                    .count();
-            long proyectosCerrados = todosProyectos.stream()
-                    .filter(p -> p.getEstadoProyecto() == Proyecto.EstadoProyecto.CERRADO)
-                    .count();
-            long proyectosPlaneados = todosProyectos.stream()
-                    .filter(p -> p.getEstadoProyecto() == Proyecto.EstadoProyecto.PLANEADO)
-                    .count();
-
-            projectMetrics.put("proyectosEnDesarrollo", (int)proyectosEnDesarrollo);
-            projectMetrics.put("proyectosEnMantenimiento", (int)proyectosEnMantenimiento);
-            projectMetrics.put("proyectosCerrados", (int)proyectosCerrados);
-            projectMetrics.put("proyectosPlaneados", (int)proyectosPlaneados);
-
             java.util.Map<String, Integer> proyectoEstados = new java.util.HashMap<>();
-            proyectoEstados.put("EN_DESARROLLO", (int)proyectosEnDesarrollo);
-            proyectoEstados.put("MANTENIMIENTO", (int)proyectosEnMantenimiento);
-            proyectoEstados.put("CERRADO", (int)proyectosCerrados);
-            proyectoEstados.put("PLANEADO", (int)proyectosPlaneados);
+            for (Proyecto.EstadoProyecto estado : List.of(Proyecto.EstadoProyecto.EN_DESARROLLO,
+                    Proyecto.EstadoProyecto.MANTENIMIENTO, Proyecto.EstadoProyecto.CERRADO,
+                    Proyecto.EstadoProyecto.PLANEADO)) {
+                proyectoEstados.put(estado.name(), (int) snapshot.contador("proyectos", "estado", estado.name()));
+            }
+            projectMetrics.put("proyectosEnDesarrollo", proyectoEstados.get("EN_DESARROLLO"));
+            projectMetrics.put("proyectosEnMantenimiento", proyectoEstados.get("MANTENIMIENTO"));
+            projectMetrics.put("proyectosCerrados", proyectoEstados.get("CERRADO"));
+            projectMetrics.put("proyectosPlaneados", proyectoEstados.get("PLANEADO"));
             projectMetrics.put("proyectosPorEstado", proyectoEstados);
 
             metrics.put("projectMetrics", projectMetrics);
 
-            List<Repositorio> todosRepositorios = repositorioRepository.findAll();
             java.util.Map<String, Object> repoMetrics = new java.util.HashMap<>();
-
-            repoMetrics.put("totalRepositorios", todosRepositorios.size());
+            repoMetrics.put("totalRepositorios", (int) snapshot.total("repositorios", "visibilidad"));
 
             // Repositorios por visibilidad
-            long reposPublicos = todosRepositorios.stream()
-                    .filter(r -> r.getVisibilidadRepositorio() == Repositorio.VisibilidadRepositorio.PUBLICO)
-                    .count();
-            long reposPrivados = todosRepositorios.stream()
-                    .filter(r -> r.getVisibilidadRepositorio() == Repositorio.VisibilidadRepositorio.PRIVADO)
-                    .count();
-
-            repoMetrics.put("reposPublicos", (int)reposPublicos);
-            repoMetrics.put("reposPrivados", (int)reposPrivados);
+            repoMetrics.put("reposPublicos", (int) snapshot.contador("repositorios", "visibilidad",
+                    Repositorio.VisibilidadRepositorio.PUBLICO.name()));
+            repoMetrics.put("reposPrivados", (int) snapshot.contador("repositorios", "visibilidad",
+                    Repositorio.VisibilidadRepositorio.PRIVADO.name()));
 
             metrics.put("repoMetrics", repoMetrics);
 
-            List<Ticket> todosTickets = ticketRepository.findAll();
             java.util.Map<String, Object> ticketMetrics = new java.util.HashMap<>();
-
-            ticketMetrics.put("totalTickets", todosTickets.size());
+            ticketMetrics.put("totalTickets", (int) snapshot.total("tickets", "estado"));
 
             // Tickets por estado
-            long ticketsAbiertos = todosTickets.stream()
-                    .filter(t -> t.getEstadoTicket() == Ticket.EstadoTicket.ENVIADO ||
-                            t.getEstadoTicket() == Ticket.EstadoTicket.RECIBIDO)
-                    .count();
-            long ticketsEnProgreso = todosTickets.stream()
-                    .filter(t -> t.getEtapaTicket() == Ticket.EtapaTicket.EN_PROGRESO)
-                    .count();
-            long ticketsResueltos = todosTickets.stream()
-                    .filter(t -> t.getEtapaTicket() == Ticket.EtapaTicket.RESUELTO ||
-                            t.getEtapaTicket() == Ticket.EtapaTicket.CERRADO)
-                    .count();
-
-            ticketMetrics.put("ticketsAbiertos", (int)ticketsAbiertos);
-            ticketMetrics.put("ticketsEnProgreso", (int)ticketsEnProgreso);
-            ticketMetrics.put("ticketsResueltos", (int)ticketsResueltos);
+            long ticketsAbiertos = snapshot.contador("tickets", "estado", Ticket.EstadoTicket.ENVIADO.name())
+                    + snapshot.contador("tickets", "estado", Ticket.EstadoTicket.RECIBIDO.name());
+            long ticketsEnProgreso = snapshot.contador("tickets", "etapa", Ticket.EtapaTicket.EN_PROGRESO.name());
+            long ticketsResueltos = snapshot.contador("tickets", "etapa", Ticket.EtapaTicket.RESUELTO.name())
+                    + snapshot.contador("tickets", "etapa", Ticket.EtapaTicket.CERRADO.name());
+
+            ticketMetrics.put("ticketsAbiertos", (int) ticketsAbiertos);
+            ticketMetrics.put("ticketsEnProgreso", (int) ticketsEnProgreso);
+            ticketMetrics.put("ticketsResueltos", (int) ticketsResueltos);
 
             // Tickets por prioridad
             java.util.Map<String, Integer> ticketPorPrioridad = new java.util.HashMap<>();
-            long ticketsAlta = todosTickets.stream()
-                    .filter(t -> t.getPrioridadTicket() == Ticket.PrioridadTicket.ALTA)
-                    .count();
-            long ticketsMedia = todosTickets.stream()
-                    .filter(t -> t.getPrioridadTicket() == Ticket.PrioridadTicket.MEDIA)
-                    .count();
-            long ticketsBaja = todosTickets.stream()
-                    .filter(t -> t.getPrioridadTicket() == Ticket.PrioridadTicket.BAJA)
-                    .count();
-
-            ticketPorPrioridad.put("ALTA", (int)ticketsAlta);
-            ticketPorPrioridad.put("MEDIA", (int)ticketsMedia);
-            ticketPorPrioridad.put("BAJA", (int)ticketsBaja);
+            for (Ticket.PrioridadTicket prioridad : List.of(Ticket.PrioridadTicket.ALTA,
+                    Ticket.PrioridadTicket.MEDIA, Ticket.PrioridadTicket.BAJA)) {
+                ticketPorPrioridad.put(prioridad.name(), (int) snapshot.contador("tickets", "prioridad", prioridad.name()));
+            }
             ticketMetrics.put("ticketsPorPrioridad", ticketPorPrioridad);
 
             // Tickets por tipo
             java.util.Map<String, Integer> ticketPorTipo = new java.util.HashMap<>();
-            long ticketsIncidencia = todosTickets.stream()
-                    .filter(t -> t.getTipoTicket() == Ticket.TipoTicket.INCIDENCIA)
-                    .count();
-            long ticketsConsulta = todosTickets.stream()
-                    .filter(t -> t.getTipoTicket() == Ticket.TipoTicket.CONSULTA)
-                    .count();
-            long ticketsRequerimiento = todosTickets.stream()
-                    .filter(t -> t.getTipoTicket() == Ticket.TipoTicket.REQUERIMIENTO)
-                    .count();
-
-            ticketPorTipo.put("INCIDENCIA", (int)ticketsIncidencia);
-            ticketPorTipo.put("CONSULTA", (int)ticketsConsulta);
-            ticketPorTipo.put("REQUERIMIENTO", (int)ticketsRequerimiento);
+            for (Ticket.TipoTicket tipo : List.of(Ticket.TipoTicket.INCIDENCIA,
+                    Ticket.TipoTicket.CONSULTA, Ticket.TipoTicket.REQUERIMIENTO)) {
+                ticketPorTipo.put(tipo.name(), (int) snapshot.contador("tickets", "tipo", tipo.name()));
+            }
             ticketMetrics.put("ticketsPorTipo", ticketPorTipo);
 
             // Calcular tiempo promedio de resolución (aproximado)
@@ -454,24 +338,16 @@ public class UserService {
             LocalDateTime ahora = LocalDateTime.now();
 
             for (int i = 5; i >= 0; i--) {
-                LocalDateTime inicioMes = ahora.minusMonths(i).withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-                LocalDateTime finMes = inicioMes.plusMonths(1).minusSeconds(1);
-
-                long usuariosMes = todosUsuarios.stream()
-                        .filter(u -> u.getFechaCreacion() != null &&
-                                u.getFechaCreacion().isAfter(inicioMes) &&
-                                u.getFechaCreacion().isBefore(finMes))
-                        .count();
-
+                LocalDateTime inicioMes = ahora.minusMonths(i);
+                String claveMes = String.format("%d-%02d", inicioMes.getYear(), inicioMes.getMonthValue());
                 String nombreMes = obtenerNombreMes(inicioMes.getMonthValue());
-                usuariosPorMes.put(nombreMes, (int)usuariosMes);
+                usuariosPorMes.put(nombreMes, (int) snapshot.contador("usuarios", "mes", claveMes));
             }
 
             metrics.put("usuariosPorMes", usuariosPorMes);
 
             // Métricas de categorías
-            List<Categoria> todasCategorias = categoriaRepository.findAll();
-            metrics.put("totalCategorias", todasCategorias.size());
+            metrics.put("totalCategorias", (int) snapshot.contador("categorias", "total", "total"));
 
             return metrics;
 
@@ -0,0 +1,77 @@
+package org.project.project.service;
+
+import org.project.project.model.dto.UsuarioCacheado;
+import org.project.project.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Caché "usuarios": resumen inmutable del usuario por username (id, estado, acceso y roles)
+ * - Los roles se cargan con JOIN FETCH al construir el resumen, nunca de forma LAZY fuera de la sesión
+ * - Los servicios que cambian roles, estado, acceso o username llaman a invalidar() con el username
+ *   anterior y el nuevo, así un baneo o una degradación se aplican en la siguiente petición
+ * - Servicio aparte para que UserService, TokenService y PlatformUserManagementService puedan
+ *   invalidar sin dependencias circulares entre ellos
+ */
+@Service
+public class UsuarioCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsuarioCacheService.class);
+    private static final String CACHE = "usuarios";
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * Resumen del usuario por username
+     * @return null si no existe (no se cachea: un usuario recién creado se encuentra en la siguiente llamada)
+     */
+    @Cacheable(value = CACHE, key = "'username:' + #username", unless = "#result == null")
+    @Transactional(readOnly = true)
+    public UsuarioCacheado obtenerPorUsername(String username) {
+        return usuarioRepository.findByUsernameConRoles(username)
+                .map(UsuarioCacheado::desde)
+                .orElse(null);
+    }
+
+    /**
+     * Elimina del caché las entradas de los usernames indicados (ignora nulos)
+     * Dentro de una transacción se repite al terminarla: una lectura concurrente anterior al commit
+     * podría haber vuelto a cachear el estado viejo
+     */
+    public void invalidar(String... usernames) {
+        evictar(usernames);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictar(usernames);
+                }
+            });
+        }
+    }
+
+    private void evictar(String... usernames) {
+        Cache cache = cacheManager.getCache(CACHE);
+        if (cache == null) {
+            return;
+        }
+        for (String username : usernames) {
+            if (username != null) {
+                cache.evict("username:" + username);
+                logger.debug("🗑️ [CACHE] usuarios: invalidado '{}'", username);
+            }
+        }
+    }
+}
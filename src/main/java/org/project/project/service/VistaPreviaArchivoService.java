@@ -0,0 +1,474 @@
+package org.project.project.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.project.project.model.entity.Nodo;
+import org.project.project.repository.NodoRepository;
+import org.project.project.service.storage.MetadatosBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Vista previa paginada de archivos de texto
+ *
+ * - Solo se lee de GCS el tramo necesario (seek + limit), fijado a la generación del objeto
+ * - Los primeros 8 KiB deciden si el archivo es binario (bytes NUL o exceso de caracteres de control)
+ *   y su codificación: BOM (UTF-8 / UTF-16), UTF-8 estricto o windows-1252
+ * - Modo "lineas": offset = primera línea (0-indexed), limit = cantidad de líneas; el salto hasta la
+ *   línea pedida parte del punto de control más cercano de {@link IndiceLineasCache}
+ * - Modo "bytes": offset = byte inicial, limit = cantidad de bytes (ajustados a límites de carácter)
+ * - El JSON se escribe en streaming mientras se lee el objeto
+ * Los permisos los valida el controlador antes de llamar a este servicio.
+ */
+@Service
+public class VistaPreviaArchivoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VistaPreviaArchivoService.class);
+
+    /** Bytes iniciales usados para detectar binarios y codificación */
+    private static final int MUESTRA_BYTES = 8192;
+
+    /** Bloque que el canal pide a GCS en cada lectura */
+    private static final int CHUNK_LECTURA = 256 * 1024;
+
+    private static final Charset WINDOWS_1252 = Charset.isSupported("windows-1252")
+            ? Charset.forName("windows-1252") : StandardCharsets.ISO_8859_1;
+
+    private final JsonFactory jsonFactory = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private NodoRepository nodoRepository;
+
+    @Autowired
+    private IndiceLineasCache indiceLineasCache;
+
+    @Value("${files.preview.max-lineas:2000}")
+    private int maxLineas;
+
+    @Value("${files.preview.max-bytes:1048576}")
+    private int maxBytes;
+
+    @Value("${files.preview.max-caracteres-linea:10000}")
+    private int maxCaracteresLinea;
+
+    @Value("${files.preview.content-max-mb:5}")
+    private long contenidoMaxMb;
+
+    private record Objeto(String gcsPath, long generacion, long tamanio) {}
+
+    /**
+     * Codificación detectada
+     * @param bom Bytes de BOM al inicio del archivo
+     * @param anchoUnidad 1 para codificaciones de un byte / UTF-8, 2 para UTF-16
+     */
+    private record Formato(Charset charset, int bom, int anchoUnidad, boolean bigEndian, boolean binario) {}
+
+    /**
+     * Construye la respuesta de vista previa de un nodo de tipo archivo
+     * @param modo "lineas" (default) o "bytes"
+     * @param offset Primera línea o primer byte
+     * @param limite Cantidad de líneas o bytes (null = valor por defecto del modo)
+     */
+    public ResponseEntity<?> vistaPrevia(Nodo nodo, String modo, long offset, Integer limite) throws IOException {
+        boolean porBytes;
+        String modoNormalizado = modo != null ? modo.trim().toLowerCase(Locale.ROOT) : "lineas";
+        switch (modoNormalizado) {
+            case "lineas", "lines" -> porBytes = false;
+            case "bytes" -> porBytes = true;
+            default -> {
+                return ResponseEntity.badRequest().body(Map.of("error", "Modo inválido: " + modo));
+            }
+        }
+        if (offset < 0 || (limite != null && limite <= 0)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "offset y limit deben ser positivos"));
+        }
+        if (nodo.getGcsPath() == null || nodo.getGcsPath().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "El archivo no tiene una ruta de almacenamiento válida"));
+        }
+
+        Objeto objeto = resolverObjeto(nodo);
+        if (objeto == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Archivo no encontrado en el almacenamiento"));
+        }
+
+        byte[] muestra = leerRango(objeto, 0, (int) Math.min(MUESTRA_BYTES, objeto.tamanio()));
+        Formato formato = detectarFormato(muestra);
+        if (formato.binario()) {
+            logger.info("📦 [PREVIEW] Archivo binario detectado por contenido: '{}'", nodo.getNombre());
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(Map.of(
+                    "error", "Archivo binario",
+                    "message", "Este archivo es binario y no se puede mostrar como texto",
+                    "nombre", nodo.getNombre(),
+                    "mimeType", nodo.getMimeType() != null ? nodo.getMimeType() : "application/octet-stream",
+                    "size", objeto.tamanio()
+            ));
+        }
+
+        StreamingResponseBody cuerpo = porBytes
+                ? ventanaBytes(nodo, objeto, formato, offset, Math.min(limite != null ? limite : 64 * 1024, maxBytes))
+                : ventanaLineas(nodo, objeto, formato, offset, Math.min(limite != null ? limite : 200, maxLineas));
+
+        logger.debug("👁️ [PREVIEW] {} modo={} offset={} limit={} ({} bytes, {})",
+                nodo.getNombre(), modoNormalizado, offset, limite, objeto.tamanio(), formato.charset().name());
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(cuerpo);
+    }
+
+    /**
+     * Indica si el archivo supera el tamaño máximo que /content devuelve completo en memoria
+     */
+    public boolean excedeLimiteContenido(Nodo nodo) {
+        Long tamanio = nodo.getSize();
+        if (tamanio == null && nodo.getGcsPath() != null) {
+            MetadatosBlob blob = fileStorageService.obtenerBlob(nodo.getGcsPath());
+            tamanio = blob != null ? blob.tamanio() : null;
+        }
+        return tamanio != null && tamanio > contenidoMaxMb * 1024 * 1024;
+    }
+
+    // =================== MODO LÍNEAS ===================
+
+    private StreamingResponseBody ventanaLineas(Nodo nodo, Objeto objeto, Formato formato, long offset, int limite) {
+        IndiceLineasCache.IndiceLineas indice = indiceLineasCache.obtener(
+                objeto.gcsPath(), objeto.generacion(), formato.bom());
+        int maxBytesLinea = maxCaracteresLinea * 4;
+
+        return salida -> {
+            long[] punto = indice.puntoDePartida(offset);
+            long linea = punto[0];
+            long inicio = punto[1];
+            int emitidas = 0;
+            int truncadas = 0;
+            long bytesEmitidos = 0;
+            boolean fin = true;
+
+            try (JsonGenerator json = jsonFactory.createGenerator(salida, JsonEncoding.UTF8)) {
+                escribirCabecera(json, nodo, objeto, formato, "lineas", offset);
+                json.writeArrayFieldStart("lineas");
+
+                if (inicio < objeto.tamanio()) {
+                    try (ReadableByteChannel canal = fileStorageService.abrirCanalRango(
+                            objeto.gcsPath(), objeto.generacion(), inicio, objeto.tamanio() - 1, CHUNK_LECTURA)) {
+                        LectorLineas lector = new LectorLineas(
+                                new BufferedInputStream(Channels.newInputStream(canal), 64 * 1024), formato, inicio);
+
+                        // Salto desde el punto de control hasta la línea pedida (sin decodificar)
+                        boolean hayLinea = true;
+                        while (linea < offset && (hayLinea = lector.saltar())) {
+                            indice.registrar(linea, lector.inicioLinea);
+                            linea++;
+                        }
+
+                        while (hayLinea && emitidas < limite && bytesEmitidos < maxBytes) {
+                            byte[] bytes = lector.siguiente(maxBytesLinea);
+                            if (bytes == null) {
+                                break;
+                            }
+                            indice.registrar(linea, lector.inicioLinea);
+                            String texto = decodificarLinea(bytes, formato.charset());
+                            if (lector.truncada || texto.length() > maxCaracteresLinea) {
+                                texto = texto.substring(0, Math.min(texto.length(), maxCaracteresLinea));
+                                truncadas++;
+                            }
+                            json.writeString(texto);
+                            bytesEmitidos += bytes.length;
+                            linea++;
+                            emitidas++;
+                        }
+                        fin = !lector.hayMas();
+                    }
+                }
+                if (fin) {
+                    indice.marcarCompleto(linea);
+                }
+
+                json.writeEndArray();
+                json.writeNumberField("cantidad", emitidas);
+                json.writeNumberField("truncadas", truncadas);
+                json.writeBooleanField("fin", fin);
+                if (fin) {
+                    json.writeNullField("siguienteOffset");
+                } else {
+                    json.writeNumberField("siguienteOffset", linea);
+                }
+                long total = indice.getTotalLineas();
+                if (total >= 0) {
+                    json.writeNumberField("totalLineas", total);
+                } else {
+                    json.writeNullField("totalLineas");
+                }
+                json.writeEndObject();
+            }
+        };
+    }
+
+    // =================== MODO BYTES ===================
+
+    private StreamingResponseBody ventanaBytes(Nodo nodo, Objeto objeto, Formato formato, long offset, int limite) {
+        return salida -> {
+            // El inicio se alinea a una unidad completa (no se parte un carácter UTF-16 ni se muestra el BOM)
+            long inicio = Math.max(offset, formato.bom());
+            if (formato.anchoUnidad() == 2 && (inicio - formato.bom()) % 2 != 0) {
+                inicio++;
+            }
+            int longitud = (int) Math.max(0, Math.min(limite, objeto.tamanio() - inicio));
+            byte[] bytes = longitud > 0 ? leerRango(objeto, inicio, longitud) : new byte[0];
+
+            int desde = 0;
+            int hasta = bytes.length;
+            if (formato.anchoUnidad() == 2) {
+                hasta -= hasta % 2;
+            } else if (StandardCharsets.UTF_8.equals(formato.charset())) {
+                while (desde < hasta && desde < 3 && esContinuacionUtf8(bytes[desde])) {
+                    desde++;
+                }
+                hasta = finSecuenciaUtf8Completa(bytes, desde, hasta, inicio + hasta < objeto.tamanio());
+            }
+            long siguiente = inicio + hasta;
+            boolean fin = siguiente >= objeto.tamanio();
+
+            try (JsonGenerator json = jsonFactory.createGenerator(salida, JsonEncoding.UTF8)) {
+                escribirCabecera(json, nodo, objeto, formato, "bytes", offset);
+                json.writeNumberField("inicio", inicio + desde);
+                json.writeStringField("contenido", new String(bytes, desde, hasta - desde, formato.charset()));
+                json.writeBooleanField("fin", fin);
+                if (fin) {
+                    json.writeNullField("siguienteOffset");
+                } else {
+                    json.writeNumberField("siguienteOffset", siguiente);
+                }
+                json.writeEndObject();
+            }
+        };
+    }
+
+    // =================== DETECCIÓN ===================
+
+    private Formato detectarFormato(byte[] muestra) {
+        int n = muestra.length;
+        if (n >= 3 && muestra[0] == (byte) 0xEF && muestra[1] == (byte) 0xBB && muestra[2] == (byte) 0xBF) {
+            return new Formato(StandardCharsets.UTF_8, 3, 1, false, false);
+        }
+        if (n >= 2 && muestra[0] == (byte) 0xFE && muestra[1] == (byte) 0xFF) {
+            return new Formato(StandardCharsets.UTF_16BE, 2, 2, true, false);
+        }
+        if (n >= 2 && muestra[0] == (byte) 0xFF && muestra[1] == (byte) 0xFE) {
+            return new Formato(StandardCharsets.UTF_16LE, 2, 2, false, false);
+        }
+
+        int control = 0;
+        for (byte b : muestra) {
+            int valor = b & 0xFF;
+            if (valor == 0) {
+                return new Formato(StandardCharsets.ISO_8859_1, 0, 1, false, true);
+            }
+            if (valor < 0x20 && valor != '\n' && valor != '\r' && valor != '\t' && valor != '\f' && valor != 0x1B) {
+                control++;
+            }
+        }
+        // Más de un 10% de caracteres de control: binario
+        if (control * 10 > n) {
+            return new Formato(StandardCharsets.ISO_8859_1, 0, 1, false, true);
+        }
+        Charset charset = esUtf8Valido(muestra) ? StandardCharsets.UTF_8 : WINDOWS_1252;
+        return new Formato(charset, 0, 1, false, false);
+    }
+
+    /**
+     * UTF-8 estricto sobre la muestra (una secuencia incompleta al final no cuenta como error)
+     */
+    private boolean esUtf8Valido(byte[] muestra) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        return !decoder.decode(ByteBuffer.wrap(muestra), CharBuffer.allocate(muestra.length), false).isError();
+    }
+
+    private static boolean esContinuacionUtf8(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /**
+     * Recorta una secuencia UTF-8 incompleta al final de la ventana (si el archivo continúa)
+     */
+    private static int finSecuenciaUtf8Completa(byte[] bytes, int desde, int hasta, boolean continua) {
+        if (!continua) {
+            return hasta;
+        }
+        for (int i = hasta - 1; i >= Math.max(desde, hasta - 4); i--) {
+            int valor = bytes[i] & 0xFF;
+            if ((valor & 0xC0) == 0x80) {
+                continue;
+            }
+            int largo = valor >= 0xF0 ? 4 : valor >= 0xE0 ? 3 : valor >= 0xC0 ? 2 : 1;
+            return i + largo <= hasta ? hasta : i;
+        }
+        return hasta;
+    }
+
+    private String decodificarLinea(byte[] bytes, Charset charset) {
+        String texto = new String(bytes, charset);
+        return texto.endsWith("\r") ? texto.substring(0, texto.length() - 1) : texto;
+    }
+
+    // =================== LECTURA ===================
+
+    /**
+     * Generación y tamaño del objeto: los de BD bastan; los nodos sin generación la leen una vez
+     */
+    private Objeto resolverObjeto(Nodo nodo) {
+        Long generacion = nodo.getGcsGeneration();
+        Long tamanio = nodo.getSize();
+        if (generacion == null || tamanio == null) {
+            MetadatosBlob blob = fileStorageService.obtenerBlob(nodo.getGcsPath());
+            if (blob == null) {
+                return null;
+            }
+            if (generacion == null) {
+                generacion = blob.generacion();
+                nodoRepository.guardarGeneracionGcs(nodo.getNodoId(), nodo.getGcsPath(), generacion);
+            }
+            tamanio = blob.tamanio();
+        }
+        return new Objeto(nodo.getGcsPath(), generacion, tamanio != null ? tamanio : 0L);
+    }
+
+    private byte[] leerRango(Objeto objeto, long inicio, int longitud) throws IOException {
+        if (longitud <= 0) {
+            return new byte[0];
+        }
+        // En disco local el rango llega mapeado en memoria; en GCS, en una sola lectura
+        ByteBuffer rango = fileStorageService.leerRango(objeto.gcsPath(), objeto.generacion(), inicio, longitud);
+        byte[] bytes = new byte[rango.remaining()];
+        rango.get(bytes);
+        return bytes;
+    }
+
+    private void escribirCabecera(JsonGenerator json, Nodo nodo, Objeto objeto, Formato formato,
+                                  String modo, long offset) throws IOException {
+        json.writeStartObject();
+        json.writeBooleanField("success", true);
+        json.writeStringField("nombre", nodo.getNombre());
+        json.writeStringField("mimeType", nodo.getMimeType() != null ? nodo.getMimeType() : "text/plain");
+        json.writeNumberField("size", objeto.tamanio());
+        json.writeStringField("charset", formato.charset().name());
+        json.writeStringField("modo", modo);
+        json.writeNumberField("offset", offset);
+    }
+
+    /**
+     * Lector de líneas sobre bytes crudos que respeta el ancho de unidad de la codificación
+     * (en UTF-16 el salto de línea son dos bytes y un 0x0A suelto no corta la línea)
+     */
+    private static final class LectorLineas {
+
+        private final InputStream entrada;
+        private final int ancho;
+        private final boolean bigEndian;
+        private long posicion;
+
+        /** Byte donde empezó la última línea leída */
+        private long inicioLinea;
+
+        /** true si la última línea superó el máximo y se recortó */
+        private boolean truncada;
+
+        LectorLineas(InputStream entrada, Formato formato, long posicion) {
+            this.entrada = entrada;
+            this.ancho = formato.anchoUnidad();
+            this.bigEndian = formato.bigEndian();
+            this.posicion = posicion;
+        }
+
+        /**
+         * Lee la siguiente línea (sin el salto)
+         * @return null al final del archivo
+         */
+        byte[] siguiente(int maxBytesLinea) throws IOException {
+            ByteArrayOutputStream linea = new ByteArrayOutputStream(Math.min(maxBytesLinea, 256));
+            truncada = false;
+            return leer(linea, maxBytesLinea) ? linea.toByteArray() : null;
+        }
+
+        /**
+         * Avanza una línea sin guardar su contenido
+         * @return false al final del archivo
+         */
+        boolean saltar() throws IOException {
+            return leer(null, 0);
+        }
+
+        boolean hayMas() throws IOException {
+            entrada.mark(1);
+            int b = entrada.read();
+            entrada.reset();
+            return b >= 0;
+        }
+
+        private boolean leer(ByteArrayOutputStream destino, int maxBytesLinea) throws IOException {
+            inicioLinea = posicion;
+            boolean leyoAlgo = false;
+            while (true) {
+                int b0 = entrada.read();
+                if (b0 < 0) {
+                    return leyoAlgo;
+                }
+                int b1 = 0;
+                if (ancho == 2) {
+                    b1 = entrada.read();
+                    if (b1 < 0) {
+                        return true;
+                    }
+                }
+                posicion += ancho;
+                leyoAlgo = true;
+
+                int unidad = ancho == 1 ? b0 : bigEndian ? (b0 << 8) | b1 : (b1 << 8) | b0;
+                if (unidad == '\n') {
+                    return true;
+                }
+                if (destino != null) {
+                    if (destino.size() + ancho <= maxBytesLinea) {
+                        destino.write(b0);
+                        if (ancho == 2) {
+                            destino.write(b1);
+                        }
+                    } else {
+                        truncada = true;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.project.project.service.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Almacenamiento de objetos de un bucket, independiente del backend (GCS o disco local)
+ * El backend se elige con storage.backend (gcs | local); los servicios solo dependen de esta interfaz.
+ * Las rutas son relativas al bucket y usan '/' como separador.
+ */
+public interface BlobStore {
+
+    /** Tamaño de bloque por defecto para lecturas secuenciales */
+    int BLOQUE_LECTURA = 2 * 1024 * 1024;
+
+    /**
+     * Nombre del bucket (o del directorio raíz en disco)
+     */
+    String getNombre();
+
+    /**
+     * Indica si el bucket existe y es accesible
+     */
+    boolean disponible();
+
+    // =================== ESCRITURA ===================
+
+    /**
+     * Guarda un objeto leyendo el stream hasta el final (no lo carga en memoria)
+     * @param metadatos Metadatos personalizados (puede ser null)
+     * @return Metadatos del objeto creado
+     */
+    MetadatosBlob guardar(String ruta, InputStream contenido, String contentType,
+                          Map<String, String> metadatos) throws IOException;
+
+    default MetadatosBlob guardar(String ruta, byte[] contenido, String contentType,
+                                  Map<String, String> metadatos) throws IOException {
+        return guardar(ruta, new ByteArrayInputStream(contenido), contentType, metadatos);
+    }
+
+    /**
+     * Abre un canal de escritura; el objeto solo queda creado al cerrarlo
+     */
+    WritableByteChannel abrirEscritura(String ruta, String contentType) throws IOException;
+
+    /**
+     * Abre una escritura reanudable (subidas por partes)
+     * @param tamanioBloque Tamaño de bloque que el backend envía en cada petición
+     */
+    EscrituraReanudable abrirEscrituraReanudable(String ruta, String contentType, int tamanioBloque) throws IOException;
+
+    /**
+     * Retoma una escritura a partir del estado devuelto por {@link EscrituraReanudable#capturar()}
+     */
+    EscrituraReanudable restaurarEscritura(byte[] estado) throws IOException;
+
+    // =================== LECTURA ===================
+
+    /**
+     * Metadatos del objeto sin leer su contenido
+     * @return Metadatos, o null si no existe
+     */
+    MetadatosBlob obtener(String ruta);
+
+    /**
+     * Abre un canal de lectura sobre el objeto completo
+     * Si el objeto no existe, el error puede aparecer en la primera lectura
+     */
+    ReadableByteChannel abrirLectura(String ruta, int tamanioBloque) throws IOException;
+
+    /**
+     * Abre un canal de lectura sobre un rango de bytes
+     * @param generacion Generación esperada (null = la actual); si el objeto fue reescrito la lectura falla
+     * @param inicio Primer byte (inclusive)
+     * @param fin Último byte (inclusive)
+     */
+    ReadableByteChannel abrirRango(String ruta, Long generacion, long inicio, long fin,
+                                   int tamanioBloque) throws IOException;
+
+    /**
+     * Copia un rango de bytes hacia una salida (descargas)
+     * @return Bytes escritos
+     */
+    default long transferirRango(String ruta, Long generacion, long inicio, long fin,
+                                 OutputStream salida) throws IOException {
+        try (ReadableByteChannel canal = abrirRango(ruta, generacion, inicio, fin, BLOQUE_LECTURA);
+             InputStream entrada = Channels.newInputStream(canal)) {
+            return entrada.transferTo(salida);
+        }
+    }
+
+    /**
+     * Lee un rango acotado de bytes (vistas previas)
+     * @return Buffer listo para leer con los bytes del rango (puede ser más corto si el objeto termina antes)
+     */
+    default ByteBuffer leerRango(String ruta, Long generacion, long inicio, int longitud) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(longitud);
+        try (ReadableByteChannel canal = abrirRango(ruta, generacion, inicio, inicio + longitud - 1,
+                Math.max(longitud, 64 * 1024))) {
+            while (buffer.hasRemaining() && canal.read(buffer) >= 0) {
+                // sigue leyendo hasta completar el rango
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Descarga el objeto completo a un archivo local
+     */
+    void descargarA(String ruta, Path destino) throws IOException;
+
+    // =================== GESTIÓN ===================
+
+    /**
+     * Copia un objeto dentro del bucket (del lado del servidor cuando el backend lo permite)
+     * @return Metadatos de la copia, o null si el origen no existe
+     */
+    MetadatosBlob copiar(String rutaOrigen, String rutaDestino);
+
+    /**
+     * @return true si el objeto fue eliminado, false si no existía
+     */
+    boolean eliminar(String ruta);
+
+    /**
+     * Elimina una generación concreta (no borra el objeto si fue reescrito)
+     * @return true si se eliminó, false si no existía o cambió de generación
+     */
+    boolean eliminar(String ruta, long generacion);
+
+    /**
+     * Elimina varios objetos en la menor cantidad de peticiones posible
+     */
+    void eliminarEnLote(Collection<String> rutas);
+
+    /**
+     * Lista los objetos cuya ruta empieza con el prefijo (excluye las "carpetas" terminadas en '/')
+     */
+    List<MetadatosBlob> listar(String prefijo);
+
+    /**
+     * Reemplaza los metadatos personalizados del objeto
+     * @return Metadatos actualizados, o null si el objeto no existe
+     */
+    MetadatosBlob actualizarMetadatos(String ruta, Map<String, String> metadatos);
+
+    /**
+     * URL de acceso temporal sin sesión
+     */
+    URL urlFirmada(String ruta, long duracion, TimeUnit unidad);
+}
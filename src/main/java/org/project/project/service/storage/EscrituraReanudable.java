@@ -0,0 +1,17 @@
+package org.project.project.service.storage;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Canal de escritura cuyo estado se puede guardar y retomar en otra petición o instancia
+ * El objeto solo queda creado al cerrar el canal. Después de {@link #capturar()} este canal
+ * no se vuelve a usar: la escritura continúa sobre {@link BlobStore#restaurarEscritura(byte[])}
+ */
+public interface EscrituraReanudable extends WritableByteChannel {
+
+    /**
+     * Serializa el estado de la escritura (se guarda en BD entre partes)
+     */
+    byte[] capturar() throws IOException;
+}
@@ -0,0 +1,363 @@
+package org.project.project.service.storage;
+
+import com.google.auth.Credentials;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.ReadChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageBatch;
+import com.google.cloud.storage.StorageException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BlobStore sobre un bucket de Google Cloud Storage
+ * - Lecturas por rango fijadas a una generación (BlobId con generación)
+ * - Escrituras reanudables sobre el protocolo resumable de la API JSON: entre partes solo se guarda
+ *   la URI de la sesión y la posición (nunca credenciales); la sesión se retoma desde cualquier instancia
+ * - Borrados en lote con StorageBatch (hasta 100 operaciones por petición)
+ */
+public class GcsBlobStore implements BlobStore {
+
+    /** La API batch de GCS admite hasta 100 operaciones por petición */
+    private static final int MAX_LOTE = 100;
+
+    /** Las partes intermedias de una sesión resumable deben ser múltiplo de 256 KiB */
+    private static final int MULTIPLO_SESION = 256 * 1024;
+
+    private static final HttpClient HTTP = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+
+    private final Storage storage;
+    private final String bucket;
+
+    public GcsBlobStore(Storage storage, String bucket) {
+        this.storage = storage;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public String getNombre() {
+        return bucket;
+    }
+
+    @Override
+    public boolean disponible() {
+        var info = storage.get(bucket);
+        return info != null && info.exists();
+    }
+
+    // =================== ESCRITURA ===================
+
+    @Override
+    public MetadatosBlob guardar(String ruta, InputStream contenido, String contentType,
+                                 Map<String, String> metadatos) throws IOException {
+        BlobInfo.Builder info = BlobInfo.newBuilder(BlobId.of(bucket, ruta)).setContentType(contentType);
+        if (metadatos != null && !metadatos.isEmpty()) {
+            info.setMetadata(metadatos);
+        }
+        // Upload resumable desde el stream: no se carga el contenido en el heap
+        return aMetadatos(storage.createFrom(info.build(), contenido));
+    }
+
+    @Override
+    public WritableByteChannel abrirEscritura(String ruta, String contentType) {
+        return storage.writer(BlobInfo.newBuilder(BlobId.of(bucket, ruta)).setContentType(contentType).build());
+    }
+
+    @Override
+    public EscrituraReanudable abrirEscrituraReanudable(String ruta, String contentType, int tamanioBloque)
+            throws IOException {
+        String inicio = prefijoSesion() + "?uploadType=resumable&name="
+                + URLEncoder.encode(ruta, StandardCharsets.UTF_8);
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(inicio))
+                .timeout(Duration.ofMinutes(1))
+                .header("X-Upload-Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.noBody());
+        autenticar(peticion, inicio);
+
+        HttpResponse<Void> respuesta = enviar(peticion.build());
+        String sesion = respuesta.headers().firstValue("Location").orElse(null);
+        if (respuesta.statusCode() != 200 || sesion == null) {
+            throw new IOException("GCS no inició la sesión resumable (HTTP " + respuesta.statusCode() + ")");
+        }
+        int bloque = Math.max(MULTIPLO_SESION, (tamanioBloque / MULTIPLO_SESION) * MULTIPLO_SESION);
+        return new EscrituraGcs(sesion, 0, bloque);
+    }
+
+    @Override
+    public EscrituraReanudable restaurarEscritura(byte[] estado) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(estado))) {
+            String sesion = entrada.readUTF();
+            long posicion = entrada.readLong();
+            int tamanioBloque = entrada.readInt();
+            // La URI viene de BD: solo se aceptan sesiones de este bucket en el host configurado
+            if (!sesion.startsWith(prefijoSesion() + "?") || posicion < 0 || tamanioBloque % MULTIPLO_SESION != 0) {
+                throw new IOException("Estado de escritura no reconocido");
+            }
+            return new EscrituraGcs(sesion, posicion, tamanioBloque);
+        }
+    }
+
+    private String prefijoSesion() {
+        return storage.getOptions().getHost() + "/upload/storage/v1/b/"
+                + URLEncoder.encode(bucket, StandardCharsets.UTF_8) + "/o";
+    }
+
+    /**
+     * Cabecera de autorización con las credenciales del Storage inyectado (solo para abrir la sesión:
+     * la URI de la sesión ya autoriza las partes)
+     */
+    private void autenticar(HttpRequest.Builder peticion, String url) throws IOException {
+        Credentials credenciales = storage.getOptions().getCredentials();
+        if (credenciales == null || credenciales instanceof NoCredentials) {
+            return;
+        }
+        for (Map.Entry<String, List<String>> cabecera : credenciales.getRequestMetadata(URI.create(url)).entrySet()) {
+            for (String valor : cabecera.getValue()) {
+                peticion.header(cabecera.getKey(), valor);
+            }
+        }
+    }
+
+    private static HttpResponse<Void> enviar(HttpRequest peticion) throws IOException {
+        try {
+            return HTTP.send(peticion, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Subida interrumpida", e);
+        }
+    }
+
+    // =================== LECTURA ===================
+
+    @Override
+    public MetadatosBlob obtener(String ruta) {
+        Blob blob = storage.get(BlobId.of(bucket, ruta));
+        return blob != null && blob.exists() ? aMetadatos(blob) : null;
+    }
+
+    @Override
+    public ReadableByteChannel abrirLectura(String ruta, int tamanioBloque) {
+        ReadChannel reader = storage.reader(BlobId.of(bucket, ruta));
+        reader.setChunkSize(tamanioBloque);
+        return reader;
+    }
+
+    @Override
+    public ReadableByteChannel abrirRango(String ruta, Long generacion, long inicio, long fin,
+                                          int tamanioBloque) throws IOException {
+        ReadChannel reader = storage.reader(BlobId.of(bucket, ruta, generacion));
+        reader.setChunkSize(tamanioBloque);
+        reader.seek(inicio);
+        reader.limit(fin + 1);
+        return reader;
+    }
+
+    @Override
+    public void descargarA(String ruta, Path destino) {
+        Blob blob = storage.get(BlobId.of(bucket, ruta));
+        if (blob == null || !blob.exists()) {
+            throw new IllegalArgumentException("Archivo no encontrado en GCS: " + ruta);
+        }
+        blob.downloadTo(destino);
+    }
+
+    // =================== GESTIÓN ===================
+
+    @Override
+    public MetadatosBlob copiar(String rutaOrigen, String rutaDestino) {
+        try {
+            Blob copia = storage.copy(Storage.CopyRequest.of(
+                    BlobId.of(bucket, rutaOrigen), BlobId.of(bucket, rutaDestino))).getResult();
+            return aMetadatos(copia);
+        } catch (StorageException e) {
+            if (e.getCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean eliminar(String ruta) {
+        return storage.delete(BlobId.of(bucket, ruta));
+    }
+
+    @Override
+    public boolean eliminar(String ruta, long generacion) {
+        try {
+            return storage.delete(BlobId.of(bucket, ruta), Storage.BlobSourceOption.generationMatch(generacion));
+        } catch (StorageException e) {
+            if (e.getCode() == 412) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void eliminarEnLote(Collection<String> rutas) {
+        List<String> pendientes = new ArrayList<>(rutas);
+        for (int inicio = 0; inicio < pendientes.size(); inicio += MAX_LOTE) {
+            StorageBatch batch = storage.batch();
+            pendientes.subList(inicio, Math.min(inicio + MAX_LOTE, pendientes.size()))
+                    .forEach(ruta -> batch.delete(BlobId.of(bucket, ruta)));
+            batch.submit();
+        }
+    }
+
+    @Override
+    public List<MetadatosBlob> listar(String prefijo) {
+        List<MetadatosBlob> objetos = new ArrayList<>();
+        for (Blob blob : storage.list(bucket, Storage.BlobListOption.prefix(prefijo)).iterateAll()) {
+            if (!blob.getName().endsWith("/")) {
+                objetos.add(aMetadatos(blob));
+            }
+        }
+        return objetos;
+    }
+
+    @Override
+    public MetadatosBlob actualizarMetadatos(String ruta, Map<String, String> metadatos) {
+        Blob blob = storage.get(BlobId.of(bucket, ruta));
+        if (blob == null || !blob.exists()) {
+            return null;
+        }
+        return aMetadatos(blob.toBuilder().setMetadata(metadatos).build().update());
+    }
+
+    @Override
+    public URL urlFirmada(String ruta, long duracion, TimeUnit unidad) {
+        return storage.signUrl(BlobInfo.newBuilder(BlobId.of(bucket, ruta)).build(), duracion, unidad,
+                Storage.SignUrlOption.withV4Signature());
+    }
+
+    private MetadatosBlob aMetadatos(Blob blob) {
+        return new MetadatosBlob(blob.getName(), blob.getSize(), blob.getGeneration(), blob.getContentType(),
+                blob.getCreateTime(), blob.getUpdateTime(),
+                blob.getMetadata() != null ? new HashMap<>(blob.getMetadata()) : Map.of());
+    }
+
+    /**
+     * Escritura reanudable sobre una sesión resumable de GCS
+     * Acumula hasta {@code tamanioBloque} bytes y los envía con Content-Range; el último bloque se envía
+     * al cerrar con el tamaño total, lo que crea el objeto
+     */
+    private static final class EscrituraGcs implements EscrituraReanudable {
+
+        private final String sesion;
+        private final byte[] bufer;
+        private long posicion;
+        private int enBufer;
+        private boolean abierto = true;
+
+        EscrituraGcs(String sesion, long posicion, int tamanioBloque) {
+            this.sesion = sesion;
+            this.posicion = posicion;
+            this.bufer = new byte[tamanioBloque];
+        }
+
+        @Override
+        public int write(ByteBuffer origen) throws IOException {
+            if (!abierto) {
+                throw new ClosedChannelException();
+            }
+            int escritos = origen.remaining();
+            while (origen.hasRemaining()) {
+                if (enBufer == bufer.length) {
+                    // Solo se envía con más datos pendientes: el último bloque queda para close()
+                    enviarBloque(false);
+                }
+                int n = Math.min(origen.remaining(), bufer.length - enBufer);
+                origen.get(bufer, enBufer, n);
+                enBufer += n;
+            }
+            return escritos;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return abierto;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!abierto) {
+                return;
+            }
+            enviarBloque(true);
+            abierto = false;
+        }
+
+        @Override
+        public byte[] capturar() throws IOException {
+            if (enBufer % MULTIPLO_SESION != 0) {
+                throw new IOException("El estado solo se puede guardar en múltiplos de 256 KiB");
+            }
+            if (enBufer > 0) {
+                enviarBloque(false);
+            }
+            ByteArrayOutputStream salida = new ByteArrayOutputStream();
+            try (DataOutputStream datos = new DataOutputStream(salida)) {
+                datos.writeUTF(sesion);
+                datos.writeLong(posicion);
+                datos.writeInt(bufer.length);
+            }
+            return salida.toByteArray();
+        }
+
+        private void enviarBloque(boolean ultimo) throws IOException {
+            long fin = posicion + enBufer;
+            String rango = enBufer == 0
+                    ? "bytes */" + fin
+                    : "bytes " + posicion + "-" + (fin - 1) + "/" + (ultimo ? String.valueOf(fin) : "*");
+            HttpResponse<Void> respuesta = enviar(HttpRequest.newBuilder(URI.create(sesion))
+                    .timeout(Duration.ofMinutes(5))
+                    .header("Content-Range", rango)
+                    .PUT(HttpRequest.BodyPublishers.ofByteArray(bufer, 0, enBufer))
+                    .build());
+
+            int codigo = respuesta.statusCode();
+            if (ultimo ? (codigo != 200 && codigo != 201) : codigo != 308) {
+                throw new IOException("GCS rechazó el bloque " + rango + " (HTTP " + codigo + ")");
+            }
+            if (!ultimo) {
+                // 308: Range indica hasta dónde persistió GCS; debe cubrir todo lo enviado
+                String confirmado = respuesta.headers().firstValue("Range").orElse("");
+                if (!confirmado.equals("bytes=0-" + (fin - 1))) {
+                    throw new IOException("GCS no confirmó el bloque " + rango + " (" + confirmado + ")");
+                }
+            }
+            posicion = fin;
+            enBufer = 0;
+        }
+    }
+}
@@ -0,0 +1,600 @@
+package org.project.project.service.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * BlobStore sobre el sistema de archivos local (desarrollo, pruebas y despliegues sin GCS)
+ *
+ * Estructura bajo storage.local.raiz:
+ * - {bucket}/{ruta}: contenido de cada objeto
+ * - .metadatos/{bucket}/{ruta}.properties: content-type y metadatos personalizados
+ * - .tmp/: escrituras en curso; un objeto solo aparece al moverse atómicamente a su ruta
+ *
+ * La generación de un objeto es su fecha de modificación en microsegundos: cada escritura publica un
+ * archivo nuevo, así que un lector que fija la generación detecta el reemplazo igual que en GCS.
+ * Las descargas usan FileChannel.transferTo y las lecturas acotadas (vistas previas) se mapean en memoria.
+ */
+public class LocalBlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalBlobStore.class);
+
+    private static final String ALGORITMO_FIRMA = "HmacSHA256";
+    private static final String CLAVE_CONTENT_TYPE = "content-type";
+    private static final String PREFIJO_METADATO = "meta.";
+
+    private final String bucket;
+    private final Path base;
+    private final Path baseMetadatos;
+    private final Path temporales;
+    private final String urlBase;
+    private final byte[] claveFirma;
+    private final long horasTemporales;
+
+    /** Candados por ruta: la publicación y el borrado condicional de una misma ruta no se intercalan */
+    private final Object[] candados = new Object[64];
+
+    /**
+     * @param raiz Directorio raíz del almacenamiento local (compartido por todos los buckets)
+     * @param urlBase URL pública de /api/blob-local para las URLs firmadas
+     * @param claveFirma Clave HMAC de las URLs firmadas
+     * @param horasTemporales Horas tras las que se descarta una escritura abandonada en .tmp
+     */
+    public LocalBlobStore(Path raiz, String bucket, String urlBase, byte[] claveFirma,
+                          long horasTemporales) throws IOException {
+        this.bucket = bucket;
+        this.base = raiz.resolve(bucket).toAbsolutePath().normalize();
+        this.baseMetadatos = raiz.resolve(".metadatos").resolve(bucket).toAbsolutePath().normalize();
+        this.temporales = raiz.resolve(".tmp").toAbsolutePath().normalize();
+        this.urlBase = urlBase.endsWith("/") ? urlBase.substring(0, urlBase.length() - 1) : urlBase;
+        this.claveFirma = claveFirma;
+        this.horasTemporales = horasTemporales;
+        for (int i = 0; i < candados.length; i++) {
+            candados[i] = new Object();
+        }
+        Files.createDirectories(base);
+        Files.createDirectories(baseMetadatos);
+        Files.createDirectories(temporales);
+        logger.info("💾 [BLOB-LOCAL] Bucket '{}' en {}", bucket, base);
+    }
+
+    @Override
+    public String getNombre() {
+        return bucket;
+    }
+
+    @Override
+    public boolean disponible() {
+        return Files.isDirectory(base) && Files.isWritable(base);
+    }
+
+    // =================== ESCRITURA ===================
+
+    @Override
+    public MetadatosBlob guardar(String ruta, InputStream contenido, String contentType,
+                                 Map<String, String> metadatos) throws IOException {
+        Path destino = resolver(ruta);
+        Path temporal = Files.createTempFile(temporales, "blob-", ".tmp");
+        try {
+            Files.copy(contenido, temporal, StandardCopyOption.REPLACE_EXISTING);
+            publicar(temporal, destino, ruta, contentType, metadatos);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+        return obtener(ruta);
+    }
+
+    @Override
+    public WritableByteChannel abrirEscritura(String ruta, String contentType) throws IOException {
+        return abrirEscrituraReanudable(ruta, contentType, 0);
+    }
+
+    @Override
+    public EscrituraReanudable abrirEscrituraReanudable(String ruta, String contentType, int tamanioBloque)
+            throws IOException {
+        resolver(ruta);
+        Path temporal = Files.createTempFile(temporales, "carga-", ".tmp");
+        return new EscrituraLocal(ruta, contentType, temporal, 0);
+    }
+
+    @Override
+    public EscrituraReanudable restaurarEscritura(byte[] estado) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(estado))) {
+            String ruta = entrada.readUTF();
+            String contentType = entrada.readUTF();
+            Path temporal = temporales.resolve(entrada.readUTF()).normalize();
+            long posicion = entrada.readLong();
+            if (!temporal.getParent().equals(temporales)) {
+                throw new IOException("Estado de escritura no reconocido");
+            }
+            return new EscrituraLocal(ruta, contentType.isEmpty() ? null : contentType, temporal, posicion);
+        }
+    }
+
+    // =================== LECTURA ===================
+
+    @Override
+    public MetadatosBlob obtener(String ruta) {
+        Path archivo = resolver(ruta);
+        try {
+            BasicFileAttributes atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+            if (!atributos.isRegularFile()) {
+                return null;
+            }
+            Properties propiedades = leerPropiedades(ruta);
+            Map<String, String> metadatos = new HashMap<>();
+            for (String clave : propiedades.stringPropertyNames()) {
+                if (clave.startsWith(PREFIJO_METADATO)) {
+                    metadatos.put(clave.substring(PREFIJO_METADATO.length()), propiedades.getProperty(clave));
+                }
+            }
+            String contentType = propiedades.getProperty(CLAVE_CONTENT_TYPE);
+            if (contentType == null) {
+                contentType = Files.probeContentType(archivo);
+            }
+            return new MetadatosBlob(ruta, atributos.size(),
+                    atributos.lastModifiedTime().to(TimeUnit.MICROSECONDS), contentType,
+                    atributos.creationTime().toMillis(), atributos.lastModifiedTime().toMillis(), metadatos);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public ReadableByteChannel abrirLectura(String ruta, int tamanioBloque) throws IOException {
+        return FileChannel.open(resolver(ruta), StandardOpenOption.READ);
+    }
+
+    @Override
+    public ReadableByteChannel abrirRango(String ruta, Long generacion, long inicio, long fin,
+                                          int tamanioBloque) throws IOException {
+        FileChannel canal = abrirGeneracion(ruta, generacion);
+        canal.position(inicio);
+        return new CanalAcotado(canal, Math.max(0, fin - inicio + 1));
+    }
+
+    /**
+     * Copia el rango con FileChannel.transferTo: el kernel mueve los bytes sin pasar por el heap
+     * cuando el destino es un socket o un archivo
+     */
+    @Override
+    public long transferirRango(String ruta, Long generacion, long inicio, long fin,
+                                OutputStream salida) throws IOException {
+        try (FileChannel canal = abrirGeneracion(ruta, generacion)) {
+            WritableByteChannel destino = Channels.newChannel(salida);
+            long posicion = inicio;
+            long restantes = Math.min(fin + 1, canal.size()) - inicio;
+            while (restantes > 0) {
+                long transferidos = canal.transferTo(posicion, restantes, destino);
+                if (transferidos <= 0) {
+                    break;
+                }
+                posicion += transferidos;
+                restantes -= transferidos;
+            }
+            return posicion - inicio;
+        }
+    }
+
+    /**
+     * Mapea el rango en memoria (solo lectura): la vista previa lee directo de la caché de páginas
+     */
+    @Override
+    public ByteBuffer leerRango(String ruta, Long generacion, long inicio, int longitud) throws IOException {
+        try (FileChannel canal = abrirGeneracion(ruta, generacion)) {
+            long disponibles = canal.size() - inicio;
+            if (disponibles <= 0 || longitud <= 0) {
+                return ByteBuffer.allocate(0);
+            }
+            return canal.map(FileChannel.MapMode.READ_ONLY, inicio, Math.min(longitud, disponibles));
+        }
+    }
+
+    @Override
+    public void descargarA(String ruta, Path destino) throws IOException {
+        Files.copy(resolver(ruta), destino, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // =================== GESTIÓN ===================
+
+    @Override
+    public MetadatosBlob copiar(String rutaOrigen, String rutaDestino) {
+        Path origen = resolver(rutaOrigen);
+        if (!Files.isRegularFile(origen)) {
+            return null;
+        }
+        try {
+            Properties propiedades = leerPropiedades(rutaOrigen);
+            Path temporal = Files.createTempFile(temporales, "copia-", ".tmp");
+            try {
+                Files.copy(origen, temporal, StandardCopyOption.REPLACE_EXISTING);
+                publicar(temporal, resolver(rutaDestino), rutaDestino, propiedades);
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+            return obtener(rutaDestino);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo copiar " + rutaOrigen + " -> " + rutaDestino, e);
+        }
+    }
+
+    /**
+     * Los directorios que quedan vacíos se conservan: listar los ignora y borrarlos competiría
+     * con una publicación concurrente en la misma carpeta
+     */
+    @Override
+    public boolean eliminar(String ruta) {
+        Path archivo = resolver(ruta);
+        synchronized (candado(ruta)) {
+            try {
+                boolean eliminado = Files.deleteIfExists(archivo);
+                Files.deleteIfExists(rutaPropiedades(ruta));
+                return eliminado;
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo eliminar " + ruta, e);
+            }
+        }
+    }
+
+    @Override
+    public boolean eliminar(String ruta, long generacion) {
+        synchronized (candado(ruta)) {
+            MetadatosBlob actual = obtener(ruta);
+            if (actual == null || actual.generacion() != generacion) {
+                return false;
+            }
+            return eliminar(ruta);
+        }
+    }
+
+    @Override
+    public void eliminarEnLote(Collection<String> rutas) {
+        rutas.forEach(this::eliminar);
+    }
+
+    @Override
+    public List<MetadatosBlob> listar(String prefijo) {
+        int corte = prefijo.lastIndexOf('/');
+        Path directorio = corte < 0 ? base : resolverDirectorio(prefijo.substring(0, corte));
+        if (!Files.isDirectory(directorio)) {
+            return List.of();
+        }
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            return archivos.filter(Files::isRegularFile)
+                    .map(archivo -> base.relativize(archivo).toString().replace(archivo.getFileSystem().getSeparator(), "/"))
+                    .filter(ruta -> ruta.startsWith(prefijo))
+                    .sorted()
+                    .map(this::obtener)
+                    .filter(metadatos -> metadatos != null)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo listar " + prefijo, e);
+        }
+    }
+
+    @Override
+    public MetadatosBlob actualizarMetadatos(String ruta, Map<String, String> metadatos) {
+        synchronized (candado(ruta)) {
+            if (!Files.isRegularFile(resolver(ruta))) {
+                return null;
+            }
+            try {
+                Properties propiedades = leerPropiedades(ruta);
+                propiedades.stringPropertyNames().stream()
+                        .filter(clave -> clave.startsWith(PREFIJO_METADATO))
+                        .forEach(propiedades::remove);
+                agregarMetadatos(propiedades, metadatos);
+                escribirPropiedades(ruta, propiedades);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudieron actualizar los metadatos de " + ruta, e);
+            }
+        }
+        return obtener(ruta);
+    }
+
+    /**
+     * URL firmada con HMAC servida por /api/blob-local (no requiere sesión)
+     */
+    @Override
+    public URL urlFirmada(String ruta, long duracion, TimeUnit unidad) {
+        resolver(ruta);
+        long expira = System.currentTimeMillis() / 1000 + unidad.toSeconds(duracion);
+        String rutaCodificada = Stream.of(ruta.split("/"))
+                .map(segmento -> URLEncoder.encode(segmento, StandardCharsets.UTF_8).replace("+", "%20"))
+                .collect(Collectors.joining("/"));
+        try {
+            return URI.create(urlBase + "/" + bucket + "/" + rutaCodificada
+                    + "?expira=" + expira + "&firma=" + firmar(ruta, expira)).toURL();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo construir la URL firmada de " + ruta, e);
+        }
+    }
+
+    /**
+     * Valida la firma y la expiración de una URL generada por {@link #urlFirmada}
+     */
+    public boolean verificarFirma(String ruta, long expira, String firma) {
+        if (firma == null || expira < System.currentTimeMillis() / 1000) {
+            return false;
+        }
+        return MessageDigest.isEqual(firmar(ruta, expira).getBytes(StandardCharsets.US_ASCII),
+                firma.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Descarta escrituras abandonadas (subidas por partes que nunca se completaron)
+     * En GCS las sesiones resumables expiran solas; en disco hay que borrar el archivo parcial
+     */
+    @Scheduled(initialDelayString = "${storage.local.limpieza-interval-ms:3600000}",
+               fixedDelayString = "${storage.local.limpieza-interval-ms:3600000}")
+    public void limpiarTemporales() {
+        long limite = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(horasTemporales);
+        try (Stream<Path> archivos = Files.list(temporales)) {
+            long eliminados = archivos.filter(archivo -> {
+                try {
+                    return Files.getLastModifiedTime(archivo).toMillis() < limite && Files.deleteIfExists(archivo);
+                } catch (IOException e) {
+                    return false;
+                }
+            }).count();
+            if (eliminados > 0) {
+                logger.info("🧹 [BLOB-LOCAL] {} escritura(s) abandonada(s) eliminadas", eliminados);
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ [BLOB-LOCAL] No se pudo limpiar {}: {}", temporales, e.getMessage());
+        }
+    }
+
+    // =================== AUXILIARES ===================
+
+    /**
+     * Ruta del objeto dentro del bucket; rechaza rutas que escapan del directorio (../)
+     */
+    private Path resolver(String ruta) {
+        Path archivo = base.resolve(ruta).normalize();
+        if (!archivo.startsWith(base) || archivo.equals(base)) {
+            throw new IllegalArgumentException("Ruta fuera del almacenamiento: " + ruta);
+        }
+        return archivo;
+    }
+
+    private Path resolverDirectorio(String ruta) {
+        Path directorio = base.resolve(ruta).normalize();
+        if (!directorio.startsWith(base)) {
+            throw new IllegalArgumentException("Ruta fuera del almacenamiento: " + ruta);
+        }
+        return directorio;
+    }
+
+    private Path rutaPropiedades(String ruta) {
+        Path archivo = baseMetadatos.resolve(ruta + ".properties").normalize();
+        if (!archivo.startsWith(baseMetadatos)) {
+            throw new IllegalArgumentException("Ruta fuera del almacenamiento: " + ruta);
+        }
+        return archivo;
+    }
+
+    private Object candado(String ruta) {
+        return candados[Math.floorMod(ruta.hashCode(), candados.length)];
+    }
+
+    /**
+     * Abre el archivo y comprueba que sigue en la generación esperada
+     * El descriptor abierto sigue leyendo el mismo contenido aunque el objeto se reemplace después
+     */
+    private FileChannel abrirGeneracion(String ruta, Long generacion) throws IOException {
+        Path archivo = resolver(ruta);
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ);
+        if (generacion != null
+                && Files.getLastModifiedTime(archivo).to(TimeUnit.MICROSECONDS) != generacion) {
+            canal.close();
+            throw new IOException("El objeto " + ruta + " ya no está en la generación " + generacion);
+        }
+        return canal;
+    }
+
+    private void publicar(Path temporal, Path destino, String ruta, String contentType,
+                          Map<String, String> metadatos) throws IOException {
+        Properties propiedades = new Properties();
+        if (contentType != null) {
+            propiedades.setProperty(CLAVE_CONTENT_TYPE, contentType);
+        }
+        agregarMetadatos(propiedades, metadatos);
+        publicar(temporal, destino, ruta, propiedades);
+    }
+
+    private void publicar(Path temporal, Path destino, String ruta, Properties propiedades) throws IOException {
+        Files.createDirectories(destino.getParent());
+        synchronized (candado(ruta)) {
+            escribirPropiedades(ruta, propiedades);
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void agregarMetadatos(Properties propiedades, Map<String, String> metadatos) {
+        if (metadatos != null) {
+            metadatos.forEach((clave, valor) -> {
+                if (valor != null) {
+                    propiedades.setProperty(PREFIJO_METADATO + clave, valor);
+                }
+            });
+        }
+    }
+
+    private Properties leerPropiedades(String ruta) throws IOException {
+        Properties propiedades = new Properties();
+        Path archivo = rutaPropiedades(ruta);
+        if (Files.isRegularFile(archivo)) {
+            try (InputStream entrada = Files.newInputStream(archivo)) {
+                propiedades.load(entrada);
+            }
+        }
+        return propiedades;
+    }
+
+    private void escribirPropiedades(String ruta, Properties propiedades) throws IOException {
+        Path archivo = rutaPropiedades(ruta);
+        Files.createDirectories(archivo.getParent());
+        Path temporal = Files.createTempFile(temporales, "meta-", ".tmp");
+        try {
+            try (OutputStream salida = Files.newOutputStream(temporal)) {
+                propiedades.store(salida, null);
+            }
+            Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    private String firmar(String ruta, long expira) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO_FIRMA);
+            mac.init(new SecretKeySpec(claveFirma, ALGORITMO_FIRMA));
+            byte[] firma = mac.doFinal((bucket + "\n" + ruta + "\n" + expira).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(firma);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo firmar la URL", e);
+        }
+    }
+
+    /**
+     * Canal de lectura limitado a los bytes de un rango
+     */
+    private static final class CanalAcotado implements ReadableByteChannel {
+
+        private final FileChannel canal;
+        private long restantes;
+
+        CanalAcotado(FileChannel canal, long restantes) {
+            this.canal = canal;
+            this.restantes = restantes;
+        }
+
+        @Override
+        public int read(ByteBuffer destino) throws IOException {
+            if (restantes <= 0) {
+                return -1;
+            }
+            int limiteOriginal = destino.limit();
+            if (destino.remaining() > restantes) {
+                destino.limit(destino.position() + (int) restantes);
+            }
+            try {
+                int leidos = canal.read(destino);
+                if (leidos > 0) {
+                    restantes -= leidos;
+                }
+                return leidos;
+            } finally {
+                destino.limit(limiteOriginal);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return canal.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+
+    /**
+     * Escritura sobre un archivo de .tmp que se publica al cerrar
+     * El estado capturado guarda la posición: al restaurar se descarta lo escrito después de la captura
+     * (una parte interrumpida a medias no deja bytes duplicados al reenviarse)
+     */
+    private final class EscrituraLocal implements EscrituraReanudable {
+
+        private final String ruta;
+        private final String contentType;
+        private final Path temporal;
+        private final FileChannel canal;
+
+        EscrituraLocal(String ruta, String contentType, Path temporal, long posicion) throws IOException {
+            this.ruta = ruta;
+            this.contentType = contentType;
+            this.temporal = temporal;
+            this.canal = FileChannel.open(temporal, StandardOpenOption.WRITE);
+            canal.truncate(posicion);
+            canal.position(posicion);
+        }
+
+        @Override
+        public int write(ByteBuffer origen) throws IOException {
+            return canal.write(origen);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return canal.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!canal.isOpen()) {
+                return;
+            }
+            canal.close();
+            try {
+                publicar(temporal, resolver(ruta), ruta, contentType, null);
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+        }
+
+        @Override
+        public byte[] capturar() throws IOException {
+            long posicion = canal.position();
+            canal.force(false);
+            canal.close();
+            ByteArrayOutputStream salida = new ByteArrayOutputStream();
+            try (DataOutputStream datos = new DataOutputStream(salida)) {
+                datos.writeUTF(ruta);
+                datos.writeUTF(contentType != null ? contentType : "");
+                datos.writeUTF(temporal.getFileName().toString());
+                datos.writeLong(posicion);
+            }
+            return salida.toByteArray();
+        }
+    }
+}
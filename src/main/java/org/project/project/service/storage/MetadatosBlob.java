@@ -0,0 +1,18 @@
+package org.project.project.service.storage;
+
+import java.util.Map;
+
+/**
+ * Metadatos de un objeto del almacenamiento, independientes del backend
+ * @param ruta Ruta del objeto dentro del bucket
+ * @param tamanio Tamaño en bytes
+ * @param generacion Versión del contenido: cambia cada vez que el objeto se reescribe
+ *                   (en GCS es la generación del objeto; en disco, la fecha de modificación en microsegundos)
+ * @param contentType Tipo MIME (puede ser null)
+ * @param creado Fecha de creación en epoch millis (puede ser null)
+ * @param actualizado Fecha de última modificación en epoch millis (puede ser null)
+ * @param metadatos Metadatos personalizados (nunca null)
+ */
+public record MetadatosBlob(String ruta, Long tamanio, Long generacion, String contentType,
+                            Long creado, Long actualizado, Map<String, String> metadatos) {
+}
@@ -0,0 +1,43 @@
+-- =====================================================================================================================
+-- FASE 0.10: ALMACENAMIENTO DIRECCIONADO POR CONTENIDO (DEDUPLICACIÓN)
+-- =====================================================================================================================
+-- Propósito: Guardar una sola vez en GCS cada contenido distinto (clave = SHA-256) y que copiar, pegar y
+--            versionar archivos sean operaciones solo de metadatos
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Tabla blob_contenido: un objeto GCS por hash con contador de referencias (nodos + versiones)
+-- 2. Columna nodo.contenido_hash: hash del contenido del archivo (NULL = objeto propio por ruta, layout anterior)
+-- 3. Índice sobre version_archivo.checksum para resolver versiones por contenido
+--
+-- MANTENIMIENTO: AlmacenContenidoService elimina los blobs con referencias = 0 tras un período de gracia
+-- (files.contenido.gc-gracia-horas). Los archivos anteriores a esta fase siguen funcionando con su
+-- gcs_path propio y se incorporan al almacén al versionarlos o con la adopción en segundo plano.
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+-- =====================================================================================================================
+-- PARTE 1: CREAR TABLA blob_contenido
+-- =====================================================================================================================
+
+CREATE TABLE IF NOT EXISTS `blob_contenido` (
+    `hash` CHAR(64) NOT NULL COMMENT 'SHA-256 en hexadecimal del contenido',
+    `gcs_path` VARCHAR(2048) NOT NULL COMMENT 'contenido/sha256/{aa}/{hash}',
+    `size_bytes` BIGINT NOT NULL,
+    `referencias` INT NOT NULL DEFAULT 0 COMMENT 'Nodos y versiones que apuntan a este contenido',
+    `creado_en` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    `actualizado_en` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (`hash`),
+    INDEX `idx_blob_contenido_huerfanos` (`referencias`, `actualizado_en`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- =====================================================================================================================
+-- PARTE 2: HASH DE CONTENIDO EN nodo Y version_archivo
+-- =====================================================================================================================
+
+ALTER TABLE `nodo`
+    ADD COLUMN `contenido_hash` CHAR(64) NULL COMMENT 'SHA-256 del contenido (blob_contenido.hash)' AFTER `gcs_generation`,
+    ADD INDEX `idx_nodo_contenido_hash` (`contenido_hash`);
+
+ALTER TABLE `version_archivo`
+    ADD INDEX `idx_version_archivo_checksum` (`checksum`);
@@ -0,0 +1,29 @@
+-- =====================================================================================================================
+-- FASE 0.11: RUNTIME EMBEBIDO DE MOCK SERVERS
+-- =====================================================================================================================
+-- Propósito: Servir los mocks (/mock/{mockServerId}/**) desde memoria a partir del contrato OpenAPI de la versión,
+--            sin desplegar nada en Cloud Run
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Columna api_mock_server.configuracion (JSON): misma forma que el documento mock_server_config
+--    (endpoints, fallback_response, global_headers) más la inyección de latencia y errores del mock:
+--    {
+--      "latencia_ms": 0, "jitter_ms": 0, "tasa_error": 0.0, "error_status": 500,
+--      "global_headers": {"X-Mock": "true"},
+--      "endpoints": [{"method": "GET", "path": "/pets/{id}",
+--                     "response": {"status_code": 200, "headers": {}, "body_template": "{\"id\": \"{{path.id}}\"}", "delay_ms": 0}}],
+--      "fallback_response": {"status_code": 404, "body_template": "{\"error\": \"not found\"}"}
+--    }
+--
+-- MANTENIMIENTO: MockRuntimeService recompila cada mock al vencer mock.runtime.recompilar-min
+-- (o a demanda con POST /api/mocks/{mockServerId}/recompilar). NULL = solo el contrato.
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+-- =====================================================================================================================
+-- PARTE 1: COLUMNA configuracion
+-- =====================================================================================================================
+
+ALTER TABLE `api_mock_server`
+    ADD COLUMN `configuracion` JSON NULL AFTER `nosql_config_id`;
@@ -0,0 +1,18 @@
+-- =====================================================================================================================
+-- FASE 0.12: DUEÑO DE LOS JOBS EN PROCESSING (file_operation_job)
+-- =====================================================================================================================
+-- Propósito: Que solo la instancia que tomó un job pueda actualizar su progreso y cerrarlo, y que la recuperación
+--            de huérfanos no reencole jobs que otra instancia sigue ejecutando
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Columna worker_id: instancia que tomó el job (se asigna con un UPDATE condicional al reclamarlo)
+--
+-- MANTENIMIENTO: FileOperationJobService actualiza heartbeat_at cada files.jobs.heartbeat-interval-ms mientras
+-- el job se ejecuta, aunque no avance (un archivo grande); solo los jobs sin latido durante
+-- files.jobs.heartbeat-timeout-min se consideran huérfanos.
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+ALTER TABLE `file_operation_job`
+    ADD COLUMN `worker_id` VARCHAR(100) NULL COMMENT 'Instancia que procesa el job' AFTER `heartbeat_at`;
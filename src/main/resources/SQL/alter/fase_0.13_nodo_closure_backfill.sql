@@ -0,0 +1,69 @@
+-- =====================================================================================================================
+-- FASE 0.13: COMPLETAR nodo_closure PARA NODOS CREADOS FUERA DE NodoService
+-- =====================================================================================================================
+-- Propósito: Los triggers de nodo raíz (triggers_root_node.sql) y sp_create_branch_from_existing (fase_0.4)
+--            insertaban filas en nodo sin sus filas en nodo_closure, así que las consultas de descendientes y
+--            ancestros basadas en la clausura no veían esos nodos
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Reenlazar los nodos copiados por sp_create_branch_from_existing que aún apuntan a un padre de la rama origen
+-- 2. Insertar las filas de clausura que falten, recalculadas desde parent_id (fila propia y una por ancestro)
+--
+-- MANTENIMIENTO: Volver a ejecutar triggers_root_node.sql y fase_0.4 (procedimiento) para instalar las versiones
+-- que ya indexan sus nodos. Este script es idempotente (INSERT IGNORE).
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+-- =====================================================================================================================
+-- PARTE 1: PADRES DE LAS RAMAS COPIADAS
+-- =====================================================================================================================
+UPDATE `nodo` c
+JOIN `nodo` po ON po.`nodo_id` = c.`parent_id`
+JOIN `nodo` pc ON pc.`container_type` = c.`container_type`
+              AND pc.`container_id` = c.`container_id`
+              AND pc.`rama_id` = c.`rama_id`
+              AND pc.`path` = po.`path`
+              AND pc.`is_deleted` = 0
+SET c.`parent_id` = pc.`nodo_id`
+WHERE c.`container_type` = 'REPOSITORIO'
+  AND c.`rama_id` IS NOT NULL
+  AND po.`rama_id` IS NOT NULL
+  AND po.`rama_id` <> c.`rama_id`;
+
+-- =====================================================================================================================
+-- PARTE 2: CLAUSURA DE LOS NODOS SIN INDEXAR
+-- =====================================================================================================================
+-- Los nodos reenlazados en la parte 1 tenían filas calculadas con el padre equivocado
+DELETE cl FROM `nodo_closure` cl
+JOIN `nodo` d ON d.`nodo_id` = cl.`descendiente_id`
+JOIN `nodo` a ON a.`nodo_id` = cl.`ancestro_id`
+WHERE d.`container_type` = 'REPOSITORIO'
+  AND d.`rama_id` IS NOT NULL
+  AND a.`rama_id` IS NOT NULL
+  AND a.`rama_id` <> d.`rama_id`;
+
+INSERT IGNORE INTO `nodo_closure` (`ancestro_id`, `descendiente_id`, `profundidad`)
+WITH RECURSIVE `arbol` AS (
+    SELECT `nodo_id` AS `ancestro_id`, `nodo_id` AS `descendiente_id`, 0 AS `profundidad`
+    FROM `nodo`
+    UNION ALL
+    SELECT a.`ancestro_id`, n.`nodo_id`, a.`profundidad` + 1
+    FROM `arbol` a
+    JOIN `nodo` n ON n.`parent_id` = a.`descendiente_id`
+)
+SELECT `ancestro_id`, `descendiente_id`, `profundidad` FROM `arbol`;
+
+-- Verificación: cada nodo debe tener su fila de profundidad 0 y una fila por cada ancestro
+SELECT COUNT(*) AS nodos_sin_indexar
+FROM `nodo` n
+WHERE NOT EXISTS (
+    SELECT 1 FROM `nodo_closure` c WHERE c.`ancestro_id` = n.`nodo_id` AND c.`descendiente_id` = n.`nodo_id`
+);
+
+SELECT COUNT(*) AS hijos_sin_fila_del_padre
+FROM `nodo` n
+WHERE n.`parent_id` IS NOT NULL
+  AND NOT EXISTS (
+    SELECT 1 FROM `nodo_closure` c WHERE c.`ancestro_id` = n.`parent_id` AND c.`descendiente_id` = n.`nodo_id`
+);
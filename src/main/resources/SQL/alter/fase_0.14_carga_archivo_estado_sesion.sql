@@ -0,0 +1,33 @@
+-- =====================================================================================================================
+-- FASE 0.14: ESTADO DE SUBIDAS RESUMABLES SIN CREDENCIALES
+-- =====================================================================================================================
+-- Propósito: carga_archivo.estado_canal guardaba el RestorableState<WriteChannel> serializado, que incluye las
+--            opciones del cliente de Storage (credenciales). Ahora solo guarda la URI de la sesión resumable,
+--            la posición y el tamaño de bloque
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Cancelar las subidas en curso con el formato anterior y borrar su estado serializado
+-- 2. Actualizar el comentario de la columna estado_canal
+--
+-- MANTENIMIENTO: Las sesiones resumables abandonadas las descarta GCS a los 7 días; los clientes con una subida
+-- cancelada por este script deben iniciarla de nuevo.
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+-- =====================================================================================================================
+-- PARTE 1: DESCARTAR ESTADOS CON EL FORMATO ANTERIOR
+-- =====================================================================================================================
+
+UPDATE `carga_archivo`
+SET `estado` = 'CANCELADA',
+    `estado_canal` = NULL
+WHERE `estado` = 'EN_CURSO'
+  AND `estado_canal` IS NOT NULL;
+
+-- =====================================================================================================================
+-- PARTE 2: COMENTARIO DE LA COLUMNA
+-- =====================================================================================================================
+
+ALTER TABLE `carga_archivo`
+    MODIFY COLUMN `estado_canal` LONGBLOB NULL COMMENT 'URI de la sesión resumable, posición y tamaño de bloque (sin credenciales)';
@@ -0,0 +1,22 @@
+-- =====================================================================================================================
+-- FASE 0.15: PURGA DE LA PAPELERA DE NODOS
+-- =====================================================================================================================
+-- Propósito: Los nodos eliminados (is_deleted = 1) conservan su referencia al contenido deduplicado para poder
+--            restaurarse. PapeleraNodosService los borra definitivamente pasados files.papelera.retencion-dias
+--            y libera sus referencias en blob_contenido
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Índice (is_deleted, deleted_at) para buscar los subárboles vencidos sin recorrer toda la tabla nodo
+--
+-- MANTENIMIENTO: La primera pasada tras desplegar purga por lotes (files.papelera.lote) los nodos eliminados
+-- antes de la retención; los blobs que queden en 0 los reclama la recolección tras gc-gracia-horas.
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+-- =====================================================================================================================
+-- PARTE 1: ÍNDICE DE LA PAPELERA
+-- =====================================================================================================================
+
+ALTER TABLE `nodo`
+    ADD INDEX `idx_nodo_papelera` (`is_deleted`, `deleted_at`);
@@ -0,0 +1,31 @@
+-- =====================================================================================================================
+-- FASE 0.16: ÍNDICES PARA LA PAGINACIÓN POR CURSOR DEL DASHBOARD
+-- =====================================================================================================================
+-- Propósito: ProyectoQueryService y RepositorioQueryService tienen una query keyset por orden (name, oldest,
+--            recent) que filtra y ordena por (clave de orden, id). Con estos índices MySQL lee la página
+--            recorriendo el índice desde el cursor en lugar de ordenar todas las filas que pasan los filtros
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. proyecto: (nombre_proyecto, proyecto_id) y (fecha_inicio_proyecto, proyecto_id)
+-- 2. repositorio: (nombre_repositorio, repositorio_id) y (fecha_creacion, repositorio_id)
+--
+-- MANTENIMIENTO: El orden "recent" recorre los mismos índices en sentido inverso; no hace falta un índice DESC.
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+-- =====================================================================================================================
+-- PARTE 1: PROYECTOS
+-- =====================================================================================================================
+
+ALTER TABLE `proyecto`
+    ADD INDEX `idx_proyecto_nombre_cursor` (`nombre_proyecto`, `proyecto_id`),
+    ADD INDEX `idx_proyecto_fecha_inicio_cursor` (`fecha_inicio_proyecto`, `proyecto_id`);
+
+-- =====================================================================================================================
+-- PARTE 2: REPOSITORIOS
+-- =====================================================================================================================
+
+ALTER TABLE `repositorio`
+    ADD INDEX `idx_repositorio_nombre_cursor` (`nombre_repositorio`, `repositorio_id`),
+    ADD INDEX `idx_repositorio_fecha_creacion_cursor` (`fecha_creacion`, `repositorio_id`);
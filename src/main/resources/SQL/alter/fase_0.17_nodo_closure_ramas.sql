@@ -0,0 +1,354 @@
+-- =====================================================================================================================
+-- FASE 0.17: INDEXAR EN nodo_closure LOS NODOS DE LOS TRIGGERS DE RAÍZ Y DE LAS RAMAS COPIADAS
+-- =====================================================================================================================
+-- Propósito: Los triggers de nodo raíz (database/triggers_root_node.sql) y sp_create_branch_from_existing (fase_0.4)
+--            insertan filas en nodo sin sus filas en nodo_closure. Esta fase reinstala ambos ya indexando sus
+--            nodos (sin modificar los scripts ya aplicados) y corrige los datos existentes.
+--            La parte 1 de fase_0.13 buscaba el padre copiado con el mismo path que el padre origen, pero el
+--            procedimiento reescribe el segmento de la rama en el path, así que esas copias no se reenlazaron
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Triggers de nodo raíz de proyecto y repositorio con su fila de clausura (profundidad 0)
+-- 2. sp_create_branch_from_existing: las copias cuelgan de la copia de su padre y se indexan en nodo_closure
+-- 3. Reenlazar las copias que aún apuntan a un padre de la rama origen (path traducido de rama origen a destino)
+-- 4. Insertar las filas de clausura que falten, recalculadas desde parent_id
+--
+-- MANTENIMIENTO: Requiere fase_0.6 (nodo_closure). Idempotente: las partes 1 y 2 usan DROP ... IF EXISTS y la
+-- parte 4 INSERT IGNORE.
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+-- =====================================================================================================================
+-- PARTE 1: TRIGGERS DE NODO RAÍZ
+-- =====================================================================================================================
+
+DELIMITER $$
+
+-- =====================================================
+-- TRIGGER 1: Auto-crear nodo raíz al insertar PROYECTO
+-- =====================================================
+DROP TRIGGER IF EXISTS after_proyecto_insert_create_root_node$$
+
+CREATE TRIGGER after_proyecto_insert_create_root_node
+AFTER INSERT ON proyecto
+FOR EACH ROW
+BEGIN
+    DECLARE new_nodo_id BIGINT;
+    
+    -- Crear el nodo raíz del proyecto
+    INSERT INTO nodo (
+        container_type,
+        container_id,
+        parent_id,
+        nombre,
+        tipo,
+        path,
+        descripcion,
+        size_bytes,
+        mime_type,
+        created_by,
+        created_at,
+        updated_by,
+        updated_at,
+        is_deleted,
+        deleted_at
+    ) VALUES (
+        'PROYECTO',                    -- container_type
+        NEW.proyecto_id,               -- container_id
+        NULL,                          -- parent_id (NULL = nodo raíz)
+        '/',                           -- nombre (carpeta raíz)
+        'CARPETA',                     -- tipo
+        '/',                           -- path (raíz)
+        'Carpeta raíz del proyecto',   -- descripcion
+        0,                             -- size_bytes
+        NULL,                          -- mime_type
+        NEW.created_by,                -- created_by
+        NOW(),                         -- created_at
+        NEW.created_by,                -- updated_by
+        NOW(),                         -- updated_at
+        0,                             -- is_deleted
+        NULL                           -- deleted_at
+    );
+    
+    -- Obtener el ID del nodo recién creado
+    SET new_nodo_id = LAST_INSERT_ID();
+    
+    -- Indexar la raíz en nodo_closure (fila propia, profundidad 0; una raíz no tiene ancestros)
+    INSERT INTO nodo_closure (ancestro_id, descendiente_id, profundidad)
+    VALUES (new_nodo_id, new_nodo_id, 0);
+    
+    -- Actualizar el proyecto con el root_node_id
+    UPDATE proyecto 
+    SET root_node_id = new_nodo_id,
+        updated_at = NOW()
+    WHERE proyecto_id = NEW.proyecto_id;
+END$$
+
+
+-- =====================================================
+-- TRIGGER 2: Auto-crear nodo raíz al insertar REPOSITORIO
+-- =====================================================
+DROP TRIGGER IF EXISTS after_repositorio_insert_create_root_node$$
+
+CREATE TRIGGER after_repositorio_insert_create_root_node
+AFTER INSERT ON repositorio
+FOR EACH ROW
+BEGIN
+    DECLARE new_nodo_id BIGINT;
+    
+    -- Crear el nodo raíz del repositorio
+    INSERT INTO nodo (
+        container_type,
+        container_id,
+        parent_id,
+        nombre,
+        tipo,
+        path,
+        descripcion,
+        size_bytes,
+        mime_type,
+        created_by,
+        created_at,
+        updated_by,
+        updated_at,
+        is_deleted,
+        deleted_at
+    ) VALUES (
+        'REPOSITORIO',                 -- container_type
+        NEW.repositorio_id,            -- container_id
+        NULL,                          -- parent_id (NULL = nodo raíz)
+        '/',                           -- nombre (carpeta raíz)
+        'CARPETA',                     -- tipo
+        '/',                           -- path (raíz)
+        'Carpeta raíz del repositorio',-- descripcion
+        0,                             -- size_bytes
+        NULL,                          -- mime_type
+        NEW.creado_por,                -- created_by
+        NOW(),                         -- created_at
+        NEW.creado_por,                -- updated_by
+        NOW(),                         -- updated_at
+        0,                             -- is_deleted
+        NULL                           -- deleted_at
+    );
+    
+    -- Obtener el ID del nodo recién creado
+    SET new_nodo_id = LAST_INSERT_ID();
+    
+    -- Indexar la raíz en nodo_closure (fila propia, profundidad 0; una raíz no tiene ancestros)
+    INSERT INTO nodo_closure (ancestro_id, descendiente_id, profundidad)
+    VALUES (new_nodo_id, new_nodo_id, 0);
+    
+    -- Actualizar el repositorio con el root_node_id
+    UPDATE repositorio 
+    SET root_node_id = new_nodo_id,
+        actualizado_en = NOW()
+    WHERE repositorio_id = NEW.repositorio_id;
+END$$
+
+DELIMITER ;
+
+-- =====================================================================================================================
+-- PARTE 2: PROCEDIMIENTO DE CREACIÓN DE RAMAS
+-- =====================================================================================================================
+
+DELIMITER $$
+
+-- -----------------------------------------------------
+-- Procedimiento: sp_create_branch_from_existing
+-- Propósito: Crear una nueva rama copiando la estructura de archivos de otra rama
+-- Uso: CALL sp_create_branch_from_existing(32, 'main', 'develop', 1);
+-- Efecto: Crea rama 'develop' en repo R-32 copiando estructura de 'main'; las copias se indexan en nodo_closure
+-- -----------------------------------------------------
+DROP PROCEDURE IF EXISTS `sp_create_branch_from_existing`$$
+
+CREATE PROCEDURE `sp_create_branch_from_existing`(
+    IN p_repositorio_id BIGINT UNSIGNED,
+    IN p_rama_origen VARCHAR(100),
+    IN p_rama_destino VARCHAR(100),
+    IN p_usuario_id BIGINT UNSIGNED
+)
+BEGIN
+    DECLARE v_rama_origen_id BIGINT UNSIGNED;
+    DECLARE v_rama_destino_id BIGINT UNSIGNED;
+    DECLARE v_nodos_copiados INT DEFAULT 0;
+    DECLARE v_error_msg VARCHAR(500);
+    
+    -- Buscar ID de rama origen
+    SELECT rama_id INTO v_rama_origen_id
+    FROM repositorio_rama
+    WHERE repositorio_id = p_repositorio_id 
+      AND nombre_rama = p_rama_origen
+    LIMIT 1;
+    
+    IF v_rama_origen_id IS NULL THEN
+        SET v_error_msg = CONCAT('Rama origen "', p_rama_origen, '" no existe en repositorio ', p_repositorio_id);
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = v_error_msg;
+    END IF;
+    
+    -- Crear nueva rama
+    INSERT INTO repositorio_rama (
+        repositorio_id, 
+        nombre_rama, 
+        descripcion_rama,
+        is_principal, 
+        is_protegida,
+        creada_por_usuario_id,
+        fecha_creacion
+    ) VALUES (
+        p_repositorio_id,
+        p_rama_destino,
+        CONCAT('Rama creada desde ', p_rama_origen),
+        0,
+        0,
+        p_usuario_id,
+        NOW()
+    );
+    
+    SET v_rama_destino_id = LAST_INSERT_ID();
+    
+    -- Copiar estructura de nodos (carpetas y archivos)
+    -- NOTA: Esto copia la ESTRUCTURA, no los archivos físicos en GCS
+    -- Los archivos físicos se deben copiar en el backend
+    INSERT INTO nodo (
+        container_type,
+        container_id,
+        rama_id,
+        parent_id,
+        nombre,
+        tipo,
+        path,
+        descripcion,
+        size_bytes,
+        mime_type,
+        creado_por,
+        creado_en,
+        is_deleted
+    )
+    SELECT 
+        container_type,
+        container_id,
+        v_rama_destino_id AS rama_id,
+        parent_id, -- NOTA: Esto puede necesitar mapeo si se copian nodos específicos
+        nombre,
+        tipo,
+        REPLACE(path, CONCAT('/', p_rama_origen, '/'), CONCAT('/', p_rama_destino, '/')) AS path,
+        descripcion,
+        size_bytes,
+        mime_type,
+        p_usuario_id AS creado_por,
+        NOW() AS creado_en,
+        0 AS is_deleted
+    FROM nodo
+    WHERE container_type = 'REPOSITORIO'
+      AND container_id = p_repositorio_id
+      AND rama_id = v_rama_origen_id
+      AND is_deleted = 0;
+    
+    SET v_nodos_copiados = ROW_COUNT();
+    
+    -- Correspondencia nodo origen -> copia (el path es único por contenedor y rama)
+    DROP TEMPORARY TABLE IF EXISTS tmp_copia_rama;
+    CREATE TEMPORARY TABLE tmp_copia_rama (
+        origen_id BIGINT UNSIGNED NOT NULL PRIMARY KEY,
+        copia_id BIGINT UNSIGNED NOT NULL
+    );
+    INSERT INTO tmp_copia_rama (origen_id, copia_id)
+    SELECT o.nodo_id, c.nodo_id
+    FROM nodo o
+    JOIN nodo c ON c.container_type = o.container_type
+               AND c.container_id = o.container_id
+               AND c.rama_id = v_rama_destino_id
+               AND c.path = REPLACE(o.path, CONCAT('/', p_rama_origen, '/'), CONCAT('/', p_rama_destino, '/'))
+    WHERE o.container_type = 'REPOSITORIO'
+      AND o.container_id = p_repositorio_id
+      AND o.rama_id = v_rama_origen_id
+      AND o.is_deleted = 0;
+    
+    -- MySQL no permite referenciar dos veces la misma tabla temporal en una consulta
+    DROP TEMPORARY TABLE IF EXISTS tmp_copia_rama_2;
+    CREATE TEMPORARY TABLE tmp_copia_rama_2 LIKE tmp_copia_rama;
+    INSERT INTO tmp_copia_rama_2 SELECT origen_id, copia_id FROM tmp_copia_rama;
+    
+    -- Las copias cuelgan de las copias de sus padres, no de los nodos de la rama origen
+    UPDATE nodo c
+    JOIN tmp_copia_rama m ON m.copia_id = c.nodo_id
+    JOIN nodo o ON o.nodo_id = m.origen_id
+    JOIN tmp_copia_rama_2 mp ON mp.origen_id = o.parent_id
+    SET c.parent_id = mp.copia_id;
+    
+    -- Indexar las copias en nodo_closure a partir de las filas de la rama origen
+    -- (todos los ancestros de un nodo de la rama están en la misma rama; incluye la fila propia)
+    INSERT INTO nodo_closure (ancestro_id, descendiente_id, profundidad)
+    SELECT ma.copia_id, md.copia_id, cl.profundidad
+    FROM nodo_closure cl
+    JOIN tmp_copia_rama ma ON ma.origen_id = cl.ancestro_id
+    JOIN tmp_copia_rama_2 md ON md.origen_id = cl.descendiente_id;
+    
+    DROP TEMPORARY TABLE IF EXISTS tmp_copia_rama;
+    DROP TEMPORARY TABLE IF EXISTS tmp_copia_rama_2;
+    
+    SELECT 
+        v_rama_destino_id AS nueva_rama_id,
+        p_rama_destino AS nombre_rama,
+        v_nodos_copiados AS nodos_copiados;
+END$$
+
+DELIMITER ;
+
+-- =====================================================================================================================
+-- PARTE 3: PADRES DE LAS RAMAS COPIADAS
+-- =====================================================================================================================
+-- El padre correcto es el nodo de la misma rama cuyo path es el del padre origen con el segmento de rama traducido
+UPDATE `nodo` c
+JOIN `nodo` po ON po.`nodo_id` = c.`parent_id`
+JOIN `repositorio_rama` ro ON ro.`rama_id` = po.`rama_id`
+JOIN `repositorio_rama` rd ON rd.`rama_id` = c.`rama_id`
+JOIN `nodo` pc ON pc.`container_type` = c.`container_type`
+              AND pc.`container_id` = c.`container_id`
+              AND pc.`rama_id` = c.`rama_id`
+              AND pc.`path` = REPLACE(po.`path`, CONCAT('/', ro.`nombre_rama`, '/'), CONCAT('/', rd.`nombre_rama`, '/'))
+              AND pc.`is_deleted` = 0
+SET c.`parent_id` = pc.`nodo_id`
+WHERE c.`container_type` = 'REPOSITORIO'
+  AND c.`rama_id` IS NOT NULL
+  AND po.`rama_id` IS NOT NULL
+  AND po.`rama_id` <> c.`rama_id`;
+
+-- =====================================================================================================================
+-- PARTE 4: CLAUSURA DE LOS NODOS SIN INDEXAR
+-- =====================================================================================================================
+-- Los nodos reenlazados en la parte 3 tenían filas calculadas con el padre equivocado
+DELETE cl FROM `nodo_closure` cl
+JOIN `nodo` d ON d.`nodo_id` = cl.`descendiente_id`
+JOIN `nodo` a ON a.`nodo_id` = cl.`ancestro_id`
+WHERE d.`container_type` = 'REPOSITORIO'
+  AND d.`rama_id` IS NOT NULL
+  AND a.`rama_id` IS NOT NULL
+  AND a.`rama_id` <> d.`rama_id`;
+
+INSERT IGNORE INTO `nodo_closure` (`ancestro_id`, `descendiente_id`, `profundidad`)
+WITH RECURSIVE `arbol` AS (
+    SELECT `nodo_id` AS `ancestro_id`, `nodo_id` AS `descendiente_id`, 0 AS `profundidad`
+    FROM `nodo`
+    UNION ALL
+    SELECT a.`ancestro_id`, n.`nodo_id`, a.`profundidad` + 1
+    FROM `arbol` a
+    JOIN `nodo` n ON n.`parent_id` = a.`descendiente_id`
+)
+SELECT `ancestro_id`, `descendiente_id`, `profundidad` FROM `arbol`;
+
+-- Verificación: ninguna copia debe seguir colgando de otra rama
+SELECT COUNT(*) AS copias_con_padre_de_otra_rama
+FROM `nodo` c
+JOIN `nodo` p ON p.`nodo_id` = c.`parent_id`
+WHERE c.`rama_id` IS NOT NULL
+  AND p.`rama_id` IS NOT NULL
+  AND p.`rama_id` <> c.`rama_id`;
+
+SELECT COUNT(*) AS hijos_sin_fila_del_padre
+FROM `nodo` n
+WHERE n.`parent_id` IS NOT NULL
+  AND NOT EXISTS (
+    SELECT 1 FROM `nodo_closure` c WHERE c.`ancestro_id` = n.`parent_id` AND c.`descendiente_id` = n.`nodo_id`
+);
@@ -0,0 +1,17 @@
+-- =====================================================================================================================
+-- FASE 0.5: MOTOR DE JOBS EN BACKGROUND PARA file_operation_job
+-- =====================================================================================================================
+-- Propósito: Permitir que FileOperationJobService detecte jobs huérfanos (instancia reiniciada a mitad de un job)
+--            y los reencole al arrancar
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Columna heartbeat_at: se actualiza junto con el progreso (con throttling) mientras el job está en PROCESSING
+-- 2. Índice (status, heartbeat_at) para buscar jobs PROCESSING sin heartbeat reciente
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+ALTER TABLE `file_operation_job`
+    ADD COLUMN `heartbeat_at` DATETIME NULL COMMENT 'Último latido del worker que procesa el job' AFTER `completed_at`;
+
+CREATE INDEX `idx_job_heartbeat` ON `file_operation_job` (`status`, `heartbeat_at`);
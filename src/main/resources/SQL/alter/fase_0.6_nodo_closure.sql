@@ -0,0 +1,57 @@
+-- =====================================================================================================================
+-- FASE 0.6: TABLA DE CLAUSURA (ANCESTRO / DESCENDIENTE) PARA LA JERARQUÍA DE nodo
+-- =====================================================================================================================
+-- Propósito: Resolver breadcrumbs, rutas completas, tamaño recursivo y "¿X está dentro de Y?" con una sola
+--            consulta indexada en lugar de recorrer parent_id nivel por nivel
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Tabla nodo_closure: una fila por cada par (ancestro, descendiente), incluida la fila (nodo, nodo, 0)
+-- 2. Carga inicial desde parent_id con un CTE recursivo (MySQL 8+)
+--
+-- MANTENIMIENTO: NodoService inserta las filas al crear nodos y reenlaza el subárbol al moverlos.
+-- El soft delete no toca la tabla (restaurar no requiere reconstruir nada); el borrado físico
+-- limpia las filas por ON DELETE CASCADE.
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+-- =====================================================================================================================
+-- PARTE 1: CREAR TABLA nodo_closure
+-- =====================================================================================================================
+CREATE TABLE IF NOT EXISTS `nodo_closure` (
+    `ancestro_id` BIGINT UNSIGNED NOT NULL,
+    `descendiente_id` BIGINT UNSIGNED NOT NULL,
+    `profundidad` INT UNSIGNED NOT NULL COMMENT '0 = el propio nodo, 1 = hijo directo, ...',
+    PRIMARY KEY (`ancestro_id`, `descendiente_id`),
+    INDEX `idx_closure_descendiente` (`descendiente_id`, `profundidad`),
+    CONSTRAINT `fk_closure_ancestro`
+        FOREIGN KEY (`ancestro_id`)
+        REFERENCES `dev_portal_sql`.`nodo` (`nodo_id`)
+        ON DELETE CASCADE,
+    CONSTRAINT `fk_closure_descendiente`
+        FOREIGN KEY (`descendiente_id`)
+        REFERENCES `dev_portal_sql`.`nodo` (`nodo_id`)
+        ON DELETE CASCADE
+) ENGINE = InnoDB
+  DEFAULT CHARACTER SET = utf8mb4;
+
+-- =====================================================================================================================
+-- PARTE 2: CARGA INICIAL DESDE parent_id
+-- =====================================================================================================================
+INSERT IGNORE INTO `nodo_closure` (`ancestro_id`, `descendiente_id`, `profundidad`)
+WITH RECURSIVE `arbol` AS (
+    SELECT `nodo_id` AS `ancestro_id`, `nodo_id` AS `descendiente_id`, 0 AS `profundidad`
+    FROM `nodo`
+    UNION ALL
+    SELECT a.`ancestro_id`, n.`nodo_id`, a.`profundidad` + 1
+    FROM `arbol` a
+    JOIN `nodo` n ON n.`parent_id` = a.`descendiente_id`
+)
+SELECT `ancestro_id`, `descendiente_id`, `profundidad` FROM `arbol`;
+
+-- Verificación: cada nodo debe tener su fila de profundidad 0
+SELECT COUNT(*) AS nodos_sin_indexar
+FROM `nodo` n
+WHERE NOT EXISTS (
+    SELECT 1 FROM `nodo_closure` c WHERE c.`ancestro_id` = n.`nodo_id` AND c.`descendiente_id` = n.`nodo_id`
+);
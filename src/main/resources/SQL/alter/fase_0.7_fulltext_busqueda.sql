@@ -0,0 +1,45 @@
+-- =====================================================================================================================
+-- FASE 0.7: ÍNDICES FULLTEXT PARA LA BÚSQUEDA UNIFICADA
+-- =====================================================================================================================
+-- Propósito: Búsqueda con ranking sobre APIs, proyectos, repositorios, documentación, tickets y foro
+--            (MATCH ... AGAINST) en lugar de LIKE '%texto%' o filtrar listas completas en memoria
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Índice FULLTEXT por tabla sobre sus columnas de texto (nombre/título + descripción/cuerpo)
+--
+-- MANTENIMIENTO: InnoDB actualiza los índices FULLTEXT en cada INSERT/UPDATE, no hace falta
+-- reindexar desde la aplicación. BusquedaService arma las consultas en BOOLEAN MODE con prefijos (término*).
+-- NOTA: innodb_ft_min_token_size (3 por defecto) define el largo mínimo de término indexado.
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+-- =====================================================================================================================
+-- PARTE 1: CATÁLOGO (api, documentación)
+-- =====================================================================================================================
+
+ALTER TABLE `api`
+    ADD FULLTEXT INDEX `ft_api_busqueda` (`nombre_api`, `descripcion_api`);
+
+ALTER TABLE `contenido`
+    ADD FULLTEXT INDEX `ft_contenido_busqueda` (`titulo_contenido`);
+
+-- =====================================================================================================================
+-- PARTE 2: PROYECTOS Y REPOSITORIOS
+-- =====================================================================================================================
+
+ALTER TABLE `proyecto`
+    ADD FULLTEXT INDEX `ft_proyecto_busqueda` (`nombre_proyecto`, `descripcion_proyecto`);
+
+ALTER TABLE `repositorio`
+    ADD FULLTEXT INDEX `ft_repositorio_busqueda` (`nombre_repositorio`, `descripcion_repositorio`);
+
+-- =====================================================================================================================
+-- PARTE 3: TICKETS Y FORO
+-- =====================================================================================================================
+
+ALTER TABLE `ticket`
+    ADD FULLTEXT INDEX `ft_ticket_busqueda` (`asunto_ticket`, `cuerpo_ticket`);
+
+ALTER TABLE `foro_tema`
+    ADD FULLTEXT INDEX `ft_foro_tema_busqueda` (`titulo_tema`, `contenido_tema`);
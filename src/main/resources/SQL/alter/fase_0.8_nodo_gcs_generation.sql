@@ -0,0 +1,20 @@
+-- =====================================================================================================================
+-- FASE 0.8: GENERACIÓN GCS EN nodo (ETag / DESCARGAS CONDICIONALES)
+-- =====================================================================================================================
+-- Propósito: Responder If-None-Match / If-Range en las descargas sin consultar GCS
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Columna nodo.gcs_generation: generación del objeto en gcs_path (identifica su contenido exacto)
+--
+-- MANTENIMIENTO: La subida la guarda; renombrar/mover la deja en NULL al cambiar gcs_path.
+-- Los nodos existentes (NULL) la completan en su primera descarga con una lectura de metadatos.
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+-- =====================================================================================================================
+-- PARTE 1: COLUMNA gcs_generation
+-- =====================================================================================================================
+
+ALTER TABLE `nodo`
+    ADD COLUMN `gcs_generation` BIGINT NULL AFTER `gcs_path`;
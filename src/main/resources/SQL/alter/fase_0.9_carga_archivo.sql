@@ -0,0 +1,42 @@
+-- =====================================================================================================================
+-- FASE 0.9: SUBIDAS POR PARTES (RESUMABLES) DE ARCHIVOS GRANDES
+-- =====================================================================================================================
+-- Propósito: Subir archivos en partes (init -> PUT parte N -> complete) directo a un upload resumable de GCS,
+--            sin cargar el archivo completo en memoria y pudiendo retomar tras una desconexión
+--
+-- CAMBIOS INCLUIDOS:
+-- 1. Tabla carga_archivo: una fila por subida en curso, con el estado serializado del WriteChannel de GCS
+--    (cualquier instancia puede continuar la subida)
+-- 2. Índice (estado, actualizado_en) para la limpieza de subidas abandonadas
+--
+-- MANTENIMIENTO: CargaArchivoService elimina las subidas sin actividad más antiguas que
+-- files.upload.expira-horas (GCS descarta por su cuenta las sesiones resumables a los 7 días).
+-- =====================================================================================================================
+
+USE `dev_portal_sql`;
+
+-- =====================================================================================================================
+-- PARTE 1: CREAR TABLA carga_archivo
+-- =====================================================================================================================
+
+CREATE TABLE IF NOT EXISTS `carga_archivo` (
+    `carga_id` VARCHAR(36) NOT NULL COMMENT 'UUID de la subida (lo usa el cliente en cada parte)',
+    `usuario_id` BIGINT UNSIGNED NOT NULL,
+    `container_type` VARCHAR(20) NOT NULL,
+    `container_id` BIGINT UNSIGNED NOT NULL,
+    `parent_id` BIGINT UNSIGNED NULL,
+    `nombre` VARCHAR(255) NOT NULL,
+    `mime_type` VARCHAR(255) NULL,
+    `tamanio_total` BIGINT NOT NULL,
+    `tamanio_parte` INT NOT NULL COMMENT 'Bytes por parte (múltiplo de 256 KiB salvo la última)',
+    `bytes_recibidos` BIGINT NOT NULL DEFAULT 0,
+    `gcs_path` VARCHAR(2048) NOT NULL,
+    `estado_canal` LONGBLOB NULL COMMENT 'RestorableState<WriteChannel> serializado',
+    `estado` VARCHAR(20) NOT NULL DEFAULT 'EN_CURSO',
+    `nodo_id` BIGINT UNSIGNED NULL COMMENT 'Nodo creado al completar',
+    `creado_en` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    `actualizado_en` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (`carga_id`),
+    INDEX `idx_carga_usuario` (`usuario_id`),
+    INDEX `idx_carga_estado_actualizado` (`estado`, `actualizado_en`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;